@@ -70,6 +70,13 @@ public enum OGlobalConfiguration {
 
   DISK_WRITE_CACHE_PART("storage.diskCache.writeCachePart", "Percent of disk cache which is use as write cache", Integer.class, 30),
 
+  DISK_CACHE_SEGMENTS("storage.diskCache.segments", "Amount of independently locked segments read cache is split into,"
+      + " 1 means that single lock cache is used, 0 or negative value means that amount of segments is calculated"
+      + " from amount of CPU cores", Integer.class, 1),
+
+  DISK_CACHE_READ_AHEAD_PAGES("storage.diskCache.readAheadPages", "Amount of pages which are loaded into disk cache in background"
+      + " when sequential read of cluster or index file is detected, 0 disables read ahead", Integer.class, 16),
+
   DISK_WRITE_CACHE_PAGE_TTL("storage.diskCache.writeCachePageTTL",
       "Max time till page will be flushed from write cache in seconds", Long.class, 24 * 60 * 60),
 
@@ -84,12 +91,21 @@ public enum OGlobalConfiguration {
   DISK_WRITE_CACHE_FLUSH_LOCK_TIMEOUT("storage.diskCache.writeCacheFlushLockTimeout",
       "Maximum amount of time till write cache will be wait before page flush in ms.", Integer.class, -1),
 
+  DISK_WRITE_CACHE_FLUSH_THREADS("storage.diskCache.writeCacheFlushThreads",
+      "Amount of threads which flush pages from write cache to the disk. Files are partitioned between threads,"
+          + " pages of the same file are always flushed by the same thread", Integer.class, Math.max(1, Math.min(4, Runtime
+          .getRuntime().availableProcessors() / 2))),
+
   STORAGE_CONFIGURATION_SYNC_ON_UPDATE("storage.configuration.syncOnUpdate",
       "Should we perform force sync of storage configuration for each update", Boolean.class, true),
 
   STORAGE_COMPRESSION_METHOD("storage.compressionMethod", "Record compression method is used in storage."
       + " Possible values : gzip, nothing, snappy, snappy-native. Default is snappy.", String.class, "snappy"),
 
+  STORAGE_PAGE_COMPRESSION_METHOD("storage.pageCompressionMethod", "Compression method which is used for pages of new cluster and"
+      + " index files of paginated storage. Possible values : gzip, nothing, snappy, snappy-native. Default is nothing.",
+      String.class, "nothing"),
+
   USE_WAL("storage.useWAL", "Whether WAL should be used in paginated storage", Boolean.class, true),
 
   WAL_SYNC_ON_PAGE_FLUSH("storage.wal.syncOnPageFlush", "Should we perform force sync during WAL page flush", Boolean.class, true),
@@ -104,17 +120,43 @@ public enum OGlobalConfiguration {
 
   WAL_COMMIT_TIMEOUT("storage.wal.commitTimeout", "Maximum interval between WAL commits (in ms.)", Integer.class, 1000),
 
+  WAL_GROUP_COMMIT("storage.wal.groupCommit", "Indicates whether completion of atomic operation should wait till its records"
+      + " are forced to the disk. Commits of concurrent operations are grouped and forced to the disk by single fsync.",
+      Boolean.class, false),
+
+  WAL_GROUP_COMMIT_WINDOW("storage.wal.groupCommitWindow",
+      "Maximum interval during which group commit collects operations before their records will be forced to the disk (in ms.)",
+      Integer.class, 5),
+
+  WAL_GROUP_COMMIT_BATCH_SIZE("storage.wal.groupCommitBatchSize",
+      "Amount of waiting operations after which group commit forces WAL to the disk without waiting till end of commit window",
+      Integer.class, 64),
+
+  WAL_PREALLOCATE_SEGMENTS("storage.wal.preallocateSegments", "Should WAL segments be preallocated in background to their"
+      + " maximum size, so records are appended to already allocated file space", Boolean.class, true),
+
+  WAL_SPARE_SEGMENTS("storage.wal.spareSegments", "Maximum amount of preallocated or recycled WAL segment files which are"
+      + " kept to be reused as new segments, 0 means that WAL segments are deleted once they are not needed", Integer.class, 2),
+
   WAL_SHUTDOWN_TIMEOUT("storage.wal.shutdownTimeout", "Maximum wait interval between events when background flush thread"
       + " will receive shutdown command and when background flush will be stopped (in ms.)", Integer.class, 10000),
 
   WAL_FUZZY_CHECKPOINT_INTERVAL("storage.wal.fuzzyCheckpointInterval", "Interval between fuzzy checkpoints (in seconds)",
       Integer.class, 2592000),
 
+  WAL_FUZZY_CHECKPOINT_MAX_LAG("storage.wal.fuzzyCheckpointMaxLag", "Maximum amount of WAL (in megabytes) which is replayed"
+      + " during data restore after crash. Fuzzy checkpoint which flushes the oldest dirty pages is started once half of this"
+      + " amount is logged after the last checkpoint", Integer.class, 512),
+
   WAL_REPORT_AFTER_OPERATIONS_DURING_RESTORE(
       "storage.wal.reportAfterOperationsDuringRestore",
       "Amount of processed log operations, after which status of data restore procedure will be printed 0 or negative value, means that status will not be printed",
       Integer.class, 10000),
 
+  WAL_RESTORE_THREADS("storage.wal.restoreThreads", "Amount of threads which apply page changes during restore of data from WAL."
+      + " Changes are partitioned between threads by page, 1 means that changes are applied by the thread which reads WAL",
+      Integer.class, Runtime.getRuntime().availableProcessors()),
+
   WAL_READ_CACHE_SIZE("storage.wal.readCacheSize", "Size of WAL read cache in amount of pages", Integer.class, 1000),
 
   WAL_FUZZY_CHECKPOINT_SHUTDOWN_TIMEOUT("storage.wal.fuzzyCheckpointShutdownWait",
@@ -241,6 +283,10 @@ public enum OGlobalConfiguration {
       + "that were splited but not flushed to the disk are kept. This buffer is used to minimize random IO overhead.",
       Integer.class, 1500),
 
+  HASH_TABLE_CONCURRENT_MODIFICATIONS("hashTable.concurrentModifications",
+      "Allows to insert, update and remove keys in hash index concurrently if modification does not cause split or merge of "
+          + "bucket, such modifications lock only bucket page instead of whole hash table", Boolean.class, Boolean.FALSE),
+
   INDEX_AUTO_REBUILD_AFTER_NOTSOFTCLOSE("index.auto.rebuildAfterNotSoftClose",
       "Auto rebuild all automatic indexes after upon database open when wasn't closed properly", Boolean.class, true),
 
@@ -272,8 +318,35 @@ public enum OGlobalConfiguration {
   INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT("index.notunique.useSBTreeContainerByDefault",
       "Prefer SBTree based algorithm instead MVRBTree for storing sets of RID", Boolean.class, true),
 
+  INDEX_FULLTEXT_POSTING_LISTS("index.fullText.postingLists",
+      "Store words of new full-text indexes in compressed posting lists sorted by record id together with word frequencies, "
+          + "such indexes rank results and evaluate multi-word and prefix queries by merge of posting lists. "
+          + "Can be overridden by 'postingLists' property of index metadata", Boolean.class, Boolean.FALSE),
+
+  INDEX_BLOOM_FILTER("index.bloomFilter",
+      "Keep Bloom filter of keys in front of new SBTree and hash indexes, so lookups of absent keys do not load index pages. "
+          + "Filter is saved near index files on flush and close. Can be overridden by 'bloomFilter' property of index metadata",
+      Boolean.class, Boolean.FALSE),
+
+  INDEX_BLOOM_FILTER_FALSE_POSITIVE_RATE("index.bloomFilter.falsePositiveRate",
+      "Target share of lookups of absent keys which are not answered by Bloom filter of index", Float.class, 0.01f),
+
+  INDEX_BLOOM_FILTER_INITIAL_CAPACITY("index.bloomFilter.initialCapacity",
+      "Amount of keys the first layer of Bloom filter of index is sized for, every next layer is twice bigger", Integer.class,
+      65536),
+
   INDEX_CURSOR_PREFETCH_SIZE("index.cursor.prefetchSize", "Default prefetch size of index cursor", Integer.class, 500000),
 
+  INDEX_BULK_LOAD("index.bulkLoad", "Build index during creation and rebuild from externally sorted entries page by page "
+      + "instead of insertion of entries one by one. Used only by index engines which support it", Boolean.class, Boolean.FALSE),
+
+  INDEX_BULK_LOAD_FILL_FACTOR("index.bulkLoad.fillFactor",
+      "Part of page space which is filled by entries during bulk load of index, 1 means fully packed pages", Float.class, 0.9f),
+
+  INDEX_BULK_LOAD_SORT_BUFFER_SIZE("index.bulkLoad.sortBufferSize",
+      "Maximum amount of index entries which are sorted in memory during bulk load of index, "
+          + "bigger amount of entries is sorted using temporary files", Integer.class, 1000000),
+
   // TREEMAP
   MVRBTREE_TIMEOUT("mvrbtree.timeout", "Maximum timeout to get lock against the OMVRB-Tree", Integer.class, 5000),
 
@@ -318,6 +391,14 @@ public enum OGlobalConfiguration {
       "Maximum size of value which can be put in SBTree without creation link to standalone page in bytes (40960 by default)",
       Integer.class, 40960),
 
+  SBTREE_CONCURRENT_MODIFICATIONS("sbtree.concurrentModifications",
+      "Allows to insert, update and remove keys in SBTree concurrently if modification does not cause split of leaf page, "
+          + "such modifications lock only leaf and root pages of tree instead of whole tree", Boolean.class, Boolean.FALSE),
+
+  SBTREE_PREFIX_COMPRESSION("sbtree.prefixCompression",
+      "Stores common prefix of keys of SBTree page only once, applied to string and composite keys of SBTrees created after "
+          + "setting is changed", Boolean.class, Boolean.FALSE),
+
   SBTREEBONSAI_BUCKET_SIZE("sbtreebonsai.bucketSize",
       "Size of bucket in OSBTreeBonsai in kB. Contract: bucketSize < storagePageSize, storagePageSize % bucketSize == 0.",
       Integer.class, 2),
@@ -347,6 +428,16 @@ public enum OGlobalConfiguration {
   // FILE
   FILE_LOCK("file.lock", "Locks files when used. Default is false", boolean.class, true),
 
+  FILE_DIRECT_IO("file.directIO", "Pages of paginated storage files are read and written bypassing OS page cache (O_DIRECT)."
+      + " Pages are already cached by disk cache, so OS cache only doubles memory consumption."
+      + " Works only on Linux if orientdb-nativeos is in classpath", Boolean.class, false),
+
+  FILE_ACCESS_ADVICE("file.accessAdvice", "Access pattern hint passed to OS for paginated storage files (posix_fadvise)."
+      + " Possible values: none, normal, random, sequential", String.class, "none"),
+
+  FILE_DROP_OS_CACHE("file.dropOSCache", "Asks OS to drop pages of paginated storage files from OS page cache after they are read"
+      + " or synced to the disk (posix_fadvise DONTNEED). Has no effect if direct IO is used", Boolean.class, false),
+
   FILE_DEFRAG_STRATEGY("file.defrag.strategy", "Strategy to recycle free space: 0 = synchronous defrag, 1 = asynchronous defrag, ",
       Integer.class, 0),
 
@@ -496,6 +587,33 @@ public enum OGlobalConfiguration {
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands expressed in milliseconds", Long.class, 0),
 
+  // QUERY
+  QUERY_ORDER_BY_SPILL_THRESHOLD("query.orderBy.spillThreshold",
+      "Amount of records which ORDER BY without LIMIT sorts in memory. Above it sorted runs of records are written to temporary "
+          + "files and merged while the result is fetched. 0 means all the records are sorted in memory", Integer.class, 100000),
+
+  QUERY_GROUP_BY_SPILL_THRESHOLD("query.groupBy.spillThreshold",
+      "Amount of groups which GROUP BY keeps in memory. Above it records of new groups are partitioned to temporary files and "
+          + "aggregated one partition at a time. 0 means all the groups are kept in memory", Integer.class, 100000),
+
+  QUERY_GROUP_BY_SPILL_PARTITIONS("query.groupBy.spillPartitions",
+      "Amount of temporary files records of GROUP BY are partitioned in when the groups do not fit in memory", Integer.class, 32),
+
+  QUERY_PLAN_CACHE_SIZE("query.planCache.size",
+      "Maximum amount of parsed SELECT statements kept per database to execute them again without parsing. 0 disables the cache",
+      Integer.class, 500),
+
+  QUERY_COST_BASED_INDEX_SELECTION("query.costBasedIndexSelection",
+      "Chooses the index of a query by the amount of entries estimated to be read from it, and executes a cluster scan "
+          + "instead when statistics collected by ANALYZE tell it's cheaper. If false the index is chosen by the fields it covers",
+      Boolean.class, false),
+
+  QUERY_INDEX_RECORD_COST("query.indexRecordCost",
+      "Cost of loading a record found by an index compared to reading it during a cluster scan", Float.class, 4f),
+
+  QUERY_STATISTICS_HISTOGRAM_BUCKETS("query.statistics.histogramBuckets",
+      "Buckets of the histograms of the indexes built by ANALYZE", Integer.class, 100),
+
   // CLIENT
   CLIENT_CHANNEL_MIN_POOL("client.channel.minPool", "Minimum pool size", Integer.class, 1),
 
@@ -16,6 +16,7 @@
 package com.orientechnologies.orient.core.config;
 
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
 import com.orientechnologies.orient.core.exception.OSerializationException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.id.OClusterPositionFactory;
@@ -58,7 +59,7 @@ public class OStorageConfiguration implements OSerializableStream {
 
   public static final String                DEFAULT_CHARSET               = "UTF-8";
   private String                            charset                       = DEFAULT_CHARSET;
-  public static final int                   CURRENT_VERSION               = 9;
+  public static final int                   CURRENT_VERSION               = 10;
   public static final int                   CURRENT_BINARY_FORMAT_VERSION = 11;
   public int                                version                       = -1;
   public String                             name;
@@ -222,9 +223,16 @@ public class OStorageConfiguration implements OSerializableStream {
         // MEMORY CLUSTER
         currentCluster = new OStorageMemoryClusterConfiguration(clusterName, clusterId, targetDataSegmentId);
       else if (clusterType.equals("d")) {
-        currentCluster = new OStoragePaginatedClusterConfiguration(this, clusterId, clusterName, null,
-            Boolean.valueOf(read(values[index++])), Float.valueOf(read(values[index++])), Float.valueOf(read(values[index++])),
-            read(values[index++]));
+        final OStoragePaginatedClusterConfiguration paginatedCluster = new OStoragePaginatedClusterConfiguration(this, clusterId,
+            clusterName, null, Boolean.valueOf(read(values[index++])), Float.valueOf(read(values[index++])),
+            Float.valueOf(read(values[index++])), read(values[index++]));
+
+        if (version >= 10)
+          paginatedCluster.pageCompression = read(values[index++]);
+        else
+          paginatedCluster.pageCompression = ONothingCompression.NAME;
+
+        currentCluster = paginatedCluster;
       } else
         throw new IllegalArgumentException("Unsupported cluster type: " + clusterType);
 
@@ -346,6 +354,7 @@ public class OStorageConfiguration implements OSerializableStream {
         write(buffer, paginatedClusterConfiguration.recordOverflowGrowFactor);
         write(buffer, paginatedClusterConfiguration.recordGrowFactor);
         write(buffer, paginatedClusterConfiguration.compression);
+        write(buffer, paginatedClusterConfiguration.pageCompression);
       }
     }
 
@@ -18,6 +18,8 @@ public class OStoragePaginatedClusterConfiguration implements OStorageClusterCon
   public float                           recordGrowFactor         = DEFAULT_GROW_FACTOR;
   public String                          compression              = OGlobalConfiguration.STORAGE_COMPRESSION_METHOD
                                                                       .getValueAsString();
+  public String                          pageCompression          = OGlobalConfiguration.STORAGE_PAGE_COMPRESSION_METHOD
+                                                                      .getValueAsString();
 
   public OStoragePaginatedClusterConfiguration(OStorageConfiguration root, int id, String name, String location, boolean useWal,
       float recordOverflowGrowFactor, float recordGrowFactor, String compression) {
@@ -200,7 +200,7 @@ public class OIndexRIDContainer implements Set<OIdentifiable> {
   private void convertToSbTree() {
     final OIndexRIDContainerSBTree tree = new OIndexRIDContainerSBTree(fileId);
 
-    tree.addAll(underlying);
+    tree.bulkLoad(underlying);
 
     underlying = tree;
     isEmbedded = false;
@@ -17,14 +17,20 @@
 package com.orientechnologies.orient.core.db.record.ridbag.sbtree;
 
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.profiler.OProfilerMBean;
 import com.orientechnologies.common.serialization.types.OBooleanSerializer;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.index.sbtree.OSBTreeMapEntryIterator;
@@ -156,6 +162,26 @@ public class OIndexRIDContainerSBTree implements Set<OIdentifiable> {
     return modified;
   }
 
+  /**
+   * Fills empty set by bottom-up build of tree from sorted rids, it is much cheaper than insertion of rids one by one.
+   */
+  public void bulkLoad(Collection<? extends OIdentifiable> c) {
+    final List<OIdentifiable> rids = new ArrayList<OIdentifiable>(c);
+    Collections.sort(rids, ODefaultComparator.INSTANCE);
+
+    final List<Map.Entry<OIdentifiable, Boolean>> entries = new ArrayList<Map.Entry<OIdentifiable, Boolean>>(rids.size());
+    OIdentifiable prevRid = null;
+    for (OIdentifiable rid : rids) {
+      if (prevRid != null && ODefaultComparator.INSTANCE.compare(prevRid, rid) == 0)
+        continue;
+
+      entries.add(new AbstractMap.SimpleImmutableEntry<OIdentifiable, Boolean>(rid, Boolean.TRUE));
+      prevRid = rid;
+    }
+
+    tree.bulkLoad(entries.iterator(), OGlobalConfiguration.INDEX_BULK_LOAD_FILL_FACTOR.getValueAsFloat());
+  }
+
   @Override
   public boolean retainAll(Collection<?> c) {
     boolean modified = false;
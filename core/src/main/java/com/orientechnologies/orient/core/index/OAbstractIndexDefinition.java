@@ -15,10 +15,16 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.Collections;
+import java.util.Set;
+
 import com.orientechnologies.orient.core.collate.OCollate;
 import com.orientechnologies.orient.core.collate.ODefaultCollate;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandExecutorSQLAbstract;
 import com.orientechnologies.orient.core.sql.OSQLEngine;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
 import com.orientechnologies.orient.core.type.ODocumentWrapperNoClass;
 
 /**
@@ -28,8 +34,10 @@ import com.orientechnologies.orient.core.type.ODocumentWrapperNoClass;
  * 
  */
 public abstract class OAbstractIndexDefinition extends ODocumentWrapperNoClass implements OIndexDefinition {
-  protected OCollate collate           = new ODefaultCollate();
-  private boolean    nullValuesIgnored = true;
+  protected OCollate              collate           = new ODefaultCollate();
+  private boolean                 nullValuesIgnored = true;
+  private volatile String         filter;
+  private volatile CompiledFilter compiledFilter;
 
   protected OAbstractIndexDefinition() {
     super(new ODocument());
@@ -67,6 +75,9 @@ public abstract class OAbstractIndexDefinition extends ODocumentWrapperNoClass i
     if (nullValuesIgnored != that.nullValuesIgnored)
       return false;
 
+    if (filter != null ? !filter.equals(that.filter) : that.filter != null)
+      return false;
+
     return true;
   }
 
@@ -74,6 +85,7 @@ public abstract class OAbstractIndexDefinition extends ODocumentWrapperNoClass i
   public int hashCode() {
     int result = collate.hashCode();
     result = 31 * result + (nullValuesIgnored ? 1 : 0);
+    result = 31 * result + (filter != null ? filter.hashCode() : 0);
     return result;
   }
 
@@ -86,4 +98,68 @@ public abstract class OAbstractIndexDefinition extends ODocumentWrapperNoClass i
   public void setNullValuesIgnored(boolean value) {
     nullValuesIgnored = value;
   }
+
+  public String getFilter() {
+    return filter;
+  }
+
+  public void setFilter(final String filter) {
+    this.filter = filter != null && !filter.trim().isEmpty() ? filter.trim() : null;
+    compiledFilter = null;
+  }
+
+  public boolean isDocumentIndexed(final ODocument document) {
+    final CompiledFilter f = getCompiledFilter();
+    if (f == null)
+      return true;
+
+    return Boolean.TRUE.equals(f.get().evaluate(document, null, new OBasicCommandContext()));
+  }
+
+  public Set<String> getFilterConjunctions() {
+    final CompiledFilter f = getCompiledFilter();
+    if (f == null)
+      return Collections.emptySet();
+
+    return f.conjunctions;
+  }
+
+  private CompiledFilter getCompiledFilter() {
+    final String text = filter;
+    if (text == null)
+      return null;
+
+    CompiledFilter f = compiledFilter;
+    if (f == null || !f.text.equals(text)) {
+      f = new CompiledFilter(text);
+      compiledFilter = f;
+    }
+
+    return f;
+  }
+
+  protected StringBuilder appendFilterDDL(final StringBuilder ddl) {
+    if (filter != null)
+      ddl.append(" where ").append(filter);
+    return ddl;
+  }
+
+  /**
+   * Filter is parsed once for each thread which evaluates it: conditions keep state during evaluation (results of sub-queries,
+   * aggregated values of functions), so the same instance cannot be shared between threads.
+   */
+  private static final class CompiledFilter extends ThreadLocal<OSQLFilter> {
+    private final String      text;
+    private final Set<String> conjunctions;
+
+    private CompiledFilter(final String text) {
+      this.text = text;
+      this.conjunctions = Collections.unmodifiableSet(get().getConjunctions());
+    }
+
+    @Override
+    protected OSQLFilter initialValue() {
+      return new OSQLFilter(text, new OBasicCommandContext(), OCommandExecutorSQLAbstract.KEYWORD_WHERE);
+    }
+  }
 }
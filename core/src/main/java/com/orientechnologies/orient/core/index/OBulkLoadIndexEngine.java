@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.index;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Index engine which can build empty index from entries sorted by key, instead of insertion of entries one by one. Engines which
+ * can not do it do not implement this interface, index is rebuilt by {@link OIndexEngine#put(Object, Object)} for them.
+ */
+public interface OBulkLoadIndexEngine<V> extends OIndexEngine<V> {
+  /**
+   * @return <code>true</code> if {@link #bulkLoad(Iterator)} may be called, engines which wrap other engine return
+   *         <code>false</code> if wrapped engine does not support bulk load.
+   */
+  boolean hasBulkLoadSupport();
+
+  /**
+   * Loads entries sorted by key in ascending order into empty index. Is called only if {@link #hasBulkLoadSupport()} returns
+   * <code>true</code>.
+   */
+  void bulkLoad(Iterator<Map.Entry<Object, V>> sortedEntries);
+}
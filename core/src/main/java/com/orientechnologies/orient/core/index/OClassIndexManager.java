@@ -89,13 +89,10 @@ public class OClassIndexManager extends ODocumentHookAbstract {
       final Collection<OIndex<?>> indexes = cls.getIndexes();
       for (final OIndex<?> index : indexes) {
         final OIndexDefinition indexDefinition = index.getDefinition();
-        final Object key = indexDefinition.getDocumentValueToIndex(document);
-        if (key instanceof Collection) {
-          for (final Object keyItem : (Collection<?>) key)
-            if (!indexDefinition.isNullValuesIgnored() || keyItem != null)
-              index.put(keyItem, rid);
-        } else if (!indexDefinition.isNullValuesIgnored() || key != null)
-          index.put(key, rid);
+        if (!indexDefinition.isDocumentIndexed(document))
+          continue;
+
+        addIndexKey(index, rid, indexDefinition.getDocumentValueToIndex(document));
       }
 
     }
@@ -149,7 +146,9 @@ public class OClassIndexManager extends ODocumentHookAbstract {
 
       if (!dirtyFields.isEmpty()) {
         for (final OIndex<?> index : indexes) {
-          if (index.getDefinition() instanceof OCompositeIndexDefinition)
+          if (index.getDefinition().getFilter() != null)
+            processPartialIndexUpdate(index, dirtyFields, iDocument);
+          else if (index.getDefinition() instanceof OCompositeIndexDefinition)
             processCompositeIndexUpdate(index, dirtyFields, iDocument);
           else
             processSingleIndexUpdate(index, dirtyFields, iDocument);
@@ -218,6 +217,21 @@ public class OClassIndexManager extends ODocumentHookAbstract {
     if (!indexes.isEmpty()) {
       final Set<String> dirtyFields = new HashSet<String>(Arrays.asList(iDocument.getDirtyFields()));
 
+      // PARTIAL INDEXES CONTAIN THE DOCUMENT ONLY IF IT MATCHED THE FILTER BEFORE THE CHANGES
+      final Iterator<OIndex<?>> partialIndexIterator = indexes.iterator();
+      while (partialIndexIterator.hasNext()) {
+        final OIndex<?> index = partialIndexIterator.next();
+        final OIndexDefinition indexDefinition = index.getDefinition();
+
+        if (indexDefinition.getFilter() != null) {
+          final ODocument origRecord = dirtyFields.isEmpty() ? iDocument : createOriginalDocument(iDocument, dirtyFields);
+          if (indexDefinition.isDocumentIndexed(origRecord))
+            deleteIndexKey(index, iDocument, indexDefinition.getDocumentValueToIndex(origRecord));
+
+          partialIndexIterator.remove();
+        }
+      }
+
       if (!dirtyFields.isEmpty()) {
         // REMOVE INDEX OF ENTRIES FOR THE OLD VALUES
         final Iterator<OIndex<?>> indexIterator = indexes.iterator();
@@ -334,6 +348,55 @@ public class OClassIndexManager extends ODocumentHookAbstract {
     }
   }
 
+  private static void processPartialIndexUpdate(final OIndex<?> index, final Set<String> dirtyFields, final ODocument iRecord) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+
+    final ODocument origRecord = createOriginalDocument(iRecord, dirtyFields);
+    final boolean wasIndexed = indexDefinition.isDocumentIndexed(origRecord);
+    final boolean isIndexed = indexDefinition.isDocumentIndexed(iRecord);
+
+    if (wasIndexed && isIndexed) {
+      // STILL IN THE INDEX: UPDATE ONLY THE CHANGED KEYS
+      if (indexDefinition instanceof OCompositeIndexDefinition)
+        processCompositeIndexUpdate(index, dirtyFields, iRecord);
+      else
+        processSingleIndexUpdate(index, dirtyFields, iRecord);
+    } else if (wasIndexed)
+      deleteIndexKey(index, iRecord, indexDefinition.getDocumentValueToIndex(origRecord));
+    else if (isIndexed)
+      addIndexKey(index, iRecord.placeholder(), indexDefinition.getDocumentValueToIndex(iRecord));
+  }
+
+  /**
+   * Creates a copy of the document with the values it had before the changes, used to evaluate the filter of partial indexes.
+   */
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static ODocument createOriginalDocument(final ODocument iRecord, final Set<String> dirtyFields) {
+    final ODocument origRecord = iRecord.copy();
+
+    for (final String dirtyField : dirtyFields) {
+      final OMultiValueChangeTimeLine<?, ?> multiValueChangeTimeLine = iRecord.getCollectionTimeLine(dirtyField);
+      if (multiValueChangeTimeLine != null) {
+        final OTrackedMultiValue fieldValue = iRecord.field(dirtyField);
+        origRecord.field(dirtyField, fieldValue.returnOriginalState(multiValueChangeTimeLine.getMultiValueChangeEvents()));
+      } else
+        origRecord.field(dirtyField, iRecord.getOriginalValue(dirtyField));
+    }
+
+    return origRecord;
+  }
+
+  private static void addIndexKey(final OIndex<?> index, final OIdentifiable rid, final Object key) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+
+    if (key instanceof Collection) {
+      for (final Object keyItem : (Collection<?>) key)
+        if (!indexDefinition.isNullValuesIgnored() || keyItem != null)
+          index.put(keyItem, rid);
+    } else if (!indexDefinition.isNullValuesIgnored() || key != null)
+      index.put(key, rid);
+  }
+
   private static void processSingleIndexUpdate(final OIndex<?> index, final Set<String> dirtyFields, final ODocument iRecord) {
     final OIndexDefinition indexDefinition = index.getDefinition();
     final List<String> indexFields = indexDefinition.getFields();
@@ -506,6 +569,9 @@ public class OClassIndexManager extends ODocumentHookAbstract {
   private static void checkIndexedPropertiesOnCreation(final ODocument iRecord, final Collection<OIndex<?>> iIndexes) {
     for (final OIndex<?> index : iIndexes) {
       final OIndexDefinition indexDefinition = index.getDefinition();
+      if (!indexDefinition.isDocumentIndexed(iRecord))
+        continue;
+
       final Object key = index.getDefinition().getDocumentValueToIndex(iRecord);
       if (key instanceof Collection) {
         for (final Object keyItem : (Collection<?>) key) {
@@ -526,7 +592,12 @@ public class OClassIndexManager extends ODocumentHookAbstract {
 
     for (final OIndex<?> index : iIndexes) {
       final OIndexDefinition indexDefinition = index.getDefinition();
-      final List<String> indexFields = indexDefinition.getFields();
+      if (!indexDefinition.isDocumentIndexed(iRecord))
+        continue;
+
+      // A CHANGE OF ANY FIELD CAN MOVE THE DOCUMENT IN A PARTIAL INDEX
+      final List<String> indexFields = indexDefinition.getFilter() != null ? Arrays.asList(iRecord.getDirtyFields())
+          : indexDefinition.getFields();
       for (final String indexField : indexFields) {
         if (dirtyFields.contains(indexField)) {
           final Object key = index.getDefinition().getDocumentValueToIndex(iRecord);
@@ -41,6 +41,7 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
   private String                       className;
   private int                          multiValueDefinitionIndex = -1;
   private OCompositeCollate            collate                   = new OCompositeCollate();
+  private int                          includedFieldsCount;
 
   public OCompositeIndexDefinition() {
     indexDefinitions = new ArrayList<OIndexDefinition>(5);
@@ -106,6 +107,32 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
     collate.addCollate(indexDefinition.getCollate());
   }
 
+  /**
+   * @return Index definitions of the single key parts in the order they appear in the composite key.
+   */
+  public List<OIndexDefinition> getIndexDefinitions() {
+    return Collections.unmodifiableList(indexDefinitions);
+  }
+
+  /**
+   * @return Amount of the last key parts which are included in the index only to answer projections, see CREATE INDEX ... INCLUDE.
+   */
+  public int getIncludedFieldsCount() {
+    return includedFieldsCount;
+  }
+
+  /**
+   * Marks the last key parts as included fields: a record whose included fields are null is indexed with null key parts, even if
+   * null values are ignored, so queries on the other fields keep finding it.
+   */
+  public void setIncludedFieldsCount(final int iIncludedFieldsCount) {
+    includedFieldsCount = iIncludedFieldsCount;
+  }
+
+  private boolean isNullIgnored(final int iDefinitionIndex) {
+    return isNullValuesIgnored() && iDefinitionIndex < indexDefinitions.size() - includedFieldsCount;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -138,10 +165,10 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
 
     compositeKeys.add(firstKey);
 
-    for (final OIndexDefinition indexDefinition : indexDefinitions) {
-      final Object result = indexDefinition.getDocumentValueToIndex(iDocument);
+    for (int i = 0; i < indexDefinitions.size(); i++) {
+      final Object result = indexDefinitions.get(i).getDocumentValueToIndex(iDocument);
 
-      if (result == null && isNullValuesIgnored())
+      if (result == null && isNullIgnored(i))
         return null;
 
       containsCollection = addKey(firstKey, compositeKeys, containsCollection, result);
@@ -176,7 +203,8 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
 
     boolean containsCollection = false;
 
-    for (final OIndexDefinition indexDefinition : indexDefinitions) {
+    for (int i = 0; i < indexDefinitions.size(); i++) {
+      final OIndexDefinition indexDefinition = indexDefinitions.get(i);
       if (currentParamIndex + 1 > params.size())
         break;
 
@@ -191,7 +219,7 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
 
       final Object keyValue = indexDefinition.createValue(indexParams);
 
-      if (keyValue == null && isNullValuesIgnored())
+      if (keyValue == null && isNullIgnored(i))
         return null;
 
       containsCollection = addKey(firstKey, compositeKeys, containsCollection, keyValue);
@@ -214,7 +242,8 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
     final OCompositeKey compositeKey = new OCompositeKey();
     int currentParamIndex = 0;
 
-    for (final OIndexDefinition indexDefinition : indexDefinitions) {
+    for (int i = 0; i < indexDefinitions.size(); i++) {
+      final OIndexDefinition indexDefinition = indexDefinitions.get(i);
       if (currentParamIndex + 1 > params.size())
         break;
 
@@ -234,7 +263,7 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
       else
         keyValue = indexDefinition.createValue(indexParams);
 
-      if (keyValue == null && isNullValuesIgnored())
+      if (keyValue == null && isNullIgnored(i))
         return null;
 
       compositeKey.addKey(keyValue);
@@ -329,6 +358,8 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
       return false;
     if (!indexDefinitions.equals(that.indexDefinitions))
       return false;
+    if (includedFieldsCount != that.includedFieldsCount)
+      return false;
 
     return true;
   }
@@ -365,6 +396,9 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
       document.field("indexDefinitions", inds, OType.EMBEDDEDLIST);
       document.field("indClasses", indClasses, OType.EMBEDDEDLIST);
       document.field("nullValuesIgnored", isNullValuesIgnored());
+      if (includedFieldsCount > 0)
+        document.field("includedFieldsCount", includedFieldsCount);
+      document.field("filter", getFilter());
     } finally {
       document.setInternalStatus(ORecordElement.STATUS.LOADED);
     }
@@ -379,12 +413,17 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
     final StringBuilder ddl = new StringBuilder("create index ");
     ddl.append(indexName).append(" on ").append(className).append(" ( ");
 
-    final Iterator<String> fieldIterator = getFieldsToIndex().iterator();
-    if (fieldIterator.hasNext()) {
+    final int indexedCount = indexDefinitions.size() - includedFieldsCount;
+    for (int i = 0; i < indexDefinitions.size(); i++) {
+      if (i == indexedCount)
+        ddl.append(" ) include ( ");
+      else if (i > 0)
+        ddl.append(", ");
+
+      final Iterator<String> fieldIterator = indexDefinitions.get(i).getFieldsToIndex().iterator();
       ddl.append(fieldIterator.next());
-      while (fieldIterator.hasNext()) {
+      while (fieldIterator.hasNext())
         ddl.append(", ").append(fieldIterator.next());
-      }
     }
     ddl.append(" ) ").append(indexType).append(' ');
 
@@ -400,7 +439,7 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
       }
     }
 
-    return ddl.toString();
+    return appendFilterDDL(ddl).toString();
   }
 
   /**
@@ -433,6 +472,9 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
       }
 
       setNullValuesIgnored(!Boolean.FALSE.equals(document.<Boolean> field("nullValuesIgnored")));
+      final Integer included = document.field("includedFieldsCount");
+      includedFieldsCount = included != null ? included : 0;
+      setFilter((String) document.field("filter"));
     } catch (final ClassNotFoundException e) {
       throw new OIndexException("Error during composite index deserialization", e);
     } catch (final NoSuchMethodException e) {
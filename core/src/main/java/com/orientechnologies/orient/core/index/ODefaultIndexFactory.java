@@ -26,6 +26,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.local.OEngineLocalPaginated;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.index.engine.OBloomFilterIndexEngine;
 import com.orientechnologies.orient.core.index.engine.OMVRBTreeIndexEngine;
 import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
@@ -48,6 +49,7 @@ public class ODefaultIndexFactory implements OIndexFactory {
 
   public static final String       MVRBTREE_VALUE_CONTAINER     = "MVRBTREESET";
   public static final String       SBTREEBONSAI_VALUE_CONTAINER = "SBTREEBONSAISET";
+  public static final String       POSTING_LIST_VALUE_CONTAINER = "POSTINGLIST";
   public static final String       NONE_VALUE_CONTAINER         = "NONE";
 
   private static final Set<String> TYPES;
@@ -147,14 +149,17 @@ public class ODefaultIndexFactory implements OIndexFactory {
 
   private OIndexInternal<?> createSBTreeIndex(String indexType, String valueContainerAlgorithm, ODocument metadata) {
     if (OClass.INDEX_TYPE.UNIQUE.toString().equals(indexType)) {
-      return new OIndexUnique(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<OIdentifiable>(), valueContainerAlgorithm);
+      return new OIndexUnique(indexType, SBTREE_ALGORITHM, OBloomFilterIndexEngine.wrap(new OSBTreeIndexEngine<OIdentifiable>(),
+          metadata), valueContainerAlgorithm);
     } else if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(indexType)) {
-      return new OIndexNotUnique(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(), valueContainerAlgorithm);
+      return new OIndexNotUnique(indexType, SBTREE_ALGORITHM, OBloomFilterIndexEngine.wrap(
+          new OSBTreeIndexEngine<Set<OIdentifiable>>(), metadata), valueContainerAlgorithm);
     } else if (OClass.INDEX_TYPE.FULLTEXT.toString().equals(indexType)) {
-      return new OIndexFullText(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(), valueContainerAlgorithm,
-          metadata);
+      return new OIndexFullText(indexType, SBTREE_ALGORITHM, OBloomFilterIndexEngine.wrap(
+          new OSBTreeIndexEngine<Set<OIdentifiable>>(), metadata), valueContainerAlgorithm, metadata);
     } else if (OClass.INDEX_TYPE.DICTIONARY.toString().equals(indexType)) {
-      return new OIndexDictionary(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<OIdentifiable>(), valueContainerAlgorithm);
+      return new OIndexDictionary(indexType, SBTREE_ALGORITHM, OBloomFilterIndexEngine.wrap(new OSBTreeIndexEngine<OIdentifiable>(),
+          metadata), valueContainerAlgorithm);
     }
 
     throw new OConfigurationException("Unsupported type : " + indexType);
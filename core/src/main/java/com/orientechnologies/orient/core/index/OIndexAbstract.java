@@ -17,10 +17,13 @@ package com.orientechnologies.orient.core.index;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -31,6 +34,7 @@ import com.orientechnologies.common.concur.lock.OModificationLock;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.orient.core.annotation.ODocumentInstance;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
@@ -49,9 +53,12 @@ import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
+import com.orientechnologies.orient.core.sql.OSQLStatistics;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
@@ -355,6 +362,7 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     modificationLock.requestModificationLock();
     try {
       acquireExclusiveLock();
+      OIndexEntriesSorter sorter = null;
       try {
         rebuildThread = Thread.currentThread();
         rebuilding = true;
@@ -365,6 +373,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
           // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
         }
 
+        // STATISTICS COLLECTED ON THE OLD ENTRIES ARE DISCARDED
+        OSQLStatistics.instance(getDatabase()).remove(name);
+
         int documentNum = 0;
         long documentTotal = 0;
 
@@ -374,6 +385,10 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         if (iProgressListener != null)
           iProgressListener.onBegin(this, documentTotal, true);
 
+        final List<ODocument> nullKeyDocuments = new ArrayList<ODocument>();
+        if (isBulkLoadApplicable())
+          sorter = new OIndexEntriesSorter(name, null, OGlobalConfiguration.INDEX_BULK_LOAD_SORT_BUFFER_SIZE.getValueAsInteger());
+
         for (final String clusterName : clustersToIndex)
           try {
             for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
@@ -387,11 +402,16 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
                   throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
                       + indexDefinition + ")");
 
-                final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+                // PARTIAL INDEX: SKIP THE DOCUMENTS THAT DON'T MATCH THE FILTER
+                final Object fieldValue = indexDefinition.isDocumentIndexed(doc) ? indexDefinition.getDocumentValueToIndex(doc)
+                    : null;
 
                 if (fieldValue != null) {
                   try {
-                    populateIndex(doc, fieldValue);
+                    if (sorter != null)
+                      addToBulkLoad(sorter, nullKeyDocuments, doc, fieldValue);
+                    else
+                      populateIndex(doc, fieldValue);
                   } catch (OIndexException e) {
                     OLogManager.instance().error(
                         this,
@@ -411,6 +431,13 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
             // END OF CLUSTER REACHED, IGNORE IT
           }
 
+        if (sorter != null) {
+          bulkLoad(sorter);
+
+          for (ODocument doc : nullKeyDocuments)
+            put(null, doc);
+        }
+
         if (indexEngine instanceof OMVRBTreeIndexEngine)
           flush();
 
@@ -432,6 +459,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
 
       } finally {
+        if (sorter != null)
+          sorter.close();
+
         rebuilding = false;
         rebuildThread = null;
 
@@ -872,6 +902,88 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   protected abstract OStreamSerializer determineValueSerializer();
 
+  /**
+   * @return <code>true</code> if index can be built by {@link OBulkLoadIndexEngine#bulkLoad(Iterator)} from entries sorted by key, values
+   *         of such index are created by {@link #bulkLoadValue(Object, List)}.
+   */
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
+  /**
+   * Creates value which is stored in index during bulk load.
+   * 
+   * @param key
+   *          key of index entry.
+   * @param values
+   *          records indexed by given key in order in which they were found during rebuild.
+   */
+  protected T bulkLoadValue(Object key, List<OIdentifiable> values) {
+    throw new UnsupportedOperationException("bulkLoadValue");
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean isBulkLoadApplicable() {
+    return OGlobalConfiguration.INDEX_BULK_LOAD.getValueAsBoolean() && isBulkLoadSupported()
+        && indexEngine instanceof OBulkLoadIndexEngine && ((OBulkLoadIndexEngine<T>) indexEngine).hasBulkLoadSupport()
+        && indexDefinition != null && !(indexDefinition instanceof ORuntimeKeyIndexDefinition);
+  }
+
+  private void addToBulkLoad(OIndexEntriesSorter sorter, List<ODocument> nullKeyDocuments, ODocument doc, Object fieldValue)
+      throws IOException {
+    if (fieldValue instanceof Collection) {
+      for (final Object fieldValueItem : (Collection<?>) fieldValue)
+        addKeyToBulkLoad(sorter, nullKeyDocuments, doc, fieldValueItem);
+    } else
+      addKeyToBulkLoad(sorter, nullKeyDocuments, doc, fieldValue);
+  }
+
+  /**
+   * Keys are preprocessed in the same way as index engine does it, so keys which are equal inside of index are grouped together
+   * by sort.
+   */
+  @SuppressWarnings("unchecked")
+  private void addKeyToBulkLoad(OIndexEntriesSorter sorter, List<ODocument> nullKeyDocuments, ODocument doc, Object key)
+      throws IOException {
+    key = getCollatingValue(key);
+    if (key == null) {
+      nullKeyDocuments.add(doc);
+      return;
+    }
+
+    final OType[] types = indexDefinition.getTypes();
+    final OBinarySerializer<Object> keySerializer;
+    if (types.length > 1)
+      keySerializer = (OBinarySerializer) OCompositeKeySerializer.INSTANCE;
+    else
+      keySerializer = OBinarySerializerFactory.getInstance().getObjectSerializer(types[0]);
+
+    sorter.add(keySerializer.preprocess(key, (Object[]) types), doc);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void bulkLoad(OIndexEntriesSorter sorter) throws IOException {
+    final Iterator<Map.Entry<Object, List<OIdentifiable>>> groups = sorter.sortedEntries();
+
+    ((OBulkLoadIndexEngine<T>) indexEngine).bulkLoad(new Iterator<Map.Entry<Object, T>>() {
+      @Override
+      public boolean hasNext() {
+        return groups.hasNext();
+      }
+
+      @Override
+      public Map.Entry<Object, T> next() {
+        final Map.Entry<Object, List<OIdentifiable>> group = groups.next();
+        return new AbstractMap.SimpleImmutableEntry<Object, T>(group.getKey(), bulkLoadValue(group.getKey(), group.getValue()));
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    });
+  }
+
   protected void populateIndex(ODocument doc, Object fieldValue) {
     if (fieldValue instanceof Collection) {
       for (final Object fieldValueItem : (Collection<?>) fieldValue) {
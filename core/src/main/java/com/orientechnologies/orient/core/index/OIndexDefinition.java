@@ -16,6 +16,7 @@
 package com.orientechnologies.orient.core.index;
 
 import java.util.List;
+import java.util.Set;
 
 import com.orientechnologies.orient.core.collate.OCollate;
 import com.orientechnologies.orient.core.metadata.schema.OType;
@@ -129,4 +130,27 @@ public interface OIndexDefinition extends OIndexCallback {
 	boolean isNullValuesIgnored();
 
 	void setNullValuesIgnored(boolean value);
+
+  /**
+   * @return SQL condition which documents have to satisfy to be put in the index (partial index), or <code>null</code> if all the
+   *         documents of the class are indexed.
+   */
+  String getFilter();
+
+  void setFilter(String filter);
+
+  /**
+   * @return Text of each condition joined by AND at the top level of the filter, empty set if the index has no filter. It is used
+   *         by the query planner to check if the WHERE condition implies the filter.
+   */
+  Set<String> getFilterConjunctions();
+
+  /**
+   * Checks if the document satisfies the condition returned by {@link #getFilter()}.
+   * 
+   * @param document
+   *          Document to check.
+   * @return <code>true</code> if the document has to be put in the index.
+   */
+  boolean isDocumentIndexed(ODocument document);
 }
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.List;
 import java.util.Map;
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -52,6 +53,16 @@ public class OIndexDictionary extends OIndexOneValue {
     }
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
+  @Override
+  protected OIdentifiable bulkLoadValue(Object key, List<OIdentifiable> values) {
+    return values.get(values.size() - 1);
+  }
+
   /**
    * Disables check of entries.
    */
@@ -54,6 +54,13 @@ public interface OIndexEngine<V> {
 
   V get(Object key);
 
+  /**
+   * Looks up several keys at once, engine may group keys to load every page of index only once.
+   * 
+   * @return values of keys which are present in index, keys of returned map are the same instances which were passed in.
+   */
+  Map<Object, V> getAll(Collection<?> keys);
+
   void put(Object key, V value);
 
   public Object getFirstKey();
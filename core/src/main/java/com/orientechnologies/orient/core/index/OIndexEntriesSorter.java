@@ -0,0 +1,319 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+
+/**
+ * Sorts index entries by key before bulk load of index. Entries are sorted in memory till their amount reaches size of buffer, then
+ * sorted entries are written into temporary file and buffer is reused. At the end sorted runs are merged together. Entries with
+ * the same key are returned as single group, values of the group are kept in order of addition.
+ *
+ * Keys are written into temporary files by {@link OCompositeKeySerializer}, so only keys which can be stored in index are
+ * supported.
+ */
+public class OIndexEntriesSorter {
+  private static final Comparator<SortEntry> ENTRY_COMPARATOR = new SortEntryComparator();
+
+  private final String                       name;
+  private final File                         directory;
+  private final int                          bufferSize;
+
+  private final List<SortEntry>              buffer  = new ArrayList<SortEntry>();
+  private final List<File>                   runs    = new ArrayList<File>();
+  private final List<RunReader>              readers = new ArrayList<RunReader>();
+
+  private long                               sequence;
+  private boolean                            sorted;
+
+  /**
+   * @param name
+   *          name of sorted index, used as prefix of temporary files.
+   * @param directory
+   *          directory of temporary files, default temporary directory is used if it is <code>null</code>.
+   * @param bufferSize
+   *          maximum amount of entries sorted in memory.
+   */
+  public OIndexEntriesSorter(String name, File directory, int bufferSize) {
+    if (bufferSize < 1)
+      throw new IllegalArgumentException("Size of sort buffer should be positive but was " + bufferSize);
+
+    this.name = name;
+    this.directory = directory;
+    this.bufferSize = bufferSize;
+  }
+
+  public void add(Object key, OIdentifiable value) throws IOException {
+    if (sorted)
+      throw new IllegalStateException("Entries were already sorted");
+
+    buffer.add(new SortEntry(key, value.getIdentity(), sequence++));
+    if (buffer.size() >= bufferSize)
+      flushBuffer();
+  }
+
+  public long size() {
+    return sequence;
+  }
+
+  public int getRunsCount() {
+    return runs.size();
+  }
+
+  /**
+   * Sorts added entries. Iterator should be consumed before call of {@link #close()} .
+   *
+   * @return iterator over groups of entries with the same key sorted by key in ascending order.
+   */
+  public Iterator<Map.Entry<Object, List<OIdentifiable>>> sortedEntries() throws IOException {
+    if (sorted)
+      throw new IllegalStateException("Entries were already sorted");
+    sorted = true;
+
+    Collections.sort(buffer, ENTRY_COMPARATOR);
+
+    final PriorityQueue<Run> queue = new PriorityQueue<Run>(runs.size() + 1, new Comparator<Run>() {
+      @Override
+      public int compare(Run runOne, Run runTwo) {
+        return ENTRY_COMPARATOR.compare(runOne.head, runTwo.head);
+      }
+    });
+
+    final Run memoryRun = new MemoryRun(buffer.iterator());
+    if (memoryRun.head != null)
+      queue.add(memoryRun);
+
+    for (File run : runs) {
+      final RunReader reader = new RunReader(run);
+      readers.add(reader);
+
+      if (reader.head != null)
+        queue.add(reader);
+    }
+
+    if (!runs.isEmpty())
+      OLogManager.instance().debug(this, "%d entries of index %s are merged from %d sorted runs", sequence, name, runs.size());
+
+    return new GroupIterator(queue);
+  }
+
+  /**
+   * Closes and deletes temporary files.
+   */
+  public void close() {
+    for (RunReader reader : readers)
+      reader.close();
+    readers.clear();
+
+    for (File run : runs)
+      if (run.exists() && !run.delete())
+        OLogManager.instance().warn(this, "Temporary file %s of index sort can not be deleted", run);
+    runs.clear();
+
+    buffer.clear();
+  }
+
+  private void flushBuffer() throws IOException {
+    Collections.sort(buffer, ENTRY_COMPARATOR);
+
+    final File run = File.createTempFile(name + "-", ".sort", directory);
+    runs.add(run);
+
+    final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+    try {
+      output.writeInt(buffer.size());
+
+      for (SortEntry entry : buffer) {
+        final boolean isComposite = entry.key instanceof OCompositeKey;
+        final OCompositeKey compositeKey;
+        if (isComposite)
+          compositeKey = (OCompositeKey) entry.key;
+        else {
+          compositeKey = new OCompositeKey();
+          compositeKey.addKey(entry.key);
+        }
+
+        final byte[] serializedKey = new byte[OCompositeKeySerializer.INSTANCE.getObjectSize(compositeKey)];
+        OCompositeKeySerializer.INSTANCE.serialize(compositeKey, serializedKey, 0);
+
+        output.writeBoolean(isComposite);
+        output.writeInt(serializedKey.length);
+        output.write(serializedKey);
+        entry.value.toStream(output);
+        output.writeLong(entry.sequence);
+      }
+    } finally {
+      output.close();
+    }
+
+    buffer.clear();
+  }
+
+  private static final class SortEntry {
+    private final Object key;
+    private final ORID   value;
+    private final long   sequence;
+
+    private SortEntry(Object key, ORID value, long sequence) {
+      this.key = key;
+      this.value = value;
+      this.sequence = sequence;
+    }
+  }
+
+  private static final class SortEntryComparator implements Comparator<SortEntry> {
+    @Override
+    public int compare(SortEntry entryOne, SortEntry entryTwo) {
+      final int result = ODefaultComparator.INSTANCE.compare(entryOne.key, entryTwo.key);
+      if (result != 0)
+        return result;
+
+      if (entryOne.sequence < entryTwo.sequence)
+        return -1;
+      if (entryOne.sequence > entryTwo.sequence)
+        return 1;
+      return 0;
+    }
+  }
+
+  private abstract static class Run {
+    protected SortEntry head;
+
+    protected abstract void advance() throws IOException;
+  }
+
+  private static final class MemoryRun extends Run {
+    private final Iterator<SortEntry> iterator;
+
+    private MemoryRun(Iterator<SortEntry> iterator) {
+      this.iterator = iterator;
+      advance();
+    }
+
+    @Override
+    protected void advance() {
+      head = iterator.hasNext() ? iterator.next() : null;
+    }
+  }
+
+  private static final class RunReader extends Run {
+    private final DataInputStream input;
+    private int                   entriesLeft;
+
+    private RunReader(File run) throws IOException {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+      entriesLeft = input.readInt();
+      advance();
+    }
+
+    @Override
+    protected void advance() throws IOException {
+      if (entriesLeft == 0) {
+        head = null;
+        close();
+        return;
+      }
+      entriesLeft--;
+
+      final boolean isComposite = input.readBoolean();
+
+      final byte[] serializedKey = new byte[input.readInt()];
+      input.readFully(serializedKey);
+
+      final OCompositeKey compositeKey = OCompositeKeySerializer.INSTANCE.deserialize(serializedKey, 0);
+      final Object key = isComposite ? compositeKey : compositeKey.getKeys().get(0);
+
+      final ORecordId value = new ORecordId();
+      value.fromStream(input);
+
+      head = new SortEntry(key, value, input.readLong());
+    }
+
+    private void close() {
+      try {
+        input.close();
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Error during closing of temporary file of index sort", e);
+      }
+    }
+  }
+
+  private static final class GroupIterator implements Iterator<Map.Entry<Object, List<OIdentifiable>>> {
+    private final PriorityQueue<Run> queue;
+
+    private GroupIterator(PriorityQueue<Run> queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<Object, List<OIdentifiable>> next() {
+      if (queue.isEmpty())
+        throw new NoSuchElementException();
+
+      final Object key = queue.peek().head.key;
+      final List<OIdentifiable> values = new ArrayList<OIdentifiable>();
+
+      try {
+        while (!queue.isEmpty() && ODefaultComparator.INSTANCE.compare(queue.peek().head.key, key) == 0) {
+          final Run run = queue.poll();
+          values.add(run.head.value);
+
+          run.advance();
+          if (run.head != null)
+            queue.add(run);
+        }
+      } catch (IOException e) {
+        throw new OIndexException("Error during reading of sorted index entries", e);
+      }
+
+      return new AbstractMap.SimpleImmutableEntry<Object, List<OIdentifiable>>(key, values);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+}
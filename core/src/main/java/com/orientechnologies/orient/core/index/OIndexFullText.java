@@ -15,54 +15,73 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
 import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
-import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.fulltext.ODefaultFullTextAnalyzer;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextAnalyzer;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextPostingList;
 import com.orientechnologies.orient.core.record.impl.ODocument;
-import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
-import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * Fast index for full-text searches.
  * 
+ * Text is split on words by {@link OFullTextAnalyzer} which is configured by index metadata. If index uses
+ * {@link ODefaultIndexFactory#POSTING_LIST_VALUE_CONTAINER} every word is mapped to compressed {@link OFullTextPostingList}
+ * which keeps frequency of word in each record, otherwise word is mapped to plain set of records.
+ * 
  * @author Luca Garulli
  * 
  */
 public class OIndexFullText extends OIndexMultiValues {
+  public static final String                            CONFIG_ANALYZER      = "analyzer";
+  public static final String                            CONFIG_POSTING_LISTS = "postingLists";
+
+  private static final Pattern                          OR_OPERATOR          = Pattern.compile("\\s+OR\\s+");
 
-  private static final String  CONFIG_STOP_WORDS      = "stopWords";
-  private static final String  CONFIG_SEPARATOR_CHARS = "separatorChars";
-  private static final String  CONFIG_IGNORE_CHARS    = "ignoreChars";
-  private static final String  CONFIG_INDEX_RADIX     = "indexRadix";
-  private static final String  CONFIG_MIN_WORD_LEN    = "minWordLength";
-  private static final boolean DEF_INDEX_RADIX        = true;
-  private static final String  DEF_SEPARATOR_CHARS    = " \r\n\t:;,.|+*/\\=!?[]()";
-  private static final String  DEF_IGNORE_CHARS       = "'\"";
-  private static final String  DEF_STOP_WORDS         = "the in a at as and or for his her " + "him this that what which while "
-                                                          + "up with be was were is";
-  private static int           DEF_MIN_WORD_LENGTH    = 3;
-  private boolean              indexRadix;
-  private String               separatorChars;
-  private String               ignoreChars;
-  private int                  minWordLength;
-
-  private Set<String>          stopWords;
+  private static final Comparator<OFullTextPostingList> SIZE_COMPARATOR      = new Comparator<OFullTextPostingList>() {
+                                                                               public int compare(OFullTextPostingList listOne,
+                                                                                   OFullTextPostingList listTwo) {
+                                                                                 return listOne.size() < listTwo.size() ? -1
+                                                                                     : (listOne.size() == listTwo.size() ? 0 : 1);
+                                                                               }
+                                                                             };
+
+  private final OFullTextAnalyzer                       analyzer;
 
   public OIndexFullText(String typeId, String algorithm, OIndexEngine<Set<OIdentifiable>> indexEngine,
       String valueContainerAlgorithm, ODocument metadata) {
     super(typeId, algorithm, indexEngine, valueContainerAlgorithm);
-    config();
-    configWithMetadata(metadata);
+    analyzer = createAnalyzer(metadata);
+    analyzer.configure(metadata);
+  }
+
+  /**
+   * @return <code>true</code> if new full-text index which is created with passed in metadata should store posting lists.
+   */
+  public static boolean usePostingLists(final ODocument metadata) {
+    // POSTING LISTS STORE CLUSTER POSITIONS AS LONG VALUES
+    if (OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean())
+      return false;
+
+    if (metadata != null && metadata.containsField(CONFIG_POSTING_LISTS))
+      return Boolean.TRUE.equals(metadata.field(CONFIG_POSTING_LISTS));
 
+    return OGlobalConfiguration.INDEX_FULLTEXT_POSTING_LISTS.getValueAsBoolean();
   }
 
   /**
@@ -81,33 +100,27 @@ public class OIndexFullText extends OIndexMultiValues {
     modificationLock.requestModificationLock();
 
     try {
-      final Set<String> words = splitIntoWords(key.toString());
+      final Map<String, Integer> words = analyzer.analyze(key.toString());
 
       // FOREACH WORD CREATE THE LINK TO THE CURRENT DOCUMENT
-      for (final String word : words) {
+      for (final Map.Entry<String, Integer> word : words.entrySet()) {
         acquireExclusiveLock();
 
         try {
           Set<OIdentifiable> refs;
 
           // SEARCH FOR THE WORD
-          refs = indexEngine.get(word);
+          refs = indexEngine.get(word.getKey());
 
-          if (refs == null) {
+          if (refs == null)
             // WORD NOT EXISTS: CREATE THE KEYWORD CONTAINER THE FIRST TIME THE WORD IS FOUND
-            if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-              refs = new OIndexRIDContainer(getName());
-            } else {
-              refs = new OMVRBTreeRIDSet();
-              ((OMVRBTreeRIDSet) refs).setAutoConvertToRecord(false);
-            }
-          }
+            refs = createValuesContainer();
 
           // ADD THE CURRENT DOCUMENT AS REF FOR THAT WORD
-          refs.add(iSingleValue);
+          addReference(refs, iSingleValue, word.getValue());
 
           // SAVE THE INDEX ENTRY
-          indexEngine.put(word, refs);
+          indexEngine.put(word.getKey(), refs);
 
         } finally {
           releaseExclusiveLock();
@@ -138,7 +151,7 @@ public class OIndexFullText extends OIndexMultiValues {
     modificationLock.requestModificationLock();
 
     try {
-      final Set<String> words = splitIntoWords(key.toString());
+      final Set<String> words = analyzer.analyze(key.toString()).keySet();
       boolean removed = false;
 
       for (final String word : words) {
@@ -192,11 +205,8 @@ public class OIndexFullText extends OIndexMultiValues {
     configuration.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
 
     try {
-      configuration.field(CONFIG_SEPARATOR_CHARS, separatorChars);
-      configuration.field(CONFIG_IGNORE_CHARS, ignoreChars);
-      configuration.field(CONFIG_STOP_WORDS, stopWords);
-      configuration.field(CONFIG_MIN_WORD_LEN, minWordLength);
-      configuration.field(CONFIG_INDEX_RADIX, indexRadix);
+      configuration.field(CONFIG_ANALYZER, analyzer.getClass().getName());
+      analyzer.updateConfiguration(configuration);
 
     } finally {
       configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
@@ -212,34 +222,6 @@ public class OIndexFullText extends OIndexMultiValues {
     return false;
   }
 
-  protected void configWithMetadata(ODocument metadata) {
-    if (metadata != null) {
-      if (metadata.containsField(CONFIG_IGNORE_CHARS))
-        ignoreChars = (String) metadata.field(CONFIG_IGNORE_CHARS);
-
-      if (metadata.containsField(CONFIG_INDEX_RADIX))
-        indexRadix = (Boolean) metadata.field(CONFIG_INDEX_RADIX);
-
-      if (metadata.containsField(CONFIG_SEPARATOR_CHARS))
-        separatorChars = (String) metadata.field(CONFIG_SEPARATOR_CHARS);
-
-      if (metadata.containsField(CONFIG_MIN_WORD_LEN))
-        minWordLength = (Integer) metadata.field(CONFIG_MIN_WORD_LEN);
-
-      if (metadata.containsField(CONFIG_STOP_WORDS))
-        stopWords = new HashSet<String>((Collection<? extends String>) metadata.field(CONFIG_STOP_WORDS));
-    }
-
-  }
-
-  protected void config() {
-    ignoreChars = DEF_IGNORE_CHARS;
-    indexRadix = DEF_INDEX_RADIX;
-    separatorChars = DEF_SEPARATOR_CHARS;
-    minWordLength = DEF_MIN_WORD_LENGTH;
-    stopWords = new HashSet<String>(OStringSerializerHelper.split(DEF_STOP_WORDS, ' '));
-  }
-
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     if (key == null)
@@ -247,15 +229,15 @@ public class OIndexFullText extends OIndexMultiValues {
 
     key = getCollatingValue(key);
 
-    final Set<String> words = splitIntoWords(key.toString());
+    final Map<String, Integer> words = analyzer.analyze(key.toString());
 
     // FOREACH WORD CREATE THE LINK TO THE CURRENT DOCUMENT
-    for (final String word : words) {
+    for (final Map.Entry<String, Integer> word : words.entrySet()) {
       Set<OIdentifiable> refs;
 
-      final Object snapshotValue = snapshot.get(word);
+      final Object snapshotValue = snapshot.get(word.getKey());
       if (snapshotValue == null)
-        refs = indexEngine.get(word);
+        refs = indexEngine.get(word.getKey());
       else if (snapshotValue.equals(RemovedValue.INSTANCE))
         refs = null;
       else
@@ -263,17 +245,11 @@ public class OIndexFullText extends OIndexMultiValues {
 
       if (refs == null) {
         // WORD NOT EXISTS: CREATE THE KEYWORD CONTAINER THE FIRST TIME THE WORD IS FOUND
-        if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-          refs = new OIndexRIDContainer(getName());
-        } else {
-          refs = new OMVRBTreeRIDSet();
-          ((OMVRBTreeRIDSet) refs).setAutoConvertToRecord(false);
-        }
-
-        snapshot.put(word, refs);
+        refs = createValuesContainer();
       }
       // ADD THE CURRENT DOCUMENT AS REF FOR THAT WORD
-      refs.add(value.getIdentity());
+      addReference(refs, value.getIdentity(), word.getValue());
+      snapshot.put(word.getKey(), refs);
     }
   }
 
@@ -281,7 +257,7 @@ public class OIndexFullText extends OIndexMultiValues {
   protected void removeFromSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
 
-    final Set<String> words = splitIntoWords(key.toString());
+    final Set<String> words = analyzer.analyze(key.toString()).keySet();
     for (final String word : words) {
       final Set<OIdentifiable> recs;
       final Object snapshotValue = snapshot.get(word);
@@ -303,50 +279,198 @@ public class OIndexFullText extends OIndexMultiValues {
     }
   }
 
-  private Set<String> splitIntoWords(final String iKey) {
-    final Set<String> result = new HashSet<String>();
+  /**
+   * Evaluates full-text query against index. Query is analyzed in the same way as indexed text and all its words should be present
+   * in the record. Word which ends with '*' matches every indexed word which starts with it. Parts of query separated by OR keyword
+   * are matched independently.
+   * 
+   * Each matched word contributes (1 + ln(tf)) * ln(1 + N / df) to the score of the record, where tf is frequency of word in the
+   * record (always 1 if index does not store posting lists), df is amount of records which contain word and N is amount of
+   * records in indexed clusters.
+   * 
+   * Changes of not committed transaction are not visible to the search.
+   * 
+   * @return matched records ordered by descending score.
+   */
+  public List<OIdentifiable> search(final Object query) {
+    checkForRebuild();
 
-    final List<String> words = (List<String>) OStringSerializerHelper.split(new ArrayList<String>(), iKey, 0, -1, separatorChars);
+    if (query == null)
+      return Collections.emptyList();
 
-    final StringBuilder buffer = new StringBuilder();
-    // FOREACH WORD CREATE THE LINK TO THE CURRENT DOCUMENT
+    final List<List<String>> clauses = new ArrayList<List<String>>();
+    for (final String clause : OR_OPERATOR.split(query.toString())) {
+      final List<String> terms = analyzer.analyzeQuery(getCollatingValue(clause).toString());
+      if (!terms.isEmpty())
+        clauses.add(terms);
+    }
 
-    char c;
-    boolean ignore;
-    for (String word : words) {
-      buffer.setLength(0);
-
-      for (int i = 0; i < word.length(); ++i) {
-        c = word.charAt(i);
-        ignore = false;
-        for (int k = 0; k < ignoreChars.length(); ++k)
-          if (c == ignoreChars.charAt(k)) {
-            ignore = true;
-            break;
-          }
+    if (clauses.isEmpty())
+      return Collections.emptyList();
+
+    long documents = 0;
+    for (final String clusterName : getClusters())
+      documents += getDatabase().countClusterElements(clusterName);
+
+    final Map<ORID, Double> scores = new HashMap<ORID, Double>();
+
+    acquireSharedLock();
+    try {
+      final Map<String, OFullTextPostingList> postingLists = new HashMap<String, OFullTextPostingList>();
+      for (final List<String> clause : clauses)
+        matchClause(clause, postingLists, documents, scores);
+    } finally {
+      releaseSharedLock();
+    }
+
+    final List<Map.Entry<ORID, Double>> ranked = new ArrayList<Map.Entry<ORID, Double>>(scores.entrySet());
+    Collections.sort(ranked, new Comparator<Map.Entry<ORID, Double>>() {
+      public int compare(Map.Entry<ORID, Double> entryOne, Map.Entry<ORID, Double> entryTwo) {
+        final int result = entryTwo.getValue().compareTo(entryOne.getValue());
+        if (result != 0)
+          return result;
+
+        return entryOne.getKey().compareTo(entryTwo.getKey());
+      }
+    });
+
+    final List<OIdentifiable> result = new ArrayList<OIdentifiable>(ranked.size());
+    for (final Map.Entry<ORID, Double> entry : ranked)
+      result.add(entry.getKey());
+
+    return result;
+  }
+
+  public OFullTextAnalyzer getAnalyzer() {
+    return analyzer;
+  }
 
-        if (!ignore)
-          buffer.append(c);
+  /**
+   * @return <code>true</code> if index was created with {@link ODefaultIndexFactory#POSTING_LIST_VALUE_CONTAINER}. CONTAINSTEXT
+   *         operator evaluates query by {@link #search(Object)} only for such indexes, other ones are looked up by whole text.
+   */
+  public boolean isPostingListIndex() {
+    return ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER.equals(valueContainerAlgorithm);
+  }
+
+  /**
+   * Intersects posting lists of all words of clause. Cursor of the shortest list leads, cursors of other lists are advanced to its
+   * entries by skip pointers and if any of them overshoots, leading cursor is advanced to the entry which was found.
+   */
+  private void matchClause(final List<String> terms, final Map<String, OFullTextPostingList> postingLists, final long documents,
+      final Map<ORID, Double> scores) {
+    final OFullTextPostingList[] lists = new OFullTextPostingList[terms.size()];
+    for (int i = 0; i < lists.length; i++) {
+      final String term = terms.get(i);
+
+      OFullTextPostingList postingList = postingLists.get(term);
+      if (postingList == null) {
+        postingList = loadPostingList(term);
+        postingLists.put(term, postingList);
       }
 
-      int length = buffer.length();
+      if (postingList.isEmpty())
+        return;
 
-      while (length >= minWordLength) {
-        buffer.setLength(length);
-        word = buffer.toString();
+      lists[i] = postingList;
+    }
+
+    Arrays.sort(lists, SIZE_COMPARATOR);
+
+    final OFullTextPostingList.Cursor[] cursors = new OFullTextPostingList.Cursor[lists.length];
+    final double[] idf = new double[lists.length];
+    for (int i = 0; i < lists.length; i++) {
+      cursors[i] = lists[i].cursor();
+      idf[i] = Math.log(1 + (double) Math.max(documents, lists[i].size()) / lists[i].size());
+    }
+
+    final OFullTextPostingList.Cursor lead = cursors[0];
+    boolean hasNext = lead.next();
+    while (hasNext) {
+      final int clusterId = lead.getClusterId();
+      final long clusterPosition = lead.getClusterPosition();
 
-        // CHECK IF IT'S A STOP WORD
-        if (!stopWords.contains(word))
-          // ADD THE WORD TO THE RESULT SET
-          result.add(word);
+      int i = 1;
+      for (; i < cursors.length; i++) {
+        final OFullTextPostingList.Cursor cursor = cursors[i];
+        if (!cursor.advance(clusterId, clusterPosition))
+          return;
 
-        if (indexRadix)
-          length--;
-        else
+        if (cursor.getClusterId() != clusterId || cursor.getClusterPosition() != clusterPosition)
           break;
       }
+
+      if (i < cursors.length) {
+        hasNext = lead.advance(cursors[i].getClusterId(), cursors[i].getClusterPosition());
+        continue;
+      }
+
+      double score = 0;
+      for (i = 0; i < cursors.length; i++)
+        score += (1 + Math.log(cursors[i].getFrequency())) * idf[i];
+
+      final ORID rid = lead.getIdentity();
+      final Double previousScore = scores.get(rid);
+      scores.put(rid, previousScore == null ? score : previousScore + score);
+
+      hasNext = lead.next();
     }
+  }
 
-    return result;
+  private OFullTextPostingList loadPostingList(final String term) {
+    if (term.charAt(term.length() - 1) != OFullTextAnalyzer.PREFIX_WILDCARD)
+      return toPostingList(indexEngine.get(term));
+
+    final String prefix = term.substring(0, term.length() - 1);
+    if (!indexEngine.hasRangeQuerySupport())
+      return toPostingList(indexEngine.get(prefix));
+
+    // CURSOR RETURNS ENTRY FOR EACH RECORD OF EACH WORD WHICH STARTS WITH PREFIX, POSTING LISTS OF FOUND WORDS ARE LOADED AFTERWARDS
+    // TO KEEP FREQUENCIES OF WORDS
+    final Set<Object> words = new LinkedHashSet<Object>();
+    final OIndexCursor cursor = indexEngine.iterateEntriesBetween(prefix, true, prefix + Character.MAX_VALUE, true, true,
+        MultiValuesTransformer.INSTANCE);
+
+    Map.Entry<Object, OIdentifiable> entry;
+    while ((entry = cursor.nextEntry()) != null)
+      words.add(entry.getKey());
+
+    if (words.isEmpty())
+      return new OFullTextPostingList();
+
+    final List<OFullTextPostingList> matched = new ArrayList<OFullTextPostingList>(words.size());
+    for (final Set<OIdentifiable> value : indexEngine.getAll(words).values())
+      matched.add(toPostingList(value));
+
+    return OFullTextPostingList.merge(matched);
+  }
+
+  private static OFullTextPostingList toPostingList(final Set<OIdentifiable> value) {
+    if (value == null)
+      return new OFullTextPostingList();
+
+    if (value instanceof OFullTextPostingList)
+      return (OFullTextPostingList) value;
+
+    return OFullTextPostingList.fromIdentities(value);
+  }
+
+  private static void addReference(final Set<OIdentifiable> refs, final OIdentifiable value, final int frequency) {
+    if (refs instanceof OFullTextPostingList)
+      ((OFullTextPostingList) refs).put(value, frequency);
+    else
+      refs.add(value);
+  }
+
+  private static OFullTextAnalyzer createAnalyzer(final ODocument metadata) {
+    if (metadata == null || !metadata.containsField(CONFIG_ANALYZER))
+      return new ODefaultFullTextAnalyzer();
+
+    final String className = metadata.field(CONFIG_ANALYZER);
+    try {
+      return (OFullTextAnalyzer) Class.forName(className).newInstance();
+    } catch (Exception e) {
+      throw new OIndexException("Cannot create full-text analyzer " + className, e);
+    }
   }
 }
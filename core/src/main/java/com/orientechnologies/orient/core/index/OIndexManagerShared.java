@@ -28,11 +28,13 @@ import com.orientechnologies.orient.core.db.record.ORecordTrackedSet;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.local.OEngineLocalPaginated;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.bitmap.OBitmapIndexFactory;
 import com.orientechnologies.orient.core.metadata.OMetadataDefault;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatistics;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OCluster.ATTRIBUTES;
 import com.orientechnologies.orient.core.storage.OStorage;
@@ -117,7 +119,7 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
     OStorage storage = database.getStorage();
 
     algorithm = chooseTreeAlgorithm(algorithm, storage);
-    final String valueContainerAlgorithm = chooseContainerAlgorithm(iType, storage);
+    final String valueContainerAlgorithm = chooseContainerAlgorithm(iType, storage, metadata);
 
     final OIndexInternal<?> index;
     acquireExclusiveLock();
@@ -174,9 +176,14 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
     return clustersToIndex;
   }
 
-  private String chooseContainerAlgorithm(String iType, OStorage storage) {
+  private String chooseContainerAlgorithm(String iType, OStorage storage, ODocument metadata) {
     final String valueContainerAlgorithm;
-    if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(iType) || OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString().equals(iType)
+    if ((OClass.INDEX_TYPE.FULLTEXT.toString().equals(iType) || OClass.INDEX_TYPE.FULLTEXT_HASH_INDEX.toString().equals(iType))
+        && OIndexFullText.usePostingLists(metadata)) {
+      valueContainerAlgorithm = ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER;
+    } else if (OClass.INDEX_TYPE.BITMAP.toString().equals(iType)) {
+      valueContainerAlgorithm = OBitmapIndexFactory.BITMAP_VALUE_CONTAINER;
+    } else if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(iType) || OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString().equals(iType)
         || OClass.INDEX_TYPE.FULLTEXT_HASH_INDEX.toString().equals(iType) || OClass.INDEX_TYPE.FULLTEXT.toString().equals(iType)) {
       if ((storage.getType().equals(OEngineLocalPaginated.NAME) || storage.getType().equals(OEngineLocal.NAME))
           && OGlobalConfiguration.INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT.getValueAsBoolean()) {
@@ -211,6 +218,7 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
 
         getDatabase().unregisterListener(idx.getInternal());
         idx.delete();
+        OSQLStatistics.instance(getDatabase()).remove(idx.getName());
         setDirty();
         save();
       }
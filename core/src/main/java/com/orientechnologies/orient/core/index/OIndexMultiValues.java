@@ -30,9 +30,11 @@ import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextPostingList;
 import com.orientechnologies.orient.core.iterator.OEmptyIterator;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerFullTextPostingList;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerListRID;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerSBTreeIndexRIDContainer;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
@@ -101,14 +103,8 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
       try {
         Set<OIdentifiable> values = indexEngine.get(key);
 
-        if (values == null) {
-          if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-            values = new OIndexRIDContainer(getName());
-          } else {
-            values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
-            ((OMVRBTreeRIDSet) values).setAutoConvertToRecord(false);
-          }
-        }
+        if (values == null)
+          values = createValuesContainer();
 
         if (!iSingleValue.getIdentity().isValid())
           ((ORecord<?>) iSingleValue).save();
@@ -126,6 +122,25 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
     }
   }
 
+  @Override
+  protected Set<OIdentifiable> bulkLoadValue(Object key, List<OIdentifiable> values) {
+    final Set<OIdentifiable> container = createValuesContainer();
+    container.addAll(values);
+    return container;
+  }
+
+  protected Set<OIdentifiable> createValuesContainer() {
+    if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm))
+      return new OIndexRIDContainer(getName());
+
+    if (ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER.equals(valueContainerAlgorithm))
+      return new OFullTextPostingList();
+
+    final OMVRBTreeRIDSet values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
+    values.setAutoConvertToRecord(false);
+    return values;
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, final Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
@@ -141,13 +156,7 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
       values = (Set<OIdentifiable>) snapshotValue;
 
     if (values == null) {
-      if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-        values = new OIndexRIDContainer(getName());
-      } else {
-        values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
-        ((OMVRBTreeRIDSet) values).setAutoConvertToRecord(false);
-      }
-
+      values = createValuesContainer();
       snapshot.put(key, values);
     }
 
@@ -239,6 +248,8 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
   protected OStreamSerializer determineValueSerializer() {
     if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm))
       return OStreamSerializerSBTreeIndexRIDContainer.INSTANCE;
+    else if (ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER.equals(valueContainerAlgorithm))
+      return OStreamSerializerFullTextPostingList.INSTANCE;
     else
       return OStreamSerializerListRID.INSTANCE;
   }
@@ -293,7 +304,10 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
   public OIndexCursor iterateEntries(Collection<?> keys, boolean ascSortOrder) {
     checkForRebuild();
 
-    final List<Object> sortedKeys = new ArrayList<Object>(keys);
+    final List<Object> sortedKeys = new ArrayList<Object>(keys.size());
+    for (Object key : keys)
+      sortedKeys.add(getCollatingValue(key));
+
     final Comparator<Object> comparator;
     if (ascSortOrder)
       comparator = ODefaultComparator.INSTANCE;
@@ -302,6 +316,15 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
 
     Collections.sort(sortedKeys, comparator);
 
+    // ALL KEYS ARE FETCHED BY SINGLE CALL SO ENGINE CAN LOOK UP THEM IN KEY ORDER AND VISIT EVERY PAGE ONLY ONCE
+    final Map<Object, Set<OIdentifiable>> values;
+    acquireSharedLock();
+    try {
+      values = indexEngine.getAll(sortedKeys);
+    } finally {
+      releaseSharedLock();
+    }
+
     return new OIndexAbstractCursor() {
       private Iterator<?>             keysIterator    = sortedKeys.iterator();
 
@@ -318,17 +341,10 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
           Collection<OIdentifiable> result = null;
           while (keysIterator.hasNext() && (result == null || result.isEmpty())) {
             key = keysIterator.next();
-            key = getCollatingValue(key);
-
-            acquireSharedLock();
-            try {
-              result = indexEngine.get(key);
-            } finally {
-              releaseSharedLock();
-            }
+            result = values.get(key);
           }
 
-          if (result == null) {
+          if (result == null || result.isEmpty()) {
             currentIterator = null;
             return null;
           }
@@ -392,8 +408,8 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
     }
   }
 
-  private static final class MultiValuesTransformer implements OIndexEngine.ValuesTransformer<Set<OIdentifiable>> {
-    private static final MultiValuesTransformer INSTANCE = new MultiValuesTransformer();
+  static final class MultiValuesTransformer implements OIndexEngine.ValuesTransformer<Set<OIdentifiable>> {
+    static final MultiValuesTransformer INSTANCE = new MultiValuesTransformer();
 
     @Override
     public Collection<OIdentifiable> transformFromValue(Set<OIdentifiable> value) {
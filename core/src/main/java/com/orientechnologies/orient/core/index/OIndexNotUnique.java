@@ -35,6 +35,11 @@ public class OIndexNotUnique extends OIndexMultiValues {
     return true;
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
   @Override
   public boolean supportsOrderedIterations() {
     return indexEngine.hasRangeQuerySupport();
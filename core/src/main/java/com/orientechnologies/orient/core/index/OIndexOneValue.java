@@ -115,7 +115,10 @@ public abstract class OIndexOneValue extends OIndexAbstract<OIdentifiable> {
   public OIndexCursor iterateEntries(Collection<?> keys, boolean ascSortOrder) {
     checkForRebuild();
 
-    final List<Object> sortedKeys = new ArrayList<Object>(keys);
+    final List<Object> sortedKeys = new ArrayList<Object>(keys.size());
+    for (Object key : keys)
+      sortedKeys.add(getCollatingValue(key));
+
     final Comparator<Object> comparator;
 
     if (ascSortOrder)
@@ -125,6 +128,15 @@ public abstract class OIndexOneValue extends OIndexAbstract<OIdentifiable> {
 
     Collections.sort(sortedKeys, comparator);
 
+    // ALL KEYS ARE FETCHED BY SINGLE CALL SO ENGINE CAN LOOK UP THEM IN KEY ORDER AND VISIT EVERY PAGE ONLY ONCE
+    final Map<Object, OIdentifiable> values;
+    acquireSharedLock();
+    try {
+      values = indexEngine.getAll(sortedKeys);
+    } finally {
+      releaseSharedLock();
+    }
+
     return new OIndexAbstractCursor() {
       private Iterator<?> keysIterator = sortedKeys.iterator();
 
@@ -134,14 +146,7 @@ public abstract class OIndexOneValue extends OIndexAbstract<OIdentifiable> {
         Object key = null;
         while (keysIterator.hasNext() && result == null) {
           key = keysIterator.next();
-          key = getCollatingValue(key);
-
-          acquireSharedLock();
-          try {
-            result = indexEngine.get(key);
-          } finally {
-            releaseSharedLock();
-          }
+          result = values.get(key);
         }
 
         if (result == null)
@@ -215,22 +220,22 @@ public abstract class OIndexOneValue extends OIndexAbstract<OIdentifiable> {
   public long getSize() {
     checkForRebuild();
 
-    acquireExclusiveLock();
+    acquireSharedLock();
     try {
       return indexEngine.size(null);
     } finally {
-      releaseExclusiveLock();
+      releaseSharedLock();
     }
   }
 
   public long getKeySize() {
     checkForRebuild();
 
-    acquireExclusiveLock();
+    acquireSharedLock();
     try {
       return indexEngine.size(null);
     } finally {
-      releaseExclusiveLock();
+      releaseSharedLock();
     }
   }
 
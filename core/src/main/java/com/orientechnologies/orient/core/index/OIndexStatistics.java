@@ -0,0 +1,280 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Statistics of the entries of an index used to estimate how many entries a query reads from it: amount of entries, of keys and
+ * of distinct values of the first field of the key, plus an equi-depth histogram of the first field built from a random sample of
+ * the entries. Values which fill at least one bucket of the histogram are kept apart with their frequency.
+ *
+ * Statistics are a snapshot taken when the index is analyzed: selectivities are fractions of the entries, so they remain valid
+ * while the index grows with the same distribution.
+ */
+public class OIndexStatistics {
+  public static final int           SAMPLES_PER_BUCKET = 100;
+
+  private final List<String>        fields;
+  private final long                entries;
+  private final long                keys;
+  private final long                distinctValues;
+  private final Object[]            bounds;
+  private final Map<Object, Float>  frequentValues     = new HashMap<Object, Float>();
+  private final float               frequentShare;
+  private final long                collected;
+
+  /**
+   * @param iSample
+   *          Values of the first field of the sampled entries, sorted
+   * @param iBuckets
+   *          Buckets of the histogram
+   */
+  public OIndexStatistics(final List<String> iFields, final long iEntries, final long iKeys, final long iDistinctValues,
+      final Object[] iSample, final int iBuckets) {
+    fields = iFields;
+    entries = iEntries;
+    keys = iKeys;
+    distinctValues = iDistinctValues;
+    collected = System.currentTimeMillis();
+
+    if (iSample.length == 0 || iBuckets <= 0) {
+      bounds = new Object[0];
+      frequentShare = 0;
+      return;
+    }
+
+    bounds = new Object[iBuckets + 1];
+    for (int i = 0; i <= iBuckets; i++)
+      bounds[i] = iSample[(int) ((long) i * (iSample.length - 1) / iBuckets)];
+
+    // VALUES SAMPLED AT LEAST AS MANY TIMES AS A BUCKET HOLDS
+    final int bucketSize = Math.max(2, iSample.length / iBuckets);
+    float share = 0;
+    for (int i = 0; i < iSample.length;) {
+      int j = i + 1;
+      while (j < iSample.length && ODefaultComparator.INSTANCE.compare(iSample[i], iSample[j]) == 0)
+        j++;
+
+      if (j - i >= bucketSize) {
+        final float frequency = (float) (j - i) / iSample.length;
+        frequentValues.put(iSample[i], frequency);
+        share += frequency;
+      }
+      i = j;
+    }
+    frequentShare = share;
+  }
+
+  /**
+   * Reads all the entries of the index keeping a random sample of the first field of their keys.
+   */
+  public static OIndexStatistics collect(final OIndex<?> iIndex, final int iBuckets) {
+    final Object[] sample = new Object[Math.max(1, iBuckets * SAMPLES_PER_BUCKET)];
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+
+    long entries = 0;
+    long keys = 0;
+    long distinctValues = 0;
+    long sampled = 0;
+    Object lastKey = null;
+    Object lastValue = null;
+
+    final OIndexCursor cursor = iIndex.cursor();
+    Map.Entry<Object, OIdentifiable> entry;
+    while ((entry = cursor.nextEntry()) != null) {
+      final Object key = entry.getKey();
+      entries++;
+
+      // ENTRIES OF THE SAME KEY ARE RETURNED TOGETHER
+      if (lastKey == null || !lastKey.equals(key)) {
+        keys++;
+        lastKey = key;
+      }
+
+      final Object value = key instanceof OCompositeKey ? ((OCompositeKey) key).getKeys().get(0) : key;
+      if (value == null)
+        continue;
+
+      if (lastValue == null || !lastValue.equals(value)) {
+        distinctValues++;
+        lastValue = value;
+      }
+
+      // RESERVOIR SAMPLING
+      if (sampled < sample.length)
+        sample[(int) sampled] = value;
+      else {
+        final long position = random.nextLong(sampled + 1);
+        if (position < sample.length)
+          sample[(int) position] = value;
+      }
+      sampled++;
+    }
+
+    final Object[] sortedSample = Arrays.copyOf(sample, (int) Math.min(sampled, sample.length));
+    Arrays.sort(sortedSample, ODefaultComparator.INSTANCE);
+
+    return new OIndexStatistics(new ArrayList<String>(iIndex.getDefinition().getFields()), entries, keys, Math.min(
+        distinctValues, keys), sortedSample, iBuckets);
+  }
+
+  /**
+   * Returns the fraction of the entries whose first field is equal to the value.
+   */
+  public float getEqualsSelectivity(final Object iValue) {
+    if (entries == 0)
+      return 0;
+
+    final Float frequency = frequentValues.get(iValue);
+    if (frequency != null)
+      return frequency;
+
+    // OTHER ENTRIES ARE SPREAD EVENLY ON THE OTHER VALUES
+    final long others = Math.max(1, distinctValues - frequentValues.size());
+    return Math.max(0, 1 - frequentShare) / others;
+  }
+
+  /**
+   * Returns the fraction of the entries whose first field is in the range.
+   *
+   * @param iFrom
+   *          Lower bound, null if the range has no lower bound
+   * @param iTo
+   *          Upper bound, null if the range has no upper bound
+   */
+  public float getRangeSelectivity(final Object iFrom, final boolean iFromInclusive, final Object iTo, final boolean iToInclusive) {
+    if (bounds.length == 0)
+      return 0;
+
+    final float from = iFrom != null ? getFractionBelow(iFrom, !iFromInclusive) : 0;
+    final float to = iTo != null ? getFractionBelow(iTo, iToInclusive) : 1;
+    return Math.max(0, to - from);
+  }
+
+  /**
+   * Returns the fraction of the entries whose first field is lower than the value, or lower or equal if inclusive.
+   */
+  public float getFractionBelow(final Object iValue, final boolean iInclusive) {
+    if (bounds.length == 0)
+      return 0;
+
+    final int buckets = bounds.length - 1;
+
+    // FIRST BOUND NOT LOWER THAN THE VALUE
+    int low = 0;
+    int high = bounds.length;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (ODefaultComparator.INSTANCE.compare(bounds[middle], iValue) < 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+
+    float fraction;
+    if (low == 0)
+      fraction = 0;
+    else if (low == bounds.length)
+      fraction = 1;
+    else
+      fraction = (low - 1 + interpolate(bounds[low - 1], bounds[low], iValue)) / buckets;
+
+    if (iInclusive)
+      fraction += getEqualsSelectivity(iValue);
+
+    return Math.min(1, fraction);
+  }
+
+  /**
+   * Returns the average amount of entries of a key.
+   */
+  public float getEntriesPerKey() {
+    return keys > 0 ? (float) entries / keys : 1;
+  }
+
+  public List<String> getFields() {
+    return fields;
+  }
+
+  public long getEntries() {
+    return entries;
+  }
+
+  public long getKeys() {
+    return keys;
+  }
+
+  public long getDistinctValues() {
+    return distinctValues;
+  }
+
+  public int getBuckets() {
+    return Math.max(0, bounds.length - 1);
+  }
+
+  public int getFrequentValues() {
+    return frequentValues.size();
+  }
+
+  public long getCollected() {
+    return collected;
+  }
+
+  public ODocument toDocument() {
+    final ODocument document = new ODocument();
+    document.field("fields", fields);
+    document.field("entries", entries);
+    document.field("keys", keys);
+    document.field("distinctValues", distinctValues);
+    document.field("buckets", getBuckets());
+    document.field("frequentValues", frequentValues.size());
+    document.field("collected", new Date(collected));
+    return document;
+  }
+
+  /**
+   * Returns the position of the value between the bounds of its bucket: linear for numbers and dates, the middle for others.
+   */
+  private static float interpolate(final Object iLow, final Object iHigh, final Object iValue) {
+    final double low = toDouble(iLow);
+    final double high = toDouble(iHigh);
+    final double value = toDouble(iValue);
+
+    if (Double.isNaN(low) || Double.isNaN(high) || Double.isNaN(value) || high <= low)
+      return 0.5f;
+
+    return (float) Math.min(1, Math.max(0, (value - low) / (high - low)));
+  }
+
+  private static double toDouble(final Object iValue) {
+    if (iValue instanceof Number)
+      return ((Number) iValue).doubleValue();
+    if (iValue instanceof Date)
+      return ((Date) iValue).getTime();
+    return Double.NaN;
+  }
+}
@@ -21,6 +21,7 @@ import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
 
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -72,6 +73,24 @@ public class OIndexUnique extends OIndexOneValue {
     }
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
+  @Override
+  protected OIdentifiable bulkLoadValue(Object key, List<OIdentifiable> values) {
+    final OIdentifiable value = values.get(0);
+
+    for (int i = 1; i < values.size(); i++)
+      if (!value.equals(values.get(i)))
+        throw new ORecordDuplicatedException(String.format(
+            "Cannot index record %s: found duplicated key '%s' in index '%s' previously assigned to the record %s", values.get(i)
+                .getIdentity(), key, getName(), value.getIdentity()), value.getIdentity());
+
+    return value;
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
@@ -151,6 +151,7 @@ public class OPropertyIndexDefinition extends OAbstractIndexDefinition {
     document.field("keyType", keyType.toString());
     document.field("collate", collate.getName());
     document.field("nullValuesIgnored", isNullValuesIgnored());
+    document.field("filter", getFilter());
   }
 
   protected void serializeFromStream() {
@@ -162,6 +163,7 @@ public class OPropertyIndexDefinition extends OAbstractIndexDefinition {
 
     setCollate((String) document.field("collate"));
     setNullValuesIgnored(!Boolean.FALSE.equals(document.<Boolean> field("nullValuesIgnored")));
+    setFilter((String) document.field("filter"));
   }
 
   /**
@@ -171,7 +173,7 @@ public class OPropertyIndexDefinition extends OAbstractIndexDefinition {
    * @param indexType
    */
   public String toCreateIndexDDL(final String indexName, final String indexType) {
-    return createIndexDDLWithFieldType(indexName, indexType).toString();
+    return appendFilterDDL(createIndexDDLWithFieldType(indexName, indexType)).toString();
   }
 
   protected StringBuilder createIndexDDLWithFieldType(String indexName, String indexType) {
@@ -99,6 +99,6 @@ public class OPropertyListIndexDefinition extends OAbstractIndexDefinitionMultiV
 
   @Override
   public String toCreateIndexDDL(String indexName, String indexType) {
-    return createIndexDDLWithoutFieldType(indexName, indexType).toString();
+    return appendFilterDDL(createIndexDDLWithoutFieldType(indexName, indexType)).toString();
   }
 }
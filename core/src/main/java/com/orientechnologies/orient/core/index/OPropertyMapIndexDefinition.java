@@ -210,6 +210,6 @@ public class OPropertyMapIndexDefinition extends OAbstractIndexDefinitionMultiVa
     ddl.append(" ) ");
     ddl.append(indexType);
 
-    return ddl.toString();
+    return appendFilterDDL(ddl).toString();
   }
 }
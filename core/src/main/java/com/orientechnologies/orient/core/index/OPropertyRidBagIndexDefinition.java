@@ -80,6 +80,6 @@ public class OPropertyRidBagIndexDefinition extends OAbstractIndexDefinitionMult
 
   @Override
   public String toCreateIndexDDL(String indexName, String indexType) {
-    return createIndexDDLWithoutFieldType(indexName, indexType).toString();
+    return appendFilterDDL(createIndexDDLWithoutFieldType(indexName, indexType)).toString();
   }
 }
\ No newline at end of file
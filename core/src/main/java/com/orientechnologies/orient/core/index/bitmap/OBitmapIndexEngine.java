@@ -0,0 +1,483 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.bitmap;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OBulkLoadIndexEngine;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndexAbstractCursor;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexEngine;
+import com.orientechnologies.orient.core.index.OIndexKeyCursor;
+import com.orientechnologies.orient.core.index.OSimpleKeyIndexDefinition;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+
+/**
+ * Index engine of {@link OIndexBitmap} which splits bitmap of every key in chunks stored as separate entries of underlying SBTree or
+ * MVRBTree engine. Key of the entry is composite key of the index key followed by cluster id and chunk of cluster position (see
+ * {@link ORoaringBitmap#getChunk(long)}), so every chunk holds at most one container of {@link ORoaringBitmap} and
+ * {@link #add(Object, ORIDBitmap)} and {@link #remove(Object, ORIDBitmap)} of single record rewrite only few Kb whatever the amount
+ * of records of the key is.
+ *
+ * Outside of this engine bitmap index looks as usual index of whole bitmaps: {@link #get(Object)} merges chunks of the key and
+ * cursors return index keys without chunk parts.
+ */
+public class OBitmapIndexEngine implements OBulkLoadIndexEngine<Set<OIdentifiable>> {
+  private static final ORID                      CHUNK_MARKER = new ORecordId();
+
+  private final OIndexEngine<Set<OIdentifiable>> delegate;
+  private int                                    keySize;
+
+  public OBitmapIndexEngine(final OIndexEngine<Set<OIdentifiable>> delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void init() {
+    delegate.init();
+  }
+
+  @Override
+  public void flush() {
+    delegate.flush();
+  }
+
+  @Override
+  public void create(String indexName, OIndexDefinition indexDefinition, String clusterIndexName,
+      OStreamSerializer valueSerializer, boolean isAutomatic) {
+    keySize = indexDefinition.getTypes().length;
+    delegate.create(indexName, createChunkDefinition(indexDefinition), clusterIndexName, valueSerializer, isAutomatic);
+  }
+
+  @Override
+  public void delete() {
+    delegate.delete();
+  }
+
+  @Override
+  public void deleteWithoutLoad(String indexName) {
+    delegate.deleteWithoutLoad(indexName);
+  }
+
+  @Override
+  public void load(ORID indexRid, String indexName, OIndexDefinition indexDefinition, OStreamSerializer valueSerializer,
+      boolean isAutomatic) {
+    keySize = indexDefinition.getTypes().length;
+    delegate.load(indexRid, indexName, createChunkDefinition(indexDefinition), valueSerializer, isAutomatic);
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return new ChunkCursor(key).next() != null;
+  }
+
+  /**
+   * Removes all chunks of the key.
+   */
+  @Override
+  public boolean remove(Object key) {
+    final List<Object> chunkKeys = new ArrayList<Object>();
+
+    final ChunkCursor cursor = new ChunkCursor(key);
+    Object chunkKey;
+    while ((chunkKey = cursor.next()) != null)
+      chunkKeys.add(chunkKey);
+
+    for (Object k : chunkKeys)
+      delegate.remove(k);
+
+    return !chunkKeys.isEmpty();
+  }
+
+  @Override
+  public ORID getIdentity() {
+    return delegate.getIdentity();
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public void unload() {
+    delegate.unload();
+  }
+
+  @Override
+  public void startTransaction() {
+    delegate.startTransaction();
+  }
+
+  @Override
+  public void stopTransaction() {
+    delegate.stopTransaction();
+  }
+
+  @Override
+  public void afterTxRollback() {
+    delegate.afterTxRollback();
+  }
+
+  @Override
+  public void afterTxCommit() {
+    delegate.afterTxCommit();
+  }
+
+  @Override
+  public void closeDb() {
+    delegate.closeDb();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  @Override
+  public void beforeTxBegin() {
+    delegate.beforeTxBegin();
+  }
+
+  /**
+   * @return Bitmap merged from all chunks of the key, null if key is absent.
+   */
+  @Override
+  public Set<OIdentifiable> get(Object key) {
+    final ChunkCursor cursor = new ChunkCursor(key);
+    if (cursor.next() == null)
+      return null;
+
+    final ORIDBitmap result = new ORIDBitmap();
+    do {
+      result.merge(cursor.chunk);
+    } while (cursor.next() != null);
+
+    return result;
+  }
+
+  @Override
+  public Map<Object, Set<OIdentifiable>> getAll(Collection<?> keys) {
+    final Map<Object, Set<OIdentifiable>> result = new HashMap<Object, Set<OIdentifiable>>();
+    for (Object key : keys) {
+      final Set<OIdentifiable> values = get(key);
+      if (values != null)
+        result.put(key, values);
+    }
+
+    return result;
+  }
+
+  /**
+   * Replaces bitmap of the key. Is used only when whole bitmap is known, single records are added and removed by
+   * {@link #add(Object, ORIDBitmap)} and {@link #remove(Object, ORIDBitmap)}.
+   */
+  @Override
+  public void put(Object key, Set<OIdentifiable> value) {
+    remove(key);
+
+    for (ORIDBitmap chunk : toBitmap(value).split())
+      delegate.put(chunkKey(key, chunk), chunk);
+  }
+
+  /**
+   * Adds records to the bitmap of the key, only chunks which contain added records are read and written.
+   */
+  public void add(final Object key, final ORIDBitmap values) {
+    for (ORIDBitmap chunk : values.split()) {
+      final OCompositeKey chunkKey = chunkKey(key, chunk);
+
+      final ORIDBitmap stored = (ORIDBitmap) delegate.get(chunkKey);
+      if (stored == null) {
+        delegate.put(chunkKey, chunk);
+        continue;
+      }
+
+      final ORIDBitmap merged = ORIDBitmap.or(stored, chunk);
+      if (merged.size() > stored.size())
+        delegate.put(chunkKey, merged);
+    }
+  }
+
+  /**
+   * Removes records from the bitmap of the key, only chunks which contain removed records are read and written.
+   *
+   * @return <code>true</code> if at least one record was removed.
+   */
+  public boolean remove(final Object key, final ORIDBitmap values) {
+    boolean removed = false;
+
+    for (ORIDBitmap chunk : values.split()) {
+      final OCompositeKey chunkKey = chunkKey(key, chunk);
+
+      final ORIDBitmap stored = (ORIDBitmap) delegate.get(chunkKey);
+      if (stored == null)
+        continue;
+
+      final ORIDBitmap rest = ORIDBitmap.andNot(stored, chunk);
+      if (rest.size() == stored.size())
+        continue;
+
+      if (rest.isEmpty())
+        delegate.remove(chunkKey);
+      else
+        delegate.put(chunkKey, rest);
+
+      removed = true;
+    }
+
+    return removed;
+  }
+
+  @Override
+  public Object getFirstKey() {
+    return toIndexKey(delegate.getFirstKey());
+  }
+
+  @Override
+  public Object getLastKey() {
+    return toIndexKey(delegate.getLastKey());
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
+      boolean ascSortOrder, ValuesTransformer<Set<OIdentifiable>> transformer) {
+    return new IndexKeyCursor(delegate.iterateEntriesBetween(prefixKey(rangeFrom), fromInclusive, prefixKey(rangeTo), toInclusive,
+        ascSortOrder, transformer));
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMajor(Object fromKey, boolean isInclusive, boolean ascSortOrder,
+      ValuesTransformer<Set<OIdentifiable>> transformer) {
+    return new IndexKeyCursor(delegate.iterateEntriesMajor(prefixKey(fromKey), isInclusive, ascSortOrder, transformer));
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMinor(Object toKey, boolean isInclusive, boolean ascSortOrder,
+      ValuesTransformer<Set<OIdentifiable>> transformer) {
+    return new IndexKeyCursor(delegate.iterateEntriesMinor(prefixKey(toKey), isInclusive, ascSortOrder, transformer));
+  }
+
+  @Override
+  public OIndexCursor cursor(ValuesTransformer<Set<OIdentifiable>> valuesTransformer) {
+    return new IndexKeyCursor(delegate.cursor(valuesTransformer));
+  }
+
+  /**
+   * Keys of chunks of the same index key are returned once.
+   */
+  @Override
+  public OIndexKeyCursor keyCursor() {
+    final OIndexKeyCursor chunkKeyCursor = delegate.keyCursor();
+
+    return new OIndexKeyCursor() {
+      private Object lastKey;
+
+      @Override
+      public Object next(int prefetchSize) {
+        Object chunkKey;
+        while ((chunkKey = chunkKeyCursor.next(prefetchSize)) != null) {
+          final Object key = toIndexKey(chunkKey);
+          if (lastKey == null || !lastKey.equals(key)) {
+            lastKey = key;
+            return key;
+          }
+        }
+
+        return null;
+      }
+    };
+  }
+
+  /**
+   * @return Amount of records if transformer is passed, otherwise amount of keys which are counted by iteration over chunk keys.
+   */
+  @Override
+  public long size(ValuesTransformer<Set<OIdentifiable>> transformer) {
+    if (transformer != null)
+      return delegate.size(transformer);
+
+    long keys = 0;
+    final OIndexKeyCursor cursor = keyCursor();
+    while (cursor.next(-1) != null)
+      keys++;
+
+    return keys;
+  }
+
+  @Override
+  public boolean hasRangeQuerySupport() {
+    return delegate.hasRangeQuerySupport();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean hasBulkLoadSupport() {
+    return delegate instanceof OBulkLoadIndexEngine
+        && ((OBulkLoadIndexEngine<Set<OIdentifiable>>) delegate).hasBulkLoadSupport();
+  }
+
+  /**
+   * Bitmaps are split in chunks, chunks of the key are sorted by cluster id and position so chunk entries stay sorted.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void bulkLoad(final Iterator<Map.Entry<Object, Set<OIdentifiable>>> sortedEntries) {
+    ((OBulkLoadIndexEngine<Set<OIdentifiable>>) delegate).bulkLoad(new Iterator<Map.Entry<Object, Set<OIdentifiable>>>() {
+      private Object                 key;
+      private Iterator<ORIDBitmap>   chunks = Collections.<ORIDBitmap> emptyList().iterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!chunks.hasNext() && sortedEntries.hasNext()) {
+          final Map.Entry<Object, Set<OIdentifiable>> entry = sortedEntries.next();
+          key = entry.getKey();
+          chunks = toBitmap(entry.getValue()).split().iterator();
+        }
+
+        return chunks.hasNext();
+      }
+
+      @Override
+      public Map.Entry<Object, Set<OIdentifiable>> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        final ORIDBitmap chunk = chunks.next();
+        return new AbstractMap.SimpleImmutableEntry<Object, Set<OIdentifiable>>(chunkKey(key, chunk), chunk);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    });
+  }
+
+  /**
+   * Definition of chunk keys: types of index key followed by cluster id and chunk of cluster position.
+   */
+  private static OIndexDefinition createChunkDefinition(final OIndexDefinition indexDefinition) {
+    final OCompositeIndexDefinition chunkDefinition = new OCompositeIndexDefinition(indexDefinition.getClassName());
+    if (indexDefinition instanceof OCompositeIndexDefinition)
+      for (OIndexDefinition definition : ((OCompositeIndexDefinition) indexDefinition).getIndexDefinitions())
+        chunkDefinition.addIndex(definition);
+    else
+      chunkDefinition.addIndex(indexDefinition);
+
+    chunkDefinition.addIndex(new OSimpleKeyIndexDefinition(OType.INTEGER, OType.LONG));
+    chunkDefinition.setNullValuesIgnored(indexDefinition.isNullValuesIgnored());
+    return chunkDefinition;
+  }
+
+  private static ORIDBitmap toBitmap(final Set<OIdentifiable> values) {
+    if (values instanceof ORIDBitmap)
+      return (ORIDBitmap) values;
+
+    final ORIDBitmap bitmap = new ORIDBitmap();
+    bitmap.addAll(values);
+    return bitmap;
+  }
+
+  private static OCompositeKey prefixKey(final Object key) {
+    final OCompositeKey prefixKey = new OCompositeKey();
+    prefixKey.addKey(key);
+    return prefixKey;
+  }
+
+  private static OCompositeKey chunkKey(final Object key, final ORIDBitmap chunk) {
+    final ORID rid = chunk.iterator().next().getIdentity();
+
+    final OCompositeKey chunkKey = prefixKey(key);
+    chunkKey.addKey(rid.getClusterId());
+    chunkKey.addKey(ORoaringBitmap.getChunk(rid.getClusterPosition().longValue()));
+    return chunkKey;
+  }
+
+  private Object toIndexKey(final Object chunkKey) {
+    if (chunkKey == null)
+      return null;
+
+    final List<Object> keys = ((OCompositeKey) chunkKey).getKeys();
+    if (keySize == 1)
+      return keys.get(0);
+
+    return new OCompositeKey(keys.subList(0, keySize));
+  }
+
+  /**
+   * Iterates over chunks of single key, returns key of every chunk while the chunk itself is kept in {@link #chunk}.
+   */
+  private final class ChunkCursor implements ValuesTransformer<Set<OIdentifiable>> {
+    private final OIndexCursor cursor;
+    private ORIDBitmap         chunk;
+
+    private ChunkCursor(final Object key) {
+      final OCompositeKey prefixKey = prefixKey(key);
+      cursor = delegate.iterateEntriesBetween(prefixKey, true, prefixKey, true, true, this);
+    }
+
+    @Override
+    public Collection<OIdentifiable> transformFromValue(final Set<OIdentifiable> value) {
+      chunk = (ORIDBitmap) value;
+      // SINGLE ENTRY PER CHUNK
+      return Collections.<OIdentifiable> singletonList(CHUNK_MARKER);
+    }
+
+    private Object next() {
+      final Map.Entry<Object, OIdentifiable> entry = cursor.nextEntry();
+      return entry != null ? entry.getKey() : null;
+    }
+  }
+
+  /**
+   * Returns entries of underlying engine with keys of the index instead of keys of chunks.
+   */
+  private final class IndexKeyCursor extends OIndexAbstractCursor {
+    private final OIndexCursor chunkCursor;
+
+    private IndexKeyCursor(final OIndexCursor chunkCursor) {
+      this.chunkCursor = chunkCursor;
+    }
+
+    @Override
+    public Map.Entry<Object, OIdentifiable> nextEntry() {
+      chunkCursor.setPrefetchSize(getPrefetchSize());
+
+      final Map.Entry<Object, OIdentifiable> entry = chunkCursor.nextEntry();
+      if (entry == null)
+        return null;
+
+      return new AbstractMap.SimpleImmutableEntry<Object, OIdentifiable>(toIndexKey(entry.getKey()), entry.getValue());
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.bitmap;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.index.ODefaultIndexFactory;
+import com.orientechnologies.orient.core.index.OIndexFactory;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.engine.OMVRBTreeIndexEngine;
+import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Factory of bitmap indexes.<br>
+ * Supports index types :
+ * <ul>
+ * <li>BITMAP</li>
+ * </ul>
+ * 
+ * @see OIndexBitmap
+ */
+public class OBitmapIndexFactory implements OIndexFactory {
+  public static final String       BITMAP_VALUE_CONTAINER = "BITMAP";
+
+  private static final Set<String> TYPES;
+  private static final Set<String> ALGORITHMS;
+
+  static {
+    final Set<String> types = new HashSet<String>();
+    types.add(OClass.INDEX_TYPE.BITMAP.toString());
+    TYPES = Collections.unmodifiableSet(types);
+  }
+
+  static {
+    final Set<String> algorithms = new HashSet<String>();
+    algorithms.add(ODefaultIndexFactory.SBTREE_ALGORITHM);
+    algorithms.add(ODefaultIndexFactory.MVRBTREE_ALGORITHM);
+    ALGORITHMS = Collections.unmodifiableSet(algorithms);
+  }
+
+  public Set<String> getTypes() {
+    return TYPES;
+  }
+
+  public Set<String> getAlgorithms() {
+    return ALGORITHMS;
+  }
+
+  public OIndexInternal<?> createIndex(ODatabaseRecord database, String indexType, String algorithm,
+      String valueContainerAlgorithm, ODocument metadata) throws OConfigurationException {
+    if (!OClass.INDEX_TYPE.BITMAP.toString().equals(indexType))
+      throw new OConfigurationException("Unsupported type : " + indexType);
+
+    if (ODefaultIndexFactory.SBTREE_ALGORITHM.equals(algorithm))
+      return new OIndexBitmap(indexType, algorithm, new OBitmapIndexEngine(new OSBTreeIndexEngine<Set<OIdentifiable>>()),
+          BITMAP_VALUE_CONTAINER);
+
+    return new OIndexBitmap(indexType, ODefaultIndexFactory.MVRBTREE_ALGORITHM, new OBitmapIndexEngine(
+        new OMVRBTreeIndexEngine<Set<OIdentifiable>>()), BITMAP_VALUE_CONTAINER);
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.bitmap;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexMultiValues;
+import com.orientechnologies.orient.core.index.OIndexNotUnique;
+import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRIDBitmap;
+
+/**
+ * Not unique index which keeps records of every key in compressed {@link ORIDBitmap}. Is intended for fields with a handful of
+ * distinct values (status, country, gender, etc.), where RID sets of keys are huge. Query executor combines bitmaps of several
+ * conditions on such fields by AND, OR and AND NOT before loading of records.
+ * 
+ * Bitmaps are stored in chunks by {@link OBitmapIndexEngine}, so put and remove of a record change only the chunk of the record.
+ * Changes of transaction are kept as records added to and removed from every key and are applied to the chunks on commit.
+ * 
+ * @see OBitmapIndexFactory
+ */
+public class OIndexBitmap extends OIndexNotUnique {
+  private final OBitmapIndexEngine bitmapEngine;
+
+  public OIndexBitmap(String typeId, String algorithm, OBitmapIndexEngine engine, String valueContainerAlgorithm) {
+    super(typeId, algorithm, engine, valueContainerAlgorithm);
+    bitmapEngine = engine;
+  }
+
+  @Override
+  public OIndexInternal<?> create(String name, OIndexDefinition indexDefinition, String clusterIndexName,
+      Set<String> clustersToIndex, boolean rebuild, OProgressListener progressListener, OStreamSerializer valueSerializer) {
+    if (indexDefinition == null || indexDefinition instanceof ORuntimeKeyIndexDefinition)
+      throw new OIndexException(type + " indexes require the types of the keys.");
+
+    return super.create(name, indexDefinition, clusterIndexName, clustersToIndex, rebuild, progressListener, valueSerializer);
+  }
+
+  @Override
+  public Set<OIdentifiable> get(Object key) {
+    return getBitmap(key);
+  }
+
+  /**
+   * Returns bitmap of records which are indexed by given key. Changes of current transaction are not taken into account.
+   * 
+   * @return Bitmap of records, empty bitmap if key is absent.
+   */
+  public ORIDBitmap getBitmap(Object key) {
+    checkForRebuild();
+
+    key = getCollatingValue(key);
+
+    acquireSharedLock();
+    try {
+      final ORIDBitmap values = (ORIDBitmap) indexEngine.get(key);
+
+      if (values == null)
+        return new ORIDBitmap();
+
+      return values;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OIndexMultiValues put(Object key, final OIdentifiable iSingleValue) {
+    checkForRebuild();
+
+    key = getCollatingValue(key);
+
+    modificationLock.requestModificationLock();
+    try {
+      checkForKeyType(key);
+      acquireExclusiveLock();
+      try {
+        if (!iSingleValue.getIdentity().isValid())
+          ((ORecord<?>) iSingleValue).save();
+
+        bitmapEngine.add(key, toBitmap(iSingleValue));
+        return this;
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  @Override
+  public boolean remove(Object key, final OIdentifiable value) {
+    checkForRebuild();
+
+    key = getCollatingValue(key);
+
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+        return bitmapEngine.remove(key, toBitmap(value));
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  @Override
+  protected void putInSnapshot(Object key, final OIdentifiable value, final Map<Object, Object> snapshot) {
+    key = getCollatingValue(key);
+
+    final KeyChanges changes = getChanges(key, snapshot);
+    changes.added.add(value.getIdentity());
+    changes.removed.remove(value.getIdentity());
+  }
+
+  @Override
+  protected void removeFromSnapshot(Object key, final OIdentifiable value, final Map<Object, Object> snapshot) {
+    key = getCollatingValue(key);
+
+    final KeyChanges changes = getChanges(key, snapshot);
+    changes.added.remove(value.getIdentity());
+    if (!changes.cleared)
+      changes.removed.add(value.getIdentity());
+  }
+
+  @Override
+  protected void commitSnapshot(final Map<Object, Object> snapshot) {
+    for (Map.Entry<Object, Object> snapshotEntry : snapshot.entrySet()) {
+      final Object key = snapshotEntry.getKey();
+      final Object value = snapshotEntry.getValue();
+      checkForKeyType(key);
+
+      if (value.equals(RemovedValue.INSTANCE)) {
+        indexEngine.remove(key);
+        continue;
+      }
+
+      final KeyChanges changes = (KeyChanges) value;
+      if (changes.cleared)
+        indexEngine.remove(key);
+      else if (!changes.removed.isEmpty())
+        bitmapEngine.remove(key, changes.removed);
+
+      if (!changes.added.isEmpty())
+        bitmapEngine.add(key, changes.added);
+    }
+  }
+
+  @Override
+  protected Set<OIdentifiable> createValuesContainer() {
+    return new ORIDBitmap();
+  }
+
+  @Override
+  protected OStreamSerializer determineValueSerializer() {
+    return OStreamSerializerRIDBitmap.INSTANCE;
+  }
+
+  private static KeyChanges getChanges(final Object key, final Map<Object, Object> snapshot) {
+    final Object snapshotValue = snapshot.get(key);
+    if (snapshotValue instanceof KeyChanges)
+      return (KeyChanges) snapshotValue;
+
+    final KeyChanges changes = new KeyChanges(RemovedValue.INSTANCE.equals(snapshotValue));
+    snapshot.put(key, changes);
+    return changes;
+  }
+
+  private static ORIDBitmap toBitmap(final OIdentifiable value) {
+    final ORIDBitmap bitmap = new ORIDBitmap();
+    bitmap.add(value.getIdentity());
+    return bitmap;
+  }
+
+  /**
+   * Records added to and removed from the key by transaction, if the key was removed all its stored records are removed first.
+   */
+  private static final class KeyChanges {
+    private final boolean    cleared;
+    private final ORIDBitmap added   = new ORIDBitmap();
+    private final ORIDBitmap removed = new ORIDBitmap();
+
+    private KeyChanges(final boolean cleared) {
+      this.cleared = cleared;
+    }
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.bitmap;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndexException;
+
+/**
+ * Set of record identities kept as one {@link ORoaringBitmap} of cluster positions per cluster id. Is used as value of bitmap index,
+ * so records of low cardinality keys take about 2 bits each instead of full RID, and conditions on several keys are combined by
+ * {@link #and(ORIDBitmap, ORIDBitmap)}, {@link #or(ORIDBitmap, ORIDBitmap)} and {@link #andNot(ORIDBitmap, ORIDBitmap)} without
+ * loading of records.
+ *
+ * Identities are iterated sorted by cluster id and cluster position, so records are loaded in storage order. Only persistent
+ * identities can be added.
+ *
+ * Stream format:
+ * <ol>
+ * <li>amount of clusters (int)</li>
+ * <li>for each cluster: cluster id (int) followed by bitmap of cluster positions</li>
+ * </ol>
+ */
+public class ORIDBitmap extends AbstractSet<OIdentifiable> {
+  private final TreeMap<Integer, ORoaringBitmap> clusters = new TreeMap<Integer, ORoaringBitmap>();
+
+  public ORIDBitmap() {
+  }
+
+  /**
+   * Restores bitmap serialized by {@link #toStream()}.
+   */
+  public ORIDBitmap(final byte[] stream) {
+    int position = 0;
+
+    final int clustersCount = readInt(stream, position);
+    position += 4;
+
+    for (int i = 0; i < clustersCount; i++) {
+      final int clusterId = readInt(stream, position);
+      position += 4;
+
+      final ORoaringBitmap bitmap = ORoaringBitmap.fromStream(stream, position);
+      position += bitmap.getSerializedSize();
+
+      clusters.put(clusterId, bitmap);
+    }
+  }
+
+  public static ORIDBitmap and(final ORIDBitmap bitmapOne, final ORIDBitmap bitmapTwo) {
+    final ORIDBitmap result = new ORIDBitmap();
+
+    for (Map.Entry<Integer, ORoaringBitmap> entry : bitmapOne.clusters.entrySet()) {
+      final ORoaringBitmap other = bitmapTwo.clusters.get(entry.getKey());
+      if (other == null)
+        continue;
+
+      final ORoaringBitmap bitmap = ORoaringBitmap.and(entry.getValue(), other);
+      if (!bitmap.isEmpty())
+        result.clusters.put(entry.getKey(), bitmap);
+    }
+
+    return result;
+  }
+
+  public static ORIDBitmap or(final ORIDBitmap bitmapOne, final ORIDBitmap bitmapTwo) {
+    final ORIDBitmap result = new ORIDBitmap();
+
+    for (Map.Entry<Integer, ORoaringBitmap> entry : bitmapOne.clusters.entrySet()) {
+      final ORoaringBitmap other = bitmapTwo.clusters.get(entry.getKey());
+      result.clusters.put(entry.getKey(), other == null ? entry.getValue().copy() : ORoaringBitmap.or(entry.getValue(), other));
+    }
+
+    for (Map.Entry<Integer, ORoaringBitmap> entry : bitmapTwo.clusters.entrySet())
+      if (!result.clusters.containsKey(entry.getKey()))
+        result.clusters.put(entry.getKey(), entry.getValue().copy());
+
+    return result;
+  }
+
+  /**
+   * @return Identities of the first bitmap which are absent in the second one.
+   */
+  public static ORIDBitmap andNot(final ORIDBitmap bitmapOne, final ORIDBitmap bitmapTwo) {
+    final ORIDBitmap result = new ORIDBitmap();
+
+    for (Map.Entry<Integer, ORoaringBitmap> entry : bitmapOne.clusters.entrySet()) {
+      final ORoaringBitmap other = bitmapTwo.clusters.get(entry.getKey());
+
+      final ORoaringBitmap bitmap = other == null ? entry.getValue().copy() : ORoaringBitmap.andNot(entry.getValue(), other);
+      if (!bitmap.isEmpty())
+        result.clusters.put(entry.getKey(), bitmap);
+    }
+
+    return result;
+  }
+
+  public ORIDBitmap copy() {
+    final ORIDBitmap copy = new ORIDBitmap();
+    for (Map.Entry<Integer, ORoaringBitmap> entry : clusters.entrySet())
+      copy.clusters.put(entry.getKey(), entry.getValue().copy());
+
+    return copy;
+  }
+
+  /**
+   * Adds identities of other bitmap to this one, other bitmap is not changed.
+   */
+  public void merge(final ORIDBitmap other) {
+    for (Map.Entry<Integer, ORoaringBitmap> entry : other.clusters.entrySet()) {
+      final ORoaringBitmap bitmap = clusters.get(entry.getKey());
+      if (bitmap == null)
+        clusters.put(entry.getKey(), entry.getValue().copy());
+      else
+        bitmap.merge(entry.getValue());
+    }
+  }
+
+  /**
+   * Splits bitmap in chunks, every chunk contains positions of single cluster which belong to the same chunk of
+   * {@link ORoaringBitmap}.
+   *
+   * @return Chunks sorted by cluster id and cluster position.
+   */
+  public List<ORIDBitmap> split() {
+    final List<ORIDBitmap> chunks = new ArrayList<ORIDBitmap>();
+    for (Map.Entry<Integer, ORoaringBitmap> entry : clusters.entrySet())
+      for (ORoaringBitmap bitmap : entry.getValue().split()) {
+        final ORIDBitmap chunk = new ORIDBitmap();
+        chunk.clusters.put(entry.getKey(), bitmap);
+        chunks.add(chunk);
+      }
+
+    return chunks;
+  }
+
+  @Override
+  public boolean add(final OIdentifiable identifiable) {
+    final ORID rid = identifiable.getIdentity();
+    final long position = rid.getClusterPosition().longValue();
+    if (position < 0)
+      throw new OIndexException("Bitmap index can not contain not persistent record " + rid);
+
+    ORoaringBitmap bitmap = clusters.get(rid.getClusterId());
+    if (bitmap == null) {
+      bitmap = new ORoaringBitmap();
+      clusters.put(rid.getClusterId(), bitmap);
+    }
+
+    return bitmap.add(position);
+  }
+
+  @Override
+  public boolean remove(final Object o) {
+    if (!(o instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+    final ORoaringBitmap bitmap = clusters.get(rid.getClusterId());
+    if (bitmap == null || !bitmap.remove(rid.getClusterPosition().longValue()))
+      return false;
+
+    if (bitmap.isEmpty())
+      clusters.remove(rid.getClusterId());
+
+    return true;
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    if (!(o instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+    final ORoaringBitmap bitmap = clusters.get(rid.getClusterId());
+    return bitmap != null && bitmap.contains(rid.getClusterPosition().longValue());
+  }
+
+  @Override
+  public void clear() {
+    clusters.clear();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return clusters.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (ORoaringBitmap bitmap : clusters.values())
+      size += bitmap.getCardinality();
+
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Iterator does not support removal of elements.
+   */
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    final Iterator<Map.Entry<Integer, ORoaringBitmap>> clustersIterator = clusters.entrySet().iterator();
+
+    return new Iterator<OIdentifiable>() {
+      private int                   clusterId;
+      private ORoaringBitmap.Cursor cursor;
+
+      public boolean hasNext() {
+        while (cursor == null || !cursor.hasNext()) {
+          if (!clustersIterator.hasNext())
+            return false;
+
+          final Map.Entry<Integer, ORoaringBitmap> entry = clustersIterator.next();
+          clusterId = entry.getKey();
+          cursor = entry.getValue().cursor();
+        }
+
+        return true;
+      }
+
+      public OIdentifiable next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        return new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(cursor.next()));
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  public byte[] toStream() {
+    int streamSize = 4;
+    for (ORoaringBitmap bitmap : clusters.values())
+      streamSize += 4 + bitmap.getSerializedSize();
+
+    final byte[] stream = new byte[streamSize];
+    int position = 0;
+
+    writeInt(stream, position, clusters.size());
+    position += 4;
+
+    for (Map.Entry<Integer, ORoaringBitmap> entry : clusters.entrySet()) {
+      writeInt(stream, position, entry.getKey());
+      position += 4;
+
+      position = entry.getValue().toStream(stream, position);
+    }
+
+    return stream;
+  }
+
+  private static int readInt(final byte[] stream, final int offset) {
+    return ((stream[offset] & 0xFF) << 24) | ((stream[offset + 1] & 0xFF) << 16) | ((stream[offset + 2] & 0xFF) << 8)
+        | (stream[offset + 3] & 0xFF);
+  }
+
+  private static void writeInt(final byte[] stream, final int offset, final int value) {
+    stream[offset] = (byte) (value >>> 24);
+    stream[offset + 1] = (byte) (value >>> 16);
+    stream[offset + 2] = (byte) (value >>> 8);
+    stream[offset + 3] = (byte) value;
+  }
+}
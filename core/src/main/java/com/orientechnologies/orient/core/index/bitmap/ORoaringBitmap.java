@@ -0,0 +1,783 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.bitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Compressed bitmap of non negative long values (cluster positions) in "roaring" layout.
+ *
+ * Values are split in chunks by upper 48 bits, every chunk keeps lower 16 bits of its values in container. Sparse chunks are stored
+ * as sorted arrays of 16 bit values, dense chunks (more than {@link #ARRAY_CONTAINER_MAX_SIZE} values) as plain bitmaps of 8 Kb.
+ * So the bitmap takes at most 2 bytes per value and intersection, union and difference are computed chunk by chunk without
+ * decoding of values of dense chunks.
+ *
+ * Stream format:
+ * <ol>
+ * <li>amount of chunks (int)</li>
+ * <li>for each chunk: upper bits of chunk (long), cardinality of chunk (int) and container. Cardinality up to
+ * {@link #ARRAY_CONTAINER_MAX_SIZE} means array container which is written as sorted values of 2 bytes, bitmap container is written
+ * as 1024 longs.</li>
+ * </ol>
+ *
+ * Bitmap is not thread safe. Operations {@link #and(ORoaringBitmap, ORoaringBitmap)}, {@link #or(ORoaringBitmap, ORoaringBitmap)}
+ * and {@link #andNot(ORoaringBitmap, ORoaringBitmap)} do not modify arguments and do not share containers with them.
+ */
+public class ORoaringBitmap {
+  public static final int  ARRAY_CONTAINER_MAX_SIZE = 4096;
+
+  private static final int BITMAP_WORDS             = 1024;
+  private static final int INITIAL_CAPACITY         = 4;
+
+  private long[]           highBits;
+  private Container[]      containers;
+  private int              size;
+
+  public ORoaringBitmap() {
+    highBits = new long[INITIAL_CAPACITY];
+    containers = new Container[INITIAL_CAPACITY];
+  }
+
+  private ORoaringBitmap(final int capacity) {
+    highBits = new long[Math.max(capacity, 1)];
+    containers = new Container[Math.max(capacity, 1)];
+  }
+
+  public static ORoaringBitmap and(final ORoaringBitmap bitmapOne, final ORoaringBitmap bitmapTwo) {
+    final ORoaringBitmap result = new ORoaringBitmap(Math.min(bitmapOne.size, bitmapTwo.size));
+
+    int i = 0;
+    int j = 0;
+    while (i < bitmapOne.size && j < bitmapTwo.size) {
+      if (bitmapOne.highBits[i] < bitmapTwo.highBits[j])
+        i++;
+      else if (bitmapOne.highBits[i] > bitmapTwo.highBits[j])
+        j++;
+      else {
+        final Container container = bitmapOne.containers[i].and(bitmapTwo.containers[j]);
+        if (container.cardinality() > 0)
+          result.append(bitmapOne.highBits[i], container);
+
+        i++;
+        j++;
+      }
+    }
+
+    return result;
+  }
+
+  public static ORoaringBitmap or(final ORoaringBitmap bitmapOne, final ORoaringBitmap bitmapTwo) {
+    final ORoaringBitmap result = new ORoaringBitmap(bitmapOne.size + bitmapTwo.size);
+
+    int i = 0;
+    int j = 0;
+    while (i < bitmapOne.size || j < bitmapTwo.size) {
+      if (j >= bitmapTwo.size || (i < bitmapOne.size && bitmapOne.highBits[i] < bitmapTwo.highBits[j])) {
+        result.append(bitmapOne.highBits[i], bitmapOne.containers[i].copy());
+        i++;
+      } else if (i >= bitmapOne.size || bitmapOne.highBits[i] > bitmapTwo.highBits[j]) {
+        result.append(bitmapTwo.highBits[j], bitmapTwo.containers[j].copy());
+        j++;
+      } else {
+        result.append(bitmapOne.highBits[i], bitmapOne.containers[i].or(bitmapTwo.containers[j]));
+        i++;
+        j++;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @return values of the first bitmap which are absent in the second one.
+   */
+  public static ORoaringBitmap andNot(final ORoaringBitmap bitmapOne, final ORoaringBitmap bitmapTwo) {
+    final ORoaringBitmap result = new ORoaringBitmap(bitmapOne.size);
+
+    int j = 0;
+    for (int i = 0; i < bitmapOne.size; i++) {
+      while (j < bitmapTwo.size && bitmapTwo.highBits[j] < bitmapOne.highBits[i])
+        j++;
+
+      final Container container;
+      if (j < bitmapTwo.size && bitmapTwo.highBits[j] == bitmapOne.highBits[i])
+        container = bitmapOne.containers[i].andNot(bitmapTwo.containers[j]);
+      else
+        container = bitmapOne.containers[i].copy();
+
+      if (container.cardinality() > 0)
+        result.append(bitmapOne.highBits[i], container);
+    }
+
+    return result;
+  }
+
+  /**
+   * @return Chunk of the value, values of the same chunk are kept in one container.
+   */
+  public static long getChunk(final long value) {
+    return value >>> 16;
+  }
+
+  public static ORoaringBitmap fromStream(final byte[] stream, final int offset) {
+    int position = offset;
+
+    final int chunks = readInt(stream, position);
+    position += 4;
+
+    final ORoaringBitmap bitmap = new ORoaringBitmap(chunks);
+    for (int i = 0; i < chunks; i++) {
+      final long high = readLong(stream, position);
+      position += 8;
+
+      final int cardinality = readInt(stream, position);
+      position += 4;
+
+      final Container container;
+      if (cardinality <= ARRAY_CONTAINER_MAX_SIZE) {
+        final char[] values = new char[Math.max(cardinality, INITIAL_CAPACITY)];
+        for (int n = 0; n < cardinality; n++) {
+          values[n] = (char) (((stream[position] & 0xFF) << 8) | (stream[position + 1] & 0xFF));
+          position += 2;
+        }
+
+        container = new ArrayContainer(values, cardinality);
+      } else {
+        final long[] words = new long[BITMAP_WORDS];
+        for (int n = 0; n < BITMAP_WORDS; n++) {
+          words[n] = readLong(stream, position);
+          position += 8;
+        }
+
+        container = new BitmapContainer(words, cardinality);
+      }
+
+      bitmap.append(high, container);
+    }
+
+    return bitmap;
+  }
+
+  /**
+   * Adds values of other bitmap to this one, containers of other bitmap are copied. Chunks which follow the last chunk of this
+   * bitmap are appended without shift of containers.
+   */
+  public void merge(final ORoaringBitmap other) {
+    for (int j = 0; j < other.size; j++) {
+      final int index = Arrays.binarySearch(highBits, 0, size, other.highBits[j]);
+      if (index >= 0)
+        containers[index] = containers[index].or(other.containers[j]);
+      else
+        insert(-index - 1, other.highBits[j], other.containers[j].copy());
+    }
+  }
+
+  /**
+   * @return Bitmaps of single chunk each in ascending order of chunks, containers are copied.
+   */
+  public List<ORoaringBitmap> split() {
+    final List<ORoaringBitmap> chunks = new ArrayList<ORoaringBitmap>(size);
+    for (int i = 0; i < size; i++) {
+      final ORoaringBitmap chunk = new ORoaringBitmap(1);
+      chunk.append(highBits[i], containers[i].copy());
+      chunks.add(chunk);
+    }
+
+    return chunks;
+  }
+
+  public boolean add(final long value) {
+    final long high = value >>> 16;
+    final char low = (char) value;
+
+    final int index = Arrays.binarySearch(highBits, 0, size, high);
+    if (index >= 0) {
+      final Container container = containers[index];
+      final int cardinality = container.cardinality();
+
+      containers[index] = container.add(low);
+      return containers[index].cardinality() > cardinality;
+    }
+
+    final ArrayContainer container = new ArrayContainer();
+    container.add(low);
+    insert(-index - 1, high, container);
+    return true;
+  }
+
+  public boolean remove(final long value) {
+    final int index = Arrays.binarySearch(highBits, 0, size, value >>> 16);
+    if (index < 0)
+      return false;
+
+    final Container container = containers[index];
+    final int cardinality = container.cardinality();
+
+    containers[index] = container.remove((char) value);
+    if (containers[index].cardinality() == cardinality)
+      return false;
+
+    if (containers[index].cardinality() == 0) {
+      System.arraycopy(highBits, index + 1, highBits, index, size - index - 1);
+      System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+      size--;
+      containers[size] = null;
+    }
+
+    return true;
+  }
+
+  public boolean contains(final long value) {
+    final int index = Arrays.binarySearch(highBits, 0, size, value >>> 16);
+    return index >= 0 && containers[index].contains((char) value);
+  }
+
+  public long getCardinality() {
+    long cardinality = 0;
+    for (int i = 0; i < size; i++)
+      cardinality += containers[i].cardinality();
+
+    return cardinality;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public ORoaringBitmap copy() {
+    final ORoaringBitmap copy = new ORoaringBitmap(size);
+    for (int i = 0; i < size; i++)
+      copy.append(highBits[i], containers[i].copy());
+
+    return copy;
+  }
+
+  /**
+   * @return Values in ascending order.
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  public int getSerializedSize() {
+    int serializedSize = 4;
+    for (int i = 0; i < size; i++)
+      serializedSize += 12 + containers[i].getSerializedSize();
+
+    return serializedSize;
+  }
+
+  /**
+   * Writes bitmap to the stream starting from given offset, stream should have at least {@link #getSerializedSize()} free bytes.
+   *
+   * @return Position next to the last written byte.
+   */
+  public int toStream(final byte[] stream, final int offset) {
+    int position = offset;
+
+    writeInt(stream, position, size);
+    position += 4;
+
+    for (int i = 0; i < size; i++) {
+      writeLong(stream, position, highBits[i]);
+      position += 8;
+
+      writeInt(stream, position, containers[i].cardinality());
+      position += 4;
+
+      position = containers[i].toStream(stream, position);
+    }
+
+    return position;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o)
+      return true;
+    if (!(o instanceof ORoaringBitmap))
+      return false;
+
+    final ORoaringBitmap other = (ORoaringBitmap) o;
+    if (size != other.size)
+      return false;
+
+    for (int i = 0; i < size; i++) {
+      if (highBits[i] != other.highBits[i] || containers[i].cardinality() != other.containers[i].cardinality())
+        return false;
+
+      if (containers[i].andNot(other.containers[i]).cardinality() > 0)
+        return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 0;
+    final Cursor cursor = cursor();
+    while (cursor.hasNext()) {
+      final long value = cursor.next();
+      result = 31 * result + (int) (value ^ (value >>> 32));
+    }
+
+    return result;
+  }
+
+  private void append(final long high, final Container container) {
+    insert(size, high, container);
+  }
+
+  private void insert(final int index, final long high, final Container container) {
+    if (size == highBits.length) {
+      final int newCapacity = size << 1;
+      highBits = Arrays.copyOf(highBits, newCapacity);
+      containers = Arrays.copyOf(containers, newCapacity);
+    }
+
+    System.arraycopy(highBits, index, highBits, index + 1, size - index);
+    System.arraycopy(containers, index, containers, index + 1, size - index);
+
+    highBits[index] = high;
+    containers[index] = container;
+    size++;
+  }
+
+  private static int readInt(final byte[] stream, final int offset) {
+    return ((stream[offset] & 0xFF) << 24) | ((stream[offset + 1] & 0xFF) << 16) | ((stream[offset + 2] & 0xFF) << 8)
+        | (stream[offset + 3] & 0xFF);
+  }
+
+  private static void writeInt(final byte[] stream, final int offset, final int value) {
+    stream[offset] = (byte) (value >>> 24);
+    stream[offset + 1] = (byte) (value >>> 16);
+    stream[offset + 2] = (byte) (value >>> 8);
+    stream[offset + 3] = (byte) value;
+  }
+
+  private static long readLong(final byte[] stream, final int offset) {
+    return ((long) readInt(stream, offset) << 32) | (readInt(stream, offset + 4) & 0xFFFFFFFFL);
+  }
+
+  private static void writeLong(final byte[] stream, final int offset, final long value) {
+    writeInt(stream, offset, (int) (value >>> 32));
+    writeInt(stream, offset + 4, (int) value);
+  }
+
+  /**
+   * Iterates over values of bitmap in ascending order.
+   */
+  public final class Cursor {
+    private int  chunk    = 0;
+    private int  lowValue = -1;
+    private long next     = -1;
+
+    private Cursor() {
+      fetchNext();
+    }
+
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    public long next() {
+      if (next < 0)
+        throw new NoSuchElementException();
+
+      final long result = next;
+      fetchNext();
+      return result;
+    }
+
+    private void fetchNext() {
+      while (chunk < size) {
+        lowValue = containers[chunk].nextValue(lowValue + 1);
+        if (lowValue >= 0) {
+          next = (highBits[chunk] << 16) | lowValue;
+          return;
+        }
+
+        chunk++;
+        lowValue = -1;
+      }
+
+      next = -1;
+    }
+  }
+
+  private abstract static class Container {
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    /**
+     * @return Container which contains passed in value, may be the same container or new one.
+     */
+    abstract Container add(char value);
+
+    abstract Container remove(char value);
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container andNot(Container other);
+
+    abstract Container copy();
+
+    /**
+     * @return The smallest value which is equal or greater than passed in one or -1 if there is no such value.
+     */
+    abstract int nextValue(int from);
+
+    abstract int getSerializedSize();
+
+    abstract int toStream(byte[] stream, int offset);
+  }
+
+  private static final class ArrayContainer extends Container {
+    private char[] values;
+    private int    cardinality;
+
+    private ArrayContainer() {
+      values = new char[INITIAL_CAPACITY];
+    }
+
+    private ArrayContainer(final char[] values, final int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(final char value) {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    Container add(final char value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0)
+        return this;
+
+      if (cardinality == ARRAY_CONTAINER_MAX_SIZE)
+        return toBitmapContainer().add(value);
+
+      index = -index - 1;
+      if (cardinality == values.length)
+        values = Arrays.copyOf(values, Math.min(cardinality << 1, ARRAY_CONTAINER_MAX_SIZE));
+
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(final char value) {
+      final int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index < 0)
+        return this;
+
+      System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+      cardinality--;
+      return this;
+    }
+
+    @Override
+    Container and(final Container other) {
+      final char[] result = new char[Math.max(Math.min(cardinality, other.cardinality()), 1)];
+      int resultSize = 0;
+
+      if (other instanceof ArrayContainer) {
+        final ArrayContainer otherArray = (ArrayContainer) other;
+
+        int i = 0;
+        int j = 0;
+        while (i < cardinality && j < otherArray.cardinality) {
+          if (values[i] < otherArray.values[j])
+            i++;
+          else if (values[i] > otherArray.values[j])
+            j++;
+          else {
+            result[resultSize++] = values[i];
+            i++;
+            j++;
+          }
+        }
+      } else {
+        for (int i = 0; i < cardinality; i++)
+          if (other.contains(values[i]))
+            result[resultSize++] = values[i];
+      }
+
+      return new ArrayContainer(result, resultSize);
+    }
+
+    @Override
+    Container or(final Container other) {
+      if (other instanceof BitmapContainer)
+        return other.or(this);
+
+      final ArrayContainer otherArray = (ArrayContainer) other;
+      if (cardinality + otherArray.cardinality > ARRAY_CONTAINER_MAX_SIZE) {
+        final BitmapContainer result = toBitmapContainer();
+        for (int j = 0; j < otherArray.cardinality; j++)
+          result.add(otherArray.values[j]);
+
+        // VALUES MAY OVERLAP, SO UNION STILL CAN FIT IN ARRAY
+        return result.normalize();
+      }
+
+      final char[] result = new char[Math.max(cardinality + otherArray.cardinality, 1)];
+      int resultSize = 0;
+
+      int i = 0;
+      int j = 0;
+      while (i < cardinality || j < otherArray.cardinality) {
+        if (j >= otherArray.cardinality || (i < cardinality && values[i] < otherArray.values[j]))
+          result[resultSize++] = values[i++];
+        else if (i >= cardinality || values[i] > otherArray.values[j])
+          result[resultSize++] = otherArray.values[j++];
+        else {
+          result[resultSize++] = values[i];
+          i++;
+          j++;
+        }
+      }
+
+      return new ArrayContainer(result, resultSize);
+    }
+
+    @Override
+    Container andNot(final Container other) {
+      final char[] result = new char[Math.max(cardinality, 1)];
+      int resultSize = 0;
+
+      for (int i = 0; i < cardinality; i++)
+        if (!other.contains(values[i]))
+          result[resultSize++] = values[i];
+
+      return new ArrayContainer(result, resultSize);
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+    }
+
+    @Override
+    int nextValue(final int from) {
+      if (from > Character.MAX_VALUE)
+        return -1;
+
+      int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+      if (index < 0)
+        index = -index - 1;
+
+      return index < cardinality ? values[index] : -1;
+    }
+
+    @Override
+    int getSerializedSize() {
+      return cardinality * 2;
+    }
+
+    @Override
+    int toStream(final byte[] stream, final int offset) {
+      int position = offset;
+      for (int i = 0; i < cardinality; i++) {
+        stream[position] = (byte) (values[i] >>> 8);
+        stream[position + 1] = (byte) values[i];
+        position += 2;
+      }
+
+      return position;
+    }
+
+    private BitmapContainer toBitmapContainer() {
+      final long[] words = new long[BITMAP_WORDS];
+      for (int i = 0; i < cardinality; i++)
+        words[values[i] >>> 6] |= 1L << values[i];
+
+      return new BitmapContainer(words, cardinality);
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private final long[] words;
+    private int          cardinality;
+
+    private BitmapContainer(final long[] words, final int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    private static Container create(final long[] words) {
+      int cardinality = 0;
+      for (long word : words)
+        cardinality += Long.bitCount(word);
+
+      return new BitmapContainer(words, cardinality).normalize();
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(final char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(final char value) {
+      final long word = words[value >>> 6];
+      final long newWord = word | (1L << value);
+      if (word != newWord) {
+        words[value >>> 6] = newWord;
+        cardinality++;
+      }
+
+      return this;
+    }
+
+    @Override
+    Container remove(final char value) {
+      final long word = words[value >>> 6];
+      final long newWord = word & ~(1L << value);
+      if (word != newWord) {
+        words[value >>> 6] = newWord;
+        cardinality--;
+      }
+
+      return normalize();
+    }
+
+    @Override
+    Container and(final Container other) {
+      if (other instanceof ArrayContainer)
+        return other.and(this);
+
+      final long[] otherWords = ((BitmapContainer) other).words;
+      final long[] result = new long[BITMAP_WORDS];
+      for (int i = 0; i < BITMAP_WORDS; i++)
+        result[i] = words[i] & otherWords[i];
+
+      return create(result);
+    }
+
+    @Override
+    Container or(final Container other) {
+      final long[] result = words.clone();
+
+      if (other instanceof ArrayContainer) {
+        final ArrayContainer otherArray = (ArrayContainer) other;
+        for (int i = 0; i < otherArray.cardinality; i++)
+          result[otherArray.values[i] >>> 6] |= 1L << otherArray.values[i];
+      } else {
+        final long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++)
+          result[i] |= otherWords[i];
+      }
+
+      return create(result);
+    }
+
+    @Override
+    Container andNot(final Container other) {
+      final long[] result = words.clone();
+
+      if (other instanceof ArrayContainer) {
+        final ArrayContainer otherArray = (ArrayContainer) other;
+        for (int i = 0; i < otherArray.cardinality; i++)
+          result[otherArray.values[i] >>> 6] &= ~(1L << otherArray.values[i]);
+      } else {
+        final long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++)
+          result[i] &= ~otherWords[i];
+      }
+
+      return create(result);
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int nextValue(final int from) {
+      int wordIndex = from >>> 6;
+      if (wordIndex >= BITMAP_WORDS)
+        return -1;
+
+      long word = words[wordIndex] & (-1L << from);
+      while (true) {
+        if (word != 0)
+          return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+
+        wordIndex++;
+        if (wordIndex == BITMAP_WORDS)
+          return -1;
+
+        word = words[wordIndex];
+      }
+    }
+
+    @Override
+    int getSerializedSize() {
+      return BITMAP_WORDS * 8;
+    }
+
+    @Override
+    int toStream(final byte[] stream, final int offset) {
+      int position = offset;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        writeLong(stream, position, words[i]);
+        position += 8;
+      }
+
+      return position;
+    }
+
+    private Container normalize() {
+      if (cardinality > ARRAY_CONTAINER_MAX_SIZE)
+        return this;
+
+      final char[] values = new char[Math.max(cardinality, 1)];
+      int index = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        long word = words[i];
+        while (word != 0) {
+          values[index++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+
+      return new ArrayContainer(values, cardinality);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Scalable Bloom filter over 64 bit hash codes of keys. Answers whether a key is definitely absent or may be present.
+ *
+ * Filter consists of layers, keys are added to the last layer and lookups check all of them. When the last layer contains as many
+ * keys as it was sized for, new layer twice bigger is added with halved false positive rate, so total false positive rate stays
+ * below the configured one no matter how many keys are added. Every layer uses double hashing: i-th bit of key is
+ * <code>h1 + i * h2</code>, where h1 is the key hash code and h2 is the hash code mixed once more.
+ *
+ * Keys can not be removed, so removal of keys from index only increases false positive rate until the filter is cleared.
+ *
+ * Additions are serialized, lookups are not blocked by them.
+ */
+public class OBloomFilter {
+  private static final int  VERSION = 1;
+
+  private final int         initialCapacity;
+  private final double      falsePositiveRate;
+
+  private volatile Layer[]  layers;
+
+  public OBloomFilter(final int initialCapacity, final double falsePositiveRate) {
+    if (initialCapacity <= 0)
+      throw new IllegalArgumentException("Capacity of Bloom filter should be positive");
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+      throw new IllegalArgumentException("False positive rate of Bloom filter should be between 0 and 1");
+
+    this.initialCapacity = initialCapacity;
+    this.falsePositiveRate = falsePositiveRate;
+
+    clear();
+  }
+
+  /**
+   * Restores filter written by {@link #toStream(DataOutput)}.
+   */
+  public static OBloomFilter fromStream(final DataInput input) throws IOException {
+    final int version = input.readInt();
+    if (version != VERSION)
+      throw new IOException("Unsupported version of Bloom filter " + version);
+
+    final OBloomFilter filter = new OBloomFilter(input.readInt(), input.readDouble());
+
+    final Layer[] layers = new Layer[input.readInt()];
+    for (int i = 0; i < layers.length; i++) {
+      final int capacity = input.readInt();
+      final int keys = input.readInt();
+      final int hashes = input.readInt();
+      final long[] words = new long[input.readInt()];
+      for (int n = 0; n < words.length; n++)
+        words[n] = input.readLong();
+
+      layers[i] = new Layer(capacity, hashes, words, keys);
+    }
+
+    filter.layers = layers;
+    return filter;
+  }
+
+  public synchronized void add(final long hashCode) {
+    Layer layer = layers[layers.length - 1];
+
+    if (layer.keys >= layer.capacity) {
+      final Layer[] newLayers = Arrays.copyOf(layers, layers.length + 1);
+      layer = new Layer((int) Math.min(layer.capacity * 2L, Integer.MAX_VALUE / 64), falsePositiveRate
+          / Math.pow(2, layers.length + 1));
+      newLayers[layers.length] = layer;
+      layers = newLayers;
+    }
+
+    layer.add(hashCode);
+  }
+
+  /**
+   * @return false if key with given hash code was never added to the filter, true if it may be added.
+   */
+  public boolean mightContain(final long hashCode) {
+    for (Layer layer : layers)
+      if (layer.mightContain(hashCode))
+        return true;
+
+    return false;
+  }
+
+  public synchronized void clear() {
+    layers = new Layer[] { new Layer(initialCapacity, falsePositiveRate / 2) };
+  }
+
+  /**
+   * @return Amount of additions since creation or last {@link #clear()}, every addition of the same key is counted.
+   */
+  public long getAddedKeys() {
+    long keys = 0;
+    for (Layer layer : layers)
+      keys += layer.keys;
+
+    return keys;
+  }
+
+  /**
+   * @return Size of bit sets of all layers in bytes.
+   */
+  public long getSizeInBytes() {
+    long size = 0;
+    for (Layer layer : layers)
+      size += layer.words.length * 8L;
+
+    return size;
+  }
+
+  public synchronized void toStream(final DataOutput output) throws IOException {
+    output.writeInt(VERSION);
+    output.writeInt(initialCapacity);
+    output.writeDouble(falsePositiveRate);
+
+    output.writeInt(layers.length);
+    for (Layer layer : layers) {
+      output.writeInt(layer.capacity);
+      output.writeInt(layer.keys);
+      output.writeInt(layer.hashes);
+      output.writeInt(layer.words.length);
+      for (long word : layer.words)
+        output.writeLong(word);
+    }
+  }
+
+  private static final class Layer {
+    private final int    capacity;
+    private final int    hashes;
+    private final long[] words;
+    private final long   bits;
+    private volatile int keys;
+
+    private Layer(final int capacity, final double falsePositiveRate) {
+      this.capacity = capacity;
+
+      // OPTIMAL SIZE AND AMOUNT OF HASH FUNCTIONS FOR GIVEN CAPACITY AND FALSE POSITIVE RATE
+      final long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      this.words = new long[(int) Math.min((optimalBits + 63) >>> 6, Integer.MAX_VALUE)];
+      this.bits = words.length * 64L;
+      this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+    }
+
+    private Layer(final int capacity, final int hashes, final long[] words, final int keys) {
+      this.capacity = capacity;
+      this.hashes = hashes;
+      this.words = words;
+      this.bits = words.length * 64L;
+      this.keys = keys;
+    }
+
+    private void add(final long hashCode) {
+      final long hashTwo = secondHash(hashCode);
+
+      for (int i = 0; i < hashes; i++) {
+        final long bit = bitIndex(hashCode, hashTwo, i);
+        words[(int) (bit >>> 6)] |= 1L << bit;
+      }
+
+      keys++;
+    }
+
+    private boolean mightContain(final long hashCode) {
+      final long hashTwo = secondHash(hashCode);
+
+      for (int i = 0; i < hashes; i++) {
+        final long bit = bitIndex(hashCode, hashTwo, i);
+        if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0)
+          return false;
+      }
+
+      return true;
+    }
+
+    private long bitIndex(final long hashOne, final long hashTwo, final int i) {
+      final long combinedHash = hashOne + i * hashTwo;
+      return (combinedHash >>> 1) % bits;
+    }
+
+    private static long secondHash(final long hashCode) {
+      // MIXER OF MURMUR3 FINALIZATION STEP, RESULT IS ODD SO ALL THE PROBES OF KEY ARE DIFFERENT
+      long hash = hashCode;
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      hash *= 0xc4ceb9fe1a85ec53L;
+      hash ^= hash >>> 33;
+      return hash | 1;
+    }
+  }
+}
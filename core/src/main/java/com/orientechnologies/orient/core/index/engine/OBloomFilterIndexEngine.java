@@ -0,0 +1,578 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.hash.OMurmurHash3;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OBulkLoadIndexEngine;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexEngine;
+import com.orientechnologies.orient.core.index.OIndexKeyCursor;
+import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+/**
+ * Index engine which keeps {@link OBloomFilter} of keys in front of other engine, so {@link #get(Object)}, {@link #contains(Object)}
+ * and {@link #getAll(Collection)} of absent keys do not load pages of the underlying SBTree or hash table. That makes uniqueness
+ * checks and lookups of new keys by upserts cheap.
+ *
+ * Filter is saved in file with {@link #FILE_EXTENSION} extension near index files on flush and close. The file is deleted on the
+ * first change of keys after it was saved, so after crash filter is missed and is rebuilt from index keys on load, it is never used
+ * stale. Removal of keys does not change the filter, it only increases false positive rate until the index is rebuilt.
+ *
+ * Keys are hashed in their binary form, so the filter is used only if key serializer is known from index definition, manual indexes
+ * without definition are passed through as is.
+ *
+ * Skipped lookups and false positives are registered in profiler as <code>index.&lt;name&gt;.bloomFilter.*</code> metrics of
+ * database.
+ */
+public class OBloomFilterIndexEngine<V> implements OBulkLoadIndexEngine<V> {
+  public static final String        FILE_EXTENSION      = ".bfl";
+  public static final String        CONFIG_BLOOM_FILTER = "bloomFilter";
+
+  private static final int          HASH_SEED           = 362498820;
+  private static final int          REBUILD_PREFETCH    = 1000;
+
+  private final OIndexEngine<V>     delegate;
+
+  private volatile OBloomFilter     filter;
+  private OBinarySerializer<Object> keySerializer;
+  private OType[]                   keyTypes;
+
+  private String                    indexName;
+  private String                    profilerPrefix;
+  private File                      filterFile;
+  private volatile boolean          persisted;
+
+  private final AtomicLong          skippedLookups      = new AtomicLong();
+  private final AtomicLong          falsePositives      = new AtomicLong();
+
+  public OBloomFilterIndexEngine(final OIndexEngine<V> delegate) {
+    this.delegate = delegate;
+  }
+
+  public static boolean useBloomFilter(final ODocument metadata) {
+    if (metadata != null && metadata.containsField(CONFIG_BLOOM_FILTER))
+      return Boolean.TRUE.equals(metadata.field(CONFIG_BLOOM_FILTER));
+
+    return OGlobalConfiguration.INDEX_BLOOM_FILTER.getValueAsBoolean();
+  }
+
+  /**
+   * @return Engine wrapped by Bloom filter if it is enabled for index with given metadata, otherwise the engine itself.
+   */
+  public static <V> OIndexEngine<V> wrap(final OIndexEngine<V> engine, final ODocument metadata) {
+    if (useBloomFilter(metadata))
+      return new OBloomFilterIndexEngine<V>(engine);
+
+    return engine;
+  }
+
+  @Override
+  public void init() {
+    delegate.init();
+  }
+
+  @Override
+  public void flush() {
+    delegate.flush();
+    saveFilter();
+  }
+
+  @Override
+  public void create(String indexName, OIndexDefinition indexDefinition, String clusterIndexName,
+      OStreamSerializer valueSerializer, boolean isAutomatic) {
+    delegate.create(indexName, indexDefinition, clusterIndexName, valueSerializer, isAutomatic);
+
+    initFilter(indexName, indexDefinition);
+  }
+
+  @Override
+  public void delete() {
+    delegate.delete();
+
+    unregisterHooks();
+    deleteFilterFile(filterFile);
+  }
+
+  @Override
+  public void deleteWithoutLoad(String indexName) {
+    delegate.deleteWithoutLoad(indexName);
+
+    deleteFilterFile(getFilterFile(indexName));
+  }
+
+  @Override
+  public void load(ORID indexRid, String indexName, OIndexDefinition indexDefinition, OStreamSerializer valueSerializer,
+      boolean isAutomatic) {
+    delegate.load(indexRid, indexName, indexDefinition, valueSerializer, isAutomatic);
+
+    initFilter(indexName, indexDefinition);
+    if (filter != null && !loadFilter())
+      rebuildFilter();
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    if (isDefinitelyAbsent(key))
+      return false;
+
+    final boolean result = delegate.contains(key);
+    if (!result && key != null && filter != null)
+      falsePositives.incrementAndGet();
+
+    return result;
+  }
+
+  @Override
+  public boolean remove(Object key) {
+    return delegate.remove(key);
+  }
+
+  @Override
+  public ORID getIdentity() {
+    return delegate.getIdentity();
+  }
+
+  @Override
+  public void clear() {
+    beforeKeysChange();
+
+    delegate.clear();
+
+    final OBloomFilter f = filter;
+    if (f != null)
+      f.clear();
+  }
+
+  @Override
+  public void unload() {
+    delegate.unload();
+  }
+
+  @Override
+  public void startTransaction() {
+    delegate.startTransaction();
+  }
+
+  @Override
+  public void stopTransaction() {
+    delegate.stopTransaction();
+  }
+
+  @Override
+  public void afterTxRollback() {
+    delegate.afterTxRollback();
+  }
+
+  @Override
+  public void afterTxCommit() {
+    delegate.afterTxCommit();
+  }
+
+  @Override
+  public void closeDb() {
+    delegate.closeDb();
+  }
+
+  @Override
+  public void close() {
+    saveFilter();
+    unregisterHooks();
+
+    delegate.close();
+  }
+
+  @Override
+  public void beforeTxBegin() {
+    delegate.beforeTxBegin();
+  }
+
+  @Override
+  public V get(Object key) {
+    if (isDefinitelyAbsent(key))
+      return null;
+
+    final V result = delegate.get(key);
+    if (result == null && key != null && filter != null)
+      falsePositives.incrementAndGet();
+
+    return result;
+  }
+
+  @Override
+  public Map<Object, V> getAll(Collection<?> keys) {
+    final List<Object> candidates = new ArrayList<Object>(keys.size());
+    for (Object key : keys)
+      if (!isDefinitelyAbsent(key))
+        candidates.add(key);
+
+    if (candidates.isEmpty())
+      return Collections.emptyMap();
+
+    final Map<Object, V> result = delegate.getAll(candidates);
+    if (filter != null)
+      falsePositives.addAndGet(candidates.size() - result.size());
+
+    return result;
+  }
+
+  @Override
+  public void put(Object key, V value) {
+    addKey(key);
+    delegate.put(key, value);
+  }
+
+  @Override
+  public Object getFirstKey() {
+    return delegate.getFirstKey();
+  }
+
+  @Override
+  public Object getLastKey() {
+    return delegate.getLastKey();
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
+      boolean ascSortOrder, ValuesTransformer<V> transformer) {
+    return delegate.iterateEntriesBetween(rangeFrom, fromInclusive, rangeTo, toInclusive, ascSortOrder, transformer);
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMajor(Object fromKey, boolean isInclusive, boolean ascSortOrder,
+      ValuesTransformer<V> transformer) {
+    return delegate.iterateEntriesMajor(fromKey, isInclusive, ascSortOrder, transformer);
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMinor(Object toKey, boolean isInclusive, boolean ascSortOrder,
+      ValuesTransformer<V> transformer) {
+    return delegate.iterateEntriesMinor(toKey, isInclusive, ascSortOrder, transformer);
+  }
+
+  @Override
+  public OIndexCursor cursor(ValuesTransformer<V> valuesTransformer) {
+    return delegate.cursor(valuesTransformer);
+  }
+
+  @Override
+  public OIndexKeyCursor keyCursor() {
+    return delegate.keyCursor();
+  }
+
+  @Override
+  public long size(ValuesTransformer<V> transformer) {
+    return delegate.size(transformer);
+  }
+
+  @Override
+  public boolean hasRangeQuerySupport() {
+    return delegate.hasRangeQuerySupport();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean hasBulkLoadSupport() {
+    return delegate instanceof OBulkLoadIndexEngine && ((OBulkLoadIndexEngine<V>) delegate).hasBulkLoadSupport();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void bulkLoad(final Iterator<Map.Entry<Object, V>> sortedEntries) {
+    beforeKeysChange();
+
+    ((OBulkLoadIndexEngine<V>) delegate).bulkLoad(new Iterator<Map.Entry<Object, V>>() {
+      public boolean hasNext() {
+        return sortedEntries.hasNext();
+      }
+
+      public Map.Entry<Object, V> next() {
+        final Map.Entry<Object, V> entry = sortedEntries.next();
+        addKey(entry.getKey());
+        return entry;
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    });
+  }
+
+  public OIndexEngine<V> getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * @return Filter of keys or null if keys of index can not be hashed.
+   */
+  public OBloomFilter getFilter() {
+    return filter;
+  }
+
+  /**
+   * @return Amount of lookups of absent keys which were answered by filter.
+   */
+  public long getSkippedLookups() {
+    return skippedLookups.get();
+  }
+
+  /**
+   * @return Amount of lookups which were passed by filter but key was absent in index.
+   */
+  public long getFalsePositives() {
+    return falsePositives.get();
+  }
+
+  /**
+   * @return Share of lookups of absent keys which were not answered by filter.
+   */
+  public double getFalsePositiveRate() {
+    final long falsePositivesCount = falsePositives.get();
+    final long negatives = falsePositivesCount + skippedLookups.get();
+    return negatives == 0 ? 0 : (double) falsePositivesCount / negatives;
+  }
+
+  private boolean isDefinitelyAbsent(final Object key) {
+    final OBloomFilter f = filter;
+    if (f == null || key == null)
+      return false;
+
+    if (f.mightContain(hashCode(key)))
+      return false;
+
+    skippedLookups.incrementAndGet();
+    return true;
+  }
+
+  private void addKey(final Object key) {
+    final OBloomFilter f = filter;
+    if (f == null || key == null)
+      return;
+
+    beforeKeysChange();
+    f.add(hashCode(key));
+  }
+
+  private long hashCode(final Object key) {
+    final Object preprocessedKey = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+    final byte[] serializedKey = new byte[keySerializer.getObjectSize(preprocessedKey, (Object[]) keyTypes)];
+    keySerializer.serializeNative(preprocessedKey, serializedKey, 0, (Object[]) keyTypes);
+
+    return OMurmurHash3.murmurHash3_x64_64(serializedKey, HASH_SEED);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void initFilter(final String indexName, final OIndexDefinition indexDefinition) {
+    this.indexName = indexName;
+
+    if (indexDefinition == null) {
+      // KEYS OF MANUAL INDEXES CAN'T BE SERIALIZED IN THE SAME WAY DURING ALL THE LIFE OF THE INDEX
+      filter = null;
+      return;
+    }
+
+    if (indexDefinition instanceof ORuntimeKeyIndexDefinition)
+      keySerializer = ((ORuntimeKeyIndexDefinition) indexDefinition).getSerializer();
+    else if (indexDefinition.getTypes().length > 1)
+      keySerializer = (OBinarySerializer<Object>) (OBinarySerializer<?>) OCompositeKeySerializer.INSTANCE;
+    else
+      keySerializer = OBinarySerializerFactory.getInstance().getObjectSerializer(indexDefinition.getTypes()[0]);
+
+    keyTypes = indexDefinition.getTypes();
+
+    filter = new OBloomFilter(OGlobalConfiguration.INDEX_BLOOM_FILTER_INITIAL_CAPACITY.getValueAsInteger(),
+        OGlobalConfiguration.INDEX_BLOOM_FILTER_FALSE_POSITIVE_RATE.getValueAsFloat());
+    persisted = false;
+    filterFile = getFilterFile(indexName);
+
+    registerHooks();
+  }
+
+  /**
+   * Deletes saved filter before the first change of keys, so filter file is never older than index after crash.
+   */
+  private void beforeKeysChange() {
+    if (persisted) {
+      synchronized (this) {
+        if (persisted) {
+          deleteFilterFile(filterFile);
+          persisted = false;
+        }
+      }
+    }
+  }
+
+  private synchronized void saveFilter() {
+    final OBloomFilter f = filter;
+    if (f == null || filterFile == null || persisted)
+      return;
+
+    final File tmpFile = new File(filterFile.getPath() + ".tmp");
+    try {
+      final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      try {
+        f.toStream(output);
+      } finally {
+        output.close();
+      }
+
+      if (filterFile.exists() && !filterFile.delete())
+        throw new IOException("Can not delete file " + filterFile);
+
+      if (!tmpFile.renameTo(filterFile))
+        throw new IOException("Can not rename file " + tmpFile + " to " + filterFile);
+
+      persisted = true;
+    } catch (IOException e) {
+      OLogManager.instance().error(this, "Error on saving of Bloom filter of index %s, it will be rebuilt on next load", e,
+          indexName);
+      tmpFile.delete();
+    }
+  }
+
+  private boolean loadFilter() {
+    if (filterFile == null || !filterFile.exists())
+      return false;
+
+    try {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(filterFile)));
+      try {
+        filter = OBloomFilter.fromStream(input);
+      } finally {
+        input.close();
+      }
+
+      persisted = true;
+      return true;
+    } catch (IOException e) {
+      OLogManager.instance().warn(this, "Error on loading of Bloom filter of index %s, filter will be rebuilt", e, indexName);
+      return false;
+    }
+  }
+
+  private void rebuildFilter() {
+    OLogManager.instance().debug(this, "Rebuilding Bloom filter of index %s", indexName);
+
+    final OBloomFilter f = filter;
+    f.clear();
+
+    final OIndexKeyCursor cursor = delegate.keyCursor();
+    Object key = cursor.next(REBUILD_PREFETCH);
+    while (key != null) {
+      f.add(hashCode(key));
+      key = cursor.next(REBUILD_PREFETCH);
+    }
+  }
+
+  private static File getFilterFile(final String indexName) {
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (database == null || !(database.getStorage().getUnderlying() instanceof OStorageLocalAbstract))
+      return null;
+
+    final String storagePath = ((OStorageLocalAbstract) database.getStorage().getUnderlying()).getStoragePath();
+    return new File(storagePath, indexName + FILE_EXTENSION);
+  }
+
+  private static void deleteFilterFile(final File file) {
+    if (file != null && file.exists() && !file.delete())
+      OLogManager.instance().warn(OBloomFilterIndexEngine.class, "Can not delete Bloom filter file %s", file);
+  }
+
+  private void registerHooks() {
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (database == null)
+      return;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profilerPrefix = profiler.getDatabaseMetric(database.getName(), "index." + indexName + ".bloomFilter.");
+    final String profilerMetadataPrefix = "db.*.index.*.bloomFilter.";
+
+    profiler.registerHookValue(profilerPrefix + "skippedLookups",
+        "Lookups of absent keys answered by Bloom filter without loading of index pages", OProfiler.METRIC_TYPE.COUNTER,
+        new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getSkippedLookups();
+          }
+        }, profilerMetadataPrefix + "skippedLookups");
+
+    profiler.registerHookValue(profilerPrefix + "falsePositives", "Lookups passed by Bloom filter for keys absent in index",
+        OProfiler.METRIC_TYPE.COUNTER, new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getFalsePositives();
+          }
+        }, profilerMetadataPrefix + "falsePositives");
+
+    profiler.registerHookValue(profilerPrefix + "falsePositiveRate",
+        "Share of lookups of absent keys which were not answered by Bloom filter", OProfiler.METRIC_TYPE.STAT,
+        new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getFalsePositiveRate();
+          }
+        }, profilerMetadataPrefix + "falsePositiveRate");
+
+    profiler.registerHookValue(profilerPrefix + "size", "Size of Bloom filter in bytes", OProfiler.METRIC_TYPE.SIZE,
+        new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            final OBloomFilter f = filter;
+            return f != null ? f.getSizeInBytes() : 0;
+          }
+        }, profilerMetadataPrefix + "size");
+  }
+
+  private void unregisterHooks() {
+    if (profilerPrefix == null)
+      return;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.unregisterHookValue(profilerPrefix + "skippedLookups");
+    profiler.unregisterHookValue(profilerPrefix + "falsePositives");
+    profiler.unregisterHookValue(profilerPrefix + "falsePositiveRate");
+    profiler.unregisterHookValue(profilerPrefix + "size");
+    profilerPrefix = null;
+  }
+}
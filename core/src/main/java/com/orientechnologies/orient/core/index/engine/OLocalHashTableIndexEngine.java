@@ -148,6 +148,11 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
     return hashTable.get(key);
   }
 
+  @Override
+  public Map<Object, V> getAll(Collection<?> keys) {
+    return hashTable.getAll(keys);
+  }
+
   @Override
   public void put(Object key, V value) {
     hashTable.put(key, value);
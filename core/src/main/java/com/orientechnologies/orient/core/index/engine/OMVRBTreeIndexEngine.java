@@ -15,7 +15,9 @@
  */
 package com.orientechnologies.orient.core.index.engine;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -365,6 +367,23 @@ public final class OMVRBTreeIndexEngine<V> extends OSharedResourceAdaptiveExtern
     }
   }
 
+  @Override
+  public Map<Object, V> getAll(Collection<?> keys) {
+    acquireExclusiveLock();
+    try {
+      final Map<Object, V> result = new HashMap<Object, V>();
+      for (Object key : keys) {
+        final V value = map.get(key);
+        if (value != null)
+          result.put(key, value);
+      }
+
+      return result;
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
   @Override
   public void put(Object key, V value) {
     acquireExclusiveLock();
@@ -15,7 +15,9 @@
  */
 package com.orientechnologies.orient.core.index.engine;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -198,6 +200,18 @@ public class OMemoryHashMapIndexEngine<V> implements OIndexEngine<V> {
     return concurrentHashMap.get(key);
   }
 
+  @Override
+  public Map<Object, V> getAll(Collection<?> keys) {
+    final Map<Object, V> result = new HashMap<Object, V>();
+    for (Object key : keys) {
+      final V value = concurrentHashMap.get(key);
+      if (value != null)
+        result.put(key, value);
+    }
+
+    return result;
+  }
+
   @Override
   public void put(Object key, V value) {
     concurrentHashMap.put(key, value);
@@ -15,6 +15,8 @@
  */
 package com.orientechnologies.orient.core.index.engine;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -109,6 +111,11 @@ public class ORemoteIndexEngine implements OIndexEngine {
     return null;
   }
 
+  @Override
+  public Map getAll(Collection keys) {
+    return Collections.emptyMap();
+  }
+
   @Override
   public void put(Object key, Object value) {
   }
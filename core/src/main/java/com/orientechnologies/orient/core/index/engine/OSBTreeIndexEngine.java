@@ -23,6 +23,7 @@ import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OBulkLoadIndexEngine;
 import com.orientechnologies.orient.core.index.OIndexAbstractCursor;
 import com.orientechnologies.orient.core.index.OIndexCursor;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
@@ -38,6 +39,7 @@ import com.orientechnologies.orient.core.serialization.serializer.binary.impl.in
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -45,7 +47,7 @@ import java.util.Map;
  * @author Andrey Lomakin
  * @since 8/30/13
  */
-public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal implements OIndexEngine<V> {
+public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal implements OBulkLoadIndexEngine<V> {
   public static final String DATA_FILE_EXTENSION        = ".sbt";
   public static final String NULL_BUCKET_FILE_EXTENSION = ".nbt";
 
@@ -255,6 +257,16 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     }
   }
 
+  @Override
+  public Map<Object, V> getAll(Collection<?> keys) {
+    acquireSharedLock();
+    try {
+      return sbTree.getAll(keys);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   @Override
   public OIndexCursor cursor(ValuesTransformer<V> valuesTransformer) {
     acquireSharedLock();
@@ -390,6 +402,21 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     return true;
   }
 
+  @Override
+  public boolean hasBulkLoadSupport() {
+    return true;
+  }
+
+  @Override
+  public void bulkLoad(Iterator<Map.Entry<Object, V>> sortedEntries) {
+    acquireExclusiveLock();
+    try {
+      sbTree.bulkLoad(sortedEntries, OGlobalConfiguration.INDEX_BULK_LOAD_FILL_FACTOR.getValueAsFloat());
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
   private ODatabaseRecord getDatabase() {
     return ODatabaseRecordThreadLocal.INSTANCE.get();
   }
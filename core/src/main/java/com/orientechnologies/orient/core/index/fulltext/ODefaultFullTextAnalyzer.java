@@ -0,0 +1,165 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+
+/**
+ * Default analyzer of full-text index. Splits text on words by separator characters, removes ignored characters, stop words and
+ * words shorter than minimal length. If "indexRadix" is set every leading part of word which is not shorter than minimal length is
+ * indexed too.
+ * 
+ * @author Luca Garulli
+ */
+public class ODefaultFullTextAnalyzer implements OFullTextAnalyzer {
+  public static final String   CONFIG_STOP_WORDS      = "stopWords";
+  public static final String   CONFIG_SEPARATOR_CHARS = "separatorChars";
+  public static final String   CONFIG_IGNORE_CHARS    = "ignoreChars";
+  public static final String   CONFIG_INDEX_RADIX     = "indexRadix";
+  public static final String   CONFIG_MIN_WORD_LEN    = "minWordLength";
+
+  private static final boolean DEF_INDEX_RADIX        = true;
+  private static final String  DEF_SEPARATOR_CHARS    = " \r\n\t:;,.|+*/\\=!?[]()";
+  private static final String  DEF_IGNORE_CHARS       = "'\"";
+  private static final String  DEF_STOP_WORDS         = "the in a at as and or for his her " + "him this that what which while "
+                                                          + "up with be was were is";
+  private static final int     DEF_MIN_WORD_LENGTH    = 3;
+
+  private boolean              indexRadix             = DEF_INDEX_RADIX;
+  private String               separatorChars         = DEF_SEPARATOR_CHARS;
+  private String               ignoreChars            = DEF_IGNORE_CHARS;
+  private int                  minWordLength          = DEF_MIN_WORD_LENGTH;
+  private Set<String>          stopWords              = new HashSet<String>(OStringSerializerHelper.split(DEF_STOP_WORDS, ' '));
+
+  @SuppressWarnings("unchecked")
+  public void configure(final ODocument metadata) {
+    if (metadata == null)
+      return;
+
+    if (metadata.containsField(CONFIG_IGNORE_CHARS))
+      ignoreChars = (String) metadata.field(CONFIG_IGNORE_CHARS);
+
+    if (metadata.containsField(CONFIG_INDEX_RADIX))
+      indexRadix = (Boolean) metadata.field(CONFIG_INDEX_RADIX);
+
+    if (metadata.containsField(CONFIG_SEPARATOR_CHARS))
+      separatorChars = (String) metadata.field(CONFIG_SEPARATOR_CHARS);
+
+    if (metadata.containsField(CONFIG_MIN_WORD_LEN))
+      minWordLength = (Integer) metadata.field(CONFIG_MIN_WORD_LEN);
+
+    if (metadata.containsField(CONFIG_STOP_WORDS))
+      stopWords = new HashSet<String>((Collection<? extends String>) metadata.field(CONFIG_STOP_WORDS));
+  }
+
+  public void updateConfiguration(final ODocument configuration) {
+    configuration.field(CONFIG_SEPARATOR_CHARS, separatorChars);
+    configuration.field(CONFIG_IGNORE_CHARS, ignoreChars);
+    configuration.field(CONFIG_STOP_WORDS, stopWords);
+    configuration.field(CONFIG_MIN_WORD_LEN, minWordLength);
+    configuration.field(CONFIG_INDEX_RADIX, indexRadix);
+  }
+
+  public Map<String, Integer> analyze(final String text) {
+    final Map<String, Integer> result = new HashMap<String, Integer>();
+
+    @SuppressWarnings("unchecked")
+    final List<String> words = (List<String>) OStringSerializerHelper.split(new ArrayList<String>(), text, 0, -1, separatorChars);
+
+    final StringBuilder buffer = new StringBuilder();
+    for (String word : words) {
+      buffer.setLength(0);
+      appendWithoutIgnoredChars(buffer, word);
+
+      int length = buffer.length();
+
+      while (length >= minWordLength) {
+        buffer.setLength(length);
+        word = buffer.toString();
+
+        // CHECK IF IT'S A STOP WORD
+        if (!stopWords.contains(word)) {
+          final Integer occurrences = result.get(word);
+          result.put(word, occurrences == null ? 1 : occurrences + 1);
+        }
+
+        if (indexRadix)
+          length--;
+        else
+          break;
+      }
+    }
+
+    return result;
+  }
+
+  public List<String> analyzeQuery(final String text) {
+    final List<String> result = new ArrayList<String>();
+    final StringBuilder buffer = new StringBuilder();
+
+    for (int i = 0; i < text.length(); ++i) {
+      final char c = text.charAt(i);
+
+      if (c == PREFIX_WILDCARD && buffer.length() > 0) {
+        // WILDCARD IS A SEPARATOR TOO, SO IT IS TAKEN INTO ACCOUNT ONLY IF IT FOLLOWS THE WORD
+        buffer.append(c);
+        addQueryTerm(result, buffer);
+      } else if (separatorChars.indexOf(c) > -1)
+        addQueryTerm(result, buffer);
+      else if (ignoreChars.indexOf(c) < 0)
+        buffer.append(c);
+    }
+
+    addQueryTerm(result, buffer);
+    return result;
+  }
+
+  private void addQueryTerm(final List<String> terms, final StringBuilder buffer) {
+    final int length = buffer.length();
+    if (length == 0)
+      return;
+
+    final String term = buffer.toString();
+    buffer.setLength(0);
+
+    if (term.charAt(length - 1) == PREFIX_WILDCARD) {
+      final String prefix = term.substring(0, length - 1);
+      if (indexRadix && prefix.length() >= minWordLength && !stopWords.contains(prefix))
+        // ALL LEADING PARTS OF WORDS ARE INDEXED, SO PREFIX IS LOOKED UP AS PLAIN WORD
+        terms.add(prefix);
+      else if (length > 1)
+        terms.add(term);
+    } else if (length >= minWordLength && !stopWords.contains(term))
+      terms.add(term);
+  }
+
+  private void appendWithoutIgnoredChars(final StringBuilder buffer, final String word) {
+    for (int i = 0; i < word.length(); ++i) {
+      final char c = word.charAt(i);
+      if (ignoreChars.indexOf(c) < 0)
+        buffer.append(c);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Splits text of indexed field and text of full-text query on terms which are stored in
+ * {@link com.orientechnologies.orient.core.index.OIndexFullText} index. Implementation is chosen by "analyzer" property of index
+ * metadata which contains name of class with public no-arguments constructor.
+ * 
+ * @see ODefaultFullTextAnalyzer
+ */
+public interface OFullTextAnalyzer {
+  /**
+   * Reads settings of analyzer from index metadata, is called both on index creation and on load of existing index.
+   */
+  void configure(ODocument metadata);
+
+  /**
+   * Stores settings of analyzer into index configuration.
+   */
+  void updateConfiguration(ODocument configuration);
+
+  /**
+   * @return terms of indexed text mapped to the number of their occurrences in this text.
+   */
+  Map<String, Integer> analyze(String text);
+
+  /**
+   * Splits text of query on terms in order of their appearance. Terms which should be matched as prefixes of indexed terms end
+   * with {@link #PREFIX_WILDCARD}.
+   */
+  List<String> analyzeQuery(String text);
+
+  char PREFIX_WILDCARD = '*';
+}
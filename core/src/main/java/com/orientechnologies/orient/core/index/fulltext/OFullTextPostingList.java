@@ -0,0 +1,556 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Posting list of full-text index term. Contains identities of records which contain term sorted by cluster id and cluster position
+ * together with amount of occurrences of term in each record.
+ * 
+ * Posting list is stored in compressed form: cluster positions are delta encoded and written as variable length numbers. Every
+ * {@link #SKIP_INTERVAL} entries a skip pointer is written at the beginning of stream, it contains first entry of block and offset
+ * of block, so {@link Cursor#advance(int, long)} jumps over blocks without decoding them. That makes intersection of frequent
+ * term with rare one proportional to the size of rare term list.
+ * 
+ * Loaded list is kept in compressed form until it is iterated or changed, so search queries decode only visited blocks.
+ * 
+ * Stream format:
+ * <ol>
+ * <li>amount of entries (int)</li>
+ * <li>amount of blocks (int)</li>
+ * <li>skip pointers, for each block cluster id (int), cluster position (long) of first entry and offset of block data (int)</li>
+ * <li>entries, each entry is variable length header followed by variable length term frequency. If cluster id of entry is the same
+ * as cluster id of previous one header is delta of cluster positions shifted left by one bit, otherwise header is delta of cluster
+ * ids shifted left by one bit with lowest bit set and it is followed by cluster position. First entry of block is delta encoded
+ * against skip pointer of block.</li>
+ * </ol>
+ */
+public class OFullTextPostingList extends AbstractSet<OIdentifiable> {
+  public static final int  SKIP_INTERVAL    = 64;
+
+  private static final int HEADER_SIZE      = 8;
+  private static final int SKIP_ENTRY_SIZE  = 16;
+  private static final int INITIAL_CAPACITY = 4;
+
+  private byte[]           stream;
+  private boolean          decoded;
+
+  private int[]            clusterIds;
+  private long[]           positions;
+  private int[]            frequencies;
+
+  private int              size;
+
+  public OFullTextPostingList() {
+    clusterIds = new int[INITIAL_CAPACITY];
+    positions = new long[INITIAL_CAPACITY];
+    frequencies = new int[INITIAL_CAPACITY];
+    decoded = true;
+  }
+
+  /**
+   * Wraps posting list serialized by {@link #toStream()}, stream is decoded lazily.
+   */
+  public OFullTextPostingList(final byte[] stream) {
+    this.stream = stream;
+    this.size = readInt(stream, 0);
+  }
+
+  /**
+   * Creates posting list from plain set of record identities, term frequency of every record is set to 1.
+   */
+  public static OFullTextPostingList fromIdentities(final Collection<OIdentifiable> identities) {
+    final List<OIdentifiable> sorted = new ArrayList<OIdentifiable>(identities);
+    Collections.sort(sorted);
+
+    final OFullTextPostingList postingList = new OFullTextPostingList();
+    for (OIdentifiable identifiable : sorted) {
+      final ORID rid = identifiable.getIdentity();
+      postingList.append(rid.getClusterId(), rid.getClusterPosition().longValue(), 1);
+    }
+
+    return postingList;
+  }
+
+  /**
+   * Merges several posting lists in one, frequencies of the same record are summed up. Is used to evaluate prefix queries.
+   */
+  public static OFullTextPostingList merge(final Collection<OFullTextPostingList> postingLists) {
+    final PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(Math.max(postingLists.size(), 1), new Comparator<Cursor>() {
+      public int compare(Cursor cursorOne, Cursor cursorTwo) {
+        return compareEntries(cursorOne.clusterId, cursorOne.position, cursorTwo.clusterId, cursorTwo.position);
+      }
+    });
+
+    for (OFullTextPostingList postingList : postingLists) {
+      final Cursor cursor = postingList.cursor();
+      if (cursor.next())
+        queue.add(cursor);
+    }
+
+    final OFullTextPostingList result = new OFullTextPostingList();
+    while (!queue.isEmpty()) {
+      final Cursor cursor = queue.poll();
+
+      final int lastIndex = result.size - 1;
+      if (lastIndex >= 0 && result.clusterIds[lastIndex] == cursor.clusterId && result.positions[lastIndex] == cursor.position)
+        result.frequencies[lastIndex] += cursor.frequency;
+      else
+        result.append(cursor.clusterId, cursor.position, cursor.frequency);
+
+      if (cursor.next())
+        queue.add(cursor);
+    }
+
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    if (!(o instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+    final Cursor cursor = cursor();
+    return cursor.advance(rid.getClusterId(), rid.getClusterPosition().longValue())
+        && cursor.clusterId == rid.getClusterId() && cursor.position == rid.getClusterPosition().longValue();
+  }
+
+  @Override
+  public boolean add(final OIdentifiable identifiable) {
+    final ORID rid = identifiable.getIdentity();
+    final long position = rid.getClusterPosition().longValue();
+
+    prepareForUpdate();
+
+    final int index = indexOf(rid.getClusterId(), position);
+    if (index >= 0)
+      return false;
+
+    insert(-index - 1, rid.getClusterId(), position, 1);
+    return true;
+  }
+
+  /**
+   * Adds record to the list or replaces frequency of term in record if it is already present.
+   */
+  public void put(final OIdentifiable identifiable, final int frequency) {
+    final ORID rid = identifiable.getIdentity();
+    final long position = rid.getClusterPosition().longValue();
+
+    prepareForUpdate();
+
+    final int index = indexOf(rid.getClusterId(), position);
+    if (index >= 0)
+      frequencies[index] = frequency;
+    else
+      insert(-index - 1, rid.getClusterId(), position, frequency);
+  }
+
+  @Override
+  public boolean remove(final Object o) {
+    if (!(o instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+
+    prepareForUpdate();
+
+    final int index = indexOf(rid.getClusterId(), rid.getClusterPosition().longValue());
+    if (index < 0)
+      return false;
+
+    delete(index);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    prepareForUpdate();
+    size = 0;
+  }
+
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    decode();
+
+    return new Iterator<OIdentifiable>() {
+      private int nextIndex = 0;
+      private int lastIndex = -1;
+
+      public boolean hasNext() {
+        return nextIndex < size;
+      }
+
+      public OIdentifiable next() {
+        if (nextIndex >= size)
+          throw new NoSuchElementException();
+
+        lastIndex = nextIndex++;
+        return new ORecordId(clusterIds[lastIndex], OClusterPositionFactory.INSTANCE.valueOf(positions[lastIndex]));
+      }
+
+      public void remove() {
+        if (lastIndex < 0)
+          throw new IllegalStateException();
+
+        stream = null;
+        delete(lastIndex);
+        nextIndex = lastIndex;
+        lastIndex = -1;
+      }
+    };
+  }
+
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * @return compressed presentation of posting list, returned array should not be modified.
+   */
+  public byte[] toStream() {
+    if (stream != null)
+      return stream;
+
+    final int blocks = (size + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+    final int dataStart = HEADER_SIZE + blocks * SKIP_ENTRY_SIZE;
+
+    byte[] buffer = new byte[dataStart + size * 4];
+    writeInt(buffer, 0, size);
+    writeInt(buffer, 4, blocks);
+
+    int offset = dataStart;
+    int prevClusterId = 0;
+    long prevPosition = 0;
+
+    for (int i = 0; i < size; i++) {
+      if (i % SKIP_INTERVAL == 0) {
+        final int skipOffset = HEADER_SIZE + (i / SKIP_INTERVAL) * SKIP_ENTRY_SIZE;
+        writeInt(buffer, skipOffset, clusterIds[i]);
+        writeLong(buffer, skipOffset + 4, positions[i]);
+        writeInt(buffer, skipOffset + 12, offset - dataStart);
+
+        prevClusterId = clusterIds[i];
+        prevPosition = positions[i];
+      }
+
+      // HEADER, CLUSTER POSITION AND FREQUENCY TAKE 24 BYTES AT MOST
+      if (buffer.length - offset < 24)
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, offset + 24));
+
+      if (clusterIds[i] == prevClusterId)
+        offset = writeVarLong(buffer, offset, (positions[i] - prevPosition) << 1);
+      else {
+        offset = writeVarLong(buffer, offset, ((long) (clusterIds[i] - prevClusterId) << 1) | 1);
+        offset = writeVarLong(buffer, offset, positions[i]);
+      }
+
+      offset = writeVarLong(buffer, offset, frequencies[i]);
+
+      prevClusterId = clusterIds[i];
+      prevPosition = positions[i];
+    }
+
+    stream = Arrays.copyOf(buffer, offset);
+    return stream;
+  }
+
+  /**
+   * Forward only cursor over posting list. Cursor is positioned before the first entry after creation.
+   */
+  public final class Cursor {
+    private int  index = -1;
+
+    private int  clusterId;
+    private long position;
+    private int  frequency;
+
+    private int  offset;
+
+    /**
+     * Moves cursor to the next entry.
+     * 
+     * @return <code>false</code> if there are no more entries.
+     */
+    public boolean next() {
+      if (index + 1 >= size) {
+        index = size;
+        return false;
+      }
+
+      index++;
+
+      if (decoded) {
+        clusterId = clusterIds[index];
+        position = positions[index];
+        frequency = frequencies[index];
+      } else
+        readEntry();
+
+      return true;
+    }
+
+    /**
+     * Moves cursor to the first entry which is equal to or greater than passed in record position, cursor never moves back.
+     * 
+     * @return <code>false</code> if there are no such entries.
+     */
+    public boolean advance(final int targetClusterId, final long targetPosition) {
+      if (index >= size)
+        return false;
+
+      if (index >= 0 && compareEntries(clusterId, position, targetClusterId, targetPosition) >= 0)
+        return true;
+
+      if (decoded) {
+        int low = index + 1;
+        int high = size - 1;
+        while (low <= high) {
+          final int mid = (low + high) >>> 1;
+          if (compareEntries(clusterIds[mid], positions[mid], targetClusterId, targetPosition) < 0)
+            low = mid + 1;
+          else
+            high = mid - 1;
+        }
+
+        index = low - 1;
+        return next();
+      }
+
+      skipBlocks(targetClusterId, targetPosition);
+
+      while (next())
+        if (compareEntries(clusterId, position, targetClusterId, targetPosition) >= 0)
+          return true;
+
+      return false;
+    }
+
+    public int getClusterId() {
+      return clusterId;
+    }
+
+    public long getClusterPosition() {
+      return position;
+    }
+
+    public int getFrequency() {
+      return frequency;
+    }
+
+    public ORID getIdentity() {
+      return new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(position));
+    }
+
+    /**
+     * Uses skip pointers to find last block which starts before passed in position and positions cursor before its first entry.
+     */
+    private void skipBlocks(final int targetClusterId, final long targetPosition) {
+      final int currentBlock = index < 0 ? 0 : index / SKIP_INTERVAL;
+
+      int low = currentBlock + 1;
+      int high = readInt(stream, 4) - 1;
+      int found = -1;
+
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        final int skipOffset = HEADER_SIZE + mid * SKIP_ENTRY_SIZE;
+
+        if (compareEntries(readInt(stream, skipOffset), readLong(stream, skipOffset + 4), targetClusterId, targetPosition) <= 0) {
+          found = mid;
+          low = mid + 1;
+        } else
+          high = mid - 1;
+      }
+
+      if (found >= 0)
+        index = found * SKIP_INTERVAL - 1;
+    }
+
+    private void readEntry() {
+      final int blocks = readInt(stream, 4);
+      final int dataStart = HEADER_SIZE + blocks * SKIP_ENTRY_SIZE;
+
+      if (index % SKIP_INTERVAL == 0) {
+        final int skipOffset = HEADER_SIZE + (index / SKIP_INTERVAL) * SKIP_ENTRY_SIZE;
+        clusterId = readInt(stream, skipOffset);
+        position = readLong(stream, skipOffset + 4);
+        offset = dataStart + readInt(stream, skipOffset + 12);
+      }
+
+      final long header = readVarLong();
+      if ((header & 1) == 0)
+        position += header >>> 1;
+      else {
+        clusterId += (int) (header >>> 1);
+        position = readVarLong();
+      }
+
+      frequency = (int) readVarLong();
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = stream[offset++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+
+      return value;
+    }
+  }
+
+  static int compareEntries(final int clusterIdOne, final long positionOne, final int clusterIdTwo, final long positionTwo) {
+    if (clusterIdOne != clusterIdTwo)
+      return clusterIdOne < clusterIdTwo ? -1 : 1;
+
+    if (positionOne != positionTwo)
+      return positionOne < positionTwo ? -1 : 1;
+
+    return 0;
+  }
+
+  private void prepareForUpdate() {
+    decode();
+    stream = null;
+  }
+
+  private void decode() {
+    if (decoded)
+      return;
+
+    final int capacity = Math.max(size, INITIAL_CAPACITY);
+    final int[] decodedClusterIds = new int[capacity];
+    final long[] decodedPositions = new long[capacity];
+    final int[] decodedFrequencies = new int[capacity];
+
+    final Cursor cursor = cursor();
+    int i = 0;
+    while (cursor.next()) {
+      decodedClusterIds[i] = cursor.clusterId;
+      decodedPositions[i] = cursor.position;
+      decodedFrequencies[i] = cursor.frequency;
+      i++;
+    }
+
+    clusterIds = decodedClusterIds;
+    positions = decodedPositions;
+    frequencies = decodedFrequencies;
+    decoded = true;
+  }
+
+  private int indexOf(final int clusterId, final long position) {
+    int low = 0;
+    int high = size - 1;
+
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int cmp = compareEntries(clusterIds[mid], positions[mid], clusterId, position);
+      if (cmp < 0)
+        low = mid + 1;
+      else if (cmp > 0)
+        high = mid - 1;
+      else
+        return mid;
+    }
+
+    return -(low + 1);
+  }
+
+  private void append(final int clusterId, final long position, final int frequency) {
+    insert(size, clusterId, position, frequency);
+  }
+
+  private void insert(final int index, final int clusterId, final long position, final int frequency) {
+    if (size == clusterIds.length) {
+      final int capacity = size << 1;
+      clusterIds = Arrays.copyOf(clusterIds, capacity);
+      positions = Arrays.copyOf(positions, capacity);
+      frequencies = Arrays.copyOf(frequencies, capacity);
+    }
+
+    System.arraycopy(clusterIds, index, clusterIds, index + 1, size - index);
+    System.arraycopy(positions, index, positions, index + 1, size - index);
+    System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+
+    clusterIds[index] = clusterId;
+    positions[index] = position;
+    frequencies[index] = frequency;
+    size++;
+  }
+
+  private void delete(final int index) {
+    System.arraycopy(clusterIds, index + 1, clusterIds, index, size - index - 1);
+    System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+    System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+    size--;
+  }
+
+  private static int writeVarLong(final byte[] buffer, int offset, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+
+    buffer[offset++] = (byte) value;
+    return offset;
+  }
+
+  private static void writeInt(final byte[] buffer, final int offset, final int value) {
+    buffer[offset] = (byte) (value >>> 24);
+    buffer[offset + 1] = (byte) (value >>> 16);
+    buffer[offset + 2] = (byte) (value >>> 8);
+    buffer[offset + 3] = (byte) value;
+  }
+
+  private static void writeLong(final byte[] buffer, final int offset, final long value) {
+    writeInt(buffer, offset, (int) (value >>> 32));
+    writeInt(buffer, offset + 4, (int) value);
+  }
+
+  private static int readInt(final byte[] buffer, final int offset) {
+    return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16) | ((buffer[offset + 2] & 0xFF) << 8)
+        | (buffer[offset + 3] & 0xFF);
+  }
+
+  private static long readLong(final byte[] buffer, final int offset) {
+    return ((long) readInt(buffer, offset) << 32) | (readInt(buffer, offset + 4) & 0xFFFFFFFFL);
+  }
+}
@@ -61,6 +61,8 @@ public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHa
 
     setByteValue(DEPTH_OFFSET, (byte) depth);
     setIntValue(FREE_POINTER_OFFSET, MAX_BUCKET_SIZE_BYTES);
+    // page may be reused after merge of buckets, so entries of previous bucket should be discarded
+    setIntValue(SIZE_OFFSET, 0);
   }
 
   public OHashIndexBucket(ODirectMemoryPointer bufferPointer, OBinarySerializer<K> keySerializer,
@@ -159,7 +161,7 @@ public class OHashIndexBucket<K, V> extends ODurablePage implements Iterable<OHa
   public int mergedSize(OHashIndexBucket buddyBucket) {
     return POSITIONS_ARRAY_OFFSET + size() * OIntegerSerializer.INT_SIZE
         + (MAX_BUCKET_SIZE_BYTES - getIntValue(FREE_POINTER_OFFSET)) + buddyBucket.size() * OIntegerSerializer.INT_SIZE
-        + (MAX_BUCKET_SIZE_BYTES - getIntValue(FREE_POINTER_OFFSET));
+        + (MAX_BUCKET_SIZE_BYTES - buddyBucket.getIntValue(FREE_POINTER_OFFSET));
   }
 
   public int getContentSize() {
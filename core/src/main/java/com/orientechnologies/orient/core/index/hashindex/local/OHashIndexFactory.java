@@ -26,6 +26,7 @@ import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.local.OEngineLocalPaginated;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.index.*;
+import com.orientechnologies.orient.core.index.engine.OBloomFilterIndexEngine;
 import com.orientechnologies.orient.core.index.engine.OLocalHashTableIndexEngine;
 import com.orientechnologies.orient.core.index.engine.OMemoryHashMapIndexEngine;
 import com.orientechnologies.orient.core.index.engine.ORemoteIndexEngine;
@@ -108,10 +109,10 @@ public class OHashIndexFactory implements OIndexFactory {
     if (storageType.equals("memory"))
       indexEngine = new OMemoryHashMapIndexEngine();
     else if (storageType.equals("local") || storageType.equals("plocal"))
-      indexEngine = new OLocalHashTableIndexEngine();
+      indexEngine = OBloomFilterIndexEngine.wrap(new OLocalHashTableIndexEngine<Object>(), metadata);
     else if (storageType.equals("distributed"))
       // DISTRIBUTED CASE: HANDLE IT AS FOR LOCAL
-      indexEngine = new OLocalHashTableIndexEngine();
+      indexEngine = OBloomFilterIndexEngine.wrap(new OLocalHashTableIndexEngine<Object>(), metadata);
     else if (storageType.equals("remote"))
       indexEngine = new ORemoteIndexEngine();
     else
@@ -17,6 +17,8 @@ package com.orientechnologies.orient.core.index.hashindex.local;
 
 import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.index.OIndexException;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
@@ -30,8 +32,14 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODura
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Implementation of hash index which is based on <a href="http://en.wikipedia.org/wiki/Extendible_hashing">extendible hashing
@@ -134,6 +142,14 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
   private final ODurablePage.TrackMode   txTrackMode         = ODurablePage.TrackMode.valueOf(OGlobalConfiguration.INDEX_TX_MODE
                                                                  .getValueAsString().toUpperCase());
 
+  /**
+   * If <code>true</code> modifications which do not split or merge buckets are done under shared lock of hash table and exclusive
+   * lock of bucket page, see {@link #optimisticPut(Object, Object)} and {@link #optimisticRemove(Object)}.
+   */
+  private final boolean                  concurrentModifications;
+
+  private static final Object            OPTIMISTIC_MODIFICATION_FAILED = new Object();
+
   public OLocalHashTable(String metadataConfigurationFileExtension, String treeStateFileExtension, String bucketFileExtension,
       String nullBucketFileExtension, OHashFunction<K> keyHashFunction, boolean durableInNonTxMode) {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean());
@@ -143,6 +159,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
     this.keyHashFunction = keyHashFunction;
     this.nullBucketFileExtension = nullBucketFileExtension;
     this.durableInNonTxMode = durableInNonTxMode;
+    this.concurrentModifications = OGlobalConfiguration.HASH_TABLE_CONCURRENT_MODIFICATIONS.getValueAsBoolean();
 
     this.comparator = new KeyHashCodeComparator<K>(this.keyHashFunction);
   }
@@ -378,11 +395,13 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
         V result = null;
         OCacheEntry cacheEntry = diskCache.load(nullBucketFileId, 0, false);
         OCachePointer cachePointer = cacheEntry.getCachePointer();
+        cachePointer.acquireSharedLock();
         try {
           ONullBucket<V> nullBucket = new ONullBucket<V>(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE,
               valueSerializer, false);
           result = nullBucket.getValue();
         } finally {
+          cachePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
         }
 
@@ -403,6 +422,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
         OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
         OCachePointer dataPointer = cacheEntry.getCachePointer();
 
+        dataPointer.acquireSharedLock();
         try {
           final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer.getDataPointer(), keySerializer,
               valueSerializer, keyTypes, ODurablePage.TrackMode.NONE);
@@ -413,6 +433,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
           return entry.value;
         } finally {
+          dataPointer.releaseSharedLock();
           diskCache.release(cacheEntry);
         }
       }
@@ -423,7 +444,83 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Looks up several keys at once. Keys are grouped by bucket which they belong to, so every bucket page is loaded once for all
+   * passed in keys which it contains. Buckets are read in order of their position in file.
+   * 
+   * @return values of found keys, keys of returned map are the same instances which were passed in.
+   */
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    final Map<K, V> result = new HashMap<K, V>();
+
+    acquireSharedLock();
+    try {
+      final Map<Long, List<K>> keysByBucket = new TreeMap<Long, List<K>>();
+      boolean containsNullKey = false;
+
+      for (K key : keys) {
+        if (key == null) {
+          checkNullSupport(key);
+          containsNullKey = true;
+          continue;
+        }
+
+        final long hashCode = keyHashFunction.hashCode(keySerializer.preprocess(key, (Object[]) keyTypes));
+
+        final BucketPath bucketPath = getBucket(hashCode);
+        final long bucketPointer = directory.getNodePointer(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
+        if (bucketPointer == 0)
+          continue;
+
+        List<K> bucketKeys = keysByBucket.get(bucketPointer);
+        if (bucketKeys == null) {
+          bucketKeys = new ArrayList<K>();
+          keysByBucket.put(bucketPointer, bucketKeys);
+        }
+
+        bucketKeys.add(key);
+      }
+
+      for (Map.Entry<Long, List<K>> bucketKeys : keysByBucket.entrySet()) {
+        final long bucketPointer = bucketKeys.getKey();
+
+        final OCacheEntry cacheEntry = loadPageEntry(getPageIndex(bucketPointer), getFileLevel(bucketPointer));
+        final OCachePointer dataPointer = cacheEntry.getCachePointer();
+        dataPointer.acquireSharedLock();
+        try {
+          final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer.getDataPointer(), keySerializer,
+              valueSerializer, keyTypes, ODurablePage.TrackMode.NONE);
+
+          for (K key : bucketKeys.getValue()) {
+            final K preprocessedKey = keySerializer.preprocess(key, (Object[]) keyTypes);
+            final OHashIndexBucket.Entry<K, V> entry = bucket.find(preprocessedKey, keyHashFunction.hashCode(preprocessedKey));
+            if (entry != null)
+              result.put(key, entry.value);
+          }
+        } finally {
+          dataPointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
+      }
+
+      if (containsNullKey) {
+        final V nullValue = get(null);
+        if (nullValue != null)
+          result.put(null, nullValue);
+      }
+    } catch (IOException e) {
+      throw new OIndexException("Exception during index value retrieval", e);
+    } finally {
+      releaseSharedLock();
+    }
+
+    return result;
+  }
+
   public void put(K key, V value) {
+    if (key != null && concurrentModifications && optimisticPut(key, value))
+      return;
+
     acquireExclusiveLock();
     try {
       startAtomicOperation();
@@ -446,7 +543,14 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
     }
   }
 
+  @SuppressWarnings("unchecked")
   public V remove(K key) {
+    if (key != null && concurrentModifications) {
+      final Object removed = optimisticRemove(key);
+      if (removed != OPTIMISTIC_MODIFICATION_FAILED)
+        return (V) removed;
+    }
+
     acquireExclusiveLock();
     try {
       startAtomicOperation();
@@ -543,6 +647,153 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Puts key into bucket holding only shared lock of hash table, so modifications of different buckets are not serialized. Only
+   * split and merge of buckets change directory and they are done under exclusive lock of hash table, so bucket of key can not be
+   * changed during this operation. Bucket page is locked exclusively while it is modified and size of hash table is updated under
+   * exclusive lock of state page.
+   * 
+   * @return <code>false</code> if bucket has no space for the key and should be split or modification is done inside of storage
+   *         transaction. In such case it should be repeated under exclusive lock of hash table.
+   */
+  private boolean optimisticPut(K key, V value) {
+    acquireSharedLock();
+    final OStorageTransaction transaction = storage.getStorageTransaction();
+    try {
+      // storage transaction holds exclusive lock of storage so there are no concurrent modifications anyway
+      if (transaction != null)
+        return false;
+
+      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+      final long hashCode = keyHashFunction.hashCode(key);
+
+      final BucketPath bucketPath = getBucket(hashCode);
+      final long bucketPointer = directory.getNodePointer(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
+      if (bucketPointer == 0)
+        return false;
+
+      startAtomicOperation();
+
+      final int sizeDiff;
+      final OCacheEntry cacheEntry = loadPageEntry(getPageIndex(bucketPointer), getFileLevel(bucketPointer));
+      final OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireExclusiveLock();
+      try {
+        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer,
+            valueSerializer, keyTypes, getTrackMode());
+
+        final int index = bucket.getIndex(hashCode, key);
+        if (index > -1) {
+          final int updateResult = bucket.updateEntry(index, value);
+          if (updateResult == 1) {
+            cacheEntry.markDirty();
+            logPageChanges(bucket, cacheEntry.getFileId(), cacheEntry.getPageIndex(), false);
+          }
+
+          // value of different size is replaced by removal and insertion which may cause split
+          sizeDiff = updateResult < 0 ? -1 : 0;
+        } else if (bucket.addEntry(hashCode, key, value)) {
+          cacheEntry.markDirty();
+          logPageChanges(bucket, cacheEntry.getFileId(), cacheEntry.getPageIndex(), false);
+
+          sizeDiff = 1;
+        } else
+          sizeDiff = -1;
+      } finally {
+        pagePointer.releaseExclusiveLock();
+        diskCache.release(cacheEntry);
+      }
+
+      if (sizeDiff > 0)
+        changeSize(sizeDiff);
+
+      endAtomicOperation(false);
+
+      return sizeDiff >= 0;
+    } catch (IOException e) {
+      rollback();
+      throw new OIndexException("Error during index update", e);
+    } catch (RuntimeException e) {
+      rollback();
+      throw e;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Removes key from bucket holding only shared lock of hash table, the same way as {@link #optimisticPut(Object, Object)} puts
+   * it.
+   * 
+   * @return removed value, <code>null</code> if key is absent or {@link #OPTIMISTIC_MODIFICATION_FAILED} if bucket should be
+   *         merged with its buddy after removal. In such case removal should be repeated under exclusive lock of hash table.
+   */
+  private Object optimisticRemove(K key) {
+    acquireSharedLock();
+    final OStorageTransaction transaction = storage.getStorageTransaction();
+    try {
+      if (transaction != null)
+        return OPTIMISTIC_MODIFICATION_FAILED;
+
+      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+      final long hashCode = keyHashFunction.hashCode(key);
+
+      final BucketPath bucketPath = getBucket(hashCode);
+      final long bucketPointer = directory.getNodePointer(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
+
+      startAtomicOperation();
+
+      final Object result;
+      final OCacheEntry cacheEntry = loadPageEntry(getPageIndex(bucketPointer), getFileLevel(bucketPointer));
+      final OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireExclusiveLock();
+      try {
+        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer,
+            valueSerializer, keyTypes, getTrackMode());
+
+        final int index = bucket.getIndex(hashCode, key);
+        if (index < 0)
+          result = null;
+        else {
+          final OHashIndexBucket.Entry<K, V> entry = bucket.getEntry(index);
+          final int entrySize = OLongSerializer.LONG_SIZE + keySerializer.getObjectSize(entry.key, (Object[]) keyTypes)
+              + valueSerializer.getObjectSize(entry.value) + OIntegerSerializer.INT_SIZE;
+
+          // the same conditions as in mergeBucketsAfterDeletion
+          if (bucket.getDepth() - MAX_LEVEL_DEPTH >= 1
+              && bucket.getContentSize() - entrySize <= OHashIndexBucket.MAX_BUCKET_SIZE_BYTES * MERGE_THRESHOLD)
+            result = OPTIMISTIC_MODIFICATION_FAILED;
+          else {
+            bucket.deleteEntry(index);
+
+            cacheEntry.markDirty();
+            logPageChanges(bucket, cacheEntry.getFileId(), cacheEntry.getPageIndex(), false);
+
+            result = entry.value;
+          }
+        }
+      } finally {
+        pagePointer.releaseExclusiveLock();
+        diskCache.release(cacheEntry);
+      }
+
+      if (result != null && result != OPTIMISTIC_MODIFICATION_FAILED)
+        changeSize(-1);
+
+      endAtomicOperation(false);
+
+      return result;
+    } catch (IOException e) {
+      rollback();
+      throw new OIndexException("Error during index removal", e);
+    } catch (RuntimeException e) {
+      rollback();
+      throw e;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   private void changeSize(int sizeDiff) throws IOException {
     if (sizeDiff != 0) {
       diskCache.loadPinnedPage(hashStateEntry);
@@ -625,6 +876,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
             keyTypes, ODurablePage.TrackMode.NONE);
@@ -634,6 +886,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
           if (bucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
 
           final long nextPointer = directory.getNodePointer(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
@@ -643,6 +896,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes,
               ODurablePage.TrackMode.NONE);
@@ -663,6 +917,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
+        pagePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
     } catch (IOException ioe) {
@@ -879,6 +1134,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
 
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
@@ -888,6 +1144,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
           if (bucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
           final long nextPointer = directory.getNodePointer(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
 
@@ -896,6 +1153,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes,
               ODurablePage.TrackMode.NONE);
@@ -911,6 +1169,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
         final int endIndex = bucket.size();
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
+        pagePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
 
@@ -932,6 +1191,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
 
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
@@ -942,6 +1202,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
           if (bucketPath == null)
             return null;
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
           final long nextPointer = directory.getNodePointer(bucketPath.nodeIndex, bucketPath.itemIndex + bucketPath.hashMapOffset);
 
@@ -950,6 +1211,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes,
               ODurablePage.TrackMode.NONE);
@@ -957,6 +1219,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
         return bucket.getEntry(0);
       } finally {
+        pagePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
 
@@ -978,6 +1241,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
 
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
@@ -988,6 +1252,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
           if (prevBucketPath == null)
             return null;
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
           final long prevPointer = directory.getNodePointer(prevBucketPath.nodeIndex, prevBucketPath.itemIndex
               + prevBucketPath.hashMapOffset);
@@ -997,6 +1262,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes,
               ODurablePage.TrackMode.NONE);
@@ -1006,6 +1272,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
         return bucket.getEntry(bucket.size() - 1);
       } finally {
+        pagePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
     } catch (IOException ioe) {
@@ -1030,6 +1297,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
             keyTypes, ODurablePage.TrackMode.NONE);
@@ -1038,6 +1306,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
           if (prevBucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
 
           final long prevPointer = directory.getNodePointer(prevBucketPath.nodeIndex, prevBucketPath.itemIndex
@@ -1048,6 +1317,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes,
               ODurablePage.TrackMode.NONE);
@@ -1066,6 +1336,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
+        pagePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
     } finally {
@@ -1088,6 +1359,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
             keyTypes, ODurablePage.TrackMode.NONE);
@@ -1096,6 +1368,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
           if (prevBucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
 
           final long prevPointer = directory.getNodePointer(prevBucketPath.nodeIndex, prevBucketPath.itemIndex
@@ -1106,6 +1379,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes,
               ODurablePage.TrackMode.NONE);
@@ -1124,6 +1398,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
 
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
+        pagePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
     } finally {
@@ -1226,11 +1501,14 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
     acquireSharedLock();
     try {
       diskCache.loadPinnedPage(hashStateEntry);
+      final OCachePointer stateCachePointer = hashStateEntry.getCachePointer();
+      stateCachePointer.acquireSharedLock();
       try {
-        OHashIndexFileLevelMetadataPage metadataPage = new OHashIndexFileLevelMetadataPage(hashStateEntry.getCachePointer()
-            .getDataPointer(), ODurablePage.TrackMode.NONE, false);
+        OHashIndexFileLevelMetadataPage metadataPage = new OHashIndexFileLevelMetadataPage(stateCachePointer.getDataPointer(),
+            ODurablePage.TrackMode.NONE, false);
         return metadataPage.getRecordsCount();
       } finally {
+        stateCachePointer.releaseSharedLock();
         diskCache.release(hashStateEntry);
       }
     } catch (IOException e) {
@@ -1335,7 +1613,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
     while (offset > 0) {
       offset -= nodeLocalDepth;
       if (offset > 0) {
-        currentNode = nodePath.parent;
+        currentNode = currentNode.parent;
         nodeLocalDepth = currentNode.nodeLocalDepth;
       }
     }
@@ -1413,7 +1691,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
         int newBuddyLevel = buddyLevel - 1;
         long newBuddyIndex = buddyBucket.getSplitHistory(newBuddyLevel);
 
-        metadataPage.setBucketsCount(buddyLevel, metadataPage.getBucketsCount(buddyLevel) + 1);
+        metadataPage.setBucketsCount(newBuddyLevel, metadataPage.getBucketsCount(newBuddyLevel) + 1);
 
         final OCacheEntry newBuddyCacheEntry = loadPageEntry(newBuddyIndex, newBuddyLevel);
         final OCachePointer newBuddyPagePointer = newBuddyCacheEntry.getCachePointer();
@@ -1440,7 +1718,7 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
         final long bucketPointer = directory.getNodePointer(nodePath.nodeIndex, nodePath.itemIndex + nodePath.hashMapOffset);
         final long bucketIndex = getPageIndex(bucketPointer);
 
-        final long newBuddyPointer = createBucketPointer(buddyIndex, buddyLevel);
+        final long newBuddyPointer = createBucketPointer(newBuddyIndex, newBuddyLevel);
 
         for (int i = firstStartIndex; i < secondEndIndex; i++)
           updateBucket(currentNode.nodeIndex, i, currentNode.hashMapOffset, newBuddyPointer);
@@ -17,8 +17,10 @@ package com.orientechnologies.orient.core.index.hashindex.local.cache;
 
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -60,8 +62,21 @@ import java.util.Set;
  * @since 14.03.13
  */
 public interface ODiskCache {
+  /**
+   * Opens file, if file does not exist it is created with page compression which storage assigns to this file.
+   */
   long openFile(String fileName) throws IOException;
 
+  /**
+   * Opens file, if file does not exist it is created and its pages are compressed using given compression. Compression of existing
+   * file is not changed.
+   * 
+   * @param pageCompression
+   *          Name of {@link com.orientechnologies.orient.core.compression.OCompression} which is used to compress pages of new
+   *          file, "nothing" means that pages are stored as is.
+   */
+  long openFile(String fileName, String pageCompression) throws IOException;
+
   void openFile(long fileId) throws IOException;
 
   void openFile(String fileName, long fileId) throws IOException;
@@ -110,6 +125,30 @@ public interface ODiskCache {
 
   void forceSyncStoredChanges() throws IOException;
 
+  /**
+   * Flushes pages which became dirty before given LSN, it is used by fuzzy checkpoint to move redo point forward without flush of
+   * all dirty pages.
+   *
+   * @return amount of flushed write groups.
+   */
+  int flushTillLsn(OLogSequenceNumber lsn);
+
+  /**
+   * @return minimal LSN starting from which changes of pages which are not flushed yet should be replayed during restore after
+   *         crash, or <code>null</code> if there are no dirty pages.
+   */
+  OLogSequenceNumber getMinDirtyLsn();
+
+  /**
+   * @return names and ids of files which are opened by cache.
+   */
+  Map<String, Long> files();
+
+  /**
+   * @return name of compression which is used for pages of given file, "nothing" if pages are stored as is.
+   */
+  String getPageCompression(long fileId);
+
   boolean isOpen(long fileId);
 
   boolean exists(String name);
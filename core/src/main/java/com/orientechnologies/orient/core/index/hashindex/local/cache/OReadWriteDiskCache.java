@@ -12,6 +12,7 @@ import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedExcept
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 
 import java.io.IOException;
@@ -51,6 +52,8 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   private final String                                storageName;
 
+  private final ReadAheadPrefetcher                   readAhead;
+
   private static String                               METRIC_HITS;
   private static String                               METRIC_HITS_METADATA;
   private static String                               METRIC_MISSED;
@@ -66,6 +69,18 @@ public class OReadWriteDiskCache implements ODiskCache {
   public OReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
       final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
       final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize) {
+    this(storageName, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL, pageFlushInterval, storageLocal,
+        writeAheadLog, syncOnPageFlush, checkMinSize, 0);
+  }
+
+  /**
+   * @param readAheadPages
+   *          Amount of pages which are loaded in background when sequential read of file is detected, 0 disables read ahead. Read
+   *          ahead window is limited by half of capacity of aIn queue.
+   */
+  public OReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int readAheadPages) {
     this.storageName = storageName;
     this.pageSize = pageSize;
 
@@ -88,6 +103,17 @@ public class OReadWriteDiskCache implements ODiskCache {
     a1in = new LRUList();
 
     syncObject = new Object();
+
+    final int readAheadWindow = Math.min(readAheadPages, maxSize >> 3);
+    if (readAheadWindow > 0)
+      readAhead = new ReadAheadPrefetcher(storageName, readAheadWindow, new ReadAheadPrefetcher.PageLoader() {
+        @Override
+        public int prefetchPage(long fileId, long pageIndex) throws IOException {
+          return OReadWriteDiskCache.this.prefetchPage(fileId, pageIndex);
+        }
+      });
+    else
+      readAhead = null;
   }
 
   LRUList getAm() {
@@ -102,14 +128,23 @@ public class OReadWriteDiskCache implements ODiskCache {
     return a1in;
   }
 
+  ReadAheadPrefetcher getReadAhead() {
+    return readAhead;
+  }
+
   @Override
   public long openFile(final String fileName) throws IOException {
+    return openFile(fileName, OGlobalConfiguration.STORAGE_PAGE_COMPRESSION_METHOD.getValueAsString());
+  }
+
+  @Override
+  public long openFile(final String fileName, final String pageCompression) throws IOException {
     synchronized (syncObject) {
       long fileId = writeCache.isOpen(fileName);
       if (fileId >= 0)
         return fileId;
 
-      fileId = writeCache.openFile(fileName);
+      fileId = writeCache.openFile(fileName, pageCompression);
       filePages.put(fileId, new HashSet<Long>());
 
       return fileId;
@@ -184,6 +219,15 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public OCacheEntry load(final long fileId, final long pageIndex, final boolean checkPinnedPages) throws IOException {
+    final OCacheEntry cacheEntry = loadPage(fileId, pageIndex, checkPinnedPages);
+
+    if (readAhead != null)
+      readAhead.pageLoaded(fileId, pageIndex);
+
+    return cacheEntry;
+  }
+
+  private OCacheEntry loadPage(final long fileId, final long pageIndex, final boolean checkPinnedPages) throws IOException {
     synchronized (syncObject) {
       OCacheEntry cacheEntry = null;
       if (checkPinnedPages)
@@ -201,7 +245,7 @@ public class OReadWriteDiskCache implements ODiskCache {
   public OCacheEntry allocateNewPage(final long fileId) throws IOException {
     synchronized (syncObject) {
       final long filledUpTo = getFilledUpTo(fileId);
-      return load(fileId, filledUpTo, false);
+      return loadPage(fileId, filledUpTo, false);
     }
   }
 
@@ -214,9 +258,13 @@ public class OReadWriteDiskCache implements ODiskCache {
       else
         throw new IllegalStateException("record should be released is already free!");
 
-      if (cacheEntry.usagesCount == 0 && cacheEntry.isDirty) {
+      // page is passed to write cache even if it is still used by other threads, otherwise write cache does not know that page
+      // is dirty and fuzzy checkpoint may move redo point after changes of page which are not flushed yet. Page stays dirty till
+      // the last release because it may be changed again by threads which still use it.
+      if (cacheEntry.isDirty) {
         flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
-        cacheEntry.isDirty = false;
+        if (cacheEntry.usagesCount == 0)
+          cacheEntry.isDirty = false;
       }
     }
 
@@ -251,6 +299,9 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void closeFile(long fileId, boolean flush) throws IOException {
+    if (readAhead != null)
+      readAhead.resetFile(fileId);
+
     synchronized (syncObject) {
       writeCache.close(fileId, flush);
 
@@ -286,6 +337,9 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void deleteFile(long fileId) throws IOException {
+    if (readAhead != null)
+      readAhead.resetFile(fileId);
+
     synchronized (syncObject) {
       if (isOpen(fileId))
         truncateFile(fileId);
@@ -297,6 +351,9 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void truncateFile(long fileId) throws IOException {
+    if (readAhead != null)
+      readAhead.resetFile(fileId);
+
     synchronized (syncObject) {
       writeCache.truncateFile(fileId);
 
@@ -393,6 +450,9 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void close() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
     synchronized (syncObject) {
       clear();
       writeCache.close();
@@ -466,9 +526,35 @@ public class OReadWriteDiskCache implements ODiskCache {
 
     removeColdestPageIfNeeded();
 
+    return putToA1in(fileId, pageIndex);
+  }
+
+  /**
+   * Loads page which is going to be read by sequential scan into aIn queue. Page is not loaded if it is already cached, is absent
+   * in file, or if it would evict page from hot am queue.
+   */
+  private int prefetchPage(final long fileId, final long pageIndex) throws IOException {
+    synchronized (syncObject) {
+      if (!writeCache.isOpen(fileId) || pageIndex >= writeCache.getFilledUpTo(fileId))
+        return ReadAheadPrefetcher.STOP;
+
+      if (get(fileId, pageIndex, true) != null || pinnedPages.containsKey(new PinnedPage(fileId, pageIndex)))
+        return ReadAheadPrefetcher.PAGE_CACHED;
+
+      if (am.size() + a1in.size() >= maxSize && a1in.size() <= K_IN)
+        return ReadAheadPrefetcher.STOP;
+
+      removeColdestPageIfNeeded();
+      putToA1in(fileId, pageIndex);
+
+      return ReadAheadPrefetcher.PAGE_LOADED;
+    }
+  }
+
+  private OCacheEntry putToA1in(final long fileId, final long pageIndex) throws IOException {
     OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
 
-    cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
+    OCacheEntry cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
     a1in.putToMRU(cacheEntry);
 
     Set<Long> pages = filePages.get(fileId);
@@ -559,8 +645,31 @@ public class OReadWriteDiskCache implements ODiskCache {
     }
   }
 
+  @Override
+  public int flushTillLsn(OLogSequenceNumber lsn) {
+    return writeCache.flushTillLsn(lsn);
+  }
+
+  @Override
+  public OLogSequenceNumber getMinDirtyLsn() {
+    return writeCache.getMinDirtyLsn();
+  }
+
+  @Override
+  public Map<String, Long> files() {
+    return writeCache.files();
+  }
+
+  @Override
+  public String getPageCompression(long fileId) {
+    return writeCache.getPageCompression(fileId);
+  }
+
   @Override
   public void delete() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
     synchronized (syncObject) {
       writeCache.delete();
 
@@ -0,0 +1,845 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * 2Q read cache which is split on several independent segments. Segment of page is chosen by hash of file id and page index, each
+ * segment has its own lock and its own 2Q queues, so loads and releases of pages which belong to different segments do not
+ * contend with each other. Capacity of cache is divided equally between segments.
+ *
+ * Operations which change state of whole file (close, truncate, delete) acquire locks of all segments in ascending order.
+ *
+ * Write cache ({@link OWOWCache}) is shared between all segments the same way as it is done in {@link OReadWriteDiskCache}.
+ */
+public class OSegmentedReadWriteDiskCache implements ODiskCache {
+  public static final int          MIN_CACHE_SIZE   = OReadWriteDiskCache.MIN_CACHE_SIZE;
+
+  /**
+   * Minimum amount of pages in single segment, if cache is too small amount of segments will be decreased.
+   */
+  public static final int          MIN_SEGMENT_SIZE = 64;
+
+  private final ReadCacheSegment[] segments;
+  private final int                segmentMask;
+
+  /**
+   * Serializes allocation of new pages inside of single file.
+   */
+  private final Object[]           allocationLocks;
+
+  private final Object             filesLock        = new Object();
+
+  private final OWOWCache          writeCache;
+  private final int                pageSize;
+
+  private final String             storageName;
+
+  private final ReadAheadPrefetcher readAhead;
+
+  private String                   METRIC_HITS;
+  private String                   METRIC_HITS_METADATA;
+  private String                   METRIC_MISSED;
+  private String                   METRIC_MISSED_METADATA;
+
+  public OSegmentedReadWriteDiskCache(final long readCacheMaxMemory, final long writeCacheMaxMemory, final int pageSize,
+      final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int segmentsCount) {
+    this(null, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL, pageFlushInterval, storageLocal, writeAheadLog,
+        syncOnPageFlush, checkMinSize, segmentsCount);
+  }
+
+  public OSegmentedReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int segmentsCount) {
+    this(storageName, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL, pageFlushInterval, storageLocal,
+        writeAheadLog, syncOnPageFlush, checkMinSize, segmentsCount, 0);
+  }
+
+  /**
+   * @param readAheadPages
+   *          Amount of pages which are loaded in background when sequential read of file is detected, 0 disables read ahead. Read
+   *          ahead window is limited by half of capacity of aIn queues.
+   */
+  public OSegmentedReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int segmentsCount,
+      final int readAheadPages) {
+    this.storageName = storageName;
+    this.pageSize = pageSize;
+
+    int maxSize = normalizeMemory(readCacheMaxMemory, pageSize);
+    if (checkMinSize && maxSize < MIN_CACHE_SIZE)
+      maxSize = MIN_CACHE_SIZE;
+
+    this.writeCache = new OWOWCache(syncOnPageFlush, pageSize, writeGroupTTL, writeAheadLog, pageFlushInterval, normalizeMemory(
+        writeCacheMaxMemory, pageSize), storageLocal, checkMinSize);
+
+    final int segmentsAmount = normalizeSegmentsCount(segmentsCount, maxSize);
+
+    segments = new ReadCacheSegment[segmentsAmount];
+    allocationLocks = new Object[segmentsAmount];
+    segmentMask = segmentsAmount - 1;
+
+    final int segmentSize = maxSize / segmentsAmount;
+    final int remainder = maxSize % segmentsAmount;
+
+    for (int i = 0; i < segmentsAmount; i++) {
+      segments[i] = new ReadCacheSegment(i < remainder ? segmentSize + 1 : segmentSize);
+      allocationLocks[i] = new Object();
+    }
+
+    final int readAheadWindow = Math.min(readAheadPages, maxSize >> 3);
+    if (readAheadWindow > 0)
+      readAhead = new ReadAheadPrefetcher(storageName, readAheadWindow, new ReadAheadPrefetcher.PageLoader() {
+        @Override
+        public int prefetchPage(long fileId, long pageIndex) throws IOException {
+          return OSegmentedReadWriteDiskCache.this.prefetchPage(fileId, pageIndex);
+        }
+      });
+    else
+      readAhead = null;
+
+    initProfiler();
+  }
+
+  /**
+   * Calculates amount of segments, result is always power of two and each segment contains at least {@link #MIN_SEGMENT_SIZE}
+   * pages (unless whole cache is smaller than single segment).
+   */
+  static int normalizeSegmentsCount(int segmentsCount, int maxSize) {
+    if (segmentsCount <= 0)
+      segmentsCount = Runtime.getRuntime().availableProcessors() << 1;
+
+    int segments = Integer.highestOneBit(segmentsCount);
+    while (segments > 1 && maxSize / segments < MIN_SEGMENT_SIZE)
+      segments >>= 1;
+
+    return segments;
+  }
+
+  int getSegmentsCount() {
+    return segments.length;
+  }
+
+  int getMaxSize() {
+    int maxSize = 0;
+    for (ReadCacheSegment segment : segments)
+      maxSize += segment.maxSize;
+
+    return maxSize;
+  }
+
+  ReadAheadPrefetcher getReadAhead() {
+    return readAhead;
+  }
+
+  int getSize() {
+    int size = 0;
+    for (ReadCacheSegment segment : segments)
+      size += segment.size();
+
+    return size;
+  }
+
+  @Override
+  public long openFile(final String fileName) throws IOException {
+    return openFile(fileName, OGlobalConfiguration.STORAGE_PAGE_COMPRESSION_METHOD.getValueAsString());
+  }
+
+  @Override
+  public long openFile(final String fileName, final String pageCompression) throws IOException {
+    synchronized (filesLock) {
+      long fileId = writeCache.isOpen(fileName);
+      if (fileId >= 0)
+        return fileId;
+
+      return writeCache.openFile(fileName, pageCompression);
+    }
+  }
+
+  @Override
+  public void openFile(final long fileId) throws IOException {
+    synchronized (filesLock) {
+      if (writeCache.isOpen(fileId))
+        return;
+
+      writeCache.openFile(fileId);
+    }
+  }
+
+  @Override
+  public void openFile(String fileName, long fileId) throws IOException {
+    synchronized (filesLock) {
+      long existingFileId = writeCache.isOpen(fileName);
+
+      if (fileId == existingFileId)
+        return;
+      else if (existingFileId >= 0)
+        throw new OStorageException("File with given name already exists but has different id " + existingFileId + " vs. proposed "
+            + fileId);
+
+      writeCache.openFile(fileName, fileId);
+    }
+  }
+
+  @Override
+  public boolean exists(final String fileName) {
+    return writeCache.exists(fileName);
+  }
+
+  @Override
+  public String fileNameById(long fileId) {
+    return writeCache.fileNameById(fileId);
+  }
+
+  @Override
+  public void lock() throws IOException {
+    writeCache.lock();
+  }
+
+  @Override
+  public void unlock() throws IOException {
+    writeCache.unlock();
+  }
+
+  @Override
+  public void pinPage(final OCacheEntry cacheEntry) throws IOException {
+    final ReadCacheSegment segment = segment(cacheEntry.fileId, cacheEntry.pageIndex);
+
+    segment.lock.lock();
+    try {
+      remove(segment, cacheEntry.fileId, cacheEntry.pageIndex);
+      segment.pinnedPages.put(new ReadCacheSegment.PinnedPage(cacheEntry.fileId, cacheEntry.pageIndex), cacheEntry);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void loadPinnedPage(final OCacheEntry cacheEntry) throws IOException {
+    final ReadCacheSegment segment = segment(cacheEntry.fileId, cacheEntry.pageIndex);
+
+    segment.lock.lock();
+    try {
+      cacheEntry.usagesCount++;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public OCacheEntry load(final long fileId, final long pageIndex, final boolean checkPinnedPages) throws IOException {
+    final OCacheEntry cacheEntry = loadPage(fileId, pageIndex, checkPinnedPages);
+
+    if (readAhead != null)
+      readAhead.pageLoaded(fileId, pageIndex);
+
+    return cacheEntry;
+  }
+
+  private OCacheEntry loadPage(final long fileId, final long pageIndex, final boolean checkPinnedPages) throws IOException {
+    final ReadCacheSegment segment = segment(fileId, pageIndex);
+
+    segment.lock.lock();
+    try {
+      OCacheEntry cacheEntry = null;
+      if (checkPinnedPages)
+        cacheEntry = segment.pinnedPages.get(new ReadCacheSegment.PinnedPage(fileId, pageIndex));
+
+      if (cacheEntry == null)
+        cacheEntry = updateCache(segment, fileId, pageIndex);
+
+      cacheEntry.usagesCount++;
+      return cacheEntry;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public OCacheEntry allocateNewPage(final long fileId) throws IOException {
+    synchronized (allocationLocks[(int) (mix(fileId) & segmentMask)]) {
+      final long filledUpTo = getFilledUpTo(fileId);
+      return loadPage(fileId, filledUpTo, false);
+    }
+  }
+
+  @Override
+  public void release(OCacheEntry cacheEntry) {
+    if (cacheEntry == null)
+      throw new IllegalStateException("record should be released is already free!");
+
+    final ReadCacheSegment segment = segment(cacheEntry.fileId, cacheEntry.pageIndex);
+
+    Future<?> flushFuture = null;
+    segment.lock.lock();
+    try {
+      cacheEntry.usagesCount--;
+
+      // page is passed to write cache even if it is still used by other threads, otherwise write cache does not know that page
+      // is dirty and fuzzy checkpoint may move redo point after changes of page which are not flushed yet. Page stays dirty till
+      // the last release because it may be changed again by threads which still use it.
+      if (cacheEntry.isDirty) {
+        flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
+        if (cacheEntry.usagesCount == 0)
+          cacheEntry.isDirty = false;
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+
+    if (flushFuture != null) {
+      try {
+        flushFuture.get();
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        throw new OException("File flush was interrupted", e);
+      } catch (Exception e) {
+        throw new OException("File flush was abnormally terminated", e);
+      }
+    }
+  }
+
+  @Override
+  public long getFilledUpTo(long fileId) throws IOException {
+    return writeCache.getFilledUpTo(fileId);
+  }
+
+  @Override
+  public void flushFile(long fileId) throws IOException {
+    writeCache.flush(fileId);
+  }
+
+  @Override
+  public void closeFile(final long fileId) throws IOException {
+    closeFile(fileId, true);
+  }
+
+  @Override
+  public void closeFile(long fileId, boolean flush) throws IOException {
+    if (readAhead != null)
+      readAhead.resetFile(fileId);
+
+    lockAllSegments();
+    try {
+      writeCache.close(fileId, flush);
+
+      for (ReadCacheSegment segment : segments) {
+        final Set<Long> pageIndexes = segment.filePages.get(fileId);
+        if (pageIndexes == null)
+          continue;
+
+        for (Long pageIndex : pageIndexes) {
+          OCacheEntry cacheEntry = get(segment, fileId, pageIndex, true);
+          if (cacheEntry == null)
+            cacheEntry = segment.pinnedPages.get(new ReadCacheSegment.PinnedPage(fileId, pageIndex));
+
+          if (cacheEntry != null) {
+            if (cacheEntry.dataPointer != null) {
+              if (cacheEntry.usagesCount == 0) {
+                cacheEntry = remove(segment, fileId, pageIndex);
+
+                if (cacheEntry == null)
+                  cacheEntry = segment.pinnedPages.remove(new ReadCacheSegment.PinnedPage(fileId, pageIndex));
+              } else
+                throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
+                    + " can not be freed because it is used.");
+
+              cacheEntry.dataPointer.decrementReferrer();
+              cacheEntry.dataPointer = null;
+            }
+          } else {
+            throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId + " was not found in cache");
+          }
+        }
+
+        pageIndexes.clear();
+      }
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void deleteFile(long fileId) throws IOException {
+    if (readAhead != null)
+      readAhead.resetFile(fileId);
+
+    lockAllSegments();
+    try {
+      if (isOpen(fileId))
+        truncateFile(fileId);
+
+      writeCache.deleteFile(fileId);
+
+      for (ReadCacheSegment segment : segments)
+        segment.filePages.remove(fileId);
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void truncateFile(long fileId) throws IOException {
+    if (readAhead != null)
+      readAhead.resetFile(fileId);
+
+    lockAllSegments();
+    try {
+      writeCache.truncateFile(fileId);
+
+      for (ReadCacheSegment segment : segments) {
+        final Set<Long> pageEntries = segment.filePages.get(fileId);
+        if (pageEntries == null)
+          continue;
+
+        for (Long pageIndex : pageEntries) {
+          OCacheEntry cacheEntry = get(segment, fileId, pageIndex, true);
+          if (cacheEntry == null)
+            cacheEntry = segment.pinnedPages.get(new ReadCacheSegment.PinnedPage(fileId, pageIndex));
+
+          if (cacheEntry != null) {
+            if (cacheEntry.usagesCount == 0) {
+              cacheEntry = remove(segment, fileId, pageIndex);
+              if (cacheEntry == null)
+                cacheEntry = segment.pinnedPages.remove(new ReadCacheSegment.PinnedPage(fileId, pageIndex));
+
+              if (cacheEntry.dataPointer != null) {
+                cacheEntry.dataPointer.decrementReferrer();
+                cacheEntry.dataPointer = null;
+              }
+            }
+          } else
+            throw new OStorageException("Page with index " + pageIndex + " was  not found in cache for file with id " + fileId);
+        }
+
+        pageEntries.clear();
+      }
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void renameFile(long fileId, String oldFileName, String newFileName) throws IOException {
+    synchronized (filesLock) {
+      writeCache.renameFile(fileId, oldFileName, newFileName);
+    }
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    writeCache.flush();
+  }
+
+  @Override
+  public void clear() throws IOException {
+    writeCache.flush();
+
+    lockAllSegments();
+    try {
+      clearCacheContent();
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
+    lockAllSegments();
+    try {
+      clear();
+      writeCache.close();
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public boolean wasSoftlyClosed(long fileId) throws IOException {
+    return writeCache.wasSoftlyClosed(fileId);
+  }
+
+  @Override
+  public void setSoftlyClosed(long fileId, boolean softlyClosed) throws IOException {
+    writeCache.setSoftlyClosed(fileId, softlyClosed);
+  }
+
+  @Override
+  public void setSoftlyClosed(boolean softlyClosed) throws IOException {
+    writeCache.setSoftlyClosed(softlyClosed);
+  }
+
+  @Override
+  public boolean isOpen(long fileId) {
+    return writeCache.isOpen(fileId);
+  }
+
+  @Override
+  public OPageDataVerificationError[] checkStoredPages(OCommandOutputListener commandOutputListener) {
+    return writeCache.checkStoredPages(commandOutputListener);
+  }
+
+  @Override
+  public Set<ODirtyPage> logDirtyPagesTable() throws IOException {
+    return writeCache.logDirtyPagesTable();
+  }
+
+  @Override
+  public void forceSyncStoredChanges() throws IOException {
+    writeCache.forceSyncStoredChanges();
+  }
+
+  @Override
+  public int flushTillLsn(OLogSequenceNumber lsn) {
+    return writeCache.flushTillLsn(lsn);
+  }
+
+  @Override
+  public OLogSequenceNumber getMinDirtyLsn() {
+    return writeCache.getMinDirtyLsn();
+  }
+
+  @Override
+  public Map<String, Long> files() {
+    return writeCache.files();
+  }
+
+  @Override
+  public String getPageCompression(long fileId) {
+    return writeCache.getPageCompression(fileId);
+  }
+
+  @Override
+  public void delete() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
+    lockAllSegments();
+    try {
+      writeCache.delete();
+
+      clearCacheContent();
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  private ReadCacheSegment segment(long fileId, long pageIndex) {
+    return segments[(int) (mix(fileId * 31 + pageIndex) & segmentMask)];
+  }
+
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+
+    return value;
+  }
+
+  private void lockAllSegments() {
+    for (ReadCacheSegment segment : segments)
+      segment.lock.lock();
+  }
+
+  private void unlockAllSegments() {
+    for (int i = segments.length - 1; i >= 0; i--)
+      segments[i].lock.unlock();
+  }
+
+  private OCacheEntry updateCache(final ReadCacheSegment segment, final long fileId, final long pageIndex) throws IOException {
+    final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
+    final long startTime = storageName != null ? System.currentTimeMillis() : 0;
+
+    OCacheEntry cacheEntry = segment.am.get(fileId, pageIndex);
+
+    if (cacheEntry != null) {
+      segment.am.putToMRU(cacheEntry);
+
+      if (profiler != null && profiler.isRecording())
+        profiler.stopChrono(METRIC_HITS, "Requested item was found in Disk Cache", startTime, METRIC_HITS_METADATA);
+
+      return cacheEntry;
+    }
+
+    if (profiler != null && profiler.isRecording())
+      profiler.stopChrono(METRIC_MISSED, "Requested item was not found in Disk Cache", startTime, METRIC_MISSED_METADATA);
+
+    cacheEntry = segment.a1out.remove(fileId, pageIndex);
+    if (cacheEntry != null) {
+      removeColdestPageIfNeeded(segment);
+
+      OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+      assert cacheEntry.dataPointer == null;
+      assert !cacheEntry.isDirty;
+
+      cacheEntry.dataPointer = dataPointer;
+
+      segment.am.putToMRU(cacheEntry);
+
+      return cacheEntry;
+    }
+
+    cacheEntry = segment.a1in.get(fileId, pageIndex);
+    if (cacheEntry != null)
+      return cacheEntry;
+
+    removeColdestPageIfNeeded(segment);
+
+    return putToA1in(segment, fileId, pageIndex);
+  }
+
+  /**
+   * Loads page which is going to be read by sequential scan into aIn queue of its segment. Page is not loaded if it is already
+   * cached, is absent in file, or if it would evict page from hot am queue.
+   */
+  private int prefetchPage(final long fileId, final long pageIndex) throws IOException {
+    final ReadCacheSegment segment = segment(fileId, pageIndex);
+
+    segment.lock.lock();
+    try {
+      if (!writeCache.isOpen(fileId) || pageIndex >= writeCache.getFilledUpTo(fileId))
+        return ReadAheadPrefetcher.STOP;
+
+      if (get(segment, fileId, pageIndex, true) != null
+          || segment.pinnedPages.containsKey(new ReadCacheSegment.PinnedPage(fileId, pageIndex)))
+        return ReadAheadPrefetcher.PAGE_CACHED;
+
+      if (segment.size() >= segment.maxSize && segment.a1in.size() <= segment.K_IN)
+        return ReadAheadPrefetcher.STOP;
+
+      removeColdestPageIfNeeded(segment);
+      putToA1in(segment, fileId, pageIndex);
+
+      return ReadAheadPrefetcher.PAGE_LOADED;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  private OCacheEntry putToA1in(final ReadCacheSegment segment, final long fileId, final long pageIndex) throws IOException {
+    OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+
+    OCacheEntry cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
+    segment.a1in.putToMRU(cacheEntry);
+
+    Set<Long> pages = segment.filePages.get(fileId);
+    if (pages == null) {
+      pages = new HashSet<Long>();
+      segment.filePages.put(fileId, pages);
+    }
+
+    pages.add(pageIndex);
+    return cacheEntry;
+  }
+
+  private void removeColdestPageIfNeeded(final ReadCacheSegment segment) throws IOException {
+    if (segment.am.size() + segment.a1in.size() >= segment.maxSize) {
+      if (segment.a1in.size() > segment.K_IN) {
+        OCacheEntry removedFromAInEntry = segment.a1in.removeLRU();
+
+        if (removedFromAInEntry == null) {
+          increaseCacheSize(segment);
+        } else {
+          assert removedFromAInEntry.usagesCount == 0;
+          assert !removedFromAInEntry.isDirty;
+
+          removedFromAInEntry.dataPointer.decrementReferrer();
+          removedFromAInEntry.dataPointer = null;
+
+          segment.a1out.putToMRU(removedFromAInEntry);
+        }
+
+        if (segment.a1out.size() > segment.K_OUT) {
+          OCacheEntry removedEntry = segment.a1out.removeLRU();
+          assert removedEntry.dataPointer == null;
+          assert !removedEntry.isDirty;
+
+          Set<Long> pageEntries = segment.filePages.get(removedEntry.fileId);
+          pageEntries.remove(removedEntry.pageIndex);
+        }
+      } else {
+        OCacheEntry removedEntry = segment.am.removeLRU();
+
+        if (removedEntry == null) {
+          increaseCacheSize(segment);
+        } else {
+          assert removedEntry.usagesCount == 0;
+          assert !removedEntry.isDirty;
+
+          removedEntry.dataPointer.decrementReferrer();
+          removedEntry.dataPointer = null;
+
+          Set<Long> pageEntries = segment.filePages.get(removedEntry.fileId);
+          pageEntries.remove(removedEntry.pageIndex);
+        }
+      }
+    }
+  }
+
+  private void increaseCacheSize(final ReadCacheSegment segment) {
+    String message = "All records in aIn queue in 2q cache segment are used!";
+    OLogManager.instance().warn(this, message);
+    if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
+      OLogManager.instance().warn(this, "Cache segment size will be increased.");
+      segment.setMaxSize((int) Math.ceil(segment.maxSize * (1 + OGlobalConfiguration.SERVER_CACHE_INCREASE_STEP.getValueAsFloat())));
+    } else {
+      throw new OAllCacheEntriesAreUsedException(message);
+    }
+  }
+
+  private void clearCacheContent() {
+    for (ReadCacheSegment segment : segments) {
+      for (OCacheEntry cacheEntry : segment.am)
+        if (cacheEntry.usagesCount == 0) {
+          cacheEntry.dataPointer.decrementReferrer();
+          cacheEntry.dataPointer = null;
+        } else
+          throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
+              + " is used and can not be removed");
+
+      for (OCacheEntry cacheEntry : segment.a1in)
+        if (cacheEntry.usagesCount == 0) {
+          cacheEntry.dataPointer.decrementReferrer();
+          cacheEntry.dataPointer = null;
+        } else
+          throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
+              + " is used and can not be removed");
+
+      segment.a1out.clear();
+      segment.am.clear();
+      segment.a1in.clear();
+
+      for (Set<Long> pages : segment.filePages.values())
+        pages.clear();
+
+      for (OCacheEntry pinnedEntry : segment.pinnedPages.values()) {
+        if (pinnedEntry.usagesCount == 0) {
+          pinnedEntry.dataPointer.decrementReferrer();
+          pinnedEntry.dataPointer = null;
+        } else
+          throw new OStorageException("Page with index " + pinnedEntry.pageIndex + " for file with id " + pinnedEntry.fileId
+              + "can not be freed because it is used.");
+      }
+
+      segment.pinnedPages.clear();
+    }
+  }
+
+  private OCacheEntry get(ReadCacheSegment segment, long fileId, long pageIndex, boolean useOutQueue) {
+    OCacheEntry cacheEntry = segment.am.get(fileId, pageIndex);
+
+    if (cacheEntry != null)
+      return cacheEntry;
+
+    if (useOutQueue) {
+      cacheEntry = segment.a1out.get(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
+    }
+
+    cacheEntry = segment.a1in.get(fileId, pageIndex);
+    return cacheEntry;
+  }
+
+  private OCacheEntry remove(ReadCacheSegment segment, long fileId, long pageIndex) {
+    OCacheEntry cacheEntry = segment.am.remove(fileId, pageIndex);
+    if (cacheEntry != null) {
+      if (cacheEntry.usagesCount > 1)
+        throw new IllegalStateException("Record cannot be removed because it is used!");
+      return cacheEntry;
+    }
+
+    cacheEntry = segment.a1out.remove(fileId, pageIndex);
+    if (cacheEntry != null) {
+      return cacheEntry;
+    }
+    cacheEntry = segment.a1in.remove(fileId, pageIndex);
+    if (cacheEntry != null && cacheEntry.usagesCount > 1)
+      throw new IllegalStateException("Record cannot be removed because it is used!");
+    return cacheEntry;
+  }
+
+  private int normalizeMemory(long maxSize, int pageSize) {
+    long tmpMaxSize = maxSize / pageSize;
+    if (tmpMaxSize >= Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    } else {
+      return (int) tmpMaxSize;
+    }
+  }
+
+  public void initProfiler() {
+    if (storageName != null) {
+      final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+      METRIC_HITS = profiler.getDatabaseMetric(storageName, "diskCache.hits");
+      METRIC_HITS_METADATA = profiler.getDatabaseMetric(null, "diskCache.hits");
+      METRIC_MISSED = profiler.getDatabaseMetric(storageName, "diskCache.missed");
+      METRIC_MISSED_METADATA = profiler.getDatabaseMetric(null, "diskCache.missed");
+
+      profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.totalMemory"),
+          "Total memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              return (long) getSize() * pageSize;
+            }
+          }, profiler.getDatabaseMetric(null, "diskCache.totalMemory"));
+
+      profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.maxMemory"),
+          "Maximum memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              return (long) getMaxSize() * pageSize;
+            }
+          }, profiler.getDatabaseMetric(null, "diskCache.maxMemory"));
+
+      profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.segments"),
+          "Amount of independently locked segments of Disk Cache", METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              return segments.length;
+            }
+          }, profiler.getDatabaseMetric(null, "diskCache.segments"));
+    }
+  }
+}
@@ -19,18 +19,25 @@ import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfilerMBean;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.storage.fs.OFile;
 import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+import com.orientechnologies.orient.core.storage.fs.OPageCompressedFile;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperation;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperationsManager;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
@@ -52,12 +59,16 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.CRC32;
 
 /**
@@ -73,12 +84,24 @@ public class OWOWCache {
 
   public static final long                                  MAGIC_NUMBER          = 0xFACB03FEL;
 
-  private final ConcurrentSkipListMap<GroupKey, WriteGroup> writeGroups           = new ConcurrentSkipListMap<GroupKey, WriteGroup>();
+  /**
+   * Ratio of dirty pages in write cache after which amount of flushed pages grows proportionally to the amount of dirty pages.
+   */
+  private static final double                               LOW_DIRTY_RATIO       = 0.5;
+
+  /**
+   * Ratio of dirty pages in write cache after which pages are flushed regardless of their recency and flush is repeated without
+   * delay.
+   */
+  private static final double                               HIGH_DIRTY_RATIO      = 0.8;
+
+  private final FlushPartition[]                            partitions;
   private final OBinarySerializer<String>                   stringSerializer;
-  private final Map<Long, OFileClassic>                     files;
+  private final Map<Long, OFile>                            files;
   private final boolean                                     syncOnPageFlush;
   private final int                                         pageSize;
   private final long                                        groupTTL;
+  private final long                                        pageFlushInterval;
   private final OWriteAheadLog                              writeAheadLog;
   private final AtomicInteger                               cacheSize             = new AtomicInteger();
   private final OLockManager<GroupKey, Thread>              lockManager           = new OLockManager<GroupKey, Thread>(
@@ -87,23 +110,15 @@ public class OWOWCache {
                                                                                           .getValueAsInteger());
   private final OStorageLocalAbstract                       storageLocal;
   private final Object                                      syncObject            = new Object();
-  private final ScheduledExecutorService                    commitExecutor        = Executors
-                                                                                      .newSingleThreadScheduledExecutor(new ThreadFactory() {
-                                                                                        @Override
-                                                                                        public Thread newThread(Runnable r) {
-                                                                                          Thread thread = new Thread(r);
-                                                                                          thread.setDaemon(true);
-                                                                                          thread
-                                                                                              .setName("OrientDB Write Cache Flush Task ("
-                                                                                                  + storageLocal.getName() + ")");
-                                                                                          return thread;
-                                                                                        }
-                                                                                      });
+  private final Object                                      cacheGrowLock         = new Object();
+  private final AtomicLong                                  flushedPages          = new AtomicLong();
+  private final AtomicLong                                  writersWaitTime       = new AtomicLong();
+  private final String                                      METRIC_FLUSHED_PAGES;
+  private final String                                      METRIC_WRITERS_WAIT;
   private Map<String, Long>                                 nameIdMap;
   private RandomAccessFile                                  nameIdMapHolder;
   private volatile int                                      cacheMaxSize;
   private long                                              fileCounter           = 0;
-  private GroupKey                                          lastGroupKey          = new GroupKey(0, -1);
   private File                                              nameIdMapHolderFile;
 
   private static final class NameFileIdEntry {
@@ -194,53 +209,129 @@ public class OWOWCache {
     }
   }
 
+  /**
+   * Part of write cache which is flushed by single thread. Files are assigned to partitions by their ids, so pages of the same file
+   * are always flushed by the same thread in order of their position in file.
+   */
+  private final class FlushPartition {
+    private final ConcurrentSkipListMap<GroupKey, WriteGroup> writeGroups  = new ConcurrentSkipListMap<GroupKey, WriteGroup>();
+    private final ScheduledExecutorService                    executor;
+    private GroupKey                                          lastGroupKey = new GroupKey(0, -1);
+
+    private FlushPartition(final int index, final int partitionsCount) {
+      executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          if (partitionsCount > 1)
+            thread.setName("OrientDB Write Cache Flush Task (" + storageLocal.getName() + ") #" + index);
+          else
+            thread.setName("OrientDB Write Cache Flush Task (" + storageLocal.getName() + ")");
+          return thread;
+        }
+      });
+    }
+
+    private void schedule(long delay) {
+      if (executor.isShutdown())
+        return;
+
+      try {
+        executor.schedule(new PeriodicFlushTask(this, true), delay, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // cache is closed
+      }
+    }
+
+    private void shutdown() {
+      if (executor.isShutdown())
+        return;
+
+      executor.shutdown();
+      try {
+        if (!executor.awaitTermination(5, TimeUnit.MINUTES))
+          throw new OException("Background data flush task can not be stopped.");
+      } catch (InterruptedException e) {
+        OLogManager.instance().error(this, "Data flush thread was interrupted");
+
+        Thread.interrupted();
+        throw new OException("Data flush thread was interrupted", e);
+      }
+    }
+  }
+
   private final class PeriodicFlushTask implements Runnable {
+    private final FlushPartition partition;
+    private final boolean        periodic;
+
+    private PeriodicFlushTask(FlushPartition partition, boolean periodic) {
+      this.partition = partition;
+      this.periodic = periodic;
+    }
 
     @Override
     public void run() {
+      boolean flushAgain = false;
       try {
+        final NavigableMap<GroupKey, WriteGroup> writeGroups = partition.writeGroups;
         if (writeGroups.isEmpty())
           return;
 
+        final int groupsCount = writeGroups.size();
+        final double dirtyRatio = ((double) cacheSize.get()) / cacheMaxSize;
+
         int writeGroupsToFlush;
         boolean useForceSync = false;
-        double threshold = ((double) cacheSize.get()) / cacheMaxSize;
-        if (threshold > 0.8) {
-          writeGroupsToFlush = (int) (0.2 * writeGroups.size());
-          useForceSync = true;
-        } else if (threshold > 0.9) {
-          writeGroupsToFlush = (int) (0.4 * writeGroups.size());
+        if (dirtyRatio > HIGH_DIRTY_RATIO) {
+          writeGroupsToFlush = (int) (groupsCount * Math.min(1.0, 2 * (dirtyRatio - HIGH_DIRTY_RATIO) + 0.2));
           useForceSync = true;
+          flushAgain = true;
+        } else if (dirtyRatio > LOW_DIRTY_RATIO) {
+          writeGroupsToFlush = (int) (0.2 * groupsCount * (dirtyRatio - LOW_DIRTY_RATIO) / (HIGH_DIRTY_RATIO - LOW_DIRTY_RATIO));
         } else
           writeGroupsToFlush = 1;
 
         if (writeGroupsToFlush < 1)
           writeGroupsToFlush = 1;
 
-        int flushedGroups = 0;
-
-        flushedGroups = flushRing(writeGroupsToFlush, flushedGroups, false);
+        int flushedGroups = flushRing(writeGroupsToFlush, 0, false);
 
         if (flushedGroups < writeGroupsToFlush && useForceSync)
           flushedGroups = flushRing(writeGroupsToFlush, flushedGroups, true);
 
-        if (flushedGroups < writeGroupsToFlush && cacheSize.get() > cacheMaxSize) {
-          if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
-            final long oldCacheMaxSize = cacheMaxSize;
+        if (flushedGroups == 0)
+          flushAgain = false;
 
-            cacheMaxSize = (int) Math.ceil(cacheMaxSize * (1 + OGlobalConfiguration.SERVER_CACHE_INCREASE_STEP.getValueAsFloat()));
-            OLogManager.instance().warn(this, "Write cache size is increased from %d to %d", oldCacheMaxSize, cacheMaxSize);
-          } else {
-            throw new OAllCacheEntriesAreUsedException("All records in write cache are used!");
+        if (flushedGroups < writeGroupsToFlush && cacheSize.get() > cacheMaxSize) {
+          flushAgain = false;
+
+          synchronized (cacheGrowLock) {
+            if (cacheSize.get() > cacheMaxSize) {
+              if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
+                final long oldCacheMaxSize = cacheMaxSize;
+
+                cacheMaxSize = (int) Math.ceil(cacheMaxSize
+                    * (1 + OGlobalConfiguration.SERVER_CACHE_INCREASE_STEP.getValueAsFloat()));
+                OLogManager.instance().warn(this, "Write cache size is increased from %d to %d", oldCacheMaxSize, cacheMaxSize);
+              } else {
+                throw new OAllCacheEntriesAreUsedException("All records in write cache are used!");
+              }
+            }
           }
         }
       } catch (Exception e) {
+        flushAgain = false;
         OLogManager.instance().error(this, "Exception during data flush.", e);
+      } finally {
+        if (periodic)
+          partition.schedule(flushAgain ? 0 : pageFlushInterval);
       }
     }
 
     private int flushRing(int writeGroupsToFlush, int flushedGroups, boolean forceFlush) throws IOException {
-      NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.tailMap(lastGroupKey, false);
+      final ConcurrentSkipListMap<GroupKey, WriteGroup> writeGroups = partition.writeGroups;
+      NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.tailMap(partition.lastGroupKey, false);
 
       if (!subMap.isEmpty()) {
         flushedGroups = iterateBySubRing(subMap, writeGroupsToFlush, 0, forceFlush);
@@ -307,12 +398,13 @@ public class OWOWCache {
             flushedWriteGroups++;
 
             cacheSize.addAndGet(-flushedPages);
+            countFlushedPages(groupKey.fileId, flushedPages);
           }
         } finally {
           lockManager.releaseLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
         }
 
-        lastGroupKey = groupKey;
+        partition.lastGroupKey = groupKey;
       }
 
       return flushedWriteGroups;
@@ -331,47 +423,74 @@ public class OWOWCache {
       final GroupKey firstKey = new GroupKey(fileId, 0);
       final GroupKey lastKey = new GroupKey(fileId, Long.MAX_VALUE);
 
-      NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.subMap(firstKey, true, lastKey, true);
+      NavigableMap<GroupKey, WriteGroup> subMap = partition(fileId).writeGroups.subMap(firstKey, true, lastKey, true);
       Iterator<Map.Entry<GroupKey, WriteGroup>> entryIterator = subMap.entrySet().iterator();
 
-      groupsLoop: while (entryIterator.hasNext()) {
+      while (entryIterator.hasNext()) {
         Map.Entry<GroupKey, WriteGroup> entry = entryIterator.next();
-        final WriteGroup writeGroup = entry.getValue();
         final GroupKey groupKey = entry.getKey();
 
         lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
         try {
-          int flushedPages = 0;
+          if (flushWriteGroup(groupKey, entry.getValue()))
+            entryIterator.remove();
+        } finally {
+          lockManager.releaseLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+        }
+      }
 
-          for (int i = 0; i < 16; i++) {
-            OCachePointer pagePointer = writeGroup.pages[i];
+      files.get(fileId).synch();
+      return null;
+    }
+  }
 
-            if (pagePointer != null) {
-              if (!pagePointer.tryAcquireSharedLock())
-                continue groupsLoop;
+  /**
+   * Flushes write groups of partition which contain pages which became dirty before given LSN, so redo point of fuzzy checkpoint
+   * can be moved after it. Groups which contain pages locked for write are skipped, they are flushed by one of the next checkpoints.
+   */
+  private final class CheckpointFlushTask implements Callable<Integer> {
+    private final FlushPartition     partition;
+    private final OLogSequenceNumber lsn;
+
+    private CheckpointFlushTask(FlushPartition partition, OLogSequenceNumber lsn) {
+      this.partition = partition;
+      this.lsn = lsn;
+    }
 
-              try {
-                flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
-                flushedPages++;
-              } finally {
-                pagePointer.releaseSharedLock();
-              }
-            }
-          }
+    @Override
+    public Integer call() throws Exception {
+      int flushedGroups = 0;
 
-          for (OCachePointer pagePointer : writeGroup.pages)
-            if (pagePointer != null)
-              pagePointer.decrementReferrer();
+      Iterator<Map.Entry<GroupKey, WriteGroup>> entryIterator = partition.writeGroups.entrySet().iterator();
+      while (entryIterator.hasNext()) {
+        Map.Entry<GroupKey, WriteGroup> entry = entryIterator.next();
+        final GroupKey groupKey = entry.getKey();
+        final WriteGroup writeGroup = entry.getValue();
 
-          cacheSize.addAndGet(-flushedPages);
-          entryIterator.remove();
+        lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+        try {
+          if (isDirtyBefore(writeGroup, lsn) && flushWriteGroup(groupKey, writeGroup)) {
+            entryIterator.remove();
+            flushedGroups++;
+          }
         } finally {
-          lockManager.releaseLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
+          lockManager.releaseLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
         }
       }
 
-      files.get(fileId).synch();
-      return null;
+      return flushedGroups;
+    }
+
+    private boolean isDirtyBefore(WriteGroup writeGroup, OLogSequenceNumber lsn) {
+      for (int i = 0; i < 16; i++) {
+        if (writeGroup.pages[i] != null) {
+          final OLogSequenceNumber recoveryLsn = writeGroup.recoveryLsns[i];
+          if (recoveryLsn == null || recoveryLsn.compareTo(lsn) < 0)
+            return true;
+        }
+      }
+
+      return false;
     }
   }
 
@@ -387,7 +506,7 @@ public class OWOWCache {
       final GroupKey firstKey = new GroupKey(fileId, 0);
       final GroupKey lastKey = new GroupKey(fileId, Long.MAX_VALUE);
 
-      NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.subMap(firstKey, true, lastKey, true);
+      NavigableMap<GroupKey, WriteGroup> subMap = partition(fileId).writeGroups.subMap(firstKey, true, lastKey, true);
       Iterator<Map.Entry<GroupKey, WriteGroup>> entryIterator = subMap.entrySet().iterator();
 
       while (entryIterator.hasNext()) {
@@ -419,14 +538,87 @@ public class OWOWCache {
     }
   }
 
+  /**
+   * Future which is returned to the writer if write cache is overflowed. It waits till flush of all partitions triggered by the
+   * writer is finished and accounts time spent by writer in waiting of free space in write cache.
+   */
+  private final class FreeSpaceFuture implements Future<Void> {
+    private final List<Future<?>> futures;
+
+    private FreeSpaceFuture(List<Future<?>> futures) {
+      this.futures = futures;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled = true;
+      for (Future<?> future : futures)
+        cancelled &= future.cancel(mayInterruptIfRunning);
+
+      return cancelled;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      for (Future<?> future : futures)
+        if (!future.isCancelled())
+          return false;
+
+      return true;
+    }
+
+    @Override
+    public boolean isDone() {
+      for (Future<?> future : futures)
+        if (!future.isDone())
+          return false;
+
+      return true;
+    }
+
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+      final long startTime = System.nanoTime();
+      try {
+        for (Future<?> future : futures)
+          future.get();
+      } finally {
+        countWritersWait(startTime);
+      }
+
+      return null;
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      final long startTime = System.nanoTime();
+      final long deadline = startTime + unit.toNanos(timeout);
+      try {
+        for (Future<?> future : futures)
+          future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } finally {
+        countWritersWait(startTime);
+      }
+
+      return null;
+    }
+  }
+
   public OWOWCache(boolean syncOnPageFlush, int pageSize, long groupTTL, OWriteAheadLog writeAheadLog, long pageFlushInterval,
       int cacheMaxSize, OStorageLocalAbstract storageLocal, boolean checkMinSize) {
-    this.files = new ConcurrentHashMap<Long, OFileClassic>();
+    this(syncOnPageFlush, pageSize, groupTTL, writeAheadLog, pageFlushInterval, cacheMaxSize, storageLocal, checkMinSize,
+        OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_THREADS.getValueAsInteger());
+  }
+
+  public OWOWCache(boolean syncOnPageFlush, int pageSize, long groupTTL, OWriteAheadLog writeAheadLog, long pageFlushInterval,
+      int cacheMaxSize, OStorageLocalAbstract storageLocal, boolean checkMinSize, int flushThreads) {
+    this.files = new ConcurrentHashMap<Long, OFile>();
 
     this.syncOnPageFlush = syncOnPageFlush;
     this.pageSize = pageSize;
     this.groupTTL = groupTTL;
     this.writeAheadLog = writeAheadLog;
+    this.pageFlushInterval = pageFlushInterval;
     this.cacheMaxSize = cacheMaxSize;
     this.storageLocal = storageLocal;
 
@@ -436,8 +628,20 @@ public class OWOWCache {
     if (checkMinSize && this.cacheMaxSize < MIN_CACHE_SIZE)
       this.cacheMaxSize = MIN_CACHE_SIZE;
 
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    METRIC_FLUSHED_PAGES = profiler.getDatabaseMetric(storageLocal.getName(), "diskCache.flushedPages");
+    METRIC_WRITERS_WAIT = profiler.getDatabaseMetric(storageLocal.getName(), "diskCache.writeCacheWait");
+
+    if (flushThreads < 1)
+      flushThreads = 1;
+
+    partitions = new FlushPartition[flushThreads];
+    for (int i = 0; i < flushThreads; i++)
+      partitions[i] = new FlushPartition(i, flushThreads);
+
     if (pageFlushInterval > 0)
-      commitExecutor.scheduleWithFixedDelay(new PeriodicFlushTask(), pageFlushInterval, pageFlushInterval, TimeUnit.MILLISECONDS);
+      for (FlushPartition partition : partitions)
+        partition.schedule(pageFlushInterval);
   }
 
   private static int calculatePageCrc(byte[] pageData) {
@@ -450,11 +654,15 @@ public class OWOWCache {
   }
 
   public long openFile(String fileName) throws IOException {
+    return openFile(fileName, storageLocal.getPageCompression(fileName));
+  }
+
+  public long openFile(String fileName, String pageCompression) throws IOException {
     synchronized (syncObject) {
       initNameIdMapping();
 
       Long fileId = nameIdMap.get(fileName);
-      OFileClassic fileClassic;
+      OFile fileClassic;
       if (fileId == null)
         fileClassic = null;
       else
@@ -463,7 +671,7 @@ public class OWOWCache {
       if (fileClassic == null) {
         fileId = ++fileCounter;
 
-        fileClassic = createFile(fileName);
+        fileClassic = createFile(fileName, pageCompression);
 
         files.put(fileId, fileClassic);
         nameIdMap.put(fileName, fileId);
@@ -480,7 +688,7 @@ public class OWOWCache {
     synchronized (syncObject) {
       initNameIdMapping();
 
-      OFileClassic fileClassic;
+      OFile fileClassic;
 
       Long existingFileId = nameIdMap.get(fileName);
 
@@ -494,7 +702,7 @@ public class OWOWCache {
         if (fileCounter < fileId)
           fileCounter = fileId;
 
-        fileClassic = createFile(fileName);
+        fileClassic = createFile(fileName, storageLocal.getPageCompression(fileName));
 
         files.put(fileId, fileClassic);
         nameIdMap.put(fileName, fileId);
@@ -506,13 +714,13 @@ public class OWOWCache {
   }
 
   public void lock() throws IOException {
-    for (OFileClassic file : files.values()) {
+    for (OFile file : files.values()) {
       file.lock();
     }
   }
 
   public void unlock() throws IOException {
-    for (OFileClassic file : files.values()) {
+    for (OFile file : files.values()) {
       file.unlock();
     }
   }
@@ -521,7 +729,7 @@ public class OWOWCache {
     synchronized (syncObject) {
       initNameIdMapping();
 
-      final OFileClassic fileClassic = files.get(fileId);
+      final OFile fileClassic = files.get(fileId);
       if (fileClassic == null)
         throw new OStorageException("File with id " + fileId + " does not exist.");
 
@@ -545,6 +753,7 @@ public class OWOWCache {
 
     synchronized (syncObject) {
       final GroupKey groupKey = new GroupKey(fileId, pageIndex >>> 4);
+      final ConcurrentSkipListMap<GroupKey, WriteGroup> writeGroups = partition(fileId).writeGroups;
       lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
       try {
         WriteGroup writeGroup = writeGroups.get(groupKey);
@@ -558,6 +767,7 @@ public class OWOWCache {
         if (writeGroup.pages[entryIndex] == null) {
           dataPointer.incrementReferrer();
           writeGroup.pages[entryIndex] = dataPointer;
+          writeGroup.recoveryLsns[entryIndex] = recoveryLsn();
 
           cacheSize.incrementAndGet();
         } else {
@@ -575,7 +785,12 @@ public class OWOWCache {
       }
 
       if (cacheSize.get() > cacheMaxSize) {
-        future = commitExecutor.submit(new PeriodicFlushTask());
+        final List<Future<?>> futures = new ArrayList<Future<?>>(partitions.length);
+        for (FlushPartition partition : partitions)
+          if (!partition.writeGroups.isEmpty())
+            futures.add(partition.executor.submit(new PeriodicFlushTask(partition, false)));
+
+        future = new FreeSpaceFuture(futures);
       }
 
       return future;
@@ -587,7 +802,7 @@ public class OWOWCache {
       final GroupKey groupKey = new GroupKey(fileId, pageIndex >>> 4);
       lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.SHARED);
       try {
-        final WriteGroup writeGroup = writeGroups.get(groupKey);
+        final WriteGroup writeGroup = partition(fileId).writeGroups.get(groupKey);
 
         OCachePointer pagePointer;
         if (writeGroup == null) {
@@ -612,7 +827,75 @@ public class OWOWCache {
   }
 
   public void flush(long fileId) {
-    final Future<Void> future = commitExecutor.submit(new FileFlushTask(fileId));
+    final Future<Void> future = partition(fileId).executor.submit(new FileFlushTask(fileId));
+    waitFileFlush(future);
+  }
+
+  public void flush() {
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>(files.size());
+    for (long fileId : files.keySet())
+      futures.add(partition(fileId).executor.submit(new FileFlushTask(fileId)));
+
+    for (Future<Void> future : futures)
+      waitFileFlush(future);
+  }
+
+  /**
+   * Flushes pages which became dirty before given LSN. Pages are flushed by threads of flush partitions, so this method does not
+   * block writers which change pages of other write groups.
+   *
+   * @return amount of flushed write groups.
+   */
+  public int flushTillLsn(OLogSequenceNumber lsn) {
+    final List<Future<Integer>> futures = new ArrayList<Future<Integer>>(partitions.length);
+    for (FlushPartition partition : partitions)
+      if (!partition.writeGroups.isEmpty())
+        futures.add(partition.executor.submit(new CheckpointFlushTask(partition, lsn)));
+
+    int flushedGroups = 0;
+    for (Future<Integer> future : futures) {
+      try {
+        flushedGroups += future.get();
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        throw new OException("Checkpoint flush was interrupted", e);
+      } catch (Exception e) {
+        throw new OException("Checkpoint flush was abnormally terminated", e);
+      }
+    }
+
+    return flushedGroups;
+  }
+
+  /**
+   * @return minimal LSN starting from which changes of pages which are not flushed yet should be replayed during restore after
+   *         crash, or <code>null</code> if there are no dirty pages.
+   */
+  public OLogSequenceNumber getMinDirtyLsn() {
+    OLogSequenceNumber minLsn = null;
+
+    for (FlushPartition partition : partitions) {
+      for (Map.Entry<GroupKey, WriteGroup> entry : partition.writeGroups.entrySet()) {
+        final GroupKey groupKey = entry.getKey();
+        final WriteGroup writeGroup = entry.getValue();
+
+        lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.SHARED);
+        try {
+          for (int i = 0; i < 16; i++) {
+            final OLogSequenceNumber recoveryLsn = writeGroup.recoveryLsns[i];
+            if (writeGroup.pages[i] != null && recoveryLsn != null && (minLsn == null || recoveryLsn.compareTo(minLsn) < 0))
+              minLsn = recoveryLsn;
+          }
+        } finally {
+          lockManager.releaseLock(Thread.currentThread(), groupKey, OLockManager.LOCK.SHARED);
+        }
+      }
+    }
+
+    return minLsn;
+  }
+
+  private void waitFileFlush(Future<Void> future) {
     try {
       future.get();
     } catch (InterruptedException e) {
@@ -623,11 +906,6 @@ public class OWOWCache {
     }
   }
 
-  public void flush() {
-    for (long fileId : files.keySet())
-      flush(fileId);
-  }
-
   public long getFilledUpTo(long fileId) throws IOException {
     synchronized (syncObject) {
       return files.get(fileId).getFilledUpTo() / pageSize;
@@ -636,14 +914,14 @@ public class OWOWCache {
 
   public void forceSyncStoredChanges() throws IOException {
     synchronized (syncObject) {
-      for (OFileClassic fileClassic : files.values())
+      for (OFile fileClassic : files.values())
         fileClassic.synch();
     }
   }
 
   public boolean isOpen(long fileId) {
     synchronized (syncObject) {
-      OFileClassic fileClassic = files.get(fileId);
+      OFile fileClassic = files.get(fileId);
       if (fileClassic != null)
         return fileClassic.isOpen();
 
@@ -659,7 +937,7 @@ public class OWOWCache {
       if (fileId == null)
         return -1;
 
-      final OFileClassic fileClassic = files.get(fileId);
+      final OFile fileClassic = files.get(fileId);
       if (fileClassic == null || !fileClassic.isOpen())
         return -1;
 
@@ -669,7 +947,7 @@ public class OWOWCache {
 
   public void setSoftlyClosed(long fileId, boolean softlyClosed) throws IOException {
     synchronized (syncObject) {
-      OFileClassic fileClassic = files.get(fileId);
+      OFile fileClassic = files.get(fileId);
       if (fileClassic != null && fileClassic.isOpen())
         fileClassic.setSoftlyClosed(softlyClosed);
     }
@@ -684,7 +962,7 @@ public class OWOWCache {
 
   public boolean wasSoftlyClosed(long fileId) throws IOException {
     synchronized (syncObject) {
-      OFileClassic fileClassic = files.get(fileId);
+      OFile fileClassic = files.get(fileId);
       if (fileClassic == null)
         return false;
 
@@ -714,7 +992,7 @@ public class OWOWCache {
       if (!files.containsKey(fileId))
         return;
 
-      final OFileClassic file = files.get(fileId);
+      final OFile file = files.get(fileId);
       final String osFileName = file.getName();
       if (osFileName.startsWith(oldFileName)) {
         final File newFile = new File(storageLocal.getStoragePath() + File.separator + newFileName
@@ -737,21 +1015,11 @@ public class OWOWCache {
   public void close() throws IOException {
     flush();
 
-    if (!commitExecutor.isShutdown()) {
-      commitExecutor.shutdown();
-      try {
-        if (!commitExecutor.awaitTermination(5, TimeUnit.MINUTES))
-          throw new OException("Background data flush task can not be stopped.");
-      } catch (InterruptedException e) {
-        OLogManager.instance().error(this, "Data flush thread was interrupted");
-
-        Thread.interrupted();
-        throw new OException("Data flush thread was interrupted", e);
-      }
-    }
+    for (FlushPartition partition : partitions)
+      partition.shutdown();
 
     synchronized (syncObject) {
-      for (OFileClassic fileClassic : files.values()) {
+      for (OFile fileClassic : files.values()) {
         if (fileClassic.isOpen())
           fileClassic.close();
       }
@@ -772,18 +1040,20 @@ public class OWOWCache {
       if (writeAheadLog == null)
         return Collections.emptySet();
 
-      Set<ODirtyPage> logDirtyPages = new HashSet<ODirtyPage>(writeGroups.size() * 16);
-      for (Map.Entry<GroupKey, WriteGroup> writeGroupEntry : writeGroups.entrySet()) {
-        final GroupKey groupKey = writeGroupEntry.getKey();
-        final WriteGroup writeGroup = writeGroupEntry.getValue();
-        for (int i = 0; i < 16; i++) {
-          final OCachePointer cachePointer = writeGroup.pages[i];
-          if (cachePointer != null) {
-            final OLogSequenceNumber lastFlushedLSN = cachePointer.getLastFlushedLsn();
-            final String fileName = files.get(groupKey.fileId).getName();
-            final long pageIndex = (groupKey.groupIndex << 4) + i;
-            final ODirtyPage logDirtyPage = new ODirtyPage(fileName, pageIndex, lastFlushedLSN);
-            logDirtyPages.add(logDirtyPage);
+      Set<ODirtyPage> logDirtyPages = new HashSet<ODirtyPage>(cacheSize.get());
+      for (FlushPartition partition : partitions) {
+        for (Map.Entry<GroupKey, WriteGroup> writeGroupEntry : partition.writeGroups.entrySet()) {
+          final GroupKey groupKey = writeGroupEntry.getKey();
+          final WriteGroup writeGroup = writeGroupEntry.getValue();
+          for (int i = 0; i < 16; i++) {
+            final OCachePointer cachePointer = writeGroup.pages[i];
+            if (cachePointer != null) {
+              final OLogSequenceNumber lastFlushedLSN = cachePointer.getLastFlushedLsn();
+              final String fileName = files.get(groupKey.fileId).getName();
+              final long pageIndex = (groupKey.groupIndex << 4) + i;
+              final ODirtyPage logDirtyPage = new ODirtyPage(fileName, pageIndex, lastFlushedLSN);
+              logDirtyPages.add(logDirtyPage);
+            }
           }
         }
       }
@@ -811,7 +1081,7 @@ public class OWOWCache {
     synchronized (syncObject) {
       for (long fileId : files.keySet()) {
 
-        OFileClassic fileClassic = files.get(fileId);
+        OFile fileClassic = files.get(fileId);
 
         boolean fileIsCorrect;
         try {
@@ -906,18 +1176,8 @@ public class OWOWCache {
       }
     }
 
-    if (!commitExecutor.isShutdown()) {
-      commitExecutor.shutdown();
-      try {
-        if (!commitExecutor.awaitTermination(5, TimeUnit.MINUTES))
-          throw new OException("Background data flush task can not be stopped.");
-      } catch (InterruptedException e) {
-        OLogManager.instance().error(this, "Data flush thread was interrupted");
-
-        Thread.interrupted();
-        throw new OException("Data flush thread was interrupted", e);
-      }
-    }
+    for (FlushPartition partition : partitions)
+      partition.shutdown();
   }
 
   public String fileNameById(long fileId) {
@@ -926,7 +1186,28 @@ public class OWOWCache {
     }
   }
 
-  private void openFile(OFileClassic fileClassic) throws IOException {
+  public Map<String, Long> files() {
+    synchronized (syncObject) {
+      final Map<String, Long> result = new HashMap<String, Long>();
+      for (Map.Entry<Long, OFile> entry : files.entrySet())
+        if (entry.getValue().isOpen())
+          result.put(entry.getValue().getName(), entry.getKey());
+
+      return result;
+    }
+  }
+
+  public String getPageCompression(long fileId) {
+    synchronized (syncObject) {
+      final OFile file = files.get(fileId);
+      if (file instanceof OPageCompressedFile)
+        return ((OPageCompressedFile) file).getCompressionName();
+
+      return ONothingCompression.NAME;
+    }
+  }
+
+  private void openFile(OFile fileClassic) throws IOException {
     if (fileClassic.exists()) {
       if (!fileClassic.isOpen())
         fileClassic.open();
@@ -951,10 +1232,25 @@ public class OWOWCache {
     }
   }
 
-  private OFileClassic createFile(String fileName) {
+  /**
+   * Creates file which is not opened yet. Pages of file are compressed if file was created with page compression, or if file does
+   * not exist and compression different from "nothing" is requested.
+   */
+  private OFile createFile(String fileName, String pageCompression) {
     OFileClassic fileClassic = new OFileClassic();
     String path = storageLocal.getVariableParser().resolveVariables(storageLocal.getStoragePath() + File.separator + fileName);
     fileClassic.init(path, storageLocal.getMode());
+
+    final boolean directIO = OGlobalConfiguration.FILE_DIRECT_IO.getValueAsBoolean();
+    final String accessAdvice = OGlobalConfiguration.FILE_ACCESS_ADVICE.getValueAsString();
+    final boolean dropOSCache = OGlobalConfiguration.FILE_DROP_OS_CACHE.getValueAsBoolean();
+    if (directIO || dropOSCache || !"none".equalsIgnoreCase(accessAdvice))
+      fileClassic.setNativeIO(directIO, accessAdvice, dropOSCache);
+
+    if (OPageCompressedFile.isPageCompressed(path)
+        || (!fileClassic.exists() && !ONothingCompression.NAME.equals(pageCompression)))
+      return new OPageCompressedFile(fileClassic, pageSize, pageCompression);
+
     return fileClassic;
   }
 
@@ -980,7 +1276,7 @@ public class OWOWCache {
 
     for (Map.Entry<String, Long> nameIdEntry : nameIdMap.entrySet()) {
       if (!files.containsKey(nameIdEntry.getValue())) {
-        OFileClassic fileClassic = createFile(nameIdEntry.getKey());
+        OFile fileClassic = createFile(nameIdEntry.getKey(), storageLocal.getPageCompression(nameIdEntry.getKey()));
         files.put(nameIdEntry.getValue(), fileClassic);
       }
     }
@@ -1022,7 +1318,7 @@ public class OWOWCache {
     if (isOpen(fileId))
       truncateFile(fileId);
 
-    final OFileClassic fileClassic = files.remove(fileId);
+    final OFile fileClassic = files.remove(fileId);
 
     String name = null;
     if (fileClassic != null) {
@@ -1036,7 +1332,7 @@ public class OWOWCache {
   }
 
   private void removeCachedPages(long fileId) {
-    Future<Void> future = commitExecutor.submit(new RemoveFilePagesTask(fileId));
+    Future<Void> future = partition(fileId).executor.submit(new RemoveFilePagesTask(fileId));
     try {
       future.get();
     } catch (InterruptedException e) {
@@ -1047,13 +1343,126 @@ public class OWOWCache {
     }
   }
 
+  private FlushPartition partition(long fileId) {
+    return partitions[(int) ((fileId & Long.MAX_VALUE) % partitions.length)];
+  }
+
+  /**
+   * Flushes all pages of write group, should be called by thread of partition to which group belongs under exclusive lock of
+   * group.
+   *
+   * @return <code>true</code> if all pages are flushed and group can be removed from write cache, <code>false</code> if one of pages
+   *         is locked for write.
+   */
+  private boolean flushWriteGroup(GroupKey groupKey, WriteGroup writeGroup) throws IOException {
+    int flushedPages = 0;
+
+    for (int i = 0; i < 16; i++) {
+      OCachePointer pagePointer = writeGroup.pages[i];
+
+      if (pagePointer != null) {
+        if (!pagePointer.tryAcquireSharedLock())
+          return false;
+
+        try {
+          flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
+          flushedPages++;
+        } finally {
+          pagePointer.releaseSharedLock();
+        }
+      }
+    }
+
+    for (OCachePointer pagePointer : writeGroup.pages)
+      if (pagePointer != null)
+        pagePointer.decrementReferrer();
+
+    cacheSize.addAndGet(-flushedPages);
+    countFlushedPages(groupKey.fileId, flushedPages);
+    return true;
+  }
+
+  /**
+   * @return LSN starting from which changes of page which becomes dirty should be replayed during restore after crash. Pages are
+   *         passed to write cache by thread which changes them before the end of atomic operation, so start of current atomic
+   *         operation is used. Pages which are changed outside of atomic operation are bound to the oldest active operation.
+   */
+  private OLogSequenceNumber recoveryLsn() {
+    if (writeAheadLog == null)
+      return null;
+
+    final OAtomicOperationsManager atomicOperationsManager = storageLocal.getAtomicOperationsManager();
+    if (atomicOperationsManager == null)
+      return null;
+
+    final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
+    if (atomicOperation != null)
+      return atomicOperation.getStartLSN();
+
+    try {
+      return atomicOperationsManager.getActiveOperationsStartLSN();
+    } catch (IOException e) {
+      throw new OStorageException("Error during calculation of recovery LSN of page", e);
+    }
+  }
+
+  private void countFlushedPages(long fileId, int pages) {
+    if (pages == 0)
+      return;
+
+    flushedPages.addAndGet(pages);
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording()) {
+      profiler.updateCounter(METRIC_FLUSHED_PAGES, "Amount of pages flushed from write cache to the disk", pages,
+          profiler.getDatabaseMetric(null, "diskCache.flushedPages"));
+
+      final OFile fileClassic = files.get(fileId);
+      if (fileClassic != null)
+        profiler.updateCounter(METRIC_FLUSHED_PAGES + "." + fileClassic.getName(),
+            "Amount of pages of single file flushed from write cache to the disk", pages,
+            profiler.getDatabaseMetric(null, "diskCache.flushedPages.*"));
+    }
+  }
+
+  private void countWritersWait(long startTime) {
+    writersWaitTime.addAndGet(System.nanoTime() - startTime);
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording())
+      profiler.stopChrono(METRIC_WRITERS_WAIT, "Time which writers wait till free space in write cache is available",
+          System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+          profiler.getDatabaseMetric(null, "diskCache.writeCacheWait"));
+  }
+
+  /**
+   * @return amount of threads which flush pages from write cache.
+   */
+  int getFlushThreads() {
+    return partitions.length;
+  }
+
+  /**
+   * @return amount of pages flushed from write cache since its creation.
+   */
+  long getFlushedPages() {
+    return flushedPages.get();
+  }
+
+  /**
+   * @return total time in nanoseconds which writers spent in waiting for free space in write cache.
+   */
+  long getWritersWaitTime() {
+    return writersWaitTime.get();
+  }
+
   private OCachePointer cacheFileContent(long fileId, long pageIndex) throws IOException {
     final long startPosition = pageIndex * pageSize;
     final long endPosition = startPosition + pageSize;
 
     byte[] content = new byte[pageSize];
     OCachePointer dataPointer;
-    final OFileClassic fileClassic = files.get(fileId);
+    final OFile fileClassic = files.get(fileId);
 
     if (fileClassic == null)
       throw new IllegalArgumentException("File with id " + fileId + " not found in WOW Cache");
@@ -1088,7 +1497,7 @@ public class OWOWCache {
     final int crc32 = calculatePageCrc(content);
     OIntegerSerializer.INSTANCE.serializeNative(crc32, content, OLongSerializer.LONG_SIZE);
 
-    final OFileClassic fileClassic = files.get(fileId);
+    final OFile fileClassic = files.get(fileId);
     fileClassic.write(pageIndex * pageSize, content);
 
     if (syncOnPageFlush)
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.orient.core.Orient;
+
+/**
+ * Detects sequential reads of pages of the same file (cluster scan, position map scan) and asynchronously loads next pages of
+ * file into read cache before they are requested.
+ *
+ * Read of each page is reported by {@link #pageLoaded(long, long)}. If {@link #SEQUENTIAL_THRESHOLD} pages in a row are read in
+ * ascending order, next {@link #getWindow()} pages are submitted to background thread which loads them using {@link PageLoader}.
+ * Next portion of pages is submitted when reader passes half of already prefetched window, so disk reads of background thread
+ * overlap with processing of pages by reader. Any non sequential read of file resets its state.
+ */
+final class ReadAheadPrefetcher {
+  /**
+   * Amount of sequential page reads after which read ahead is started.
+   */
+  static final int               SEQUENTIAL_THRESHOLD = 2;
+
+  static final int               PAGE_LOADED          = 0;
+  static final int               PAGE_CACHED          = 1;
+  static final int               STOP                 = 2;
+
+  /**
+   * Loads page into read cache, implementation should not promote page into hot queue of 2Q cache.
+   */
+  interface PageLoader {
+    /**
+     * @return {@link #PAGE_LOADED} if page was loaded, {@link #PAGE_CACHED} if page is already in cache, or {@link #STOP} if pages
+     *         of file can not be prefetched any more (end of file is reached, file is closed, cache does not have free space).
+     */
+    int prefetchPage(long fileId, long pageIndex) throws IOException;
+  }
+
+  private static final class FileState {
+    private long    lastPageIndex = -1;
+    private int     sequentialReads;
+
+    /**
+     * Index of first page which was not submitted for read ahead yet.
+     */
+    private long    readAheadEnd;
+    private boolean inProgress;
+  }
+
+  private final ConcurrentMap<Long, FileState> files           = new ConcurrentHashMap<Long, FileState>();
+  private final ExecutorService                executor;
+  private final PageLoader                     pageLoader;
+  private final int                            window;
+
+  private final AtomicLong                     prefetchedPages = new AtomicLong();
+
+  private final String                         METRIC_READ_AHEAD_PAGES;
+  private final String                         METRIC_READ_AHEAD_PAGES_METADATA;
+
+  ReadAheadPrefetcher(final String storageName, final int window, final PageLoader pageLoader) {
+    this.window = window;
+    this.pageLoader = pageLoader;
+
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        thread.setName("OrientDB Read Ahead Task (" + storageName + ")");
+        return thread;
+      }
+    });
+
+    if (storageName != null) {
+      final OProfilerMBean profiler = Orient.instance().getProfiler();
+      METRIC_READ_AHEAD_PAGES = profiler.getDatabaseMetric(storageName, "diskCache.readAheadPages");
+      METRIC_READ_AHEAD_PAGES_METADATA = profiler.getDatabaseMetric(null, "diskCache.readAheadPages");
+    } else {
+      METRIC_READ_AHEAD_PAGES = null;
+      METRIC_READ_AHEAD_PAGES_METADATA = null;
+    }
+  }
+
+  int getWindow() {
+    return window;
+  }
+
+  long getPrefetchedPages() {
+    return prefetchedPages.get();
+  }
+
+  void pageLoaded(final long fileId, final long pageIndex) {
+    FileState state = files.get(fileId);
+    if (state == null) {
+      state = new FileState();
+      final FileState oldState = files.putIfAbsent(fileId, state);
+      if (oldState != null)
+        state = oldState;
+    }
+
+    final long from;
+    final long to;
+
+    synchronized (state) {
+      if (pageIndex == state.lastPageIndex)
+        return;
+
+      if (state.lastPageIndex >= 0 && pageIndex == state.lastPageIndex + 1)
+        state.sequentialReads++;
+      else {
+        state.sequentialReads = 0;
+        state.readAheadEnd = 0;
+      }
+
+      state.lastPageIndex = pageIndex;
+
+      if (state.sequentialReads < SEQUENTIAL_THRESHOLD || state.inProgress)
+        return;
+
+      if (state.readAheadEnd - pageIndex > window >> 1)
+        return;
+
+      from = Math.max(state.readAheadEnd, pageIndex + 1);
+      to = pageIndex + 1 + window;
+
+      state.readAheadEnd = to;
+      state.inProgress = true;
+    }
+
+    try {
+      executor.submit(new ReadAheadTask(fileId, state, from, to));
+    } catch (RejectedExecutionException e) {
+      // cache is closed
+      synchronized (state) {
+        state.inProgress = false;
+      }
+    }
+  }
+
+  /**
+   * Forgets access history of file, should be called when file is closed, truncated or deleted.
+   */
+  void resetFile(final long fileId) {
+    files.remove(fileId);
+  }
+
+  /**
+   * Stops background thread and waits till current read ahead task is completed. Should be called before cache lock is acquired
+   * because read ahead task acquires the same lock to put page in cache.
+   */
+  void shutdown() {
+    executor.shutdownNow();
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.MINUTES))
+        OLogManager.instance().warn(this, "Read ahead task was not stopped in 5 minutes");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    files.clear();
+  }
+
+  private final class ReadAheadTask implements Runnable {
+    private final long      fileId;
+    private final FileState state;
+    private final long      from;
+    private final long      to;
+
+    private ReadAheadTask(long fileId, FileState state, long from, long to) {
+      this.fileId = fileId;
+      this.state = state;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public void run() {
+      long loaded = 0;
+      try {
+        for (long pageIndex = from; pageIndex < to; pageIndex++) {
+          if (Thread.currentThread().isInterrupted())
+            break;
+
+          final int result = pageLoader.prefetchPage(fileId, pageIndex);
+          if (result == STOP)
+            break;
+
+          if (result == PAGE_LOADED)
+            loaded++;
+        }
+      } catch (Throwable e) {
+        OLogManager.instance().warn(this, "Error during read ahead of pages of file with id " + fileId, e);
+      } finally {
+        synchronized (state) {
+          state.inProgress = false;
+        }
+
+        prefetchedPages.addAndGet(loaded);
+
+        if (loaded > 0 && METRIC_READ_AHEAD_PAGES != null) {
+          final OProfilerMBean profiler = Orient.instance().getProfiler();
+          if (profiler.isRecording())
+            profiler.updateCounter(METRIC_READ_AHEAD_PAGES, "Amount of pages which were read ahead by Disk Cache", loaded,
+                METRIC_READ_AHEAD_PAGES_METADATA);
+        }
+      }
+    }
+  }
+}
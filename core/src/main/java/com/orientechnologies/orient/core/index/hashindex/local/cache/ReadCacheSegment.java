@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Part of 2Q read cache state which is used by {@link OSegmentedReadWriteDiskCache}. Each segment contains own 2Q queues, pinned
+ * pages and list of cached pages for each file, so pages which belong to different segments can be loaded and released in
+ * parallel.
+ *
+ * State of segment is not thread safe, it should be accessed only when {@link #lock} is held.
+ */
+final class ReadCacheSegment {
+  final ReentrantLock                   lock        = new ReentrantLock();
+
+  final LRUList                         am          = new LRUList();
+  final LRUList                         a1out       = new LRUList();
+  final LRUList                         a1in        = new LRUList();
+
+  /**
+   * Contains all pages of segment for given file.
+   */
+  final Map<Long, Set<Long>>            filePages   = new HashMap<Long, Set<Long>>();
+
+  final Map<PinnedPage, OCacheEntry>    pinnedPages = new HashMap<PinnedPage, OCacheEntry>();
+
+  volatile int                          maxSize;
+  int                                   K_IN;
+  int                                   K_OUT;
+
+  ReadCacheSegment(int maxSize) {
+    setMaxSize(maxSize);
+  }
+
+  void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+
+    K_IN = maxSize >> 2;
+    K_OUT = maxSize >> 1;
+  }
+
+  int size() {
+    return am.size() + a1in.size();
+  }
+
+  static final class PinnedPage {
+    private final long fileId;
+    private final long pageIndex;
+
+    PinnedPage(long fileId, long pageIndex) {
+      this.fileId = fileId;
+      this.pageIndex = pageIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+
+      PinnedPage that = (PinnedPage) o;
+
+      if (fileId != that.fileId)
+        return false;
+      if (pageIndex != that.pageIndex)
+        return false;
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (fileId ^ (fileId >>> 32));
+      result = 31 * result + (int) (pageIndex ^ (pageIndex >>> 32));
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return "PinnedPage{" + "fileId=" + fileId + ", pageIndex=" + pageIndex + '}';
+    }
+  }
+}
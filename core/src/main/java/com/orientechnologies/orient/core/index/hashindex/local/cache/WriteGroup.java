@@ -1,14 +1,21 @@
 package com.orientechnologies.orient.core.index.hashindex.local.cache;
 
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+
 /**
  * @author Andrey Lomakin
  * @since 7/24/13
  */
 class WriteGroup {
-  public OCachePointer[]  pages = new OCachePointer[16];
+  public OCachePointer[]      pages        = new OCachePointer[16];
+
+  /**
+   * LSNs starting from which changes of pages should be replayed during restore after crash, they are set when page becomes dirty.
+   */
+  public OLogSequenceNumber[] recoveryLsns = new OLogSequenceNumber[16];
 
-  public volatile boolean recencyBit;
-  public final long       creationTime;
+  public volatile boolean     recencyBit;
+  public final long           creationTime;
 
   WriteGroup(long creationTime) {
     this.recencyBit = true;
@@ -17,9 +17,12 @@
 package com.orientechnologies.orient.core.index.sbtree.local;
 
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -88,12 +91,26 @@ public class OSBTree<K, V> extends ODurableComponent {
 
   private boolean                             nullPointerSupport;
 
+  /**
+   * If <code>true</code> modifications which do not change structure of tree are done under shared lock of tree and exclusive lock
+   * of leaf page, see {@link #optimisticPut(Object, Object)} and {@link #optimisticRemove(Object)}.
+   */
+  private final boolean                       concurrentModifications;
+
+  /**
+   * Whether new root and leaf pages are prefix compressed, split pages inherit format of page which is split.
+   */
+  private boolean                             prefixCompression;
+
+  private static final Object                 OPTIMISTIC_MODIFICATION_FAILED = new Object();
+
   public OSBTree(String dataFileExtension, int keySize, boolean durableInNonTxMode, String nullFileExtension) {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean());
     this.dataFileExtension = dataFileExtension;
     this.keySize = keySize;
     this.nullFileExtension = nullFileExtension;
     this.durableInNonTxMode = durableInNonTxMode;
+    this.concurrentModifications = OGlobalConfiguration.SBTREE_CONCURRENT_MODIFICATIONS.getValueAsBoolean();
   }
 
   public void create(String name, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer, OType[] keyTypes,
@@ -109,6 +126,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       this.keySerializer = keySerializer;
       this.valueSerializer = valueSerializer;
       this.nullPointerSupport = nullPointerSupport;
+      this.prefixCompression = OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.getValueAsBoolean();
 
       fileId = diskCache.openFile(name + dataFileExtension);
 
@@ -124,8 +142,8 @@ public class OSBTree<K, V> extends ODurableComponent {
       try {
         super.startAtomicOperation();
 
-        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, keySerializer, keyTypes,
-            valueSerializer, getTrackMode());
+        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, prefixCompression,
+            keySerializer, keyTypes, valueSerializer, getTrackMode());
         rootBucket.setTreeSize(0);
 
         super.logPageChanges(rootBucket, fileId, ROOT_INDEX, true);
@@ -183,13 +201,20 @@ public class OSBTree<K, V> extends ODurableComponent {
         long pageIndex = bucketSearchResult.getLastPathItem();
         OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
         OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+        keyBucketPointer.acquireSharedLock();
         try {
           OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
               valueSerializer, ODurablePage.TrackMode.NONE);
 
-          OSBTreeBucket.SBTreeEntry<K, V> treeEntry = keyBucket.getEntry(bucketSearchResult.itemIndex);
+          // entries of leaf page could be shifted by concurrent modification after page was released by findBucket
+          final int itemIndex = concurrentModifications ? keyBucket.find(key) : bucketSearchResult.itemIndex;
+          if (itemIndex < 0)
+            return null;
+
+          OSBTreeBucket.SBTreeEntry<K, V> treeEntry = keyBucket.getEntry(itemIndex);
           return readValue(treeEntry.value);
         } finally {
+          keyBucketPointer.releaseSharedLock();
           diskCache.release(keyBucketCacheEntry);
         }
       } else {
@@ -217,12 +242,110 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Looks up several keys at once. Keys are sorted and neighbour keys are searched in the same leaf page, so leaf page is loaded
+   * once for all keys which it contains and descent from root is done only for keys which are not found in current or next leaf
+   * page.
+   * 
+   * @return values of found keys, keys of returned map are the same instances which were passed in.
+   */
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    if (keySerializer == null)
+      throw new OIndexException("keySerializer for index " + this.getName()
+          + " is null. Please rebuild the index before to use it.");
+
+    final Map<K, V> result = new HashMap<K, V>();
+    final List<Map.Entry<K, K>> sortedKeys = new ArrayList<Map.Entry<K, K>>(keys.size());
+
+    boolean containsNullKey = false;
+    for (K key : keys) {
+      if (key == null) {
+        containsNullKey = true;
+        continue;
+      }
+
+      sortedKeys.add(new AbstractMap.SimpleImmutableEntry<K, K>(keySerializer.preprocess(key, (Object[]) keyTypes), key));
+    }
+
+    Collections.sort(sortedKeys, new Comparator<Map.Entry<K, K>>() {
+      @Override
+      public int compare(Map.Entry<K, K> entryOne, Map.Entry<K, K> entryTwo) {
+        return comparator.compare(entryOne.getKey(), entryTwo.getKey());
+      }
+    });
+
+    acquireSharedLock();
+    try {
+      int keyIndex = 0;
+      while (keyIndex < sortedKeys.size()) {
+        final BucketSearchResult bucketSearchResult = findBucket(sortedKeys.get(keyIndex).getKey());
+        long pageIndex = bucketSearchResult.getLastPathItem();
+        boolean pageIsFoundByDescent = true;
+
+        while (pageIndex >= 0 && keyIndex < sortedKeys.size()) {
+          final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
+          final OCachePointer cachePointer = cacheEntry.getCachePointer();
+          cachePointer.acquireSharedLock();
+          try {
+            final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes,
+                valueSerializer, ODurablePage.TrackMode.NONE);
+
+            final int bucketSize = bucket.size();
+            // the first key is always searched in page found by descent, other keys only if they are not bigger than last key of
+            // page, otherwise they can belong to one of next pages
+            final K lastKey = bucketSize > 0 ? bucket.getKey(bucketSize - 1) : null;
+            final int startKeyIndex = keyIndex;
+
+            while (keyIndex < sortedKeys.size()) {
+              final Map.Entry<K, K> key = sortedKeys.get(keyIndex);
+              if ((keyIndex > startKeyIndex || !pageIsFoundByDescent)
+                  && (lastKey == null || comparator.compare(key.getKey(), lastKey) > 0))
+                break;
+
+              final int itemIndex = bucket.find(key.getKey());
+              if (itemIndex >= 0)
+                result.put(key.getValue(), readValue(bucket.getEntry(itemIndex).value));
+
+              keyIndex++;
+            }
+
+            // if keys are dense next key is likely to be in right sibling page, otherwise new descent from root is cheaper than
+            // iteration over leaf pages
+            pageIndex = -1;
+            if (keyIndex < sortedKeys.size() && keyIndex > startKeyIndex + 1)
+              pageIndex = bucket.getRightSibling();
+
+            pageIsFoundByDescent = false;
+          } finally {
+            cachePointer.releaseSharedLock();
+            diskCache.release(cacheEntry);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new OSBTreeException("Error during retrieving  of sbtree with name " + name, e);
+    } finally {
+      releaseSharedLock();
+    }
+
+    if (containsNullKey) {
+      final V nullValue = get(null);
+      if (nullValue != null)
+        result.put(null, nullValue);
+    }
+
+    return result;
+  }
+
   private void checkNullSupport(K key) {
     if (key == null && !nullPointerSupport)
       throw new OSBTreeException("Null keys are not supported.");
   }
 
   public void put(K key, V value) {
+    if (key != null && concurrentModifications && optimisticPut(key, value))
+      return;
+
     acquireExclusiveLock();
     final OStorageTransaction transaction = storage.getStorageTransaction();
     try {
@@ -312,7 +435,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         diskCache.release(keyBucketCacheEntry);
 
         if (sizeDiff != 0)
-          setSize(size() + sizeDiff);
+          updateSize(sizeDiff);
 
         endAtomicOperation(false);
       } else {
@@ -358,7 +481,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
         sizeDiff++;
 
-        setSize(size() + sizeDiff);
+        updateSize(sizeDiff);
         endAtomicOperation(false);
       }
     } catch (IOException e) {
@@ -369,6 +492,148 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Puts key into leaf page holding only shared lock of tree, so modifications of different leaf pages are not serialized. Only
+   * split changes internal pages and it is done under exclusive lock of tree, so path to the leaf page can not be changed during
+   * this operation. Leaf page is locked exclusively while it is modified and tree size is updated under exclusive lock of root
+   * page.
+   * 
+   * @return <code>false</code> if modification requires split of leaf page, creation or removal of value stored in separate pages
+   *         or it is done inside of storage transaction. In such case it should be repeated under exclusive lock of tree.
+   */
+  private boolean optimisticPut(K key, V value) {
+    acquireSharedLock();
+    final OStorageTransaction transaction = storage.getStorageTransaction();
+    try {
+      // storage transaction holds exclusive lock of storage so there are no concurrent modifications anyway
+      if (transaction != null)
+        return false;
+
+      final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+      if (keySize > MAX_KEY_SIZE || valueSerializer.getObjectSize(value) > MAX_EMBEDDED_VALUE_SIZE)
+        return false;
+
+      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+      final OSBTreeValue<V> treeValue = new OSBTreeValue<V>(false, -1, value);
+
+      startAtomicOperation();
+
+      final BucketSearchResult bucketSearchResult = findBucket(key);
+      final long pageIndex = bucketSearchResult.getLastPathItem();
+
+      final int sizeDiff;
+      final OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
+      final OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+      keyBucketPointer.acquireExclusiveLock();
+      try {
+        final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
+            valueSerializer, getTrackMode());
+
+        // entries of leaf page could be shifted by concurrent modification after page was released by findBucket
+        final int itemIndex = keyBucket.find(key);
+        if (itemIndex >= 0) {
+          if (keyBucket.getEntry(itemIndex).value.isLink())
+            sizeDiff = -1;
+          else {
+            final int updateResult = keyBucket.updateValue(itemIndex, treeValue);
+            if (updateResult == 1) {
+              logPageChanges(keyBucket, fileId, pageIndex, false);
+              keyBucketCacheEntry.markDirty();
+            }
+
+            sizeDiff = updateResult < 0 ? -1 : 0;
+          }
+        } else {
+          if (keyBucket.addEntry(-itemIndex - 1, new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, treeValue), true)) {
+            logPageChanges(keyBucket, fileId, pageIndex, false);
+            keyBucketCacheEntry.markDirty();
+
+            sizeDiff = 1;
+          } else
+            sizeDiff = -1;
+        }
+      } finally {
+        keyBucketPointer.releaseExclusiveLock();
+        diskCache.release(keyBucketCacheEntry);
+      }
+
+      if (sizeDiff > 0)
+        updateSize(sizeDiff);
+
+      endAtomicOperation(false);
+
+      return sizeDiff >= 0;
+    } catch (IOException e) {
+      rollback(transaction);
+      throw new OSBTreeException("Error during index update with key " + key + " and value " + value, e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Removes key from leaf page holding only shared lock of tree, the same way as {@link #optimisticPut(Object, Object)} puts it.
+   * 
+   * @return removed value, <code>null</code> if key is absent or {@link #OPTIMISTIC_MODIFICATION_FAILED} if removal should be
+   *         repeated under exclusive lock of tree.
+   */
+  private Object optimisticRemove(K key) {
+    acquireSharedLock();
+    final OStorageTransaction transaction = storage.getStorageTransaction();
+    try {
+      if (transaction != null)
+        return OPTIMISTIC_MODIFICATION_FAILED;
+
+      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+      startAtomicOperation();
+
+      final BucketSearchResult bucketSearchResult = findBucket(key);
+      final long pageIndex = bucketSearchResult.getLastPathItem();
+
+      final Object result;
+      final OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
+      final OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+      keyBucketPointer.acquireExclusiveLock();
+      try {
+        final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
+            valueSerializer, getTrackMode());
+
+        final int itemIndex = keyBucket.find(key);
+        if (itemIndex < 0)
+          result = null;
+        else {
+          final OSBTreeValue<V> removed = keyBucket.getEntry(itemIndex).value;
+          if (removed.isLink())
+            result = OPTIMISTIC_MODIFICATION_FAILED;
+          else {
+            keyBucket.remove(itemIndex);
+
+            logPageChanges(keyBucket, fileId, pageIndex, false);
+            keyBucketCacheEntry.markDirty();
+
+            result = removed.getValue();
+          }
+        }
+      } finally {
+        keyBucketPointer.releaseExclusiveLock();
+        diskCache.release(keyBucketCacheEntry);
+      }
+
+      if (result != null && result != OPTIMISTIC_MODIFICATION_FAILED)
+        updateSize(-1);
+
+      endAtomicOperation(false);
+
+      return result;
+    } catch (IOException e) {
+      rollback(transaction);
+      throw new OSBTreeException("Error during removing key " + key + " from sbtree " + name, e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   private void removeLinkedValue(long removedLink) throws IOException {
     long nextPage = removedLink;
     do {
@@ -556,6 +821,58 @@ public class OSBTree<K, V> extends ODurableComponent {
     return -1;
   }
 
+  /**
+   * Builds tree bottom-up from entries sorted by key in ascending order, so no page is split during the load. Leaf pages are filled
+   * one by one till given part of their space is used, pages of upper levels are built in the same way from first keys of pages of
+   * lower level. Every page is written and logged only once, at the end content of top page is moved into root page, so loaded
+   * entries become visible at once. Tree should be empty, keys should be unique and not null.
+   * 
+   * @param entries
+   *          entries sorted by key in ascending order.
+   * @param fillFactor
+   *          part of page space which is filled by entries, should be in range (0, 1].
+   * @return amount of loaded entries.
+   */
+  public long bulkLoad(Iterator<? extends Map.Entry<K, V>> entries, float fillFactor) {
+    if (fillFactor <= 0 || fillFactor > 1)
+      throw new IllegalArgumentException("Fill factor should be in range (0, 1] but was " + fillFactor);
+
+    acquireExclusiveLock();
+    try {
+      if (size() > 0)
+        throw new OSBTreeException("Bulk load is allowed only into empty sbtree, but sbtree " + name + " is not empty");
+
+      final long startTime = System.currentTimeMillis();
+
+      final BulkLoader loader = new BulkLoader((int) (OSBTreeBucket.MAX_USED_SPACE * fillFactor));
+      boolean rollback = true;
+      try {
+        loader.loadLeaves(entries);
+        while (loader.level.size() > 1)
+          loader.loadNonLeafLevel();
+
+        rollback = false;
+      } finally {
+        loader.closePage(rollback);
+      }
+
+      loader.moveTopPageToRoot();
+
+      final long time = System.currentTimeMillis() - startTime;
+      if (loader.leafPages > 0)
+        OLogManager.instance().info(this,
+            "%d entries were bulk loaded into sbtree %s in %d ms (%d entries/s), %d leaf and %d non-leaf pages, leaf pages are %.1f%% full",
+            loader.treeSize, name, time, loader.treeSize * 1000 / Math.max(time, 1), loader.leafPages, loader.nonLeafPages,
+            loader.leafUsedSpace * 100.0 / ((long) loader.leafPages * OSBTreeBucket.MAX_USED_SPACE));
+
+      return loader.treeSize;
+    } catch (IOException e) {
+      throw new OSBTreeException("Error during bulk load of sbtree with name " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
   private void rollback(OStorageTransaction transaction) {
     try {
       endAtomicOperation(true);
@@ -597,8 +914,8 @@ public class OSBTree<K, V> extends ODurableComponent {
       OCachePointer rootPointer = cacheEntry.getCachePointer();
       rootPointer.acquireExclusiveLock();
       try {
-        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, keySerializer, keyTypes,
-            valueSerializer, getTrackMode());
+        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, prefixCompression,
+            keySerializer, keyTypes, valueSerializer, getTrackMode());
 
         rootBucket.setTreeSize(0);
 
@@ -670,6 +987,17 @@ public class OSBTree<K, V> extends ODurableComponent {
       this.keySerializer = keySerializer;
       this.valueSerializer = (OBinarySerializer<V>) valueSerializer;
 
+      final OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+      final OCachePointer rootPointer = rootCacheEntry.getCachePointer();
+      rootPointer.acquireSharedLock();
+      try {
+        prefixCompression = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes, this.valueSerializer,
+            ODurablePage.TrackMode.NONE).isPrefixCompressed();
+      } finally {
+        rootPointer.releaseSharedLock();
+        diskCache.release(rootCacheEntry);
+      }
+
       initDurableComponent(storageLocal);
     } catch (IOException e) {
       throw new OSBTreeException("Exception during loading of sbtree " + name, e);
@@ -678,7 +1006,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
-  private void setSize(long size) throws IOException {
+  private void updateSize(long diff) throws IOException {
     OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
 
     OCachePointer rootPointer = rootCacheEntry.getCachePointer();
@@ -686,7 +1014,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     try {
       OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
           valueSerializer, getTrackMode());
-      rootBucket.setTreeSize(size);
+      rootBucket.setTreeSize(rootBucket.getTreeSize() + diff);
 
       logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
       rootCacheEntry.markDirty();
@@ -702,11 +1030,13 @@ public class OSBTree<K, V> extends ODurableComponent {
       OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
       OCachePointer rootPointer = rootCacheEntry.getCachePointer();
 
+      rootPointer.acquireSharedLock();
       try {
         OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
             valueSerializer, ODurablePage.TrackMode.NONE);
         return rootBucket.getTreeSize();
       } finally {
+        rootPointer.releaseSharedLock();
         diskCache.release(rootCacheEntry);
       }
     } catch (IOException e) {
@@ -717,6 +1047,12 @@ public class OSBTree<K, V> extends ODurableComponent {
   }
 
   public V remove(K key) {
+    if (key != null && concurrentModifications) {
+      final Object removed = optimisticRemove(key);
+      if (removed != OPTIMISTIC_MODIFICATION_FAILED)
+        return (V) removed;
+    }
+
     acquireExclusiveLock();
     OStorageTransaction transaction = storage.getStorageTransaction();
     try {
@@ -748,7 +1084,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
           keyBucketCacheEntry.markDirty();
 
-          setSize(size() - 1);
+          updateSize(-1);
           endAtomicOperation(false);
 
           return value;
@@ -785,7 +1121,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         }
 
         if (removedValue != null)
-          setSize(size() - 1);
+          updateSize(-1);
 
         endAtomicOperation(false);
 
@@ -997,18 +1333,27 @@ public class OSBTree<K, V> extends ODurableComponent {
   public K firstKey() {
     acquireSharedLock();
     try {
-      final BucketSearchResult searchResult = firstItem();
-      if (searchResult == null)
-        return null;
+      while (true) {
+        final BucketSearchResult searchResult = firstItem();
+        if (searchResult == null)
+          return null;
 
-      final OCacheEntry cacheEntry = diskCache.load(fileId, searchResult.getLastPathItem(), false);
-      try {
-        OCachePointer cachePointer = cacheEntry.getCachePointer();
-        OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes,
-            valueSerializer, ODurablePage.TrackMode.NONE);
-        return bucket.getKey(searchResult.itemIndex);
-      } finally {
-        diskCache.release(cacheEntry);
+        final OCacheEntry cacheEntry = diskCache.load(fileId, searchResult.getLastPathItem(), false);
+        final OCachePointer cachePointer = cacheEntry.getCachePointer();
+        cachePointer.acquireSharedLock();
+        try {
+          OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes,
+              valueSerializer, ODurablePage.TrackMode.NONE);
+
+          // leaf page could be emptied by concurrent removal after it was found
+          if (bucket.isEmpty())
+            continue;
+
+          return bucket.getKey(0);
+        } finally {
+          cachePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
     } catch (IOException e) {
       throw new OSBTreeException("Error during finding first key in sbtree [" + name + "]");
@@ -1024,6 +1369,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
     OCacheEntry cacheEntry = diskCache.load(fileId, bucketIndex, false);
     OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireSharedLock();
     int itemIndex = 0;
 
     OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
@@ -1071,14 +1417,17 @@ public class OSBTree<K, V> extends ODurableComponent {
           }
         }
 
+        cachePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
         cacheEntry = diskCache.load(fileId, bucketIndex, false);
         cachePointer = cacheEntry.getCachePointer();
+        cachePointer.acquireSharedLock();
 
         bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
             ODurablePage.TrackMode.NONE);
       }
     } finally {
+      cachePointer.releaseSharedLock();
       diskCache.release(cacheEntry);
     }
   }
@@ -1086,18 +1435,26 @@ public class OSBTree<K, V> extends ODurableComponent {
   public K lastKey() {
     acquireSharedLock();
     try {
-      final BucketSearchResult searchResult = lastItem();
-      if (searchResult == null)
-        return null;
+      while (true) {
+        final BucketSearchResult searchResult = lastItem();
+        if (searchResult == null)
+          return null;
 
-      final OCacheEntry cacheEntry = diskCache.load(fileId, searchResult.getLastPathItem(), false);
-      try {
-        OCachePointer cachePointer = cacheEntry.getCachePointer();
-        OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes,
-            valueSerializer, ODurablePage.TrackMode.NONE);
-        return bucket.getKey(searchResult.itemIndex);
-      } finally {
-        diskCache.release(cacheEntry);
+        final OCacheEntry cacheEntry = diskCache.load(fileId, searchResult.getLastPathItem(), false);
+        final OCachePointer cachePointer = cacheEntry.getCachePointer();
+        cachePointer.acquireSharedLock();
+        try {
+          OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes,
+              valueSerializer, ODurablePage.TrackMode.NONE);
+
+          if (bucket.isEmpty())
+            continue;
+
+          return bucket.getKey(bucket.size() - 1);
+        } finally {
+          cachePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
     } catch (IOException e) {
       throw new OSBTreeException("Error during finding last key in sbtree [" + name + "]");
@@ -1133,6 +1490,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
     OCacheEntry cacheEntry = diskCache.load(fileId, bucketIndex, false);
     OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireSharedLock();
     OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
         ODurablePage.TrackMode.NONE);
 
@@ -1181,9 +1539,11 @@ public class OSBTree<K, V> extends ODurableComponent {
           }
         }
 
+        cachePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
         cacheEntry = diskCache.load(fileId, bucketIndex, false);
         cachePointer = cacheEntry.getCachePointer();
+        cachePointer.acquireSharedLock();
 
         bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
             ODurablePage.TrackMode.NONE);
@@ -1191,6 +1551,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           itemIndex = bucket.size() - 1;
       }
     } finally {
+      cachePointer.releaseSharedLock();
       diskCache.release(cacheEntry);
     }
   }
@@ -1326,7 +1687,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       final int bucketSize = bucketToSplit.size();
 
       int indexToSplit = bucketSize >>> 1;
-      final K separationKey = bucketToSplit.getKey(indexToSplit);
+      final K separationKey = bucketToSplit.getSeparationKey(indexToSplit);
       final List<OSBTreeBucket.SBTreeEntry<K, V>> rightEntries = new ArrayList<OSBTreeBucket.SBTreeEntry<K, V>>(indexToSplit);
 
       final int startRightIndex = splitLeaf ? indexToSplit : indexToSplit + 1;
@@ -1358,8 +1719,8 @@ public class OSBTree<K, V> extends ODurableComponent {
     rightBucketPointer.acquireExclusiveLock();
 
     try {
-      OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketPointer.getDataPointer(), splitLeaf, keySerializer,
-          keyTypes, valueSerializer, getTrackMode());
+      OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketPointer.getDataPointer(), splitLeaf,
+          bucketToSplit.isPrefixCompressed(), keySerializer, keyTypes, valueSerializer, getTrackMode());
       newRightBucket.addAll(rightEntries);
 
       bucketToSplit.shrink(indexToSplit);
@@ -1473,8 +1834,8 @@ public class OSBTree<K, V> extends ODurableComponent {
     OCacheEntry rightBucketEntry = diskCache.allocateNewPage(fileId);
     leftBucketPointer.acquireExclusiveLock();
     try {
-      OSBTreeBucket<K, V> newLeftBucket = new OSBTreeBucket<K, V>(leftBucketPointer.getDataPointer(), splitLeaf, keySerializer,
-          keyTypes, valueSerializer, getTrackMode());
+      OSBTreeBucket<K, V> newLeftBucket = new OSBTreeBucket<K, V>(leftBucketPointer.getDataPointer(), splitLeaf,
+          bucketToSplit.isPrefixCompressed(), keySerializer, keyTypes, valueSerializer, getTrackMode());
       newLeftBucket.addAll(leftEntries);
 
       if (splitLeaf)
@@ -1490,8 +1851,8 @@ public class OSBTree<K, V> extends ODurableComponent {
     OCachePointer rightBucketPointer = rightBucketEntry.getCachePointer();
     rightBucketPointer.acquireExclusiveLock();
     try {
-      OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketPointer.getDataPointer(), splitLeaf, keySerializer,
-          keyTypes, valueSerializer, getTrackMode());
+      OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketPointer.getDataPointer(), splitLeaf,
+          bucketToSplit.isPrefixCompressed(), keySerializer, keyTypes, valueSerializer, getTrackMode());
       newRightBucket.addAll(rightEntries);
 
       if (splitLeaf)
@@ -1504,8 +1865,8 @@ public class OSBTree<K, V> extends ODurableComponent {
       diskCache.release(rightBucketEntry);
     }
 
-    bucketToSplit = new OSBTreeBucket<K, V>(bucketPointer.getDataPointer(), false, keySerializer, keyTypes, valueSerializer,
-        getTrackMode());
+    bucketToSplit = new OSBTreeBucket<K, V>(bucketPointer.getDataPointer(), false, bucketToSplit.isPrefixCompressed(),
+        keySerializer, keyTypes, valueSerializer, getTrackMode());
 
     bucketToSplit.setTreeSize(treeSize);
     bucketToSplit.setValuesFreeListFirstIndex(freeListPage);
@@ -1539,6 +1900,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       final OCachePointer bucketPointer = bucketEntry.getCachePointer();
 
       final OSBTreeBucket.SBTreeEntry<K, V> entry;
+      bucketPointer.acquireSharedLock();
       try {
         final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(bucketPointer.getDataPointer(), keySerializer, keyTypes,
             valueSerializer, ODurablePage.TrackMode.NONE);
@@ -1558,6 +1920,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         }
 
       } finally {
+        bucketPointer.releaseSharedLock();
         diskCache.release(bucketEntry);
       }
 
@@ -1646,6 +2009,244 @@ public class OSBTree<K, V> extends ODurableComponent {
     };
   }
 
+  private static final class BulkLoadItem<K> {
+    private final long pageIndex;
+    private final K    firstKey;
+
+    private BulkLoadItem(long pageIndex, K firstKey) {
+      this.pageIndex = pageIndex;
+      this.firstKey = firstKey;
+    }
+  }
+
+  /**
+   * Writes pages of tree level by level during bulk load. Each page is changed inside of its own atomic operation which is completed
+   * once page is filled, so size of atomic operations does not depend on amount of loaded entries.
+   */
+  private final class BulkLoader {
+    private final int                 fillLimit;
+
+    private List<BulkLoadItem<K>>     level = new ArrayList<BulkLoadItem<K>>();
+
+    private OCacheEntry               cacheEntry;
+    private OCachePointer             cachePointer;
+    private OSBTreeBucket<K, V>       bucket;
+    private boolean                   newPage;
+
+    private long                      treeSize;
+    private int                       leafPages;
+    private int                       nonLeafPages;
+    private long                      leafUsedSpace;
+
+    private BulkLoader(int fillLimit) {
+      this.fillLimit = fillLimit;
+    }
+
+    private void loadLeaves(Iterator<? extends Map.Entry<K, V>> entries) throws IOException {
+      K prevKey = null;
+      boolean pageFilled = false;
+
+      while (entries.hasNext()) {
+        final Map.Entry<K, V> entry = entries.next();
+
+        K key = entry.getKey();
+        final V value = entry.getValue();
+
+        if (key == null)
+          throw new OSBTreeException("Null keys can not be bulk loaded into sbtree " + name);
+
+        final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+        if (keySize > MAX_KEY_SIZE)
+          throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
+              + ", allowed  " + MAX_KEY_SIZE);
+
+        key = keySerializer.preprocess(key, (Object[]) keyTypes);
+        if (prevKey != null && comparator.compare(prevKey, key) >= 0)
+          throw new OSBTreeException("Bulk loaded keys should be unique and sorted in ascending order, but key " + key
+              + " follows key " + prevKey + " in sbtree " + name);
+
+        if (cacheEntry == null || pageFilled)
+          startLeafPage(key);
+
+        final boolean createLinkToTheValue = valueSerializer.getObjectSize(value) > MAX_EMBEDDED_VALUE_SIZE;
+        long valueLink = -1;
+        if (createLinkToTheValue)
+          valueLink = createLinkToTheValue(value);
+
+        final OSBTreeBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, new OSBTreeValue<V>(
+            createLinkToTheValue, valueLink, createLinkToTheValue ? null : value));
+
+        if (!bucket.addEntry(bucket.size(), treeEntry, false)) {
+          startLeafPage(key);
+          bucket.addEntry(0, treeEntry, false);
+        }
+
+        pageFilled = bucket.getUsedSpace() >= fillLimit;
+        treeSize++;
+        prevKey = key;
+      }
+
+      if (cacheEntry != null)
+        finishPage();
+    }
+
+    private void startLeafPage(K firstKey) throws IOException {
+      final OCacheEntry leafCacheEntry = diskCache.allocateNewPage(fileId);
+
+      long prevPageIndex = -1;
+      if (cacheEntry != null) {
+        prevPageIndex = cacheEntry.getPageIndex();
+        bucket.setRightSibling(leafCacheEntry.getPageIndex());
+        finishPage();
+      }
+
+      openPage(leafCacheEntry, true, true);
+      bucket.setLeftSibling(prevPageIndex);
+
+      leafPages++;
+      level.add(new BulkLoadItem<K>(leafCacheEntry.getPageIndex(), firstKey));
+    }
+
+    /**
+     * Builds next level of tree, entries of level are pairs of neighbour pages of lower level separated by first key of right page.
+     */
+    private void loadNonLeafLevel() throws IOException {
+      final List<BulkLoadItem<K>> children = level;
+      level = new ArrayList<BulkLoadItem<K>>();
+
+      int start = 0;
+      while (start < children.size()) {
+        openPage(diskCache.allocateNewPage(fileId), false, true);
+        nonLeafPages++;
+
+        level.add(new BulkLoadItem<K>(cacheEntry.getPageIndex(), children.get(start).firstKey));
+
+        int end = start + 1;
+        while (end < children.size()) {
+          if (!bucket.addEntry(bucket.size(), separator(children, end), false))
+            break;
+
+          end++;
+          if (bucket.getUsedSpace() >= fillLimit)
+            break;
+        }
+
+        // page can not contain single child, so last child is either added to current page or moved to the next page together
+        // with the last child of current page
+        if (end == children.size() - 1) {
+          if (bucket.addEntry(bucket.size(), separator(children, end), false))
+            end++;
+          else {
+            bucket.shrink(bucket.size() - 1);
+            end--;
+          }
+        }
+
+        finishPage();
+        start = end;
+      }
+    }
+
+    private OSBTreeBucket.SBTreeEntry<K, V> separator(List<BulkLoadItem<K>> children, int index) {
+      final BulkLoadItem<K> child = children.get(index);
+      return new OSBTreeBucket.SBTreeEntry<K, V>(children.get(index - 1).pageIndex, child.pageIndex, child.firstKey, null);
+    }
+
+    /**
+     * Copies entries of top page into root page. Top page is not used by tree any more, so it is added to the free list of value
+     * pages.
+     */
+    private void moveTopPageToRoot() throws IOException {
+      if (level.isEmpty())
+        return;
+
+      final long topPageIndex = level.get(0).pageIndex;
+
+      final OCacheEntry topCacheEntry = diskCache.load(fileId, topPageIndex, false);
+      final List<OSBTreeBucket.SBTreeEntry<K, V>> topEntries = new ArrayList<OSBTreeBucket.SBTreeEntry<K, V>>();
+      final boolean isLeaf;
+      try {
+        final OSBTreeBucket<K, V> topBucket = new OSBTreeBucket<K, V>(topCacheEntry.getCachePointer().getDataPointer(),
+            keySerializer, keyTypes, valueSerializer, ODurablePage.TrackMode.NONE);
+        isLeaf = topBucket.isLeaf();
+
+        for (int i = 0; i < topBucket.size(); i++)
+          topEntries.add(topBucket.getEntry(i));
+      } finally {
+        diskCache.release(topCacheEntry);
+      }
+
+      boolean rollback = true;
+      openPage(diskCache.load(fileId, ROOT_INDEX, false), isLeaf, false);
+      try {
+        bucket.setTreeSize(treeSize);
+        bucket.addAll(topEntries);
+
+        rollback = false;
+      } finally {
+        closePage(rollback);
+      }
+
+      startAtomicOperation();
+      try {
+        removeValuePage(topPageIndex);
+      } catch (IOException e) {
+        endAtomicOperation(true);
+        throw e;
+      }
+      endAtomicOperation(false);
+    }
+
+    private void openPage(OCacheEntry pageCacheEntry, boolean isLeaf, boolean isNewPage) throws IOException {
+      startAtomicOperation();
+
+      cacheEntry = pageCacheEntry;
+      cachePointer = pageCacheEntry.getCachePointer();
+      cachePointer.acquireExclusiveLock();
+      newPage = isNewPage;
+
+      // only root page contains list of free value pages, it should survive reinitialization of the page
+      long valuesFreeListFirstIndex = -1;
+      if (!isNewPage)
+        valuesFreeListFirstIndex = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes,
+            valueSerializer, ODurablePage.TrackMode.NONE).getValuesFreeListFirstIndex();
+
+      bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), isLeaf, prefixCompression, keySerializer, keyTypes,
+          valueSerializer, getTrackMode());
+
+      if (valuesFreeListFirstIndex >= 0)
+        bucket.setValuesFreeListFirstIndex(valuesFreeListFirstIndex);
+    }
+
+    private void finishPage() throws IOException {
+      if (bucket.isLeaf())
+        leafUsedSpace += bucket.getUsedSpace();
+
+      closePage(false);
+    }
+
+    private void closePage(boolean rollback) throws IOException {
+      if (cacheEntry == null)
+        return;
+
+      try {
+        if (!rollback) {
+          logPageChanges(bucket, fileId, cacheEntry.getPageIndex(), newPage);
+          cacheEntry.markDirty();
+        }
+      } finally {
+        cachePointer.releaseExclusiveLock();
+        diskCache.release(cacheEntry);
+
+        cacheEntry = null;
+        cachePointer = null;
+        bucket = null;
+      }
+
+      endAtomicOperation(rollback);
+    }
+  }
+
   private static class BucketSearchResult {
     private final int             itemIndex;
     private final ArrayList<Long> path;
@@ -1740,6 +2341,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
           final OCachePointer pointer = cacheEntry.getCachePointer();
 
+          pointer.acquireSharedLock();
           try {
             final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes,
                 valueSerializer, ODurablePage.TrackMode.NONE);
@@ -1755,6 +2357,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
             keysCache.add(entry.getKey());
           } finally {
+            pointer.releaseSharedLock();
             diskCache.release(cacheEntry);
           }
         }
@@ -1826,6 +2429,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
           final OCachePointer pointer = cacheEntry.getCachePointer();
 
+          pointer.acquireSharedLock();
           try {
             final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes,
                 valueSerializer, ODurablePage.TrackMode.NONE);
@@ -1852,6 +2456,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
             dataCache.add(entry);
           } finally {
+            pointer.releaseSharedLock();
             diskCache.release(cacheEntry);
           }
         }
@@ -1919,6 +2524,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
           final OCachePointer pointer = cacheEntry.getCachePointer();
 
+          pointer.acquireSharedLock();
           try {
             final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes,
                 valueSerializer, ODurablePage.TrackMode.NONE);
@@ -1948,6 +2554,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
             dataCache.add(entry);
           } finally {
+            pointer.releaseSharedLock();
             diskCache.release(cacheEntry);
           }
         }
@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.index.sbtree.local;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -55,8 +56,25 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   private static final int            POSITIONS_ARRAY_OFFSET  = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
 
+  /**
+   * Space of page which can be occupied by entries and their positions.
+   */
+  public static final int             MAX_USED_SPACE          = MAX_PAGE_SIZE_BYTES - POSITIONS_ARRAY_OFFSET;
+
+  private static final byte           LEAF_FLAG               = 1;
+  private static final byte           PREFIX_COMPRESSED_FLAG  = 2;
+
+  /**
+   * Prefix compressed bucket keeps common prefix of its keys at the end of page, size of serialized prefix is stored in last bytes
+   * of page and prefix itself is stored just before it.
+   */
+  private static final int            PREFIX_SIZE_OFFSET      = MAX_PAGE_SIZE_BYTES - OIntegerSerializer.INT_SIZE;
+
   private final boolean               isLeaf;
 
+  private final OSBTreeKeyPrefixCodec<K> prefixCodec;
+  private K                           prefix;
+
   private final OBinarySerializer<K>  keySerializer;
   private final OBinarySerializer<V>  valueSerializer;
 
@@ -66,17 +84,35 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   public OSBTreeBucket(ODirectMemoryPointer cachePointer, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, TrackMode trackMode) throws IOException {
+    this(cachePointer, isLeaf, false, keySerializer, keyTypes, valueSerializer, trackMode);
+  }
+
+  /**
+   * Creates new bucket.
+   * 
+   * @param prefixCompression
+   *          whether common prefix of keys should be stored only once per page, it is ignored if keys of given type can not be
+   *          compressed, see {@link OSBTreeKeyPrefixCodec}.
+   */
+  public OSBTreeBucket(ODirectMemoryPointer cachePointer, boolean isLeaf, boolean prefixCompression,
+      OBinarySerializer<K> keySerializer, OType[] keyTypes, OBinarySerializer<V> valueSerializer, TrackMode trackMode)
+      throws IOException {
     super(cachePointer, trackMode);
 
     this.isLeaf = isLeaf;
     this.keySerializer = keySerializer;
     this.keyTypes = keyTypes;
     this.valueSerializer = valueSerializer;
+    this.prefixCodec = prefixCompression ? OSBTreeKeyPrefixCodec.getCodec(keySerializer) : null;
 
     setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
     setIntValue(SIZE_OFFSET, 0);
 
-    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf ? 1 : 0));
+    byte flags = isLeaf ? LEAF_FLAG : 0;
+    if (prefixCodec != null)
+      flags |= PREFIX_COMPRESSED_FLAG;
+
+    setByteValue(IS_LEAF_OFFSET, flags);
     setLongValue(LEFT_SIBLING_OFFSET, -1);
     setLongValue(RIGHT_SIBLING_OFFSET, -1);
 
@@ -92,9 +128,22 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     super(cachePointer, trackMode);
     this.keyTypes = keyTypes;
 
-    this.isLeaf = getByteValue(IS_LEAF_OFFSET) > 0;
+    final byte flags = getByteValue(IS_LEAF_OFFSET);
+    this.isLeaf = (flags & LEAF_FLAG) != 0;
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
+
+    if ((flags & PREFIX_COMPRESSED_FLAG) != 0) {
+      this.prefixCodec = OSBTreeKeyPrefixCodec.getCodec(keySerializer);
+      if (prefixCodec == null)
+        throw new IllegalStateException("Keys of prefix compressed bucket can not be read by serializer "
+            + keySerializer.getClass().getName());
+    } else
+      this.prefixCodec = null;
+  }
+
+  public boolean isPrefixCompressed() {
+    return prefixCodec != null;
   }
 
   public void setTreeSize(long size) throws IOException {
@@ -109,6 +158,13 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return size() == 0;
   }
 
+  /**
+   * @return space occupied by entries and their positions, it can not be more than {@link #MAX_USED_SPACE}.
+   */
+  public int getUsedSpace() {
+    return MAX_PAGE_SIZE_BYTES - getIntValue(FREE_POINTER_OFFSET) + size() * OIntegerSerializer.INT_SIZE;
+  }
+
   public long getValuesFreeListFirstIndex() {
     return getLongValue(FREE_VALUES_LIST_OFFSET);
   }
@@ -138,7 +194,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   public long remove(int entryIndex) throws IOException {
     int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + entryIndex * OIntegerSerializer.INT_SIZE);
-    int keySize = keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
+    int keySize = getKeySize(entryPosition);
 
     int entrySize;
     long linkValue = -1;
@@ -198,8 +254,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
 
     if (isLeaf) {
-      K key = keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
-      entryPosition += keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
+      K key = readKey(entryPosition);
+      entryPosition += getKeySize(entryPosition);
 
       boolean isLinkValue = pagePointer.getByte(entryPosition) > 0;
       long link = -1;
@@ -218,7 +274,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       long rightChild = getLongValue(entryPosition);
       entryPosition += OLongSerializer.LONG_SIZE;
 
-      K key = keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+      K key = readKey(entryPosition);
 
       return new SBTreeEntry<K, V>(leftChild, rightChild, key, null);
     }
@@ -230,14 +286,24 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     if (!isLeaf)
       entryPosition += 2 * OLongSerializer.LONG_SIZE;
 
-    return keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+    return readKey(entryPosition);
   }
 
   public boolean isLeaf() {
     return isLeaf;
   }
 
+  /**
+   * Adds entries sorted in ascending order to empty bucket.
+   */
   public void addAll(List<SBTreeEntry<K, V>> entries) throws IOException {
+    if (prefixCodec != null && isEmpty()) {
+      if (!entries.isEmpty())
+        resetEntries(prefixCodec.commonPrefix(entries.get(0).key, entries.get(entries.size() - 1).key), entries);
+
+      return;
+    }
+
     for (int i = 0; i < entries.size(); i++)
       addEntry(i, entries.get(i), false);
   }
@@ -249,33 +315,42 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       treeEntries.add(getEntry(i));
     }
 
-    setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
-    setIntValue(SIZE_OFFSET, 0);
+    K newPrefix = null;
+    if (prefixCodec != null && newSize > 0)
+      newPrefix = prefixCodec.commonPrefix(treeEntries.get(0).key, treeEntries.get(newSize - 1).key);
 
-    int index = 0;
-    for (SBTreeEntry<K, V> entry : treeEntries) {
-      addEntry(index, entry, false);
-      index++;
-    }
+    resetEntries(newPrefix, treeEntries);
+  }
+
+  /**
+   * Returns key which should separate this bucket from its new right sibling in parent bucket if bucket is split at given index.
+   * For prefix compressed buckets it is the shortest key which separates last key of left part from first key of right part,
+   * otherwise it is first key of right part.
+   */
+  public K getSeparationKey(int indexToSplit) {
+    final K firstRightKey = getKey(indexToSplit);
+    if (prefixCodec == null || !isLeaf || indexToSplit == 0)
+      return firstRightKey;
+
+    return prefixCodec.separator(getKey(indexToSplit - 1), firstRightKey);
   }
 
   public boolean addEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
-    final int keySize = keySerializer.getObjectSize(treeEntry.key, (Object[]) keyTypes);
-    int valueSize = 0;
-    int entrySize = keySize;
+    if (prefixCodec != null && !updatePrefix(treeEntry))
+      return false;
 
-    if (isLeaf) {
-      if (valueSerializer.isFixedLength())
-        valueSize = valueSerializer.getFixedLength();
-      else {
-        if (treeEntry.value.isLink())
-          valueSize = OLongSerializer.LONG_SIZE;
-        else
-          valueSize = valueSerializer.getObjectSize(treeEntry.value.getValue());
-      }
+    return insertEntry(index, treeEntry, updateNeighbors);
+  }
+
+  private boolean insertEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
+    final K keyPrefix = prefixCodec != null ? getPrefix() : null;
+    final int keySize = getSerializedKeySize(treeEntry.key, keyPrefix);
+    final int valueSize = getSerializedValueSize(treeEntry);
+    int entrySize = keySize;
 
+    if (isLeaf)
       entrySize += valueSize + OByteSerializer.BYTE_SIZE;
-    } else
+    else
       entrySize += 2 * OLongSerializer.LONG_SIZE;
 
     int size = size();
@@ -295,8 +370,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     setIntValue(SIZE_OFFSET, size + 1);
 
     if (isLeaf) {
-      byte[] serializedKey = new byte[keySize];
-      keySerializer.serializeNative(treeEntry.key, serializedKey, 0, (Object[]) keyTypes);
+      byte[] serializedKey = serializeKey(treeEntry.key, keyPrefix, keySize);
 
       freePointer += setBinaryValue(freePointer, serializedKey);
       freePointer += setByteValue(freePointer, treeEntry.value.isLink() ? (byte) 1 : (byte) 0);
@@ -312,8 +386,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       freePointer += setLongValue(freePointer, treeEntry.leftChild);
       freePointer += setLongValue(freePointer, treeEntry.rightChild);
 
-      byte[] serializedKey = new byte[keySize];
-      keySerializer.serializeNative(treeEntry.key, serializedKey, 0, (Object[]) keyTypes);
+      byte[] serializedKey = serializeKey(treeEntry.key, keyPrefix, keySize);
       setBinaryValue(freePointer, serializedKey);
 
       size++;
@@ -334,9 +407,125 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return true;
   }
 
+  /**
+   * Makes prefix of bucket common for new entry too. Keys of bucket are rewritten if prefix becomes shorter.
+   * 
+   * @return <code>false</code> if bucket does not have enough space to keep rewritten entries together with the new one.
+   */
+  private boolean updatePrefix(SBTreeEntry<K, V> newEntry) throws IOException {
+    final int size = size();
+    if (size == 0) {
+      resetEntries(newEntry.key, Collections.<SBTreeEntry<K, V>> emptyList());
+      return true;
+    }
+
+    final K currentPrefix = getPrefix();
+    if (prefixCodec.isPrefixOf(currentPrefix, newEntry.key))
+      return true;
+
+    final K newPrefix = prefixCodec.commonPrefix(currentPrefix, newEntry.key);
+    final List<SBTreeEntry<K, V>> entries = new ArrayList<SBTreeEntry<K, V>>(size);
+    for (int i = 0; i < size; i++)
+      entries.add(getEntry(i));
+
+    int requiredSpace = POSITIONS_ARRAY_OFFSET + OIntegerSerializer.INT_SIZE + prefixCodec.getPrefixSize(newPrefix, keyTypes)
+        + (size + 1) * OIntegerSerializer.INT_SIZE + getSerializedEntrySize(newEntry, newPrefix);
+    for (SBTreeEntry<K, V> entry : entries)
+      requiredSpace += getSerializedEntrySize(entry, newPrefix);
+
+    if (requiredSpace > MAX_PAGE_SIZE_BYTES)
+      return false;
+
+    resetEntries(newPrefix, entries);
+    return true;
+  }
+
+  private void resetEntries(K newPrefix, List<SBTreeEntry<K, V>> entries) throws IOException {
+    setIntValue(SIZE_OFFSET, 0);
+
+    if (prefixCodec != null && newPrefix != null) {
+      final byte[] serializedPrefix = new byte[prefixCodec.getPrefixSize(newPrefix, keyTypes)];
+      prefixCodec.serializePrefix(newPrefix, serializedPrefix, 0, keyTypes);
+
+      final int prefixPosition = PREFIX_SIZE_OFFSET - serializedPrefix.length;
+      setIntValue(PREFIX_SIZE_OFFSET, serializedPrefix.length);
+      setBinaryValue(prefixPosition, serializedPrefix);
+
+      setIntValue(FREE_POINTER_OFFSET, prefixPosition);
+      prefix = newPrefix;
+    } else {
+      setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
+      prefix = null;
+    }
+
+    for (int i = 0; i < entries.size(); i++)
+      insertEntry(i, entries.get(i), false);
+  }
+
+  private K getPrefix() {
+    if (prefix == null) {
+      final int prefixSize = getIntValue(PREFIX_SIZE_OFFSET);
+      prefix = prefixCodec.deserializePrefix(pagePointer, PREFIX_SIZE_OFFSET - prefixSize);
+    }
+
+    return prefix;
+  }
+
+  private K readKey(int position) {
+    if (prefixCodec == null)
+      return keySerializer.deserializeFromDirectMemory(pagePointer, position);
+
+    return prefixCodec.deserializeKey(getPrefix(), pagePointer, position);
+  }
+
+  private int getKeySize(int position) {
+    if (prefixCodec == null)
+      return keySerializer.getObjectSizeInDirectMemory(pagePointer, position);
+
+    return prefixCodec.getSuffixSizeInDirectMemory(pagePointer, position);
+  }
+
+  private int getSerializedKeySize(K key, K keyPrefix) {
+    if (prefixCodec == null)
+      return keySerializer.getObjectSize(key, (Object[]) keyTypes);
+
+    return prefixCodec.getSuffixSize(keyPrefix, key, keyTypes);
+  }
+
+  private byte[] serializeKey(K key, K keyPrefix, int keySize) {
+    final byte[] serializedKey = new byte[keySize];
+    if (prefixCodec == null)
+      keySerializer.serializeNative(key, serializedKey, 0, (Object[]) keyTypes);
+    else
+      prefixCodec.serializeSuffix(keyPrefix, key, serializedKey, 0, keyTypes);
+
+    return serializedKey;
+  }
+
+  private int getSerializedValueSize(SBTreeEntry<K, V> treeEntry) {
+    if (!isLeaf)
+      return 0;
+
+    if (valueSerializer.isFixedLength())
+      return valueSerializer.getFixedLength();
+
+    if (treeEntry.value.isLink())
+      return OLongSerializer.LONG_SIZE;
+
+    return valueSerializer.getObjectSize(treeEntry.value.getValue());
+  }
+
+  private int getSerializedEntrySize(SBTreeEntry<K, V> treeEntry, K keyPrefix) {
+    final int keySize = getSerializedKeySize(treeEntry.key, keyPrefix);
+    if (isLeaf)
+      return keySize + getSerializedValueSize(treeEntry) + OByteSerializer.BYTE_SIZE;
+
+    return keySize + 2 * OLongSerializer.LONG_SIZE;
+  }
+
   public int updateValue(int index, OSBTreeValue<V> value) throws IOException {
     int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
-    entryPosition += keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition) + OByteSerializer.BYTE_SIZE;
+    entryPosition += getKeySize(entryPosition) + OByteSerializer.BYTE_SIZE;
 
     final int newSize = valueSerializer.getObjectSize(value.getValue());
     final int oldSize = valueSerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+
+/**
+ * Splits keys of prefix compressed {@link OSBTreeBucket} on prefix which is common for all keys of page and is stored only once
+ * and suffix which is stored in each entry. Suffix is always serialized after the whole prefix so every key of page can be
+ * restored independently and binary search over page is not slowed down by decompression of neighbour entries.
+ *
+ * Prefix of string key is its leading characters, prefix of composite key is its leading fields. Keys of other types are not
+ * compressed.
+ */
+abstract class OSBTreeKeyPrefixCodec<K> {
+  @SuppressWarnings("unchecked")
+  public static <K> OSBTreeKeyPrefixCodec<K> getCodec(OBinarySerializer<K> keySerializer) {
+    if (keySerializer instanceof OStringSerializer)
+      return (OSBTreeKeyPrefixCodec<K>) StringPrefixCodec.INSTANCE;
+
+    if (keySerializer instanceof OCompositeKeySerializer)
+      return (OSBTreeKeyPrefixCodec<K>) CompositeKeyPrefixCodec.INSTANCE;
+
+    return null;
+  }
+
+  /**
+   * @return longest prefix which is shared by passed in prefix and key.
+   */
+  public abstract K commonPrefix(K prefix, K key);
+
+  public abstract boolean isPrefixOf(K prefix, K key);
+
+  public abstract int getPrefixSize(K prefix, OType[] keyTypes);
+
+  public abstract void serializePrefix(K prefix, byte[] stream, int startPosition, OType[] keyTypes);
+
+  public abstract K deserializePrefix(ODirectMemoryPointer pointer, long offset);
+
+  public abstract int getSuffixSize(K prefix, K key, OType[] keyTypes);
+
+  public abstract void serializeSuffix(K prefix, K key, byte[] stream, int startPosition, OType[] keyTypes);
+
+  public abstract int getSuffixSizeInDirectMemory(ODirectMemoryPointer pointer, long offset);
+
+  /**
+   * Restores key from prefix of page and suffix stored in entry.
+   */
+  public abstract K deserializeKey(K prefix, ODirectMemoryPointer pointer, long offset);
+
+  /**
+   * Returns the shortest key which is bigger than last key of left page and is not bigger than the first key of right page. Such key
+   * may be used in parent page instead of the first key of the right page after split of leaf page.
+   */
+  public abstract K separator(K lastLeftKey, K firstRightKey);
+
+  private static final class StringPrefixCodec extends OSBTreeKeyPrefixCodec<String> {
+    private static final StringPrefixCodec INSTANCE = new StringPrefixCodec();
+
+    @Override
+    public String commonPrefix(String prefix, String key) {
+      final int length = Math.min(prefix.length(), key.length());
+
+      int i = 0;
+      while (i < length && prefix.charAt(i) == key.charAt(i))
+        i++;
+
+      return i == prefix.length() ? prefix : prefix.substring(0, i);
+    }
+
+    @Override
+    public boolean isPrefixOf(String prefix, String key) {
+      return key.startsWith(prefix);
+    }
+
+    @Override
+    public int getPrefixSize(String prefix, OType[] keyTypes) {
+      return OStringSerializer.INSTANCE.getObjectSize(prefix);
+    }
+
+    @Override
+    public void serializePrefix(String prefix, byte[] stream, int startPosition, OType[] keyTypes) {
+      OStringSerializer.INSTANCE.serializeNative(prefix, stream, startPosition);
+    }
+
+    @Override
+    public String deserializePrefix(ODirectMemoryPointer pointer, long offset) {
+      return OStringSerializer.INSTANCE.deserializeFromDirectMemory(pointer, offset);
+    }
+
+    @Override
+    public int getSuffixSize(String prefix, String key, OType[] keyTypes) {
+      return OStringSerializer.INSTANCE.getObjectSize(key) - 2 * prefix.length();
+    }
+
+    @Override
+    public void serializeSuffix(String prefix, String key, byte[] stream, int startPosition, OType[] keyTypes) {
+      OStringSerializer.INSTANCE.serializeNative(key.substring(prefix.length()), stream, startPosition);
+    }
+
+    @Override
+    public int getSuffixSizeInDirectMemory(ODirectMemoryPointer pointer, long offset) {
+      return OStringSerializer.INSTANCE.getObjectSizeInDirectMemory(pointer, offset);
+    }
+
+    @Override
+    public String deserializeKey(String prefix, ODirectMemoryPointer pointer, long offset) {
+      final String suffix = OStringSerializer.INSTANCE.deserializeFromDirectMemory(pointer, offset);
+      if (prefix.isEmpty())
+        return suffix;
+
+      return prefix.concat(suffix);
+    }
+
+    @Override
+    public String separator(String lastLeftKey, String firstRightKey) {
+      final int length = Math.min(lastLeftKey.length(), firstRightKey.length());
+
+      int i = 0;
+      while (i < length && lastLeftKey.charAt(i) == firstRightKey.charAt(i))
+        i++;
+
+      if (i + 1 >= firstRightKey.length())
+        return firstRightKey;
+
+      return firstRightKey.substring(0, i + 1);
+    }
+  }
+
+  private static final class CompositeKeyPrefixCodec extends OSBTreeKeyPrefixCodec<OCompositeKey> {
+    private static final CompositeKeyPrefixCodec INSTANCE = new CompositeKeyPrefixCodec();
+
+    @Override
+    public OCompositeKey commonPrefix(OCompositeKey prefix, OCompositeKey key) {
+      final List<Object> prefixFields = prefix.getKeys();
+      final List<Object> keyFields = key.getKeys();
+      final int length = Math.min(prefixFields.size(), keyFields.size());
+
+      int i = 0;
+      while (i < length && fieldsEqual(prefixFields.get(i), keyFields.get(i)))
+        i++;
+
+      if (i == prefixFields.size())
+        return prefix;
+
+      return new OCompositeKey(prefixFields.subList(0, i));
+    }
+
+    @Override
+    public boolean isPrefixOf(OCompositeKey prefix, OCompositeKey key) {
+      final List<Object> prefixFields = prefix.getKeys();
+      final List<Object> keyFields = key.getKeys();
+      if (prefixFields.size() > keyFields.size())
+        return false;
+
+      for (int i = 0; i < prefixFields.size(); i++)
+        if (!fieldsEqual(prefixFields.get(i), keyFields.get(i)))
+          return false;
+
+      return true;
+    }
+
+    @Override
+    public int getPrefixSize(OCompositeKey prefix, OType[] keyTypes) {
+      return OCompositeKeySerializer.INSTANCE.getObjectSize(prefix, (Object[]) keyTypes);
+    }
+
+    @Override
+    public void serializePrefix(OCompositeKey prefix, byte[] stream, int startPosition, OType[] keyTypes) {
+      OCompositeKeySerializer.INSTANCE.serializeNative(prefix, stream, startPosition, (Object[]) keyTypes);
+    }
+
+    @Override
+    public OCompositeKey deserializePrefix(ODirectMemoryPointer pointer, long offset) {
+      return OCompositeKeySerializer.INSTANCE.deserializeFromDirectMemory(pointer, offset);
+    }
+
+    @Override
+    public int getSuffixSize(OCompositeKey prefix, OCompositeKey key, OType[] keyTypes) {
+      return OCompositeKeySerializer.INSTANCE.getObjectSize(suffix(prefix, key), (Object[]) suffixTypes(prefix, keyTypes));
+    }
+
+    @Override
+    public void serializeSuffix(OCompositeKey prefix, OCompositeKey key, byte[] stream, int startPosition, OType[] keyTypes) {
+      OCompositeKeySerializer.INSTANCE.serializeNative(suffix(prefix, key), stream, startPosition,
+          (Object[]) suffixTypes(prefix, keyTypes));
+    }
+
+    @Override
+    public int getSuffixSizeInDirectMemory(ODirectMemoryPointer pointer, long offset) {
+      return OCompositeKeySerializer.INSTANCE.getObjectSizeInDirectMemory(pointer, offset);
+    }
+
+    @Override
+    public OCompositeKey deserializeKey(OCompositeKey prefix, ODirectMemoryPointer pointer, long offset) {
+      final OCompositeKey suffix = OCompositeKeySerializer.INSTANCE.deserializeFromDirectMemory(pointer, offset);
+      if (prefix.getKeys().isEmpty())
+        return suffix;
+
+      final OCompositeKey key = new OCompositeKey(prefix.getKeys());
+      for (Object field : suffix.getKeys())
+        key.addKey(field);
+
+      return key;
+    }
+
+    @Override
+    public OCompositeKey separator(OCompositeKey lastLeftKey, OCompositeKey firstRightKey) {
+      return firstRightKey;
+    }
+
+    private static OCompositeKey suffix(OCompositeKey prefix, OCompositeKey key) {
+      final List<Object> fields = key.getKeys();
+      return new OCompositeKey(fields.subList(prefix.getKeys().size(), fields.size()));
+    }
+
+    private static OType[] suffixTypes(OCompositeKey prefix, OType[] keyTypes) {
+      final int prefixSize = prefix.getKeys().size();
+      if (keyTypes == null || keyTypes.length <= prefixSize)
+        return new OType[0];
+
+      return Arrays.copyOfRange(keyTypes, prefixSize, keyTypes.length);
+    }
+
+    private static boolean fieldsEqual(Object fieldOne, Object fieldTwo) {
+      if (fieldOne == null)
+        return fieldTwo == null;
+
+      return fieldOne.equals(fieldTwo);
+    }
+  }
+}
@@ -57,6 +57,11 @@ public class OSBTreeBonsaiBucket<K, V> extends OBonsaiBucketAbstract {
 
   public static final int             MAX_BUCKET_SIZE_BYTES    = OGlobalConfiguration.SBTREEBONSAI_BUCKET_SIZE.getValueAsInteger() * 1024;
 
+  /**
+   * Space of bucket which can be occupied by entries and their positions.
+   */
+  public static final int             MAX_USED_SPACE           = MAX_BUCKET_SIZE_BYTES - POSITIONS_ARRAY_OFFSET;
+
   private final boolean               isLeaf;
   private final int                   offset;
 
@@ -125,6 +130,13 @@ public class OSBTreeBonsaiBucket<K, V> extends OBonsaiBucketAbstract {
     return size() == 0;
   }
 
+  /**
+   * @return space occupied by entries and their positions, it can not be more than {@link #MAX_USED_SPACE}.
+   */
+  public int getUsedSpace() {
+    return MAX_BUCKET_SIZE_BYTES - getIntValue(offset + FREE_POINTER_OFFSET) + size() * OIntegerSerializer.INT_SIZE;
+  }
+
   public int find(K key) {
     int low = 0;
     int high = size() - 1;
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -324,6 +325,48 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
     }
   }
 
+  /**
+   * Builds tree bottom-up from entries sorted by key in ascending order, so no bucket is split during the load. Works the same way
+   * as {@link OSBTree#bulkLoad(java.util.Iterator, float)}: buckets are filled one by one level by level and content of top bucket
+   * is moved into root bucket at the end. Tree should be empty, keys should be unique and not null.
+   * 
+   * @param entries
+   *          entries sorted by key in ascending order.
+   * @param fillFactor
+   *          part of bucket space which is filled by entries, should be in range (0, 1].
+   * @return amount of loaded entries.
+   */
+  public long bulkLoad(Iterator<? extends Map.Entry<K, V>> entries, float fillFactor) {
+    if (fillFactor <= 0 || fillFactor > 1)
+      throw new IllegalArgumentException("Fill factor should be in range (0, 1] but was " + fillFactor);
+
+    acquireExclusiveLock();
+    try {
+      if (size() > 0)
+        throw new OSBTreeException("Bulk load is allowed only into empty sbtree, but sbtree " + name + " is not empty");
+
+      final BulkLoader loader = new BulkLoader((int) (OSBTreeBonsaiBucket.MAX_USED_SPACE * fillFactor));
+      boolean rollback = true;
+      try {
+        loader.loadLeaves(entries);
+        while (loader.level.size() > 1)
+          loader.loadNonLeafLevel();
+
+        rollback = false;
+      } finally {
+        loader.closeBucket(rollback);
+      }
+
+      loader.moveTopBucketToRoot();
+
+      return loader.treeSize;
+    } catch (IOException e) {
+      throw new OSBTreeException("Error during bulk load of sbtree with name " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
   private void rollback() {
     try {
       endAtomicOperation(true);
@@ -1408,6 +1451,236 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
     }
   }
 
+  private static final class BulkLoadItem<K> {
+    private final OBonsaiBucketPointer bucketPointer;
+    private final K                    firstKey;
+
+    private BulkLoadItem(OBonsaiBucketPointer bucketPointer, K firstKey) {
+      this.bucketPointer = bucketPointer;
+      this.firstKey = firstKey;
+    }
+  }
+
+  /**
+   * Writes buckets of tree level by level during bulk load, each bucket is changed inside of its own atomic operation.
+   */
+  private final class BulkLoader {
+    private final int                 fillLimit;
+
+    private List<BulkLoadItem<K>>     level = new ArrayList<BulkLoadItem<K>>();
+
+    private OBonsaiBucketPointer      bucketPointer;
+    private OCacheEntry               cacheEntry;
+    private OCachePointer             cachePointer;
+    private OSBTreeBonsaiBucket<K, V> bucket;
+    private boolean                   newPage;
+
+    private long                      treeSize;
+
+    private BulkLoader(int fillLimit) {
+      this.fillLimit = fillLimit;
+    }
+
+    private void loadLeaves(Iterator<? extends Map.Entry<K, V>> entries) throws IOException {
+      K prevKey = null;
+      boolean bucketFilled = false;
+
+      while (entries.hasNext()) {
+        final Map.Entry<K, V> entry = entries.next();
+        final K key = entry.getKey();
+
+        if (key == null)
+          throw new OSBTreeException("Null keys can not be bulk loaded into sbtree " + name);
+
+        if (prevKey != null && comparator.compare(prevKey, key) >= 0)
+          throw new OSBTreeException("Bulk loaded keys should be unique and sorted in ascending order, but key " + key
+              + " follows key " + prevKey + " in sbtree " + name);
+
+        if (cacheEntry == null || bucketFilled)
+          startLeafBucket(key);
+
+        final OSBTreeBonsaiBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBonsaiBucket.SBTreeEntry<K, V>(OBonsaiBucketPointer.NULL,
+            OBonsaiBucketPointer.NULL, key, entry.getValue());
+
+        if (!bucket.addEntry(bucket.size(), treeEntry, false)) {
+          startLeafBucket(key);
+          bucket.addEntry(0, treeEntry, false);
+        }
+
+        bucketFilled = bucket.getUsedSpace() >= fillLimit;
+        treeSize++;
+        prevKey = key;
+      }
+
+      closeBucket(false);
+    }
+
+    private void startLeafBucket(K firstKey) throws IOException {
+      final AllocationResult allocationResult = allocateBucketAtomically();
+
+      OBonsaiBucketPointer prevBucketPointer = OBonsaiBucketPointer.NULL;
+      if (cacheEntry != null) {
+        prevBucketPointer = bucketPointer;
+        bucket.setRightSibling(allocationResult.getPointer());
+        closeBucket(false);
+      }
+
+      openBucket(allocationResult.getPointer(), allocationResult.getCacheEntry(), true, allocationResult.isNewPage());
+      bucket.setLeftSibling(prevBucketPointer);
+
+      level.add(new BulkLoadItem<K>(bucketPointer, firstKey));
+    }
+
+    private void loadNonLeafLevel() throws IOException {
+      final List<BulkLoadItem<K>> children = level;
+      level = new ArrayList<BulkLoadItem<K>>();
+
+      int start = 0;
+      while (start < children.size()) {
+        final AllocationResult allocationResult = allocateBucketAtomically();
+        openBucket(allocationResult.getPointer(), allocationResult.getCacheEntry(), false, allocationResult.isNewPage());
+
+        level.add(new BulkLoadItem<K>(bucketPointer, children.get(start).firstKey));
+
+        int end = start + 1;
+        while (end < children.size()) {
+          if (!bucket.addEntry(bucket.size(), separator(children, end), false))
+            break;
+
+          end++;
+          if (bucket.getUsedSpace() >= fillLimit)
+            break;
+        }
+
+        // bucket can not contain single child, so last child is either added to current bucket or moved to the next bucket
+        // together with the last child of current bucket
+        if (end == children.size() - 1) {
+          if (bucket.addEntry(bucket.size(), separator(children, end), false))
+            end++;
+          else {
+            bucket.shrink(bucket.size() - 1);
+            end--;
+          }
+        }
+
+        closeBucket(false);
+        start = end;
+      }
+    }
+
+    private OSBTreeBonsaiBucket.SBTreeEntry<K, V> separator(List<BulkLoadItem<K>> children, int index) {
+      final BulkLoadItem<K> child = children.get(index);
+      return new OSBTreeBonsaiBucket.SBTreeEntry<K, V>(children.get(index - 1).bucketPointer, child.bucketPointer, child.firstKey,
+          null);
+    }
+
+    /**
+     * Copies entries of top bucket into root bucket and puts top bucket into the free list.
+     */
+    private void moveTopBucketToRoot() throws IOException {
+      if (level.isEmpty())
+        return;
+
+      final OBonsaiBucketPointer topBucketPointer = level.get(0).bucketPointer;
+
+      final List<OSBTreeBonsaiBucket.SBTreeEntry<K, V>> topEntries = new ArrayList<OSBTreeBonsaiBucket.SBTreeEntry<K, V>>();
+      final boolean isLeaf;
+
+      final OCacheEntry topCacheEntry = diskCache.load(fileId, topBucketPointer.getPageIndex(), false);
+      try {
+        final OSBTreeBonsaiBucket<K, V> topBucket = new OSBTreeBonsaiBucket<K, V>(topCacheEntry.getCachePointer().getDataPointer(),
+            topBucketPointer.getPageOffset(), keySerializer, valueSerializer, ODurablePage.TrackMode.NONE);
+        isLeaf = topBucket.isLeaf();
+
+        for (int i = 0; i < topBucket.size(); i++)
+          topEntries.add(topBucket.getEntry(i));
+      } finally {
+        diskCache.release(topCacheEntry);
+      }
+
+      boolean rollback = true;
+      openBucket(rootBucketPointer, diskCache.load(fileId, rootBucketPointer.getPageIndex(), false), isLeaf, false);
+      try {
+        bucket.setTreeSize(treeSize);
+        bucket.addAll(topEntries);
+
+        rollback = false;
+      } finally {
+        closeBucket(rollback);
+      }
+
+      startAtomicOperation();
+      try {
+        // top bucket is cleared before recycling, so its children are not recycled together with it
+        openBucket(topBucketPointer, diskCache.load(fileId, topBucketPointer.getPageIndex(), false), true, false);
+        closeBucket(false);
+
+        final Queue<OBonsaiBucketPointer> bucketsToRecycle = new LinkedList<OBonsaiBucketPointer>();
+        bucketsToRecycle.add(topBucketPointer);
+        recycleSubTrees(bucketsToRecycle);
+      } catch (IOException e) {
+        endAtomicOperation(true);
+        throw e;
+      }
+      endAtomicOperation(false);
+    }
+
+    /**
+     * Allocates bucket inside of atomic operation of currently filled bucket or inside of its own operation if there is no such
+     * bucket.
+     */
+    private AllocationResult allocateBucketAtomically() throws IOException {
+      startAtomicOperation();
+
+      final AllocationResult allocationResult;
+      try {
+        allocationResult = allocateBucket();
+      } catch (IOException e) {
+        endAtomicOperation(true);
+        throw e;
+      }
+
+      endAtomicOperation(false);
+      return allocationResult;
+    }
+
+    private void openBucket(OBonsaiBucketPointer pointer, OCacheEntry bucketCacheEntry, boolean isLeaf, boolean isNewPage)
+        throws IOException {
+      startAtomicOperation();
+
+      bucketPointer = pointer;
+      cacheEntry = bucketCacheEntry;
+      cachePointer = bucketCacheEntry.getCachePointer();
+      cachePointer.acquireExclusiveLock();
+      newPage = isNewPage;
+
+      bucket = new OSBTreeBonsaiBucket<K, V>(cachePointer.getDataPointer(), pointer.getPageOffset(), isLeaf, keySerializer,
+          valueSerializer, getTrackMode());
+    }
+
+    private void closeBucket(boolean rollback) throws IOException {
+      if (cacheEntry == null)
+        return;
+
+      try {
+        if (!rollback) {
+          logPageChanges(bucket, fileId, bucketPointer.getPageIndex(), newPage);
+          cacheEntry.markDirty();
+        }
+      } finally {
+        cachePointer.releaseExclusiveLock();
+        diskCache.release(cacheEntry);
+
+        bucketPointer = null;
+        cacheEntry = null;
+        cachePointer = null;
+        bucket = null;
+      }
+
+      endAtomicOperation(rollback);
+    }
+  }
+
   private static class AllocationResult {
     private final OBonsaiBucketPointer pointer;
     private final OCacheEntry          cacheEntry;
@@ -64,6 +64,18 @@ public class ORecordIteratorClusters<REC extends ORecordInternal<?>> extends OId
     return this;
   }
 
+  public int[] getClusterIds() {
+    return clusterIds;
+  }
+
+  public ORID getBeginRange() {
+    return beginRange;
+  }
+
+  public ORID getEndRange() {
+    return endRange;
+  }
+
   @Override
   public boolean hasPrevious() {
     checkDirection(false);
@@ -170,6 +170,11 @@ public class OSchemaProxy extends OProxedResource<OSchemaShared> implements OSch
     return delegate.getVersion();
   }
 
+  public int getVersionInternal() {
+    setCurrentDatabaseInThreadLocal();
+    return delegate.getVersionInternal();
+  }
+
   public void saveInternal() {
     setCurrentDatabaseInThreadLocal();
     delegate.saveInternal();
@@ -631,6 +631,13 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 
   @Deprecated
   public int getVersion() {
+    return getVersionInternal();
+  }
+
+  /**
+   * Returns the version of the schema record, which changes on every change of the schema.
+   */
+  public int getVersionInternal() {
     return document.getRecordVersion().getCounter();
   }
 
@@ -42,6 +42,8 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OSimpleKeySerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerFullTextPostingList;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRIDBitmap;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerListRID;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerOldRIDContainer;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRID;
@@ -149,6 +151,8 @@ public class OBinarySerializerFactory {
     factory.registerSerializer(OStreamSerializerListRID.INSTANCE, null);
     factory.registerSerializer(OStreamSerializerOldRIDContainer.INSTANCE, null);
     factory.registerSerializer(OStreamSerializerSBTreeIndexRIDContainer.INSTANCE, null);
+    factory.registerSerializer(OStreamSerializerFullTextPostingList.INSTANCE, null);
+    factory.registerSerializer(OStreamSerializerRIDBitmap.INSTANCE, null);
 
     factory.registerSerializer(OPhysicalPositionSerializer.INSTANCE, null);
     factory.registerSerializer(OClusterPositionSerializer.INSTANCE, null);
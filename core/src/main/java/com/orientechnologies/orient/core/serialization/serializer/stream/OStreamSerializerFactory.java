@@ -48,6 +48,12 @@ public class OStreamSerializerFactory {
       else if (iName.equals(OStreamSerializerSBTreeIndexRIDContainer.NAME))
         return OStreamSerializerSBTreeIndexRIDContainer.INSTANCE;
 
+      else if (iName.equals(OStreamSerializerFullTextPostingList.NAME))
+        return OStreamSerializerFullTextPostingList.INSTANCE;
+
+      else if (iName.equals(OStreamSerializerRIDBitmap.NAME))
+        return OStreamSerializerRIDBitmap.INSTANCE;
+
       else if (iName.equals(OCompositeKeySerializer.NAME))
         return OCompositeKeySerializer.INSTANCE;
 
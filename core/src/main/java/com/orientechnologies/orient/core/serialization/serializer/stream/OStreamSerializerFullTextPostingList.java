@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.stream;
+
+import java.io.IOException;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OBinaryTypeSerializer;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextPostingList;
+
+/**
+ * Serializer of values of full-text index which stores posting lists, posting list is written in its compressed form prefixed by
+ * its length.
+ * 
+ * @see OFullTextPostingList
+ */
+public class OStreamSerializerFullTextPostingList implements OStreamSerializer, OBinarySerializer<OFullTextPostingList> {
+  public static final String                               NAME     = "ftp";
+  public static final OStreamSerializerFullTextPostingList INSTANCE = new OStreamSerializerFullTextPostingList();
+
+  public static final byte                                 ID       = 22;
+
+  public Object fromStream(final byte[] iStream) throws IOException {
+    if (iStream == null)
+      return null;
+
+    return new OFullTextPostingList(iStream);
+  }
+
+  public byte[] toStream(final Object iObject) throws IOException {
+    if (iObject == null)
+      return null;
+
+    return ((OFullTextPostingList) iObject).toStream();
+  }
+
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getObjectSize(OFullTextPostingList object, Object... hints) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSize(object.toStream());
+  }
+
+  @Override
+  public int getObjectSize(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSize(stream, startPosition);
+  }
+
+  @Override
+  public void serialize(OFullTextPostingList object, byte[] stream, int startPosition, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serialize(object.toStream(), stream, startPosition);
+  }
+
+  @Override
+  public OFullTextPostingList deserialize(byte[] stream, int startPosition) {
+    return new OFullTextPostingList(OBinaryTypeSerializer.INSTANCE.deserialize(stream, startPosition));
+  }
+
+  @Override
+  public byte getId() {
+    return ID;
+  }
+
+  @Override
+  public boolean isFixedLength() {
+    return false;
+  }
+
+  @Override
+  public int getFixedLength() {
+    return 0;
+  }
+
+  @Override
+  public void serializeNative(OFullTextPostingList object, byte[] stream, int startPosition, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serializeNative(object.toStream(), stream, startPosition);
+  }
+
+  @Override
+  public OFullTextPostingList deserializeNative(byte[] stream, int startPosition) {
+    return new OFullTextPostingList(OBinaryTypeSerializer.INSTANCE.deserializeNative(stream, startPosition));
+  }
+
+  @Override
+  public int getObjectSizeNative(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSizeNative(stream, startPosition);
+  }
+
+  @Override
+  public void serializeInDirectMemory(OFullTextPostingList object, ODirectMemoryPointer pointer, long offset, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serializeInDirectMemory(object.toStream(), pointer, offset);
+  }
+
+  @Override
+  public OFullTextPostingList deserializeFromDirectMemory(ODirectMemoryPointer pointer, long offset) {
+    return new OFullTextPostingList(OBinaryTypeSerializer.INSTANCE.deserializeFromDirectMemory(pointer, offset));
+  }
+
+  @Override
+  public int getObjectSizeInDirectMemory(ODirectMemoryPointer pointer, long offset) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSizeInDirectMemory(pointer, offset);
+  }
+
+  @Override
+  public OFullTextPostingList preprocess(OFullTextPostingList value, Object... hints) {
+    return value;
+  }
+}
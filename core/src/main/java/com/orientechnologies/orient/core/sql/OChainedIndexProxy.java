@@ -133,6 +133,10 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
     final Collection<OIndex<?>> result = new ArrayList<OIndex<?>>();
 
     for (OIndex<?> involvedIndex : involvedIndexes) {
+      // PARTIAL INDEXES DON'T CONTAIN ALL THE LINKED RECORDS
+      if (involvedIndex.getDefinition().getFilter() != null)
+        continue;
+
       if (!indexTypes.contains(involvedIndex.getInternal().getClass())) {
         result.add(involvedIndex);
         indexTypes.add(involvedIndex.getInternal().getClass());
@@ -167,6 +171,7 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
    * <li>Should be unique or not unique. Other types can not be used to get all documents with required links.</li>
    * <li>Should not be composite hash index. As soon as hash index does not support partial match search.</li>
    * <li>Composite index that ignores null values should not be used.</li>
+   * <li>Partial index should not be used. It does not contain all the documents.</li>
    * <li>Hash index is better than tree based indexes.</li>
    * <li>Non composite indexes is better that composite.</li>
    * </ul>
@@ -185,7 +190,7 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
   }
 
   private static int priorityOfUsage(OIndex<?> index) {
-    if (index == null)
+    if (index == null || index.getDefinition().getFilter() != null)
       return -1;
 
     final OClass.INDEX_TYPE indexType = OClass.INDEX_TYPE.valueOf(index.getType());
@@ -211,6 +216,7 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
       break;
     case UNIQUE:
     case NOTUNIQUE:
+    case BITMAP:
       priority += 5;
       break;
     case PROXY:
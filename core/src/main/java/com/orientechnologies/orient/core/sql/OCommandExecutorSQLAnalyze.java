@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.command.OCommandDistributedReplicateRequest;
+import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * SQL ANALYZE command: collects the statistics of indexes used to choose how queries are executed. ANALYZE CLASS analyzes all the
+ * indexes of the class and returns also the records of its clusters.
+ */
+public class OCommandExecutorSQLAnalyze extends OCommandExecutorSQLAbstract implements OCommandDistributedReplicateRequest {
+  public static final String KEYWORD_ANALYZE = "ANALYZE";
+  public static final String KEYWORD_INDEX   = "INDEX";
+  public static final String KEYWORD_CLASS   = "CLASS";
+
+  private String             indexName;
+  private String             className;
+
+  @SuppressWarnings("unchecked")
+  public OCommandExecutorSQLAnalyze parse(final OCommandRequest iRequest) {
+    init((OCommandRequestText) iRequest);
+
+    final StringBuilder word = new StringBuilder();
+
+    int oldPos = 0;
+    int pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
+    if (pos == -1 || !word.toString().equals(KEYWORD_ANALYZE))
+      throw new OCommandSQLParsingException("Keyword " + KEYWORD_ANALYZE + " not found. Use " + getSyntax(), parserText, oldPos);
+
+    oldPos = pos;
+    pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
+    if (pos == -1 || !word.toString().equals(KEYWORD_INDEX) && !word.toString().equals(KEYWORD_CLASS))
+      throw new OCommandSQLParsingException("Keyword " + KEYWORD_INDEX + " or " + KEYWORD_CLASS + " not found. Use " + getSyntax(),
+          parserText, oldPos);
+
+    final boolean index = word.toString().equals(KEYWORD_INDEX);
+
+    oldPos = pos;
+    pos = nextWord(parserText, parserText, oldPos, word, false);
+    if (pos == -1)
+      throw new OCommandSQLParsingException("Expected " + (index ? "index" : "class") + " name. Use " + getSyntax(), parserText,
+          oldPos);
+
+    if (index)
+      indexName = word.toString();
+    else
+      className = word.toString();
+
+    return this;
+  }
+
+  /**
+   * Execute the ANALYZE.
+   */
+  public Object execute(final Map<Object, Object> iArgs) {
+    if (indexName == null && className == null)
+      throw new OCommandExecutionException("Cannot execute the command because it has not been parsed yet");
+
+    final ODatabaseRecord database = getDatabase();
+    final OSQLStatistics statistics = OSQLStatistics.instance(database);
+
+    if (className != null) {
+      final OClass cls = database.getMetadata().getSchema().getClass(className);
+      if (cls == null)
+        throw new OCommandExecutionException("Class '" + className + "' not found");
+
+      final Map<String, Long> clusters = new LinkedHashMap<String, Long>();
+      long records = 0;
+      for (int clusterId : cls.getPolymorphicClusterIds()) {
+        final long clusterRecords = database.countClusterElements(clusterId);
+        clusters.put(database.getClusterNameById(clusterId), clusterRecords);
+        records += clusterRecords;
+      }
+
+      final List<ODocument> indexes = new ArrayList<ODocument>();
+      for (OIndex<?> idx : cls.getIndexes())
+        indexes.add(analyze(statistics, idx));
+
+      final ODocument result = new ODocument();
+      result.field("class", cls.getName());
+      result.field("records", records);
+      result.field("clusters", clusters);
+      result.field("indexes", indexes);
+      return result;
+    }
+
+    final List<ODocument> result = new ArrayList<ODocument>();
+    if (indexName.equals("*")) {
+      for (OIndex<?> idx : database.getMetadata().getIndexManager().getIndexes())
+        if (idx.getDefinition() != null)
+          result.add(analyze(statistics, idx));
+    } else {
+      final OIndex<?> idx = database.getMetadata().getIndexManager().getIndex(indexName);
+      if (idx == null)
+        throw new OCommandExecutionException("Index '" + indexName + "' not found");
+
+      result.add(analyze(statistics, idx));
+    }
+
+    return result;
+  }
+
+  @Override
+  public String getSyntax() {
+    return "ANALYZE INDEX <index-name>|* | ANALYZE CLASS <class-name>";
+  }
+
+  private static ODocument analyze(final OSQLStatistics iStatistics, final OIndex<?> iIndex) {
+    final long begin = System.currentTimeMillis();
+
+    final ODocument document = iStatistics.analyze(iIndex).toDocument();
+    document.field("name", iIndex.getName());
+    document.field("elapsed", System.currentTimeMillis() - begin);
+    return document;
+  }
+}
@@ -21,6 +21,7 @@ import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexDefinitionFactory;
@@ -28,8 +29,10 @@ import com.orientechnologies.orient.core.index.OPropertyMapIndexDefinition;
 import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
 import com.orientechnologies.orient.core.index.OSimpleKeyIndexDefinition;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
 
 import java.util.*;
 
@@ -38,8 +41,17 @@ import java.util.*;
  * <p/>
  * <p>
  * Supports following grammar: <br/>
- * "CREATE" "INDEX" &lt;indexName&gt; ["ON" &lt;className&gt; "(" &lt;propName&gt; ("," &lt;propName&gt;)* ")"] &lt;indexType&gt;
- * [&lt;keyType&gt; ("," &lt;keyType&gt;)*]
+ * "CREATE" "INDEX" &lt;indexName&gt; ["ON" &lt;className&gt; "(" &lt;propName&gt; ("," &lt;propName&gt;)* ")" ["INCLUDE" "(" &lt;propName&gt;
+ * ("," &lt;propName&gt;)* ")"]] &lt;indexType&gt; [&lt;keyType&gt; ("," &lt;keyType&gt;)*] ["WHERE" &lt;condition&gt;] ["METADATA" &lt;json&gt;]
+ * </p>
+ * <p>
+ * Included properties are appended to the index key after the indexed ones, so queries that project only indexed and included
+ * properties are answered by the index without loading the records. Records whose included properties are null are indexed with
+ * null key parts. They are allowed only on NOTUNIQUE indexes, where adding them to the key does not change which records can be
+ * indexed.
+ * </p>
+ * <p>
+ * The WHERE condition creates a partial index, which contains only the records of the class that satisfy the condition.
  * </p>
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
@@ -51,6 +63,7 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
   public static final String KEYWORD_ON       = "ON";
   public static final String KEYWORD_METADATA = "METADATA";
   public static final String KEYWORD_ENGINE   = "ENGINE";
+  public static final String KEYWORD_INCLUDE  = "INCLUDE";
 
   private String             indexName;
   private OClass             oClass;
@@ -61,6 +74,8 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
   private String             engine;
   private ODocument          metadataDoc      = null;
   private String[]           collates;
+  private int                includedFieldsCount;
+  private String             filter;
 
   public OCommandExecutorSQLCreateIndex parse(final OCommandRequest iRequest) {
     init((OCommandRequestText) iRequest);
@@ -140,6 +155,15 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
       pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
       if (pos == -1)
         throw new OCommandSQLParsingException("Index type requested. Use " + getSyntax(), parserText, oldPos + 1);
+
+      if (word.toString().equals(KEYWORD_INCLUDE)) {
+        parseIncludedFields(pos);
+
+        oldPos = parserText.indexOf(')', pos) + 1;
+        pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
+        if (pos == -1)
+          throw new OCommandSQLParsingException("Index type requested. Use " + getSyntax(), parserText, oldPos + 1);
+      }
     } else {
       if (indexName.indexOf('.') > 0) {
         final String[] parts = indexName.split("\\.");
@@ -157,6 +181,10 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
     if (indexType == null)
       throw new OCommandSQLParsingException("Index type is null", parserText, oldPos);
 
+    if (includedFieldsCount > 0 && indexType != OClass.INDEX_TYPE.NOTUNIQUE)
+      throw new OCommandSQLParsingException("Included properties are supported only by " + OClass.INDEX_TYPE.NOTUNIQUE
+          + " indexes", parserText, oldPos);
+
     oldPos = pos;
     pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
 
@@ -168,7 +196,20 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
     } else
       parserGoBack();
 
-    final int configPos = parserTextUpperCase.indexOf(KEYWORD_METADATA, oldPos);
+    final int wherePos = parserTextUpperCase.indexOf(" " + KEYWORD_WHERE + " ", oldPos);
+    final int configPos = parserTextUpperCase.indexOf(KEYWORD_METADATA, wherePos > -1 ? wherePos : oldPos);
+
+    if (wherePos > -1) {
+      if (oClass == null)
+        throw new OCommandSQLParsingException("Only indexes on class properties can have a " + KEYWORD_WHERE + " condition",
+            parserText, wherePos);
+
+      filter = parserText.substring(wherePos + KEYWORD_WHERE.length() + 2, configPos > -1 ? configPos : parserText.length())
+          .trim();
+
+      // CHECK THE SYNTAX OF THE CONDITION
+      new OSQLFilter(filter, getContext(), KEYWORD_WHERE);
+    }
 
     if (configPos > -1) {
       final String configString = parserText.substring(configPos + KEYWORD_METADATA.length()).trim();
@@ -176,9 +217,12 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
     }
 
     pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
-    if (pos != -1 && !word.toString().equalsIgnoreCase("NULL") && !word.toString().equalsIgnoreCase(KEYWORD_METADATA)) {
+    if (pos != -1 && !word.toString().equalsIgnoreCase("NULL") && !word.toString().equalsIgnoreCase(KEYWORD_METADATA)
+        && !word.toString().equalsIgnoreCase(KEYWORD_WHERE)) {
       final String typesString;
-      if (configPos > -1)
+      if (wherePos > -1)
+        typesString = parserTextUpperCase.substring(oldPos, wherePos).trim();
+      else if (configPos > -1)
         typesString = parserTextUpperCase.substring(oldPos, configPos).trim();
       else
         typesString = parserTextUpperCase.substring(oldPos).trim();
@@ -231,7 +275,7 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
         idx = database.getMetadata().getIndexManager()
             .createIndex(indexName, indexType.toString(), null, null, null, metadataDoc, engine);
     } else {
-      if ((keyTypes == null || keyTypes.length == 0) && collates == null) {
+      if ((keyTypes == null || keyTypes.length == 0) && collates == null && filter == null) {
         idx = oClass.createIndex(indexName, indexType.toString(), null, metadataDoc, engine, fields);
       } else {
 
@@ -249,8 +293,17 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
           }
         }
 
-        final OIndexDefinition idxDef = OIndexDefinitionFactory.createIndexDefinition(oClass, Arrays.asList(fields),
-            Arrays.asList(keyTypes), collatesList);
+        final List<OType> types;
+        if (keyTypes != null && keyTypes.length > 0)
+          types = Arrays.asList(keyTypes);
+        else
+          types = extractFieldTypes();
+
+        final OIndexDefinition idxDef = OIndexDefinitionFactory.createIndexDefinition(oClass, Arrays.asList(fields), types,
+            collatesList);
+        idxDef.setFilter(filter);
+        if (includedFieldsCount > 0)
+          ((OCompositeIndexDefinition) idxDef).setIncludedFieldsCount(includedFieldsCount);
 
         idx = database.getMetadata().getIndexManager()
             .createIndex(indexName, indexType.name(), idxDef, oClass.getPolymorphicClusterIds(), null, metadataDoc, engine);
@@ -265,7 +318,53 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
 
   @Override
   public String getSyntax() {
-    return "CREATE INDEX <name> [ON <class-name> (prop-names [COLLATE <collate>])] <type> [<key-type>] [METADATA {JSON Index Metadata Document}]";
+    return "CREATE INDEX <name> [ON <class-name> (prop-names [COLLATE <collate>]) [INCLUDE (prop-names)]] <type> [<key-type>] [WHERE <condition>] [METADATA {JSON Index Metadata Document}]";
+  }
+
+  private void parseIncludedFields(final int iPos) {
+    final int begin = parserText.indexOf('(', iPos);
+    final int end = parserText.indexOf(')', iPos);
+    if (begin == -1 || end < begin)
+      throw new OCommandSQLParsingException("Expected included property names between brackets. Use " + getSyntax(), parserText,
+          iPos);
+
+    final List<String> fieldList = new ArrayList<String>();
+    Collections.addAll(fieldList, fields);
+
+    for (String includedField : parserText.substring(begin + 1, end).trim().split("\\s*,\\s*")) {
+      if (includedField.isEmpty() || includedField.indexOf(' ') > -1)
+        throw new OCommandSQLParsingException("Illegal included property name '" + includedField + "'", parserText, iPos);
+
+      if (fieldList.contains(includedField))
+        throw new OCommandSQLParsingException("Property '" + includedField + "' is already part of the index", parserText, iPos);
+
+      fieldList.add(includedField);
+      includedFieldsCount++;
+    }
+
+    if (collates != null)
+      collates = Arrays.copyOf(collates, fieldList.size());
+
+    fields = new String[fieldList.size()];
+    fieldList.toArray(fields);
+  }
+
+  private List<OType> extractFieldTypes() {
+    final List<OType> types = new ArrayList<OType>(fields.length);
+    for (String field : fields) {
+      final String fieldName = OIndexDefinitionFactory.extractFieldName(field);
+      if (fieldName.equals("@rid")) {
+        types.add(OType.LINK);
+        continue;
+      }
+
+      final OProperty property = oClass.getProperty(fieldName);
+      if (property == null)
+        throw new OCommandExecutionException("Property '" + fieldName + "' is not defined in class " + oClass.getName());
+
+      types.add(property.getType());
+    }
+    return types;
   }
 
   private OClass findClass(String part) {
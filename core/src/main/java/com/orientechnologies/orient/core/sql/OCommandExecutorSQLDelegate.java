@@ -20,6 +20,7 @@ import com.orientechnologies.orient.core.command.OCommandExecutorNotFoundExcepti
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaProxy;
 
 import java.util.Locale;
 import java.util.Map;
@@ -32,6 +33,9 @@ import java.util.Map;
  */
 public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
   protected OCommandExecutorSQLAbstract delegate;
+  private OSQLPlanCache                 planCache;
+  private String                        planKey;
+  private long                          parseTime;
 
   @SuppressWarnings("unchecked")
   public OCommandExecutorSQLDelegate parse(final OCommandRequest iCommand) {
@@ -43,21 +47,54 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
 
       final String textUpperCase = text.toUpperCase(Locale.ENGLISH);
 
+      // SUB-QUERIES AND WRAPPING COMMANDS USE THE EXECUTOR AFTER THE EXECUTION, SO ONLY PLAIN SELECT STATEMENTS ARE CACHED
+      final boolean select = textUpperCase.trim().startsWith(OCommandExecutorSQLSelect.KEYWORD_SELECT);
+      planCache = select && getClass() == OCommandExecutorSQLDelegate.class ? OSQLPlanCache.instance(getDatabase()) : null;
+      if (planCache != null) {
+        planKey = OSQLPlanCache.getKey(text, iCommand.getLimit(),
+            ((OSchemaProxy) getDatabase().getMetadata().getSchema()).getVersionInternal());
+
+        final OCommandExecutorSQLSelect cached = planCache.poll(planKey);
+        if (cached != null) {
+          // REUSE THE STATEMENT PARSED BEFORE
+          delegate = cached;
+          delegate.setContext(context);
+          delegate.setProgressListener(progressListener);
+          cached.reuse(iCommand);
+          return this;
+        }
+      }
+
       delegate = (OCommandExecutorSQLAbstract) OSQLEngine.getInstance().getCommand(textUpperCase);
       if (delegate == null)
         throw new OCommandExecutorNotFoundException("Cannot find a command executor for the command request: " + iCommand);
 
       delegate.setContext(context);
       delegate.setLimit(iCommand.getLimit());
+
+      final long beginParsing = System.nanoTime();
       delegate.parse(iCommand);
+      parseTime = System.nanoTime() - beginParsing;
+
       delegate.setProgressListener(progressListener);
+
+      if (!(delegate instanceof OCommandExecutorSQLSelect))
+        planKey = null;
     } else
       throw new OCommandExecutionException("Cannot find a command executor for the command request: " + iCommand);
     return this;
   }
 
   public Object execute(final Map<Object, Object> iArgs) {
-    return delegate.execute(iArgs);
+    try {
+      return delegate.execute(iArgs);
+    } finally {
+      if (planKey != null) {
+        // GIVE THE PARSED STATEMENT BACK FOR THE NEXT EXECUTION
+        planCache.offer(planKey, (OCommandExecutorSQLSelect) delegate, parseTime);
+        planKey = null;
+      }
+    }
   }
 
   @Override
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
@@ -95,18 +96,24 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
     final OCommandRequestText textRequest = (OCommandRequestText) iRequest;
 
     init(textRequest);
+    bindRequest(textRequest);
+    return this;
+  }
 
+  /**
+   * Assigns the query which receives the results of the execution.
+   */
+  protected void bindRequest(final OCommandRequestText iRequest) {
     if (iRequest instanceof OSQLSynchQuery) {
       request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
     } else if (iRequest instanceof OSQLAsynchQuery)
       request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
     else {
       // BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
-      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(textRequest.getText());
-      if (textRequest.getResultListener() != null)
-        request.setResultListener(textRequest.getResultListener());
+      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
+      if (iRequest.getResultListener() != null)
+        request.setResultListener(iRequest.getResultListener());
     }
-    return this;
   }
 
   @Override
@@ -289,6 +296,15 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
   }
 
   protected boolean filter(final ORecord<?> iRecord) {
+    return filter(iRecord, context);
+  }
+
+  /**
+   * Filters the record against the target classes and the WHERE condition using the passed context for variables and metrics, so
+   * records can be filtered by several threads at once each one with its own context. LET clauses are always assigned to the
+   * command context.
+   */
+  protected boolean filter(final ORecord<?> iRecord, final OCommandContext iContext) {
     if (iRecord instanceof ORecordSchemaAware<?>) {
       // CHECK THE TARGET CLASS
       final ORecordSchemaAware<?> recordSchemaAware = (ORecordSchemaAware<?>) iRecord;
@@ -299,21 +315,25 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
           if (!targetClass.isSuperClassOf(recordSchemaAware.getSchemaClass()))
             return false;
         }
-        context.updateMetric("documentAnalyzedCompatibleClass", +1);
+        iContext.updateMetric("documentAnalyzedCompatibleClass", +1);
       }
     }
 
-    return evaluateRecord(iRecord);
+    return evaluateRecord(iRecord, iContext);
   }
 
   protected boolean evaluateRecord(final ORecord<?> iRecord) {
-    context.setVariable("current", iRecord);
-    context.updateMetric("evaluated", +1);
+    return evaluateRecord(iRecord, context);
+  }
+
+  protected boolean evaluateRecord(final ORecord<?> iRecord, final OCommandContext iContext) {
+    iContext.setVariable("current", iRecord);
+    iContext.updateMetric("evaluated", +1);
 
     assignLetClauses(iRecord);
     if (compiledFilter == null)
       return true;
-    return (Boolean) compiledFilter.evaluate(iRecord, null, context);
+    return (Boolean) compiledFilter.evaluate(iRecord, null, iContext);
   }
 
   protected void assignLetClauses(final ORecord<?> iRecord) {
@@ -27,8 +27,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.Future;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import com.orientechnologies.common.collection.OMultiCollectionIterator;
 import com.orientechnologies.common.collection.OMultiValue;
@@ -36,28 +42,43 @@ import com.orientechnologies.common.concur.resource.OSharedResource;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.collate.OCollate;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OCompositeKey;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexCursor;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
+import com.orientechnologies.orient.core.index.OIndexFullText;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.bitmap.OIndexBitmap;
+import com.orientechnologies.orient.core.index.bitmap.ORIDBitmap;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorClusters;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
 import com.orientechnologies.orient.core.metadata.security.ORole;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
@@ -67,14 +88,18 @@ import com.orientechnologies.orient.core.sql.functions.coll.OSQLFunctionDistinct
 import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
 import com.orientechnologies.orient.core.sql.operator.OIndexReuseType;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIn;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
-import com.orientechnologies.orient.core.sql.query.OResultSet;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNot;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
 import com.orientechnologies.orient.core.sql.query.OSQLQuery;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.OStorage;
 
 /**
@@ -82,6 +107,9 @@ import com.orientechnologies.orient.core.storage.OStorage;
  * If the query contains the ORDER BY clause, the results are temporary collected internally, then ordered and finally returned all
  * together to the listener.
  * 
+ * Conditions on fields indexed by bitmap indexes are combined by AND, OR and AND NOT directly on bitmaps of record identities, so
+ * only records which satisfy all of them are loaded.
+ * 
  * @author Luca Garulli
  */
 @SuppressWarnings("unchecked")
@@ -100,9 +128,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private Map<String, Object>         projections          = null;
   private List<OPair<String, String>> orderedFields        = new ArrayList<OPair<String, String>>();
   private List<String>                groupByFields;
-  private Map<Object, ORuntimeResult> groupedResult;
+  private OGroupByResult              groupedResult;
   private Object                      expandTarget;
   private int                         fetchLimit           = -1;
+  private int                         streamedGroups;
   private OIdentifiable               lastRecord;
   private String                      fetchPlan;
   private volatile boolean            executing;
@@ -111,6 +140,38 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private OStorage.LOCKING_STRATEGY   lockingStrategy      = OStorage.LOCKING_STRATEGY.DEFAULT;
   private boolean                     parallel             = false;
 
+  // STATE AFTER PARSING, IT'S RESTORED WHEN THE EXECUTOR IS REUSED BY THE PLAN CACHE
+  private int                         parsedSkip;
+  private int                         parsedLimit;
+  private List<OPair<String, String>> parsedOrderedFields;
+  private boolean                     parsedAggregation;
+
+  private static final Pattern        SUB_QUERY            = Pattern.compile("\\(\\s*(SELECT|TRAVERSE)\\s");
+
+  private static final int            PARALLEL_RANGES_PER_WORKER = 8;
+  private static final long           PARALLEL_MIN_RANGE_SIZE    = 1000;
+  private static final int            PARALLEL_QUEUE_SIZE        = 1000;
+  private static final long           PARALLEL_POLL_TIMEOUT      = 10;
+
+  /**
+   * Index which can answer a subset of the query, with the values of its fields, the estimated entries matching them and the ones
+   * read before the limit is reached.
+   */
+  private static final class IndexCandidate {
+    private final OIndex<?>          index;
+    private final OIndexSearchResult searchResult;
+    private final List<Object>       keyParams;
+    private long                     rows  = -1;
+    private long                     reads = -1;
+    private double                   cost;
+
+    private IndexCandidate(final OIndex<?> index, final OIndexSearchResult searchResult, final List<Object> keyParams) {
+      this.index = index;
+      this.searchResult = searchResult;
+      this.keyParams = keyParams;
+    }
+  }
+
   private final class IndexComparator implements Comparator<OIndex<?>> {
     public int compare(final OIndex<?> indexOne, final OIndex<?> indexTwo) {
       final OIndexDefinition definitionOne = indexOne.getDefinition();
@@ -129,10 +190,201 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           return -1;
       }
 
+      if (result == 0) {
+        // BETWEEN INDEXES OF THE SAME SIZE PREFER THE ONES THAT CAN ANSWER THE PROJECTIONS WITHOUT LOADING THE RECORDS
+        final boolean coveringOne = isIndexCoveringProjections(indexOne);
+        final boolean coveringTwo = isIndexCoveringProjections(indexTwo);
+        if (coveringOne != coveringTwo)
+          return coveringOne ? -1 : 1;
+      }
+
       return result;
     }
   }
 
+  /**
+   * Computes groups of GROUP BY and aggregate functions for {@link OGroupByResult}.
+   */
+  private final class GroupHandler implements OGroupByResult.OGroupHandler {
+    public Object getGroupValue(final OIdentifiable iRecord) {
+      if (groupByFields == null || groupByFields.isEmpty())
+        return null;
+
+      if (groupByFields.size() > 1) {
+        // MULTI-FIELD GROUP BY
+        final ODocument doc = iRecord.getRecord();
+        final Object[] fields = new Object[groupByFields.size()];
+        for (int i = 0; i < groupByFields.size(); ++i) {
+          final String field = groupByFields.get(i);
+          if (field.startsWith("$"))
+            fields[i] = context.getVariable(field);
+          else
+            fields[i] = doc.field(field);
+        }
+        return fields;
+      }
+
+      final String field = groupByFields.get(0);
+      if (field == null)
+        return null;
+
+      if (field.startsWith("$"))
+        return context.getVariable(field);
+
+      return ((ODocument) iRecord.getRecord()).field(field);
+    }
+
+    public ORuntimeResult createGroup(final Object iGroupValue, final int iProgressive) {
+      return new ORuntimeResult(iGroupValue, createProjectionFromDefinition(), iProgressive, context);
+    }
+
+    public boolean isOrderedByGroup() {
+      // RECORDS COME FROM INDEX ORDERED BY THE GROUP BY FIELDS
+      if (!fullySortedByIndex || orderedFields.size() < groupByFields.size())
+        return false;
+
+      for (int i = 0; i < groupByFields.size(); ++i)
+        if (!groupByFields.get(i).equalsIgnoreCase(orderedFields.get(i).getKey()))
+          return false;
+
+      return true;
+    }
+
+    public boolean isReplayable() {
+      // VARIABLES OF CONTEXT ARE NOT AVAILABLE WHEN SPILLED RECORDS ARE AGGREGATED
+      if (let != null && !let.isEmpty())
+        return false;
+
+      if (groupByFields != null)
+        for (String field : groupByFields)
+          if (field.startsWith("$"))
+            return false;
+
+      return true;
+    }
+  }
+
+  /**
+   * Records found by bitmap indexes for part of WHERE condition. If result is exact, records satisfy the condition without
+   * evaluation. Negated result contains records which do NOT satisfy the condition and can be used only to subtract them from
+   * other result.
+   */
+  private static final class BitmapSearchResult {
+    private final ORIDBitmap bitmap;
+    private final boolean    exact;
+    private final boolean    negated;
+    private final int        conditions;
+
+    private BitmapSearchResult(final ORIDBitmap bitmap, final boolean exact, final boolean negated, final int conditions) {
+      this.bitmap = bitmap;
+      this.exact = exact;
+      this.negated = negated;
+      this.conditions = conditions;
+    }
+
+    private BitmapSearchResult inexact() {
+      return new BitmapSearchResult(bitmap, false, negated, conditions);
+    }
+  }
+
+  /**
+   * Range of positions of one cluster scanned by a worker of parallel query.
+   */
+  private static final class ClusterRange {
+    private final int  clusterId;
+    private final long from;
+    private final long to;
+
+    private ClusterRange(final int clusterId, final long from, final long to) {
+      this.clusterId = clusterId;
+      this.from = from;
+      this.to = to;
+    }
+  }
+
+  /**
+   * Worker of parallel query: takes ranges of positions until there are no more of them or the execution is broken, loads the
+   * records of every range and passes the ones which satisfy the condition to the thread which collects the results. Every worker
+   * uses its own context, so variables set during the evaluation of one record are not seen by the other workers.
+   */
+  private final class ParallelScanWorker implements Runnable {
+    private final ODatabaseRecord                   database;
+    private final Queue<ClusterRange>               ranges;
+    private final BlockingQueue<ORecordInternal<?>> results;
+    private final Map<String, Object>               variables;
+    private final CountDownLatch                    completed;
+
+    private long                                    recordReads;
+    private long                                    documentReads;
+    private Throwable                               error;
+
+    private ParallelScanWorker(final ODatabaseRecord database, final Queue<ClusterRange> ranges,
+        final BlockingQueue<ORecordInternal<?>> results, final Map<String, Object> variables, final CountDownLatch completed) {
+      this.database = database;
+      this.ranges = ranges;
+      this.results = results;
+      this.variables = variables;
+      this.completed = completed;
+    }
+
+    @Override
+    public void run() {
+      try {
+        ODatabaseRecordThreadLocal.INSTANCE.set(database);
+
+        final OBasicCommandContext workerContext = new OBasicCommandContext();
+        for (Map.Entry<String, Object> variable : variables.entrySet())
+          workerContext.setVariable(variable.getKey(), variable.getValue());
+
+        ClusterRange range;
+        while (executing && (range = ranges.poll()) != null)
+          scan(range, workerContext);
+
+      } catch (Throwable t) {
+        error = t;
+        executing = false;
+      } finally {
+        completed.countDown();
+      }
+    }
+
+    private void scan(final ClusterRange range, final OCommandContext workerContext) throws InterruptedException {
+      final OStorage storage = database.getStorage();
+      final OClusterPosition to = OClusterPositionFactory.INSTANCE.valueOf(range.to);
+
+      OPhysicalPosition[] positions = storage.ceilingPhysicalPositions(range.clusterId, new OPhysicalPosition(
+          OClusterPositionFactory.INSTANCE.valueOf(range.from)));
+
+      while (positions != null && positions.length > 0) {
+        for (OPhysicalPosition position : positions) {
+          if (!executing || position.clusterPosition.compareTo(to) > 0)
+            return;
+
+          if (position.recordVersion.isTombstone())
+            continue;
+
+          // THE FIRST LEVEL CACHE IS BYPASSED BECAUSE IT IS NOT SHARED BETWEEN THREADS
+          final ORecordInternal<?> record = database.load(new ORecordId(range.clusterId, position.clusterPosition), null, true,
+              false, OStorage.LOCKING_STRATEGY.DEFAULT);
+          recordReads++;
+
+          if (record == null || record.getRecordType() != ODocument.RECORD_TYPE)
+            // SKIP IT
+            continue;
+
+          documentReads++;
+
+          if (filter(record, workerContext))
+            while (!results.offer(record, PARALLEL_POLL_TIMEOUT, TimeUnit.MILLISECONDS))
+              if (!executing)
+                return;
+        }
+
+        positions = storage.higherPhysicalPositions(range.clusterId, positions[positions.length - 1]);
+      }
+    }
+  }
+
   private static List<OIndex<?>> getInvolvedIndexes(OClass iSchemaClass, OIndexSearchResult searchResultFields) {
     final Set<OIndex<?>> involvedIndexes = iSchemaClass.getInvolvedIndexes(searchResultFields.fields());
 
@@ -355,9 +607,70 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
     }
 
+    parsedSkip = skip;
+    parsedLimit = limit;
+    parsedOrderedFields = new ArrayList<OPair<String, String>>(orderedFields);
+    parsedAggregation = groupedResult != null;
+
     return this;
   }
 
+  /**
+   * Tells if the parsed statement can be kept by {@link OSQLPlanCache} and executed again with other parameters. Sub-queries, LET
+   * and EXPAND keep the state of the execution in the parsed structures, so such statements are parsed every time.
+   */
+  public boolean isCacheable() {
+    return parsedTarget != null && parsedTarget.getTargetQuery() == null && (let == null || let.isEmpty()) && expandTarget == null
+        && !SUB_QUERY.matcher(parserTextUpperCase).find();
+  }
+
+  /**
+   * Prepares the executor parsed before to execute a request with the same text. Target, filter and clauses are kept, the state of
+   * the previous execution is cleared. The context of the new execution should be assigned before.
+   */
+  public OCommandExecutorSQLSelect reuse(final OCommandRequest iRequest) {
+    getDatabase().checkSecurity(ODatabaseSecurityResources.COMMAND, ORole.PERMISSION_READ);
+    bindRequest((OCommandRequestText) iRequest);
+
+    // THE FETCH PLAN OF THE STATEMENT IS PASSED TO THE CLIENT THROUGH THE REQUEST
+    if (fetchPlan != null)
+      request.setFetchPlan(fetchPlan);
+
+    skip = parsedSkip;
+    limit = parsedLimit;
+    orderedFields = new ArrayList<OPair<String, String>>(parsedOrderedFields);
+    fetchLimit = -1;
+    streamedGroups = 0;
+    resultCount = 0;
+    fullySortedByIndex = false;
+
+    // FUNCTIONS OF PROJECTIONS KEEP THE STATE OF THE EXECUTION
+    if (projectionDefinition != null)
+      projections = createProjectionFromDefinition();
+
+    if (parsedAggregation) {
+      getProjectionGroup(null);
+      if (groupByFields != null)
+        groupedResult.setGrouped(true);
+    }
+
+    return this;
+  }
+
+  /**
+   * Releases the request and the results of the last execution, so they are not kept while the executor waits in the plan cache.
+   */
+  public void release() {
+    closeTemporaryResults();
+
+    request = null;
+    parameters = null;
+    target = null;
+    tempResult = null;
+    lastRecord = null;
+    groupedResult = null;
+  }
+
   /**
    * Determine clusters that are used in select operation
    * 
@@ -433,13 +746,17 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final Iterator<OIdentifiable> subIterator;
     if (target == null) {
       // GET THE RESULT
-      executeSearch(iArgs);
-      applyExpand();
-      handleNoTarget();
-      handleGroupBy();
-      applyOrderBy();
+      try {
+        executeSearch(iArgs);
+        applyExpand();
+        handleNoTarget();
+        handleGroupBy();
+        applyOrderBy();
 
-      subIterator = new ArrayList<OIdentifiable>((List<OIdentifiable>) getResult()).iterator();
+        subIterator = new ArrayList<OIdentifiable>((List<OIdentifiable>) getResult()).iterator();
+      } finally {
+        closeTemporaryResults();
+      }
       lastRecord = null;
       tempResult = null;
       groupedResult = null;
@@ -471,6 +788,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       }
       return getResult();
     } finally {
+      closeTemporaryResults();
+
       if (request.getResultListener() != null)
         request.getResultListener().end();
     }
@@ -581,7 +900,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
    * @return false if limit has been reached, otherwise true
    */
   protected boolean handleResult(final OIdentifiable iRecord) {
-    if ((orderedFields.isEmpty() || fullySortedByIndex) && skip > 0) {
+    if ((orderedFields.isEmpty() || fullySortedByIndex) && groupByFields == null && skip > 0) {
       lastRecord = null;
       skip--;
       return true;
@@ -594,7 +913,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (!addResult(lastRecord))
       return false;
 
-    if ((orderedFields.isEmpty() || fullySortedByIndex) && !isAnyFunctionAggregates() && fetchLimit > -1
+    if ((orderedFields.isEmpty() || fullySortedByIndex) && !isAnyFunctionAggregates() && groupByFields == null && fetchLimit > -1
         && resultCount >= fetchLimit)
       // BREAK THE EXECUTION
       return false;
@@ -614,33 +933,16 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           return true;
       } else {
         // AGGREGATION/GROUP BY
-        Object fieldValue = null;
-        if (groupByFields != null && !groupByFields.isEmpty()) {
-          if (groupByFields.size() > 1) {
-            // MULTI-FIELD GROUP BY
-            final ODocument doc = iRecord.getRecord();
-            final Object[] fields = new Object[groupByFields.size()];
-            for (int i = 0; i < groupByFields.size(); ++i) {
-              final String field = groupByFields.get(i);
-              if (field.startsWith("$"))
-                fields[i] = context.getVariable(field);
-              else
-                fields[i] = doc.field(field);
-            }
-            fieldValue = fields;
-          } else {
-            final String field = groupByFields.get(0);
-            if (field != null) {
-              if (field.startsWith("$"))
-                fieldValue = context.getVariable(field);
-              else
-                fieldValue = ((ODocument) iRecord.getRecord()).field(field);
-            }
-          }
+        final long projectionElapsed = (Long) context.getVariable("projectionElapsed", 0l);
+        final long begin = System.currentTimeMillis();
+        final ODocument completedGroup;
+        try {
+          completedGroup = groupedResult.aggregate(iRecord);
+        } finally {
+          context.setVariable("projectionElapsed", projectionElapsed + (System.currentTimeMillis() - begin));
         }
 
-        getProjectionGroup(fieldValue).applyRecord(iRecord);
-        return true;
+        return handleStreamedGroup(completedGroup);
       }
     }
 
@@ -654,7 +956,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
       // COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
       if (tempResult == null)
-        tempResult = new ArrayList<OIdentifiable>();
+        tempResult = expandTarget == null ? createOrderByResult() : new ArrayList<OIdentifiable>();
       ((Collection<OIdentifiable>) tempResult).add(iRecord);
     }
 
@@ -666,37 +968,12 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long begin = System.currentTimeMillis();
     try {
 
-      Object key = null;
       if (groupedResult == null)
-        groupedResult = new LinkedHashMap<Object, ORuntimeResult>();
-
-      if (fieldValue != null) {
-        if (fieldValue.getClass().isArray()) {
-          // LOOK IT BY HASH (FASTER THAN COMPARE EACH SINGLE VALUE)
-          final Object[] array = (Object[]) fieldValue;
-
-          final StringBuilder keyArray = new StringBuilder();
-          for (Object o : array) {
-            if (keyArray.length() > 0)
-              keyArray.append(",");
-            if (o != null)
-              keyArray.append(o instanceof OIdentifiable ? ((OIdentifiable) o).getIdentity().toString() : o.toString());
-            else
-              keyArray.append("null");
-          }
-
-          key = keyArray.toString();
-        } else
-          // LOOKUP FOR THE FIELD
-          key = fieldValue;
-      }
+        groupedResult = new OGroupByResult(new GroupHandler(),
+            OGlobalConfiguration.QUERY_GROUP_BY_SPILL_THRESHOLD.getValueAsInteger(),
+            OGlobalConfiguration.QUERY_GROUP_BY_SPILL_PARTITIONS.getValueAsInteger());
 
-      ORuntimeResult group = groupedResult.get(key);
-      if (group == null) {
-        group = new ORuntimeResult(fieldValue, createProjectionFromDefinition(), resultCount, context);
-        groupedResult.put(key, group);
-      }
-      return group;
+      return groupedResult.getGroup(fieldValue);
     } finally {
       context.setVariable("projectionElapsed", projectionElapsed + (System.currentTimeMillis() - begin));
     }
@@ -717,6 +994,32 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
     // AGGREGATE IT
     getProjectionGroup(null);
+    groupedResult.setGrouped(true);
+  }
+
+  /**
+   * Sends the result of a group completed while records ordered by the group key are streamed, applying SKIP and LIMIT to groups.
+   * 
+   * @return false if limit has been reached, otherwise true
+   */
+  private boolean handleStreamedGroup(final ODocument iGroup) {
+    if (iGroup == null || iGroup.isEmpty())
+      return true;
+
+    if (fetchLimit > -1 && streamedGroups >= fetchLimit)
+      return false;
+
+    if (skip > 0) {
+      skip--;
+      return true;
+    }
+
+    streamedGroups++;
+
+    if (request.getResultListener() != null && !request.getResultListener().result(iGroup))
+      return false;
+
+    return fetchLimit < 0 || streamedGroups < fetchLimit;
   }
 
   protected void parseOrderBy(final String w) {
@@ -761,8 +1064,19 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
 
     if (!searchForIndexes(cls)) {
+      if (context.isRecordingMetrics() && context.getVariable("estimatedRows") == null)
+        context.setVariable("estimatedRows", getDatabase().countClusterElements(cls.getPolymorphicClusterIds()));
+
       super.searchInClasses();
     }
+
+    if (context.isRecordingMetrics() && context.getVariable("estimatedRows") != null)
+      context.setVariable("actualRows", getMetric("recordReads") + getMetric("indexReads"));
+  }
+
+  private long getMetric(final String iName) {
+    final Object value = context.getVariable(iName);
+    return value instanceof Number ? ((Number) value).longValue() : 0;
   }
 
   protected int parseProjections() {
@@ -1010,9 +1324,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long startFetching = System.currentTimeMillis();
     try {
 
-      if (parallel)
-        parallelExec(iTarget);
-      else
+      if (!parallel || !(iTarget instanceof ORecordIteratorClusters<?>) || !parallelExec((ORecordIteratorClusters<?>) iTarget))
         // BROWSE; UNMARSHALL AND FILTER ALL THE RECORDS ON CURRENT THREAD
         while (iTarget.hasNext()) {
           final OIdentifiable next = iTarget.next();
@@ -1032,66 +1344,155 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return w.equals(KEYWORD_PARALLEL);
   }
 
-  private void parallelExec(final Iterator<? extends OIdentifiable> iTarget) {
-    final OResultSet result = (OResultSet) getResult();
-
-    // BROWSE ALL THE RECORDS ON CURRENT THREAD BUT DELEGATE UNMARSHALLING AND FILTER TO A THREAD POOL
+  /**
+   * Scans the clusters of the target by several workers. Positions of every cluster are split in ranges which workers take one by
+   * one, each worker loads, unmarshalls and filters the records of its ranges. Matching records are handed to the current thread
+   * which applies projections, grouping, ordering, skip and limit as the serial execution does, so workers stop as soon as the
+   * limit is reached. Records are returned in no particular order.
+   * 
+   * @return false if the target can't be scanned in parallel and has to be browsed on the current thread
+   */
+  private boolean parallelExec(final ORecordIteratorClusters<?> iTarget) {
     final ODatabaseRecord db = getDatabase();
 
-    if (limit > -1) {
-      if (result != null)
-        result.setLimit(limit);
-    }
+    if (db.getTransaction().isActive() || (let != null && !let.isEmpty()))
+      // RECORDS OF THE TRANSACTION AND LET CLAUSES ARE BOUND TO THE CURRENT THREAD
+      return false;
+
+    final OStorage.LOCKING_STRATEGY contextLockingStrategy = context.getVariable("$locking") != null ? (OStorage.LOCKING_STRATEGY) context
+        .getVariable("$locking") : null;
+    final OStorage.LOCKING_STRATEGY localLockingStrategy = contextLockingStrategy != null ? contextLockingStrategy
+        : lockingStrategy;
+    if (localLockingStrategy == OStorage.LOCKING_STRATEGY.KEEP_SHARED_LOCK
+        || localLockingStrategy == OStorage.LOCKING_STRATEGY.KEEP_EXCLUSIVE_LOCK)
+      return false;
 
     final int cores = Runtime.getRuntime().availableProcessors();
-    OLogManager.instance().warn(this, "Parallel query against %d threads", cores);
+    final Queue<ClusterRange> ranges = new ConcurrentLinkedQueue<ClusterRange>(splitInRanges(iTarget, cores));
+    final int workersCount = Math.min(cores, ranges.size());
+    if (workersCount < 2)
+      return false;
 
-    final ThreadPoolExecutor workers = Orient.instance().getWorkers();
+    if (OLogManager.instance().isDebugEnabled())
+      OLogManager.instance().debug(this, "Parallel query '%s' split in %d ranges scanned by %d workers", parserText, ranges.size(),
+          workersCount);
 
-    executing = true;
-    final List<Future<?>> jobs = new ArrayList<Future<?>>();
+    final BlockingQueue<ORecordInternal<?>> results = new ArrayBlockingQueue<ORecordInternal<?>>(PARALLEL_QUEUE_SIZE
+        * workersCount);
+    final CountDownLatch completed = new CountDownLatch(workersCount);
+    final Map<String, Object> variables = context.getVariables();
 
-    // BROWSE ALL THE RECORDS AND PUT THE RECORD INTO THE QUEUE
-    while (executing && iTarget.hasNext()) {
-      final OIdentifiable next = iTarget.next();
+    final ThreadPoolExecutor executor = Orient.instance().getWorkers();
 
-      if (next == null)
-        break;
+    executing = true;
+    final List<ParallelScanWorker> workers = new ArrayList<ParallelScanWorker>(workersCount);
+    for (int i = 0; i < workersCount; ++i) {
+      final ParallelScanWorker worker = new ParallelScanWorker(db, ranges, results, variables, completed);
+      workers.add(worker);
+      executor.submit(worker);
+    }
 
-      final Runnable job = new Runnable() {
-        @Override
-        public void run() {
-          ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    try {
+      // COLLECT THE RESULTS UNTIL ALL THE WORKERS COMPLETE OR THE EXECUTION IS BROKEN
+      while (executing) {
+        final ORecordInternal<?> record = results.poll(PARALLEL_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
 
-          if (!executeSearchRecord(next, true))
+        if (record == null) {
+          if (completed.getCount() == 0 && results.isEmpty())
+            break;
+
+          if (!context.checkTimeout())
             executing = false;
+
+          continue;
         }
-      };
 
-      jobs.add(workers.submit(job));
+        context.setVariable("current", record);
+        if (!context.checkTimeout() || !handleResult(record))
+          // LIMIT REACHED
+          executing = false;
+      }
+
+      // WAIT FOR THE WORKERS TO STOP BEFORE TO RETURN THE CONTROL TO THE CALLER
+      executing = false;
+      completed.await();
+
+    } catch (InterruptedException e) {
+      executing = false;
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("The select execution has been interrupted");
+    }
+
+    for (ParallelScanWorker worker : workers) {
+      if (worker.error != null)
+        throw new OCommandExecutionException("Error on executing parallel query: " + parserText, worker.error);
+
+      context.updateMetric("recordReads", worker.recordReads);
+      context.updateMetric("documentReads", worker.documentReads);
+      context.updateMetric("evaluated", worker.documentReads);
     }
 
     if (OLogManager.instance().isDebugEnabled())
-      OLogManager.instance()
-          .debug(this, "Parallel query '%s' split in %d jobs, waiting for completion...", parserText, jobs.size());
+      OLogManager.instance().debug(this, "Parallel query '%s' completed", parserText);
 
-    int processed = 0;
-    int total = jobs.size();
-    try {
-      for (Future<?> j : jobs) {
-        j.get();
-        processed++;
+    return true;
+  }
+
+  /**
+   * Splits the positions of the clusters browsed by the iterator in ranges of the same size, so every worker gets several ranges
+   * and the workers which scan dense ranges don't stay behind.
+   */
+  private List<ClusterRange> splitInRanges(final ORecordIteratorClusters<?> iTarget, final int iWorkers) {
+    final OStorage storage = getDatabase().getStorage();
+    final ORID beginRange = iTarget.getBeginRange();
+    final ORID endRange = iTarget.getEndRange();
+
+    final List<ClusterRange> clusterRanges = new ArrayList<ClusterRange>();
+    long totalPositions = 0;
+
+    for (int clusterId : iTarget.getClusterIds()) {
+      final OClusterPosition[] dataRange = storage.getClusterDataRange(clusterId);
+      if (dataRange.length < 2 || !dataRange[0].isValid() || !dataRange[1].isValid())
+        // EMPTY CLUSTER
+        continue;
+
+      long from = dataRange[0].longValue();
+      long to = dataRange[1].longValue();
+
+      // APPLY THE RANGE OF THE QUERY
+      if (beginRange != null) {
+        if (beginRange.getClusterId() > clusterId)
+          continue;
+        if (beginRange.getClusterId() == clusterId)
+          from = Math.max(from, beginRange.getClusterPosition().longValue());
+      }
+      if (endRange != null) {
+        if (endRange.getClusterId() < clusterId)
+          continue;
+        if (endRange.getClusterId() == clusterId)
+          to = Math.min(to, endRange.getClusterPosition().longValue());
+      }
+
+      if (from > to)
+        continue;
+
+      clusterRanges.add(new ClusterRange(clusterId, from, to));
+      totalPositions += to - from + 1;
+    }
 
-        if (OLogManager.instance().isDebugEnabled())
-          if (processed % (total / 10) == 0)
-            OLogManager.instance().debug(this, "Executed %d/%d", processed, total);
+    final long rangeSize = Math.max(PARALLEL_MIN_RANGE_SIZE, totalPositions / (iWorkers * PARALLEL_RANGES_PER_WORKER));
+
+    final List<ClusterRange> ranges = new ArrayList<ClusterRange>();
+    for (ClusterRange clusterRange : clusterRanges) {
+      long from = clusterRange.from;
+      while (from <= clusterRange.to) {
+        final long to = Math.min(clusterRange.to, from + rangeSize - 1);
+        ranges.add(new ClusterRange(clusterRange.clusterId, from, to));
+        from = to + 1;
       }
-    } catch (Exception e) {
-      OLogManager.instance().error(this, "Error on executing parallel query: %s", e, parserText);
     }
 
-    if (OLogManager.instance().isDebugEnabled())
-      OLogManager.instance().debug(this, "Parallel query '%s' completed", parserText);
+    return ranges;
   }
 
   private int getQueryFetchLimit() {
@@ -1134,6 +1535,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         return optimizeSort(iSchemaClass);
     }
 
+    if (searchInBitmapIndexes(iSchemaClass))
+      return true;
+
     analyzeQueryBranch(iSchemaClass, compiledFilter.getRootCondition(), indexSearchResults, context);
 
     // most specific will be processed first
@@ -1144,7 +1548,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     });
 
     // go through all variants to choose which one can be used for index search.
-    for (final OIndexSearchResult searchResult : indexSearchResults) {
+    final List<IndexCandidate> candidates = new ArrayList<IndexCandidate>();
+    search: for (final OIndexSearchResult searchResult : indexSearchResults) {
       final List<OIndex<?>> involvedIndexes = getInvolvedIndexes(iSchemaClass, searchResult);
 
       Collections.sort(involvedIndexes, new IndexComparator());
@@ -1154,6 +1559,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         if (index.isRebuiding())
           continue;
 
+        if (!isIndexFilterImplied(index))
+          continue;
+
         final OIndexDefinition indexDefinition = index.getDefinition();
 
         if (searchResult.containsNullValues && indexDefinition.isNullValuesIgnored())
@@ -1176,81 +1584,159 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         for (final String fieldName : indexDefinition.getFields().subList(0, searchResultFieldsCount)) {
           final Object fieldValue = searchResult.fieldValuePairs.get(fieldName);
           if (fieldValue instanceof OSQLQuery<?>)
-            return false;
+            break search;
 
           if (fieldValue != null)
             keyParams.add(fieldValue);
           else {
             if (searchResult.lastValue instanceof OSQLQuery<?>)
-              return false;
+              break search;
 
             keyParams.add(searchResult.lastValue);
           }
         }
 
-        if (context.isRecordingMetrics()) {
-          Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
-          if (idxNames == null) {
-            idxNames = new HashSet<String>();
-            context.setVariable("involvedIndexes", idxNames);
-          }
-          if (index instanceof OChainedIndexProxy) {
-            idxNames.addAll(((OChainedIndexProxy) index).getIndexNames());
-          } else
-            idxNames.add(index.getName());
+        candidates.add(new IndexCandidate(index, searchResult, keyParams));
+      }
+    }
+
+    if (candidates.isEmpty())
+      return false;
+
+    final boolean costBased = OGlobalConfiguration.QUERY_COST_BASED_INDEX_SELECTION.getValueAsBoolean();
+    if (costBased && !sortCandidatesByCost(iSchemaClass, candidates))
+      // SCANNING THE CLUSTERS IS CHEAPER
+      return false;
+
+    for (final IndexCandidate candidate : candidates) {
+      final OIndex index = candidate.index;
+      final OIndexDefinition indexDefinition = index.getDefinition();
+      final OIndexSearchResult searchResult = candidate.searchResult;
+      final OQueryOperator operator = searchResult.lastOperator;
+      final List<Object> keyParams = candidate.keyParams;
+
+      if (context.isRecordingMetrics()) {
+        Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
+        if (idxNames == null) {
+          idxNames = new HashSet<String>();
+          context.setVariable("involvedIndexes", idxNames);
         }
+        if (index instanceof OChainedIndexProxy) {
+          idxNames.addAll(((OChainedIndexProxy) index).getIndexNames());
+        } else
+          idxNames.add(index.getName());
+      }
 
-        OIndexCursor cursor;
-        final boolean indexIsUsedInOrderBy = canBeUsedByOrderBy(index) && !(index.getInternal() instanceof OChainedIndexProxy);
-        try {
-          boolean ascSortOrder = !indexIsUsedInOrderBy || orderedFields.get(0).getValue().equals(KEYWORD_ASC);
+      OIndexCursor cursor;
+      final boolean indexIsUsedInOrderBy = canBeUsedByOrderBy(index) && !(index.getInternal() instanceof OChainedIndexProxy);
+      try {
+        boolean ascSortOrder = !indexIsUsedInOrderBy || orderedFields.get(0).getValue().equals(KEYWORD_ASC);
 
-          if (indexIsUsedInOrderBy)
-            fullySortedByIndex = indexDefinition.getFields().size() >= orderedFields.size();
+        if (indexIsUsedInOrderBy)
+          fullySortedByIndex = indexDefinition.getFields().size() >= orderedFields.size();
 
-          cursor = operator.executeIndexQuery(context, index, keyParams, ascSortOrder);
-        } catch (Exception e) {
-          OLogManager
-              .instance()
-              .error(
-                  this,
-                  "Error on using index %s in query '%s'. Probably you need to rebuild indexes. Now executing query using cluster scan",
-                  e, index.getName(), request != null && request.getText() != null ? request.getText() : "");
+        cursor = operator.executeIndexQuery(context, index, keyParams, ascSortOrder);
+      } catch (Exception e) {
+        OLogManager
+            .instance()
+            .error(
+                this,
+                "Error on using index %s in query '%s'. Probably you need to rebuild indexes. Now executing query using cluster scan",
+                e, index.getName(), request != null && request.getText() != null ? request.getText() : "");
 
-          fullySortedByIndex = false;
-          return false;
-        }
+        fullySortedByIndex = false;
+        return false;
+      }
 
-        if (cursor == null)
-          continue;
+      if (cursor == null)
+        continue;
 
-        final List<String> indexInvolvedFields = searchResult.getInvolvedFields();
-        final List<String> whereInvolvedFields = compiledFilter.getInvolvedFields();
-        boolean evaluateRecords = true;
-
-        if (indexInvolvedFields.size() == whereInvolvedFields.size()) {
-          evaluateRecords = false;
-          for (String f : indexInvolvedFields)
-            if (!whereInvolvedFields.contains(f)) {
-              // NOT THE SAME,
-              evaluateRecords = true;
-              break;
-            }
-        }
+      if (context.isRecordingMetrics() && candidate.reads > -1)
+        context.setVariable("estimatedRows", candidate.reads);
 
-        fetchValuesFromIndexCursor(cursor, evaluateRecords);
+      final List<String> indexInvolvedFields = searchResult.getInvolvedFields();
+      final List<String> whereInvolvedFields = compiledFilter.getInvolvedFields();
+      boolean evaluateRecords = true;
 
-        if (context.isRecordingMetrics()) {
-          context.setVariable("indexIsUsedInOrderBy", indexIsUsedInOrderBy);
-          context.setVariable("fullySortedByIndex", fullySortedByIndex);
-        }
+      if (indexInvolvedFields.size() == whereInvolvedFields.size()) {
+        evaluateRecords = false;
+        for (String f : indexInvolvedFields)
+          if (!whereInvolvedFields.contains(f)) {
+            // NOT THE SAME,
+            evaluateRecords = true;
+            break;
+          }
+      }
 
-        return true;
+      fetchValuesFromIndexCursor(index, cursor, evaluateRecords);
+
+      if (context.isRecordingMetrics()) {
+        context.setVariable("indexIsUsedInOrderBy", indexIsUsedInOrderBy);
+        context.setVariable("fullySortedByIndex", fullySortedByIndex);
       }
+
+      return true;
     }
     return false;
   }
 
+  /**
+   * Orders the candidate indexes by the cost of the entries they are estimated to read, the cheapest first. Loading a record found
+   * by an index costs more than reading it during a scan, except for indexes which answer the projections by their keys. If the
+   * statistics of the cheapest index have been collected by ANALYZE its estimation is compared with the cost of a scan of the
+   * clusters of the class.
+   *
+   * @return false if a scan of the clusters is cheaper than any index
+   */
+  private boolean sortCandidatesByCost(final OClass iSchemaClass, final List<IndexCandidate> iCandidates) {
+    final ODatabaseRecord database = getDatabase();
+    final OSQLStatistics statistics = OSQLStatistics.instance(database);
+    final long classRecords = database.countClusterElements(iSchemaClass.getPolymorphicClusterIds());
+    final float recordCost = OGlobalConfiguration.QUERY_INDEX_RECORD_COST.getValueAsFloat();
+
+    // RECORDS THE EXECUTION NEEDS BEFORE STOPPING BECAUSE OF THE LIMIT
+    final boolean limited = orderedFields.isEmpty() && !isAnyFunctionAggregates() && groupByFields == null && fetchLimit > -1;
+    final long needed = limited ? fetchLimit + skip : -1;
+
+    for (IndexCandidate candidate : iCandidates) {
+      final long rows = statistics.estimateRows(candidate.index, candidate.searchResult, candidate.keyParams, classRecords,
+          context);
+      if (rows < 0) {
+        // NOT ESTIMATED: ASSUME IT READS A RANGE OF THE CLASS
+        candidate.cost = classRecords * OSQLStatistics.DEFAULT_RANGE_SELECTIVITY * recordCost;
+        continue;
+      }
+
+      candidate.rows = rows;
+      candidate.reads = needed > -1 ? Math.min(rows, needed) : rows;
+      candidate.cost = candidate.reads * (isIndexCoveringProjections(candidate.index) ? 1 : recordCost);
+    }
+
+    Collections.sort(iCandidates, new Comparator<IndexCandidate>() {
+      public int compare(final IndexCandidate candidateOne, final IndexCandidate candidateTwo) {
+        return Double.compare(candidateOne.cost, candidateTwo.cost);
+      }
+    });
+
+    final IndexCandidate cheapest = iCandidates.get(0);
+    if (cheapest.rows < 0 || statistics.get(cheapest.index) == null)
+      return true;
+
+    if (!orderedFields.isEmpty() && canBeUsedByOrderBy(cheapest.index))
+      // THE INDEX AVOIDS SORTING THE RESULT
+      return true;
+
+    // A SCAN STOPPED BY THE LIMIT READS THE RECORDS IN THE PROPORTION OF THE ONES MATCHING THE INDEX
+    final long scanRows = needed > -1 && cheapest.rows > 0 ? Math.min(classRecords, needed * classRecords / cheapest.rows)
+        : classRecords;
+    if (scanRows >= cheapest.cost)
+      return true;
+
+    if (context.isRecordingMetrics())
+      context.setVariable("estimatedRows", scanRows);
+    return false;
+  }
+
   /**
    * Use index to order documents by provided fields.
    * 
@@ -1267,7 +1753,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final Set<OIndex<?>> indexes = iSchemaClass.getInvolvedIndexes(fieldNames);
 
     for (OIndex<?> index : indexes) {
-      if (canBeUsedByOrderBy(index)) {
+      if (canBeUsedByOrderBy(index) && isIndexFilterImplied(index)) {
         final boolean ascSortOrder = orderedFields.get(0).getValue().equals(KEYWORD_ASC);
 
         final Object key;
@@ -1301,7 +1787,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         } else {
           cursor = index.iterateEntriesMinor(key, true, false);
         }
-        fetchValuesFromIndexCursor(cursor, false);
+        fetchValuesFromIndexCursor(index, cursor, false);
 
         return true;
       }
@@ -1314,7 +1800,182 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return false;
   }
 
-  private void fetchValuesFromIndexCursor(final OIndexCursor cursor, final boolean evaluateRecords) {
+  /**
+   * Evaluates WHERE condition on bitmap indexes and fetches only records of resulting bitmap in storage order. Is used if the whole
+   * condition is answered by bitmaps or if at least two conditions are combined, otherwise single index is used as usual.
+   * 
+   * @return true if execution was optimized
+   */
+  private boolean searchInBitmapIndexes(final OClass iSchemaClass) {
+    if (getDatabase().getTransaction().isActive())
+      // BITMAPS DON'T CONTAIN CHANGES OF CURRENT TRANSACTION
+      return false;
+
+    final Set<String> bitmapIndexes = new HashSet<String>();
+    final BitmapSearchResult result = evaluateOnBitmaps(iSchemaClass, compiledFilter.getRootCondition(), bitmapIndexes);
+    if (result == null || result.negated || (!result.exact && result.conditions < 2))
+      return false;
+
+    if (context.isRecordingMetrics()) {
+      Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
+      if (idxNames == null) {
+        idxNames = new HashSet<String>();
+        context.setVariable("involvedIndexes", idxNames);
+      }
+      idxNames.addAll(bitmapIndexes);
+
+      context.setVariable("bitmapRecords", result.bitmap.size());
+      context.setVariable("bitmapExact", result.exact);
+    }
+
+    fetchFromTarget(result.bitmap.iterator(), !result.exact);
+    return true;
+  }
+
+  private BitmapSearchResult evaluateOnBitmaps(final OClass iSchemaClass, OSQLFilterCondition iCondition,
+      final Set<String> iBitmapIndexes) {
+    if (iCondition == null)
+      return null;
+
+    while (iCondition.getOperator() == null) {
+      // BRACKETS
+      if (iCondition.getRight() == null && iCondition.getLeft() instanceof OSQLFilterCondition)
+        iCondition = (OSQLFilterCondition) iCondition.getLeft();
+      else
+        return null;
+    }
+
+    final OQueryOperator operator = iCondition.getOperator();
+
+    if (operator instanceof OQueryOperatorAnd) {
+      final BitmapSearchResult left = evaluateBranchOnBitmaps(iSchemaClass, iCondition.getLeft(), iBitmapIndexes);
+      final BitmapSearchResult right = evaluateBranchOnBitmaps(iSchemaClass, iCondition.getRight(), iBitmapIndexes);
+
+      if (left == null || right == null) {
+        // THE OTHER CONDITION WILL BE EVALUATED AGAINST LOADED RECORDS
+        final BitmapSearchResult result = left != null ? left : right;
+        return result == null || result.negated ? null : result.inexact();
+      }
+
+      if (left.negated && right.negated)
+        return null;
+
+      if (left.negated || right.negated) {
+        final BitmapSearchResult positive = left.negated ? right : left;
+        final BitmapSearchResult negative = left.negated ? left : right;
+
+        if (!negative.exact)
+          // SUBTRACTION OF NOT EXACT RESULT WOULD LOSE RECORDS
+          return positive.inexact();
+
+        return new BitmapSearchResult(ORIDBitmap.andNot(positive.bitmap, negative.bitmap), positive.exact, false,
+            positive.conditions + negative.conditions);
+      }
+
+      return new BitmapSearchResult(ORIDBitmap.and(left.bitmap, right.bitmap), left.exact && right.exact, false, left.conditions
+          + right.conditions);
+    }
+
+    if (operator instanceof OQueryOperatorOr) {
+      final BitmapSearchResult left = evaluateBranchOnBitmaps(iSchemaClass, iCondition.getLeft(), iBitmapIndexes);
+      if (left == null || left.negated)
+        return null;
+
+      final BitmapSearchResult right = evaluateBranchOnBitmaps(iSchemaClass, iCondition.getRight(), iBitmapIndexes);
+      if (right == null || right.negated)
+        return null;
+
+      return new BitmapSearchResult(ORIDBitmap.or(left.bitmap, right.bitmap), left.exact && right.exact, false, left.conditions
+          + right.conditions);
+    }
+
+    if (operator instanceof OQueryOperatorNot) {
+      // ONLY "NOT (CONDITION)" IS SUPPORTED
+      if (!(iCondition.getLeft() instanceof OSQLFilterCondition) || iCondition.getRight() != null)
+        return null;
+
+      final BitmapSearchResult result = evaluateOnBitmaps(iSchemaClass, (OSQLFilterCondition) iCondition.getLeft(),
+          iBitmapIndexes);
+      if (result == null || result.negated)
+        return null;
+
+      return new BitmapSearchResult(result.bitmap, result.exact, true, result.conditions);
+    }
+
+    if (operator instanceof OQueryOperatorEquals || operator instanceof OQueryOperatorIn)
+      return searchInBitmapIndex(iSchemaClass, iCondition, iBitmapIndexes);
+
+    return null;
+  }
+
+  private BitmapSearchResult evaluateBranchOnBitmaps(final OClass iSchemaClass, final Object iBranch, final Set<String> iBitmapIndexes) {
+    if (!(iBranch instanceof OSQLFilterCondition))
+      return null;
+
+    return evaluateOnBitmaps(iSchemaClass, (OSQLFilterCondition) iBranch, iBitmapIndexes);
+  }
+
+  private BitmapSearchResult searchInBitmapIndex(final OClass iSchemaClass, final OSQLFilterCondition iCondition,
+      final Set<String> iBitmapIndexes) {
+    final OSQLFilterItemField field;
+    final Object value;
+    if (iCondition.getLeft() instanceof OSQLFilterItemField && !(iCondition.getRight() instanceof OSQLFilterItemField)) {
+      field = (OSQLFilterItemField) iCondition.getLeft();
+      value = iCondition.getRight();
+    } else if (iCondition.getOperator() instanceof OQueryOperatorEquals && iCondition.getRight() instanceof OSQLFilterItemField
+        && !(iCondition.getLeft() instanceof OSQLFilterItemField)) {
+      field = (OSQLFilterItemField) iCondition.getRight();
+      value = iCondition.getLeft();
+    } else
+      return null;
+
+    if (field.hasChainOperators() || value instanceof OSQLQuery<?>)
+      return null;
+
+    final OIndexBitmap index = getBitmapIndex(iSchemaClass, field.getRoot());
+    if (index == null)
+      return null;
+
+    final Collection<?> values;
+    if (iCondition.getOperator() instanceof OQueryOperatorIn) {
+      final Object inValues = value instanceof OSQLFilterItem ? ((OSQLFilterItem) value).getValue(null, null, context) : value;
+      if (!(inValues instanceof Collection<?>))
+        return null;
+
+      values = (Collection<?>) inValues;
+    } else
+      values = Collections.singletonList(value);
+
+    ORIDBitmap bitmap = new ORIDBitmap();
+    for (Object v : values) {
+      final Object key = index.getDefinition().createValue(OSQLHelper.getValue(v));
+      if (key == null)
+        // NULL VALUES ARE NOT COMPARED BY EQUALITY
+        return null;
+
+      bitmap = ORIDBitmap.or(bitmap, index.getBitmap(key));
+    }
+
+    iBitmapIndexes.add(index.getName());
+    return new BitmapSearchResult(bitmap, true, false, 1);
+  }
+
+  private static OIndexBitmap getBitmapIndex(final OClass iSchemaClass, final String iField) {
+    for (OIndex<?> index : iSchemaClass.getInvolvedIndexes(iField)) {
+      final OIndexDefinition definition = index.getDefinition();
+      if (definition.getParamCount() != 1 || definition instanceof OIndexDefinitionMultiValue || definition.getFilter() != null
+          || index.isRebuiding())
+        continue;
+
+      final OIndexInternal<?> internal = index.getInternal();
+      if (internal instanceof OIndexBitmap)
+        return (OIndexBitmap) internal;
+    }
+
+    return null;
+  }
+
+  private void fetchValuesFromIndexCursor(final OIndex<?> index, final OIndexCursor cursor, final boolean evaluateRecords) {
     int needsToFetch;
     if (fetchLimit > 0)
       needsToFetch = fetchLimit + skip;
@@ -1322,6 +1983,15 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       needsToFetch = -1;
 
     cursor.setPrefetchSize(needsToFetch);
+
+    if (!evaluateRecords && isIndexCoveringProjections(index)) {
+      if (context.isRecordingMetrics())
+        context.setVariable("coveringIndex", index.getName());
+
+      fetchProjectionsFromIndexCursor(index, cursor);
+      return;
+    }
+
     fetchFromTarget(cursor, evaluateRecords);
     //
     // Entry<Object, OIdentifiable> entryRecord = cursor.nextEntry();
@@ -1343,6 +2013,125 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     // }
   }
 
+  /**
+   * Answers the query using only the keys stored in the index: for each entry a transient document is filled with the key values
+   * and passed to the projections in place of the record, so the record is never read from the cluster.
+   */
+  private void fetchProjectionsFromIndexCursor(final OIndex<?> index, final OIndexCursor cursor) {
+    final List<String> keyFields = index.getDefinition().getFields();
+
+    Entry<Object, OIdentifiable> entryRecord = cursor.nextEntry();
+    while (entryRecord != null) {
+      if (Thread.interrupted())
+        throw new OCommandExecutionException("The select execution has been interrupted");
+
+      if (!context.checkTimeout())
+        break;
+
+      context.updateMetric("indexReads", +1);
+
+      if (!handleResult(createDocumentFromIndexEntry(keyFields, entryRecord.getKey(), entryRecord.getValue())))
+        // LIMIT REACHED
+        break;
+
+      entryRecord = cursor.nextEntry();
+    }
+  }
+
+  private static ODocument createDocumentFromIndexEntry(final List<String> iKeyFields, final Object iKey,
+      final OIdentifiable iValue) {
+    final ODocument doc = new ODocument();
+
+    // KEEP THE IDENTITY OF THE INDEXED RECORD TO RESOLVE @RID AND PAGINATION, THE DOCUMENT IS NEVER RETURNED AS IS
+    final ORID rid = iValue.getIdentity();
+    ((ORecordId) doc.getIdentity()).clusterId = rid.getClusterId();
+    ((ORecordId) doc.getIdentity()).clusterPosition = rid.getClusterPosition();
+
+    if (iKey instanceof OCompositeKey) {
+      final List<Object> keys = ((OCompositeKey) iKey).getKeys();
+      final int size = Math.min(keys.size(), iKeyFields.size());
+      for (int i = 0; i < size; i++)
+        doc.field(iKeyFields.get(i), keys.get(i));
+    } else
+      doc.field(iKeyFields.get(0), iKey);
+
+    doc.unsetDirty();
+    return doc;
+  }
+
+  /**
+   * A partial index contains only the records that satisfy its filter, so it can be used only when the WHERE condition implies the
+   * filter. The check is syntactic: every condition in AND of the filter has to be also a condition in AND of the WHERE.
+   */
+  private boolean isIndexFilterImplied(final OIndex<?> index) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+    if (indexDefinition == null || indexDefinition.getFilter() == null)
+      return true;
+
+    if (compiledFilter == null)
+      return false;
+
+    // CONDITIONS OF THE WHERE ARE NOT CACHED: THEIR TEXT CONTAINS THE VALUES OF THE PARAMETERS BOUND TO THIS EXECUTION
+    final Set<String> indexConditions = indexDefinition.getFilterConjunctions();
+    return !indexConditions.isEmpty() && compiledFilter.getConjunctions().containsAll(indexConditions);
+  }
+
+  /**
+   * Checks if all the projections can be computed from the keys of the index. This is the case when each projection is a plain
+   * field stored as is in the index key (no collate, no collection items) or the record id, and nothing else in the query needs
+   * the full record.
+   */
+  private boolean isIndexCoveringProjections(final OIndex<?> index) {
+    if (projections == null || projections.isEmpty() || let != null || expandTarget != null
+        || (groupByFields != null && !groupByFields.isEmpty()) || isAnyFunctionAggregates())
+      return false;
+
+    if (lockingStrategy != OStorage.LOCKING_STRATEGY.DEFAULT || context.getVariable("$locking") != null)
+      return false;
+
+    if (index instanceof OChainedIndexProxy || index.getInternal() instanceof OChainedIndexProxy
+        || index.getInternal() instanceof OIndexFullText)
+      return false;
+
+    final OIndexDefinition indexDefinition = index.getDefinition();
+    if (indexDefinition == null || indexDefinition.getClassName() == null)
+      return false;
+
+    // RECORD LEVEL SECURITY IS CHECKED ONLY WHEN THE RECORD IS LOADED
+    final OClass cls = getDatabase().getMetadata().getSchema().getClass(indexDefinition.getClassName());
+    if (cls == null || cls.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME))
+      return false;
+
+    final List<OIndexDefinition> keyDefinitions;
+    if (indexDefinition instanceof OCompositeIndexDefinition)
+      keyDefinitions = ((OCompositeIndexDefinition) indexDefinition).getIndexDefinitions();
+    else
+      keyDefinitions = Collections.singletonList(indexDefinition);
+
+    final Set<String> storedFields = new HashSet<String>();
+    for (OIndexDefinition keyDefinition : keyDefinitions) {
+      if (keyDefinition instanceof OIndexDefinitionMultiValue || keyDefinition.getFields().size() != 1)
+        continue;
+
+      final OCollate collate = keyDefinition.getCollate();
+      if (collate != null && !ODefaultCollate.NAME.equals(collate.getName()))
+        continue;
+
+      storedFields.add(keyDefinition.getFields().get(0));
+    }
+
+    for (Object projection : projections.values()) {
+      if (!(projection instanceof OSQLFilterItemField) || ((OSQLFilterItemField) projection).hasChainOperators())
+        return false;
+
+      final String fieldName = ((OSQLFilterItemField) projection).getRoot();
+      if (!storedFields.contains(fieldName) && !ODocumentHelper.ATTRIBUTE_RID.equalsIgnoreCase(fieldName))
+        return false;
+    }
+
+    return true;
+  }
+
   private void fetchEntriesFromIndexCursor(final OIndexCursor cursor) {
     int needsToFetch;
     if (fetchLimit > 0)
@@ -1410,14 +2199,23 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long startOrderBy = System.currentTimeMillis();
     try {
 
-      if (tempResult instanceof OMultiCollectionIterator) {
-        final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
-        for (OIdentifiable o : tempResult)
-          list.add(o);
-        tempResult = list;
+      if (tempResult != null && !(tempResult instanceof OOrderByResult)) {
+        // RECORDS COLLECTED BY GROUP BY OR EXPAND
+        final OOrderByResult orderByResult = createOrderByResult();
+        try {
+          for (OIdentifiable o : tempResult)
+            orderByResult.add(o);
+        } catch (RuntimeException e) {
+          // RUNS SPILLED BEFORE THE ERROR ARE NOT REACHABLE BY closeTemporaryResults()
+          orderByResult.close();
+          throw e;
+        }
+        tempResult = orderByResult;
       }
 
-      ODocumentHelper.sort((List<? extends OIdentifiable>) tempResult, orderedFields);
+      if (tempResult != null && ((OOrderByResult) tempResult).getSpilledRuns() > 0)
+        context.setVariable("orderBySpilledRuns", ((OOrderByResult) tempResult).getSpilledRuns());
+
       orderedFields.clear();
 
     } finally {
@@ -1425,6 +2223,24 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  /**
+   * Creates the collection of records which keeps only the records in the window of SKIP and LIMIT and returns them sorted.
+   */
+  private OOrderByResult createOrderByResult() {
+    return new OOrderByResult(orderedFields, skip, limit, OGlobalConfiguration.QUERY_ORDER_BY_SPILL_THRESHOLD.getValueAsInteger());
+  }
+
+  /**
+   * Deletes temporary files of ORDER BY and GROUP BY which spilled records to disk.
+   */
+  private void closeTemporaryResults() {
+    if (tempResult instanceof OOrderByResult)
+      ((OOrderByResult) tempResult).close();
+
+    if (groupedResult != null && groupedResult.getSpilledPartitions() > 0)
+      groupedResult.close();
+  }
+
   /**
    * Extract the content of collections and/or links and put it as result
    */
@@ -1680,14 +2496,22 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       final long startGroupBy = System.currentTimeMillis();
       try {
 
-        tempResult = new ArrayList<OIdentifiable>();
+        if (groupedResult.isStreaming()) {
+          // GROUPS HAVE BEEN ALREADY SENT, SEND THE LAST ONE
+          handleStreamedGroup(groupedResult.completeStreamedGroup());
+          tempResult = new ArrayList<OIdentifiable>();
 
-        for (Entry<Object, ORuntimeResult> g : groupedResult.entrySet()) {
-          if (g.getKey() != null || (groupedResult.size() == 1 && groupByFields == null)) {
-            final ODocument doc = g.getValue().getResult();
-            if (doc != null && !doc.isEmpty())
-              ((List<OIdentifiable>) tempResult).add(doc);
-          }
+        } else if (groupedResult.getSpilledPartitions() > 0) {
+          // SPILLED GROUPS ARE AGGREGATED WHILE THE RESULT IS FETCHED
+          context.setVariable("groupBySpilledPartitions", groupedResult.getSpilledPartitions());
+          if (orderedFields.isEmpty() || fullySortedByIndex)
+            groupedResult.setWindow(skip, limit);
+          tempResult = groupedResult;
+
+        } else {
+          tempResult = new ArrayList<OIdentifiable>();
+          for (OIdentifiable doc : groupedResult)
+            ((List<OIdentifiable>) tempResult).add(doc);
         }
 
       } finally {
@@ -80,6 +80,10 @@ public class ODefaultCommandExecutorSQLFactory implements OCommandExecutorSQLFac
         OCommandExecutorSQLTruncateRecord.class);
     commands.put(OCommandExecutorSQLAlterCluster.KEYWORD_ALTER + " " + OCommandExecutorSQLAlterCluster.KEYWORD_CLUSTER,
         OCommandExecutorSQLAlterCluster.class);
+    commands.put(OCommandExecutorSQLAnalyze.KEYWORD_ANALYZE + " " + OCommandExecutorSQLAnalyze.KEYWORD_INDEX,
+        OCommandExecutorSQLAnalyze.class);
+    commands.put(OCommandExecutorSQLAnalyze.KEYWORD_ANALYZE + " " + OCommandExecutorSQLAnalyze.KEYWORD_CLASS,
+        OCommandExecutorSQLAnalyze.class);
     commands.put(OCommandExecutorSQLExplain.KEYWORD_EXPLAIN, OCommandExecutorSQLExplain.class);
     commands.put(OCommandExecutorSQLTransactional.KEYWORD_TRANSACTIONAL, OCommandExecutorSQLTransactional.class);
 
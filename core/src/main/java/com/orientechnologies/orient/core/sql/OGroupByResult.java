@@ -0,0 +1,472 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Aggregates the records of a query with GROUP BY or aggregate functions in groups and returns the results of groups.
+ *
+ * Groups are kept in a hash map until the spill threshold is reached. Then records of groups already in memory are still
+ * aggregated in memory, while records of new groups are partitioned by hash of the group key and written to temporary files. When
+ * the result is iterated the groups in memory are returned first, then partitions are aggregated and returned one by one, so only
+ * groups of one partition are in memory at once. Partitions which are still too big are split again with another hash. Only
+ * documents are spilled, groups of other records are kept in memory.
+ *
+ * If records come ordered by the group key, for example from an index used by ORDER BY, groups are streamed: only the current group
+ * is kept and it is completed as soon as a record of the next group arrives.
+ *
+ * Temporary files are deleted by {@link #close()}.
+ */
+public class OGroupByResult extends AbstractCollection<OIdentifiable> {
+  private static final int                  MAX_SPILL_DEPTH = 4;
+
+  private final OGroupHandler               handler;
+  private final int                         spillThreshold;
+  private final int                         partitionsCount;
+  private final int                         depth;
+  private final OGroupByResult              root;
+
+  private final Map<Object, ORuntimeResult> groups          = new LinkedHashMap<Object, ORuntimeResult>();
+  private Partition[]                       partitions;
+  private boolean                           grouped;
+  private boolean                           started;
+  private boolean                           streaming;
+  private boolean                           spillable;
+  private Object                            streamedKey;
+  private ORuntimeResult                    streamedGroup;
+  private int                               progressive;
+  private int                               skip;
+  private int                               limit           = -1;
+
+  // RESULTS OF SPILLED PARTITIONS WHICH ARE ITERATED AT THE MOMENT, THEY ARE KEPT BY THE ROOT TO BE CLOSED WITH IT
+  private final List<OGroupByResult>        openResults     = new ArrayList<OGroupByResult>();
+
+  /**
+   * Bridge to the command which defines how groups are computed.
+   */
+  public interface OGroupHandler {
+    /**
+     * @return Value of GROUP BY fields of the record, array of values if there are more fields
+     */
+    public Object getGroupValue(OIdentifiable iRecord);
+
+    public ORuntimeResult createGroup(Object iGroupValue, int iProgressive);
+
+    /**
+     * Is called once before the first record is aggregated.
+     *
+     * @return true if records are fetched ordered by the GROUP BY fields, so groups can be streamed
+     */
+    public boolean isOrderedByGroup();
+
+    /**
+     * Is called once before the first record is aggregated.
+     *
+     * @return true if records read back from temporary files are aggregated as the original ones, false if aggregation depends on
+     *         the state of the command
+     */
+    public boolean isReplayable();
+  }
+
+  private static final class Partition {
+    private final File             file;
+    private final DataOutputStream output;
+    private int                    size;
+
+    private Partition(final File file) throws IOException {
+      this.file = file;
+      this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+  }
+
+  /**
+   * @param iHandler
+   *          Command which defines how groups are computed
+   * @param iSpillThreshold
+   *          Amount of groups kept in memory, 0 means no spilling to disk
+   * @param iPartitions
+   *          Amount of temporary files records of spilled groups are split in
+   */
+  public OGroupByResult(final OGroupHandler iHandler, final int iSpillThreshold, final int iPartitions) {
+    this(iHandler, iSpillThreshold, iPartitions, 0, null);
+  }
+
+  private OGroupByResult(final OGroupHandler iHandler, final int iSpillThreshold, final int iPartitions, final int iDepth,
+      final OGroupByResult iRoot) {
+    handler = iHandler;
+    spillThreshold = iSpillThreshold;
+    partitionsCount = Math.max(iPartitions, 2);
+    depth = iDepth;
+    root = iRoot != null ? iRoot : this;
+    if (iRoot != null)
+      grouped = iRoot.grouped;
+  }
+
+  /**
+   * Returns the group of the value, the group is created in memory if it does not exist.
+   */
+  public ORuntimeResult getGroup(final Object iGroupValue) {
+    final Object key = getKey(iGroupValue);
+
+    ORuntimeResult group = groups.get(key);
+    if (group == null) {
+      group = handler.createGroup(iGroupValue, root.progressive++);
+      groups.put(key, group);
+    }
+    return group;
+  }
+
+  /**
+   * Applies the record to its group. In streaming mode returns the result of the previous group if the record starts a new one.
+   *
+   * @return Result of the completed group, or null if no group was completed
+   */
+  public ODocument aggregate(final OIdentifiable iRecord) {
+    if (!started) {
+      started = true;
+      streaming = grouped && handler.isOrderedByGroup();
+      spillable = !streaming && spillThreshold > 0 && handler.isReplayable() && depth < MAX_SPILL_DEPTH;
+    }
+
+    final Object groupValue = handler.getGroupValue(iRecord);
+    final Object key = getKey(groupValue);
+
+    if (streaming && key != null) {
+      ODocument completed = null;
+
+      if (streamedGroup == null || !key.equals(streamedKey)) {
+        completed = completeStreamedGroup();
+        streamedKey = key;
+        streamedGroup = handler.createGroup(groupValue, root.progressive++);
+      }
+
+      streamedGroup.applyRecord(iRecord);
+      return completed;
+    }
+
+    ORuntimeResult group = groups.get(key);
+    if (group == null) {
+      if (spillable && groups.size() >= spillThreshold && iRecord instanceof ODocument) {
+        spill(key, (ODocument) iRecord);
+        return null;
+      }
+
+      group = handler.createGroup(groupValue, root.progressive++);
+      groups.put(key, group);
+    }
+
+    group.applyRecord(iRecord);
+    return null;
+  }
+
+  /**
+   * Completes the group which is streamed at the moment.
+   *
+   * @return Result of the group, or null if there is no streamed group
+   */
+  public ODocument completeStreamedGroup() {
+    if (streamedGroup == null)
+      return null;
+
+    final ODocument result = streamedGroup.getResult();
+    streamedGroup = null;
+    streamedKey = null;
+    return result;
+  }
+
+  /**
+   * Sets whether the query has GROUP BY, if it has the group of records without a value of GROUP BY fields is not returned.
+   */
+  public void setGrouped(final boolean iGrouped) {
+    grouped = iGrouped;
+  }
+
+  /**
+   * Limits the returned groups to the window of SKIP and LIMIT.
+   */
+  public void setWindow(final int iSkip, final int iLimit) {
+    skip = Math.max(iSkip, 0);
+    limit = iLimit;
+  }
+
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * @return Amount of temporary files records of spilled groups were written to.
+   */
+  public int getSpilledPartitions() {
+    int count = 0;
+    if (partitions != null)
+      for (Partition partition : partitions)
+        if (partition != null)
+          count++;
+
+    return count;
+  }
+
+  /**
+   * Iterator aggregates spilled partitions while it advances, every iteration reads them again.
+   */
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    final Iterator<OIdentifiable> iterator = new GroupIterator();
+
+    for (int i = 0; i < skip && iterator.hasNext(); i++)
+      iterator.next();
+
+    if (limit < 0)
+      return iterator;
+
+    return new Iterator<OIdentifiable>() {
+      private int returned;
+
+      public boolean hasNext() {
+        return returned < limit && iterator.hasNext();
+      }
+
+      public OIdentifiable next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        returned++;
+        return iterator.next();
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  /**
+   * Counts the groups by iterating them, so if records were spilled they are aggregated.
+   */
+  @Override
+  public int size() {
+    int size = 0;
+    for (Iterator<OIdentifiable> it = iterator(); it.hasNext(); it.next())
+      size++;
+
+    return size;
+  }
+
+  /**
+   * Deletes the temporary files of spilled partitions, including the ones of partitions which were spilled again while the result
+   * was iterated.
+   */
+  public void close() {
+    if (partitions != null) {
+      for (Partition partition : partitions)
+        if (partition != null) {
+          try {
+            partition.output.close();
+          } catch (IOException e) {
+            OLogManager.instance().warn(this, "Error on closing temporary file of grouped records", e);
+          }
+
+          if (partition.file.exists() && !partition.file.delete())
+            OLogManager.instance().warn(this, "Can not delete temporary file %s of grouped records", partition.file);
+        }
+
+      partitions = null;
+    }
+
+    if (root == this) {
+      for (OGroupByResult partitionResult : new ArrayList<OGroupByResult>(openResults))
+        partitionResult.close();
+      openResults.clear();
+    } else
+      root.openResults.remove(this);
+
+    groups.clear();
+    streamedGroup = null;
+    streamedKey = null;
+  }
+
+  private static Object getKey(final Object iGroupValue) {
+    if (iGroupValue == null || !iGroupValue.getClass().isArray())
+      return iGroupValue;
+
+    // LOOK IT BY HASH (FASTER THAN COMPARE EACH SINGLE VALUE)
+    final Object[] array = (Object[]) iGroupValue;
+
+    final StringBuilder keyArray = new StringBuilder();
+    for (Object o : array) {
+      if (keyArray.length() > 0)
+        keyArray.append(",");
+      if (o != null)
+        keyArray.append(o instanceof OIdentifiable ? ((OIdentifiable) o).getIdentity().toString() : o.toString());
+      else
+        keyArray.append("null");
+    }
+
+    return keyArray.toString();
+  }
+
+  private void spill(final Object iKey, final ODocument iRecord) {
+    if (partitions == null)
+      partitions = new Partition[partitionsCount];
+
+    final int index = partitionIndex(iKey);
+
+    Partition partition = partitions[index];
+    try {
+      if (partition == null) {
+        final File file = File.createTempFile("orientdb-groupby-", ".part");
+        try {
+          partition = new Partition(file);
+        } catch (IOException e) {
+          file.delete();
+          throw e;
+        }
+
+        partitions[index] = partition;
+      }
+
+      OOrderByResult.writeRecord(partition.output, iRecord);
+      partition.size++;
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on writing grouped records to temporary file", e);
+    }
+  }
+
+  private int partitionIndex(final Object iKey) {
+    // EVERY LEVEL OF SPILLING MIXES THE HASH CODE WITH ANOTHER SEED, SO RECORDS OF ONE PARTITION ARE SPLIT AGAIN
+    long hash = (iKey != null ? iKey.hashCode() : 0) + depth * 0x9E3779B97F4A7C15L;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return (int) ((hash >>> 1) % partitionsCount);
+  }
+
+  private OGroupByResult aggregatePartition(final Partition iPartition) {
+    final OGroupByResult result = new OGroupByResult(handler, spillThreshold, partitionsCount, depth + 1, root);
+    root.openResults.add(result);
+
+    DataInputStream input = null;
+    try {
+      iPartition.output.close();
+
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(iPartition.file)));
+      for (int i = 0; i < iPartition.size; i++)
+        result.aggregate(OOrderByResult.readRecord(input));
+    } catch (IOException e) {
+      result.close();
+      throw new OCommandExecutionException("Error on reading grouped records from temporary file " + iPartition.file, e);
+    } catch (RuntimeException e) {
+      result.close();
+      throw e;
+    } finally {
+      if (input != null)
+        try {
+          input.close();
+        } catch (IOException e) {
+          OLogManager.instance().warn(this, "Error on closing temporary file of grouped records", e);
+        }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the results of groups in memory, then of groups of every spilled partition.
+   */
+  private final class GroupIterator implements Iterator<OIdentifiable> {
+    private Iterator<Map.Entry<Object, ORuntimeResult>> memoryGroups = groups.entrySet().iterator();
+    private int                                         partition;
+    private OGroupByResult                              partitionResult;
+    private Iterator<OIdentifiable>                     partitionGroups;
+    private ODocument                                   next;
+
+    public boolean hasNext() {
+      while (next == null) {
+        if (memoryGroups != null) {
+          if (memoryGroups.hasNext()) {
+            final Map.Entry<Object, ORuntimeResult> group = memoryGroups.next();
+            if (group.getKey() != null || !grouped) {
+              final ODocument result = group.getValue().getResult();
+              if (result != null && !result.isEmpty())
+                next = result;
+            }
+            continue;
+          }
+
+          memoryGroups = null;
+        }
+
+        if (partitionGroups != null) {
+          if (partitionGroups.hasNext()) {
+            next = (ODocument) partitionGroups.next();
+            continue;
+          }
+
+          partitionResult.close();
+          partitionResult = null;
+          partitionGroups = null;
+        }
+
+        if (partitions == null || partition >= partitions.length)
+          return false;
+
+        final Partition spilled = partitions[partition++];
+        if (spilled != null) {
+          partitionResult = aggregatePartition(spilled);
+          partitionGroups = partitionResult.new GroupIterator();
+        }
+      }
+
+      return true;
+    }
+
+    public OIdentifiable next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      final ODocument result = next;
+      next = null;
+      return result;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Collects the records of a query with ORDER BY and returns them sorted, applying SKIP and LIMIT.
+ *
+ * If the query has a LIMIT only the first SKIP + LIMIT records are kept in a bounded heap, so memory does not depend on the amount
+ * of records and every record costs a comparison with the worst of them instead of a full sort. Without LIMIT records are sorted
+ * in memory until the spill threshold is reached, then they are sorted and written as run to a temporary file. Runs are merged
+ * while the result is iterated. Only documents are spilled, if other records are collected they are all kept in memory.
+ *
+ * Records with equal ordering fields are returned in the order they were collected, as the in memory sort of ORDER BY does.
+ * Temporary files are deleted by {@link #close()}.
+ */
+public class OOrderByResult extends AbstractCollection<OIdentifiable> {
+  private final Comparator<OIdentifiable> comparator;
+  private final Comparator<Entry>         entryComparator;
+  private final int                       skip;
+  private final int                       limit;
+  private final int                       spillThreshold;
+
+  private PriorityQueue<Entry>            topRecords;
+  private int                             topRecordsSize;
+  private List<OIdentifiable>             records   = new ArrayList<OIdentifiable>();
+  private final List<Run>                 runs      = new ArrayList<Run>();
+  private final List<DataInputStream>     inputs    = new ArrayList<DataInputStream>();
+  private long                            collected;
+  private boolean                         spillable = true;
+  private boolean                         sorted;
+
+  private static final class Entry {
+    private final OIdentifiable record;
+    private final long          sequence;
+
+    private Entry(final OIdentifiable record, final long sequence) {
+      this.record = record;
+      this.sequence = sequence;
+    }
+  }
+
+  private static final class Run {
+    private final File file;
+    private final int  size;
+
+    private Run(final File file, final int size) {
+      this.file = file;
+      this.size = size;
+    }
+  }
+
+  /**
+   * @param iOrderCriteria
+   *          Fields and directions of ORDER BY
+   * @param iSkip
+   *          Amount of the first sorted records to skip
+   * @param iLimit
+   *          Maximum amount of records to return, -1 means no limit
+   * @param iSpillThreshold
+   *          Amount of records kept in memory when there is no limit, 0 means no spilling to disk
+   */
+  public OOrderByResult(final List<OPair<String, String>> iOrderCriteria, final int iSkip, final int iLimit,
+      final int iSpillThreshold) {
+    comparator = new ODocumentComparator(new ArrayList<OPair<String, String>>(iOrderCriteria));
+    entryComparator = new Comparator<Entry>() {
+      public int compare(final Entry entryOne, final Entry entryTwo) {
+        final int result = comparator.compare(entryOne.record, entryTwo.record);
+        if (result != 0)
+          return result;
+
+        return entryOne.sequence < entryTwo.sequence ? -1 : (entryOne.sequence == entryTwo.sequence ? 0 : 1);
+      }
+    };
+
+    skip = Math.max(iSkip, 0);
+    limit = iLimit;
+    spillThreshold = iSpillThreshold;
+
+    if (limit > -1) {
+      topRecordsSize = (int) Math.min((long) skip + limit, Integer.MAX_VALUE);
+      // THE WORST OF THE COLLECTED RECORDS IS ON THE TOP OF THE HEAP
+      topRecords = new PriorityQueue<Entry>(Math.max(1, Math.min(topRecordsSize, 1024) + 1),
+          Collections.reverseOrder(entryComparator));
+    }
+  }
+
+  @Override
+  public boolean add(final OIdentifiable iRecord) {
+    if (sorted)
+      throw new IllegalStateException("Records can not be added after the result was sorted");
+
+    final long sequence = collected++;
+
+    if (topRecords != null) {
+      if (topRecordsSize == 0)
+        return false;
+
+      final Entry entry = new Entry(iRecord, sequence);
+      if (topRecords.size() < topRecordsSize)
+        topRecords.offer(entry);
+      else if (entryComparator.compare(entry, topRecords.peek()) < 0) {
+        topRecords.poll();
+        topRecords.offer(entry);
+      } else
+        return false;
+
+      return true;
+    }
+
+    records.add(iRecord);
+    if (!(iRecord instanceof ODocument))
+      spillable = false;
+
+    if (spillable && spillThreshold > 0 && records.size() >= spillThreshold)
+      spill();
+
+    return true;
+  }
+
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    sort();
+
+    final Iterator<OIdentifiable> iterator = runs.isEmpty() ? records.iterator() : new MergeIterator();
+
+    for (int i = 0; i < skip && iterator.hasNext(); i++)
+      iterator.next();
+
+    if (limit < 0)
+      return iterator;
+
+    return new Iterator<OIdentifiable>() {
+      private int returned;
+
+      public boolean hasNext() {
+        return returned < limit && iterator.hasNext();
+      }
+
+      public OIdentifiable next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        returned++;
+        return iterator.next();
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    sort();
+
+    long size = runs.isEmpty() ? records.size() : collected;
+    size = Math.max(0, size - skip);
+    if (limit > -1)
+      size = Math.min(size, limit);
+
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return Amount of the runs spilled to temporary files.
+   */
+  public int getSpilledRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Deletes the temporary files of spilled runs. The result can't be iterated after it was closed.
+   */
+  public void close() {
+    for (DataInputStream input : inputs)
+      try {
+        input.close();
+      } catch (IOException e) {
+        OLogManager.instance().warn(this, "Error on closing temporary file of sorted records", e);
+      }
+    inputs.clear();
+
+    for (Run run : runs)
+      if (!run.file.delete())
+        OLogManager.instance().warn(this, "Can not delete temporary file %s of sorted records", run.file);
+
+    runs.clear();
+    records.clear();
+  }
+
+  private void sort() {
+    if (sorted)
+      return;
+
+    sorted = true;
+
+    if (topRecords != null) {
+      final Entry[] entries = topRecords.toArray(new Entry[topRecords.size()]);
+      topRecords = null;
+
+      Arrays.sort(entries, entryComparator);
+
+      records = new ArrayList<OIdentifiable>(entries.length);
+      for (Entry entry : entries)
+        records.add(entry.record);
+    } else
+      Collections.sort(records, comparator);
+  }
+
+  private void spill() {
+    Collections.sort(records, comparator);
+
+    File file = null;
+    try {
+      file = File.createTempFile("orientdb-orderby-", ".run");
+
+      final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+        for (OIdentifiable record : records)
+          writeRecord(output, (ODocument) record);
+      } finally {
+        output.close();
+      }
+    } catch (IOException e) {
+      if (file != null)
+        file.delete();
+
+      throw new OCommandExecutionException("Error on writing sorted records to temporary file", e);
+    }
+
+    runs.add(new Run(file, records.size()));
+    records.clear();
+  }
+
+  static void writeRecord(final DataOutputStream output, final ODocument document) throws IOException {
+    final ORID rid = document.getIdentity();
+    output.writeInt(rid.getClusterId());
+    output.write(rid.getClusterPosition().toStream());
+
+    final ORecordVersion version = document.getRecordVersion();
+    version.getSerializer().writeTo((DataOutput) output, version);
+
+    final byte[] content = document.toStream();
+    output.writeInt(content.length);
+    output.write(content);
+  }
+
+  static ODocument readRecord(final DataInputStream input) throws IOException {
+    final int clusterId = input.readInt();
+    final OClusterPosition clusterPosition = OClusterPositionFactory.INSTANCE.fromStream((DataInput) input);
+
+    final ORecordVersion version = OVersionFactory.instance().createVersion();
+    version.getSerializer().readFrom((DataInput) input, version);
+
+    final byte[] content = new byte[input.readInt()];
+    input.readFully(content);
+
+    final ODocument document = new ODocument();
+    document.fill(new ORecordId(clusterId, clusterPosition), version, content, false);
+    return document;
+  }
+
+  /**
+   * Merges the runs spilled to files and the records left in memory. Records of equal runs are returned in the order of runs, so the
+   * merge is stable.
+   */
+  private final class MergeIterator implements Iterator<OIdentifiable> {
+    private final PriorityQueue<RunCursor> cursors;
+
+    private MergeIterator() {
+      cursors = new PriorityQueue<RunCursor>(runs.size() + 1, new Comparator<RunCursor>() {
+        public int compare(final RunCursor cursorOne, final RunCursor cursorTwo) {
+          final int result = comparator.compare(cursorOne.head, cursorTwo.head);
+          if (result != 0)
+            return result;
+
+          return cursorOne.index - cursorTwo.index;
+        }
+      });
+
+      for (int i = 0; i < runs.size(); i++)
+        addCursor(new RunCursor(i, runs.get(i), null));
+
+      addCursor(new RunCursor(runs.size(), null, records.iterator()));
+    }
+
+    public boolean hasNext() {
+      return !cursors.isEmpty();
+    }
+
+    public OIdentifiable next() {
+      final RunCursor cursor = cursors.poll();
+      if (cursor == null)
+        throw new NoSuchElementException();
+
+      final OIdentifiable result = cursor.head;
+      addCursor(cursor);
+      return result;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void addCursor(final RunCursor cursor) {
+      if (cursor.advance())
+        cursors.offer(cursor);
+    }
+  }
+
+  private final class RunCursor {
+    private final int                     index;
+    private final Iterator<OIdentifiable> memoryRecords;
+    private DataInputStream               input;
+    private int                           remaining;
+    private OIdentifiable                 head;
+
+    private RunCursor(final int index, final Run run, final Iterator<OIdentifiable> memoryRecords) {
+      this.index = index;
+      this.memoryRecords = memoryRecords;
+
+      if (run != null) {
+        try {
+          input = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file)));
+          inputs.add(input);
+        } catch (IOException e) {
+          throw new OCommandExecutionException("Error on reading sorted records from temporary file " + run.file, e);
+        }
+        remaining = run.size;
+      }
+    }
+
+    private boolean advance() {
+      if (memoryRecords != null) {
+        head = memoryRecords.hasNext() ? memoryRecords.next() : null;
+        return head != null;
+      }
+
+      try {
+        if (remaining == 0) {
+          input.close();
+          inputs.remove(input);
+          head = null;
+          return false;
+        }
+
+        remaining--;
+        head = readRecord(input);
+        return true;
+      } catch (IOException e) {
+        throw new OCommandExecutionException("Error on reading sorted records from temporary file", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+
+/**
+ * Per database LRU cache of parsed SELECT statements. Executors are kept by normalized text of the statement, limit of the request
+ * and version of the schema, so statements parsed before a schema change are not used anymore and leave the cache as the least
+ * recently used ones.
+ *
+ * A cached executor is used by one execution at a time: it's taken from the cache before the execution and returned after it. If
+ * the same statement is executed concurrently, the other executions parse it as usual. Statements which can't be executed again
+ * are remembered, so they are not counted as misses.
+ *
+ * Hits, misses, hit rate and the parsing time saved by hits are reported by the profiler under
+ * <code>db.&lt;database&gt;.query.planCache</code>.
+ */
+public class OSQLPlanCache {
+  private final int                              maxSize;
+  private final Map<String, Entry>               entries;
+  private final AtomicLong                       hits           = new AtomicLong();
+  private final AtomicLong                       misses         = new AtomicLong();
+  private final AtomicLong                       parseTimeSaved = new AtomicLong();
+
+  private static final class Entry {
+    private OCommandExecutorSQLSelect executor;
+    private final boolean             cacheable;
+    private final long                parseTime;
+
+    private Entry(final OCommandExecutorSQLSelect executor, final boolean cacheable, final long parseTime) {
+      this.executor = executor;
+      this.cacheable = cacheable;
+      this.parseTime = parseTime;
+    }
+  }
+
+  public OSQLPlanCache(final String iDatabaseName, final int iMaxSize) {
+    maxSize = iMaxSize;
+    entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+
+    if (iDatabaseName != null)
+      registerHooks(iDatabaseName);
+  }
+
+  /**
+   * Returns the cache of the database, or null if the cache is disabled.
+   */
+  public static OSQLPlanCache instance(final ODatabaseRecord iDatabase) {
+    final int maxSize = OGlobalConfiguration.QUERY_PLAN_CACHE_SIZE.getValueAsInteger();
+    if (maxSize <= 0 || iDatabase == null)
+      return null;
+
+    final String databaseName = iDatabase.getName();
+    return iDatabase.getStorage().getResource(OSQLPlanCache.class.getSimpleName(), new Callable<OSQLPlanCache>() {
+      public OSQLPlanCache call() {
+        return new OSQLPlanCache(databaseName, maxSize);
+      }
+    });
+  }
+
+  /**
+   * Builds the key of the statement: version of the schema, limit of the request and text with whitespace outside of quotes
+   * collapsed.
+   */
+  public static String getKey(final String iText, final int iLimit, final int iSchemaVersion) {
+    final StringBuilder key = new StringBuilder(iText.length() + 16);
+    key.append(iSchemaVersion).append('|').append(iLimit).append('|');
+
+    char quote = 0;
+    boolean space = false;
+    for (int i = 0; i < iText.length(); i++) {
+      final char c = iText.charAt(i);
+
+      if (quote == 0 && Character.isWhitespace(c)) {
+        space = true;
+        continue;
+      }
+
+      if (space) {
+        if (key.charAt(key.length() - 1) != '|')
+          key.append(' ');
+        space = false;
+      }
+
+      if (quote == 0 && (c == '\'' || c == '"'))
+        quote = c;
+      else if (c == quote && iText.charAt(i - 1) != '\\')
+        quote = 0;
+
+      key.append(c);
+    }
+
+    return key.toString();
+  }
+
+  /**
+   * Takes the parsed executor of the statement out of the cache.
+   *
+   * @return Executor to reuse, or null if the statement should be parsed
+   */
+  public OCommandExecutorSQLSelect poll(final String iKey) {
+    final Entry entry;
+    final OCommandExecutorSQLSelect executor;
+    synchronized (entries) {
+      entry = entries.get(iKey);
+      if (entry != null && !entry.cacheable)
+        return null;
+
+      executor = entry != null ? entry.executor : null;
+      if (executor != null)
+        entry.executor = null;
+    }
+
+    if (executor == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    hits.incrementAndGet();
+    parseTimeSaved.addAndGet(entry.parseTime);
+    return executor;
+  }
+
+  /**
+   * Puts the executor back after the execution. If other executor of the statement is already cached the executor is discarded.
+   *
+   * @param iParseTime
+   *          Time spent to parse the statement in nanoseconds
+   */
+  public void offer(final String iKey, final OCommandExecutorSQLSelect iExecutor, final long iParseTime) {
+    final boolean cacheable = iExecutor.isCacheable();
+    if (cacheable)
+      iExecutor.release();
+
+    synchronized (entries) {
+      final Entry entry = entries.get(iKey);
+      if (entry == null || entry.cacheable != cacheable)
+        entries.put(iKey, new Entry(cacheable ? iExecutor : null, cacheable, iParseTime));
+      else if (cacheable && entry.executor == null)
+        entry.executor = iExecutor;
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public int getSize() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public float getHitRate() {
+    final long h = hits.get();
+    final long total = h + misses.get();
+    return total == 0 ? 0 : (float) h / total;
+  }
+
+  /**
+   * @return Time of parsing saved by hits in nanoseconds
+   */
+  public long getParseTimeSaved() {
+    return parseTimeSaved.get();
+  }
+
+  private void registerHooks(final String iDatabaseName) {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    final String profilerPrefix = profiler.getDatabaseMetric(iDatabaseName, "query.planCache.");
+    final String profilerMetadataPrefix = "db.*.query.planCache.";
+
+    profiler.registerHookValue(profilerPrefix + "hits", "Executions of SELECT statements which reused the parsed statement",
+        OProfiler.METRIC_TYPE.COUNTER, new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getHits();
+          }
+        }, profilerMetadataPrefix + "hits");
+    profiler.registerHookValue(profilerPrefix + "misses", "Executions of SELECT statements which parsed the statement",
+        OProfiler.METRIC_TYPE.COUNTER, new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getMisses();
+          }
+        }, profilerMetadataPrefix + "misses");
+    profiler.registerHookValue(profilerPrefix + "hitRate", "Share of executions of SELECT statements which reused the parsed one",
+        OProfiler.METRIC_TYPE.STAT, new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getHitRate();
+          }
+        }, profilerMetadataPrefix + "hitRate");
+    profiler.registerHookValue(profilerPrefix + "parseTimeSaved", "Time of parsing saved by reused statements in milliseconds",
+        OProfiler.METRIC_TYPE.CHRONO, new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getParseTimeSaved() / 1000000;
+          }
+        }, profilerMetadataPrefix + "parseTimeSaved");
+    profiler.registerHookValue(profilerPrefix + "size", "Amount of cached SELECT statements", OProfiler.METRIC_TYPE.SIZE,
+        new OProfiler.OProfilerHookValue() {
+          public Object getValue() {
+            return getSize();
+          }
+        }, profilerMetadataPrefix + "size");
+  }
+}
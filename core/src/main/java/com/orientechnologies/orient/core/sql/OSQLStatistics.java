@@ -0,0 +1,243 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
+import com.orientechnologies.orient.core.index.OIndexOneValue;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIn;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
+
+/**
+ * Per database statistics of the indexes collected by ANALYZE, used to estimate how many entries a query reads from an index.
+ *
+ * Amount of keys of the index and of records of the clusters are taken from the storage on every estimation, so they are always
+ * up to date. Histograms and entries per key are the ones of the last ANALYZE: without them the distribution is assumed uniform.
+ */
+public class OSQLStatistics {
+  public static final float                             DEFAULT_RANGE_SELECTIVITY = 1 / 3f;
+
+  private final ConcurrentMap<String, OIndexStatistics> indexes;
+
+  public OSQLStatistics() {
+    indexes = new ConcurrentHashMap<String, OIndexStatistics>();
+  }
+
+  public static OSQLStatistics instance(final ODatabaseRecord iDatabase) {
+    return iDatabase.getStorage().getResource(OSQLStatistics.class.getSimpleName(), new Callable<OSQLStatistics>() {
+      public OSQLStatistics call() {
+        return new OSQLStatistics();
+      }
+    });
+  }
+
+  /**
+   * Collects the statistics of the index replacing the previous ones.
+   */
+  public OIndexStatistics analyze(final OIndex<?> iIndex) {
+    final OIndexStatistics statistics = OIndexStatistics.collect(iIndex,
+        OGlobalConfiguration.QUERY_STATISTICS_HISTOGRAM_BUCKETS.getValueAsInteger());
+    indexes.put(iIndex.getName(), statistics);
+    return statistics;
+  }
+
+  /**
+   * Returns the statistics of the index, or null if it has not been analyzed or has been recreated on other fields.
+   */
+  public OIndexStatistics get(final OIndex<?> iIndex) {
+    final OIndexStatistics statistics = indexes.get(iIndex.getName());
+    if (statistics == null || iIndex.getDefinition() == null || !statistics.getFields().equals(iIndex.getDefinition().getFields()))
+      return null;
+
+    return statistics;
+  }
+
+  /**
+   * Discards the statistics of the index, called when the index is dropped or rebuilt.
+   */
+  public void remove(final String iIndexName) {
+    indexes.remove(iIndexName);
+  }
+
+  /**
+   * Estimates the entries the query subset reads from the index.
+   *
+   * @param iKeyParams
+   *          Values of the fields of the index, in the order of the index definition
+   * @param iClassRecords
+   *          Records of the clusters of the class, used as entries of a not unique index never analyzed
+   * @return Estimated entries, or -1 if they can't be estimated
+   */
+  public long estimateRows(final OIndex<?> iIndex, final OIndexSearchResult iSearchResult, final List<Object> iKeyParams,
+      final long iClassRecords, final OCommandContext iContext) {
+    final OIndexDefinition definition = iIndex.getDefinition();
+    if (iIndex instanceof OChainedIndexProxy || definition == null)
+      return -1;
+
+    final long keys = iIndex.getKeySize();
+    if (keys == 0)
+      return 0;
+
+    final OIndexStatistics statistics = get(iIndex);
+
+    final long entries;
+    if (iIndex.getInternal() instanceof OIndexOneValue)
+      entries = keys;
+    else if (statistics != null)
+      entries = (long) Math.ceil(keys * statistics.getEntriesPerKey());
+    else
+      entries = Math.max(keys, iClassRecords);
+
+    final Estimation estimation = new Estimation(definition, statistics, entries, keys);
+
+    final OQueryOperator operator = iSearchResult.lastOperator;
+    final Object firstValue = iKeyParams.isEmpty() ? null : iKeyParams.get(0);
+    if (OIndexSearchResult.isIndexEqualityOperator(operator))
+      return estimation.equals(iSearchResult.getFieldCount(), firstValue);
+
+    final int equalityFields = iSearchResult.getFieldCount() - 1;
+    final Object lastValue = iKeyParams.isEmpty() ? null : iKeyParams.get(iKeyParams.size() - 1);
+
+    if (operator instanceof OQueryOperatorIn) {
+      final Collection<?> values = getInValues(lastValue, iContext);
+      if (values == null)
+        return -1;
+
+      long rows = 0;
+      for (Object value : values)
+        rows += estimation.equals(equalityFields + 1, equalityFields == 0 ? value : firstValue);
+      return rows;
+    }
+
+    if (equalityFields == 0 && statistics != null) {
+      final float selectivity = estimation.range(operator, lastValue);
+      if (selectivity >= 0)
+        return (long) Math.ceil(entries * selectivity);
+    }
+
+    return (long) Math.ceil(estimation.equals(equalityFields, firstValue) * DEFAULT_RANGE_SELECTIVITY);
+  }
+
+  private static Collection<?> getInValues(final Object iValue, final OCommandContext iContext) {
+    final Object values = iValue instanceof OSQLFilterItem ? ((OSQLFilterItem) iValue).getValue(null, null, iContext) : iValue;
+    return values instanceof Collection<?> ? (Collection<?>) values : null;
+  }
+
+  private static final class Estimation {
+    private final OIndexDefinition definition;
+    private final OIndexStatistics statistics;
+    private final long             entries;
+    private final long             keys;
+
+    private Estimation(final OIndexDefinition iDefinition, final OIndexStatistics iStatistics, final long iEntries, final long iKeys) {
+      definition = iDefinition;
+      statistics = iStatistics;
+      entries = iEntries;
+      keys = iKeys;
+    }
+
+    /**
+     * Entries whose first fields are equal to the values.
+     */
+    private long equals(final int iFields, final Object iFirstValue) {
+      if (iFields <= 0)
+        return entries;
+
+      final int fieldCount = definition.getParamCount();
+      if (iFields == 1 && statistics != null) {
+        final Object value = toFirstFieldValue(iFirstValue);
+        if (value != null)
+          return (long) Math.ceil(entries * statistics.getEqualsSelectivity(value));
+      }
+
+      if (iFields >= fieldCount)
+        return (long) Math.ceil((double) entries / keys);
+
+      // DISTINCT PREFIXES GROW GEOMETRICALLY FROM THE DISTINCT VALUES OF THE FIRST FIELD TO THE DISTINCT KEYS
+      final double first = statistics != null ? Math.max(1, statistics.getDistinctValues()) : Math.pow(keys, 1.0 / fieldCount);
+      final double prefixes = first * Math.pow(keys / first, (double) (iFields - 1) / (fieldCount - 1));
+      return (long) Math.ceil(entries / Math.max(1, prefixes));
+    }
+
+    /**
+     * Fraction of the entries whose first field is in the range of the operator, or -1 if the operator is not a range.
+     */
+    private float range(final OQueryOperator iOperator, final Object iValue) {
+      if (iOperator instanceof OQueryOperatorBetween) {
+        if (!(iValue instanceof Object[]) || ((Object[]) iValue).length < 3)
+          return -1;
+
+        final Object from = toFirstFieldValue(((Object[]) iValue)[0]);
+        final Object to = toFirstFieldValue(((Object[]) iValue)[2]);
+        return from != null && to != null ? statistics.getRangeSelectivity(from, true, to, true) : -1;
+      }
+
+      final Object value = toFirstFieldValue(iValue);
+      if (value == null)
+        return -1;
+
+      if (iOperator instanceof OQueryOperatorMajorEquals)
+        return statistics.getRangeSelectivity(value, true, null, false);
+      if (iOperator instanceof OQueryOperatorMajor)
+        return statistics.getRangeSelectivity(value, false, null, false);
+      if (iOperator instanceof OQueryOperatorMinorEquals)
+        return statistics.getRangeSelectivity(null, false, value, true);
+      if (iOperator instanceof OQueryOperatorMinor)
+        return statistics.getRangeSelectivity(null, false, value, false);
+
+      return -1;
+    }
+
+    /**
+     * Converts the value to the type of the first field of the index, as it's stored in the histogram.
+     */
+    private Object toFirstFieldValue(final Object iValue) {
+      final OIndexDefinition first = definition instanceof OCompositeIndexDefinition ? ((OCompositeIndexDefinition) definition)
+          .getIndexDefinitions().get(0) : definition;
+
+      try {
+        final Object value = OSQLHelper.getValue(iValue);
+        if (value == null)
+          return null;
+
+        if (first instanceof OIndexDefinitionMultiValue)
+          return ((OIndexDefinitionMultiValue) first).createSingleValue(value);
+        return first.createValue(value);
+      } catch (RuntimeException e) {
+        // NOT CONVERTIBLE: NOT ESTIMATED WITH THE HISTOGRAM
+        return null;
+      }
+    }
+  }
+}
@@ -20,10 +20,13 @@ import com.orientechnologies.orient.core.command.OCommandPredicate;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Parsed query. It's built once a query is parsed.
@@ -78,6 +81,31 @@ public class OSQLFilter extends OSQLPredicate implements OCommandPredicate {
     return rootCondition;
   }
 
+  /**
+   * @return Text of each condition joined by AND at the top level of the filter, brackets around them are ignored.
+   */
+  public Set<String> getConjunctions() {
+    final Set<String> conjunctions = new HashSet<String>();
+    collectConjunctions(rootCondition, conjunctions);
+    return conjunctions;
+  }
+
+  private static void collectConjunctions(final OSQLFilterCondition iCondition, final Set<String> iConditions) {
+    if (iCondition == null)
+      return;
+
+    if (iCondition.getOperator() instanceof OQueryOperatorAnd && iCondition.getLeft() instanceof OSQLFilterCondition
+        && iCondition.getRight() instanceof OSQLFilterCondition) {
+      collectConjunctions((OSQLFilterCondition) iCondition.getLeft(), iConditions);
+      collectConjunctions((OSQLFilterCondition) iCondition.getRight(), iConditions);
+    } else if (iCondition.getOperator() == null && iCondition.getRight() == null
+        && iCondition.getLeft() instanceof OSQLFilterCondition)
+      // BRACKETS
+      collectConjunctions((OSQLFilterCondition) iCondition.getLeft(), iConditions);
+    else
+      iConditions.add(iCondition.toString());
+  }
+
   @Override
   public String toString() {
     if (rootCondition != null)
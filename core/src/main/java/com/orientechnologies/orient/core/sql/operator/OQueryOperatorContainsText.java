@@ -35,7 +35,9 @@ import java.util.List;
 
 /**
  * CONTAINSTEXT operator. Look if a text is contained in a property. This is usually used with the FULLTEXT-INDEX for fast lookup at
- * piece of text.
+ * piece of text. If index stores posting lists all words of text should be present in the record, words which end with '*' are
+ * matched as prefixes and records are ordered by relevance (see {@link OIndexFullText#search(Object)}), otherwise text is looked up
+ * in the index as single key.
  * 
  * @author Luca Garulli
  * 
@@ -95,7 +97,7 @@ public class OQueryOperatorContainsText extends OQueryTargetOperator {
 
     OIndex<?> fullTextIndex = null;
     for (final OIndex<?> indexDefinition : prop.getIndexes()) {
-      if (indexDefinition instanceof OIndexFullText) {
+      if (indexDefinition.getInternal() instanceof OIndexFullText) {
         fullTextIndex = indexDefinition;
         break;
       }
@@ -105,6 +107,10 @@ public class OQueryOperatorContainsText extends OQueryTargetOperator {
       return null;
     }
 
+    final OIndexFullText internalIndex = (OIndexFullText) fullTextIndex.getInternal();
+    if (internalIndex.isPostingListIndex())
+      return internalIndex.search(fieldValue);
+
     return (Collection<OIdentifiable>) fullTextIndex.get(fieldValue);
   }
 
@@ -127,7 +133,13 @@ public class OQueryOperatorContainsText extends OQueryTargetOperator {
     final OIndex<?> internalIndex = index.getInternal();
 
     OIndexCursor cursor;
-    if (internalIndex instanceof OIndexFullText) {
+    if (internalIndex instanceof OIndexFullText && ((OIndexFullText) internalIndex).isPostingListIndex()) {
+      final Object key = indexDefinition.createValue(keyParams);
+
+      // RECORDS ARE RETURNED IN ORDER OF RELEVANCE
+      final List<OIdentifiable> indexResult = ((OIndexFullText) internalIndex).search(key);
+      cursor = new OIndexCursorCollectionValue(indexResult.iterator(), key);
+    } else if (internalIndex instanceof OIndexFullText) {
       final Object key = indexDefinition.createValue(keyParams);
       final Object indexResult = index.get(key);
 
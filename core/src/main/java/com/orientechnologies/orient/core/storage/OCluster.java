@@ -36,7 +36,7 @@ import com.orientechnologies.orient.core.version.ORecordVersion;
 public interface OCluster {
 
   public static enum ATTRIBUTES {
-    NAME, DATASEGMENT, USE_WAL, RECORD_GROW_FACTOR, RECORD_OVERFLOW_GROW_FACTOR, COMPRESSION
+    NAME, DATASEGMENT, USE_WAL, RECORD_GROW_FACTOR, RECORD_OVERFLOW_GROW_FACTOR, COMPRESSION, PAGE_COMPRESSION
   }
 
   public void configure(OStorage iStorage, int iId, String iClusterName, final String iLocation, int iDataSegmentId,
@@ -19,12 +19,49 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 
 public class OFileClassic extends OAbstractFile {
   public final static String NAME                = "classic";
   protected ByteBuffer       internalWriteBuffer = ByteBuffer.allocate(OBinaryProtocol.SIZE_LONG);
 
+  private boolean            directIO;
+  private int                accessAdvice        = OFileNativeIO.ADVICE_NONE;
+  private boolean            dropOSCache;
+  private int                directFd            = -1;
+  private int                fd                  = -1;
+
+  /**
+   * Enables native IO features for this file, should be called before file is opened or created.
+   * 
+   * @param directIO
+   *          read and write data bypassing OS page cache.
+   * @param accessAdvice
+   *          access pattern hint which is passed to OS: none, normal, random or sequential.
+   * @param dropOSCache
+   *          ask OS to drop file data from its page cache after data are read or synced.
+   */
+  public void setNativeIO(boolean directIO, String accessAdvice, boolean dropOSCache) {
+    acquireWriteLock();
+    try {
+      this.directIO = directIO;
+      this.accessAdvice = OFileNativeIO.adviceByName(accessAdvice);
+      this.dropOSCache = dropOSCache;
+    } finally {
+      releaseWriteLock();
+    }
+  }
+
+  public boolean isDirectIO() {
+    acquireReadLock();
+    try {
+      return directFd >= 0;
+    } finally {
+      releaseReadLock();
+    }
+  }
+
   @Override
   public long allocateSpace(long size) throws IOException {
     acquireWriteLock();
@@ -67,8 +104,16 @@ public class OFileClassic extends OAbstractFile {
     try {
       iOffset = checkRegions(iOffset, iLength);
 
+      if (directFd >= 0) {
+        OFileNativeIO.read(directFd, iOffset, iData, iArrayOffset, iLength);
+        return;
+      }
+
       ByteBuffer buffer = ByteBuffer.wrap(iData, iArrayOffset, iLength);
       channel.read(buffer, iOffset);
+
+      if (dropOSCache && fd >= 0)
+        OFileNativeIO.dontNeed(fd, iOffset, iLength);
     } finally {
       releaseReadLock();
     }
@@ -86,8 +131,19 @@ public class OFileClassic extends OAbstractFile {
   private void writeInternal(long iOffset, byte[] iData, int iSize, int iArrayOffset) throws IOException {
     if (iData != null) {
       iOffset += HEADER_SIZE;
-      ByteBuffer byteBuffer = ByteBuffer.wrap(iData, iArrayOffset, iSize);
-      channel.write(byteBuffer, iOffset);
+
+      if (directFd >= 0) {
+        final long fileLength = channel.size();
+        final long writtenTill = OFileNativeIO.write(directFd, iOffset, iData, iArrayOffset, iSize);
+
+        // region was extended till alignment boundary, so file length should be restored
+        if (writtenTill > fileLength && writtenTill > iOffset + iSize)
+          channel.truncate(Math.max(fileLength, iOffset + iSize));
+      } else {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(iData, iArrayOffset, iSize);
+        channel.write(byteBuffer, iOffset);
+      }
+
       setDirty();
     }
   }
@@ -234,12 +290,80 @@ public class OFileClassic extends OAbstractFile {
       if (headerDirty || dirty) {
         headerDirty = dirty = false;
         channel.force(false);
+
+        if (dropOSCache && directFd < 0 && fd >= 0)
+          OFileNativeIO.dontNeed(fd, 0, 0);
       }
     } finally {
       releaseWriteLock();
     }
   }
 
+  @Override
+  public void close() throws IOException {
+    acquireWriteLock();
+    try {
+      super.close();
+      closeNativeIO();
+    } finally {
+      releaseWriteLock();
+    }
+  }
+
+  @Override
+  public void close(boolean softlyClosed) throws IOException {
+    acquireWriteLock();
+    try {
+      super.close(softlyClosed);
+      closeNativeIO();
+    } finally {
+      releaseWriteLock();
+    }
+  }
+
+  @Override
+  protected void openChannel(long newSize) throws IOException {
+    acquireWriteLock();
+    try {
+      super.openChannel(newSize);
+      openNativeIO();
+    } finally {
+      releaseWriteLock();
+    }
+  }
+
+  private void openNativeIO() throws IOException {
+    if (accessAdvice != OFileNativeIO.ADVICE_NONE || dropOSCache) {
+      if (OFileNativeIO.isFadviseSupported()) {
+        fd = OFileNativeIO.fileDescriptor(accessFile);
+
+        if (fd >= 0 && accessAdvice != OFileNativeIO.ADVICE_NONE)
+          OFileNativeIO.advise(fd, 0, 0, accessAdvice);
+      }
+    }
+
+    if (directIO && OFileNativeIO.isDirectIOSupported()) {
+      try {
+        directFd = OFileNativeIO.openDirect(osFile.getAbsolutePath(), mode.indexOf('w') < 0);
+      } catch (IOException e) {
+        // some file systems (tmpfs for example) do not support direct IO
+        OLogManager.instance().warn(this, "File %s can not be opened in direct IO mode, OS page cache will be used (%s)",
+            osFile.getAbsolutePath(), e.getMessage());
+        directFd = -1;
+      }
+    }
+  }
+
+  private void closeNativeIO() throws IOException {
+    fd = -1;
+
+    if (directFd >= 0) {
+      final int directFdToClose = directFd;
+      directFd = -1;
+      OFileNativeIO.close(directFdToClose);
+    }
+  }
+
   @Override
   public void create(int iStartSize) throws IOException {
     acquireWriteLock();
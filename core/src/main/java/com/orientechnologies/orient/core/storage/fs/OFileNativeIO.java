@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.nio.CLibrary;
+import com.orientechnologies.nio.OCLibraryFactory;
+import com.orientechnologies.nio.ODirectFileIO;
+
+/**
+ * Bridge to native file functions of orientdb-nativeos module. The module and JNA are optional, so all native features are
+ * reported as unsupported if they can not be loaded.
+ */
+final class OFileNativeIO {
+  static final int                ADVICE_NONE = -1;
+
+  private static final CLibrary   C_LIBRARY;
+  private static volatile boolean directIOWarningLogged;
+  private static volatile boolean adviceWarningLogged;
+
+  static {
+    CLibrary library;
+    try {
+      library = OCLibraryFactory.INSTANCE.library();
+    } catch (Throwable e) {
+      library = null;
+    }
+
+    C_LIBRARY = library;
+  }
+
+  private OFileNativeIO() {
+  }
+
+  static boolean isDirectIOSupported() {
+    final boolean supported = C_LIBRARY != null && C_LIBRARY.isDirectIOSupported();
+    if (!supported && !directIOWarningLogged) {
+      directIOWarningLogged = true;
+      OLogManager.instance().warn(OFileNativeIO.class,
+          "Direct IO is not supported on current platform (%s) or orientdb-nativeos is not in classpath, OS page cache will be used",
+          System.getProperty("os.name"));
+    }
+
+    return supported;
+  }
+
+  static boolean isFadviseSupported() {
+    final boolean supported = C_LIBRARY != null && C_LIBRARY.isFadviseSupported();
+    if (!supported && !adviceWarningLogged) {
+      adviceWarningLogged = true;
+      OLogManager.instance().warn(OFileNativeIO.class,
+          "Access pattern hints are not supported on current platform (%s) or orientdb-nativeos is not in classpath",
+          System.getProperty("os.name"));
+    }
+
+    return supported;
+  }
+
+  static int adviceByName(String name) {
+    if (name == null || name.length() == 0 || name.equalsIgnoreCase("none"))
+      return ADVICE_NONE;
+    if (name.equalsIgnoreCase("normal"))
+      return CLibrary.POSIX_FADV_NORMAL;
+    if (name.equalsIgnoreCase("random"))
+      return CLibrary.POSIX_FADV_RANDOM;
+    if (name.equalsIgnoreCase("sequential"))
+      return CLibrary.POSIX_FADV_SEQUENTIAL;
+
+    throw new IllegalArgumentException("Unknown file access advice '" + name + "'");
+  }
+
+  static int fileDescriptor(RandomAccessFile file) throws IOException {
+    return C_LIBRARY.fileDescriptor(file.getFD());
+  }
+
+  static void advise(int fd, long offset, long len, int advice) {
+    final int result = C_LIBRARY.fadvise(fd, offset, len, advice);
+    if (result > 0)
+      OLogManager.instance().debug(OFileNativeIO.class, "Access pattern hint %d was rejected by OS, error code %d", advice, result);
+  }
+
+  static void dontNeed(int fd, long offset, long len) {
+    advise(fd, offset, len, CLibrary.POSIX_FADV_DONTNEED);
+  }
+
+  static int openDirect(String path, boolean readOnly) throws IOException {
+    return C_LIBRARY.openDirect(path, readOnly);
+  }
+
+  static void close(int fd) throws IOException {
+    C_LIBRARY.closeFile(fd);
+  }
+
+  static int read(int fd, long position, byte[] data, int offset, int length) throws IOException {
+    return ODirectFileIO.INSTANCE.read(fd, position, data, offset, length);
+  }
+
+  static long write(int fd, long position, byte[] data, int offset, int length) throws IOException {
+    return ODirectFileIO.INSTANCE.write(fd, position, data, offset, length);
+  }
+}
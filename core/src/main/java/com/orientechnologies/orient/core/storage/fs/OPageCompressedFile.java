@@ -0,0 +1,721 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.compression.OCompression;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.exception.OStorageException;
+
+/**
+ * File of paginated storage which compresses pages before they are written to disk. Logical content of file (the one which is seen
+ * by disk cache) is split on pages of fixed size, each page is compressed and stored in data file as extent of variable size.
+ *
+ * Mapping from logical pages to extents is kept in page table file which has the same name as data file and
+ * {@link #TABLE_EXTENSION} extension. Each entry of page table contains position of extent in data file, length of compressed page
+ * and capacity of extent. Extents are allocated in units of {@link #ALLOCATION_UNIT} bytes. Page is never overwritten in place: new
+ * content is written to free extent, then page table entry is updated. Old extent becomes free only after {@link #synch()} has
+ * forced page table which does not reference it any more, so torn write of data file does not corrupt previous version of page
+ * which is still referenced by durable page table. Pages which can not be compressed are stored as is, pages which were allocated
+ * but never written do not occupy space in data file.
+ *
+ * Free extents are kept in memory only and are restored from page table when file is opened. Pages are read without lock of file,
+ * only position of extent is read under lock, and read is repeated if released extents became free in the meantime.
+ */
+public class OPageCompressedFile implements OFile {
+  public static final String                   TABLE_EXTENSION    = ".cpt";
+  public static final int                      ALLOCATION_UNIT    = 512;
+
+  private static final long                    MAGIC_NUMBER       = 0x4F50434654424CL;
+
+  private static final int                     MAGIC_OFFSET       = 0;
+  private static final int                     PAGE_SIZE_OFFSET   = MAGIC_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int                     SIZE_OFFSET        = PAGE_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int                     COMPRESSION_OFFSET = SIZE_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int                     TABLE_HEADER_SIZE  = 64;
+  private static final int                     MAX_NAME_LENGTH    = TABLE_HEADER_SIZE - COMPRESSION_OFFSET
+                                                                      - OIntegerSerializer.INT_SIZE;
+
+  private static final int                     ENTRY_SIZE         = OLongSerializer.LONG_SIZE + 2 * OIntegerSerializer.INT_SIZE;
+  private static final int                     ENTRIES_PER_READ   = 4096;
+
+  private final OFileClassic                   dataFile;
+  private final OFileClassic                   tableFile;
+  private final int                            pageSize;
+
+  private String                               compressionName;
+  private OCompression                         compression;
+
+  private long                                 size;
+  private long                                 dataEnd;
+
+  private long[]                               positions          = new long[0];
+  private int[]                                lengths            = new int[0];
+  private int[]                                capacities         = new int[0];
+
+  /**
+   * Free extents of data file grouped by capacity.
+   */
+  private final TreeMap<Integer, ArrayDeque<Long>> freeExtents      = new TreeMap<Integer, ArrayDeque<Long>>();
+
+  /**
+   * Extents which are not referenced by pages any more, but may be still referenced by page table on disk.
+   */
+  private List<Extent>                         releasedExtents    = new ArrayList<Extent>();
+
+  /**
+   * Incremented each time released extents become free and could be overwritten.
+   */
+  private long                                 freeGeneration;
+
+  /**
+   * @param dataFile
+   *          Initialized but not opened file which will contain compressed pages.
+   * @param pageSize
+   *          Size of logical page.
+   * @param compressionName
+   *          Name of {@link OCompression} which is used for new file, compression of existing file is read from its page table.
+   */
+  public OPageCompressedFile(final OFileClassic dataFile, final int pageSize, final String compressionName) {
+    if (pageSize <= ALLOCATION_UNIT)
+      throw new IllegalArgumentException("Page size should be bigger than " + ALLOCATION_UNIT + " bytes");
+
+    this.dataFile = dataFile;
+    this.pageSize = pageSize;
+    this.tableFile = new OFileClassic();
+
+    if (dataFile.getOsFile() != null)
+      tableFile.init(dataFile.getOsFile().getPath() + TABLE_EXTENSION, dataFile.mode);
+
+    setCompression(compressionName);
+  }
+
+  /**
+   * @return <code>true</code> if file with given path was created as page compressed file.
+   */
+  public static boolean isPageCompressed(final String path) {
+    return new File(path + TABLE_EXTENSION).exists();
+  }
+
+  public String getCompressionName() {
+    return compressionName;
+  }
+
+  /**
+   * @return Amount of bytes which are occupied by compressed pages in data file including free extents.
+   */
+  public synchronized long getPhysicalSize() {
+    return dataEnd;
+  }
+
+  public OFile init(final String iFileName, final String iOpenMode) {
+    dataFile.init(iFileName, iOpenMode);
+    tableFile.init(iFileName + TABLE_EXTENSION, iOpenMode);
+    return this;
+  }
+
+  public synchronized boolean open() throws IOException {
+    final boolean dataSoftlyClosed = dataFile.open();
+    final boolean tableSoftlyClosed = tableFile.open();
+
+    readTable();
+
+    return dataSoftlyClosed && tableSoftlyClosed;
+  }
+
+  public synchronized void create(final int iStartSize) throws IOException {
+    dataFile.create(-1);
+    tableFile.create(-1);
+
+    clear();
+
+    tableFile.allocateSpace(TABLE_HEADER_SIZE);
+    writeTableHeader();
+  }
+
+  public synchronized void close() throws IOException {
+    dataFile.close();
+    tableFile.close();
+  }
+
+  public synchronized void delete() throws IOException {
+    dataFile.delete();
+    tableFile.delete();
+
+    clear();
+  }
+
+  public void setSize(final long iSize) throws IOException {
+  }
+
+  public void writeHeaderLong(final int iPosition, final long iValue) throws IOException {
+    dataFile.writeHeaderLong(iPosition, iValue);
+  }
+
+  public long readHeaderLong(final int iPosition) throws IOException {
+    return dataFile.readHeaderLong(iPosition);
+  }
+
+  public boolean synch() throws IOException {
+    final List<Extent> extents;
+    synchronized (this) {
+      extents = releasedExtents;
+      releasedExtents = new ArrayList<Extent>();
+    }
+
+    boolean synched = false;
+    try {
+      final boolean dataSynched = dataFile.synch();
+      final boolean tableSynched = tableFile.synch();
+      synched = true;
+      return dataSynched && tableSynched;
+    } finally {
+      synchronized (this) {
+        if (!synched)
+          releasedExtents.addAll(extents);
+        else if (!extents.isEmpty()) {
+          // page table which does not reference released extents is on disk, so they can be overwritten
+          freeGeneration++;
+          rebuildFreeExtents();
+        }
+      }
+    }
+  }
+
+  public void read(final long iOffset, final byte[] iDestBuffer, final int iLenght) throws IOException {
+    read(iOffset, iDestBuffer, iLenght, 0);
+  }
+
+  public void read(long iOffset, final byte[] iData, int iLength, int iArrayOffset) throws IOException {
+    synchronized (this) {
+      checkRegions(iOffset, iLength);
+    }
+
+    byte[] page = null;
+    while (iLength > 0) {
+      final int pageIndex = (int) (iOffset / pageSize);
+      final int pageOffset = (int) (iOffset - (long) pageIndex * pageSize);
+      final int chunk = Math.min(iLength, pageSize - pageOffset);
+
+      if (chunk == pageSize)
+        readPage(pageIndex, iData, iArrayOffset);
+      else {
+        if (page == null)
+          page = new byte[pageSize];
+
+        readPage(pageIndex, page, 0);
+        System.arraycopy(page, pageOffset, iData, iArrayOffset, chunk);
+      }
+
+      iOffset += chunk;
+      iArrayOffset += chunk;
+      iLength -= chunk;
+    }
+  }
+
+  public void write(final long iOffset, final byte[] iSourceBuffer) throws IOException {
+    write(iOffset, iSourceBuffer, iSourceBuffer.length, 0);
+  }
+
+  public synchronized void write(long iOffset, final byte[] iData, int iSize, int iArrayOffset) throws IOException {
+    checkRegions(iOffset, iSize);
+
+    byte[] page = null;
+    while (iSize > 0) {
+      final int pageIndex = (int) (iOffset / pageSize);
+      final int pageOffset = (int) (iOffset - (long) pageIndex * pageSize);
+      final int chunk = Math.min(iSize, pageSize - pageOffset);
+
+      if (chunk == pageSize)
+        writePage(pageIndex, iData, iArrayOffset);
+      else {
+        if (page == null)
+          page = new byte[pageSize];
+
+        readPage(pageIndex, page, 0);
+        System.arraycopy(iData, iArrayOffset, page, pageOffset, chunk);
+        writePage(pageIndex, page, 0);
+      }
+
+      iOffset += chunk;
+      iArrayOffset += chunk;
+      iSize -= chunk;
+    }
+  }
+
+  public short readShort(final long iLogicalPosition) throws IOException {
+    return readBuffer(iLogicalPosition, 2).getShort();
+  }
+
+  public int readInt(final long iLogicalPosition) throws IOException {
+    return readBuffer(iLogicalPosition, 4).getInt();
+  }
+
+  public long readLong(final long iOffset) throws IOException {
+    return readBuffer(iOffset, 8).getLong();
+  }
+
+  public byte readByte(final long iOffset) throws IOException {
+    return readBuffer(iOffset, 1).get();
+  }
+
+  public void writeInt(final long iOffset, final int iValue) throws IOException {
+    write(iOffset, ByteBuffer.allocate(4).putInt(iValue).array());
+  }
+
+  public void writeLong(final long iOffset, final long iValue) throws IOException {
+    write(iOffset, ByteBuffer.allocate(8).putLong(iValue).array());
+  }
+
+  public void writeShort(final long iOffset, final short iValue) throws IOException {
+    write(iOffset, ByteBuffer.allocate(2).putShort(iValue).array());
+  }
+
+  public void writeByte(final long iOffset, final byte iValue) throws IOException {
+    write(iOffset, new byte[] { iValue });
+  }
+
+  public void setSoftlyClosed(final boolean b) throws IOException {
+    dataFile.setSoftlyClosed(b);
+    tableFile.setSoftlyClosed(b);
+  }
+
+  public boolean wasSoftlyClosed() throws IOException {
+    return dataFile.wasSoftlyClosed() && tableFile.wasSoftlyClosed();
+  }
+
+  public boolean isSoftlyClosed() throws IOException {
+    return dataFile.isSoftlyClosed() && tableFile.isSoftlyClosed();
+  }
+
+  public void lock() throws IOException {
+    dataFile.lock();
+  }
+
+  public FileLock lock(final long iRangeFrom, final long iRangeSize, final boolean iShared) throws IOException {
+    return dataFile.lock(iRangeFrom, iRangeSize, iShared);
+  }
+
+  public OFile unlock(final FileLock iLock) throws IOException {
+    dataFile.unlock(iLock);
+    return this;
+  }
+
+  public void unlock() throws IOException {
+    dataFile.unlock();
+  }
+
+  public synchronized void removeTail(final long iSizeToShrink) throws IOException {
+    shrink(Math.max(0, size - iSizeToShrink));
+  }
+
+  public synchronized void shrink(final long iSize) throws IOException {
+    if (iSize >= size)
+      return;
+
+    final int pages = pagesCount(iSize);
+    for (int i = pages; i < pagesCount(size); i++) {
+      if (capacities[i] > 0)
+        releasedExtents.add(new Extent(positions[i], capacities[i]));
+
+      positions[i] = 0;
+      lengths[i] = 0;
+      capacities[i] = 0;
+    }
+
+    size = iSize;
+
+    rebuildFreeExtents();
+
+    dataFile.shrink(dataEnd);
+    tableFile.shrink(TABLE_HEADER_SIZE + (long) pages * ENTRY_SIZE);
+    writeTableHeader();
+  }
+
+  public String getName() {
+    return dataFile.getName();
+  }
+
+  public String getPath() {
+    return dataFile.getPath();
+  }
+
+  public String getAbsolutePath() {
+    return dataFile.getAbsolutePath();
+  }
+
+  public synchronized boolean renameTo(final File newFile) {
+    // data file could be already renamed by previous attempt
+    if (!newFile.equals(dataFile.getOsFile()) && !dataFile.renameTo(newFile))
+      return false;
+
+    return tableFile.renameTo(new File(newFile.getPath() + TABLE_EXTENSION));
+  }
+
+  public synchronized long allocateSpace(final long iSize) throws IOException {
+    final long offset = size;
+    final int oldPages = pagesCount(size);
+
+    size += iSize;
+
+    final int pages = pagesCount(size);
+    if (pages > oldPages) {
+      ensureCapacity(pages);
+
+      final long tableSize = TABLE_HEADER_SIZE + (long) pages * ENTRY_SIZE;
+      if (tableFile.getFilledUpTo() < tableSize) {
+        final long tableOffset = tableFile.allocateSpace(tableSize - tableFile.getFilledUpTo());
+        tableFile.write(tableOffset, new byte[(int) (tableSize - tableOffset)]);
+      }
+    }
+
+    writeTableHeader();
+
+    return offset;
+  }
+
+  public long getFreeSpace() {
+    return 0;
+  }
+
+  public synchronized long getFileSize() {
+    return size;
+  }
+
+  public synchronized long getFilledUpTo() {
+    return size;
+  }
+
+  public boolean canOversize(final int iRecordSize) {
+    return dataFile.canOversize(iRecordSize);
+  }
+
+  public long getMaxSize() {
+    return dataFile.getMaxSize();
+  }
+
+  public void setMaxSize(final int maxSize) {
+    dataFile.setMaxSize(maxSize);
+  }
+
+  public int getIncrementSize() {
+    return dataFile.getIncrementSize();
+  }
+
+  public void setIncrementSize(final int incrementSize) {
+    dataFile.setIncrementSize(incrementSize);
+  }
+
+  public boolean isOpen() {
+    return dataFile.isOpen() && tableFile.isOpen();
+  }
+
+  public boolean exists() {
+    return dataFile.exists();
+  }
+
+  public boolean isFailCheck() {
+    return dataFile.isFailCheck();
+  }
+
+  public void setFailCheck(final boolean failCheck) {
+    dataFile.setFailCheck(failCheck);
+    tableFile.setFailCheck(failCheck);
+  }
+
+  @Override
+  public String toString() {
+    return dataFile.toString() + " (page compression : " + compressionName + ")";
+  }
+
+  private void readPage(final int pageIndex, final byte[] dest, final int destOffset) throws IOException {
+    long position;
+    int length;
+    byte[] compressed;
+
+    while (true) {
+      final long generation;
+      synchronized (this) {
+        position = positions[pageIndex];
+        length = lengths[pageIndex];
+        generation = freeGeneration;
+      }
+
+      if (length == 0) {
+        Arrays.fill(dest, destOffset, destOffset + pageSize, (byte) 0);
+        return;
+      }
+
+      compressed = length == pageSize ? null : new byte[length];
+      if (compressed == null)
+        dataFile.read(position, dest, pageSize, destOffset);
+      else
+        dataFile.read(position, compressed, length);
+
+      // extent could be freed and overwritten by other page while it was read
+      synchronized (this) {
+        if (generation == freeGeneration)
+          break;
+      }
+    }
+
+    if (compressed == null)
+      return;
+
+    final byte[] content = compression.uncompress(compressed);
+    if (content.length != pageSize)
+      throw new OStorageException("Page " + pageIndex + " of file " + getName() + " is broken, its uncompressed size is "
+          + content.length + " bytes but should be " + pageSize);
+
+    System.arraycopy(content, 0, dest, destOffset, pageSize);
+  }
+
+  private void writePage(final int pageIndex, final byte[] source, final int sourceOffset) throws IOException {
+    final byte[] compressed = compression.compress(source, sourceOffset, pageSize);
+
+    final byte[] data;
+    final int dataOffset;
+    final int length;
+
+    // page is stored as is if compression does not save at least one allocation unit
+    if (roundUp(compressed.length) >= pageSize) {
+      data = source;
+      dataOffset = sourceOffset;
+      length = pageSize;
+    } else {
+      data = compressed;
+      dataOffset = 0;
+      length = compressed.length;
+    }
+
+    final int capacity = roundUp(length);
+    final long position = allocateExtent(capacity);
+
+    dataFile.write(position, data, length, dataOffset);
+
+    final long oldPosition = positions[pageIndex];
+    final int oldCapacity = capacities[pageIndex];
+
+    positions[pageIndex] = position;
+    lengths[pageIndex] = length;
+    capacities[pageIndex] = capacity;
+
+    writeEntry(pageIndex);
+
+    if (oldCapacity > 0)
+      releasedExtents.add(new Extent(oldPosition, oldCapacity));
+  }
+
+  private long allocateExtent(final int capacity) throws IOException {
+    final Map.Entry<Integer, ArrayDeque<Long>> entry = freeExtents.ceilingEntry(capacity);
+    if (entry != null) {
+      final ArrayDeque<Long> extents = entry.getValue();
+      final long position = extents.poll();
+      if (extents.isEmpty())
+        freeExtents.remove(entry.getKey());
+
+      if (entry.getKey() > capacity)
+        addFreeExtent(position + capacity, entry.getKey() - capacity);
+
+      return position;
+    }
+
+    final long position = dataEnd;
+    dataEnd += capacity;
+
+    if (dataFile.getFilledUpTo() < dataEnd)
+      dataFile.allocateSpace(dataEnd - dataFile.getFilledUpTo());
+
+    return position;
+  }
+
+  private void addFreeExtent(final long position, final int capacity) {
+    ArrayDeque<Long> extents = freeExtents.get(capacity);
+    if (extents == null) {
+      extents = new ArrayDeque<Long>();
+      freeExtents.put(capacity, extents);
+    }
+
+    extents.add(position);
+  }
+
+  /**
+   * Finds free extents as gaps between extents which are used by pages or released but not freed yet.
+   */
+  private void rebuildFreeExtents() {
+    freeExtents.clear();
+
+    final TreeMap<Long, Integer> usedExtents = new TreeMap<Long, Integer>();
+    final int pages = pagesCount(size);
+    for (int i = 0; i < pages; i++) {
+      if (capacities[i] > 0)
+        usedExtents.put(positions[i], capacities[i]);
+    }
+
+    for (Extent extent : releasedExtents)
+      usedExtents.put(extent.position, extent.capacity);
+
+    long end = 0;
+    for (Map.Entry<Long, Integer> extent : usedExtents.entrySet()) {
+      if (extent.getKey() > end)
+        addFreeExtent(end, (int) (extent.getKey() - end));
+
+      end = extent.getKey() + extent.getValue();
+    }
+
+    dataEnd = end;
+  }
+
+  private void readTable() throws IOException {
+    final byte[] header = new byte[TABLE_HEADER_SIZE];
+    tableFile.read(0, header, TABLE_HEADER_SIZE);
+
+    if (OLongSerializer.INSTANCE.deserializeNative(header, MAGIC_OFFSET) != MAGIC_NUMBER)
+      throw new OStorageException("File " + tableFile.getName() + " is not a page table of compressed file");
+
+    final int filePageSize = OIntegerSerializer.INSTANCE.deserializeNative(header, PAGE_SIZE_OFFSET);
+    if (filePageSize != pageSize)
+      throw new OStorageException("File " + getName() + " was created with page size " + filePageSize + " but page size "
+          + pageSize + " is used");
+
+    final int nameLength = OIntegerSerializer.INSTANCE.deserializeNative(header, COMPRESSION_OFFSET);
+    setCompression(new String(header, COMPRESSION_OFFSET + OIntegerSerializer.INT_SIZE, nameLength, "UTF-8"));
+
+    size = OLongSerializer.INSTANCE.deserializeNative(header, SIZE_OFFSET);
+
+    final int pages = pagesCount(size);
+    positions = new long[0];
+    lengths = new int[0];
+    capacities = new int[0];
+    releasedExtents.clear();
+    ensureCapacity(pages);
+
+    final byte[] entries = new byte[Math.min(pages, ENTRIES_PER_READ) * ENTRY_SIZE];
+    for (int from = 0; from < pages; from += ENTRIES_PER_READ) {
+      final int count = Math.min(pages - from, ENTRIES_PER_READ);
+      tableFile.read(TABLE_HEADER_SIZE + (long) from * ENTRY_SIZE, entries, count * ENTRY_SIZE);
+
+      for (int i = 0; i < count; i++) {
+        final int entryOffset = i * ENTRY_SIZE;
+        positions[from + i] = OLongSerializer.INSTANCE.deserializeNative(entries, entryOffset);
+        lengths[from + i] = OIntegerSerializer.INSTANCE.deserializeNative(entries, entryOffset + OLongSerializer.LONG_SIZE);
+        capacities[from + i] = OIntegerSerializer.INSTANCE.deserializeNative(entries, entryOffset + OLongSerializer.LONG_SIZE
+            + OIntegerSerializer.INT_SIZE);
+      }
+    }
+
+    rebuildFreeExtents();
+  }
+
+  private void writeTableHeader() throws IOException {
+    final byte[] header = new byte[TABLE_HEADER_SIZE];
+    OLongSerializer.INSTANCE.serializeNative(MAGIC_NUMBER, header, MAGIC_OFFSET);
+    OIntegerSerializer.INSTANCE.serializeNative(pageSize, header, PAGE_SIZE_OFFSET);
+    OLongSerializer.INSTANCE.serializeNative(size, header, SIZE_OFFSET);
+
+    final byte[] name = compressionName.getBytes("UTF-8");
+    OIntegerSerializer.INSTANCE.serializeNative(name.length, header, COMPRESSION_OFFSET);
+    System.arraycopy(name, 0, header, COMPRESSION_OFFSET + OIntegerSerializer.INT_SIZE, name.length);
+
+    tableFile.write(0, header);
+  }
+
+  private void writeEntry(final int pageIndex) throws IOException {
+    final byte[] entry = new byte[ENTRY_SIZE];
+    OLongSerializer.INSTANCE.serializeNative(positions[pageIndex], entry, 0);
+    OIntegerSerializer.INSTANCE.serializeNative(lengths[pageIndex], entry, OLongSerializer.LONG_SIZE);
+    OIntegerSerializer.INSTANCE.serializeNative(capacities[pageIndex], entry, OLongSerializer.LONG_SIZE
+        + OIntegerSerializer.INT_SIZE);
+
+    tableFile.write(TABLE_HEADER_SIZE + (long) pageIndex * ENTRY_SIZE, entry);
+  }
+
+  private void setCompression(final String name) {
+    try {
+      if (name.getBytes("UTF-8").length > MAX_NAME_LENGTH)
+        throw new IllegalArgumentException("Name of compression " + name + " is too long");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+
+    compression = OCompressionFactory.INSTANCE.getCompression(name);
+    compressionName = name;
+  }
+
+  private ByteBuffer readBuffer(final long offset, final int length) throws IOException {
+    final byte[] buffer = new byte[length];
+    read(offset, buffer, length);
+    return ByteBuffer.wrap(buffer);
+  }
+
+  private void checkRegions(final long iOffset, final long iLength) {
+    if (iOffset < 0 || iOffset + iLength > size)
+      throw new OIOException("You cannot access outside the file size (" + size + " bytes). You have requested portion "
+          + iOffset + "-" + (iOffset + iLength) + " bytes. File: " + toString());
+  }
+
+  private void ensureCapacity(final int pages) {
+    if (positions.length >= pages)
+      return;
+
+    final int capacity = Math.max(pages, positions.length << 1);
+    positions = Arrays.copyOf(positions, capacity);
+    lengths = Arrays.copyOf(lengths, capacity);
+    capacities = Arrays.copyOf(capacities, capacity);
+  }
+
+  private int pagesCount(final long fileSize) {
+    return (int) ((fileSize + pageSize - 1) / pageSize);
+  }
+
+  private int roundUp(final int length) {
+    return (length + ALLOCATION_UNIT - 1) / ALLOCATION_UNIT * ALLOCATION_UNIT;
+  }
+
+  private void clear() {
+    size = 0;
+    dataEnd = 0;
+    positions = new long[0];
+    lengths = new int[0];
+    capacities = new int[0];
+    freeExtents.clear();
+    releasedExtents.clear();
+  }
+
+  private static final class Extent {
+    private final long position;
+    private final int  capacity;
+
+    private Extent(final long position, final int capacity) {
+      this.position = position;
+      this.capacity = capacity;
+    }
+  }
+}
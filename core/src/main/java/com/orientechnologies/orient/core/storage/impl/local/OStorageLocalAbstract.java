@@ -19,6 +19,7 @@ package com.orientechnologies.orient.core.storage.impl.local;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.compression.impl.OZIPCompressionUtil;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePointer;
@@ -73,6 +74,14 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
 
   public abstract ODiskCache getDiskCache();
 
+  /**
+   * Returns name of compression of pages of file which is created by disk cache without explicitly given compression, for example
+   * when file is recreated during restore from WAL.
+   */
+  public String getPageCompression(String fileName) {
+    return OGlobalConfiguration.STORAGE_PAGE_COMPRESSION_METHOD.getValueAsString();
+  }
+
   public abstract boolean check(boolean b, OCommandOutputListener dbCheckTest);
 
   public OStorageTransaction getStorageTransaction() {
@@ -141,12 +150,20 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
     if (writeAheadLog == null || transaction.get() == null)
       return;
 
-    final OAtomicOperation operation = atomicOperationsManager.endAtomicOperation(true);
+    // changes are reverted after the end of operation and are not logged, so redo point of fuzzy checkpoint should not be moved
+    // after start of operation till they are applied to the pages
+    final OLogSequenceNumber startLSN = atomicOperationsManager.getCurrentOperation().getStartLSN();
+    atomicOperationsManager.retainOperation(startLSN);
+    try {
+      final OAtomicOperation operation = atomicOperationsManager.endAtomicOperation(true);
 
-    assert atomicOperationsManager.getCurrentOperation() == null;
+      assert atomicOperationsManager.getCurrentOperation() == null;
 
-    final List<OLogSequenceNumber> operationUnit = readOperationUnit(operation.getStartLSN(), operation.getOperationUnitId());
-    undoOperation(operationUnit);
+      final List<OLogSequenceNumber> operationUnit = readOperationUnit(operation.getStartLSN(), operation.getOperationUnitId());
+      undoOperation(operationUnit);
+    } finally {
+      atomicOperationsManager.releaseOperation(startLSN);
+    }
   }
 
   private List<OLogSequenceNumber> readOperationUnit(OLogSequenceNumber startLSN, OOperationUnitId unitId) throws IOException {
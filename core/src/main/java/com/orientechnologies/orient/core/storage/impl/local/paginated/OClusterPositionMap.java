@@ -66,19 +66,19 @@ public class OClusterPositionMap extends ODurableComponent {
     }
   }
 
-  public void open() throws IOException {
+  public void open(String pageCompression) throws IOException {
     acquireExclusiveLock();
     try {
-      fileId = diskCache.openFile(name + DEF_EXTENSION);
+      fileId = diskCache.openFile(name + DEF_EXTENSION, pageCompression);
     } finally {
       releaseExclusiveLock();
     }
   }
 
-  public void create() throws IOException {
+  public void create(String pageCompression) throws IOException {
     acquireExclusiveLock();
     try {
-      fileId = diskCache.openFile(name + DEF_EXTENSION);
+      fileId = diskCache.openFile(name + DEF_EXTENSION, pageCompression);
     } finally {
       releaseExclusiveLock();
     }
@@ -16,9 +16,17 @@
 
 package com.orientechnologies.orient.core.storage.impl.local.paginated;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -36,6 +44,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.concur.lock.OModificationLock;
@@ -44,6 +54,9 @@ import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.parser.OSystemVariableResolver;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
@@ -69,6 +82,7 @@ import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePoint
 import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OPageDataVerificationError;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OReadWriteDiskCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OSegmentedReadWriteDiskCache;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OWOWCache;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 import com.orientechnologies.orient.core.metadata.OMetadataDefault;
@@ -79,6 +93,7 @@ import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.ORecordCallback;
 import com.orientechnologies.orient.core.storage.ORecordMetadata;
 import com.orientechnologies.orient.core.storage.OStorageOperationResult;
+import com.orientechnologies.orient.core.storage.fs.OPageCompressedFile;
 import com.orientechnologies.orient.core.storage.impl.local.ODataLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageConfigurationSegment;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
@@ -102,6 +117,7 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OPagin
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALPageBrokenException;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALRecordsFactory;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionAbstract;
@@ -139,13 +155,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private static final int                      ONE_KB                               = 1024;
 
+  private static final int                      INCREMENTAL_BACKUP_MAGIC             = 0x4F494243;
+  private static final int                      INCREMENTAL_BACKUP_VERSION           = 1;
+  private static final String                   INCREMENTAL_BACKUP_LSN_FILE          = "incremental_backup.lsn";
+
   private static String[]                       ALL_FILE_EXTENSIONS                  = { ".ocf", ".pls", ".pcl", ".oda", ".odh",
       ".otx", ".ocs", ".oef", ".oem", ".oet", OWriteAheadLog.WAL_SEGMENT_EXTENSION, OWriteAheadLog.MASTER_RECORD_EXTENSION,
       OLocalHashTableIndexEngine.BUCKET_FILE_EXTENSION, OLocalHashTableIndexEngine.METADATA_FILE_EXTENSION,
       OLocalHashTableIndexEngine.TREE_FILE_EXTENSION, OLocalHashTableIndexEngine.NULL_BUCKET_FILE_EXTENSION,
       OClusterPositionMap.DEF_EXTENSION, OSBTreeIndexEngine.DATA_FILE_EXTENSION, OWOWCache.NAME_ID_MAP_EXTENSION,
       OIndexRIDContainer.INDEX_FILE_EXTENSION, OSBTreeCollectionManagerShared.DEFAULT_EXTENSION,
-      OSBTreeIndexEngine.NULL_BUCKET_FILE_EXTENSION                                 };
+      OSBTreeIndexEngine.NULL_BUCKET_FILE_EXTENSION, OWriteAheadLog.SPARE_SEGMENT_EXTENSION };
 
   private final int                             DELETE_MAX_RETRIES;
   private final int                             DELETE_WAIT_TIME;
@@ -163,6 +183,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
   private ScheduledExecutorService              fuzzyCheckpointExecutor;
   private ExecutorService                       checkpointExecutor;
+  private final Object                          checkpointLock                       = new Object();
+  private volatile OLogSequenceNumber           lastRedoLsn;
+  private volatile long                         lastFuzzyCheckpointTime;
 
   private volatile boolean                      wereDataRestoredAfterOpen            = false;
 
@@ -260,6 +283,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       }
 
       restoreIfNeeded();
+      startFuzzyCheckpoints();
       dirtyFlag.clearDirty();
     } catch (Exception e) {
       close(true, false);
@@ -325,6 +349,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       if (OGlobalConfiguration.STORAGE_MAKE_FULL_CHECKPOINT_AFTER_CREATE.getValueAsBoolean())
         makeFullCheckpoint();
 
+      startFuzzyCheckpoints();
+
     } catch (OStorageException e) {
       close();
       throw e;
@@ -1331,29 +1357,495 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     modificationLock.allowModifications();
   }
 
+  /**
+   * Writes incremental backup of storage. Only pages which were changed after given LSN are written, changes which are done during
+   * backup are restored from part of WAL which is written at the end of backup. Writers are blocked only twice for a short time: at
+   * the start of backup, to find LSN starting from which WAL is shipped, and at the end of backup, to find its last LSN and copy
+   * small files which are not managed by disk cache. Changes of components which are not logged in WAL are not tracked, so such
+   * files are shipped only by full backup.
+   *
+   * @param out
+   *          Stream to which backup is written, it is not closed.
+   * @param fromLsn
+   *          LSN returned by previous incremental backup, or <code>null</code> to make full backup which is used as a base for
+   *          further increments.
+   * @param listener
+   *          Listener which is notified about progress of backup, may be <code>null</code>.
+   * @return LSN which should be passed to the next incremental backup.
+   * @see #incrementalRestore(InputStream, OCommandOutputListener)
+   */
+  public OLogSequenceNumber incrementalBackup(final OutputStream out, final OLogSequenceNumber fromLsn,
+      final OCommandOutputListener listener) throws IOException {
+    checkOpeness();
+
+    if (writeAheadLog == null)
+      throw new OStorageException("Incremental backup of storage '" + name
+          + "' is not possible because write ahead logging is switched off");
+
+    final long timer = Orient.instance().getProfiler().startChrono();
+
+    final OLogSequenceNumber startLsn;
+    modificationLock.prohibitModifications();
+    try {
+      startLsn = atomicOperationsManager.getActiveOperationsStartLSN();
+    } finally {
+      modificationLock.allowModifications();
+    }
+
+    final int pageSize = OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB;
+
+    final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(out);
+    final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(gzipOutputStream));
+
+    output.writeInt(INCREMENTAL_BACKUP_MAGIC);
+    output.writeInt(INCREMENTAL_BACKUP_VERSION);
+    output.writeInt(pageSize);
+    writeLsn(output, fromLsn);
+    writeLsn(output, startLsn);
+
+    long pages = 0;
+    final byte[] content = new byte[pageSize];
+    for (Map.Entry<String, Long> file : diskCache.files().entrySet()) {
+      final long fileId = file.getValue();
+      if (!diskCache.isOpen(fileId))
+        continue;
+
+      output.writeBoolean(true);
+      output.writeUTF(file.getKey());
+      output.writeUTF(diskCache.getPageCompression(fileId));
+
+      final long filledUpTo = diskCache.getFilledUpTo(fileId);
+      output.writeLong(filledUpTo);
+
+      for (long pageIndex = 0; pageIndex < filledUpTo; pageIndex++) {
+        final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
+        final OCachePointer cachePointer = cacheEntry.getCachePointer();
+        cachePointer.acquireSharedLock();
+        try {
+          final OLogSequenceNumber pageLsn = ODurablePage.getLogSequenceNumberFromPage(cachePointer.getDataPointer());
+          if (fromLsn != null && pageLsn.compareTo(fromLsn) <= 0)
+            continue;
+
+          cachePointer.getDataPointer().get(0, content, 0, pageSize);
+        } finally {
+          cachePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
+
+        output.writeLong(pageIndex);
+        output.write(content);
+        pages++;
+      }
+
+      output.writeLong(-1);
+
+      if (listener != null)
+        listener.onMessage("\n- pages of file " + file.getKey() + " were written");
+    }
+
+    output.writeBoolean(false);
+
+    final OLogSequenceNumber endLsn;
+    modificationLock.prohibitModifications();
+    try {
+      lock.acquireSharedLock();
+      try {
+        endLsn = writeAheadLog.end();
+        writeAheadLog.flush();
+
+        writeLsn(output, endLsn);
+        writeStorageFiles(output);
+      } finally {
+        lock.releaseSharedLock();
+      }
+    } finally {
+      modificationLock.allowModifications();
+    }
+
+    final long records = writeWALRecords(output, startLsn, endLsn);
+
+    output.flush();
+    gzipOutputStream.finish();
+
+    if (listener != null)
+      listener.onMessage("\n- " + pages + " pages and " + records + " WAL records were written, backup LSN is " + endLsn);
+
+    Orient.instance().getProfiler()
+        .stopChrono("db." + name + ".incrementalBackup", "Incremental backup of database", timer, "db.*.incrementalBackup");
+
+    return endLsn;
+  }
+
+  /**
+   * Applies incremental backup to the storage. Storage should contain full backup and all increments which precede given one.
+   * Storage is closed before restore and should be opened after it.
+   *
+   * @param in
+   *          Stream which contains backup created by {@link #incrementalBackup(OutputStream, OLogSequenceNumber,
+   *          OCommandOutputListener)}.
+   * @param listener
+   *          Listener which is notified about progress of restore, may be <code>null</code>.
+   * @return last LSN of applied backup.
+   */
+  public OLogSequenceNumber incrementalRestore(final InputStream in, final OCommandOutputListener listener) throws IOException {
+    if (!isClosed())
+      close(true, false);
+
+    lock.acquireExclusiveLock();
+    try {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+
+      if (input.readInt() != INCREMENTAL_BACKUP_MAGIC)
+        throw new OStorageException("Stream does not contain incremental backup of storage");
+
+      final int version = input.readInt();
+      if (version != INCREMENTAL_BACKUP_VERSION)
+        throw new OStorageException("Incremental backup has unsupported version " + version);
+
+      final int pageSize = input.readInt();
+      if (pageSize != OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB)
+        throw new OStorageException("Incremental backup was created with page size " + pageSize + " but storage '" + name
+            + "' uses page size " + OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB);
+
+      final File storageDir = new File(storagePath);
+      if (!storageDir.exists() && !storageDir.mkdirs())
+        throw new OStorageException("Can not create directories for the path " + storagePath);
+
+      final File lsnFile = new File(storageDir, INCREMENTAL_BACKUP_LSN_FILE);
+      final OLogSequenceNumber fromLsn = readLsn(input);
+      if (fromLsn != null) {
+        final OLogSequenceNumber restoredLsn = lsnFile.exists() ? readLsnFile(lsnFile) : null;
+        if (!fromLsn.equals(restoredLsn))
+          throw new OStorageException("Incremental backup starts from LSN " + fromLsn + " but storage '" + name
+              + "' was restored till LSN " + restoredLsn);
+      }
+
+      readLsn(input);
+
+      if (componentsFactory == null)
+        componentsFactory = new OCurrentStorageComponentsFactory(configuration);
+
+      // WAL of base backup is not needed, only changes shipped with increment are replayed
+      new OWriteAheadLog(this).delete();
+      writeAheadLog = new OWriteAheadLog(this);
+      try {
+        initDiskCache();
+        final long pages = restorePages(input, pageSize);
+        diskCache.close();
+
+        if (listener != null)
+          listener.onMessage("\n- " + pages + " pages were restored");
+
+        final OLogSequenceNumber endLsn = readLsn(input);
+        restoreStorageFiles(input, storageDir);
+
+        initDiskCache();
+        final long records = restoreWALRecords(input);
+        diskCache.close();
+
+        if (listener != null)
+          listener.onMessage("\n- " + records + " WAL records were applied, backup LSN is " + endLsn);
+
+        writeLsnFile(lsnFile, endLsn);
+
+        dirtyFlag.create();
+        dirtyFlag.clearDirty();
+        dirtyFlag.close();
+
+        return endLsn;
+      } finally {
+        writeAheadLog.delete();
+        writeAheadLog = null;
+      }
+    } finally {
+      lock.releaseExclusiveLock();
+    }
+  }
+
+  private void writeStorageFiles(DataOutputStream output) throws IOException {
+    final Set<String> pagedFiles = diskCache.files().keySet();
+    output.writeInt(pagedFiles.size());
+    for (String fileName : pagedFiles)
+      output.writeUTF(fileName);
+
+    final File[] storageFiles = new File(storagePath).listFiles();
+    if (storageFiles == null)
+      throw new OStorageException("Can not list files of storage '" + name + "'");
+
+    final byte[] buffer = new byte[64 * ONE_KB];
+    for (File storageFile : storageFiles) {
+      final String fileName = storageFile.getName();
+      if (storageFile.isDirectory() || pagedFiles.contains(fileName) || isNotCopiedByBackup(fileName))
+        continue;
+
+      output.writeBoolean(true);
+      output.writeUTF(fileName);
+      output.writeLong(storageFile.length());
+
+      final FileInputStream fileInputStream = new FileInputStream(storageFile);
+      try {
+        long bytesLeft = storageFile.length();
+        while (bytesLeft > 0) {
+          final int bytesRead = fileInputStream.read(buffer, 0, (int) Math.min(buffer.length, bytesLeft));
+          if (bytesRead < 0)
+            throw new OStorageException("File " + storageFile + " was truncated during backup");
+
+          output.write(buffer, 0, bytesRead);
+          bytesLeft -= bytesRead;
+        }
+      } finally {
+        fileInputStream.close();
+      }
+    }
+
+    output.writeBoolean(false);
+  }
+
+  private long writeWALRecords(DataOutputStream output, OLogSequenceNumber startLsn, OLogSequenceNumber endLsn) throws IOException {
+    long records = 0;
+
+    final OLogSequenceNumber begin = writeAheadLog.begin();
+    if (startLsn != null && begin != null && begin.compareTo(startLsn) > 0)
+      throw new OStorageException("WAL of storage '" + name + "' was truncated during backup, increase "
+          + OGlobalConfiguration.WAL_MAX_SIZE.getKey());
+
+    OLogSequenceNumber lsn = startLsn != null ? startLsn : begin;
+    while (lsn != null && endLsn != null && lsn.compareTo(endLsn) <= 0) {
+      final OWALRecord walRecord = writeAheadLog.read(lsn);
+      if (walRecord instanceof OOperationUnitRecord) {
+        final byte[] record = OWALRecordsFactory.INSTANCE.toStream(walRecord);
+
+        output.writeBoolean(true);
+        output.writeInt(record.length);
+        output.write(record);
+        records++;
+      }
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    output.writeBoolean(false);
+    return records;
+  }
+
+  private long restorePages(DataInputStream input, int pageSize) throws IOException {
+    long pages = 0;
+    final byte[] content = new byte[pageSize];
+
+    while (input.readBoolean()) {
+      final String fileName = input.readUTF();
+      final String pageCompression = input.readUTF();
+      final long filledUpTo = input.readLong();
+
+      final long fileId = diskCache.openFile(fileName, pageCompression);
+      if (filledUpTo == 0)
+        diskCache.truncateFile(fileId);
+
+      long pageIndex = input.readLong();
+      while (pageIndex >= 0) {
+        input.readFully(content);
+
+        final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
+        final OCachePointer cachePointer = cacheEntry.getCachePointer();
+        cachePointer.acquireExclusiveLock();
+        try {
+          cachePointer.getDataPointer().set(0, content, 0, pageSize);
+          cacheEntry.markDirty();
+        } finally {
+          cachePointer.releaseExclusiveLock();
+          diskCache.release(cacheEntry);
+        }
+
+        pages++;
+        pageIndex = input.readLong();
+      }
+
+      if (filledUpTo > 0 && diskCache.getFilledUpTo(fileId) < filledUpTo) {
+        final OCacheEntry cacheEntry = diskCache.load(fileId, filledUpTo - 1, false);
+        diskCache.release(cacheEntry);
+      }
+    }
+
+    return pages;
+  }
+
+  private void restoreStorageFiles(DataInputStream input, File storageDir) throws IOException {
+    final Set<String> backupFiles = new HashSet<String>();
+
+    final int pagedFiles = input.readInt();
+    for (int i = 0; i < pagedFiles; i++) {
+      final String fileName = input.readUTF();
+      backupFiles.add(fileName);
+      backupFiles.add(fileName + OPageCompressedFile.TABLE_EXTENSION);
+    }
+
+    final byte[] buffer = new byte[64 * ONE_KB];
+    while (input.readBoolean()) {
+      final String fileName = input.readUTF();
+      backupFiles.add(fileName);
+
+      final FileOutputStream fileOutputStream = new FileOutputStream(new File(storageDir, fileName));
+      try {
+        long bytesLeft = input.readLong();
+        while (bytesLeft > 0) {
+          final int bytesToCopy = (int) Math.min(buffer.length, bytesLeft);
+          input.readFully(buffer, 0, bytesToCopy);
+          fileOutputStream.write(buffer, 0, bytesToCopy);
+          bytesLeft -= bytesToCopy;
+        }
+      } finally {
+        fileOutputStream.close();
+      }
+    }
+
+    // files which were deleted after previous backup
+    final File[] storageFiles = storageDir.listFiles();
+    if (storageFiles == null)
+      throw new OStorageException("Can not list files of storage '" + name + "'");
+
+    for (File storageFile : storageFiles) {
+      final String fileName = storageFile.getName();
+      if (!storageFile.isDirectory() && !backupFiles.contains(fileName) && !isNotCopiedByBackup(fileName)
+          && !storageFile.delete())
+        throw new OStorageException("Can not delete file " + storageFile);
+    }
+  }
+
+  private long restoreWALRecords(DataInputStream input) throws IOException {
+    long records = 0;
+    OLogSequenceNumber firstLsn = null;
+
+    while (input.readBoolean()) {
+      final byte[] record = new byte[input.readInt()];
+      input.readFully(record);
+
+      final OLogSequenceNumber lsn = writeAheadLog.log(OWALRecordsFactory.INSTANCE.fromStream(record));
+      if (firstLsn == null)
+        firstLsn = lsn;
+
+      records++;
+    }
+
+    if (firstLsn != null) {
+      writeAheadLog.flush();
+      restoreFrom(firstLsn);
+    }
+
+    return records;
+  }
+
+  private static boolean isNotCopiedByBackup(String fileName) {
+    return fileName.endsWith(OWriteAheadLog.WAL_SEGMENT_EXTENSION) || fileName.endsWith(OWriteAheadLog.MASTER_RECORD_EXTENSION)
+        || fileName.endsWith(OWriteAheadLog.SPARE_SEGMENT_EXTENSION) || fileName.endsWith(OPageCompressedFile.TABLE_EXTENSION)
+        || fileName.equals("dirty.fl") || fileName.equals(INCREMENTAL_BACKUP_LSN_FILE);
+  }
+
+  private static void writeLsn(DataOutputStream output, OLogSequenceNumber lsn) throws IOException {
+    output.writeBoolean(lsn != null);
+    if (lsn != null) {
+      output.writeLong(lsn.getSegment());
+      output.writeLong(lsn.getPosition());
+    }
+  }
+
+  private static OLogSequenceNumber readLsn(DataInputStream input) throws IOException {
+    if (!input.readBoolean())
+      return null;
+
+    final long segment = input.readLong();
+    final long position = input.readLong();
+    return new OLogSequenceNumber(segment, position);
+  }
+
+  private static OLogSequenceNumber readLsnFile(File lsnFile) throws IOException {
+    final DataInputStream input = new DataInputStream(new FileInputStream(lsnFile));
+    try {
+      return readLsn(input);
+    } finally {
+      input.close();
+    }
+  }
+
+  private static void writeLsnFile(File lsnFile, OLogSequenceNumber lsn) throws IOException {
+    final DataOutputStream output = new DataOutputStream(new FileOutputStream(lsnFile));
+    try {
+      writeLsn(output, lsn);
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * Makes fuzzy checkpoint which does not block writers. Pages which became dirty long ago are flushed in background by threads of
+   * write cache, so redo point, starting from which data are restored after crash, is moved forward and amount of WAL which should
+   * be replayed is kept below {@link OGlobalConfiguration#WAL_FUZZY_CHECKPOINT_MAX_LAG}. Redo point is the minimal LSN among start
+   * LSNs of active atomic operations and LSNs from which changes of not flushed pages are logged.
+   */
   public void makeFuzzyCheckpoint() {
-    // if (writeAheadLog == null)
-    // return;
-    //
-    // try {
-    // lock.acquireExclusiveLock();
-    // try {
-    // writeAheadLog.flush();
-    //
-    // writeAheadLog.logFuzzyCheckPointStart();
-    //
-    // diskCache.forceSyncStoredChanges();
-    // diskCache.logDirtyPagesTable();
-    //
-    // writeAheadLog.logFuzzyCheckPointEnd();
-    //
-    // writeAheadLog.flush();
-    // } finally {
-    // lock.releaseExclusiveLock();
-    // }
-    // } catch (IOException ioe) {
-    // throw new OStorageException("Error during fuzzy checkpoint creation for storage " + name, ioe);
-    // }
+    if (writeAheadLog == null)
+      return;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    final long timer = profiler.startChrono();
+    try {
+      synchronized (checkpointLock) {
+        if (status != STATUS.OPEN)
+          return;
+
+        final OLogSequenceNumber end = writeAheadLog.end();
+        if (end == null || (lastRedoLsn != null && lastRedoLsn.compareTo(end) >= 0))
+          return;
+
+        // pages are flushed till the point which keeps a quarter of maximum lag in WAL, and at least all pages which were dirty
+        // during previous checkpoint, so checkpoints which are made by time interval still move redo point forward
+        final long maxLag = OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_MAX_LAG.getValueAsLong() * 1024 * 1024;
+        OLogSequenceNumber flushLsn = writeAheadLog.lsnBeforeEnd(maxLag / 4);
+        if (lastRedoLsn != null && (flushLsn == null || flushLsn.compareTo(lastRedoLsn) < 0))
+          flushLsn = lastRedoLsn;
+
+        if (flushLsn != null)
+          diskCache.flushTillLsn(flushLsn);
+
+        // active operations are checked before dirty pages, because pages of operation which is completed between these calls are
+        // already in write cache
+        OLogSequenceNumber redoLsn = atomicOperationsManager.getActiveOperationsStartLSN();
+        final OLogSequenceNumber dirtyLsn = diskCache.getMinDirtyLsn();
+        if (redoLsn == null || (dirtyLsn != null && dirtyLsn.compareTo(redoLsn) < 0))
+          redoLsn = dirtyLsn;
+
+        diskCache.forceSyncStoredChanges();
+
+        writeAheadLog.logFuzzyCheckPointStart(redoLsn);
+        writeAheadLog.logFuzzyCheckPointEnd();
+        writeAheadLog.flush();
+
+        lastRedoLsn = redoLsn;
+        lastFuzzyCheckpointTime = System.currentTimeMillis();
+      }
+    } catch (IOException ioe) {
+      throw new OStorageException("Error during fuzzy checkpoint creation for storage " + name, ioe);
+    } finally {
+      if (profiler.isRecording())
+        profiler.stopChrono(profiler.getDatabaseMetric(name, "wal.fuzzyCheckpoint"), "Time of fuzzy checkpoint creation", timer,
+            profiler.getDatabaseMetric(null, "wal.fuzzyCheckpoint"));
+    }
+  }
+
+  /**
+   * @return amount of WAL bytes which will be replayed during data restore if storage crashes now.
+   */
+  public long getCheckpointLag() throws IOException {
+    if (writeAheadLog == null)
+      return 0;
+
+    OLogSequenceNumber redoLsn = lastRedoLsn;
+    if (redoLsn == null)
+      redoLsn = writeAheadLog.getLastCheckpoint();
+
+    if (redoLsn == null)
+      return writeAheadLog.size();
+
+    return writeAheadLog.bytesSince(redoLsn);
   }
 
   public void makeFullCheckpoint() {
@@ -1365,19 +1857,22 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
       lock.acquireSharedLock();
       try {
-        writeAheadLog.flush();
+        synchronized (checkpointLock) {
+          writeAheadLog.flush();
 
-        if (configuration != null)
-          configuration.synch();
+          if (configuration != null)
+            configuration.synch();
 
-        writeAheadLog.logFullCheckpointStart();
+          final OLogSequenceNumber checkpointLsn = writeAheadLog.logFullCheckpointStart();
 
-        diskCache.flushBuffer();
+          diskCache.flushBuffer();
 
-        writeAheadLog.logFullCheckpointEnd();
-        writeAheadLog.flush();
+          writeAheadLog.logFullCheckpointEnd();
+          writeAheadLog.flush();
 
-        dirtyFlag.clearDirty();
+          lastRedoLsn = checkpointLsn;
+          dirtyFlag.clearDirty();
+        }
       } catch (IOException ioe) {
         throw new OStorageException("Error during checkpoint creation for storage " + name, ioe);
       } finally {
@@ -1416,6 +1911,20 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     return diskCache;
   }
 
+  /**
+   * Files of paginated clusters use page compression recorded in configuration of cluster.
+   */
+  @Override
+  public String getPageCompression(String fileName) {
+    for (OStorageClusterConfiguration clusterConfig : configuration.clusters)
+      if (clusterConfig instanceof OStoragePaginatedClusterConfiguration
+          && (fileName.equals(clusterConfig.getName() + OPaginatedCluster.DEF_EXTENSION) || fileName.equals(clusterConfig.getName()
+              + OClusterPositionMap.DEF_EXTENSION)))
+        return ((OStoragePaginatedClusterConfiguration) clusterConfig).pageCompression;
+
+    return super.getPageCompression(fileName);
+  }
+
   public void freeze(boolean throwException, int clusterId) {
     final OCluster cluster = getClusterById(clusterId);
 
@@ -1547,6 +2056,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         public Thread newThread(Runnable r) {
           Thread thread = new Thread(r);
           thread.setDaemon(true);
+          thread.setName("OrientDB Fuzzy Checkpoint Task (" + name + ")");
           return thread;
         }
       });
@@ -1562,34 +2072,77 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
       writeAheadLog = new OWriteAheadLog(this);
 
-      final int fuzzyCheckpointDelay = OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_INTERVAL.getValueAsInteger();
-      fuzzyCheckpointExecutor.scheduleWithFixedDelay(new Runnable() {
-        @Override
-        public void run() {
-          try {
-            makeFuzzyCheckpoint();
-          } catch (Throwable e) {
-            OLogManager.instance().error(this, "Error during background FUZZY checkpoint creation for storage " + name, e);
-          }
-
-        }
-      }, fuzzyCheckpointDelay, fuzzyCheckpointDelay, TimeUnit.SECONDS);
+      lastRedoLsn = null;
     } else
       writeAheadLog = null;
 
+    initDiskCache();
+  }
+
+  private void initDiskCache() throws IOException {
     long diskCacheSize = OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsLong() * 1024 * 1024;
     long writeCacheSize = (long) Math.floor((((double) OGlobalConfiguration.DISK_WRITE_CACHE_PART.getValueAsInteger()) / 100.0)
         * diskCacheSize);
     long readCacheSize = diskCacheSize - writeCacheSize;
 
-    diskCache = new OReadWriteDiskCache(name, readCacheSize, writeCacheSize,
-        OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
-        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
-        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true);
+    final int diskCacheSegments = OGlobalConfiguration.DISK_CACHE_SEGMENTS.getValueAsInteger();
+    if (diskCacheSegments == 1)
+      diskCache = new OReadWriteDiskCache(name, readCacheSize, writeCacheSize,
+          OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true,
+          OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.getValueAsInteger());
+    else
+      diskCache = new OSegmentedReadWriteDiskCache(name, readCacheSize, writeCacheSize,
+          OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true,
+          diskCacheSegments, OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.getValueAsInteger());
 
     atomicOperationsManager = new OAtomicOperationsManager(writeAheadLog);
   }
 
+  /**
+   * Schedules background fuzzy checkpoints, they are started only after data restore because pages restored from WAL are flushed
+   * by full checkpoint.
+   */
+  private void startFuzzyCheckpoints() {
+    if (writeAheadLog == null)
+      return;
+
+    lastFuzzyCheckpointTime = System.currentTimeMillis();
+
+    // checkpoint is made either when interval between checkpoints is passed or when half of maximum checkpoint lag is reached
+    final long fuzzyCheckpointInterval = OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_INTERVAL.getValueAsLong() * 1000;
+    fuzzyCheckpointExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final long maxLag = OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_MAX_LAG.getValueAsLong() * 1024 * 1024;
+          if (System.currentTimeMillis() - lastFuzzyCheckpointTime >= fuzzyCheckpointInterval || getCheckpointLag() >= maxLag / 2)
+            makeFuzzyCheckpoint();
+        } catch (Throwable e) {
+          OLogManager.instance().error(this, "Error during background FUZZY checkpoint creation for storage " + name, e);
+        }
+
+      }
+    }, 1, 1, TimeUnit.SECONDS);
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.registerHookValue(profiler.getDatabaseMetric(name, "wal.checkpointLag"),
+        "Amount of WAL bytes which will be replayed during data restore after crash", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            try {
+              return getCheckpointLag();
+            } catch (Exception e) {
+              return null;
+            }
+          }
+        }, profiler.getDatabaseMetric(null, "wal.checkpointLag"));
+  }
+
   private void restoreIfNeeded() throws IOException {
     if (dirtyFlag.isDirty()) {
       OLogManager.instance().warn(this, "Storage " + name + " was not closed properly. Will try to restore from write ahead log.");
@@ -1757,6 +2310,16 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
   private void restoreFromFuzzyCheckPoint(OFuzzyCheckpointStartRecord checkPointRecord) throws IOException {
     OLogManager.instance().info(this, "Data restore procedure from FUZZY checkpoint is started.");
+    if (checkPointRecord.getRedoLsn() != null) {
+      OLogSequenceNumber startLSN = checkPointRecord.getRedoLsn();
+      if (startLSN.compareTo(writeAheadLog.begin()) < 0)
+        startLSN = writeAheadLog.begin();
+
+      OLogManager.instance().info(this, "Restore is performed from LSN %s", startLSN);
+      restoreFrom(startLSN);
+      return;
+    }
+
     OLogSequenceNumber dirtyPagesLSN = writeAheadLog.next(checkPointRecord.getLsn());
     ODirtyPagesRecord dirtyPagesRecord = (ODirtyPagesRecord) writeAheadLog.read(dirtyPagesLSN);
     OLogSequenceNumber startLSN;
@@ -1810,39 +2373,69 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     Map<OOperationUnitId, List<OLogSequenceNumber>> operationUnits = new HashMap<OOperationUnitId, List<OLogSequenceNumber>>();
     List<OWALRecord> batch = new ArrayList<OWALRecord>();
 
+    final OWALPageChangesRestorer restorer = new OWALPageChangesRestorer(diskCache, name,
+        OGlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger());
+    OLogManager.instance().info(this, "Page changes will be applied by %d threads.", restorer.getThreads());
+
+    final long startTime = System.currentTimeMillis();
+
     try {
-      while (lsn != null) {
-        OWALRecord walRecord = writeAheadLog.read(lsn);
-        batch.add(walRecord);
+      try {
+        while (lsn != null) {
+          OWALRecord walRecord = writeAheadLog.read(lsn);
+          batch.add(walRecord);
+
+          if (lowMemoryFlag.get()) {
+            OLogManager.instance().info(this, "Heap memory is low apply batch of operations are read from WAL.");
+            recordsProcessed = restoreWALBatch(batch, operationUnits, recordsProcessed, reportInterval, restorer, startTime);
+            batch = new ArrayList<OWALRecord>();
+            lowMemoryFlag.set(false);
+          }
 
-        if (lowMemoryFlag.get()) {
-          OLogManager.instance().info(this, "Heap memory is low apply batch of operations are read from WAL.");
-          recordsProcessed = restoreWALBatch(batch, operationUnits, recordsProcessed, reportInterval);
-          batch = new ArrayList<OWALRecord>();
-          lowMemoryFlag.set(false);
+          lsn = writeAheadLog.next(lsn);
         }
 
-        lsn = writeAheadLog.next(lsn);
+        if (!batch.isEmpty()) {
+          OLogManager.instance().info(this, "Apply last batch of operations are read from WAL.");
+          recordsProcessed = restoreWALBatch(batch, operationUnits, recordsProcessed, reportInterval, restorer, startTime);
+          batch = null;
+        }
+      } catch (OWALPageBrokenException e) {
+        OLogManager.instance().error(this,
+            "Data restore was paused because broken WAL page was found. The rest of changes will be rolled back.");
       }
 
-      if (!batch.isEmpty()) {
-        OLogManager.instance().info(this, "Apply last batch of operations are read from WAL.");
-        restoreWALBatch(batch, operationUnits, recordsProcessed, reportInterval);
-        batch = null;
-      }
-    } catch (OWALPageBrokenException e) {
-      OLogManager.instance().error(this,
-          "Data restore was paused because broken WAL page was found. The rest of changes will be rolled back.");
+      restorer.waitTillApplied();
+    } finally {
+      restorer.shutdown();
     }
 
+    reportRestoreThroughput(recordsProcessed, restorer.getAppliedPages(), startTime);
+
     rollbackAllUnfinishedWALOperations(operationUnits);
     operationUnits.clear();
 
     Orient.instance().getMemoryWatchDog().removeListener(listener);
   }
 
+  private void reportRestoreThroughput(long recordsProcessed, long pagesRestored, long startTime) {
+    final long duration = Math.max(System.currentTimeMillis() - startTime, 1);
+
+    OLogManager.instance().info(this,
+        "%d WAL records were processed and %d page changes were applied in %d ms (%d records/s, %d pages/s)", recordsProcessed,
+        pagesRestored, duration, recordsProcessed * 1000 / duration, pagesRestored * 1000 / duration);
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.updateCounter(profiler.getDatabaseMetric(name, "wal.restore.records"),
+        "Number of WAL records processed during data restore", recordsProcessed, profiler.getDatabaseMetric(null, "wal.restore.records"));
+    profiler.updateCounter(profiler.getDatabaseMetric(name, "wal.restore.pages"),
+        "Number of page changes applied during data restore", pagesRestored, profiler.getDatabaseMetric(null, "wal.restore.pages"));
+    profiler.stopChrono(profiler.getDatabaseMetric(name, "wal.restore"), "Time of data restore from WAL", startTime,
+        profiler.getDatabaseMetric(null, "wal.restore"));
+  }
+
   private long restoreWALBatch(List<OWALRecord> batch, Map<OOperationUnitId, List<OLogSequenceNumber>> operationUnits,
-      long recordsProcessed, int reportInterval) throws IOException {
+      long recordsProcessed, int reportInterval, OWALPageChangesRestorer restorer, long startTime) throws IOException {
     for (OWALRecord walRecord : batch) {
       final OLogSequenceNumber lsn = walRecord.getLsn();
 
@@ -1855,7 +2448,11 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         OOperationUnitId unitId = operationUnitRecord.getOperationUnitId();
         List<OLogSequenceNumber> records = operationUnits.get(unitId);
 
-        assert records != null;
+        if (records == null) {
+          // operation was started before redo point of fuzzy checkpoint, its changes are already flushed to the data files
+          recordsProcessed++;
+          continue;
+        }
 
         records.add(lsn);
 
@@ -1868,20 +2465,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
           if (!diskCache.isOpen(fileId))
             diskCache.openFile(fileId);
 
-          final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
-          final OCachePointer cachePointer = cacheEntry.getCachePointer();
-          cachePointer.acquireExclusiveLock();
-          try {
-            ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
-            durablePage.restoreChanges(updatePageRecord.getChanges());
-            durablePage.setLsn(lsn);
-
-            cacheEntry.markDirty();
-          } finally {
-            cachePointer.releaseExclusiveLock();
-            diskCache.release(cacheEntry);
-          }
-
+          restorer.apply(updatePageRecord);
         } else if (operationUnitRecord instanceof OFileCreatedCreatedWALRecord) {
 
           final OFileCreatedCreatedWALRecord fileCreatedCreatedRecord = (OFileCreatedCreatedWALRecord) operationUnitRecord;
@@ -1890,8 +2474,11 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         } else if (operationUnitRecord instanceof OAtomicUnitEndRecord) {
           final OAtomicUnitEndRecord atomicUnitEndRecord = (OAtomicUnitEndRecord) walRecord;
 
-          if (atomicUnitEndRecord.isRollback())
+          if (atomicUnitEndRecord.isRollback()) {
+            // reverted changes should be applied on top of already restored ones
+            restorer.waitTillApplied();
             undoOperation(records);
+          }
 
           operationUnits.remove(unitId);
         } else {
@@ -1903,11 +2490,15 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         OLogManager.instance().warn(this, "Record %s will be skipped during data restore.", walRecord);
 
       recordsProcessed++;
-      if (reportInterval > 0 && recordsProcessed % reportInterval == 0)
-        OLogManager.instance().info(this, "%d operations were processed, current LSN is %s last LSN is %s", recordsProcessed, lsn,
-            writeAheadLog.end());
+      if (reportInterval > 0 && recordsProcessed % reportInterval == 0) {
+        final long duration = Math.max(System.currentTimeMillis() - startTime, 1);
+        OLogManager.instance().info(this,
+            "%d operations were processed (%d records/s, %d pages/s), current LSN is %s last LSN is %s", recordsProcessed,
+            recordsProcessed * 1000 / duration, restorer.getAppliedPages() * 1000 / duration, lsn, writeAheadLog.end());
+      }
     }
 
+    restorer.waitTillApplied();
     return recordsProcessed;
   }
 
@@ -1957,6 +2548,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         if (!checkpointExecutor.awaitTermination(OGlobalConfiguration.WAL_FULL_CHECKPOINT_SHUTDOWN_TIMEOUT.getValueAsInteger(),
             TimeUnit.SECONDS))
           throw new OStorageException("Can not terminate full checkpoint task");
+
+        final OProfilerMBean profiler = Orient.instance().getProfiler();
+        profiler.unregisterHookValue(profiler.getDatabaseMetric(name, "wal.checkpointLag"));
       }
 
       for (OCluster cluster : clusters)
@@ -159,20 +159,12 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     try {
       acquireExclusiveLock();
       try {
-        fileId = diskCache.openFile(name + DEF_EXTENSION);
-
-        startAtomicOperation();
-
-        initCusterState();
-
-        endAtomicOperation(false);
+        createFiles();
 
         if (config.root.clusters.size() <= config.id)
           config.root.clusters.add(config);
         else
           config.root.clusters.set(config.id, config);
-
-        clusterPositionMap.create();
       } finally {
         releaseExclusiveLock();
       }
@@ -181,22 +173,42 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     }
   }
 
+  private void createFiles() throws IOException {
+    fileId = diskCache.openFile(name + DEF_EXTENSION, config.pageCompression);
+
+    startAtomicOperation();
+
+    initCusterState();
+
+    endAtomicOperation(false);
+
+    clusterPositionMap.create(config.pageCompression);
+  }
+
   @Override
   public void open() throws IOException {
     externalModificationLock.requestModificationLock();
     try {
       acquireExclusiveLock();
       try {
-        fileId = diskCache.openFile(name + DEF_EXTENSION);
-        pinnedStateEntry = diskCache.load(fileId, 0, false);
+        fileId = diskCache.openFile(name + DEF_EXTENSION, config.pageCompression);
 
-        try {
-          diskCache.pinPage(pinnedStateEntry);
-        } finally {
-          diskCache.release(pinnedStateEntry);
+        if (diskCache.getFilledUpTo(fileId) == 0) {
+          // files of empty cluster were deleted by change of page compression which was interrupted before they were recreated
+          startAtomicOperation();
+          initCusterState();
+          endAtomicOperation(false);
+        } else {
+          pinnedStateEntry = diskCache.load(fileId, 0, false);
+
+          try {
+            diskCache.pinPage(pinnedStateEntry);
+          } finally {
+            diskCache.release(pinnedStateEntry);
+          }
         }
 
-        clusterPositionMap.open();
+        clusterPositionMap.open(config.pageCompression);
       } finally {
         releaseExclusiveLock();
       }
@@ -272,6 +284,9 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
         case COMPRESSION:
           setCompressionInternal(stringValue);
           break;
+        case PAGE_COMPRESSION:
+          setPageCompressionInternal(stringValue);
+          break;
         default:
           throw new IllegalArgumentException("Runtime change of attribute '" + attribute + " is not supported");
         }
@@ -295,6 +310,34 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
 
   }
 
+  private void setPageCompressionInternal(String stringValue) throws IOException {
+    try {
+      OCompressionFactory.INSTANCE.getCompression(stringValue);
+    } catch (IllegalArgumentException e) {
+      throw new OStorageException("Invalid value for " + OCluster.ATTRIBUTES.PAGE_COMPRESSION + " attribute. ", e);
+    }
+
+    if (stringValue.equals(config.pageCompression))
+      return;
+
+    // pages are not recompressed, so compression can be changed only if cluster contains nothing but state page
+    if (diskCache.getFilledUpTo(fileId) > 1)
+      throw new OStorageException(OCluster.ATTRIBUTES.PAGE_COMPRESSION + " can be changed only for empty or truncated cluster "
+          + name);
+
+    // files are recreated without WAL, so new compression is stored first: if storage crashes in the middle, existing files keep
+    // compression they were created with, and deleted files are recreated empty with new compression when cluster is opened
+    config.pageCompression = stringValue;
+    storageLocal.getConfiguration().update();
+
+    diskCache.deleteFile(fileId);
+    clusterPositionMap.delete();
+
+    createFiles();
+
+    storageLocal.scheduleFullCheckpoint();
+  }
+
   private void setRecordOverflowGrowFactorInternal(String stringValue) {
     try {
       float growFactor = Float.parseFloat(stringValue);
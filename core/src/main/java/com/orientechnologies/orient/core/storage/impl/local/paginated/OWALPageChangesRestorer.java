@@ -0,0 +1,232 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePointer;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
+
+/**
+ * Applies page changes which are read from WAL during data restore. Changes are partitioned between threads by page, so changes of
+ * the same page are applied in the order in which they were logged, while changes of different pages are applied concurrently.
+ *
+ * Records which are not page changes (file creation, rollback of atomic operation) depend on state of several pages, so
+ * {@link #waitTillApplied()} should be called before they are processed.
+ *
+ * If only single thread is requested, changes are applied by the thread which reads WAL.
+ */
+final class OWALPageChangesRestorer {
+  private static final int                  QUEUE_CAPACITY = 1024;
+
+  private final ODiskCache                  diskCache;
+  private final int                         threads;
+  private final List<BlockingQueue<Object>> queues;
+  private final ExecutorService             executor;
+
+  private final Object                      pendingMonitor = new Object();
+  private long                              pendingRecords;
+  private volatile Throwable                failure;
+
+  private final AtomicLong                  appliedPages   = new AtomicLong();
+
+  private static final Object               STOP           = new Object();
+
+  OWALPageChangesRestorer(ODiskCache diskCache, final String storageName, int threads) {
+    this.diskCache = diskCache;
+    this.threads = threads > 1 ? threads : 1;
+
+    if (this.threads == 1) {
+      queues = null;
+      executor = null;
+      return;
+    }
+
+    queues = new ArrayList<BlockingQueue<Object>>(this.threads);
+    executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+      private int counter;
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        thread.setName("OrientDB WAL Restore Task (" + storageName + ") #" + (counter++));
+        return thread;
+      }
+    });
+
+    for (int i = 0; i < this.threads; i++) {
+      final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_CAPACITY);
+      queues.add(queue);
+      executor.submit(new Worker(queue));
+    }
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public long getAppliedPages() {
+    return appliedPages.get();
+  }
+
+  public void apply(OUpdatePageRecord updatePageRecord) throws IOException {
+    if (executor == null) {
+      applyChanges(updatePageRecord);
+      return;
+    }
+
+    checkFailure();
+
+    synchronized (pendingMonitor) {
+      pendingRecords++;
+    }
+
+    final BlockingQueue<Object> queue = queues.get(partition(updatePageRecord.getFileId(), updatePageRecord.getPageIndex()));
+    try {
+      queue.put(updatePageRecord);
+    } catch (InterruptedException e) {
+      Thread.interrupted();
+      throw new OStorageException("Thread was interrupted during restore of data from WAL", e);
+    }
+  }
+
+  /**
+   * Blocks till all page changes passed to {@link #apply(OUpdatePageRecord)} are applied.
+   */
+  public void waitTillApplied() {
+    if (executor == null)
+      return;
+
+    synchronized (pendingMonitor) {
+      try {
+        while (pendingRecords > 0 && failure == null)
+          pendingMonitor.wait();
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        throw new OStorageException("Thread was interrupted during restore of data from WAL", e);
+      }
+    }
+
+    checkFailure();
+  }
+
+  public void shutdown() {
+    if (executor == null)
+      return;
+
+    for (BlockingQueue<Object> queue : queues) {
+      try {
+        queue.put(STOP);
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        break;
+      }
+    }
+
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+        OLogManager.instance().error(this, "WAL restore threads can not be stopped.");
+    } catch (InterruptedException e) {
+      Thread.interrupted();
+      OLogManager.instance().error(this, "Thread was interrupted during stop of WAL restore threads.");
+    }
+  }
+
+  private void applyChanges(OUpdatePageRecord updatePageRecord) throws IOException {
+    final OCacheEntry cacheEntry = diskCache.load(updatePageRecord.getFileId(), updatePageRecord.getPageIndex(), true);
+    final OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireExclusiveLock();
+    try {
+      ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
+      durablePage.restoreChanges(updatePageRecord.getChanges());
+      durablePage.setLsn(updatePageRecord.getLsn());
+
+      cacheEntry.markDirty();
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+
+    appliedPages.incrementAndGet();
+  }
+
+  private void checkFailure() {
+    final Throwable throwable = failure;
+    if (throwable != null)
+      throw new OStorageException("Error during restore of page changes from WAL", throwable);
+  }
+
+  private int partition(long fileId, long pageIndex) {
+    long hash = fileId * 0x9E3779B97F4A7C15L + pageIndex;
+    hash ^= hash >>> 32;
+    hash *= 0xC2B2AE3D27D4EB4FL;
+    hash ^= hash >>> 29;
+
+    return (int) ((hash & Long.MAX_VALUE) % threads);
+  }
+
+  private final class Worker implements Runnable {
+    private final BlockingQueue<Object> queue;
+
+    private Worker(BlockingQueue<Object> queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final Object record = queue.take();
+          if (record == STOP)
+            return;
+
+          try {
+            if (failure == null)
+              applyChanges((OUpdatePageRecord) record);
+          } catch (Throwable e) {
+            OLogManager.instance().error(this, "Error during restore of page changes from WAL", e);
+            failure = e;
+          } finally {
+            synchronized (pendingMonitor) {
+              pendingRecords--;
+              if (pendingRecords == 0 || failure != null)
+                pendingMonitor.notifyAll();
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+      }
+    }
+  }
+}
@@ -20,6 +20,8 @@ import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.*;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -32,6 +34,12 @@ public class OAtomicOperationsManager {
   private final OLockManager<Object, OAtomicOperationsManager> lockManager      = new OLockManager<Object, OAtomicOperationsManager>(
                                                                                     true, 300000);
 
+  /**
+   * Start LSNs of atomic operations which are not completed yet, together with amount of operations which hold each of them. Fuzzy
+   * checkpoint can not move redo point after any of them.
+   */
+  private final TreeMap<OLogSequenceNumber, Integer>           activeOperations = new TreeMap<OLogSequenceNumber, Integer>();
+
   public OAtomicOperationsManager(OWriteAheadLog writeAheadLog) {
     this.writeAheadLog = writeAheadLog;
   }
@@ -47,7 +55,11 @@ public class OAtomicOperationsManager {
     }
 
     final OOperationUnitId unitId = OOperationUnitId.generateId();
-    final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+    final OLogSequenceNumber lsn;
+    synchronized (activeOperations) {
+      lsn = writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+      retainOperation(lsn);
+    }
 
     operation = new OAtomicOperation(lsn, unitId);
     currentOperation.set(operation);
@@ -79,8 +91,13 @@ public class OAtomicOperationsManager {
       for (Object lockObject : operation.lockedObjects())
         lockManager.releaseLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE);
 
-      writeAheadLog.log(new OAtomicUnitEndRecord(operation.getOperationUnitId(), rollback));
+      final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitEndRecord(operation.getOperationUnitId(), rollback));
+      releaseOperation(operation.getStartLSN());
       currentOperation.set(null);
+
+      // locks are already released so other operations may join the same group commit
+      if (!rollback && writeAheadLog.isGroupCommit())
+        writeAheadLog.waitTillFlushed(lsn);
     }
 
     return operation;
@@ -97,4 +114,50 @@ public class OAtomicOperationsManager {
     lockManager.acquireLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE);
     operation.addLockedObject(lockObject);
   }
+
+  /**
+   * Prevents fuzzy checkpoint from moving redo point after start of given operation till {@link #releaseOperation(OLogSequenceNumber)}
+   * is called. It is used when changes of operation are reverted after operation is completed, because such changes are not logged.
+   *
+   * @param startLSN
+   *          LSN of start record of atomic operation.
+   */
+  public void retainOperation(OLogSequenceNumber startLSN) {
+    synchronized (activeOperations) {
+      final Integer counter = activeOperations.get(startLSN);
+      if (counter == null)
+        activeOperations.put(startLSN, 1);
+      else
+        activeOperations.put(startLSN, counter + 1);
+    }
+  }
+
+  public void releaseOperation(OLogSequenceNumber startLSN) {
+    synchronized (activeOperations) {
+      final Integer counter = activeOperations.get(startLSN);
+      assert counter != null;
+
+      if (counter == 1)
+        activeOperations.remove(startLSN);
+      else
+        activeOperations.put(startLSN, counter - 1);
+    }
+  }
+
+  /**
+   * @return LSN of start record of the oldest atomic operation which is not completed yet, or current end of WAL if there are no
+   *         such operations. All changes which are logged before returned LSN belong to completed operations.
+   */
+  public OLogSequenceNumber getActiveOperationsStartLSN() throws IOException {
+    if (writeAheadLog == null)
+      return null;
+
+    synchronized (activeOperations) {
+      final Map.Entry<OLogSequenceNumber, Integer> oldest = activeOperations.firstEntry();
+      if (oldest != null)
+        return oldest.getKey();
+
+      return writeAheadLog.end();
+    }
+  }
 }
@@ -16,6 +16,8 @@
 
 package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
 
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+
 /**
  * @author Andrey Lomakin
  * @since 30.04.13
@@ -23,6 +25,12 @@ package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
 public class OFuzzyCheckpointStartRecord extends OAbstractCheckPointStartRecord {
   private OLogSequenceNumber lsn;
 
+  /**
+   * LSN starting from which data restore should be started if this checkpoint is the last one. All changes logged before it are
+   * already flushed to the data files.
+   */
+  private OLogSequenceNumber redoLsn;
+
   public OFuzzyCheckpointStartRecord() {
   }
 
@@ -30,6 +38,67 @@ public class OFuzzyCheckpointStartRecord extends OAbstractCheckPointStartRecord
     super(previousCheckpoint);
   }
 
+  public OFuzzyCheckpointStartRecord(OLogSequenceNumber previousCheckpoint, OLogSequenceNumber redoLsn) {
+    super(previousCheckpoint);
+    this.redoLsn = redoLsn;
+  }
+
+  public OLogSequenceNumber getRedoLsn() {
+    return redoLsn;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    offset = super.toStream(content, offset);
+
+    if (redoLsn == null) {
+      content[offset] = 0;
+      offset++;
+      return offset;
+    }
+
+    content[offset] = 1;
+    offset++;
+
+    OLongSerializer.INSTANCE.serializeNative(redoLsn.getSegment(), content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    OLongSerializer.INSTANCE.serializeNative(redoLsn.getPosition(), content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    return offset;
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    offset = super.fromStream(content, offset);
+
+    if (content[offset] == 0) {
+      offset++;
+      return offset;
+    }
+
+    offset++;
+
+    long segment = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    long position = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    redoLsn = new OLogSequenceNumber(segment, position);
+
+    return offset;
+  }
+
+  @Override
+  public int serializedSize() {
+    if (redoLsn == null)
+      return super.serializedSize() + 1;
+
+    return super.serializedSize() + 2 * OLongSerializer.LONG_SIZE + 1;
+  }
+
   @Override
   public OLogSequenceNumber getLsn() {
     return lsn;
@@ -51,6 +120,6 @@ public class OFuzzyCheckpointStartRecord extends OAbstractCheckPointStartRecord
 
   @Override
   public String toString() {
-    return "OFuzzyCheckpointStartRecord{" + "lsn=" + lsn + "} " + super.toString();
+    return "OFuzzyCheckpointStartRecord{" + "lsn=" + lsn + ", redoLsn=" + redoLsn + "} " + super.toString();
   }
 }
@@ -85,6 +85,7 @@ public class OPageChanges {
   }
 
   public int fromStream(byte[] content, int offset) {
+    final int startOffset = offset;
     final int changesSize = OIntegerSerializer.INSTANCE.deserializeNative(content, offset);
     offset += OIntegerSerializer.INT_SIZE;
 
@@ -118,6 +119,8 @@ public class OPageChanges {
       changeUnits.add(new ChangeUnit(pageOffset, oldValues, newValues));
     }
 
+    // record read from WAL may be logged again, for example when it is shipped by incremental backup
+    serializedSize = offset - startOffset;
     return offset;
   }
 
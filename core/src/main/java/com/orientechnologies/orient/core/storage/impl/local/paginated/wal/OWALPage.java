@@ -46,6 +46,35 @@ public class OWALPage {
     }
   }
 
+  /**
+   * Value of magic number field of page which is written to segment with given order. Low 32 bits contain {@link #MAGIC_NUMBER},
+   * high 32 bits contain tag of segment, so pages which are left in recycled segment file from previous segment are not treated as
+   * valid ones. Pages written by previous versions have zero segment tag.
+   */
+  public static long calculateMagicNumber(long segmentOrder) {
+    return MAGIC_NUMBER | (segmentTag(segmentOrder) << 32);
+  }
+
+  /**
+   * @return <code>true</code> if magic number was written for segment with given order or it was written before segment tags
+   *         were introduced.
+   */
+  public static boolean isValidMagicNumber(long magicNumber, long segmentOrder) {
+    if ((magicNumber & 0xFFFFFFFFL) != MAGIC_NUMBER)
+      return false;
+
+    final long tag = magicNumber >>> 32;
+    return tag == 0 || tag == segmentTag(segmentOrder);
+  }
+
+  public static boolean isTaggedMagicNumber(long magicNumber) {
+    return (magicNumber >>> 32) != 0;
+  }
+
+  private static long segmentTag(long segmentOrder) {
+    return (segmentOrder & 0x7FFFFFFFL) + 1;
+  }
+
   public ODirectMemoryPointer getPagePointer() {
     return pagePointer;
   }
@@ -23,6 +23,8 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -32,6 +34,7 @@ import java.util.ListIterator;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -42,9 +45,13 @@ import java.util.zip.CRC32;
 
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
@@ -57,6 +64,7 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
 public class OWriteAheadLog {
   public static final String          MASTER_RECORD_EXTENSION = ".wmr";
   public static final String          WAL_SEGMENT_EXTENSION   = ".wal";
+  public static final String          SPARE_SEGMENT_EXTENSION = ".wsp";
   private static final long           ONE_KB                  = 1024L;
   private final Object                syncObject              = new Object();
   private final List<LogSegment>      logSegments             = new ArrayList<LogSegment>();
@@ -74,10 +82,182 @@ public class OWriteAheadLog {
   private OLogSequenceNumber          firstMasterRecord;
   private OLogSequenceNumber          secondMasterRecord;
   private volatile OLogSequenceNumber flushedLsn;
+  private volatile OLogSequenceNumber forcedLsn;
   private boolean                     closed;
 
+  private final boolean               groupCommit;
+  private final int                   groupCommitWindow;
+  private final int                   groupCommitBatchSize;
+  private final Object                groupCommitMonitor      = new Object();
+  private ExecutorService             groupCommitExecutor;
+  private boolean                     groupCommitStopped;
+  private OLogSequenceNumber          groupCommitTarget;
+  private int                         pendingCommits;
+  private volatile int                lastGroupCommitBatchSize;
+  private long                        groupCommits;
+  private long                        groupCommitBatches;
+
+  private final boolean               preallocateSegments;
+  private final int                   maxSpareSegments;
+  private final List<File>            spareSegments           = new ArrayList<File>();
+  private long                        spareSegmentsCounter;
+  private ExecutorService             preallocationExecutor;
+  private boolean                     preallocationInProgress;
+  private volatile boolean            preallocationStopped;
+
+  private String                      METRIC_GROUP_COMMIT_WAIT;
+  private String                      METRIC_GROUP_COMMIT_WAIT_METADATA;
+  private String                      METRIC_GROUP_COMMIT_FLUSH;
+  private String                      METRIC_GROUP_COMMIT_FLUSH_METADATA;
+  private String                      METRIC_GROUP_COMMIT_COMMITS;
+  private String                      METRIC_GROUP_COMMIT_COMMITS_METADATA;
+  private String                      METRIC_GROUP_COMMIT_FSYNCS;
+  private String                      METRIC_GROUP_COMMIT_FSYNCS_METADATA;
+  private String                      METRIC_GROUP_COMMIT_LAST_BATCH_SIZE;
+  private String                      METRIC_GROUP_COMMIT_AVG_BATCH_SIZE;
+
+  /**
+   * Forces WAL to the disk on behalf of all operations which wait in {@link #waitTillFlushed(OLogSequenceNumber)}. Single force of
+   * WAL is performed for all operations which arrived during group commit window, or earlier if amount of waiting operations
+   * reached {@link OGlobalConfiguration#WAL_GROUP_COMMIT_BATCH_SIZE}.
+   */
+  private final class GroupCommitTask implements Runnable {
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final int batchSize;
+
+          synchronized (groupCommitMonitor) {
+            while (!groupCommitStopped && !hasPendingCommits()) {
+              groupCommitMonitor.notifyAll();
+              groupCommitMonitor.wait();
+            }
+
+            if (groupCommitStopped)
+              return;
+
+            if (groupCommitWindow > 0) {
+              final long deadline = System.currentTimeMillis() + groupCommitWindow;
+              long timeLeft = groupCommitWindow;
+
+              while (!groupCommitStopped && pendingCommits < groupCommitBatchSize && timeLeft > 0) {
+                groupCommitMonitor.wait(timeLeft);
+                timeLeft = deadline - System.currentTimeMillis();
+              }
+            }
+
+            batchSize = pendingCommits;
+            pendingCommits = 0;
+          }
+
+          final long startTime = System.currentTimeMillis();
+          try {
+            forceFlush();
+          } catch (Throwable e) {
+            OLogManager.instance().error(this, "Error during WAL group commit", e);
+          }
+
+          synchronized (groupCommitMonitor) {
+            if (batchSize > 0) {
+              lastGroupCommitBatchSize = batchSize;
+              groupCommits += batchSize;
+              groupCommitBatches++;
+            }
+
+            groupCommitMonitor.notifyAll();
+          }
+
+          final OProfilerMBean profiler = Orient.instance().getProfiler();
+          if (profiler.isRecording()) {
+            profiler.stopChrono(METRIC_GROUP_COMMIT_FLUSH, "Time of WAL force performed by group commit", startTime,
+                METRIC_GROUP_COMMIT_FLUSH_METADATA);
+            profiler.updateCounter(METRIC_GROUP_COMMIT_FSYNCS, "Amount of WAL forces performed by group commit", +1,
+                METRIC_GROUP_COMMIT_FSYNCS_METADATA);
+            profiler.updateCounter(METRIC_GROUP_COMMIT_COMMITS, "Amount of atomic operations committed by group commit", batchSize,
+                METRIC_GROUP_COMMIT_COMMITS_METADATA);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        OLogManager.instance().error(this, "WAL group commit thread was interrupted");
+      }
+    }
+
+    private void forceFlush() {
+      final LogSegment last;
+      synchronized (syncObject) {
+        if (closed)
+          return;
+
+        last = logSegments.get(logSegments.size() - 1);
+      }
+
+      // if segment was switched in the meantime its content was already flushed, new segment will be processed during next
+      // iteration
+      last.flush(true);
+    }
+  }
+
+  /**
+   * Fills file of spare segment by zeros, so records of the segment which will be created from it are appended to already
+   * allocated file space and file metadata do not need to be forced on each flush.
+   */
+  private final class PreallocateSegmentTask implements Runnable {
+    private final File file;
+
+    private PreallocateSegmentTask(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public void run() {
+      boolean preallocated = false;
+      try {
+        preallocated = preallocate();
+      } catch (Throwable e) {
+        OLogManager.instance().error(this, "Error during preallocation of WAL segment %s", e, file);
+      }
+
+      synchronized (syncObject) {
+        preallocationInProgress = false;
+
+        if (preallocated && !closed)
+          spareSegments.add(file);
+        else if (file.exists() && !file.delete())
+          OLogManager.instance().warn(this, "Can not delete spare WAL segment %s", file);
+      }
+    }
+
+    private boolean preallocate() throws IOException {
+      final long segmentSize = (maxSegmentSize + OWALPage.PAGE_SIZE - 1) / OWALPage.PAGE_SIZE * OWALPage.PAGE_SIZE;
+      final ByteBuffer zeros = ByteBuffer.allocate(OWALPage.PAGE_SIZE);
+
+      final RandomAccessFile rndFile = new RandomAccessFile(file, "rw");
+      try {
+        final FileChannel channel = rndFile.getChannel();
+
+        long position = 0;
+        while (position < segmentSize) {
+          if (preallocationStopped)
+            return false;
+
+          zeros.clear();
+          position += channel.write(zeros, position);
+        }
+
+        channel.force(true);
+      } finally {
+        rndFile.close();
+      }
+
+      return true;
+    }
+  }
+
   private final class LogSegment implements Comparable<LogSegment> {
     private final RandomAccessFile                           rndFile;
+    private final FileChannel                                channel;
     private final File                                       file;
     private final long                                       order;
     private final int                                        maxPagesCacheSize;
@@ -94,7 +274,7 @@ public class OWriteAheadLog {
                                                                                   }
                                                                                 });
     private long                                             filledUpTo;
-    private boolean                                          closed;
+    private volatile boolean                                 closed;
     private OWALPage                                         currentPage;
     private long                                             nextPositionToFlush;
     private OLogSequenceNumber                               last           = null;
@@ -102,11 +282,30 @@ public class OWriteAheadLog {
 
     private volatile boolean                                 flushNewData   = true;
 
+    /**
+     * Amount of pages written to the segment file. Segment file may be preallocated or recycled so its length is not used to detect
+     * end of segment.
+     */
+    private volatile long                                    pagesOnDisk;
+    private boolean                                          legacyFormat;
+
     private WeakReference<OPair<OLogSequenceNumber, byte[]>> lastReadRecord = new WeakReference<OPair<OLogSequenceNumber, byte[]>>(
                                                                                 null);
 
     private final class FlushTask implements Runnable {
+      private final boolean forceSync;
+
       private FlushTask() {
+        this(false);
+      }
+
+      /**
+       * @param forceSync
+       *          if <code>true</code> cached pages are written even if no new records were added since last flush and file is
+       *          synced regardless of {@link OGlobalConfiguration#WAL_SYNC_ON_PAGE_FLUSH} value.
+       */
+      private FlushTask(boolean forceSync) {
+        this.forceSync = forceSync;
       }
 
       @Override
@@ -122,7 +321,7 @@ public class OWriteAheadLog {
         if (pagesCache.isEmpty())
           return;
 
-        if (!flushNewData)
+        if (!flushNewData && !forceSync)
           return;
 
         flushNewData = false;
@@ -171,27 +370,37 @@ public class OWriteAheadLog {
           flushedPages++;
         }
 
-        synchronized (rndFile) {
-          rndFile.seek(filePointer);
-          for (int i = 0; i < pagesToFlush.length; i++) {
-            ODirectMemoryPointer dataPointer = pagesToFlush[i];
-            byte[] pageContent = dataPointer.get(0, OWALPage.PAGE_SIZE);
-            if (i == pagesToFlush.length - 1)
-              dataPointer.free();
+        final ByteBuffer[] buffers = new ByteBuffer[pagesToFlush.length];
+        for (int i = 0; i < pagesToFlush.length; i++) {
+          ODirectMemoryPointer dataPointer = pagesToFlush[i];
+          byte[] pageContent = dataPointer.get(0, OWALPage.PAGE_SIZE);
+          if (i == pagesToFlush.length - 1)
+            dataPointer.free();
 
-            flushPage(pageContent);
-            filePointer += OWALPage.PAGE_SIZE;
-          }
-
-          if (OGlobalConfiguration.WAL_SYNC_ON_PAGE_FLUSH.getValueAsBoolean())
-            rndFile.getFD().sync();
+          buffers[i] = preparePage(pageContent);
         }
 
+        writePages(filePointer, buffers);
+        filePointer += (long) buffers.length * OWALPage.PAGE_SIZE;
+
+        // file space is preallocated in most cases, so there is no need to force file metadata
+        final boolean forced = forceSync || OGlobalConfiguration.WAL_SYNC_ON_PAGE_FLUSH.getValueAsBoolean();
+        if (forced)
+          channel.force(false);
+
+        final long writtenPages = filePointer / OWALPage.PAGE_SIZE;
+        if (writtenPages > pagesOnDisk)
+          pagesOnDisk = writtenPages;
+
         nextPositionToFlush = filePointer - OWALPage.PAGE_SIZE;
 
         if (lastLSNToFlush != null)
           flushedLsn = lastLSNToFlush;
 
+        // previous segments are forced when they are switched, so all written records are durable now
+        if (forced)
+          forcedLsn = flushedLsn;
+
         for (int i = 0; i < flushedPages - 1; i++) {
           OWALPage page = pagesCache.poll();
           page.getPagePointer().free();
@@ -200,12 +409,26 @@ public class OWriteAheadLog {
         assert !pagesCache.isEmpty();
       }
 
-      private void flushPage(byte[] content) throws IOException {
+      private ByteBuffer preparePage(byte[] content) {
+        OLongSerializer.INSTANCE.serializeNative(OWALPage.calculateMagicNumber(order), content, OWALPage.MAGIC_NUMBER_OFFSET);
+
         CRC32 crc32 = new CRC32();
         crc32.update(content, OIntegerSerializer.INT_SIZE, OWALPage.PAGE_SIZE - OIntegerSerializer.INT_SIZE);
         OIntegerSerializer.INSTANCE.serializeNative((int) crc32.getValue(), content, 0);
 
-        rndFile.write(content);
+        return ByteBuffer.wrap(content);
+      }
+
+      /**
+       * Writes all pages by single gathering write. Only flush thread changes position of channel, pages are read using positional
+       * reads.
+       */
+      private void writePages(long position, ByteBuffer[] buffers) throws IOException {
+        channel.position(position);
+
+        long bytesToWrite = (long) buffers.length * OWALPage.PAGE_SIZE;
+        while (bytesToWrite > 0)
+          bytesToWrite -= channel.write(buffers);
       }
     }
 
@@ -216,6 +439,7 @@ public class OWriteAheadLog {
       order = extractOrder(file.getName());
       closed = false;
       rndFile = new RandomAccessFile(file, "rw");
+      channel = rndFile.getChannel();
     }
 
     public void startFlush() {
@@ -272,7 +496,7 @@ public class OWriteAheadLog {
       if (!pagesCache.isEmpty())
         return new OLogSequenceNumber(order, OWALPage.RECORDS_OFFSET);
 
-      if (rndFile.length() > 0)
+      if (pagesOnDisk > 0)
         return new OLogSequenceNumber(order, OWALPage.RECORDS_OFFSET);
 
       return null;
@@ -296,6 +520,18 @@ public class OWriteAheadLog {
       return file.getAbsolutePath();
     }
 
+    public File getFile() {
+      return file;
+    }
+
+    /**
+     * @return <code>true</code> if segment contains pages which were written without segment tag, such segments can not be recycled
+     *         because their stale pages can not be distinguished from pages of new segment.
+     */
+    public boolean isLegacyFormat() {
+      return legacyFormat;
+    }
+
     public OLogSequenceNumber logRecord(byte[] record) throws IOException {
       flushNewData = true;
       int pageOffset = (int) (filledUpTo % OWALPage.PAGE_SIZE);
@@ -389,10 +625,7 @@ public class OWriteAheadLog {
 
       while (pageIndex < pageCount) {
         byte[] pageContent = new byte[OWALPage.PAGE_SIZE];
-        synchronized (rndFile) {
-          rndFile.seek(pageIndex * OWALPage.PAGE_SIZE);
-          rndFile.readFully(pageContent);
-        }
+        readFully(pageIndex * OWALPage.PAGE_SIZE, ByteBuffer.wrap(pageContent));
 
         if (!checkPageIntegrity(pageContent))
           throw new OWALPageBrokenException("WAL page with index " + pageIndex + " is broken.");
@@ -488,51 +721,59 @@ public class OWriteAheadLog {
     }
 
     public OLogSequenceNumber readFlushedLSN() throws IOException {
-      long pages = rndFile.length() / OWALPage.PAGE_SIZE;
-      if (pages == 0)
+      if (pagesOnDisk == 0)
         return null;
 
       return new OLogSequenceNumber(order, filledUpTo - 1);
     }
 
     public void flush() {
+      flush(false);
+    }
+
+    public void flush(boolean forceSync) {
       if (!commitExecutor.isShutdown()) {
         try {
-          commitExecutor.submit(new FlushTask()).get();
+          commitExecutor.submit(new FlushTask(forceSync)).get();
         } catch (InterruptedException e) {
           Thread.interrupted();
           throw new OStorageException("Thread was interrupted during flush", e);
         } catch (ExecutionException e) {
           throw new OStorageException("Error during WAL segment " + getPath() + " flush.");
         }
-      } else {
-        new FlushTask().run();
+      } else if (!closed) {
+        new FlushTask(forceSync).run();
       }
     }
 
     private void initPageCache() throws IOException {
-      synchronized (rndFile) {
-        long pagesCount = rndFile.length() / OWALPage.PAGE_SIZE;
-        if (pagesCount == 0)
-          return;
+      final long pagesCount = pagesOnDisk;
+      if (pagesCount == 0)
+        return;
 
-        rndFile.seek((pagesCount - 1) * OWALPage.PAGE_SIZE);
-        byte[] content = new byte[OWALPage.PAGE_SIZE];
-        rndFile.readFully(content);
+      byte[] content = new byte[OWALPage.PAGE_SIZE];
+      readFully((pagesCount - 1) * OWALPage.PAGE_SIZE, ByteBuffer.wrap(content));
 
-        if (checkPageIntegrity(content)) {
-          ODirectMemoryPointer pointer = new ODirectMemoryPointer(content);
-          currentPage = new OWALPage(pointer, false);
-          filledUpTo = (pagesCount - 1) * OWALPage.PAGE_SIZE + currentPage.getFilledUpTo();
-          nextPositionToFlush = (pagesCount - 1) * OWALPage.PAGE_SIZE;
-        } else {
-          ODirectMemoryPointer pointer = new ODirectMemoryPointer(OWALPage.PAGE_SIZE);
-          currentPage = new OWALPage(pointer, true);
-          filledUpTo = pagesCount * OWALPage.PAGE_SIZE + currentPage.getFilledUpTo();
-          nextPositionToFlush = pagesCount * OWALPage.PAGE_SIZE;
-        }
+      if (checkPageIntegrity(content)) {
+        ODirectMemoryPointer pointer = new ODirectMemoryPointer(content);
+        currentPage = new OWALPage(pointer, false);
+        filledUpTo = (pagesCount - 1) * OWALPage.PAGE_SIZE + currentPage.getFilledUpTo();
+        nextPositionToFlush = (pagesCount - 1) * OWALPage.PAGE_SIZE;
+      } else {
+        ODirectMemoryPointer pointer = new ODirectMemoryPointer(OWALPage.PAGE_SIZE);
+        currentPage = new OWALPage(pointer, true);
+        filledUpTo = pagesCount * OWALPage.PAGE_SIZE + currentPage.getFilledUpTo();
+        nextPositionToFlush = pagesCount * OWALPage.PAGE_SIZE;
+      }
 
-        pagesCache.add(currentPage);
+      pagesCache.add(currentPage);
+    }
+
+    private void readFully(long position, ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        final int read = channel.read(buffer, position + buffer.position());
+        if (read < 0)
+          throw new EOFException("End of WAL segment " + getPath() + " is reached.");
       }
     }
 
@@ -553,7 +794,7 @@ public class OWriteAheadLog {
 
     private boolean checkPageIntegrity(byte[] content) {
       final long magicNumber = OLongSerializer.INSTANCE.deserializeNative(content, OWALPage.MAGIC_NUMBER_OFFSET);
-      if (magicNumber != OWALPage.MAGIC_NUMBER)
+      if (!OWALPage.isValidMagicNumber(magicNumber, order))
         return false;
 
       final CRC32 crc32 = new CRC32();
@@ -566,15 +807,39 @@ public class OWriteAheadLog {
       if (!pagesCache.isEmpty())
         throw new IllegalStateException("WAL cache is not empty, we can not verify WAL after it was started to be used");
 
-      synchronized (rndFile) {
-        long pagesCount = rndFile.length() / OWALPage.PAGE_SIZE;
+      final long fileLength = channel.size();
+      final long pagesCount = fileLength / OWALPage.PAGE_SIZE;
 
-        if (rndFile.length() % OWALPage.PAGE_SIZE > 0) {
-          OLogManager.instance().error(this, "Last WAL page was written partially, auto fix.");
+      if (fileLength % OWALPage.PAGE_SIZE > 0) {
+        OLogManager.instance().error(this, "Last WAL page was written partially, auto fix.");
 
-          rndFile.setLength(OWALPage.PAGE_SIZE * pagesCount);
-        }
+        rndFile.setLength(OWALPage.PAGE_SIZE * pagesCount);
+      }
+
+      pagesOnDisk = countWrittenPages(pagesCount);
+    }
+
+    /**
+     * Scans headers of pages from the beginning of file till the first page which does not belong to this segment. Preallocated
+     * space is filled by zeros and recycled segment contains pages of previous segment, neither of them have magic number of
+     * current segment.
+     */
+    private long countWrittenPages(long pagesCount) throws IOException {
+      final ByteBuffer header = ByteBuffer.allocate(OWALPage.MAGIC_NUMBER_OFFSET + OLongSerializer.LONG_SIZE);
+
+      for (long pageIndex = 0; pageIndex < pagesCount; pageIndex++) {
+        header.clear();
+        readFully(pageIndex * OWALPage.PAGE_SIZE, header);
+
+        final long magicNumber = OLongSerializer.INSTANCE.deserializeNative(header.array(), OWALPage.MAGIC_NUMBER_OFFSET);
+        if (!OWALPage.isValidMagicNumber(magicNumber, order))
+          return pageIndex;
+
+        if (!OWALPage.isTaggedMagicNumber(magicNumber))
+          legacyFormat = true;
       }
+
+      return pagesCount;
     }
   }
 
@@ -586,11 +851,23 @@ public class OWriteAheadLog {
 
   public OWriteAheadLog(int maxPagesCacheSize, int commitDelay, long maxSegmentSize, long maxLogSize, OStorageLocalAbstract storage)
       throws IOException {
+    this(maxPagesCacheSize, commitDelay, maxSegmentSize, maxLogSize, OGlobalConfiguration.WAL_GROUP_COMMIT.getValueAsBoolean(),
+        OGlobalConfiguration.WAL_GROUP_COMMIT_WINDOW.getValueAsInteger(), OGlobalConfiguration.WAL_GROUP_COMMIT_BATCH_SIZE
+            .getValueAsInteger(), storage);
+  }
+
+  public OWriteAheadLog(int maxPagesCacheSize, int commitDelay, long maxSegmentSize, long maxLogSize, boolean groupCommit,
+      int groupCommitWindow, int groupCommitBatchSize, OStorageLocalAbstract storage) throws IOException {
     this.maxPagesCacheSize = maxPagesCacheSize;
     this.commitDelay = commitDelay;
     this.maxSegmentSize = maxSegmentSize;
     this.maxLogSize = maxLogSize;
     this.storage = storage;
+    this.groupCommit = groupCommit;
+    this.groupCommitWindow = groupCommitWindow;
+    this.groupCommitBatchSize = groupCommitBatchSize > 0 ? groupCommitBatchSize : 1;
+    this.preallocateSegments = OGlobalConfiguration.WAL_PREALLOCATE_SEGMENTS.getValueAsBoolean();
+    this.maxSpareSegments = OGlobalConfiguration.WAL_SPARE_SEGMENTS.getValueAsInteger();
 
     try {
       this.walLocation = new File(calculateWalPath(this.storage));
@@ -606,15 +883,16 @@ public class OWriteAheadLog {
         throw new IllegalStateException(
             "Location passed in WAL does not exist, or IO error was happened. DB can not work in durable mode in such case.");
 
+      loadSpareSegments();
+
       if (walFiles.length == 0) {
-        LogSegment logSegment = new LogSegment(new File(this.walLocation, getSegmentName(0)), maxPagesCacheSize);
-        logSegment.init();
-        logSegment.startFlush();
+        LogSegment logSegment = createSegment(0);
         logSegments.add(logSegment);
 
         logSize = 0;
 
         flushedLsn = null;
+        forcedLsn = null;
       } else {
 
         for (File walFile : walFiles) {
@@ -629,6 +907,7 @@ public class OWriteAheadLog {
 
         logSegments.get(logSegments.size() - 1).startFlush();
         flushedLsn = readFlushedLSN();
+        forcedLsn = flushedLsn;
       }
 
       masterRecordFile = new File(walLocation, this.storage.getName() + MASTER_RECORD_EXTENSION);
@@ -657,6 +936,8 @@ public class OWriteAheadLog {
 
       fixMasterRecords();
 
+      if (groupCommit)
+        startGroupCommit();
     } catch (FileNotFoundException e) {
       // never happened
       OLogManager.instance().error(this, "Error during file initialization for storage %s", e, this.storage.getName());
@@ -745,6 +1026,22 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * Logs start of fuzzy checkpoint.
+   *
+   * @param redoLsn
+   *          LSN starting from which data restore should be started if this checkpoint is the last one.
+   */
+  public OLogSequenceNumber logFuzzyCheckPointStart(OLogSequenceNumber redoLsn) throws IOException {
+    synchronized (syncObject) {
+      checkForClose();
+
+      OFuzzyCheckpointStartRecord record = new OFuzzyCheckpointStartRecord(lastCheckpoint, redoLsn);
+      log(record);
+      return record.getLsn();
+    }
+  }
+
   public OLogSequenceNumber logFuzzyCheckPointEnd() throws IOException {
     synchronized (syncObject) {
       checkForClose();
@@ -789,20 +1086,21 @@ public class OWriteAheadLog {
 
         logSize -= first.filledUpTo();
 
-        first.delete(false);
+        recycleSegment(first);
         logSegments.remove(0);
 
         fixMasterRecords();
       }
 
       if (last.filledUpTo() >= maxSegmentSize) {
-        last.stopFlush(true);
-
-        last = new LogSegment(new File(walLocation, getSegmentName(last.getOrder() + 1)), maxPagesCacheSize);
-        last.init();
-        last.startFlush();
+        // records of the segment should be durable before the ones of the next segment are forced
+        last.flush(true);
+        last.stopFlush(false);
 
+        last = createSegment(last.getOrder() + 1);
         logSegments.add(last);
+
+        preallocateSpareSegment();
       }
 
       return lsn;
@@ -815,6 +1113,52 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * @return amount of bytes which were logged after given LSN, or size of the whole log if given LSN is already truncated.
+   */
+  public long bytesSince(OLogSequenceNumber lsn) throws IOException {
+    synchronized (syncObject) {
+      checkForClose();
+
+      long bytes = 0;
+      for (int i = logSegments.size() - 1; i >= 0; i--) {
+        final LogSegment logSegment = logSegments.get(i);
+        if (logSegment.getOrder() < lsn.getSegment())
+          break;
+
+        if (logSegment.getOrder() == lsn.getSegment()) {
+          bytes += Math.max(0, logSegment.filledUpTo() - lsn.getPosition());
+          return bytes;
+        }
+
+        bytes += logSegment.filledUpTo();
+      }
+
+      return bytes;
+    }
+  }
+
+  /**
+   * @return LSN which is placed given amount of bytes before the end of the log, or <code>null</code> if log is smaller. Returned LSN
+   *         may not point to the beginning of a record, it should be used only for comparison with other LSNs.
+   */
+  public OLogSequenceNumber lsnBeforeEnd(long bytes) throws IOException {
+    synchronized (syncObject) {
+      checkForClose();
+
+      for (int i = logSegments.size() - 1; i >= 0; i--) {
+        final LogSegment logSegment = logSegments.get(i);
+        final long filledUpTo = logSegment.filledUpTo();
+        if (filledUpTo > bytes)
+          return new OLogSequenceNumber(logSegment.getOrder(), filledUpTo - bytes);
+
+        bytes -= filledUpTo;
+      }
+
+      return null;
+    }
+  }
+
   public void truncate() throws IOException {
     synchronized (syncObject) {
       if (logSegments.size() < 2)
@@ -823,7 +1167,7 @@ public class OWriteAheadLog {
       ListIterator<LogSegment> iterator = logSegments.listIterator(logSegments.size() - 1);
       while (iterator.hasPrevious()) {
         final LogSegment logSegment = iterator.previous();
-        logSegment.delete(false);
+        recycleSegment(logSegment);
         iterator.remove();
       }
     }
@@ -834,6 +1178,9 @@ public class OWriteAheadLog {
   }
 
   public void close(boolean flush) throws IOException {
+    stopGroupCommit();
+    stopPreallocation();
+
     synchronized (syncObject) {
       if (closed)
         return;
@@ -846,6 +1193,174 @@ public class OWriteAheadLog {
       masterRecordLSNHolder.close();
     }
 
+    if (groupCommit) {
+      synchronized (groupCommitMonitor) {
+        groupCommitMonitor.notifyAll();
+      }
+    }
+  }
+
+  public boolean isGroupCommit() {
+    return groupCommit;
+  }
+
+  /**
+   * Blocks till all WAL records up to passed in LSN are forced to the disk. If group commit is switched on, WAL is forced by
+   * background thread which serves all waiting threads by single fsync, otherwise WAL is forced by current thread.
+   * 
+   * @param lsn
+   *          LSN of the last record which should become durable, usually LSN of {@link OAtomicUnitEndRecord}.
+   */
+  public void waitTillFlushed(OLogSequenceNumber lsn) throws IOException {
+    if (!groupCommit) {
+      synchronized (syncObject) {
+        checkForClose();
+
+        logSegments.get(logSegments.size() - 1).flush(true);
+      }
+      return;
+    }
+
+    final long startTime = System.currentTimeMillis();
+
+    synchronized (groupCommitMonitor) {
+      if (isForced(lsn))
+        return;
+
+      pendingCommits++;
+      if (groupCommitTarget == null || groupCommitTarget.compareTo(lsn) < 0)
+        groupCommitTarget = lsn;
+
+      groupCommitMonitor.notifyAll();
+
+      try {
+        while (!isForced(lsn)) {
+          if (groupCommitStopped)
+            throw new OStorageException("WAL " + walLocation + " was closed before record with LSN " + lsn
+                + " was forced to the disk");
+
+          groupCommitMonitor.wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        throw new OStorageException("Thread was interrupted during waiting of WAL group commit", e);
+      }
+    }
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording())
+      profiler.stopChrono(METRIC_GROUP_COMMIT_WAIT, "Time which atomic operation waits till its records are forced to the disk",
+          startTime, METRIC_GROUP_COMMIT_WAIT_METADATA);
+  }
+
+  int getSpareSegmentsCount() {
+    synchronized (syncObject) {
+      return spareSegments.size();
+    }
+  }
+
+  OLogSequenceNumber getForcedLSN() {
+    return forcedLsn;
+  }
+
+  int getLastGroupCommitBatchSize() {
+    return lastGroupCommitBatchSize;
+  }
+
+  long getGroupCommitBatches() {
+    synchronized (groupCommitMonitor) {
+      return groupCommitBatches;
+    }
+  }
+
+  /**
+   * Checks LSN against the last record forced to the disk, records which are only written to the file are not durable if
+   * {@link OGlobalConfiguration#WAL_SYNC_ON_PAGE_FLUSH} is switched off.
+   */
+  private boolean isForced(OLogSequenceNumber lsn) {
+    final OLogSequenceNumber forced = forcedLsn;
+    return forced != null && forced.compareTo(lsn) >= 0;
+  }
+
+  private boolean hasPendingCommits() {
+    return groupCommitTarget != null && !isForced(groupCommitTarget);
+  }
+
+  private void startGroupCommit() {
+    initGroupCommitProfiler();
+
+    groupCommitExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        thread.setName("OrientDB WAL Group Commit Task (" + storage.getName() + ")");
+        return thread;
+      }
+    });
+
+    groupCommitExecutor.submit(new GroupCommitTask());
+  }
+
+  private void stopGroupCommit() {
+    if (!groupCommit)
+      return;
+
+    synchronized (groupCommitMonitor) {
+      if (groupCommitStopped)
+        return;
+
+      groupCommitStopped = true;
+      groupCommitMonitor.notifyAll();
+    }
+
+    groupCommitExecutor.shutdown();
+    try {
+      if (!groupCommitExecutor.awaitTermination(OGlobalConfiguration.WAL_SHUTDOWN_TIMEOUT.getValueAsInteger(),
+          TimeUnit.MILLISECONDS))
+        throw new OStorageException("WAL group commit task for " + walLocation + " can not be stopped.");
+    } catch (InterruptedException e) {
+      OLogManager.instance().error(this, "Can not shutdown background WAL group commit thread.");
+    }
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.unregisterHookValue(METRIC_GROUP_COMMIT_LAST_BATCH_SIZE);
+    profiler.unregisterHookValue(METRIC_GROUP_COMMIT_AVG_BATCH_SIZE);
+  }
+
+  private void initGroupCommitProfiler() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    final String storageName = storage.getName();
+
+    METRIC_GROUP_COMMIT_WAIT = profiler.getDatabaseMetric(storageName, "wal.groupCommit.wait");
+    METRIC_GROUP_COMMIT_WAIT_METADATA = profiler.getDatabaseMetric(null, "wal.groupCommit.wait");
+    METRIC_GROUP_COMMIT_FLUSH = profiler.getDatabaseMetric(storageName, "wal.groupCommit.flush");
+    METRIC_GROUP_COMMIT_FLUSH_METADATA = profiler.getDatabaseMetric(null, "wal.groupCommit.flush");
+    METRIC_GROUP_COMMIT_COMMITS = profiler.getDatabaseMetric(storageName, "wal.groupCommit.commits");
+    METRIC_GROUP_COMMIT_COMMITS_METADATA = profiler.getDatabaseMetric(null, "wal.groupCommit.commits");
+    METRIC_GROUP_COMMIT_FSYNCS = profiler.getDatabaseMetric(storageName, "wal.groupCommit.fsyncs");
+    METRIC_GROUP_COMMIT_FSYNCS_METADATA = profiler.getDatabaseMetric(null, "wal.groupCommit.fsyncs");
+    METRIC_GROUP_COMMIT_LAST_BATCH_SIZE = profiler.getDatabaseMetric(storageName, "wal.groupCommit.lastBatchSize");
+    METRIC_GROUP_COMMIT_AVG_BATCH_SIZE = profiler.getDatabaseMetric(storageName, "wal.groupCommit.avgBatchSize");
+
+    profiler.registerHookValue(METRIC_GROUP_COMMIT_LAST_BATCH_SIZE,
+        "Amount of atomic operations committed by last WAL force of group commit", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            return lastGroupCommitBatchSize;
+          }
+        }, profiler.getDatabaseMetric(null, "wal.groupCommit.lastBatchSize"));
+
+    profiler.registerHookValue(METRIC_GROUP_COMMIT_AVG_BATCH_SIZE,
+        "Average amount of atomic operations committed by single WAL force of group commit", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            synchronized (groupCommitMonitor) {
+              return groupCommitBatches > 0 ? groupCommits / groupCommitBatches : 0;
+            }
+          }
+        }, profiler.getDatabaseMetric(null, "wal.groupCommit.avgBatchSize"));
   }
 
   public void delete() throws IOException {
@@ -853,12 +1368,22 @@ public class OWriteAheadLog {
   }
 
   public void delete(boolean flush) throws IOException {
+    // group commit and preallocation threads acquire WAL lock so they should be stopped outside of it
+    stopGroupCommit();
+    stopPreallocation();
+
     synchronized (syncObject) {
       close(flush);
 
       for (LogSegment logSegment : logSegments)
         logSegment.delete(false);
 
+      for (File spareSegment : spareSegments)
+        if (spareSegment.exists() && !spareSegment.delete())
+          OLogManager.instance().warn(this, "Can not delete spare WAL segment %s", spareSegment);
+
+      spareSegments.clear();
+
       boolean deleted = masterRecordFile.delete();
       while (!deleted) {
         OMemoryWatchDog.freeMemoryForResourceCleanup(100);
@@ -1042,6 +1567,124 @@ public class OWriteAheadLog {
     return storage.getName() + "." + order + WAL_SEGMENT_EXTENSION;
   }
 
+  private String getSpareSegmentName(long id) {
+    return storage.getName() + "." + id + SPARE_SEGMENT_EXTENSION;
+  }
+
+  private void loadSpareSegments() {
+    final String prefix = storage.getName() + ".";
+
+    final File[] spareFiles = walLocation.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith(prefix) && name.endsWith(SPARE_SEGMENT_EXTENSION);
+      }
+    });
+
+    if (spareFiles == null)
+      return;
+
+    for (File spareFile : spareFiles) {
+      final String name = spareFile.getName();
+      final long id;
+      try {
+        id = Long.parseLong(name.substring(prefix.length(), name.length() - SPARE_SEGMENT_EXTENSION.length()));
+      } catch (NumberFormatException e) {
+        continue;
+      }
+
+      if (id >= spareSegmentsCounter)
+        spareSegmentsCounter = id + 1;
+
+      if (spareSegments.size() < maxSpareSegments)
+        spareSegments.add(spareFile);
+      else if (!spareFile.delete())
+        OLogManager.instance().warn(this, "Can not delete spare WAL segment %s", spareFile);
+    }
+  }
+
+  /**
+   * Creates new segment, file of spare segment is used if it is available instead of creation of new file.
+   */
+  private LogSegment createSegment(long order) throws IOException {
+    final File segmentFile = new File(walLocation, getSegmentName(order));
+
+    if (!spareSegments.isEmpty() && !segmentFile.exists()) {
+      final File spareFile = spareSegments.remove(0);
+      if (!spareFile.renameTo(segmentFile)) {
+        OLogManager.instance().warn(this, "Can not reuse spare WAL segment %s", spareFile);
+
+        if (!spareFile.delete())
+          OLogManager.instance().warn(this, "Can not delete spare WAL segment %s", spareFile);
+      }
+    }
+
+    final LogSegment logSegment = new LogSegment(segmentFile, maxPagesCacheSize);
+    logSegment.init();
+    logSegment.startFlush();
+
+    return logSegment;
+  }
+
+  /**
+   * Keeps file of segment which is not needed any more as spare segment. Segments which were written by previous versions or
+   * which exceed limit of spare segments are deleted.
+   */
+  private void recycleSegment(LogSegment logSegment) throws IOException {
+    if (logSegment.isLegacyFormat() || spareSegments.size() >= maxSpareSegments) {
+      logSegment.delete(false);
+      return;
+    }
+
+    logSegment.close(false);
+
+    final File spareFile = new File(walLocation, getSpareSegmentName(spareSegmentsCounter++));
+    if (logSegment.getFile().renameTo(spareFile))
+      spareSegments.add(spareFile);
+    else
+      logSegment.delete(false);
+  }
+
+  private void preallocateSpareSegment() {
+    if (!preallocateSegments || preallocationStopped || preallocationInProgress || maxSpareSegments <= 0
+        || !spareSegments.isEmpty())
+      return;
+
+    if (preallocationExecutor == null)
+      preallocationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          thread.setName("OrientDB WAL Segment Preallocation Task (" + storage.getName() + ")");
+          return thread;
+        }
+      });
+
+    preallocationInProgress = true;
+    preallocationExecutor.submit(new PreallocateSegmentTask(new File(walLocation, getSpareSegmentName(spareSegmentsCounter++))));
+  }
+
+  private void stopPreallocation() {
+    preallocationStopped = true;
+
+    final ExecutorService executor;
+    synchronized (syncObject) {
+      executor = preallocationExecutor;
+    }
+
+    if (executor == null || executor.isShutdown())
+      return;
+
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(OGlobalConfiguration.WAL_SHUTDOWN_TIMEOUT.getValueAsInteger(), TimeUnit.MILLISECONDS))
+        throw new OStorageException("WAL segment preallocation task for " + walLocation + " can not be stopped.");
+    } catch (InterruptedException e) {
+      OLogManager.instance().error(this, "Can not shutdown background WAL segment preallocation thread.");
+    }
+  }
+
   private void checkForClose() {
     if (closed)
       throw new OStorageException("WAL log " + walLocation + " has been closed");
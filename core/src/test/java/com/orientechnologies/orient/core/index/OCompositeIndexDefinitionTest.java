@@ -511,6 +511,57 @@ public class OCompositeIndexDefinitionTest {
     Assert.assertEquals(result, compositeIndex);
   }
 
+  @Test
+  public void testIndexReloadWithFilter() {
+    compositeIndex.setFilter("status = 'active'");
+
+    final ODocument docToStore = compositeIndex.toStream();
+
+    final OCompositeIndexDefinition result = new OCompositeIndexDefinition();
+    result.fromStream(docToStore);
+
+    Assert.assertEquals(result, compositeIndex);
+    Assert.assertEquals(result.getFilter(), "status = 'active'");
+  }
+
+  @Test
+  public void testDocumentToIndexNullIncludedField() {
+    compositeIndex.setIncludedFieldsCount(1);
+
+    final ODocument document = new ODocument();
+    document.field("fOne", 12);
+
+    Assert.assertEquals(compositeIndex.getDocumentValueToIndex(document), new OCompositeKey(Arrays.asList(12, null)));
+
+    document.field("fOne", (Object) null);
+    document.field("fTwo", "test");
+
+    Assert.assertNull(compositeIndex.getDocumentValueToIndex(document));
+  }
+
+  @Test
+  public void testCreateValueNullIncludedField() {
+    compositeIndex.setIncludedFieldsCount(1);
+
+    Assert.assertEquals(compositeIndex.createValue(Arrays.asList("12", null)), new OCompositeKey(Arrays.asList(12, null)));
+    Assert.assertNull(compositeIndex.createValue(Arrays.asList(null, "test")));
+  }
+
+  @Test
+  public void testIndexReloadWithIncludedFields() {
+    compositeIndex.setIncludedFieldsCount(1);
+
+    final ODocument docToStore = compositeIndex.toStream();
+
+    final OCompositeIndexDefinition result = new OCompositeIndexDefinition();
+    result.fromStream(docToStore);
+
+    Assert.assertEquals(result, compositeIndex);
+    Assert.assertEquals(result.getIncludedFieldsCount(), 1);
+    Assert.assertEquals(result.toCreateIndexDDL("testIndex", "NOTUNIQUE"),
+        "create index testIndex on testClass ( fOne ) include ( fTwo ) NOTUNIQUE INTEGER, STRING");
+  }
+
   @Test
   public void testClassOnlyConstructor() {
     final ODatabaseDocumentTx database = new ODatabaseDocumentTx("memory:compositetesttwo");
@@ -0,0 +1,125 @@
+package com.orientechnologies.orient.core.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+@Test
+public class OIndexEntriesSorterTest {
+  private File directory;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    directory = new File(buildDirectory, "indexEntriesSorterTest");
+    directory.mkdirs();
+  }
+
+  public void testSortInMemory() throws Exception {
+    final OIndexEntriesSorter sorter = new OIndexEntriesSorter("sortInMemory", directory, 1000);
+    try {
+      for (int i = 99; i >= 0; i--)
+        sorter.add(i, value(i));
+
+      Assert.assertEquals(sorter.getRunsCount(), 0);
+
+      final Iterator<Map.Entry<Object, List<OIdentifiable>>> iterator = sorter.sortedEntries();
+      for (int i = 0; i < 100; i++) {
+        final Map.Entry<Object, List<OIdentifiable>> entry = iterator.next();
+        Assert.assertEquals(entry.getKey(), i);
+        Assert.assertEquals(entry.getValue().size(), 1);
+        Assert.assertEquals(entry.getValue().get(0), value(i));
+      }
+
+      Assert.assertFalse(iterator.hasNext());
+    } finally {
+      sorter.close();
+    }
+  }
+
+  public void testMergeOfSpilledRuns() throws Exception {
+    final long seed = System.currentTimeMillis();
+    System.out.println("testMergeOfSpilledRuns seed : " + seed);
+    final Random random = new Random(seed);
+
+    final int keysCount = 1000;
+    final int[] valuesCount = new int[keysCount];
+    final List<List<OIdentifiable>> expectedValues = new ArrayList<List<OIdentifiable>>();
+    for (int i = 0; i < keysCount; i++)
+      expectedValues.add(new ArrayList<OIdentifiable>());
+
+    final OIndexEntriesSorter sorter = new OIndexEntriesSorter("mergeOfSpilledRuns", directory, 64);
+    try {
+      for (int i = 0; i < 10000; i++) {
+        final int key = random.nextInt(keysCount);
+        final ORecordId value = value(i);
+
+        sorter.add("key" + (1000 + key), value);
+        expectedValues.get(key).add(value);
+        valuesCount[key]++;
+      }
+
+      Assert.assertTrue(sorter.getRunsCount() > 100);
+      Assert.assertEquals(sorter.size(), 10000);
+
+      final Iterator<Map.Entry<Object, List<OIdentifiable>>> iterator = sorter.sortedEntries();
+      for (int key = 0; key < keysCount; key++) {
+        if (valuesCount[key] == 0)
+          continue;
+
+        final Map.Entry<Object, List<OIdentifiable>> entry = iterator.next();
+        Assert.assertEquals(entry.getKey(), "key" + (1000 + key));
+        Assert.assertEquals(entry.getValue(), expectedValues.get(key));
+      }
+
+      Assert.assertFalse(iterator.hasNext());
+    } finally {
+      sorter.close();
+    }
+
+    Assert.assertEquals(directory.list().length, 0);
+  }
+
+  public void testSortOfCompositeKeys() throws Exception {
+    final OIndexEntriesSorter sorter = new OIndexEntriesSorter("sortOfCompositeKeys", directory, 7);
+    try {
+      for (int i = 0; i < 50; i++)
+        sorter.add(new OCompositeKey(i % 5, "value" + (49 - i)), value(i));
+
+      final Iterator<Map.Entry<Object, List<OIdentifiable>>> iterator = sorter.sortedEntries();
+      Object prevKey = null;
+      int count = 0;
+      while (iterator.hasNext()) {
+        final Map.Entry<Object, List<OIdentifiable>> entry = iterator.next();
+        Assert.assertTrue(entry.getKey() instanceof OCompositeKey);
+        if (prevKey != null)
+          Assert.assertTrue(((OCompositeKey) prevKey).compareTo((OCompositeKey) entry.getKey()) < 0);
+
+        prevKey = entry.getKey();
+        count++;
+      }
+
+      Assert.assertEquals(count, 50);
+    } finally {
+      sorter.close();
+    }
+  }
+
+  private static ORecordId value(int i) {
+    return new ORecordId(i % 32000, OClusterPositionFactory.INSTANCE.valueOf(i));
+  }
+}
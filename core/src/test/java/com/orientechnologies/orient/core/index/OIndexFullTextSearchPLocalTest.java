@@ -0,0 +1,14 @@
+package com.orientechnologies.orient.core.index;
+
+import org.testng.annotations.Test;
+
+/**
+ * Runs the same checks against SBTree based full-text index of plocal storage.
+ */
+@Test
+public class OIndexFullTextSearchPLocalTest extends OIndexFullTextSearchTest {
+  @Override
+  protected String getDatabaseURL() {
+    return "plocal:" + System.getProperty("buildDirectory", ".") + "/fullTextSearchTest";
+  }
+}
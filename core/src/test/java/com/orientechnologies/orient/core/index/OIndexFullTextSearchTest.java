@@ -0,0 +1,145 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OIndexFullTextSearchTest {
+  private ODatabaseDocumentTx db;
+  private ODocument           red;
+  private ODocument           redRed;
+  private ODocument           blue;
+  private ODocument           redBlue;
+
+  protected String getDatabaseURL() {
+    return "memory:fullTextSearchTest";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    db = new ODatabaseDocumentTx(getDatabaseURL());
+    db.create();
+
+    final OClass product = db.getMetadata().getSchema().createClass("Product");
+    product.createProperty("description", OType.STRING);
+    product.createProperty("title", OType.STRING);
+
+    product.createIndex("Product.description", OClass.INDEX_TYPE.FULLTEXT.toString(), null,
+        new ODocument().field(OIndexFullText.CONFIG_POSTING_LISTS, true).field("indexRadix", false),
+        new String[] { "description" });
+    product.createIndex("Product.title", OClass.INDEX_TYPE.FULLTEXT.toString(), null,
+        new ODocument().field(OIndexFullText.CONFIG_POSTING_LISTS, false), new String[] { "title" });
+
+    red = save("Running shoes, red", "Running shoes red");
+    redRed = save("Red shoes with red laces and red sole", "Red shoes with red laces and red sole");
+    blue = save("Blue running shirt", "Blue running shirt");
+    redBlue = save("Blue and red shoelaces", "Blue and red shoelaces");
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    db.drop();
+  }
+
+  public void testPostingListsAreStored() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Product.description");
+    Assert.assertEquals(index.getConfiguration().field(OIndexInternal.VALUE_CONTAINER_ALGORITHM),
+        ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER);
+    Assert.assertEquals(new HashSet<OIdentifiable>((Set<OIdentifiable>) index.get("shoes")), set(red, redRed));
+    Assert.assertTrue(((OIndexFullText) index.getInternal()).isPostingListIndex());
+
+    final OIndex<?> plainIndex = db.getMetadata().getIndexManager().getIndex("Product.title");
+    Assert.assertFalse(ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER.equals(plainIndex.getConfiguration().field(
+        OIndexInternal.VALUE_CONTAINER_ALGORITHM)));
+    Assert.assertFalse(((OIndexFullText) plainIndex.getInternal()).isPostingListIndex());
+  }
+
+  public void testRankedSearch() {
+    final OIndexFullText index = (OIndexFullText) db.getMetadata().getIndexManager().getIndex("Product.description").getInternal();
+
+    final List<OIdentifiable> result = index.search("red");
+    Assert.assertEquals(result.size(), 3);
+    // WORD IS REPEATED TWICE IN THIS RECORD
+    Assert.assertEquals(result.get(0), redRed.getIdentity());
+
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("red shoes")), set(red, redRed));
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("red shoes Running")), set(red));
+    Assert.assertTrue(index.search("red missing").isEmpty());
+  }
+
+  public void testPrefixAndOr() {
+    final OIndexFullText index = (OIndexFullText) db.getMetadata().getIndexManager().getIndex("Product.description").getInternal();
+
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("shoe*")), set(red, redRed, redBlue));
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("Blue shoe*")), set(redBlue));
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("shirt OR laces")), set(blue, redRed));
+
+    final OIndexFullText plainIndex = (OIndexFullText) db.getMetadata().getIndexManager().getIndex("Product.title").getInternal();
+    Assert.assertEquals(new HashSet<OIdentifiable>(plainIndex.search("shoe*")), set(red, redRed, redBlue));
+    Assert.assertEquals(new HashSet<OIdentifiable>(plainIndex.search("shirt OR laces")), set(blue, redRed));
+  }
+
+  public void testUpdateAndDelete() {
+    final OIndexFullText index = (OIndexFullText) db.getMetadata().getIndexManager().getIndex("Product.description").getInternal();
+
+    red.field("description", "Green trail shoes");
+    red.save();
+    blue.delete();
+
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("red")), set(redRed, redBlue));
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("Green shoes")), set(red));
+    Assert.assertTrue(index.search("shirt").isEmpty());
+  }
+
+  public void testTransaction() {
+    final OIndexFullText index = (OIndexFullText) db.getMetadata().getIndexManager().getIndex("Product.description").getInternal();
+
+    db.begin();
+    final ODocument yellow = save("Yellow shoes", "Yellow shoes");
+    db.commit();
+
+    Assert.assertEquals(new HashSet<OIdentifiable>(index.search("shoes")), set(red, redRed, yellow));
+  }
+
+  public void testContainsTextQuery() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Product where description containsText 'red shoes'"));
+    Assert.assertEquals(result.size(), 2);
+    Assert.assertEquals(result.get(0).getIdentity(), redRed.getIdentity());
+  }
+
+  public void testContainsTextQueryWithoutPostingLists() {
+    // INDEX WITHOUT POSTING LISTS IS LOOKED UP BY WHOLE TEXT
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Product where title containsText 'shoes'"));
+    Assert.assertEquals(result.size(), 2);
+    Assert.assertEquals(set(result.get(0), result.get(1)), set(red, redRed));
+  }
+
+  private ODocument save(String description, String title) {
+    final ODocument document = new ODocument("Product");
+    document.field("description", description);
+    document.field("title", title);
+    document.save();
+    return document;
+  }
+
+  private static Set<OIdentifiable> set(ODocument... documents) {
+    final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+    for (ODocument document : documents)
+      result.add(document.getIdentity());
+    return result;
+  }
+}
@@ -0,0 +1,88 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OIndexStatisticsTest {
+  public void testUniformRanges() {
+    final OIndexStatistics statistics = create(uniformSample(10000, 10000), 10000, 10000, 10000);
+
+    Assert.assertEquals(statistics.getBuckets(), 100);
+    Assert.assertEquals(statistics.getFrequentValues(), 0);
+
+    Assert.assertEquals(statistics.getRangeSelectivity(null, false, 2500, false), 0.25f, 0.02f);
+    Assert.assertEquals(statistics.getRangeSelectivity(7500, true, null, false), 0.25f, 0.02f);
+    Assert.assertEquals(statistics.getRangeSelectivity(1000, true, 2000, true), 0.1f, 0.02f);
+    Assert.assertEquals(statistics.getEqualsSelectivity(1234), 0.0001f, 0.00001f);
+  }
+
+  public void testOutOfRange() {
+    final OIndexStatistics statistics = create(uniformSample(1000, 1000), 1000, 1000, 1000);
+
+    Assert.assertEquals(statistics.getFractionBelow(-10, false), 0f);
+    Assert.assertEquals(statistics.getFractionBelow(5000, false), 1f);
+    Assert.assertEquals(statistics.getRangeSelectivity(2000, false, 3000, false), 0f);
+  }
+
+  public void testFrequentValue() {
+    final Random random = new Random(42);
+    final Integer[] sample = new Integer[10000];
+    for (int i = 0; i < sample.length; i++)
+      sample[i] = i % 2 == 0 ? 7 : random.nextInt(100000);
+    Arrays.sort(sample);
+
+    final OIndexStatistics statistics = create(sample, 1000000, 500000, 500000);
+
+    Assert.assertEquals(statistics.getFrequentValues(), 1);
+    Assert.assertEquals(statistics.getEqualsSelectivity(7), 0.5f, 0.01f);
+    Assert.assertTrue(statistics.getEqualsSelectivity(8) < 0.0001f);
+
+    // THE FREQUENT VALUE IS INCLUDED ONLY BY INCLUSIVE BOUNDS
+    Assert.assertEquals(statistics.getRangeSelectivity(null, false, 7, true), 0.5f, 0.02f);
+    Assert.assertEquals(statistics.getRangeSelectivity(null, false, 7, false), 0f, 0.02f);
+    Assert.assertEquals(statistics.getRangeSelectivity(7, false, null, false), 0.5f, 0.02f);
+  }
+
+  public void testStrings() {
+    final String[] sample = new String[2600];
+    for (int i = 0; i < sample.length; i++)
+      sample[i] = String.valueOf((char) ('a' + i % 26)) + i;
+    Arrays.sort(sample);
+
+    final OIndexStatistics statistics = create(sample, 2600, 2600, 2600);
+
+    Assert.assertEquals(statistics.getRangeSelectivity("d", true, "h", false), 4 / 26f, 0.02f);
+
+    float previous = 0;
+    for (char c = 'a'; c <= 'z'; c++) {
+      final float fraction = statistics.getFractionBelow(String.valueOf(c), false);
+      Assert.assertTrue(fraction >= previous);
+      previous = fraction;
+    }
+  }
+
+  public void testEmpty() {
+    final OIndexStatistics statistics = create(new Object[0], 0, 0, 0);
+
+    Assert.assertEquals(statistics.getBuckets(), 0);
+    Assert.assertEquals(statistics.getEqualsSelectivity(1), 0f);
+    Assert.assertEquals(statistics.getRangeSelectivity(1, true, null, false), 0f);
+    Assert.assertEquals(statistics.getEntriesPerKey(), 1f);
+  }
+
+  private static OIndexStatistics create(final Object[] sample, final long entries, final long keys, final long distinctValues) {
+    return new OIndexStatistics(Collections.singletonList("value"), entries, keys, distinctValues, sample, 100);
+  }
+
+  private static Integer[] uniformSample(final int size, final int values) {
+    final Integer[] sample = new Integer[size];
+    for (int i = 0; i < size; i++)
+      sample[i] = i * values / size;
+    return sample;
+  }
+}
@@ -0,0 +1,132 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+
+@Test
+public class OPartialIndexTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    db = new ODatabaseDocumentTx("memory:partialIndexTest");
+    db.create();
+
+    final OClass task = db.getMetadata().getSchema().createClass("Task");
+    task.createProperty("name", OType.STRING);
+    task.createProperty("code", OType.INTEGER);
+    task.createProperty("status", OType.STRING);
+
+    db.command(new OCommandSQL("create index Task.activeName on Task (name) notunique where status = 'active'")).execute();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    db.drop();
+  }
+
+  public void testOnlyMatchingDocumentsAreIndexed() {
+    createTasks(100);
+
+    final OIndex<?> index = getIndex();
+    Assert.assertEquals(index.getDefinition().getFilter(), "status = 'active'");
+    Assert.assertEquals(index.getSize(), 10);
+    Assert.assertNotNull(index.get("task10"));
+    Assert.assertTrue(((Collection<?>) index.get("task11")).isEmpty());
+  }
+
+  public void testUpdateMovesDocumentInAndOutOfIndex() {
+    createTasks(20);
+
+    db.command(new OCommandSQL("update Task set status = 'active' where name = 'task11'")).execute();
+    Assert.assertEquals(getIndex().getSize(), 3);
+    Assert.assertEquals(((Collection<?>) getIndex().get("task11")).size(), 1);
+
+    db.command(new OCommandSQL("update Task set status = 'closed' where name = 'task10'")).execute();
+    Assert.assertEquals(getIndex().getSize(), 2);
+    Assert.assertTrue(((Collection<?>) getIndex().get("task10")).isEmpty());
+
+    db.command(new OCommandSQL("update Task set name = 'renamed' where name = 'task0'")).execute();
+    Assert.assertEquals(getIndex().getSize(), 2);
+    Assert.assertTrue(((Collection<?>) getIndex().get("task0")).isEmpty());
+    Assert.assertEquals(((Collection<?>) getIndex().get("renamed")).size(), 1);
+  }
+
+  public void testDeleteRemovesOnlyIndexedDocuments() {
+    createTasks(20);
+
+    db.command(new OCommandSQL("delete from Task where name = 'task1'")).execute();
+    Assert.assertEquals(getIndex().getSize(), 2);
+
+    db.command(new OCommandSQL("delete from Task where name = 'task10'")).execute();
+    Assert.assertEquals(getIndex().getSize(), 1);
+  }
+
+  public void testRebuild() {
+    createTasks(100);
+
+    getIndex().rebuild();
+    Assert.assertEquals(getIndex().getSize(), 10);
+  }
+
+  public void testUniqueConstraintOnlyAmongIndexedDocuments() {
+    db.command(new OCommandSQL("create index Task.activeCode on Task (code) unique where status = 'active'")).execute();
+
+    new ODocument("Task").field("code", 1).field("status", "closed").save();
+    new ODocument("Task").field("code", 1).field("status", "closed").save();
+    new ODocument("Task").field("code", 1).field("status", "active").save();
+
+    try {
+      new ODocument("Task").field("code", 1).field("status", "active").save();
+      Assert.fail();
+    } catch (ORecordDuplicatedException e) {
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testQueryUsesIndexOnlyIfConditionImpliesFilter() {
+    createTasks(100);
+
+    List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Task where name = 'task10' and status = 'active'"));
+    Assert.assertEquals(result.size(), 1);
+
+    ODocument explain = db.command(new OCommandSQL("explain select from Task where name = 'task10' and status = 'active'"))
+        .execute();
+    Assert.assertTrue(((Set<String>) explain.field("involvedIndexes")).contains("Task.activeName"));
+
+    // THE PARTIAL INDEX DOESN'T CONTAIN THE INACTIVE TASKS, SO IT CAN'T BE USED
+    result = db.query(new OSQLSynchQuery<ODocument>("select from Task where name = 'task11'"));
+    Assert.assertEquals(result.size(), 1);
+
+    explain = db.command(new OCommandSQL("explain select from Task where name = 'task11'")).execute();
+    Assert.assertNull(explain.field("involvedIndexes"));
+  }
+
+  private void createTasks(final int count) {
+    for (int i = 0; i < count; i++) {
+      final ODocument task = new ODocument("Task");
+      task.field("name", "task" + i);
+      task.field("code", i);
+      task.field("status", i % 10 == 0 ? "active" : "closed");
+      task.save();
+    }
+  }
+
+  private OIndex<?> getIndex() {
+    return db.getMetadata().getIndexManager().getIndex("Task.activeName");
+  }
+}
@@ -109,6 +109,45 @@ public class OPropertyIndexDefinitionTest {
     Assert.assertEquals(result, propertyIndex);
   }
 
+  @Test
+  public void testIndexReloadWithFilter() {
+    propertyIndex.setFilter("status = 'active'");
+
+    final ODocument docToStore = propertyIndex.toStream();
+
+    final OPropertyIndexDefinition result = new OPropertyIndexDefinition();
+    result.fromStream(docToStore);
+
+    Assert.assertEquals(result, propertyIndex);
+    Assert.assertEquals(result.getFilter(), "status = 'active'");
+  }
+
+  @Test
+  public void testIsDocumentIndexed() {
+    final ODocument document = new ODocument();
+    document.field("fOne", 15);
+    document.field("status", "active");
+
+    Assert.assertTrue(propertyIndex.isDocumentIndexed(document));
+
+    propertyIndex.setFilter("status = 'active'");
+    Assert.assertTrue(propertyIndex.isDocumentIndexed(document));
+
+    document.field("status", "closed");
+    Assert.assertFalse(propertyIndex.isDocumentIndexed(document));
+
+    document.removeField("status");
+    Assert.assertFalse(propertyIndex.isDocumentIndexed(document));
+  }
+
+  @Test
+  public void testCreateIndexDDLWithFilter() {
+    propertyIndex.setFilter("status = 'active'");
+
+    final String ddl = propertyIndex.toCreateIndexDDL("testIndex", "notunique");
+    Assert.assertEquals(ddl, "create index testIndex on testClass ( fOne ) notunique INTEGER where status = 'active'");
+  }
+
   @Test
   public void testGetParamCount() {
     Assert.assertEquals(propertyIndex.getParamCount(), 1);
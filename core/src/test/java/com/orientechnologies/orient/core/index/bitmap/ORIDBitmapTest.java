@@ -0,0 +1,95 @@
+package com.orientechnologies.orient.core.index.bitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRIDBitmap;
+
+@Test
+public class ORIDBitmapTest {
+  public void testIterationOrder() {
+    final ORIDBitmap bitmap = bitmap(rid(9, 3), rid(2, 100000), rid(2, 7), rid(9, 1));
+
+    Assert.assertEquals(bitmap.size(), 4);
+    Assert.assertEquals(new ArrayList<OIdentifiable>(bitmap), list(rid(2, 7), rid(2, 100000), rid(9, 1), rid(9, 3)));
+
+    Assert.assertTrue(bitmap.remove(rid(2, 7)));
+    Assert.assertTrue(bitmap.remove(rid(2, 100000)));
+    Assert.assertFalse(bitmap.contains(rid(2, 7)));
+    Assert.assertEquals(new ArrayList<OIdentifiable>(bitmap), list(rid(9, 1), rid(9, 3)));
+  }
+
+  public void testOperations() {
+    final ORIDBitmap bitmapOne = bitmap(rid(1, 1), rid(1, 2), rid(2, 1), rid(3, 5));
+    final ORIDBitmap bitmapTwo = bitmap(rid(1, 2), rid(2, 2), rid(3, 5), rid(4, 1));
+
+    Assert.assertEquals(new ArrayList<OIdentifiable>(ORIDBitmap.and(bitmapOne, bitmapTwo)), list(rid(1, 2), rid(3, 5)));
+    Assert.assertEquals(new ArrayList<OIdentifiable>(ORIDBitmap.or(bitmapOne, bitmapTwo)),
+        list(rid(1, 1), rid(1, 2), rid(2, 1), rid(2, 2), rid(3, 5), rid(4, 1)));
+    Assert.assertEquals(new ArrayList<OIdentifiable>(ORIDBitmap.andNot(bitmapOne, bitmapTwo)), list(rid(1, 1), rid(2, 1)));
+  }
+
+  public void testSerialization() throws Exception {
+    final ORIDBitmap bitmap = new ORIDBitmap();
+    for (int i = 0; i < 10000; i++)
+      bitmap.add(rid(i % 3, i * 7));
+
+    final byte[] stream = OStreamSerializerRIDBitmap.INSTANCE.toStream(bitmap);
+    final ORIDBitmap loaded = (ORIDBitmap) OStreamSerializerRIDBitmap.INSTANCE.fromStream(stream);
+    Assert.assertEquals(loaded, bitmap);
+
+    final byte[] binary = new byte[OStreamSerializerRIDBitmap.INSTANCE.getObjectSize(bitmap) + 2];
+    OStreamSerializerRIDBitmap.INSTANCE.serializeNative(bitmap, binary, 2);
+    Assert.assertEquals(OStreamSerializerRIDBitmap.INSTANCE.deserializeNative(binary, 2), bitmap);
+  }
+
+  public void testSplitAndMerge() {
+    final ORIDBitmap bitmap = bitmap(rid(9, 3), rid(2, 100000), rid(2, 7), rid(9, 1), rid(2, 65536), rid(2, 65535));
+
+    final List<ORIDBitmap> chunks = bitmap.split();
+    Assert.assertEquals(chunks.size(), 3);
+    Assert.assertEquals(new ArrayList<OIdentifiable>(chunks.get(0)), list(rid(2, 7), rid(2, 65535)));
+    Assert.assertEquals(new ArrayList<OIdentifiable>(chunks.get(1)), list(rid(2, 65536), rid(2, 100000)));
+    Assert.assertEquals(new ArrayList<OIdentifiable>(chunks.get(2)), list(rid(9, 1), rid(9, 3)));
+
+    final ORIDBitmap merged = new ORIDBitmap();
+    for (int i = chunks.size() - 1; i >= 0; i--)
+      merged.merge(chunks.get(i));
+    merged.merge(bitmap(rid(2, 8), rid(9, 1)));
+
+    Assert.assertEquals(merged, ORIDBitmap.or(bitmap, bitmap(rid(2, 8))));
+
+    // CHUNKS DO NOT SHARE CONTAINERS WITH THE MERGED BITMAP
+    merged.remove(rid(9, 3));
+    Assert.assertTrue(chunks.get(2).contains(rid(9, 3)));
+  }
+
+  @Test(expectedExceptions = OIndexException.class)
+  public void testNotPersistentRecordIsRejected() {
+    new ORIDBitmap().add(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(-2)));
+  }
+
+  private static ORIDBitmap bitmap(final ORecordId... rids) {
+    final ORIDBitmap bitmap = new ORIDBitmap();
+    for (ORecordId rid : rids)
+      bitmap.add(rid);
+
+    return bitmap;
+  }
+
+  private static List<OIdentifiable> list(final ORecordId... rids) {
+    return new ArrayList<OIdentifiable>(Arrays.asList(rids));
+  }
+
+  private static ORecordId rid(final int clusterId, final long position) {
+    return new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(position));
+  }
+}
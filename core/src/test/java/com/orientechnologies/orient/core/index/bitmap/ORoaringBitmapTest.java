@@ -0,0 +1,170 @@
+package com.orientechnologies.orient.core.index.bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class ORoaringBitmapTest {
+  public void testAddRemoveContains() {
+    final ORoaringBitmap bitmap = new ORoaringBitmap();
+
+    Assert.assertTrue(bitmap.add(5));
+    Assert.assertTrue(bitmap.add(70000));
+    Assert.assertTrue(bitmap.add(1));
+    Assert.assertFalse(bitmap.add(5));
+
+    Assert.assertEquals(bitmap.getCardinality(), 3);
+    Assert.assertTrue(bitmap.contains(70000));
+    Assert.assertFalse(bitmap.contains(70001));
+
+    Assert.assertTrue(bitmap.remove(70000));
+    Assert.assertFalse(bitmap.remove(70000));
+    Assert.assertEquals(toList(bitmap), list(1, 5));
+
+    Assert.assertTrue(bitmap.remove(1));
+    Assert.assertTrue(bitmap.remove(5));
+    Assert.assertTrue(bitmap.isEmpty());
+  }
+
+  public void testDenseChunkConversion() {
+    final ORoaringBitmap bitmap = new ORoaringBitmap();
+    final TreeSet<Long> expected = new TreeSet<Long>();
+
+    // MORE THAN ARRAY CONTAINER CAN HOLD, SO CHUNK IS CONVERTED TO BITMAP AND BACK
+    for (long i = 0; i < ORoaringBitmap.ARRAY_CONTAINER_MAX_SIZE * 2; i += 2) {
+      bitmap.add(i);
+      expected.add(i);
+    }
+    Assert.assertEquals(toList(bitmap), new ArrayList<Long>(expected));
+
+    for (long i = 0; i < ORoaringBitmap.ARRAY_CONTAINER_MAX_SIZE; i += 2) {
+      bitmap.remove(i);
+      expected.remove(i);
+    }
+    Assert.assertEquals(toList(bitmap), new ArrayList<Long>(expected));
+    Assert.assertEquals(bitmap, fromStream(bitmap));
+  }
+
+  public void testOperationsAndSerialization() {
+    final Random random = new Random();
+    final long seed = random.nextLong();
+    System.out.println("testOperationsAndSerialization seed : " + seed);
+    random.setSeed(seed);
+
+    for (int n = 0; n < 20; n++) {
+      final ORoaringBitmap bitmapOne = new ORoaringBitmap();
+      final ORoaringBitmap bitmapTwo = new ORoaringBitmap();
+      final TreeSet<Long> expectedOne = new TreeSet<Long>();
+      final TreeSet<Long> expectedTwo = new TreeSet<Long>();
+
+      // MIX OF SPARSE AND DENSE CHUNKS
+      final int range = random.nextBoolean() ? 1 << 18 : 1 << 24;
+      final int count = random.nextInt(30000);
+      for (int i = 0; i < count; i++) {
+        final long valueOne = random.nextInt(range);
+        final long valueTwo = random.nextInt(range);
+
+        bitmapOne.add(valueOne);
+        expectedOne.add(valueOne);
+
+        bitmapTwo.add(valueTwo);
+        expectedTwo.add(valueTwo);
+      }
+
+      Assert.assertEquals(bitmapOne.getCardinality(), expectedOne.size());
+      Assert.assertEquals(toList(fromStream(bitmapOne)), new ArrayList<Long>(expectedOne));
+
+      final TreeSet<Long> and = new TreeSet<Long>(expectedOne);
+      and.retainAll(expectedTwo);
+      Assert.assertEquals(toList(ORoaringBitmap.and(bitmapOne, bitmapTwo)), new ArrayList<Long>(and));
+
+      final TreeSet<Long> or = new TreeSet<Long>(expectedOne);
+      or.addAll(expectedTwo);
+      Assert.assertEquals(toList(ORoaringBitmap.or(bitmapOne, bitmapTwo)), new ArrayList<Long>(or));
+
+      final TreeSet<Long> andNot = new TreeSet<Long>(expectedOne);
+      andNot.removeAll(expectedTwo);
+      Assert.assertEquals(toList(ORoaringBitmap.andNot(bitmapOne, bitmapTwo)), new ArrayList<Long>(andNot));
+
+      // ARGUMENTS ARE NOT CHANGED
+      Assert.assertEquals(toList(bitmapOne), new ArrayList<Long>(expectedOne));
+      Assert.assertEquals(toList(bitmapTwo), new ArrayList<Long>(expectedTwo));
+    }
+  }
+
+  public void testSplitAndMerge() {
+    final Random random = new Random(42);
+    final ORoaringBitmap bitmap = new ORoaringBitmap();
+    final TreeSet<Long> expected = new TreeSet<Long>();
+
+    // DENSE AND SPARSE CHUNKS
+    for (int i = 0; i < 20000; i++) {
+      final long value = i < 10000 ? random.nextInt(20000) : random.nextInt(1000000);
+      bitmap.add(value);
+      expected.add(value);
+    }
+
+    final List<ORoaringBitmap> chunks = bitmap.split();
+    final ORoaringBitmap merged = new ORoaringBitmap();
+    long previousChunk = -1;
+    for (ORoaringBitmap chunk : chunks) {
+      final List<Long> values = toList(chunk);
+      final long chunkId = ORoaringBitmap.getChunk(values.get(0));
+      Assert.assertEquals(ORoaringBitmap.getChunk(values.get(values.size() - 1)), chunkId);
+      Assert.assertTrue(chunkId > previousChunk);
+      previousChunk = chunkId;
+
+      merged.merge(chunk);
+    }
+
+    Assert.assertEquals(toList(merged), new ArrayList<Long>(expected));
+
+    final ORoaringBitmap other = new ORoaringBitmap();
+    for (int i = 0; i < 5000; i++) {
+      final long value = random.nextInt(2000000);
+      other.add(value);
+      expected.add(value);
+    }
+
+    merged.merge(other);
+    Assert.assertEquals(toList(merged), new ArrayList<Long>(expected));
+    Assert.assertEquals(toList(bitmap).size(), bitmap.getCardinality());
+  }
+
+  public void testLargePositions() {
+    final ORoaringBitmap bitmap = new ORoaringBitmap();
+    bitmap.add(Long.MAX_VALUE);
+    bitmap.add(1L << 40);
+    bitmap.add(0);
+
+    Assert.assertEquals(toList(fromStream(bitmap)), list(0, 1L << 40, Long.MAX_VALUE));
+  }
+
+  private static ORoaringBitmap fromStream(final ORoaringBitmap bitmap) {
+    final byte[] stream = new byte[bitmap.getSerializedSize() + 3];
+    Assert.assertEquals(bitmap.toStream(stream, 3), stream.length);
+    return ORoaringBitmap.fromStream(stream, 3);
+  }
+
+  private static List<Long> toList(final ORoaringBitmap bitmap) {
+    final List<Long> values = new ArrayList<Long>();
+    final ORoaringBitmap.Cursor cursor = bitmap.cursor();
+    while (cursor.hasNext())
+      values.add(cursor.next());
+
+    return values;
+  }
+
+  private static List<Long> list(final long... values) {
+    final List<Long> list = new ArrayList<Long>();
+    for (long value : values)
+      list.add(value);
+
+    return list;
+  }
+}
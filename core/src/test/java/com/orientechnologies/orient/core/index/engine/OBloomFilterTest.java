@@ -0,0 +1,118 @@
+package com.orientechnologies.orient.core.index.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.hash.OMurmurHash3;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+
+@Test
+public class OBloomFilterTest {
+  public void testNoFalseNegatives() {
+    final OBloomFilter filter = new OBloomFilter(1000, 0.01);
+
+    for (long i = 0; i < 1000; i++)
+      filter.add(hash(i));
+
+    for (long i = 0; i < 1000; i++)
+      Assert.assertTrue(filter.mightContain(hash(i)));
+
+    Assert.assertEquals(filter.getAddedKeys(), 1000);
+  }
+
+  public void testFalsePositiveRate() {
+    final OBloomFilter filter = new OBloomFilter(10000, 0.01);
+
+    for (long i = 0; i < 10000; i++)
+      filter.add(hash(i));
+
+    int falsePositives = 0;
+    for (long i = 10000; i < 110000; i++)
+      if (filter.mightContain(hash(i)))
+        falsePositives++;
+
+    Assert.assertTrue(falsePositives < 1000, "False positives " + falsePositives);
+  }
+
+  public void testGrowth() {
+    final OBloomFilter filter = new OBloomFilter(100, 0.01);
+    final long initialSize = filter.getSizeInBytes();
+
+    // 31 TIMES MORE KEYS THAN THE FIRST LAYER IS SIZED FOR, SO FOUR MORE LAYERS ARE ADDED
+    for (long i = 0; i < 3100; i++)
+      filter.add(hash(i));
+
+    Assert.assertTrue(filter.getSizeInBytes() > initialSize * 16);
+
+    for (long i = 0; i < 3100; i++)
+      Assert.assertTrue(filter.mightContain(hash(i)));
+
+    int falsePositives = 0;
+    for (long i = 3100; i < 103100; i++)
+      if (filter.mightContain(hash(i)))
+        falsePositives++;
+
+    Assert.assertTrue(falsePositives < 1000, "False positives " + falsePositives);
+  }
+
+  public void testClear() {
+    final OBloomFilter filter = new OBloomFilter(100, 0.01);
+    final long initialSize = filter.getSizeInBytes();
+
+    for (long i = 0; i < 1000; i++)
+      filter.add(hash(i));
+
+    filter.clear();
+
+    Assert.assertEquals(filter.getAddedKeys(), 0);
+    Assert.assertEquals(filter.getSizeInBytes(), initialSize);
+    Assert.assertFalse(filter.mightContain(hash(1)));
+  }
+
+  public void testSerialization() throws Exception {
+    final OBloomFilter filter = new OBloomFilter(100, 0.01);
+    final Random random = new Random(42);
+
+    final long[] hashes = new long[500];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = random.nextLong();
+      filter.add(hashes[i]);
+    }
+
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    final DataOutputStream output = new DataOutputStream(stream);
+    filter.toStream(output);
+    output.close();
+
+    final OBloomFilter restored = OBloomFilter.fromStream(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+
+    Assert.assertEquals(restored.getAddedKeys(), filter.getAddedKeys());
+    Assert.assertEquals(restored.getSizeInBytes(), filter.getSizeInBytes());
+
+    for (long hash : hashes)
+      Assert.assertTrue(restored.mightContain(hash));
+
+    for (int i = 0; i < 1000; i++) {
+      final long hash = random.nextLong();
+      Assert.assertEquals(restored.mightContain(hash), filter.mightContain(hash));
+    }
+
+    // RESTORED FILTER KEEPS GROWING
+    for (int i = 0; i < 1000; i++)
+      restored.add(random.nextLong());
+
+    Assert.assertTrue(restored.getSizeInBytes() > filter.getSizeInBytes());
+  }
+
+  private static long hash(final long key) {
+    final byte[] serializedKey = new byte[OLongSerializer.LONG_SIZE];
+    OLongSerializer.INSTANCE.serializeNative(key, serializedKey, 0);
+    return OMurmurHash3.murmurHash3_x64_64(serializedKey, 0);
+  }
+}
@@ -0,0 +1,142 @@
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerFullTextPostingList;
+
+@Test
+public class OFullTextPostingListTest {
+  public void testAddRemove() {
+    final OFullTextPostingList postingList = new OFullTextPostingList();
+
+    Assert.assertTrue(postingList.add(rid(3, 10)));
+    Assert.assertTrue(postingList.add(rid(1, 5)));
+    Assert.assertTrue(postingList.add(rid(3, 2)));
+    Assert.assertFalse(postingList.add(rid(1, 5)));
+
+    Assert.assertEquals(postingList.size(), 3);
+    Assert.assertTrue(postingList.contains(rid(3, 2)));
+    Assert.assertFalse(postingList.contains(rid(2, 2)));
+
+    final List<OIdentifiable> expected = new ArrayList<OIdentifiable>(Arrays.asList(rid(1, 5), rid(3, 2), rid(3, 10)));
+    Assert.assertEquals(new ArrayList<OIdentifiable>(postingList), expected);
+
+    Assert.assertTrue(postingList.remove(rid(3, 2)));
+    Assert.assertFalse(postingList.remove(rid(3, 2)));
+    expected.remove(1);
+    Assert.assertEquals(new ArrayList<OIdentifiable>(postingList), expected);
+  }
+
+  public void testSerializationAndSkips() throws Exception {
+    final Random random = new Random();
+    final long seed = random.nextLong();
+    System.out.println("testSerializationAndSkips seed : " + seed);
+    random.setSeed(seed);
+
+    final TreeMap<ORecordId, Integer> expected = new TreeMap<ORecordId, Integer>();
+    final OFullTextPostingList postingList = new OFullTextPostingList();
+    for (int i = 0; i < 10000; i++) {
+      final ORecordId rid = rid(random.nextInt(5), random.nextInt(1000000));
+      final int frequency = random.nextInt(10) + 1;
+
+      postingList.put(rid, frequency);
+      expected.put(rid, frequency);
+    }
+
+    final byte[] stream = OStreamSerializerFullTextPostingList.INSTANCE.toStream(postingList);
+    final OFullTextPostingList loaded = (OFullTextPostingList) OStreamSerializerFullTextPostingList.INSTANCE.fromStream(stream);
+    Assert.assertEquals(loaded.size(), expected.size());
+
+    OFullTextPostingList.Cursor cursor = loaded.cursor();
+    for (Map.Entry<ORecordId, Integer> entry : expected.entrySet()) {
+      Assert.assertTrue(cursor.next());
+      Assert.assertEquals(cursor.getIdentity(), entry.getKey());
+      Assert.assertEquals(cursor.getFrequency(), entry.getValue().intValue());
+    }
+    Assert.assertFalse(cursor.next());
+
+    for (OFullTextPostingList list : new OFullTextPostingList[] { postingList, loaded }) {
+      cursor = list.cursor();
+      ORecordId target = rid(0, 0);
+      while (true) {
+        target = rid(target.getClusterId(), target.getClusterPosition().longValue() + random.nextInt(20000));
+        final ORecordId ceiling = expected.ceilingKey(target);
+        if (ceiling == null) {
+          Assert.assertFalse(cursor.advance(target.getClusterId(), target.getClusterPosition().longValue()));
+          break;
+        }
+
+        Assert.assertTrue(cursor.advance(target.getClusterId(), target.getClusterPosition().longValue()));
+        Assert.assertEquals(cursor.getIdentity(), ceiling);
+        Assert.assertEquals(cursor.getFrequency(), expected.get(ceiling).intValue());
+
+        target = ceiling;
+      }
+    }
+
+    final ORecordId first = expected.firstKey();
+    Assert.assertTrue(loaded.contains(first));
+    Assert.assertTrue(loaded.remove(first));
+    Assert.assertFalse(loaded.contains(first));
+    Assert.assertEquals(loaded.size(), expected.size() - 1);
+  }
+
+  public void testMerge() {
+    final OFullTextPostingList listOne = new OFullTextPostingList();
+    listOne.put(rid(1, 1), 2);
+    listOne.put(rid(1, 7), 1);
+
+    final OFullTextPostingList listTwo = new OFullTextPostingList();
+    listTwo.put(rid(1, 7), 3);
+    listTwo.put(rid(2, 0), 1);
+
+    final OFullTextPostingList merged = OFullTextPostingList.merge(Arrays.asList(listOne, listTwo));
+    Assert.assertEquals(merged.size(), 3);
+
+    final OFullTextPostingList.Cursor cursor = merged.cursor();
+    Assert.assertTrue(cursor.next());
+    Assert.assertEquals(cursor.getIdentity(), rid(1, 1));
+    Assert.assertEquals(cursor.getFrequency(), 2);
+    Assert.assertTrue(cursor.next());
+    Assert.assertEquals(cursor.getIdentity(), rid(1, 7));
+    Assert.assertEquals(cursor.getFrequency(), 4);
+    Assert.assertTrue(cursor.next());
+    Assert.assertEquals(cursor.getIdentity(), rid(2, 0));
+    Assert.assertFalse(cursor.next());
+  }
+
+  public void testIteratorRemove() throws Exception {
+    final OFullTextPostingList postingList = new OFullTextPostingList();
+    for (int i = 0; i < 200; i++)
+      postingList.add(rid(1, i));
+
+    final OFullTextPostingList loaded = (OFullTextPostingList) OStreamSerializerFullTextPostingList.INSTANCE
+        .fromStream(postingList.toStream());
+
+    final Iterator<OIdentifiable> iterator = loaded.iterator();
+    while (iterator.hasNext())
+      if (iterator.next().getIdentity().getClusterPosition().longValue() % 2 == 0)
+        iterator.remove();
+
+    final OFullTextPostingList reloaded = new OFullTextPostingList(loaded.toStream());
+    Assert.assertEquals(reloaded.size(), 100);
+    for (OIdentifiable identifiable : reloaded)
+      Assert.assertEquals(identifiable.getIdentity().getClusterPosition().longValue() % 2, 1);
+  }
+
+  private static ORecordId rid(int clusterId, long position) {
+    return new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(position));
+  }
+}
@@ -0,0 +1,250 @@
+package com.orientechnologies.orient.core.index.hashindex.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * All keys of these tests have the same bucket in the first level of directory (see {@link SameBucketHashFunction}), so every
+ * thread puts and removes keys in the bucket which is split or merged by other threads. Amount of keys is several times bigger than
+ * bucket capacity, so puts split this bucket several times and removal of most of keys merges split buckets back.
+ */
+@Test
+public class LocalHashTableConcurrentModificationsTest {
+  private static final int                        THREADS         = 8;
+  private static final int                        KEYS_PER_THREAD = 2000;
+  private static final int                        KEYS            = THREADS * KEYS_PER_THREAD;
+
+  private OLocalPaginatedStorage                  storage;
+  private OLocalHashTable<Integer, OIdentifiable> localHashTable;
+  private String                                  buildDirectory;
+  private Object                                  concurrentModifications;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    concurrentModifications = OGlobalConfiguration.HASH_TABLE_CONCURRENT_MODIFICATIONS.getValue();
+    OGlobalConfiguration.HASH_TABLE_CONCURRENT_MODIFICATIONS.setValue(Boolean.TRUE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.HASH_TABLE_CONCURRENT_MODIFICATIONS.setValue(concurrentModifications);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/localHashTableConcurrentModificationsTest");
+    storage.create(null);
+
+    localHashTable = new OLocalHashTable<Integer, OIdentifiable>(".imc", ".tsc", ".obf", ".nbh", new SameBucketHashFunction(), true);
+    localHashTable.create("localHashTableConcurrentModifications", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        storage, false);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    localHashTable.delete();
+    storage.delete();
+  }
+
+  public void testConcurrentPutsSplitBucket() throws Exception {
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int n = 0; n < THREADS; n++) {
+      final int thread = n;
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            final int key = thread * KEYS_PER_THREAD + i;
+            localHashTable.put(key, value(key));
+
+            Assert.assertEquals(localHashTable.get(key), value(key));
+          }
+
+          // all keys of thread should survive splits done by other threads
+          for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            final int key = thread * KEYS_PER_THREAD + i;
+            Assert.assertEquals(localHashTable.get(key), value(key));
+          }
+
+          return null;
+        }
+      });
+    }
+
+    run(tasks);
+
+    assertContent(KEYS, 1, 0);
+  }
+
+  public void testConcurrentRemovesMergeBuckets() throws Exception {
+    for (int key = 0; key < KEYS; key++)
+      localHashTable.put(key, value(key));
+
+    // only each 8th key is left, so content of split buckets drops below merge threshold, other keys of the same buckets are
+    // updated meanwhile
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int n = 0; n < THREADS; n++) {
+      final int thread = n;
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            final int key = thread * KEYS_PER_THREAD + i;
+
+            if (key % 8 == 0)
+              localHashTable.put(key, value(key + 1));
+            else
+              Assert.assertEquals(localHashTable.remove(key), value(key));
+          }
+
+          return null;
+        }
+      });
+    }
+
+    run(tasks);
+
+    assertContent(KEYS, 8, 1);
+  }
+
+  public void testConcurrentSplitsAndMerges() throws Exception {
+    // keys of odd threads are loaded and removed, keys of even threads are inserted
+    for (int key = 0; key < KEYS; key++)
+      if ((key / KEYS_PER_THREAD & 1) == 1)
+        localHashTable.put(key, value(key));
+
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int n = 0; n < THREADS; n++) {
+      final int thread = n;
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            final int key = thread * KEYS_PER_THREAD + i;
+
+            if ((thread & 1) == 1)
+              Assert.assertEquals(localHashTable.remove(key), value(key));
+            else
+              localHashTable.put(key, value(key));
+          }
+
+          return null;
+        }
+      });
+    }
+
+    run(tasks);
+
+    long size = 0;
+    for (int key = 0; key < KEYS; key++) {
+      if ((key / KEYS_PER_THREAD & 1) == 1)
+        Assert.assertNull(localHashTable.get(key));
+      else {
+        Assert.assertEquals(localHashTable.get(key), value(key));
+        size++;
+      }
+    }
+
+    Assert.assertEquals(localHashTable.size(), size);
+    assertIteratedKeys(size);
+  }
+
+  /**
+   * Checks that each <code>step</code> key is present with value shifted by <code>valueShift</code> and all other keys are absent.
+   */
+  private void assertContent(int keys, int step, int valueShift) {
+    for (int key = 0; key < keys; key++) {
+      if (key % step == 0)
+        Assert.assertEquals(localHashTable.get(key), value(key + valueShift));
+      else
+        Assert.assertNull(localHashTable.get(key));
+    }
+
+    Assert.assertEquals(localHashTable.size(), keys / step);
+    assertIteratedKeys(keys / step);
+  }
+
+  private void assertIteratedKeys(long keysCount) {
+    long count = 0;
+
+    OHashIndexBucket.Entry<Integer, OIdentifiable> firstEntry = localHashTable.firstEntry();
+    if (firstEntry != null) {
+      count++;
+
+      OHashIndexBucket.Entry<Integer, OIdentifiable>[] entries = localHashTable.higherEntries(firstEntry.key);
+      while (entries.length > 0) {
+        count += entries.length;
+        entries = localHashTable.higherEntries(entries[entries.length - 1].key);
+      }
+    }
+
+    Assert.assertEquals(count, keysCount);
+  }
+
+  private void run(List<Callable<Void>> tasks) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (final Callable<Void> task : tasks)
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          latch.await();
+          return task.call();
+        }
+      }));
+
+    latch.countDown();
+    try {
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static ORecordId value(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+
+  /**
+   * Puts all keys into the same bucket of the first level of directory (the highest {@link OLocalHashTable#MAX_LEVEL_DEPTH} bits
+   * of hash code are always zero), the following bits are reversed bits of the key, so splits of this bucket distribute
+   * consecutive keys between new buckets.
+   */
+  private static final class SameBucketHashFunction implements OHashFunction<Integer> {
+    @Override
+    public long hashCode(Integer value) {
+      return Long.reverse(value.longValue()) >>> OLocalHashTable.MAX_LEVEL_DEPTH;
+    }
+  }
+}
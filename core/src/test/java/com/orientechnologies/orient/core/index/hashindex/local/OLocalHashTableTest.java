@@ -14,7 +14,10 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -210,6 +213,29 @@ public class OLocalHashTableTest {
     }
   }
 
+  public void testGetAll() throws IOException {
+    for (int i = 0; i < KEYS_COUNT; i += 2)
+      localHashTable.put(i, i + "");
+
+    localHashTable.put(null, "null");
+
+    final List<Integer> keys = new ArrayList<Integer>();
+    for (int i = 0; i < 10000; i++)
+      keys.add(i * 7);
+    keys.add(null);
+
+    final Map<Integer, String> values = localHashTable.getAll(keys);
+    for (int i = 0; i < 10000; i++) {
+      if (i * 7 % 2 == 0)
+        Assert.assertEquals(values.get(i * 7), i * 7 + "");
+      else
+        Assert.assertFalse(values.containsKey(i * 7));
+    }
+
+    Assert.assertEquals(values.get(null), "null");
+    Assert.assertEquals(values.size(), 5001);
+  }
+
   public void testKeyPutRemoveNullKey() throws IOException {
     for (int i = 0; i < 10; i++)
       localHashTable.put(i, i + "");
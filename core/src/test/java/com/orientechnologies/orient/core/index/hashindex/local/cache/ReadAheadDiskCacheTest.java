@@ -0,0 +1,187 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class ReadAheadDiskCacheTest {
+  private static final int       PAGE_COUNT   = 200;
+  private static final int       CACHE_SIZE   = 256;
+  private static final int       READ_AHEAD   = 16;
+
+  private final int              systemOffset = OIntegerSerializer.INT_SIZE + 3 * OLongSerializer.LONG_SIZE;
+  private final int              pageSize     = 8 + systemOffset;
+
+  private ODiskCache             buffer;
+  private OLocalPaginatedStorage storageLocal;
+  private String                 fileName;
+  private byte                   seed;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/ReadAheadDiskCacheTest");
+    storageLocal.create(null);
+
+    fileName = "readAheadDiskCacheTest.tst";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    seed = (byte) (new Random().nextInt() & 0xFF);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    if (buffer != null) {
+      buffer.close();
+      buffer = null;
+    }
+
+    File testFile = new File(storageLocal.getConfiguration().getDirectory() + "/" + fileName);
+    if (testFile.exists())
+      Assert.assertTrue(testFile.delete());
+
+    File idMapFile = new File(storageLocal.getConfiguration().getDirectory() + "/name_id_map.cm");
+    if (idMapFile.exists())
+      Assert.assertTrue(idMapFile.delete());
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    storageLocal.delete();
+  }
+
+  public void testSequentialReadIsPrefetchedIntoAIn() throws Exception {
+    final OReadWriteDiskCache readWriteDiskCache = new OReadWriteDiskCache(null, CACHE_SIZE * pageSize, 15000 * pageSize, pageSize,
+        10000, -1, storageLocal, null, true, false, READ_AHEAD);
+    buffer = readWriteDiskCache;
+
+    final long fileId = writePages();
+    final ReadAheadPrefetcher readAhead = readWriteDiskCache.getReadAhead();
+
+    for (int i = 0; i <= ReadAheadPrefetcher.SEQUENTIAL_THRESHOLD; i++)
+      assertPage(fileId, i);
+
+    waitForPrefetchedPages(readAhead, READ_AHEAD);
+
+    final LRUList a1in = readWriteDiskCache.getA1in();
+    for (int i = ReadAheadPrefetcher.SEQUENTIAL_THRESHOLD + 1; i <= ReadAheadPrefetcher.SEQUENTIAL_THRESHOLD + READ_AHEAD; i++)
+      Assert.assertNotNull(a1in.get(fileId, i), "page " + i);
+
+    for (int i = ReadAheadPrefetcher.SEQUENTIAL_THRESHOLD + 1; i < PAGE_COUNT; i++)
+      assertPage(fileId, i);
+
+    Assert.assertEquals(readWriteDiskCache.getAm().size(), 0);
+    Assert.assertTrue(readAhead.getPrefetchedPages() >= READ_AHEAD);
+  }
+
+  public void testRandomReadIsNotPrefetched() throws Exception {
+    final OReadWriteDiskCache readWriteDiskCache = new OReadWriteDiskCache(null, CACHE_SIZE * pageSize, 15000 * pageSize, pageSize,
+        10000, -1, storageLocal, null, true, false, READ_AHEAD);
+    buffer = readWriteDiskCache;
+
+    final long fileId = writePages();
+
+    final Random random = new Random();
+    for (int i = 0; i < 100; i++)
+      assertPage(fileId, random.nextInt(PAGE_COUNT / 2) * 2);
+
+    Thread.sleep(100);
+
+    final long prefetchedPages = readWriteDiskCache.getReadAhead().getPrefetchedPages();
+    Assert.assertEquals(prefetchedPages, 0);
+  }
+
+  public void testReadAheadIsLimitedByFileSize() throws Exception {
+    final OReadWriteDiskCache readWriteDiskCache = new OReadWriteDiskCache(null, CACHE_SIZE * pageSize, 15000 * pageSize, pageSize,
+        10000, -1, storageLocal, null, true, false, READ_AHEAD);
+    buffer = readWriteDiskCache;
+
+    final long fileId = writePages();
+
+    for (int i = PAGE_COUNT - 5; i < PAGE_COUNT - 2; i++)
+      assertPage(fileId, i);
+
+    waitForPrefetchedPages(readWriteDiskCache.getReadAhead(), 2);
+
+    Assert.assertNotNull(readWriteDiskCache.getA1in().get(fileId, PAGE_COUNT - 1));
+    Assert.assertEquals(readWriteDiskCache.getFilledUpTo(fileId), PAGE_COUNT);
+  }
+
+  public void testSegmentedCacheSequentialRead() throws Exception {
+    final OSegmentedReadWriteDiskCache segmentedCache = new OSegmentedReadWriteDiskCache(null, 4
+        * OSegmentedReadWriteDiskCache.MIN_SEGMENT_SIZE * pageSize, 15000 * pageSize, pageSize, 10000, -1, storageLocal, null, true,
+        false, 4, READ_AHEAD);
+    buffer = segmentedCache;
+
+    final long fileId = writePages();
+    final ReadAheadPrefetcher readAhead = segmentedCache.getReadAhead();
+
+    for (int i = 0; i <= ReadAheadPrefetcher.SEQUENTIAL_THRESHOLD; i++)
+      assertPage(fileId, i);
+
+    waitForPrefetchedPages(readAhead, READ_AHEAD);
+
+    for (int i = ReadAheadPrefetcher.SEQUENTIAL_THRESHOLD + 1; i < PAGE_COUNT; i++)
+      assertPage(fileId, i);
+
+    Assert.assertTrue(readAhead.getPrefetchedPages() >= READ_AHEAD);
+    Assert.assertTrue(segmentedCache.getSize() <= segmentedCache.getMaxSize());
+  }
+
+  private long writePages() throws IOException {
+    final long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      OCacheEntry cacheEntry = buffer.allocateNewPage(fileId);
+      OCachePointer pointer = cacheEntry.getCachePointer();
+
+      pointer.acquireExclusiveLock();
+      pointer.getDataPointer().set(systemOffset, new byte[] { 1, 2, 3, seed, 5, 6, 7, (byte) (i & 0xFF) }, 0, 8);
+      cacheEntry.markDirty();
+      pointer.releaseExclusiveLock();
+
+      buffer.release(cacheEntry);
+    }
+
+    buffer.clear();
+    return fileId;
+  }
+
+  private void assertPage(long fileId, long pageIndex) throws IOException {
+    OCacheEntry cacheEntry = buffer.load(fileId, pageIndex, false);
+    byte[] content = cacheEntry.getCachePointer().getDataPointer().get(systemOffset, 8);
+    buffer.release(cacheEntry);
+
+    Assert.assertEquals(content, new byte[] { 1, 2, 3, seed, 5, 6, 7, (byte) (pageIndex & 0xFF) });
+  }
+
+  private void waitForPrefetchedPages(ReadAheadPrefetcher readAhead, long pages) throws InterruptedException {
+    final long end = System.currentTimeMillis() + 10000;
+    while (readAhead.getPrefetchedPages() < pages && System.currentTimeMillis() < end)
+      Thread.sleep(10);
+
+    final long prefetchedPages = readAhead.getPrefetchedPages();
+    Assert.assertEquals(prefetchedPages, pages);
+  }
+}
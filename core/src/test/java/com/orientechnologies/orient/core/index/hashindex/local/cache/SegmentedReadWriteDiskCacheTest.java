@@ -0,0 +1,257 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class SegmentedReadWriteDiskCacheTest {
+  private static final int             SEGMENTS     = 4;
+  private static final int             PAGE_COUNT   = 2048;
+
+  private final int                    systemOffset = OIntegerSerializer.INT_SIZE + 3 * OLongSerializer.LONG_SIZE;
+  private final int                    pageSize     = 8 + systemOffset;
+
+  private OSegmentedReadWriteDiskCache buffer;
+  private OLocalPaginatedStorage       storageLocal;
+  private String                       fileName;
+  private byte                         seed;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/SegmentedReadWriteDiskCacheTest");
+    storageLocal.create(null);
+
+    fileName = "segmentedReadWriteDiskCacheTest.tst";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    closeBufferAndDeleteFile();
+
+    buffer = new OSegmentedReadWriteDiskCache(SEGMENTS * OSegmentedReadWriteDiskCache.MIN_SEGMENT_SIZE * pageSize,
+        15000 * pageSize, pageSize, 10000, -1, storageLocal, null, true, false, SEGMENTS);
+
+    seed = (byte) (new Random().nextInt() & 0xFF);
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    if (buffer != null) {
+      buffer.delete();
+      buffer = null;
+    }
+
+    storageLocal.delete();
+  }
+
+  private void closeBufferAndDeleteFile() throws IOException {
+    if (buffer != null) {
+      buffer.close();
+      buffer = null;
+    }
+
+    File testFile = new File(storageLocal.getConfiguration().getDirectory() + "/" + fileName);
+    if (testFile.exists())
+      Assert.assertTrue(testFile.delete());
+
+    File idMapFile = new File(storageLocal.getConfiguration().getDirectory() + "/name_id_map.cm");
+    if (idMapFile.exists())
+      Assert.assertTrue(idMapFile.delete());
+  }
+
+  public void testSegmentsCountNormalization() {
+    Assert.assertEquals(buffer.getSegmentsCount(), SEGMENTS);
+    Assert.assertEquals(buffer.getMaxSize(), SEGMENTS * OSegmentedReadWriteDiskCache.MIN_SEGMENT_SIZE);
+
+    Assert.assertEquals(OSegmentedReadWriteDiskCache.normalizeSegmentsCount(6, 1024), 4);
+    Assert.assertEquals(OSegmentedReadWriteDiskCache.normalizeSegmentsCount(32, 256), 4);
+    Assert.assertEquals(OSegmentedReadWriteDiskCache.normalizeSegmentsCount(32, 10), 1);
+    Assert.assertTrue(OSegmentedReadWriteDiskCache.normalizeSegmentsCount(0, Integer.MAX_VALUE) >= 1);
+  }
+
+  public void testWriteAndReadBackMoreThanCacheSize() throws IOException {
+    long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < PAGE_COUNT; i++)
+      writePage(fileId, i, (byte) 1);
+
+    Assert.assertTrue(buffer.getSize() <= buffer.getMaxSize());
+
+    for (int i = 0; i < PAGE_COUNT; i++)
+      assertPage(fileId, i, (byte) 1);
+
+    buffer.flushBuffer();
+    assertFileContent((byte) 1, PAGE_COUNT);
+  }
+
+  public void testAllocateNewPage() throws IOException {
+    long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < 100; i++) {
+      OCacheEntry cacheEntry = buffer.allocateNewPage(fileId);
+      Assert.assertEquals(cacheEntry.getPageIndex(), i);
+      buffer.release(cacheEntry);
+    }
+
+    Assert.assertEquals(buffer.getFilledUpTo(fileId), 100);
+  }
+
+  public void testPinnedPageIsNotEvicted() throws IOException {
+    long fileId = buffer.openFile(fileName);
+
+    OCacheEntry pinnedEntry = buffer.load(fileId, 0, false);
+    buffer.pinPage(pinnedEntry);
+    buffer.release(pinnedEntry);
+
+    for (int i = 1; i < PAGE_COUNT; i++)
+      writePage(fileId, i, (byte) 1);
+
+    OCacheEntry cacheEntry = buffer.load(fileId, 0, true);
+    Assert.assertSame(cacheEntry, pinnedEntry);
+    Assert.assertNotNull(cacheEntry.getCachePointer());
+    buffer.release(cacheEntry);
+  }
+
+  public void testTruncateFile() throws IOException {
+    long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < 200; i++)
+      writePage(fileId, i, (byte) 1);
+
+    buffer.truncateFile(fileId);
+    Assert.assertEquals(buffer.getFilledUpTo(fileId), 0);
+    Assert.assertEquals(buffer.getSize(), 0);
+  }
+
+  public void testCloseAndOpenFile() throws IOException {
+    long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < 200; i++)
+      writePage(fileId, i, (byte) 2);
+
+    buffer.closeFile(fileId);
+    Assert.assertEquals(buffer.getSize(), 0);
+
+    buffer.openFile(fileId);
+
+    for (int i = 0; i < 200; i++)
+      assertPage(fileId, i, (byte) 2);
+  }
+
+  public void testConcurrentReadsAndWrites() throws Exception {
+    final long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < PAGE_COUNT; i++)
+      writePage(fileId, i, (byte) 1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int n = 0; n < 4; n++) {
+      final int threadIndex = n;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = threadIndex; i < PAGE_COUNT; i += 4)
+            writePage(fileId, i, (byte) 2);
+
+          return null;
+        }
+      }));
+
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final Random random = new Random();
+          for (int i = 0; i < 10000; i++) {
+            final int pageIndex = random.nextInt(PAGE_COUNT);
+
+            OCacheEntry cacheEntry = buffer.load(fileId, pageIndex, false);
+            OCachePointer pointer = cacheEntry.getCachePointer();
+            pointer.acquireSharedLock();
+            byte[] content = pointer.getDataPointer().get(systemOffset, 8);
+            pointer.releaseSharedLock();
+            buffer.release(cacheEntry);
+
+            Assert.assertTrue(content[0] == 1 || content[0] == 2);
+            Assert.assertEquals(content, new byte[] { content[0], 2, 3, seed, 5, 6, 7, (byte) (pageIndex & 0xFF) });
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    executor.shutdown();
+
+    buffer.flushBuffer();
+    assertFileContent((byte) 2, PAGE_COUNT);
+  }
+
+  private void writePage(long fileId, long pageIndex, byte version) throws IOException {
+    OCacheEntry cacheEntry = buffer.load(fileId, pageIndex, false);
+    OCachePointer pointer = cacheEntry.getCachePointer();
+
+    pointer.acquireExclusiveLock();
+    pointer.getDataPointer().set(systemOffset, new byte[] { version, 2, 3, seed, 5, 6, 7, (byte) (pageIndex & 0xFF) }, 0, 8);
+    cacheEntry.markDirty();
+    pointer.releaseExclusiveLock();
+
+    buffer.release(cacheEntry);
+  }
+
+  private void assertPage(long fileId, long pageIndex, byte version) throws IOException {
+    OCacheEntry cacheEntry = buffer.load(fileId, pageIndex, false);
+    byte[] content = cacheEntry.getCachePointer().getDataPointer().get(systemOffset, 8);
+    buffer.release(cacheEntry);
+
+    Assert.assertEquals(content, new byte[] { version, 2, 3, seed, 5, 6, 7, (byte) (pageIndex & 0xFF) });
+  }
+
+  private void assertFileContent(byte version, int pageCount) throws IOException {
+    String path = storageLocal.getConfiguration().getDirectory() + "/" + fileName;
+
+    OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(path, "r");
+    fileClassic.open();
+
+    for (int i = 0; i < pageCount; i++) {
+      byte[] content = new byte[8];
+      fileClassic.read(i * pageSize + systemOffset, content, 8);
+
+      Assert.assertEquals(content, new byte[] { version, 2, 3, seed, 5, 6, 7, (byte) (i & 0xFF) }, " i = " + i);
+    }
+
+    fileClassic.close();
+  }
+}
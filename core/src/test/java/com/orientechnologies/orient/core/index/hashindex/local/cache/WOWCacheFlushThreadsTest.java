@@ -0,0 +1,159 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class WOWCacheFlushThreadsTest {
+  private static final int       FLUSH_THREADS = 4;
+  private static final int       FILES         = 6;
+  private static final int       PAGES         = 300;
+
+  private final int              systemOffset  = 2 * (OIntegerSerializer.INT_SIZE + OLongSerializer.LONG_SIZE);
+  private final int              pageSize      = systemOffset + 8;
+
+  private OLocalPaginatedStorage storageLocal;
+  private OWOWCache              wowCache;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/WOWCacheFlushThreadsTest");
+    storageLocal.create(null);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    wowCache = new OWOWCache(false, pageSize, 10000, null, 10, 100, storageLocal, false, FLUSH_THREADS);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    wowCache.delete();
+    wowCache = null;
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    storageLocal.delete();
+  }
+
+  public void testConcurrentWritersToSeveralFiles() throws Exception {
+    Assert.assertEquals(wowCache.getFlushThreads(), FLUSH_THREADS);
+
+    final long[] fileIds = new long[FILES];
+    final byte[][][] pageData = new byte[FILES][PAGES][];
+    for (int i = 0; i < FILES; i++)
+      fileIds[i] = wowCache.openFile("wowCacheFlushThreadsTest" + i + ".tst");
+
+    final ExecutorService executor = Executors.newFixedThreadPool(FILES);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int i = 0; i < FILES; i++) {
+      final int fileIndex = i;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final Random random = new Random();
+          latch.await();
+
+          for (int pageIndex = 0; pageIndex < PAGES; pageIndex++) {
+            final byte[] data = new byte[8];
+            random.nextBytes(data);
+            pageData[fileIndex][pageIndex] = data;
+
+            final OCachePointer cachePointer = wowCache.load(fileIds[fileIndex], pageIndex);
+            cachePointer.acquireExclusiveLock();
+            cachePointer.getDataPointer().set(systemOffset, data, 0, data.length);
+            cachePointer.releaseExclusiveLock();
+
+            final Future<?> flushFuture = wowCache.store(fileIds[fileIndex], pageIndex, cachePointer);
+            cachePointer.decrementReferrer();
+
+            if (flushFuture != null)
+              flushFuture.get();
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    latch.countDown();
+    for (Future<Void> future : futures)
+      future.get();
+
+    executor.shutdown();
+
+    wowCache.flush();
+
+    Assert.assertEquals(wowCache.getFlushedPages(), FILES * PAGES);
+    Assert.assertTrue(wowCache.getWritersWaitTime() >= 0);
+
+    for (int i = 0; i < FILES; i++)
+      for (int pageIndex = 0; pageIndex < PAGES; pageIndex++)
+        assertFile("wowCacheFlushThreadsTest" + i + ".tst", pageIndex, pageData[i][pageIndex]);
+  }
+
+  public void testPagesAreFlushedInBackground() throws Exception {
+    final long fileId = wowCache.openFile("wowCacheFlushThreadsTest.tst");
+
+    for (int pageIndex = 0; pageIndex < 50; pageIndex++) {
+      final OCachePointer cachePointer = wowCache.load(fileId, pageIndex);
+      wowCache.store(fileId, pageIndex, cachePointer);
+      cachePointer.decrementReferrer();
+    }
+
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (wowCache.getFlushedPages() < 50 && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+
+    Assert.assertEquals(wowCache.getFlushedPages(), 50);
+  }
+
+  private void assertFile(String fileName, long pageIndex, byte[] value) throws IOException {
+    final String path = storageLocal.getConfiguration().getDirectory() + File.separator + fileName;
+
+    final OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(path, "r");
+    fileClassic.open();
+    try {
+      final byte[] content = new byte[pageSize];
+      fileClassic.read(pageIndex * pageSize, content, pageSize);
+
+      Assert.assertEquals(Arrays.copyOfRange(content, systemOffset, pageSize), value);
+      final long magicNumber = OLongSerializer.INSTANCE.deserializeNative(content, 0);
+      Assert.assertEquals(magicNumber, OWOWCache.MAGIC_NUMBER);
+    } finally {
+      fileClassic.close();
+    }
+  }
+}
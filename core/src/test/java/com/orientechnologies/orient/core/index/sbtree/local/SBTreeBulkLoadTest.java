@@ -0,0 +1,221 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class SBTreeBulkLoadTest {
+  private OLocalPaginatedStorage          storage;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+  private String                          buildDirectory;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/sbTreeBulkLoadTest");
+    storage.create(null);
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, true, ".nbt");
+    sbTree.create("sbTreeBulkLoad", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, storage, false);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.delete();
+    storage.delete();
+  }
+
+  public void testEmptyLoad() {
+    Assert.assertEquals(sbTree.bulkLoad(entries(0, 0, 1), 1), 0);
+
+    Assert.assertEquals(sbTree.size(), 0);
+    Assert.assertNull(sbTree.firstKey());
+
+    sbTree.put(1, value(1));
+    Assert.assertEquals(sbTree.get(1), value(1));
+  }
+
+  public void testSinglePageLoad() {
+    Assert.assertEquals(sbTree.bulkLoad(entries(0, 10, 1), 1), 10);
+
+    assertKeys(0, 10, 1);
+  }
+
+  public void testMultiLevelLoad() {
+    final int keysCount = 500000;
+    Assert.assertEquals(sbTree.bulkLoad(entries(0, keysCount, 2), 1), keysCount);
+
+    assertKeys(0, keysCount, 2);
+
+    Assert.assertEquals(sbTree.get(1), null);
+    Assert.assertEquals(sbTree.get(2 * keysCount), null);
+  }
+
+  public void testModificationsAfterLoad() {
+    final int keysCount = 200000;
+    sbTree.bulkLoad(entries(0, keysCount, 2), 1);
+
+    for (int key = 1; key < 2 * keysCount; key += 2)
+      sbTree.put(key, value(key));
+
+    for (int key = 0; key < 2 * keysCount; key += 4)
+      Assert.assertEquals(sbTree.remove(key), value(key));
+
+    Assert.assertEquals(sbTree.size(), keysCount + keysCount / 2);
+    for (int key = 0; key < 2 * keysCount; key++) {
+      if (key % 4 == 0)
+        Assert.assertNull(sbTree.get(key));
+      else
+        Assert.assertEquals(sbTree.get(key), value(key));
+    }
+  }
+
+  public void testFillFactorLeavesSpaceForInserts() throws Exception {
+    final int keysCount = 200000;
+    sbTree.bulkLoad(entries(0, keysCount, 2), 0.5f);
+    assertKeys(0, keysCount, 2);
+
+    final long fileId = storage.getDiskCache().openFile("sbTreeBulkLoad.sbt");
+    final long filledUpTo = storage.getDiskCache().getFilledUpTo(fileId);
+
+    // half filled leaf pages accept new entries without splits
+    for (int key = 1; key < 2 * keysCount; key += 4)
+      sbTree.put(key, value(key));
+
+    Assert.assertEquals(storage.getDiskCache().getFilledUpTo(fileId), filledUpTo);
+  }
+
+  public void testLoadOfLinkedValues() throws Exception {
+    final OSBTree<Integer, String> tree = new OSBTree<Integer, String>(".sbt", 1, true, ".nbt");
+    tree.create("sbTreeBulkLoadLinkedValues", OIntegerSerializer.INSTANCE, OStringSerializer.INSTANCE, null, storage, false);
+    try {
+      final List<Map.Entry<Integer, String>> entries = new ArrayList<Map.Entry<Integer, String>>();
+      for (int i = 0; i < 100; i++)
+        entries.add(new AbstractMap.SimpleImmutableEntry<Integer, String>(i, bigValue(i)));
+
+      tree.bulkLoad(entries.iterator(), 1);
+
+      Assert.assertEquals(tree.size(), 100);
+      for (int i = 0; i < 100; i++)
+        Assert.assertEquals(tree.get(i), bigValue(i));
+    } finally {
+      tree.delete();
+    }
+  }
+
+  public void testUnsortedKeysAreRejected() {
+    final List<Map.Entry<Integer, OIdentifiable>> entries = new ArrayList<Map.Entry<Integer, OIdentifiable>>();
+    entries.add(new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(2, value(2)));
+    entries.add(new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(1, value(1)));
+
+    try {
+      sbTree.bulkLoad(entries.iterator(), 1);
+      Assert.fail();
+    } catch (OSBTreeException e) {
+    }
+
+    Assert.assertEquals(sbTree.size(), 0);
+    Assert.assertNull(sbTree.get(2));
+  }
+
+  public void testLoadIntoNotEmptyTreeIsRejected() {
+    sbTree.put(1, value(1));
+
+    try {
+      sbTree.bulkLoad(entries(2, 10, 1), 1);
+      Assert.fail();
+    } catch (OSBTreeException e) {
+    }
+  }
+
+  private void assertKeys(int from, int count, int step) {
+    Assert.assertEquals(sbTree.size(), count);
+    Assert.assertEquals((int) sbTree.firstKey(), from);
+    Assert.assertEquals((int) sbTree.lastKey(), from + (count - 1) * step);
+
+    for (int i = 0; i < count; i++) {
+      final int key = from + i * step;
+      Assert.assertEquals(sbTree.get(key), value(key));
+    }
+
+    final OSBTree.OSBTreeCursor<Integer, OIdentifiable> cursor = sbTree.iterateEntriesMajor(from, true, true);
+    int expectedKey = from;
+    Map.Entry<Integer, OIdentifiable> entry = cursor.next(-1);
+    while (entry != null) {
+      Assert.assertEquals((int) entry.getKey(), expectedKey);
+      Assert.assertEquals(entry.getValue(), value(expectedKey));
+      expectedKey += step;
+
+      entry = cursor.next(-1);
+    }
+    Assert.assertEquals(expectedKey, from + count * step);
+
+    final OSBTree.OSBTreeCursor<Integer, OIdentifiable> backwardCursor = sbTree.iterateEntriesMinor(from + (count - 1) * step,
+        true, false);
+    int backwardCount = 0;
+    while (backwardCursor.next(-1) != null)
+      backwardCount++;
+    Assert.assertEquals(backwardCount, count);
+  }
+
+  private static Iterator<Map.Entry<Integer, OIdentifiable>> entries(final int from, final int count, final int step) {
+    return new Iterator<Map.Entry<Integer, OIdentifiable>>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < count;
+      }
+
+      @Override
+      public Map.Entry<Integer, OIdentifiable> next() {
+        final int key = from + index * step;
+        index++;
+        return new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(key, value(key));
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private static String bigValue(int key) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 16384; i++)
+      builder.append(key).append('-');
+    return builder.toString();
+  }
+
+  private static ORecordId value(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}
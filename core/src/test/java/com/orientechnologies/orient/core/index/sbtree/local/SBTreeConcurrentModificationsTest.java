@@ -0,0 +1,190 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class SBTreeConcurrentModificationsTest {
+  private static final int                  THREADS         = 8;
+  private static final int                  KEYS_PER_THREAD = 20000;
+
+  private OLocalPaginatedStorage            storage;
+  private OSBTree<Integer, OIdentifiable>   sbTree;
+  private String                            buildDirectory;
+  private long                              seed;
+  private Object                            concurrentModifications;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    concurrentModifications = OGlobalConfiguration.SBTREE_CONCURRENT_MODIFICATIONS.getValue();
+    OGlobalConfiguration.SBTREE_CONCURRENT_MODIFICATIONS.setValue(Boolean.TRUE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    seed = System.currentTimeMillis();
+    System.out.println("SBTreeConcurrentModificationsTest seed : " + seed);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.SBTREE_CONCURRENT_MODIFICATIONS.setValue(concurrentModifications);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/sbTreeConcurrentModificationsTest");
+    storage.create(null);
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, true, ".nbt");
+    sbTree.create("sbTreeConcurrentModifications", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, storage, false);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.delete();
+    storage.delete();
+  }
+
+  public void testConcurrentPutGet() throws Exception {
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int n = 0; n < THREADS; n++) {
+      final int thread = n;
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final Random random = new Random(seed + thread);
+
+          for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            final int key = i * THREADS + thread;
+            sbTree.put(key, value(key));
+
+            Assert.assertEquals(sbTree.get(key), value(key));
+
+            final int written = random.nextInt(i + 1) * THREADS + thread;
+            Assert.assertEquals(sbTree.get(written), value(written));
+          }
+
+          return null;
+        }
+      });
+    }
+
+    run(tasks);
+
+    Assert.assertEquals(sbTree.size(), THREADS * KEYS_PER_THREAD);
+    for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++)
+      Assert.assertEquals(sbTree.get(key), value(key));
+
+    Assert.assertEquals((int) sbTree.firstKey(), 0);
+    Assert.assertEquals((int) sbTree.lastKey(), THREADS * KEYS_PER_THREAD - 1);
+
+    assertAscendingKeys(THREADS * KEYS_PER_THREAD, 1);
+  }
+
+  public void testConcurrentPutRemove() throws Exception {
+    for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++)
+      sbTree.put(key, value(key));
+
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int n = 0; n < THREADS; n++) {
+      final int thread = n;
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            final int key = i * THREADS + thread;
+
+            if ((key & 1) == 1)
+              Assert.assertEquals(sbTree.remove(key), value(key));
+            else
+              sbTree.put(key, value(key + 1));
+          }
+
+          return null;
+        }
+      });
+    }
+
+    run(tasks);
+
+    Assert.assertEquals(sbTree.size(), THREADS * KEYS_PER_THREAD / 2);
+    for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++) {
+      if ((key & 1) == 1)
+        Assert.assertNull(sbTree.get(key));
+      else
+        Assert.assertEquals(sbTree.get(key), value(key + 1));
+    }
+
+    assertAscendingKeys(THREADS * KEYS_PER_THREAD, 2);
+  }
+
+  private void assertAscendingKeys(int keysCount, int step) {
+    final OSBTree.OSBTreeCursor<Integer, OIdentifiable> cursor = sbTree.iterateEntriesMajor(0, true, true);
+
+    int expectedKey = 0;
+    Map.Entry<Integer, OIdentifiable> entry = cursor.next(-1);
+    while (entry != null) {
+      Assert.assertEquals((int) entry.getKey(), expectedKey);
+      expectedKey += step;
+
+      entry = cursor.next(-1);
+    }
+
+    Assert.assertEquals(expectedKey, keysCount);
+  }
+
+  private void run(List<Callable<Void>> tasks) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (final Callable<Void> task : tasks)
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          latch.await();
+          return task.call();
+        }
+      }));
+
+    latch.countDown();
+    try {
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static ORecordId value(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}
@@ -0,0 +1,133 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class SBTreeGetAllTest {
+  private static final int                KEYS_COUNT = 100000;
+
+  private OLocalPaginatedStorage          storage;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+  private String                          buildDirectory;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/sbTreeGetAllTest");
+    storage.create(null);
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, true, ".nbt");
+    sbTree.create("sbTreeGetAll", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, storage, true);
+
+    for (int key = 0; key < KEYS_COUNT; key += 2)
+      sbTree.put(key, value(key));
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.delete();
+    storage.delete();
+  }
+
+  public void testDenseKeys() {
+    final List<Integer> keys = new ArrayList<Integer>();
+    for (int key = 1000; key < 11000; key++)
+      keys.add(key);
+
+    Collections.shuffle(keys);
+    assertGetAll(keys);
+  }
+
+  public void testSparseKeys() {
+    final long seed = System.currentTimeMillis();
+    System.out.println("testSparseKeys seed : " + seed);
+    final Random random = new Random(seed);
+
+    final List<Integer> keys = new ArrayList<Integer>();
+    for (int i = 0; i < 1000; i++)
+      keys.add(random.nextInt(2 * KEYS_COUNT) - KEYS_COUNT / 2);
+
+    assertGetAll(keys);
+  }
+
+  public void testAllKeys() {
+    final List<Integer> keys = new ArrayList<Integer>();
+    for (int key = KEYS_COUNT - 1; key >= 0; key--)
+      keys.add(key);
+
+    final Map<Integer, OIdentifiable> values = sbTree.getAll(keys);
+    Assert.assertEquals(values.size(), KEYS_COUNT / 2);
+    assertGetAll(keys);
+  }
+
+  public void testNullKey() {
+    final List<Integer> keys = new ArrayList<Integer>();
+    keys.add(null);
+    keys.add(10);
+    keys.add(11);
+
+    Map<Integer, OIdentifiable> values = sbTree.getAll(keys);
+    Assert.assertEquals(values.size(), 1);
+    Assert.assertEquals(values.get(10), value(10));
+
+    sbTree.put(null, value(-1));
+
+    values = sbTree.getAll(keys);
+    Assert.assertEquals(values.size(), 2);
+    Assert.assertEquals(values.get(null), value(-1));
+    Assert.assertEquals(values.get(10), value(10));
+  }
+
+  public void testEmptyTree() {
+    sbTree.clear();
+
+    final List<Integer> keys = new ArrayList<Integer>();
+    for (int key = 0; key < 100; key++)
+      keys.add(key);
+
+    Assert.assertTrue(sbTree.getAll(keys).isEmpty());
+    Assert.assertTrue(sbTree.getAll(Collections.<Integer> emptyList()).isEmpty());
+  }
+
+  private void assertGetAll(List<Integer> keys) {
+    final Map<Integer, OIdentifiable> values = sbTree.getAll(keys);
+
+    for (Integer key : keys) {
+      if (key >= 0 && key < KEYS_COUNT && key % 2 == 0)
+        Assert.assertEquals(values.get(key), value(key));
+      else
+        Assert.assertFalse(values.containsKey(key), "key " + key);
+    }
+  }
+
+  private static ORecordId value(int key) {
+    return new ORecordId(Math.abs(key) % 32000, OClusterPositionFactory.INSTANCE.valueOf(Math.abs(key)));
+  }
+}
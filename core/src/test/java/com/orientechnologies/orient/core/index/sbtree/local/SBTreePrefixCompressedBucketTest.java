@@ -0,0 +1,211 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+
+@Test
+public class SBTreePrefixCompressedBucketTest {
+  public void testInitialization() throws Exception {
+    ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+
+    OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true, true,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+    Assert.assertTrue(bucket.isPrefixCompressed());
+    Assert.assertTrue(bucket.isLeaf());
+
+    bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE,
+        ODurablePage.TrackMode.FULL);
+    Assert.assertTrue(bucket.isPrefixCompressed());
+    Assert.assertTrue(bucket.isLeaf());
+    Assert.assertEquals(bucket.size(), 0);
+
+    OSBTreeBucket<Long, OIdentifiable> longBucket = new OSBTreeBucket<Long, OIdentifiable>(pointer, false, true,
+        OLongSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+    Assert.assertFalse(longBucket.isPrefixCompressed());
+    Assert.assertFalse(longBucket.isLeaf());
+
+    pointer.free();
+  }
+
+  public void testUrlKeysInRandomOrder() throws Exception {
+    final long seed = System.currentTimeMillis();
+    System.out.println("testUrlKeysInRandomOrder seed : " + seed);
+
+    final List<String> keys = urlKeys(10000);
+    Collections.shuffle(keys, new Random(seed));
+
+    final int plainCount = fill(keys, false);
+    final int compressedCount = fill(keys, true);
+
+    Assert.assertTrue(compressedCount > 2 * plainCount, "compressed " + compressedCount + ", plain " + plainCount);
+  }
+
+  public void testRemoveAndShrink() throws Exception {
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true, true,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+    final List<String> keys = urlKeys(100);
+    for (int i = 0; i < keys.size(); i++)
+      Assert.assertTrue(bucket.addEntry(i, entry(keys.get(i), i), false));
+
+    for (int i = keys.size() - 1; i >= 0; i -= 2)
+      bucket.remove(i);
+
+    Assert.assertEquals(bucket.size(), keys.size() / 2);
+    for (int i = 0; i < bucket.size(); i++) {
+      Assert.assertEquals(bucket.getKey(i), keys.get(2 * i));
+      Assert.assertEquals(bucket.getEntry(i).value.getValue(), value(2 * i));
+    }
+
+    final int usedSpace = bucket.getUsedSpace();
+    bucket.shrink(10);
+    Assert.assertEquals(bucket.size(), 10);
+    Assert.assertTrue(bucket.getUsedSpace() < usedSpace);
+
+    final OSBTreeBucket<String, OIdentifiable> loadedBucket = new OSBTreeBucket<String, OIdentifiable>(pointer,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(loadedBucket.getKey(i), keys.get(2 * i));
+      Assert.assertEquals(loadedBucket.find(keys.get(2 * i)), i);
+    }
+
+    Assert.assertTrue(loadedBucket.addEntry(0, entry("ftp://other.org/", 1000), false));
+    Assert.assertEquals(loadedBucket.getKey(0), "ftp://other.org/");
+    Assert.assertEquals(loadedBucket.getKey(10), keys.get(18));
+
+    pointer.free();
+  }
+
+  public void testNonLeafBucket() throws Exception {
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, false, true,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+    final List<String> keys = urlKeys(50);
+    for (int i = 0; i < keys.size(); i++)
+      Assert.assertTrue(bucket.addEntry(i, new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(i, i + 1, keys.get(i), null), true));
+
+    Assert.assertTrue(bucket.addEntry(0, new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(100, 0, "a", null), true));
+
+    Assert.assertEquals(bucket.getEntry(0).key, "a");
+    Assert.assertEquals(bucket.getEntry(0).leftChild, 100);
+    for (int i = 0; i < keys.size(); i++) {
+      final OSBTreeBucket.SBTreeEntry<String, OIdentifiable> entry = bucket.getEntry(i + 1);
+      Assert.assertEquals(entry.key, keys.get(i));
+      Assert.assertEquals(entry.leftChild, i);
+      Assert.assertEquals(entry.rightChild, i + 1);
+    }
+
+    pointer.free();
+  }
+
+  public void testCompositeKeys() throws Exception {
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    final OType[] keyTypes = new OType[] { OType.STRING, OType.INTEGER };
+    final OBinarySerializer<OCompositeKey> keySerializer = OCompositeKeySerializer.INSTANCE;
+
+    final OSBTreeBucket<OCompositeKey, OIdentifiable> bucket = new OSBTreeBucket<OCompositeKey, OIdentifiable>(pointer, true, true,
+        keySerializer, keyTypes, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+    int index = 0;
+    for (int i = 0; i < 100; i++) {
+      final OCompositeKey key = new OCompositeKey("tenant-with-quite-long-name", i);
+      Assert.assertTrue(bucket.addEntry(index, entry(key, i), false));
+      index++;
+    }
+
+    Assert.assertTrue(bucket.addEntry(100, entry(new OCompositeKey("tenant-with-quite-long-name-2", 0), 100), false));
+
+    for (int i = 0; i < 100; i++) {
+      final OCompositeKey key = new OCompositeKey("tenant-with-quite-long-name", i);
+      Assert.assertEquals(bucket.find(key), i);
+      Assert.assertEquals(bucket.getKey(i), key);
+    }
+
+    Assert.assertEquals(bucket.getKey(100), new OCompositeKey("tenant-with-quite-long-name-2", 0));
+
+    pointer.free();
+  }
+
+  public void testSeparationKey() throws Exception {
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true, true,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+    bucket.addEntry(0, entry("http://example.com/alpha/one", 0), false);
+    bucket.addEntry(1, entry("http://example.com/beta/two", 1), false);
+    bucket.addEntry(2, entry("http://example.com/beta/twoo", 2), false);
+
+    Assert.assertEquals(bucket.getSeparationKey(1), "http://example.com/b");
+    Assert.assertEquals(bucket.getSeparationKey(2), "http://example.com/beta/twoo");
+
+    pointer.free();
+  }
+
+  private static int fill(List<String> keys, boolean prefixCompression) throws Exception {
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    try {
+      final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true,
+          prefixCompression, OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+      final List<String> addedKeys = new ArrayList<String>();
+      for (String key : keys) {
+        final int index = bucket.find(key);
+        Assert.assertTrue(index < 0);
+
+        if (!bucket.addEntry(-index - 1, entry(key, keys.indexOf(key)), false))
+          break;
+
+        addedKeys.add(key);
+      }
+
+      Assert.assertEquals(bucket.size(), addedKeys.size());
+
+      Collections.sort(addedKeys);
+      for (int i = 0; i < addedKeys.size(); i++) {
+        Assert.assertEquals(bucket.getKey(i), addedKeys.get(i));
+        Assert.assertEquals(bucket.find(addedKeys.get(i)), i);
+        Assert.assertEquals(bucket.getEntry(i).value.getValue(), value(keys.indexOf(addedKeys.get(i))));
+      }
+
+      return addedKeys.size();
+    } finally {
+      pointer.free();
+    }
+  }
+
+  private static List<String> urlKeys(int count) {
+    final List<String> keys = new ArrayList<String>();
+    for (int i = 0; i < count; i++)
+      keys.add(String.format("http://www.example.com/catalog/products/category-%03d/item-%06d.html", i / 100, i));
+
+    return keys;
+  }
+
+  private static <K> OSBTreeBucket.SBTreeEntry<K, OIdentifiable> entry(K key, int value) {
+    return new OSBTreeBucket.SBTreeEntry<K, OIdentifiable>(-1, -1, key, new OSBTreeValue<OIdentifiable>(false, -1, value(value)));
+  }
+
+  private static ORecordId value(int value) {
+    return new ORecordId(value % 32000, OClusterPositionFactory.INSTANCE.valueOf(value));
+  }
+}
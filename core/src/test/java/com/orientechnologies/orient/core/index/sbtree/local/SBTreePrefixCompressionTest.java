@@ -0,0 +1,176 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRID;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+
+@Test
+public class SBTreePrefixCompressionTest {
+  private static final int                KEYS_COUNT = 50000;
+
+  private OLocalPaginatedStorage          storage;
+  private OSBTree<String, OIdentifiable>  sbTree;
+  private String                          buildDirectory;
+  private boolean                         prefixCompression;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    prefixCompression = OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.getValueAsBoolean();
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(true);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(prefixCompression);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/sbTreePrefixCompressionTest");
+    storage.create(null);
+
+    sbTree = new OSBTree<String, OIdentifiable>(".sbt", 1, true, ".nbt");
+    sbTree.create("sbTreePrefixCompression", OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, storage, false);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.delete();
+    storage.delete();
+  }
+
+  public void testPutGetRemoveInRandomOrder() {
+    final long seed = System.currentTimeMillis();
+    System.out.println("testPutGetRemoveInRandomOrder seed : " + seed);
+    final Random random = new Random(seed);
+
+    final List<Integer> order = new ArrayList<Integer>();
+    for (int i = 0; i < KEYS_COUNT; i++)
+      order.add(i);
+    Collections.shuffle(order, random);
+
+    for (int i : order)
+      sbTree.put(key(i), value(i));
+
+    assertKeys(KEYS_COUNT, 1);
+
+    for (int i : order)
+      if (i % 2 == 1)
+        Assert.assertEquals(sbTree.remove(key(i)), value(i));
+
+    assertKeys(KEYS_COUNT / 2, 2);
+
+    for (int i = 1; i < KEYS_COUNT; i += 2)
+      Assert.assertNull(sbTree.get(key(i)));
+  }
+
+  public void testBulkLoad() {
+    final List<Map.Entry<String, OIdentifiable>> entries = new ArrayList<Map.Entry<String, OIdentifiable>>();
+    for (int i = 0; i < KEYS_COUNT; i++)
+      entries.add(new AbstractMap.SimpleImmutableEntry<String, OIdentifiable>(key(i), value(i)));
+
+    sbTree.bulkLoad(entries.iterator(), 1);
+    assertKeys(KEYS_COUNT, 1);
+
+    sbTree.put("https://other.org/", value(1));
+    Assert.assertEquals(sbTree.get("https://other.org/"), value(1));
+    Assert.assertEquals(sbTree.lastKey(), "https://other.org/");
+  }
+
+  public void testFormatIsKeptAfterReload() throws Exception {
+    for (int i = 0; i < 1000; i++)
+      sbTree.put(key(i), value(i));
+    Assert.assertTrue(isRootPrefixCompressed());
+
+    OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(false);
+    try {
+      final OSBTree<String, OIdentifiable> loadedTree = new OSBTree<String, OIdentifiable>(".sbt", 1, true, ".nbt");
+      loadedTree.load("sbTreePrefixCompression", OStringSerializer.INSTANCE, OStreamSerializerRID.INSTANCE, null, storage,
+          false);
+
+      loadedTree.clear();
+      Assert.assertTrue(isRootPrefixCompressed());
+
+      for (int i = 0; i < KEYS_COUNT; i++)
+        loadedTree.put(key(i), value(i));
+
+      assertKeys(KEYS_COUNT, 1);
+    } finally {
+      OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(true);
+    }
+  }
+
+  private boolean isRootPrefixCompressed() throws Exception {
+    final long fileId = storage.getDiskCache().openFile("sbTreePrefixCompression.sbt");
+    final OCacheEntry cacheEntry = storage.getDiskCache().load(fileId, 0, false);
+    try {
+      return new OSBTreeBucket<String, OIdentifiable>(cacheEntry.getCachePointer().getDataPointer(), OStringSerializer.INSTANCE,
+          null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.NONE).isPrefixCompressed();
+    } finally {
+      storage.getDiskCache().release(cacheEntry);
+    }
+  }
+
+  private void assertKeys(int count, int step) {
+    Assert.assertEquals(sbTree.size(), count);
+    Assert.assertEquals(sbTree.firstKey(), key(0));
+
+    for (int i = 0; i < count * step; i += step)
+      Assert.assertEquals(sbTree.get(key(i)), value(i));
+
+    final OSBTree.OSBTreeCursor<String, OIdentifiable> cursor = sbTree.iterateEntriesMajor(key(0), true, true);
+    int expected = 0;
+    Map.Entry<String, OIdentifiable> entry = cursor.next(-1);
+    while (entry != null) {
+      Assert.assertEquals(entry.getKey(), key(expected));
+      Assert.assertEquals(entry.getValue(), value(expected));
+      expected += step;
+
+      entry = cursor.next(-1);
+    }
+    Assert.assertEquals(expected, count * step);
+
+    final OSBTree.OSBTreeCursor<String, OIdentifiable> backwardCursor = sbTree.iterateEntriesBetween(key(step), true,
+        key((count - 1) * step), false, false);
+    int backwardCount = 0;
+    while (backwardCursor.next(-1) != null)
+      backwardCount++;
+    Assert.assertEquals(backwardCount, count - 2);
+  }
+
+  private static String key(int i) {
+    return String.format("http://www.example.com/catalog/category-%03d/item-%07d.html", i / 1000, i);
+  }
+
+  private static ORecordId value(int i) {
+    return new ORecordId(i % 32000, OClusterPositionFactory.INSTANCE.valueOf(i));
+  }
+}
@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.core.index.sbtree.local;
 
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -15,6 +16,7 @@ import org.testng.annotations.*;
 
 import com.orientechnologies.common.serialization.types.OBinaryTypeSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageClusterConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
@@ -129,6 +131,7 @@ public class SBTreeTestBigValuesWAL extends SBTreeTestBigValues {
     when(actualStorage.getVariableParser()).thenReturn(variableParser);
     when(actualStorage.getConfiguration()).thenReturn(actualStorageConfiguration);
     when(actualStorage.getMode()).thenReturn("rw");
+    when(actualStorage.getPageCompression(anyString())).thenReturn(ONothingCompression.NAME);
 
     when(actualStorageConfiguration.getDirectory()).thenReturn(actualStorageDir);
 
@@ -163,6 +166,7 @@ public class SBTreeTestBigValuesWAL extends SBTreeTestBigValues {
     when(expectedStorage.getVariableParser()).thenReturn(variableParser);
     when(expectedStorage.getConfiguration()).thenReturn(expectedStorageConfiguration);
     when(expectedStorage.getMode()).thenReturn("rw");
+    when(expectedStorage.getPageCompression(anyString())).thenReturn(ONothingCompression.NAME);
 
     when(expectedStorageConfiguration.getDirectory()).thenReturn(expectedStorageDir);
 
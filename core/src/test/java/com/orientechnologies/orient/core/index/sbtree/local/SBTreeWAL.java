@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.core.index.sbtree.local;
 
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -9,6 +10,7 @@ import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperationsManager;
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -137,6 +139,7 @@ public class SBTreeWAL extends SBTreeTest {
     when(actualStorage.getVariableParser()).thenReturn(variableParser);
     when(actualStorage.getConfiguration()).thenReturn(actualStorageConfiguration);
     when(actualStorage.getMode()).thenReturn("rw");
+    when(actualStorage.getPageCompression(anyString())).thenReturn(ONothingCompression.NAME);
 
     when(actualStorageConfiguration.getDirectory()).thenReturn(actualStorageDir);
 
@@ -173,6 +176,7 @@ public class SBTreeWAL extends SBTreeTest {
     when(expectedStorage.getVariableParser()).thenReturn(variableParser);
     when(expectedStorage.getConfiguration()).thenReturn(expectedStorageConfiguration);
     when(expectedStorage.getMode()).thenReturn("rw");
+    when(expectedStorage.getPageCompression(anyString())).thenReturn(ONothingCompression.NAME);
 
     when(expectedStorageConfiguration.getDirectory()).thenReturn(expectedStorageDir);
 
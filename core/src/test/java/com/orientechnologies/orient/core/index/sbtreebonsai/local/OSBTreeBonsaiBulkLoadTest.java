@@ -0,0 +1,113 @@
+package com.orientechnologies.orient.core.index.sbtreebonsai.local;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class OSBTreeBonsaiBulkLoadTest {
+  private OLocalPaginatedStorage                      storage;
+  private OSBTreeBonsaiLocal<Integer, OIdentifiable> sbTree;
+  private String                                      buildDirectory;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/sbTreeBonsaiBulkLoadTest");
+    storage.create(null);
+
+    sbTree = new OSBTreeBonsaiLocal<Integer, OIdentifiable>(".irs", false);
+    sbTree.create("sbTreeBonsaiBulkLoad", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, storage);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.delete();
+    storage.delete();
+  }
+
+  public void testSingleBucketLoad() {
+    Assert.assertEquals(sbTree.bulkLoad(entries(10).iterator(), 1), 10);
+
+    assertKeys(10);
+  }
+
+  public void testMultiLevelLoad() {
+    final int keysCount = 100000;
+    Assert.assertEquals(sbTree.bulkLoad(entries(keysCount).iterator(), 0.9f), keysCount);
+
+    assertKeys(keysCount);
+  }
+
+  public void testModificationsAfterLoad() {
+    final int keysCount = 50000;
+    sbTree.bulkLoad(entries(keysCount).iterator(), 1);
+
+    for (int key = keysCount; key < 2 * keysCount; key++)
+      sbTree.put(key, value(key));
+
+    for (int key = 0; key < 2 * keysCount; key += 2)
+      Assert.assertEquals(sbTree.remove(key), value(key));
+
+    Assert.assertEquals(sbTree.size(), keysCount);
+    for (int key = 0; key < 2 * keysCount; key++) {
+      if (key % 2 == 0)
+        Assert.assertNull(sbTree.get(key));
+      else
+        Assert.assertEquals(sbTree.get(key), value(key));
+    }
+  }
+
+  private void assertKeys(int count) {
+    Assert.assertEquals(sbTree.size(), count);
+    Assert.assertEquals((int) sbTree.firstKey(), 0);
+    Assert.assertEquals((int) sbTree.lastKey(), count - 1);
+
+    for (int key = 0; key < count; key++)
+      Assert.assertEquals(sbTree.get(key), value(key));
+
+    final Collection<OIdentifiable> values = sbTree.getValuesMajor(0, true, -1);
+    Assert.assertEquals(values.size(), count);
+
+    int key = 0;
+    for (OIdentifiable value : values)
+      Assert.assertEquals(value, value(key++));
+  }
+
+  private static List<Map.Entry<Integer, OIdentifiable>> entries(int count) {
+    final List<Map.Entry<Integer, OIdentifiable>> entries = new ArrayList<Map.Entry<Integer, OIdentifiable>>();
+    for (int key = 0; key < count; key++)
+      entries.add(new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(key, value(key)));
+
+    return entries;
+  }
+
+  private static ORecordId value(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}
@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.core.index.sbtreebonsai.local;
 
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -17,6 +18,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageClusterConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
@@ -133,6 +135,7 @@ public class OSBTreeBonsaiWAL extends OSBTreeBonsaiLocalTest {
     when(actualStorage.getVariableParser()).thenReturn(variableParser);
     when(actualStorage.getConfiguration()).thenReturn(storageConfiguration);
     when(actualStorage.getMode()).thenReturn("rw");
+    when(actualStorage.getPageCompression(anyString())).thenReturn(ONothingCompression.NAME);
 
     when(storageConfiguration.getDirectory()).thenReturn(actualStorageDir);
 
@@ -171,6 +174,7 @@ public class OSBTreeBonsaiWAL extends OSBTreeBonsaiLocalTest {
     when(expectedStorage.getVariableParser()).thenReturn(variableParser);
     when(expectedStorage.getConfiguration()).thenReturn(storageConfiguration);
     when(expectedStorage.getMode()).thenReturn("rw");
+    when(expectedStorage.getPageCompression(anyString())).thenReturn(ONothingCompression.NAME);
 
     when(storageConfiguration.getDirectory()).thenReturn(expectedStorageDir);
 
@@ -0,0 +1,110 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.bitmap.OIndexBitmap;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OCommandExecutorSQLSelectBitmapIndexTest {
+  private static final String[] COUNTRIES = { "IT", "UK", "US", "DE" };
+  private static final String[] STATUSES  = { "active", "closed", "blocked" };
+
+  private ODatabaseDocumentTx   db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:bitmapIndexTest");
+    db.create();
+
+    final OClass customer = db.getMetadata().getSchema().createClass("Customer");
+    customer.createProperty("country", OType.STRING);
+    customer.createProperty("status", OType.STRING);
+    customer.createProperty("gender", OType.STRING);
+    customer.createProperty("age", OType.INTEGER);
+
+    db.command(new OCommandSQL("create index Customer.country on Customer (country) bitmap")).execute();
+    db.command(new OCommandSQL("create index Customer.status on Customer (status) bitmap")).execute();
+    db.command(new OCommandSQL("create index Customer.gender on Customer (gender) bitmap")).execute();
+
+    for (int i = 0; i < 1200; i++) {
+      final ODocument document = new ODocument("Customer");
+      document.field("country", COUNTRIES[i % 4]);
+      document.field("status", STATUSES[i % 3]);
+      document.field("gender", i % 2 == 0 ? "F" : "M");
+      document.field("age", i % 100);
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testIndexType() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Customer.country");
+    Assert.assertEquals(index.getType(), OClass.INDEX_TYPE.BITMAP.toString());
+    Assert.assertTrue(index.getInternal() instanceof OIndexBitmap);
+    Assert.assertEquals(((Set<?>) index.get("IT")).size(), 300);
+  }
+
+  public void testAnd() {
+    // i % 4 == 0 AND i % 3 == 0 -> i % 12 == 0
+    assertBitmapQuery("select from Customer where country = 'IT' and status = 'active'", 100, true);
+  }
+
+  public void testOrAndIn() {
+    assertBitmapQuery("select from Customer where (country = 'IT' or country = 'UK') and gender = 'F'", 300, true);
+    assertBitmapQuery("select from Customer where country in ['IT', 'UK'] and gender = 'F'", 300, true);
+  }
+
+  public void testAndNot() {
+    // i % 4 == 0 -> gender is always F
+    assertBitmapQuery("select from Customer where country = 'IT' and not (gender = 'F')", 0, true);
+    assertBitmapQuery("select from Customer where status = 'active' and not (country = 'IT' or country = 'UK')", 200, true);
+  }
+
+  public void testNotIndexedConditionIsEvaluated() {
+    final List<ODocument> result = assertBitmapQuery(
+        "select from Customer where country = 'UK' and status = 'closed' and age < 50", 52, false);
+    for (ODocument document : result)
+      Assert.assertTrue(document.<Integer> field("age") < 50);
+  }
+
+  public void testUpdateMovesRecordBetweenBitmaps() {
+    db.command(new OCommandSQL("update Customer set country = 'FR' where country = 'DE' and status = 'blocked'")).execute();
+
+    assertBitmapQuery("select from Customer where country = 'FR' and gender = 'M'", 100, true);
+    assertBitmapQuery("select from Customer where country = 'DE' and status = 'blocked'", 0, true);
+
+    db.command(new OCommandSQL("update Customer set country = 'DE' where country = 'FR'")).execute();
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<ODocument> assertBitmapQuery(final String query, final int expectedSize, final boolean exact) {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(result.size(), expectedSize);
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertTrue(((Set<String>) explain.field("involvedIndexes")).size() >= 2);
+    Assert.assertEquals(explain.field("bitmapExact"), exact);
+    if (exact)
+      Assert.assertEquals(explain.field("bitmapRecords"), expectedSize);
+    else
+      Assert.assertTrue(explain.<Integer> field("bitmapRecords") > expectedSize);
+
+    return result;
+  }
+}
@@ -0,0 +1,143 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OCommandExecutorSQLSelectCoveringIndexTest {
+  private ODatabaseDocumentTx db;
+  private ORID                firstRid;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:coveringIndexTest");
+    db.create();
+
+    final OClass account = db.getMetadata().getSchema().createClass("Account");
+    account.createProperty("name", OType.STRING);
+    account.createProperty("surname", OType.STRING);
+    account.createProperty("age", OType.INTEGER);
+    account.createProperty("city", OType.STRING);
+
+    db.command(new OCommandSQL("create index Account.name_surname on Account (name) include (surname, age) notunique")).execute();
+
+    for (int i = 0; i < 100; i++) {
+      final ODocument document = new ODocument("Account");
+      document.field("name", "name" + (i % 10));
+      document.field("surname", "surname" + i);
+      document.field("age", i);
+      document.field("city", "city" + i);
+      document.save();
+
+      if (i == 0)
+        firstRid = document.getIdentity();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testIncludedFieldsArePartOfTheKey() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Account.name_surname");
+    Assert.assertTrue(index.getDefinition() instanceof OCompositeIndexDefinition);
+    Assert.assertEquals(index.getDefinition().getFields().size(), 3);
+    Assert.assertEquals(index.getDefinition().getFields().get(0), "name");
+    Assert.assertEquals(index.getDefinition().getFields().get(1), "surname");
+    Assert.assertEquals(index.getDefinition().getFields().get(2), "age");
+  }
+
+  public void testProjectionIsAnsweredByIndex() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select name, surname, age as years from Account where name = 'name3'"));
+
+    Assert.assertEquals(result.size(), 10);
+    for (ODocument document : result) {
+      Assert.assertEquals(document.field("name"), "name3");
+      final int years = document.<Integer> field("years");
+      Assert.assertEquals(years % 10, 3);
+      Assert.assertEquals(document.field("surname"), "surname" + years);
+      Assert.assertFalse(document.containsField("city"));
+    }
+
+    final ODocument explain = db.command(
+        new OCommandSQL("explain select name, surname, age as years from Account where name = 'name3'")).execute();
+    Assert.assertEquals(explain.field("coveringIndex"), "Account.name_surname");
+    Assert.assertNull(explain.field("documentReads"));
+  }
+
+  public void testRidProjectionIsAnsweredByIndex() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select @rid as rid, surname from Account where name = 'name0' and surname = 'surname0'"));
+
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).field("rid", ORID.class), firstRid);
+    Assert.assertEquals(result.get(0).field("surname"), "surname0");
+  }
+
+  public void testNotCoveredProjectionLoadsRecords() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select name, city from Account where name = 'name4'"));
+
+    Assert.assertEquals(result.size(), 10);
+    for (ODocument document : result)
+      Assert.assertTrue(((String) document.field("city")).startsWith("city"));
+
+    final ODocument explain = db.command(new OCommandSQL("explain select name, city from Account where name = 'name4'"))
+        .execute();
+    Assert.assertNull(explain.field("coveringIndex"));
+    Assert.assertEquals(explain.<Number> field("documentReads").intValue(), 10);
+  }
+
+  public void testUpdatedIncludedFieldIsReturned() {
+    db.command(new OCommandSQL("update Account set surname = 'changed' where surname = 'surname15'")).execute();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select surname from Account where name = 'name5' and surname = 'surname15'"));
+
+    Assert.assertEquals(result.size(), 0);
+
+    final List<ODocument> changed = db.query(new OSQLSynchQuery<ODocument>(
+        "select surname, age from Account where name = 'name5' and surname = 'changed'"));
+
+    Assert.assertEquals(changed.size(), 1);
+    Assert.assertEquals(changed.get(0).<Integer> field("age").intValue(), 15);
+  }
+
+  public void testRecordWithNullIncludedFieldIsIndexed() {
+    final ODocument document = new ODocument("Account");
+    document.field("name", "nullSurname");
+    document.field("age", 200);
+    document.save();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select name, surname, age from Account where name = 'nullSurname'"));
+
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertNull(result.get(0).field("surname"));
+    Assert.assertEquals(result.get(0).<Integer> field("age").intValue(), 200);
+
+    final ODocument explain = db.command(
+        new OCommandSQL("explain select name, surname, age from Account where name = 'nullSurname'")).execute();
+    Assert.assertEquals(explain.field("coveringIndex"), "Account.name_surname");
+  }
+
+  @Test(expectedExceptions = OCommandSQLParsingException.class)
+  public void testIncludeIsRejectedOnUniqueIndexes() {
+    db.command(new OCommandSQL("create index Account.city_age on Account (city) include (age) unique")).execute();
+  }
+}
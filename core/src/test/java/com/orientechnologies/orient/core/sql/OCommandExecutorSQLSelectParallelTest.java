@@ -0,0 +1,106 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+@Test
+public class OCommandExecutorSQLSelectParallelTest {
+  private static final int    CLUSTERS  = 4;
+  private static final int    DOCUMENTS = 20000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:selectParallelTest");
+    db.create();
+
+    final OClass account = db.getMetadata().getSchema().createClass("Account");
+    account.createProperty("number", OType.INTEGER);
+    account.createProperty("branch", OType.STRING);
+
+    for (int i = 1; i < CLUSTERS; i++)
+      account.addClusterId(db.addCluster("account_" + i, OStorage.CLUSTER_TYPE.PHYSICAL));
+
+    for (int i = 0; i < DOCUMENTS; i++) {
+      final ODocument document = new ODocument("Account");
+      document.field("number", i);
+      document.field("branch", "branch" + (i % 10));
+      document.save(i % CLUSTERS == 0 ? "account" : "account_" + (i % CLUSTERS));
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testScanReturnsAllTheRecords() {
+    final List<ODocument> serial = db.query(new OSQLSynchQuery<ODocument>("select from Account where number % 3 = 0"));
+    final List<ODocument> parallel = db.query(new OSQLSynchQuery<ODocument>("select from Account where number % 3 = 0 parallel"));
+
+    Assert.assertEquals(parallel.size(), serial.size());
+    Assert.assertEquals(toRids(parallel), toRids(serial));
+  }
+
+  public void testLimit() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Account where branch = 'branch1' limit 15 parallel"));
+
+    Assert.assertEquals(result.size(), 15);
+    for (ODocument document : result)
+      Assert.assertEquals(document.field("branch"), "branch1");
+  }
+
+  public void testOrderBy() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Account where number < 100 order by number desc limit 10 parallel"));
+
+    Assert.assertEquals(result.size(), 10);
+    for (int i = 0; i < result.size(); i++)
+      Assert.assertEquals(result.get(i).field("number"), 99 - i);
+  }
+
+  public void testGroupBy() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select branch, count(*) as total from Account group by branch parallel"));
+
+    Assert.assertEquals(result.size(), 10);
+    for (ODocument document : result)
+      Assert.assertEquals(((Number) document.field("total")).intValue(), DOCUMENTS / 10);
+  }
+
+  public void testRange() {
+    final int clusterId = db.getClusterIdByName("account_1");
+
+    final String query = "select from Account where @rid >= #" + clusterId + ":100 and @rid <= #" + clusterId + ":3000";
+
+    final List<ODocument> serial = db.query(new OSQLSynchQuery<ODocument>(query));
+    final List<ODocument> parallel = db.query(new OSQLSynchQuery<ODocument>(query + " parallel"));
+
+    Assert.assertFalse(serial.isEmpty());
+    Assert.assertEquals(toRids(parallel), toRids(serial));
+  }
+
+  private static Set<Object> toRids(final List<? extends OIdentifiable> result) {
+    final Set<Object> rids = new HashSet<Object>();
+    for (OIdentifiable identifiable : result)
+      rids.add(identifiable.getIdentity());
+
+    return rids;
+  }
+}
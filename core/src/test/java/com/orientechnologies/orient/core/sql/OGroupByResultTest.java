@@ -0,0 +1,237 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
+import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
+
+@Test
+public class OGroupByResultTest {
+  public void testInMemory() {
+    final List<ODocument> documents = createDocuments(1000, 100);
+
+    final OGroupByResult result = new OGroupByResult(new CountHandler(false), 1000, 4);
+    result.setGrouped(true);
+    result.getGroup(null);
+    for (ODocument document : documents)
+      result.aggregate(document);
+
+    Assert.assertEquals(result.getSpilledPartitions(), 0);
+    Assert.assertEquals(counts(result), expectedCounts(documents));
+  }
+
+  public void testSpill() {
+    final List<ODocument> documents = createDocuments(3000, 300);
+
+    final OGroupByResult result = new OGroupByResult(new CountHandler(false), 50, 8);
+    try {
+      result.setGrouped(true);
+      result.getGroup(null);
+      for (ODocument document : documents)
+        result.aggregate(document);
+
+      Assert.assertTrue(result.getSpilledPartitions() > 0);
+      Assert.assertEquals(counts(result), expectedCounts(documents));
+
+      // SPILLED PARTITIONS ARE AGGREGATED AGAIN
+      Assert.assertEquals(result.size(), 300);
+    } finally {
+      result.close();
+    }
+  }
+
+  public void testRecursiveSpill() {
+    final List<ODocument> documents = createDocuments(2000, 500);
+
+    final OGroupByResult result = new OGroupByResult(new CountHandler(false), 3, 2);
+    try {
+      result.setGrouped(true);
+      for (ODocument document : documents)
+        result.aggregate(document);
+
+      Assert.assertEquals(counts(result), expectedCounts(documents));
+    } finally {
+      result.close();
+    }
+  }
+
+  public void testCloseDeletesPartitionsOfAbandonedIteration() {
+    final int filesBefore = temporaryFiles();
+
+    final OGroupByResult result = new OGroupByResult(new CountHandler(false), 3, 2);
+    result.setGrouped(true);
+    for (ODocument document : createDocuments(2000, 500))
+      result.aggregate(document);
+
+    Assert.assertTrue(temporaryFiles() > filesBefore);
+
+    // THREE GROUPS ARE IN MEMORY, THE NEXT ONES ARE READ FROM A PARTITION WHICH IS SPILLED AGAIN WHILE IT IS AGGREGATED
+    final Iterator<OIdentifiable> iterator = result.iterator();
+    for (int i = 0; i < 5; i++)
+      iterator.next();
+    result.close();
+
+    Assert.assertEquals(temporaryFiles(), filesBefore);
+  }
+
+  public void testNullGroup() {
+    final List<ODocument> documents = createDocuments(100, 10);
+    documents.get(0).removeField("key");
+
+    final OGroupByResult grouped = new OGroupByResult(new CountHandler(false), 1000, 4);
+    grouped.setGrouped(true);
+    for (ODocument document : documents)
+      grouped.aggregate(document);
+
+    Assert.assertFalse(counts(grouped).containsKey(null));
+
+    final OGroupByResult notGrouped = new OGroupByResult(new CountHandler(false) {
+      @Override
+      public Object getGroupValue(final OIdentifiable iRecord) {
+        return null;
+      }
+    }, 1000, 4);
+    notGrouped.getGroup(null);
+    for (ODocument document : documents)
+      notGrouped.aggregate(document);
+
+    Assert.assertEquals(notGrouped.size(), 1);
+    Assert.assertEquals(((ODocument) notGrouped.iterator().next()).field("total"), 100l);
+  }
+
+  public void testWindow() {
+    final List<ODocument> documents = createDocuments(1000, 100);
+
+    final OGroupByResult result = new OGroupByResult(new CountHandler(false), 20, 4);
+    try {
+      result.setGrouped(true);
+      for (ODocument document : documents)
+        result.aggregate(document);
+
+      result.setWindow(10, 25);
+      Assert.assertEquals(result.size(), 25);
+    } finally {
+      result.close();
+    }
+  }
+
+  public void testStreaming() {
+    final List<ODocument> documents = createDocuments(1000, 100);
+    Collections.sort(documents, new Comparator<ODocument>() {
+      public int compare(final ODocument documentOne, final ODocument documentTwo) {
+        return ((Integer) documentOne.field("key")).compareTo((Integer) documentTwo.field("key"));
+      }
+    });
+
+    final OGroupByResult result = new OGroupByResult(new CountHandler(true), 10, 4);
+    result.setGrouped(true);
+
+    final Map<Object, Long> counts = new LinkedHashMap<Object, Long>();
+    for (ODocument document : documents) {
+      final ODocument group = result.aggregate(document);
+      if (group != null)
+        counts.put(group.field("key"), (Long) group.field("total"));
+    }
+
+    Assert.assertTrue(result.isStreaming());
+    Assert.assertEquals(result.getSpilledPartitions(), 0);
+
+    final ODocument last = result.completeStreamedGroup();
+    counts.put(last.field("key"), (Long) last.field("total"));
+
+    Assert.assertEquals(counts, expectedCounts(documents));
+    // GROUPS ARE COMPLETED IN THE ORDER OF KEYS
+    Assert.assertEquals(new ArrayList<Object>(counts.keySet()), new ArrayList<Object>(new TreeSet<Object>(counts.keySet())));
+  }
+
+  private static int temporaryFiles() {
+    final String[] files = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+      public boolean accept(File dir, String name) {
+        return name.startsWith("orientdb-groupby-");
+      }
+    });
+
+    return files == null ? 0 : files.length;
+  }
+
+  private static class CountHandler implements OGroupByResult.OGroupHandler {
+    private final boolean ordered;
+
+    private CountHandler(final boolean ordered) {
+      this.ordered = ordered;
+    }
+
+    public Object getGroupValue(final OIdentifiable iRecord) {
+      return ((ODocument) iRecord.getRecord()).field("key");
+    }
+
+    public ORuntimeResult createGroup(final Object iGroupValue, final int iProgressive) {
+      final Map<String, Object> projections = new LinkedHashMap<String, Object>();
+      if (iGroupValue != null)
+        projections.put("key", iGroupValue);
+      projections.put("total", new OSQLFunctionRuntime(new OSQLFunctionCount()).setParameters(new Object[] { "*" }, false));
+
+      return new ORuntimeResult(iGroupValue, projections, iProgressive, new OBasicCommandContext());
+    }
+
+    public boolean isOrderedByGroup() {
+      return ordered;
+    }
+
+    public boolean isReplayable() {
+      return true;
+    }
+  }
+
+  private static List<ODocument> createDocuments(final int amount, final int groups) {
+    final Random random = new Random(42);
+
+    final List<ODocument> documents = new ArrayList<ODocument>(amount);
+    for (int i = 0; i < amount; i++)
+      documents.add(new ODocument().field("key", random.nextInt(groups)).field("sequence", i));
+
+    return documents;
+  }
+
+  private static Map<Object, Long> expectedCounts(final List<ODocument> documents) {
+    final Map<Object, Long> counts = new HashMap<Object, Long>();
+    for (ODocument document : documents) {
+      final Object key = document.field("key");
+      if (key == null)
+        continue;
+
+      final Long count = counts.get(key);
+      counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    return counts;
+  }
+
+  private static Map<Object, Long> counts(final OGroupByResult result) {
+    final Map<Object, Long> counts = new HashMap<Object, Long>();
+    for (OIdentifiable group : result) {
+      final ODocument document = (ODocument) group;
+      Assert.assertFalse(counts.containsKey(document.field("key")), "Group returned twice: " + document.field("key"));
+      counts.put(document.field("key"), (Long) document.field("total"));
+    }
+
+    return counts;
+  }
+}
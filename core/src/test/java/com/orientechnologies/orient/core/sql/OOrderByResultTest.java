@@ -0,0 +1,160 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
+
+@Test
+public class OOrderByResultTest {
+  private static final List<OPair<String, String>> ORDER_BY = Arrays.asList(new OPair<String, String>("value",
+                                                                 OCommandExecutorSQLSelect.KEYWORD_DESC));
+
+  public void testTopRecords() {
+    final List<ODocument> documents = createDocuments(1000, 100);
+
+    final OOrderByResult result = new OOrderByResult(ORDER_BY, 0, 20, 0);
+    for (ODocument document : documents)
+      result.add(document);
+
+    Assert.assertEquals(result.size(), 20);
+    Assert.assertEquals(sequences(result), sequences(sort(documents).subList(0, 20)));
+  }
+
+  public void testSkipAndLimit() {
+    final List<ODocument> documents = createDocuments(1000, 100);
+
+    final OOrderByResult result = new OOrderByResult(ORDER_BY, 30, 15, 0);
+    for (ODocument document : documents)
+      result.add(document);
+
+    Assert.assertEquals(result.size(), 15);
+    Assert.assertEquals(sequences(result), sequences(sort(documents).subList(30, 45)));
+  }
+
+  public void testLimitBiggerThanRecords() {
+    final List<ODocument> documents = createDocuments(10, 100);
+
+    final OOrderByResult result = new OOrderByResult(ORDER_BY, 5, 20, 0);
+    for (ODocument document : documents)
+      result.add(document);
+
+    Assert.assertEquals(result.size(), 5);
+    Assert.assertEquals(sequences(result), sequences(sort(documents).subList(5, 10)));
+  }
+
+  public void testInMemorySort() {
+    final List<ODocument> documents = createDocuments(1000, 50);
+
+    final OOrderByResult result = new OOrderByResult(ORDER_BY, 0, -1, 0);
+    for (ODocument document : documents)
+      result.add(document);
+
+    Assert.assertEquals(result.getSpilledRuns(), 0);
+    Assert.assertEquals(sequences(result), sequences(sort(documents)));
+  }
+
+  public void testSpill() {
+    final List<ODocument> documents = createDocuments(1050, 50);
+
+    final OOrderByResult result = new OOrderByResult(ORDER_BY, 10, -1, 100);
+    try {
+      for (ODocument document : documents)
+        result.add(document);
+
+      Assert.assertEquals(result.getSpilledRuns(), 10);
+      Assert.assertEquals(result.size(), 1040);
+
+      final List<ODocument> expected = sort(documents).subList(10, 1050);
+      final List<OIdentifiable> actual = toList(result);
+      Assert.assertEquals(actual.size(), expected.size());
+
+      // SPILLED RECORDS ARE READ BACK AS NEW INSTANCES WITH THE SAME IDENTITY AND CONTENT
+      for (int i = 0; i < expected.size(); i++) {
+        final ODocument document = (ODocument) actual.get(i);
+        Assert.assertEquals(document.getIdentity(), expected.get(i).getIdentity());
+        Assert.assertEquals(document.field("value"), expected.get(i).field("value"));
+        Assert.assertEquals(document.field("sequence"), expected.get(i).field("sequence"));
+      }
+    } finally {
+      result.close();
+    }
+  }
+
+  public void testCloseDeletesSpilledRuns() {
+    final int filesBefore = temporaryFiles();
+
+    final OOrderByResult result = new OOrderByResult(ORDER_BY, 0, -1, 100);
+    for (ODocument document : createDocuments(250, 50))
+      result.add(document);
+
+    Assert.assertEquals(result.getSpilledRuns(), 2);
+    Assert.assertEquals(temporaryFiles(), filesBefore + 2);
+
+    // RUNS ARE OPENED BY THE ITERATOR WHICH IS NOT EXHAUSTED
+    result.iterator().next();
+    result.close();
+
+    Assert.assertEquals(temporaryFiles(), filesBefore);
+  }
+
+  private static int temporaryFiles() {
+    final String[] files = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+      public boolean accept(File dir, String name) {
+        return name.startsWith("orientdb-orderby-");
+      }
+    });
+
+    return files == null ? 0 : files.length;
+  }
+
+  private static List<ODocument> createDocuments(final int count, final int distinctValues) {
+    final Random random = new Random(42);
+
+    final List<ODocument> documents = new ArrayList<ODocument>();
+    for (int i = 0; i < count; i++) {
+      final ODocument document = new ODocument();
+      document.field("value", random.nextInt(distinctValues));
+      document.field("sequence", i);
+      // TEMPORARY RECORDS ARE ALL EQUAL FOR THE COMPARATOR, SO EVERY DOCUMENT GETS ITS OWN IDENTITY
+      document.setIdentity(new ORecordId(10, OClusterPositionFactory.INSTANCE.valueOf(i)));
+      documents.add(document);
+    }
+
+    return documents;
+  }
+
+  private static List<ODocument> sort(final List<ODocument> documents) {
+    final List<ODocument> sorted = new ArrayList<ODocument>(documents);
+    ODocumentHelper.sort(sorted, ORDER_BY);
+    return sorted;
+  }
+
+  private static List<Integer> sequences(final Iterable<? extends OIdentifiable> result) {
+    final List<Integer> sequences = new ArrayList<Integer>();
+    for (OIdentifiable identifiable : result)
+      sequences.add((Integer) ((ODocument) identifiable).field("sequence"));
+
+    return sequences;
+  }
+
+  private static List<OIdentifiable> toList(final Iterable<OIdentifiable> result) {
+    final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
+    for (OIdentifiable identifiable : result)
+      list.add(identifiable);
+
+    return list;
+  }
+}
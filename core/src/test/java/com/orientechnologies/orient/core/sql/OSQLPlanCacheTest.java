@@ -0,0 +1,87 @@
+package com.orientechnologies.orient.core.sql;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OSQLPlanCacheTest {
+  public void testKeyNormalization() {
+    final String key = OSQLPlanCache.getKey("  select from   Account\twhere name = 'a  b'  ", -1, 3);
+
+    Assert.assertEquals(key, "3|-1|select from Account where name = 'a  b'");
+    Assert.assertEquals(OSQLPlanCache.getKey("select from Account where name = \"x \\\"  y\"", 10, 3),
+        "3|10|select from Account where name = \"x \\\"  y\"");
+    Assert.assertFalse(key.equals(OSQLPlanCache.getKey("select from Account where name = 'a  b'", -1, 4)));
+    Assert.assertFalse(key.equals(OSQLPlanCache.getKey("select from Account where name = 'a  b'", 20, 3)));
+  }
+
+  public void testHitsAndMisses() {
+    final OSQLPlanCache cache = new OSQLPlanCache(null, 10);
+
+    Assert.assertNull(cache.poll("a"));
+    final CacheableExecutor executor = new CacheableExecutor(true);
+    cache.offer("a", executor, 1000);
+
+    Assert.assertSame(cache.poll("a"), executor);
+    // TAKEN BY OTHER EXECUTION
+    Assert.assertNull(cache.poll("a"));
+
+    cache.offer("a", executor, 0);
+    cache.offer("a", new CacheableExecutor(true), 0);
+    Assert.assertSame(cache.poll("a"), executor);
+
+    Assert.assertEquals(cache.getHits(), 2);
+    Assert.assertEquals(cache.getMisses(), 2);
+    Assert.assertEquals(cache.getHitRate(), 0.5f);
+    Assert.assertEquals(cache.getParseTimeSaved(), 2000);
+    Assert.assertEquals(executor.released, 2);
+  }
+
+  public void testNotCacheable() {
+    final OSQLPlanCache cache = new OSQLPlanCache(null, 10);
+
+    Assert.assertNull(cache.poll("a"));
+    cache.offer("a", new CacheableExecutor(false), 1000);
+
+    Assert.assertNull(cache.poll("a"));
+    Assert.assertNull(cache.poll("a"));
+    Assert.assertEquals(cache.getMisses(), 1);
+    Assert.assertEquals(cache.getHits(), 0);
+  }
+
+  public void testLeastRecentlyUsedEviction() {
+    final OSQLPlanCache cache = new OSQLPlanCache(null, 3);
+
+    for (String key : new String[] { "a", "b", "c" })
+      cache.offer(key, new CacheableExecutor(true), 0);
+
+    // "a" IS USED, SO "b" IS THE LEAST RECENTLY USED
+    cache.offer("a", cache.poll("a"), 0);
+    cache.offer("d", new CacheableExecutor(true), 0);
+
+    Assert.assertEquals(cache.getSize(), 3);
+    Assert.assertNull(cache.poll("b"));
+    Assert.assertNotNull(cache.poll("a"));
+    Assert.assertNotNull(cache.poll("c"));
+    Assert.assertNotNull(cache.poll("d"));
+  }
+
+  private static final class CacheableExecutor extends OCommandExecutorSQLSelect {
+    private final boolean cacheable;
+    private int           released;
+
+    private CacheableExecutor(final boolean cacheable) {
+      this.cacheable = cacheable;
+    }
+
+    @Override
+    public boolean isCacheable() {
+      return cacheable;
+    }
+
+    @Override
+    public void release() {
+      released++;
+    }
+  }
+}
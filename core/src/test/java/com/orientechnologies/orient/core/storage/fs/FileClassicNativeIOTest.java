@@ -0,0 +1,112 @@
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+@Test
+public class FileClassicNativeIOTest {
+  private static final int PAGE_SIZE = 3000;
+  private static final int PAGES     = 100;
+
+  private String           fileName;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    fileName = buildDirectory + File.separator + "fileClassicNativeIOTest.tst";
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    final File file = new File(fileName);
+    if (file.exists())
+      Assert.assertTrue(file.delete());
+  }
+
+  public void testDirectIOReadWrite() throws Exception {
+    final OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(fileName, "rw");
+    fileClassic.setNativeIO(true, "random", false);
+    fileClassic.create(-1);
+
+    if (!fileClassic.isDirectIO()) {
+      fileClassic.delete();
+      throw new SkipException("Direct IO is not supported");
+    }
+
+    final byte[][] pages = writePages(fileClassic);
+
+    final File osFile = new File(fileName);
+    Assert.assertEquals(osFile.length(), OAbstractFile.HEADER_SIZE + (long) PAGES * PAGE_SIZE);
+
+    assertPages(fileClassic, pages);
+    fileClassic.close();
+
+    final OFileClassic plainFile = new OFileClassic();
+    plainFile.init(fileName, "rw");
+    Assert.assertTrue(plainFile.open());
+    Assert.assertEquals(plainFile.getFilledUpTo(), (long) PAGES * PAGE_SIZE);
+
+    assertPages(plainFile, pages);
+    plainFile.close();
+  }
+
+  public void testDropOSCacheReadWrite() throws Exception {
+    final OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(fileName, "rw");
+    fileClassic.setNativeIO(false, "sequential", true);
+    fileClassic.create(-1);
+
+    final byte[][] pages = writePages(fileClassic);
+    fileClassic.synch();
+
+    assertPages(fileClassic, pages);
+    fileClassic.close();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownAdvice() {
+    new OFileClassic().setNativeIO(false, "everything", false);
+  }
+
+  private byte[][] writePages(OFileClassic fileClassic) throws Exception {
+    final Random random = new Random();
+    final byte[][] pages = new byte[PAGES][];
+
+    fileClassic.allocateSpace((long) PAGES * PAGE_SIZE);
+
+    // pages are written in random order, so edges of unaligned pages are read back before write
+    for (int i = 0; i < PAGES; i++) {
+      final int pageIndex = (i * 37) % PAGES;
+
+      final byte[] page = new byte[PAGE_SIZE];
+      random.nextBytes(page);
+      pages[pageIndex] = page;
+
+      fileClassic.write((long) pageIndex * PAGE_SIZE, page);
+    }
+
+    return pages;
+  }
+
+  private void assertPages(OFileClassic fileClassic, byte[][] pages) throws Exception {
+    for (int i = 0; i < PAGES; i++) {
+      final byte[] content = new byte[PAGE_SIZE];
+      fileClassic.read((long) i * PAGE_SIZE, content, PAGE_SIZE);
+
+      Assert.assertEquals(content, pages[i]);
+    }
+  }
+}
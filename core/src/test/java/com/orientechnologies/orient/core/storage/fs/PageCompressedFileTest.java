@@ -0,0 +1,332 @@
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
+import com.orientechnologies.orient.core.compression.impl.OSnappyCompression;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+@Test
+public class PageCompressedFileTest {
+  private static final int PAGE_SIZE = 8192;
+  private static final int PAGES     = 100;
+
+  private String           fileName;
+  private Random           random;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    fileName = buildDirectory + File.separator + "pageCompressedFileTest.tst";
+
+    final long seed = System.currentTimeMillis();
+    System.out.println("PageCompressedFileTest seed : " + seed);
+    random = new Random(seed);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    for (String name : new String[] { fileName, fileName + OPageCompressedFile.TABLE_EXTENSION }) {
+      final File file = new File(name);
+      if (file.exists())
+        Assert.assertTrue(file.delete());
+    }
+  }
+
+  public void testWriteReadPages() throws Exception {
+    OPageCompressedFile file = createFile();
+    Assert.assertTrue(OPageCompressedFile.isPageCompressed(fileName));
+
+    final byte[][] pages = writePages(file);
+    Assert.assertEquals(file.getFilledUpTo(), (long) PAGES * PAGE_SIZE);
+
+    assertPages(file, pages);
+    Assert.assertTrue(file.getPhysicalSize() < (long) PAGES * PAGE_SIZE);
+    file.close();
+
+    Assert.assertTrue(new File(fileName).length() < OAbstractFile.HEADER_SIZE + (long) PAGES * PAGE_SIZE);
+
+    file = openFile();
+    Assert.assertEquals(file.getCompressionName(), OSnappyCompression.NAME);
+    Assert.assertEquals(file.getFilledUpTo(), (long) PAGES * PAGE_SIZE);
+
+    assertPages(file, pages);
+    file.close();
+  }
+
+  public void testRewritePagesReusesExtents() throws Exception {
+    OPageCompressedFile file = createFile();
+
+    final byte[][] pages = writePages(file);
+    final long physicalSize = file.getPhysicalSize();
+
+    for (int n = 0; n < 10 * PAGES; n++) {
+      final int pageIndex = random.nextInt(PAGES);
+      pages[pageIndex] = generatePage();
+      file.write((long) pageIndex * PAGE_SIZE, pages[pageIndex]);
+
+      // replaced extents are reused only after page table is synched
+      if (n % (PAGES / 10) == 0)
+        file.synch();
+    }
+
+    assertPages(file, pages);
+    Assert.assertTrue(file.getPhysicalSize() <= physicalSize + 2 * PAGE_SIZE * PAGES / 10);
+    file.close();
+
+    file = openFile();
+    assertPages(file, pages);
+
+    final int pageIndex = random.nextInt(PAGES);
+    pages[pageIndex] = generatePage();
+    file.write((long) pageIndex * PAGE_SIZE, pages[pageIndex]);
+
+    assertPages(file, pages);
+    file.close();
+  }
+
+  public void testShrink() throws Exception {
+    OPageCompressedFile file = createFile();
+
+    final byte[][] pages = writePages(file);
+
+    file.shrink((long) PAGE_SIZE * PAGES / 2);
+    Assert.assertEquals(file.getFilledUpTo(), (long) PAGE_SIZE * PAGES / 2);
+
+    final byte[][] leftPages = new byte[PAGES / 2][];
+    System.arraycopy(pages, 0, leftPages, 0, leftPages.length);
+    assertPages(file, leftPages);
+    file.close();
+
+    file = openFile();
+    Assert.assertEquals(file.getFilledUpTo(), (long) PAGE_SIZE * PAGES / 2);
+    assertPages(file, leftPages);
+
+    file.shrink(0);
+    Assert.assertEquals(file.getFilledUpTo(), 0);
+    file.synch();
+    Assert.assertEquals(file.getPhysicalSize(), 0);
+    file.close();
+  }
+
+  public void testRewriteIsNotVisibleAfterCrashWithoutSynch() throws Exception {
+    OPageCompressedFile file = createFile();
+    file.allocateSpace(2 * PAGE_SIZE);
+
+    final byte[] page = generatePage();
+    file.write(0, page);
+    file.synch();
+
+    final File tableFile = new File(fileName + OPageCompressedFile.TABLE_EXTENSION);
+    final byte[] table = readFully(tableFile);
+
+    // rewrite of page and write of other page may reuse the same extent
+    file.write(0, generatePage());
+    file.write(PAGE_SIZE, generatePage());
+    file.close();
+
+    // crash before page table was forced to disk
+    final FileOutputStream out = new FileOutputStream(tableFile);
+    try {
+      out.write(table);
+    } finally {
+      out.close();
+    }
+
+    file = openFile();
+    final byte[] content = new byte[PAGE_SIZE];
+    file.read(0, content, PAGE_SIZE);
+    Assert.assertEquals(content, page);
+    file.close();
+  }
+
+  public void testConcurrentReadsDuringRewrite() throws Exception {
+    final OPageCompressedFile file = createFile();
+    file.allocateSpace((long) PAGES * PAGE_SIZE);
+    for (int i = 0; i < PAGES; i++)
+      file.write((long) i * PAGE_SIZE, versionedPage(i, 0));
+
+    final AtomicBoolean stop = new AtomicBoolean();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+    for (int n = 0; n < 3; n++)
+      readers.add(executor.submit(new Callable<Integer>() {
+        public Integer call() throws Exception {
+          final Random threadRandom = new Random();
+          final byte[] content = new byte[PAGE_SIZE];
+
+          int reads = 0;
+          while (!stop.get()) {
+            final int pageIndex = threadRandom.nextInt(PAGES);
+            file.read((long) pageIndex * PAGE_SIZE, content, PAGE_SIZE);
+
+            final int version = ByteBuffer.wrap(content).getInt(4);
+            Assert.assertEquals(content, versionedPage(pageIndex, version), "page " + pageIndex);
+            reads++;
+          }
+
+          return reads;
+        }
+      }));
+
+    final Future<Void> writer = executor.submit(new Callable<Void>() {
+      public Void call() throws Exception {
+        final Random threadRandom = new Random();
+        for (int version = 1; version <= 20 * PAGES; version++) {
+          final int pageIndex = threadRandom.nextInt(PAGES);
+          file.write((long) pageIndex * PAGE_SIZE, versionedPage(pageIndex, version));
+
+          if (version % 10 == 0)
+            file.synch();
+        }
+
+        return null;
+      }
+    });
+
+    try {
+      writer.get();
+    } finally {
+      stop.set(true);
+    }
+
+    for (Future<Integer> reader : readers)
+      Assert.assertTrue(reader.get() > 0);
+
+    executor.shutdown();
+    file.close();
+  }
+
+  public void testPartialAccess() throws Exception {
+    final OPageCompressedFile file = createFile();
+    file.allocateSpace(3 * PAGE_SIZE);
+
+    final byte[] empty = new byte[PAGE_SIZE];
+    file.read(PAGE_SIZE, empty, PAGE_SIZE);
+    Assert.assertEquals(empty, new byte[PAGE_SIZE]);
+
+    file.writeLong(PAGE_SIZE - 4, 0x0102030405060708L);
+    file.writeInt(2 * PAGE_SIZE + 10, 42);
+
+    Assert.assertEquals(file.readLong(PAGE_SIZE - 4), 0x0102030405060708L);
+    Assert.assertEquals(file.readInt(2 * PAGE_SIZE + 10), 42);
+    Assert.assertEquals(file.readByte(PAGE_SIZE - 5), 0);
+
+    file.close();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownCompression() throws Exception {
+    final OFileClassic dataFile = new OFileClassic();
+    dataFile.init(fileName, "rw");
+    new OPageCompressedFile(dataFile, PAGE_SIZE, "unknown");
+  }
+
+  private OPageCompressedFile createFile() throws Exception {
+    final OFileClassic dataFile = new OFileClassic();
+    dataFile.init(fileName, "rw");
+
+    final OPageCompressedFile file = new OPageCompressedFile(dataFile, PAGE_SIZE, OSnappyCompression.NAME);
+    file.create(-1);
+    return file;
+  }
+
+  private OPageCompressedFile openFile() throws Exception {
+    final OFileClassic dataFile = new OFileClassic();
+    dataFile.init(fileName, "rw");
+
+    final OPageCompressedFile file = new OPageCompressedFile(dataFile, PAGE_SIZE, ONothingCompression.NAME);
+    file.open();
+    return file;
+  }
+
+  private byte[][] writePages(OPageCompressedFile file) throws Exception {
+    final byte[][] pages = new byte[PAGES][];
+
+    file.allocateSpace((long) PAGES * PAGE_SIZE);
+
+    for (int i = 0; i < PAGES; i++) {
+      final int pageIndex = (i * 37) % PAGES;
+
+      pages[pageIndex] = generatePage();
+      file.write((long) pageIndex * PAGE_SIZE, pages[pageIndex]);
+    }
+
+    return pages;
+  }
+
+  /**
+   * Every fifth page is random and can not be compressed, other pages contain only few distinct values.
+   */
+  private byte[] generatePage() {
+    final byte[] page = new byte[PAGE_SIZE];
+
+    if (random.nextInt(5) == 0)
+      random.nextBytes(page);
+    else {
+      final int chunk = 16 + random.nextInt(512);
+      for (int i = 0; i < PAGE_SIZE; i += chunk)
+        page[i] = (byte) random.nextInt(4);
+    }
+
+    return page;
+  }
+
+  /**
+   * Page which starts from its index and version, rest of content is generated from them.
+   */
+  private static byte[] versionedPage(final int pageIndex, final int version) {
+    final byte[] page = new byte[PAGE_SIZE];
+    final Random pageRandom = new Random(((long) pageIndex << 32) | version);
+
+    final int chunk = 16 + pageRandom.nextInt(512);
+    for (int i = 8; i < PAGE_SIZE; i += chunk)
+      page[i] = (byte) pageRandom.nextInt(4);
+
+    ByteBuffer.wrap(page).putInt(0, pageIndex).putInt(4, version);
+    return page;
+  }
+
+  private static byte[] readFully(final File file) throws Exception {
+    final byte[] content = new byte[(int) file.length()];
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      int read = 0;
+      while (read < content.length)
+        read += in.read(content, read, content.length - read);
+    } finally {
+      in.close();
+    }
+
+    return content;
+  }
+
+  private void assertPages(OPageCompressedFile file, byte[][] pages) throws Exception {
+    for (int i = 0; i < pages.length; i++) {
+      final byte[] content = new byte[PAGE_SIZE];
+      file.read((long) i * PAGE_SIZE, content, PAGE_SIZE);
+
+      Assert.assertEquals(content, pages[i], "page " + i);
+    }
+  }
+}
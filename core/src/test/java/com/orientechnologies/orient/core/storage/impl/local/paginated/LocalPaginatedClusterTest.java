@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.core.storage.impl.local.paginated;
 
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -95,6 +96,7 @@ public class LocalPaginatedClusterTest {
     when(storage.getVariableParser()).thenReturn(variableParser);
     when(storage.getConfiguration()).thenReturn(storageConfiguration);
     when(storage.getMode()).thenReturn("rw");
+    when(storage.getPageCompression(anyString())).thenReturn(ONothingCompression.NAME);
     when(storage.getStoragePath()).thenReturn(buildDirectory);
 
     when(storageConfiguration.getDirectory()).thenReturn(buildDirectory);
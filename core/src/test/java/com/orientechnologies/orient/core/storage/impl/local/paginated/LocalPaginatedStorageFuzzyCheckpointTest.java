@@ -0,0 +1,182 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+@Test
+public class LocalPaginatedStorageFuzzyCheckpointTest {
+  private static final int       RECORD_SIZE = 512;
+
+  private OLocalPaginatedStorage storage;
+  private String                 buildDirectory;
+  private Random                 random;
+
+  private int                    maxLag;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    final long seed = System.currentTimeMillis();
+    System.out.println("LocalPaginatedStorageFuzzyCheckpointTest seed : " + seed);
+    random = new Random(seed);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    maxLag = OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_MAX_LAG.getValueAsInteger();
+
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/baseLocalPaginatedStorageFuzzyCheckpointTest");
+    storage.create(null);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_MAX_LAG.setValue(maxLag);
+
+    storage.delete();
+  }
+
+  public void testCheckpointReducesLag() throws Exception {
+    OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_MAX_LAG.setValue(1);
+
+    final int clusterId = storage.addCluster("PHYSICAL", "fuzzyCheckpointCluster", null, null, false);
+    final OCluster cluster = storage.getClusterById(clusterId);
+
+    for (int i = 0; i < 8 * 1024; i++)
+      cluster.createRecord(generateRecord(), OVersionFactory.instance().createVersion(), (byte) 'b');
+
+    final long lagBefore = storage.getCheckpointLag();
+    Assert.assertTrue(lagBefore > 2 * 1024 * 1024, "lag " + lagBefore);
+
+    storage.makeFuzzyCheckpoint();
+
+    final long lagAfter = storage.getCheckpointLag();
+    Assert.assertTrue(lagAfter < 1024 * 1024, "lag " + lagAfter);
+  }
+
+  public void testRestoreFromFuzzyCheckpoint() throws Exception {
+    OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_MAX_LAG.setValue(1);
+
+    final int clusterId = storage.addCluster("PHYSICAL", "fuzzyCheckpointCluster", null, null, false);
+
+    final List<byte[]> records = new ArrayList<byte[]>();
+    final List<OClusterPosition> positions = new ArrayList<OClusterPosition>();
+
+    for (int i = 0; i < 8 * 1024; i++)
+      createRecord(clusterId, records, positions);
+
+    storage.makeFuzzyCheckpoint();
+
+    for (int i = 0; i < 1024; i++) {
+      final byte[] record = generateRecord();
+      final int index = random.nextInt(records.size());
+
+      storage.updateRecord(new ORecordId(clusterId, positions.get(index)), record,
+          OVersionFactory.instance().createUntrackedVersion(), (byte) 'b', 0, null);
+      records.set(index, record);
+    }
+
+    for (int i = 0; i < 1024; i++)
+      createRecord(clusterId, records, positions);
+
+    storage.getWALInstance().flush();
+
+    final File copyDir = copyDataWithoutClose();
+
+    final OLocalPaginatedStorage restoredStorage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + copyDir.getAbsolutePath());
+    restoredStorage.open(null, null, null);
+    try {
+      Assert.assertTrue(restoredStorage.wereDataRestoredAfterOpen());
+
+      final OCluster restoredCluster = restoredStorage.getClusterById(clusterId);
+      for (int i = 0; i < records.size(); i++) {
+        final ORawBuffer buffer = restoredCluster.readRecord(positions.get(i));
+        Assert.assertNotNull(buffer, "record " + i);
+        Assert.assertEquals(buffer.buffer, records.get(i), "record " + i);
+      }
+    } finally {
+      restoredStorage.delete();
+    }
+  }
+
+  private void createRecord(int clusterId, List<byte[]> records, List<OClusterPosition> positions) {
+    final byte[] record = generateRecord();
+    final OPhysicalPosition position = storage.createRecord(0, new ORecordId(clusterId), record,
+        OVersionFactory.instance().createVersion(), (byte) 'b', 0, null).getResult();
+
+    records.add(record);
+    positions.add(position.clusterPosition);
+  }
+
+  private byte[] generateRecord() {
+    final byte[] record = new byte[RECORD_SIZE];
+    random.nextBytes(record);
+    return record;
+  }
+
+  private File copyDataWithoutClose() throws IOException {
+    final File storageDir = new File(storage.getStoragePath());
+    final File copyDir = new File(buildDirectory, "testLocalPaginatedStorageFuzzyCheckpointTest");
+
+    if (copyDir.exists())
+      OFileUtils.deleteRecursively(copyDir);
+
+    Assert.assertTrue(copyDir.mkdirs());
+
+    final File[] storageFiles = storageDir.listFiles();
+    Assert.assertNotNull(storageFiles);
+
+    for (File storageFile : storageFiles) {
+      final String fileName = storageFile.getName().replace("baseLocalPaginatedStorageFuzzyCheckpointTest",
+          "testLocalPaginatedStorageFuzzyCheckpointTest");
+      copyFile(storageFile, new File(copyDir, fileName));
+    }
+
+    return copyDir;
+  }
+
+  private static void copyFile(File from, File to) throws IOException {
+    final BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(from));
+    final FileOutputStream outputStream = new FileOutputStream(to);
+    try {
+      final byte[] data = new byte[4096];
+      int bytesRead = inputStream.read(data);
+      while (bytesRead > 0) {
+        outputStream.write(data, 0, bytesRead);
+        bytesRead = inputStream.read(data);
+      }
+    } finally {
+      inputStream.close();
+      outputStream.close();
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+@Test
+public class LocalPaginatedStorageIncrementalBackupTest {
+  private static final int       RECORD_SIZE = 512;
+
+  private OLocalPaginatedStorage storage;
+  private OLocalPaginatedStorage restoredStorage;
+  private String                 buildDirectory;
+  private Random                 random;
+
+  @BeforeClass
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    final long seed = System.currentTimeMillis();
+    System.out.println("LocalPaginatedStorageIncrementalBackupTest seed : " + seed);
+    random = new Random(seed);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    storage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/baseLocalPaginatedStorageIncrementalBackupTest");
+    storage.create(null);
+
+    final File restoredDir = new File(buildDirectory, "restoredLocalPaginatedStorageIncrementalBackupTest");
+    if (restoredDir.exists())
+      OFileUtils.deleteRecursively(restoredDir);
+
+    restoredStorage = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + restoredDir.getAbsolutePath());
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    storage.delete();
+
+    if (!new File(restoredStorage.getStoragePath()).exists())
+      return;
+
+    if (restoredStorage.isClosed())
+      restoredStorage.open(null, null, null);
+    restoredStorage.delete();
+  }
+
+  public void testIncrementsContainOnlyChangedPages() throws Exception {
+    final int clusterId = storage.addCluster("PHYSICAL", "incrementalBackupCluster", null, null, false);
+
+    final List<byte[]> records = new ArrayList<byte[]>();
+    final List<OClusterPosition> positions = new ArrayList<OClusterPosition>();
+
+    for (int i = 0; i < 16 * 1024; i++)
+      createRecord(clusterId, records, positions);
+
+    final ByteArrayOutputStream fullBackup = new ByteArrayOutputStream();
+    OLogSequenceNumber lsn = storage.incrementalBackup(fullBackup, null, null);
+    Assert.assertNotNull(lsn);
+
+    final List<byte[]> increments = new ArrayList<byte[]>();
+    for (int n = 0; n < 3; n++) {
+      for (int i = 0; i < 8; i++)
+        updateRecord(clusterId, records, positions, random.nextInt(records.size()));
+
+      for (int i = 0; i < 8; i++)
+        createRecord(clusterId, records, positions);
+
+      final ByteArrayOutputStream increment = new ByteArrayOutputStream();
+      final OLogSequenceNumber nextLsn = storage.incrementalBackup(increment, lsn, null);
+      Assert.assertTrue(nextLsn.compareTo(lsn) > 0);
+
+      lsn = nextLsn;
+      increments.add(increment.toByteArray());
+
+      Assert.assertTrue(increment.size() < fullBackup.size() / 4, "increment " + increment.size() + " full " + fullBackup.size());
+    }
+
+    restoredStorage.incrementalRestore(new ByteArrayInputStream(fullBackup.toByteArray()), null);
+    for (byte[] increment : increments)
+      restoredStorage.incrementalRestore(new ByteArrayInputStream(increment), null);
+
+    restoredStorage.open(null, null, null);
+    assertRecords(restoredStorage, clusterId, records, positions);
+  }
+
+  public void testBackupWithConcurrentWriters() throws Exception {
+    final int clusterId = storage.addCluster("PHYSICAL", "incrementalBackupCluster", null, null, false);
+
+    final List<byte[]> records = new ArrayList<byte[]>();
+    final List<OClusterPosition> positions = new ArrayList<OClusterPosition>();
+
+    for (int i = 0; i < 1024; i++)
+      createRecord(clusterId, records, positions);
+
+    final ByteArrayOutputStream fullBackup = new ByteArrayOutputStream();
+    final OLogSequenceNumber lsn = storage.incrementalBackup(fullBackup, null, null);
+
+    final Thread writer = new Thread() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 2 * 1024; i++)
+          createRecord(clusterId, records, positions);
+      }
+    };
+    writer.start();
+
+    final ByteArrayOutputStream increment = new ByteArrayOutputStream();
+    final OLogSequenceNumber nextLsn = storage.incrementalBackup(increment, lsn, null);
+    writer.join();
+
+    // records written after the end of backup are shipped by next increment
+    final ByteArrayOutputStream lastIncrement = new ByteArrayOutputStream();
+    storage.incrementalBackup(lastIncrement, nextLsn, null);
+
+    restoredStorage.incrementalRestore(new ByteArrayInputStream(fullBackup.toByteArray()), null);
+    restoredStorage.incrementalRestore(new ByteArrayInputStream(increment.toByteArray()), null);
+
+    restoredStorage.open(null, null, null);
+    final OCluster restoredCluster = restoredStorage.getClusterById(clusterId);
+    for (int i = 0; i < records.size(); i++) {
+      final ORawBuffer buffer = restoredCluster.readRecord(positions.get(i));
+      if (buffer == null)
+        continue;
+
+      Assert.assertEquals(buffer.buffer, records.get(i), "record " + i);
+    }
+    restoredStorage.close(true, false);
+
+    restoredStorage.incrementalRestore(new ByteArrayInputStream(lastIncrement.toByteArray()), null);
+    restoredStorage.open(null, null, null);
+    assertRecords(restoredStorage, clusterId, records, positions);
+  }
+
+  public void testIncrementFromAnotherBaseIsRejected() throws Exception {
+    final int clusterId = storage.addCluster("PHYSICAL", "incrementalBackupCluster", null, null, false);
+
+    final List<byte[]> records = new ArrayList<byte[]>();
+    final List<OClusterPosition> positions = new ArrayList<OClusterPosition>();
+
+    for (int i = 0; i < 64; i++)
+      createRecord(clusterId, records, positions);
+
+    final OLogSequenceNumber lsn = storage.incrementalBackup(new ByteArrayOutputStream(), null, null);
+
+    for (int i = 0; i < 64; i++)
+      createRecord(clusterId, records, positions);
+
+    final ByteArrayOutputStream increment = new ByteArrayOutputStream();
+    storage.incrementalBackup(increment, lsn, null);
+
+    try {
+      restoredStorage.incrementalRestore(new ByteArrayInputStream(increment.toByteArray()), null);
+      Assert.fail();
+    } catch (OStorageException e) {
+    }
+
+    final ByteArrayOutputStream fullBackup = new ByteArrayOutputStream();
+    storage.incrementalBackup(fullBackup, null, null);
+    restoredStorage.incrementalRestore(new ByteArrayInputStream(fullBackup.toByteArray()), null);
+  }
+
+  private void assertRecords(OLocalPaginatedStorage storage, int clusterId, List<byte[]> records, List<OClusterPosition> positions)
+      throws Exception {
+    final OCluster cluster = storage.getClusterById(clusterId);
+    for (int i = 0; i < records.size(); i++) {
+      final ORawBuffer buffer = cluster.readRecord(positions.get(i));
+      Assert.assertNotNull(buffer, "record " + i);
+      Assert.assertEquals(buffer.buffer, records.get(i), "record " + i);
+    }
+  }
+
+  private void createRecord(int clusterId, List<byte[]> records, List<OClusterPosition> positions) {
+    final byte[] record = generateRecord();
+    final OPhysicalPosition position = storage.createRecord(0, new ORecordId(clusterId), record,
+        OVersionFactory.instance().createVersion(), (byte) 'b', 0, null).getResult();
+
+    synchronized (records) {
+      records.add(record);
+      positions.add(position.clusterPosition);
+    }
+  }
+
+  private void updateRecord(int clusterId, List<byte[]> records, List<OClusterPosition> positions, int index) {
+    final byte[] record = generateRecord();
+    storage.updateRecord(new ORecordId(clusterId, positions.get(index)), record,
+        OVersionFactory.instance().createUntrackedVersion(), (byte) 'b', 0, null);
+    records.set(index, record);
+  }
+
+  private byte[] generateRecord() {
+    final byte[] record = new byte[RECORD_SIZE];
+    synchronized (random) {
+      random.nextBytes(record);
+    }
+    return record;
+  }
+}
@@ -0,0 +1,147 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OReadWriteDiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitId;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OPageChanges;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
+
+@Test
+public class WALPageChangesRestorerTest {
+  private static final int       PAGE_SIZE      = 1024;
+  private static final int       PAGES          = 64;
+  private static final int       CHANGES        = 50;
+  private static final int       VALUE_OFFSET   = 64;
+
+  private OLocalPaginatedStorage storageLocal;
+  private OReadWriteDiskCache    diskCache;
+  private long                   fileId;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/WALPageChangesRestorerTest");
+    storageLocal.create(null);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    diskCache = new OReadWriteDiskCache(4L * PAGES * PAGE_SIZE, 4L * PAGES * PAGE_SIZE, PAGE_SIZE, 10000, -1, storageLocal, null,
+        false, false);
+    fileId = diskCache.openFile("walPageChangesRestorerTest.tst");
+
+    for (int i = 0; i < PAGES; i++) {
+      OCacheEntry cacheEntry = diskCache.allocateNewPage(fileId);
+      diskCache.release(cacheEntry);
+    }
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    diskCache.delete();
+
+    File testFile = new File(storageLocal.getConfiguration().getDirectory() + "/walPageChangesRestorerTest.tst");
+    if (testFile.exists())
+      Assert.assertTrue(testFile.delete());
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    storageLocal.delete();
+  }
+
+  public void testChangesAreAppliedInPageOrderBySeveralThreads() throws Exception {
+    final OWALPageChangesRestorer restorer = new OWALPageChangesRestorer(diskCache, "WALPageChangesRestorerTest", 4);
+    Assert.assertEquals(restorer.getThreads(), 4);
+
+    try {
+      applyChanges(restorer);
+      restorer.waitTillApplied();
+    } finally {
+      restorer.shutdown();
+    }
+
+    Assert.assertEquals(restorer.getAppliedPages(), PAGES * CHANGES);
+    assertPages();
+  }
+
+  public void testChangesAreAppliedByCurrentThread() throws Exception {
+    final OWALPageChangesRestorer restorer = new OWALPageChangesRestorer(diskCache, "WALPageChangesRestorerTest", 1);
+    Assert.assertEquals(restorer.getThreads(), 1);
+
+    applyChanges(restorer);
+    restorer.waitTillApplied();
+    restorer.shutdown();
+
+    Assert.assertEquals(restorer.getAppliedPages(), PAGES * CHANGES);
+    assertPages();
+  }
+
+  private void applyChanges(OWALPageChangesRestorer restorer) throws IOException {
+    long position = 0;
+    final OOperationUnitId unitId = OOperationUnitId.generateId();
+
+    for (int n = 0; n < CHANGES; n++) {
+      for (int pageIndex = 0; pageIndex < PAGES; pageIndex++) {
+        final byte[] oldValue = new byte[OLongSerializer.LONG_SIZE];
+        final byte[] newValue = new byte[OLongSerializer.LONG_SIZE];
+
+        OLongSerializer.INSTANCE.serializeNative(value(pageIndex, n - 1), oldValue, 0);
+        OLongSerializer.INSTANCE.serializeNative(value(pageIndex, n), newValue, 0);
+
+        final OPageChanges pageChanges = new OPageChanges();
+        pageChanges.addChanges(VALUE_OFFSET, newValue, oldValue);
+
+        final OLogSequenceNumber lsn = new OLogSequenceNumber(0, position++);
+        final OUpdatePageRecord updatePageRecord = new OUpdatePageRecord(pageIndex, fileId, unitId, pageChanges, lsn);
+        updatePageRecord.setLsn(lsn);
+
+        restorer.apply(updatePageRecord);
+      }
+    }
+  }
+
+  private void assertPages() throws IOException {
+    for (int pageIndex = 0; pageIndex < PAGES; pageIndex++) {
+      final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
+      try {
+        final ODurablePage durablePage = new ODurablePage(cacheEntry.getCachePointer().getDataPointer(),
+            ODurablePage.TrackMode.NONE);
+
+        final long value = OLongSerializer.INSTANCE.deserializeFromDirectMemory(cacheEntry.getCachePointer().getDataPointer(),
+            VALUE_OFFSET);
+        Assert.assertEquals(value, value(pageIndex, CHANGES - 1));
+        Assert.assertEquals(durablePage.getLsn(), new OLogSequenceNumber(0, (CHANGES - 1) * PAGES + pageIndex));
+      } finally {
+        diskCache.release(cacheEntry);
+      }
+    }
+  }
+
+  private long value(int pageIndex, int change) {
+    if (change < 0)
+      return 0;
+
+    return ((long) pageIndex << 32) + change + 1;
+  }
+}
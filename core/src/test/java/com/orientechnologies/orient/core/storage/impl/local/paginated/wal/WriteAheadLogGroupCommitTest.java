@@ -0,0 +1,156 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class WriteAheadLogGroupCommitTest {
+  private static final int THREADS         = 8;
+  private static final int COMMITS         = 200;
+  private static final int WINDOW          = 10;
+
+  private OWriteAheadLog   writeAheadLog;
+  private File             testDir;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    testDir = new File(buildDirectory, "writeAheadLogGroupCommitTest");
+    if (!testDir.exists())
+      testDir.mkdir();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    OLocalPaginatedStorage paginatedStorage = mock(OLocalPaginatedStorage.class);
+    when(paginatedStorage.getName()).thenReturn("WriteAheadLogGroupCommitTest");
+    when(paginatedStorage.getStoragePath()).thenReturn(testDir.getAbsolutePath());
+
+    writeAheadLog = new OWriteAheadLog(100, -1, OWALPage.PAGE_SIZE * 64, 100L * 1024L * 1024L * 1024L, true, WINDOW, THREADS,
+        paginatedStorage);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    if (writeAheadLog != null)
+      writeAheadLog.delete();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    if (testDir.exists())
+      testDir.delete();
+  }
+
+  public void testSingleCommitIsFlushed() throws Exception {
+    Assert.assertTrue(writeAheadLog.isGroupCommit());
+
+    final OOperationUnitId unitId = OOperationUnitId.generateId();
+    writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+    final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitEndRecord(unitId, false));
+
+    writeAheadLog.waitTillFlushed(lsn);
+
+    Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(lsn) >= 0);
+    Assert.assertEquals(writeAheadLog.getLastGroupCommitBatchSize(), 1);
+  }
+
+  public void testAlreadyFlushedCommitDoesNotWait() throws Exception {
+    final OOperationUnitId unitId = OOperationUnitId.generateId();
+    final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitEndRecord(unitId, false));
+    writeAheadLog.waitTillFlushed(lsn);
+
+    final long batches = writeAheadLog.getGroupCommitBatches();
+    writeAheadLog.waitTillFlushed(lsn);
+
+    Assert.assertEquals(writeAheadLog.getGroupCommitBatches(), batches);
+  }
+
+  public void testWrittenCommitWaitsForForce() throws Exception {
+    final boolean syncOnPageFlush = OGlobalConfiguration.WAL_SYNC_ON_PAGE_FLUSH.getValueAsBoolean();
+    OGlobalConfiguration.WAL_SYNC_ON_PAGE_FLUSH.setValue(false);
+    try {
+      final OOperationUnitId unitId = OOperationUnitId.generateId();
+      final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitEndRecord(unitId, false));
+
+      // RECORD IS WRITTEN TO THE FILE BUT NOT FORCED
+      writeAheadLog.flush();
+      Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(lsn) >= 0);
+
+      final long batches = writeAheadLog.getGroupCommitBatches();
+      writeAheadLog.waitTillFlushed(lsn);
+
+      Assert.assertTrue(writeAheadLog.getGroupCommitBatches() > batches);
+      Assert.assertTrue(writeAheadLog.getForcedLSN().compareTo(lsn) >= 0);
+    } finally {
+      OGlobalConfiguration.WAL_SYNC_ON_PAGE_FLUSH.setValue(syncOnPageFlush);
+    }
+  }
+
+  public void testConcurrentCommitsAreFlushed() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int i = 0; i < THREADS; i++) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          latch.await();
+
+          for (int n = 0; n < COMMITS; n++) {
+            final OOperationUnitId unitId = OOperationUnitId.generateId();
+            writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+            final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitEndRecord(unitId, false));
+
+            writeAheadLog.waitTillFlushed(lsn);
+            Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(lsn) >= 0);
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    latch.countDown();
+    for (Future<Void> future : futures)
+      future.get();
+
+    executor.shutdown();
+
+    final long batches = writeAheadLog.getGroupCommitBatches();
+    Assert.assertTrue(batches > 0);
+    Assert.assertTrue(batches <= THREADS * COMMITS);
+  }
+
+  @Test(expectedExceptions = OStorageException.class)
+  public void testWaitAfterCloseFails() throws Exception {
+    final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitEndRecord(OOperationUnitId.generateId(), false));
+    writeAheadLog.close();
+
+    writeAheadLog.waitTillFlushed(new OLogSequenceNumber(lsn.getSegment() + 1, lsn.getPosition()));
+  }
+}
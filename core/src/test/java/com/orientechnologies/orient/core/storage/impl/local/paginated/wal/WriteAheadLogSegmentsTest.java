@@ -0,0 +1,203 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.WriteAheadLogTest.TestRecord;
+
+@Test
+public class WriteAheadLogSegmentsTest {
+  private static final int SEGMENT_SIZE = 4 * OWALPage.PAGE_SIZE;
+
+  private OWriteAheadLog   writeAheadLog;
+  private File             testDir;
+  private boolean          preallocateSegments;
+  private int              spareSegments;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    testDir = new File(buildDirectory, "writeAheadLogSegmentsTest");
+    if (!testDir.exists())
+      testDir.mkdir();
+
+    OWALRecordsFactory.INSTANCE.registerNewRecord((byte) 128, TestRecord.class);
+
+    preallocateSegments = OGlobalConfiguration.WAL_PREALLOCATE_SEGMENTS.getValueAsBoolean();
+    spareSegments = OGlobalConfiguration.WAL_SPARE_SEGMENTS.getValueAsInteger();
+
+    OGlobalConfiguration.WAL_PREALLOCATE_SEGMENTS.setValue(true);
+    OGlobalConfiguration.WAL_SPARE_SEGMENTS.setValue(2);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    writeAheadLog = createWAL();
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    if (writeAheadLog != null)
+      writeAheadLog.delete();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.WAL_PREALLOCATE_SEGMENTS.setValue(preallocateSegments);
+    OGlobalConfiguration.WAL_SPARE_SEGMENTS.setValue(spareSegments);
+
+    if (testDir.exists())
+      testDir.delete();
+  }
+
+  private OWriteAheadLog createWAL() throws IOException {
+    OLocalPaginatedStorage paginatedStorage = mock(OLocalPaginatedStorage.class);
+    when(paginatedStorage.getName()).thenReturn("WriteAheadLogSegmentsTest");
+    when(paginatedStorage.getStoragePath()).thenReturn(testDir.getAbsolutePath());
+
+    return new OWriteAheadLog(2, -1, SEGMENT_SIZE, 100L * 1024L * 1024L * 1024L, paginatedStorage);
+  }
+
+  public void testNextSegmentIsPreallocated() throws Exception {
+    final List<OWALRecord> writtenRecords = new ArrayList<OWALRecord>();
+    final Random random = new Random();
+
+    while (listFiles(OWriteAheadLog.WAL_SEGMENT_EXTENSION).length < 2)
+      logRecord(random, writtenRecords);
+
+    waitForSpareSegment();
+
+    final File spareFile = listFiles(OWriteAheadLog.SPARE_SEGMENT_EXTENSION)[0];
+    Assert.assertEquals(spareFile.length(), SEGMENT_SIZE);
+
+    while (listFiles(OWriteAheadLog.WAL_SEGMENT_EXTENSION).length < 3)
+      logRecord(random, writtenRecords);
+
+    Assert.assertFalse(spareFile.exists());
+
+    final File thirdSegment = new File(testDir, "WriteAheadLogSegmentsTest.2.wal");
+    Assert.assertTrue(thirdSegment.length() >= SEGMENT_SIZE);
+
+    for (int i = 0; i < 10; i++)
+      logRecord(random, writtenRecords);
+
+    writeAheadLog.close();
+    writeAheadLog = createWAL();
+
+    assertLogContent(writtenRecords);
+
+    final List<OWALRecord> appendedRecords = new ArrayList<OWALRecord>();
+    for (int i = 0; i < 10; i++)
+      logRecord(random, appendedRecords);
+
+    writtenRecords.addAll(appendedRecords);
+    assertLogContent(writtenRecords);
+  }
+
+  public void testTruncatedSegmentsAreRecycled() throws Exception {
+    final Random random = new Random();
+
+    List<OWALRecord> writtenRecords = new ArrayList<OWALRecord>();
+    while (listFiles(OWriteAheadLog.WAL_SEGMENT_EXTENSION).length < 5)
+      logRecord(random, writtenRecords);
+
+    waitForSpareSegment();
+    writeAheadLog.truncate();
+
+    Assert.assertEquals(listFiles(OWriteAheadLog.WAL_SEGMENT_EXTENSION).length, 1);
+    Assert.assertEquals(listFiles(OWriteAheadLog.SPARE_SEGMENT_EXTENSION).length, 2);
+
+    writtenRecords = new ArrayList<OWALRecord>();
+    while (listFiles(OWriteAheadLog.WAL_SEGMENT_EXTENSION).length < 3)
+      logRecord(random, writtenRecords);
+
+    // first record is placed in truncated segment
+    writtenRecords.remove(0);
+
+    writeAheadLog.close();
+    writeAheadLog = createWAL();
+
+    final OLogSequenceNumber begin = writeAheadLog.begin();
+    OLogSequenceNumber lsn = writtenRecords.get(0).getLsn();
+    Assert.assertTrue(begin.compareTo(lsn) <= 0);
+
+    for (OWALRecord writtenRecord : writtenRecords) {
+      Assert.assertEquals(writtenRecord.getLsn(), lsn);
+      Assert.assertEquals(writeAheadLog.read(lsn), writtenRecord);
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    Assert.assertNull(lsn);
+  }
+
+  public void testSpareSegmentsAreDeletedWithLog() throws Exception {
+    final Random random = new Random();
+    final List<OWALRecord> writtenRecords = new ArrayList<OWALRecord>();
+
+    while (listFiles(OWriteAheadLog.WAL_SEGMENT_EXTENSION).length < 3)
+      logRecord(random, writtenRecords);
+
+    waitForSpareSegment();
+
+    writeAheadLog.delete();
+    writeAheadLog = null;
+
+    Assert.assertEquals(listFiles(OWriteAheadLog.WAL_SEGMENT_EXTENSION).length, 0);
+    Assert.assertEquals(listFiles(OWriteAheadLog.SPARE_SEGMENT_EXTENSION).length, 0);
+  }
+
+  private void logRecord(Random random, List<OWALRecord> writtenRecords) throws IOException {
+    final OWALRecord walRecord = new TestRecord(random.nextInt(OWALPage.PAGE_SIZE / 2) + 128, false);
+    writeAheadLog.log(walRecord);
+    writtenRecords.add(walRecord);
+  }
+
+  private void assertLogContent(List<OWALRecord> writtenRecords) throws IOException {
+    OLogSequenceNumber lsn = writeAheadLog.begin();
+    for (OWALRecord writtenRecord : writtenRecords) {
+      Assert.assertEquals(writtenRecord.getLsn(), lsn);
+      Assert.assertEquals(writeAheadLog.read(lsn), writtenRecord);
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    Assert.assertNull(lsn);
+  }
+
+  private void waitForSpareSegment() throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (writeAheadLog.getSpareSegmentsCount() == 0 && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+
+    Assert.assertTrue(writeAheadLog.getSpareSegmentsCount() > 0);
+  }
+
+  private File[] listFiles(final String extension) {
+    return testDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith("WriteAheadLogSegmentsTest.") && name.endsWith(extension);
+      }
+    });
+  }
+}
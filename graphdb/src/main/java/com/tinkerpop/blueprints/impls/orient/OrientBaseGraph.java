@@ -691,9 +691,9 @@ public abstract class OrientBaseGraph implements IndexableGraph, MetaGraph<OData
 
     final OClass clazz = getContext(true).rawGraph.getMetadata().getSchema().getClass(label);
     Set<OIndex<?>> indexes = clazz.getInvolvedIndexes(Arrays.asList(iKey));
-    if (indexes.iterator().hasNext()) {
-      final OIndex<?> idx = indexes.iterator().next();
-      if (idx != null) {
+    for (OIndex<?> idx : indexes) {
+      // PARTIAL INDEXES DON'T CONTAIN ALL THE VERTICES
+      if (idx.getDefinition().getFilter() == null) {
         List<Object> keys = Arrays.asList(convertKeys(idx, iValue));
         OCompositeKey compositeKey = new OCompositeKey(keys);
         Object indexValue = idx.get(compositeKey);
@@ -1,7 +1,11 @@
 package com.orientechnologies.nio;
 
+import java.io.FileDescriptor;
+import java.io.IOException;
+
 import com.orientechnologies.common.log.OLogManager;
 import com.sun.jna.Function;
+import com.sun.jna.Native;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Platform;
 import com.sun.jna.Pointer;
@@ -52,4 +56,54 @@ public class AIXCLibrary implements CLibrary {
           destPointer.setByte(n, srcPointer.getByte(n));
     }
   }
+
+  @Override
+  public boolean isDirectIOSupported() {
+    return PosixFileFunctions.isDirectIOSupported();
+  }
+
+  @Override
+  public boolean isFadviseSupported() {
+    return PosixFileFunctions.isFadviseSupported();
+  }
+
+  @Override
+  public int fadvise(int fd, long offset, long len, int advice) {
+    return PosixFileFunctions.fadvise(fd, offset, len, advice);
+  }
+
+  @Override
+  public int openDirect(String path, boolean readOnly) throws IOException {
+    return PosixFileFunctions.openDirect(path, readOnly);
+  }
+
+  @Override
+  public void closeFile(int fd) throws IOException {
+    PosixFileFunctions.closeFile(fd);
+  }
+
+  @Override
+  public long pread(int fd, long buffer, long count, long offset) throws IOException {
+    return PosixFileFunctions.pread(fd, buffer, count, offset);
+  }
+
+  @Override
+  public long pwrite(int fd, long buffer, long count, long offset) throws IOException {
+    return PosixFileFunctions.pwrite(fd, buffer, count, offset);
+  }
+
+  @Override
+  public long allocateAligned(long alignment, long size) {
+    return PosixFileFunctions.allocateAligned(alignment, size);
+  }
+
+  @Override
+  public void freeAligned(long pointer) {
+    Native.free(pointer);
+  }
+
+  @Override
+  public int fileDescriptor(FileDescriptor fileDescriptor) {
+    return PosixFileFunctions.fileDescriptor(fileDescriptor);
+  }
 }
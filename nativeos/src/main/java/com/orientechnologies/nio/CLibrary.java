@@ -15,10 +15,66 @@
  */
 package com.orientechnologies.nio;
 
+import java.io.FileDescriptor;
+import java.io.IOException;
+
 /**
  * @author Andrey Lomakin
  * @since 5/6/13
  */
 public interface CLibrary {
+  int POSIX_FADV_NORMAL     = 0;
+  int POSIX_FADV_RANDOM     = 1;
+  int POSIX_FADV_SEQUENTIAL = 2;
+  int POSIX_FADV_WILLNEED   = 3;
+  int POSIX_FADV_DONTNEED   = 4;
+
+  /**
+   * Alignment of file offsets, sizes and memory buffers which is required by direct IO.
+   */
+  int DIRECT_IO_ALIGNMENT   = 4096;
+
   void memoryMove(long src, long dest, long len);
+
+  /**
+   * @return <code>true</code> if files can be opened in direct IO mode which bypasses OS page cache.
+   */
+  boolean isDirectIOSupported();
+
+  /**
+   * @return <code>true</code> if access pattern hints can be passed to OS.
+   */
+  boolean isFadviseSupported();
+
+  /**
+   * Passes access pattern hint for given region of file to OS, see posix_fadvise(2).
+   * 
+   * @return 0 in case of success, error code if OS rejected the hint, -1 if hints are not supported.
+   */
+  int fadvise(int fd, long offset, long len, int advice);
+
+  /**
+   * Opens file in direct IO mode, all reads and writes of this file should be aligned by {@link #DIRECT_IO_ALIGNMENT}.
+   * 
+   * @return file descriptor.
+   */
+  int openDirect(String path, boolean readOnly) throws IOException;
+
+  void closeFile(int fd) throws IOException;
+
+  long pread(int fd, long buffer, long count, long offset) throws IOException;
+
+  long pwrite(int fd, long buffer, long count, long offset) throws IOException;
+
+  /**
+   * Allocates memory buffer which address is aligned by given value. Buffer should be released by {@link #freeAligned(long)}.
+   */
+  long allocateAligned(long alignment, long size);
+
+  void freeAligned(long pointer);
+
+  /**
+   * @return OS file descriptor which backs passed in java descriptor or -1 if it can not be retrieved.
+   */
+  int fileDescriptor(FileDescriptor fileDescriptor);
 }
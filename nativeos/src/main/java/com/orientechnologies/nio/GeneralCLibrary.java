@@ -1,5 +1,8 @@
 package com.orientechnologies.nio;
 
+import java.io.FileDescriptor;
+import java.io.IOException;
+
 import com.sun.jna.Native;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Platform;
@@ -20,4 +23,54 @@ public class GeneralCLibrary implements CLibrary {
   public void memoryMove(long src, long dest, long len) {
     memmove(new Pointer(dest), new Pointer(src), new NativeLong(len));
   }
+
+  @Override
+  public boolean isDirectIOSupported() {
+    return PosixFileFunctions.isDirectIOSupported();
+  }
+
+  @Override
+  public boolean isFadviseSupported() {
+    return PosixFileFunctions.isFadviseSupported();
+  }
+
+  @Override
+  public int fadvise(int fd, long offset, long len, int advice) {
+    return PosixFileFunctions.fadvise(fd, offset, len, advice);
+  }
+
+  @Override
+  public int openDirect(String path, boolean readOnly) throws IOException {
+    return PosixFileFunctions.openDirect(path, readOnly);
+  }
+
+  @Override
+  public void closeFile(int fd) throws IOException {
+    PosixFileFunctions.closeFile(fd);
+  }
+
+  @Override
+  public long pread(int fd, long buffer, long count, long offset) throws IOException {
+    return PosixFileFunctions.pread(fd, buffer, count, offset);
+  }
+
+  @Override
+  public long pwrite(int fd, long buffer, long count, long offset) throws IOException {
+    return PosixFileFunctions.pwrite(fd, buffer, count, offset);
+  }
+
+  @Override
+  public long allocateAligned(long alignment, long size) {
+    return PosixFileFunctions.allocateAligned(alignment, size);
+  }
+
+  @Override
+  public void freeAligned(long pointer) {
+    Native.free(pointer);
+  }
+
+  @Override
+  public int fileDescriptor(FileDescriptor fileDescriptor) {
+    return PosixFileFunctions.fileDescriptor(fileDescriptor);
+  }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 1999-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.nio;
+
+import java.io.IOException;
+
+import com.sun.jna.Pointer;
+
+/**
+ * Reads and writes data of file which is opened in direct IO mode. Direct IO requires that file offsets, sizes and memory buffers
+ * are aligned by {@link CLibrary#DIRECT_IO_ALIGNMENT}, so data are copied through aligned native buffer and regions which are not
+ * aligned are extended till alignment boundaries. Edges of extended region are read before write, so content of file around
+ * written region is preserved.
+ */
+public class ODirectFileIO {
+  public static final ODirectFileIO INSTANCE  = new ODirectFileIO();
+
+  private static final CLibrary     C_LIBRARY = OCLibraryFactory.INSTANCE.library();
+  private static final int          ALIGNMENT = CLibrary.DIRECT_IO_ALIGNMENT;
+
+  /**
+   * Reads data from file, if end of file is reached rest of the data is filled by zeros.
+   *
+   * @return amount of bytes which were read from the file.
+   */
+  public int read(int fd, long position, byte[] data, int offset, int length) throws IOException {
+    final long alignedStart = alignDown(position);
+    final long alignedEnd = alignUp(position + length);
+    final int alignedLength = (int) (alignedEnd - alignedStart);
+
+    final long buffer = C_LIBRARY.allocateAligned(ALIGNMENT, alignedLength);
+    try {
+      final long read = readFully(fd, buffer, alignedLength, alignedStart);
+      final int shift = (int) (position - alignedStart);
+
+      final int available = (int) Math.max(0, Math.min(length, read - shift));
+      new Pointer(buffer).read(shift, data, offset, available);
+
+      for (int i = offset + available; i < offset + length; i++)
+        data[i] = 0;
+
+      return available;
+    } finally {
+      C_LIBRARY.freeAligned(buffer);
+    }
+  }
+
+  /**
+   * Writes data to the file. Because of alignment file may be extended beyond the written region, so caller should shrink the file
+   * if needed.
+   *
+   * @return position of the end of region which was actually written.
+   */
+  public long write(int fd, long position, byte[] data, int offset, int length) throws IOException {
+    final long alignedStart = alignDown(position);
+    final long alignedEnd = alignUp(position + length);
+    final int alignedLength = (int) (alignedEnd - alignedStart);
+
+    final long buffer = C_LIBRARY.allocateAligned(ALIGNMENT, alignedLength);
+    try {
+      final Pointer pointer = new Pointer(buffer);
+
+      if (alignedStart < position) {
+        final long read = readFully(fd, buffer, ALIGNMENT, alignedStart);
+        if (read < ALIGNMENT)
+          pointer.setMemory(read, ALIGNMENT - read, (byte) 0);
+      }
+
+      final long lastBlock = alignedEnd - ALIGNMENT;
+      if (alignedEnd > position + length && (lastBlock > alignedStart || alignedStart == position)) {
+        final long read = readFully(fd, buffer + (lastBlock - alignedStart), ALIGNMENT, lastBlock);
+        if (read < ALIGNMENT)
+          pointer.setMemory(lastBlock - alignedStart + read, ALIGNMENT - read, (byte) 0);
+      }
+
+      pointer.write(position - alignedStart, data, offset, length);
+
+      long written = 0;
+      while (written < alignedLength)
+        written += C_LIBRARY.pwrite(fd, buffer + written, alignedLength - written, alignedStart + written);
+
+      return alignedEnd;
+    } finally {
+      C_LIBRARY.freeAligned(buffer);
+    }
+  }
+
+  private long readFully(int fd, long buffer, int length, long position) throws IOException {
+    long read = 0;
+    while (read < length) {
+      final long result = C_LIBRARY.pread(fd, buffer + read, length - read, position + read);
+
+      // short read of regular file means that end of file is reached, next read would be unaligned
+      if (result < length - read)
+        return read + result;
+
+      read += result;
+    }
+
+    return read;
+  }
+
+  private static long alignDown(long value) {
+    return value - value % ALIGNMENT;
+  }
+
+  private static long alignUp(long value) {
+    final long remainder = value % ALIGNMENT;
+    if (remainder == 0)
+      return value;
+
+    return value + ALIGNMENT - remainder;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 1999-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.nio;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.sun.jna.Function;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * POSIX file functions which are used to bypass OS page cache. Functions are looked up one by one, so absence of any of them on
+ * current platform only disables features which depend on it.
+ */
+final class PosixFileFunctions {
+  private static final int      O_RDONLY = 0;
+  private static final int      O_RDWR   = 2;
+  private static final int      O_CREAT  = 0100;
+
+  private static final Function open;
+  private static final Function close;
+  private static final Function pread;
+  private static final Function pwrite;
+  private static final Function posixFadvise;
+  private static final Function posixMemalign;
+  private static final Function strerror;
+
+  private static final int      O_DIRECT;
+  private static final Field    FD_FIELD;
+
+  static {
+    open = findFunction("open");
+    close = findFunction("close");
+    pread = findFunction("pread");
+    pwrite = findFunction("pwrite");
+    posixFadvise = findFunction("posix_fadvise");
+    posixMemalign = findFunction("posix_memalign");
+    strerror = findFunction("strerror");
+
+    // O_DIRECT value depends on architecture, see asm/fcntl.h
+    if (Platform.isLinux()) {
+      if (Platform.isIntel())
+        O_DIRECT = 040000;
+      else if (Platform.isARM())
+        O_DIRECT = 0200000;
+      else if (Platform.isPPC())
+        O_DIRECT = 0400000;
+      else
+        O_DIRECT = 0;
+    } else
+      O_DIRECT = 0;
+
+    Field fdField;
+    try {
+      fdField = FileDescriptor.class.getDeclaredField("fd");
+      fdField.setAccessible(true);
+    } catch (Exception e) {
+      fdField = null;
+    }
+    FD_FIELD = fdField;
+
+    OLogManager.instance().debug(CLibrary.class,
+        "Following c library functions were found pread/pwrite : %s , posix_fadvise : %s, posix_memalign : %s.",
+        pread != null && pwrite != null ? "yes" : "no", posixFadvise != null ? "yes" : "no", posixMemalign != null ? "yes" : "no");
+  }
+
+  private PosixFileFunctions() {
+  }
+
+  static boolean isDirectIOSupported() {
+    return O_DIRECT != 0 && open != null && close != null && pread != null && pwrite != null && posixMemalign != null;
+  }
+
+  static boolean isFadviseSupported() {
+    return posixFadvise != null;
+  }
+
+  static int fadvise(int fd, long offset, long len, int advice) {
+    if (posixFadvise == null || fd < 0)
+      return -1;
+
+    return posixFadvise.invokeInt(new Object[] { fd, new NativeLong(offset), new NativeLong(len), advice });
+  }
+
+  static int openDirect(String path, boolean readOnly) throws IOException {
+    if (!isDirectIOSupported())
+      throw new IOException("Direct IO is not supported on current platform");
+
+    final int flags = (readOnly ? O_RDONLY : O_RDWR | O_CREAT) | O_DIRECT;
+    final int fd = open.invokeInt(new Object[] { path, flags, 0644 });
+    if (fd < 0)
+      throw new IOException("Can not open file " + path + " in direct IO mode : " + lastError());
+
+    return fd;
+  }
+
+  static void closeFile(int fd) throws IOException {
+    if (close.invokeInt(new Object[] { fd }) < 0)
+      throw new IOException("Can not close file : " + lastError());
+  }
+
+  static long pread(int fd, long buffer, long count, long offset) throws IOException {
+    final NativeLong result = (NativeLong) pread.invoke(NativeLong.class, new Object[] { fd, new Pointer(buffer),
+        new NativeLong(count), new NativeLong(offset) });
+    if (result.longValue() < 0)
+      throw new IOException("Error during read of file : " + lastError());
+
+    return result.longValue();
+  }
+
+  static long pwrite(int fd, long buffer, long count, long offset) throws IOException {
+    final NativeLong result = (NativeLong) pwrite.invoke(NativeLong.class, new Object[] { fd, new Pointer(buffer),
+        new NativeLong(count), new NativeLong(offset) });
+    if (result.longValue() < 0)
+      throw new IOException("Error during write to file : " + lastError());
+
+    return result.longValue();
+  }
+
+  static long allocateAligned(long alignment, long size) {
+    final PointerByReference pointerByReference = new PointerByReference();
+    final int result = posixMemalign.invokeInt(new Object[] { pointerByReference, new NativeLong(alignment), new NativeLong(size) });
+    if (result != 0)
+      throw new OutOfMemoryError("Can not allocate " + size + " bytes of memory aligned by " + alignment + " bytes, error code "
+          + result);
+
+    return Pointer.nativeValue(pointerByReference.getValue());
+  }
+
+  static int fileDescriptor(FileDescriptor fileDescriptor) {
+    if (FD_FIELD == null || fileDescriptor == null)
+      return -1;
+
+    try {
+      return FD_FIELD.getInt(fileDescriptor);
+    } catch (IllegalAccessException e) {
+      return -1;
+    }
+  }
+
+  private static String lastError() {
+    final int errno = Native.getLastError();
+    if (strerror != null)
+      return strerror.invokeString(new Object[] { errno }, false) + " (errno " + errno + ")";
+
+    return "errno " + errno;
+  }
+
+  private static Function findFunction(String name) {
+    try {
+      return Function.getFunction(Platform.C_LIBRARY_NAME, name);
+    } catch (UnsatisfiedLinkError linkError) {
+      return null;
+    }
+  }
+}
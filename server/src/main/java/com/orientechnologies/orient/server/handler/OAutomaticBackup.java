@@ -10,12 +10,16 @@ import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 import com.orientechnologies.orient.server.plugin.OServerPluginAbstract;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -24,6 +28,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class OAutomaticBackup extends OServerPluginAbstract {
 
@@ -31,15 +36,21 @@ public class OAutomaticBackup extends OServerPluginAbstract {
     DBNAME, DATE
   }
 
-  private Date        firstTime        = null;
-  private long        delay            = -1;
-  private int         bufferSize       = 1048576;
-  private int         compressionLevel = 9;
-  private String      targetDirectory  = "backup";
-  private String      targetFileName;
-  private Set<String> includeDatabases = new HashSet<String>();
-  private Set<String> excludeDatabases = new HashSet<String>();
-  private OServer     serverInstance;
+  private Date                            firstTime        = null;
+  private long                            delay            = -1;
+  private int                             bufferSize       = 1048576;
+  private int                             compressionLevel = 9;
+  private String                          targetDirectory  = "backup";
+  private String                          targetFileName;
+  private Set<String>                     includeDatabases = new HashSet<String>();
+  private Set<String>                     excludeDatabases = new HashSet<String>();
+  private OServer                         serverInstance;
+  private boolean                         incremental      = false;
+
+  /**
+   * LSNs of last incremental backups of databases, first backup after server start is full and is a base for further increments.
+   */
+  private Map<String, OLogSequenceNumber> backupLsns       = new ConcurrentHashMap<String, OLogSequenceNumber>();
 
   @Override
   public void config(final OServer iServer, final OServerParameterConfiguration[] iParams) {
@@ -72,6 +83,8 @@ public class OAutomaticBackup extends OServerPluginAbstract {
         bufferSize = Integer.parseInt(param.value);
       else if (param.name.equalsIgnoreCase("compressionLevel"))
         compressionLevel = Integer.parseInt(param.value);
+      else if (param.name.equalsIgnoreCase("incremental"))
+        incremental = Boolean.parseBoolean(param.value);
     }
 
     if (delay <= 0)
@@ -87,8 +100,9 @@ public class OAutomaticBackup extends OServerPluginAbstract {
       // CREATE BACKUP FOLDER(S) IF ANY
       filePath.mkdirs();
 
-    OLogManager.instance().info(this, "Automatic backup plugin installed and active: delay=%dms, firstTime=%s, targetDirectory=%s",
-        delay, firstTime, targetDirectory);
+    OLogManager.instance().info(this,
+        "Automatic backup plugin installed and active: delay=%dms, firstTime=%s, targetDirectory=%s, incremental=%s", delay,
+        firstTime, targetDirectory, incremental);
 
     final TimerTask timerTask = new TimerTask() {
       @Override
@@ -136,12 +150,26 @@ public class OAutomaticBackup extends OServerPluginAbstract {
 
               final long begin = System.currentTimeMillis();
 
-              db.backup(new FileOutputStream(exportFilePath), null, null, new OCommandOutputListener() {
+              final OCommandOutputListener listener = new OCommandOutputListener() {
                 @Override
                 public void onMessage(String iText) {
                   OLogManager.instance().info(this, iText);
                 }
-              }, compressionLevel, bufferSize);
+              };
+
+              final OStorage storage = db.getStorage();
+              if (incremental && storage instanceof OLocalPaginatedStorage) {
+                final OutputStream out = new FileOutputStream(exportFilePath);
+                try {
+                  final OLogSequenceNumber lsn = ((OLocalPaginatedStorage) storage).incrementalBackup(out,
+                      backupLsns.get(dbName.getKey()), listener);
+                  if (lsn != null)
+                    backupLsns.put(dbName.getKey(), lsn);
+                } finally {
+                  out.close();
+                }
+              } else
+                db.backup(new FileOutputStream(exportFilePath), null, null, listener, compressionLevel, bufferSize);
 
               OLogManager.instance().info(
                   this,
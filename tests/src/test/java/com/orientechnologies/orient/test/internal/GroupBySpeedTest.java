@@ -0,0 +1,113 @@
+package com.orientechnologies.orient.test.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+
+/**
+ * Measures throughput and peak heap usage of GROUP BY with millions of groups: by hash aggregation which partitions groups to
+ * temporary files above the spill threshold and by streaming of groups when records are fetched from index ordered by the group
+ * key.
+ */
+@Test(enabled = false)
+public class GroupBySpeedTest {
+  private static final int DOCUMENTS = 50000000;
+  private static final int GROUPS    = 5000000;
+  private static final int RUNS      = 3;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testGroupBy() throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/GroupBySpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    final OClass event = db.getMetadata().getSchema().createClass("Event");
+    event.createProperty("session", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    event.createProperty("duration", OType.LONG);
+
+    final MersenneTwisterFast random = new MersenneTwisterFast(42);
+    final ODocument document = new ODocument();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      document.reset();
+      document.setClassName("Event");
+      document.field("session", random.nextInt(GROUPS));
+      document.field("duration", (long) random.nextInt(100000));
+      document.save();
+    }
+
+    System.out.printf("%d documents in %d groups, spill threshold %d groups, %d partitions\n", DOCUMENTS, GROUPS,
+        OGlobalConfiguration.QUERY_GROUP_BY_SPILL_THRESHOLD.getValueAsInteger(),
+        OGlobalConfiguration.QUERY_GROUP_BY_SPILL_PARTITIONS.getValueAsInteger());
+
+    for (String query : new String[] { "select session, count(*), sum(duration) from Event group by session",
+        "select session, count(*), sum(duration) from Event group by session order by session" }) {
+      long total = 0;
+      long peakHeap = 0;
+      final AtomicLong found = new AtomicLong();
+
+      for (int i = 0; i < RUNS; i++) {
+        System.gc();
+        resetPeakUsage();
+        found.set(0);
+
+        final long start = System.nanoTime();
+        db.query(new OSQLAsynchQuery<ODocument>(query, new OCommandResultListener() {
+          public boolean result(Object iRecord) {
+            found.incrementAndGet();
+            return true;
+          }
+
+          public void end() {
+          }
+        }));
+        total += System.nanoTime() - start;
+        peakHeap = Math.max(peakHeap, getPeakUsage());
+      }
+
+      System.out.printf("query '%s' : %d ms on average, %d groups returned, %d records per second, peak heap %d MB\n", query,
+          total / RUNS / 1000000, found.get(), DOCUMENTS * RUNS * 1000000000L / total, peakHeap / (1024 * 1024));
+    }
+
+    db.drop();
+  }
+
+  private static void resetPeakUsage() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      if (pool.getType() == MemoryType.HEAP)
+        pool.resetPeakUsage();
+  }
+
+  private static long getPeakUsage() {
+    long used = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      if (pool.getType() == MemoryType.HEAP)
+        used += pool.getPeakUsage().getUsed();
+
+    return used;
+  }
+}
@@ -0,0 +1,89 @@
+package com.orientechnologies.orient.test.internal;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Executes queries whose conditions can be answered by a low selectivity index and by a highly selective one, choosing the index
+ * by the fields it covers and by the estimated cost, before and after ANALYZE.
+ */
+@Test(enabled = false)
+public class IndexSelectionSpeedTest {
+  private static final int      DOCUMENTS  = 2000000;
+  private static final int      EXECUTIONS = 200;
+
+  private static final String[] QUERIES    = { "select from Order where status = 3 and amount between 1000 and 1010",
+      "select from Order where status <> 3 and amount > 10", "select from Order where customer = 42 and status = 1" };
+
+  private String                buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testIndexSelection() throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/IndexSelectionSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    final OClass order = db.getMetadata().getSchema().createClass("Order");
+    order.createProperty("status", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    order.createProperty("amount", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    order.createProperty("customer", OType.INTEGER);
+    order.createIndex("Order.customer_status", OClass.INDEX_TYPE.NOTUNIQUE, "customer", "status");
+
+    final MersenneTwisterFast random = new MersenneTwisterFast(42);
+    final ODocument document = new ODocument();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      document.reset();
+      document.setClassName("Order");
+      document.field("status", random.nextInt(4));
+      document.field("amount", random.nextInt(1000000));
+      document.field("customer", random.nextInt(100000));
+      document.save();
+    }
+
+    run(db, false, "by fields");
+    run(db, true, "by cost");
+
+    final long start = System.nanoTime();
+    db.command(new OCommandSQL("analyze class Order")).execute();
+    System.out.printf("analyze: %d ms\n", (System.nanoTime() - start) / 1000000);
+
+    run(db, true, "by cost after analyze");
+
+    db.drop();
+  }
+
+  private void run(final ODatabaseDocumentTx db, final boolean costBased, final String name) {
+    OGlobalConfiguration.QUERY_COST_BASED_INDEX_SELECTION.setValue(costBased);
+
+    for (String query : QUERIES) {
+      final ODocument report = db.command(new OCommandSQL("explain " + query)).execute();
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < EXECUTIONS; i++)
+        db.query(new OSQLSynchQuery<ODocument>(query));
+      final long total = System.nanoTime() - start;
+
+      System.out.printf("%s: '%s' %d us per execution, indexes %s, estimated rows %s, actual rows %s\n", name, query, total
+          / EXECUTIONS / 1000, report.field("involvedIndexes"), report.field("estimatedRows"), report.field("actualRows"));
+    }
+  }
+}
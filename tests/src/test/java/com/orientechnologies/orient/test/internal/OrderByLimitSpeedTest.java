@@ -0,0 +1,110 @@
+package com.orientechnologies.orient.test.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+
+/**
+ * Measures latency and peak heap usage of ORDER BY with small LIMIT, which keeps only top records in a heap, and of ORDER BY
+ * without LIMIT, which spills sorted runs to temporary files.
+ */
+@Test(enabled = false)
+public class OrderByLimitSpeedTest {
+  private static final int DOCUMENTS = 10000000;
+  private static final int RUNS      = 3;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testOrderBy() throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/OrderByLimitSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    final OClass event = db.getMetadata().getSchema().createClass("Event");
+    event.createProperty("timestamp", OType.LONG);
+    event.createProperty("source", OType.STRING);
+
+    final MersenneTwisterFast random = new MersenneTwisterFast(42);
+    final ODocument document = new ODocument();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      document.reset();
+      document.setClassName("Event");
+      document.field("timestamp", random.nextLong());
+      document.field("source", "source" + random.nextInt(1000));
+      document.save();
+    }
+
+    System.out.printf("%d documents, spill threshold %d records\n", DOCUMENTS,
+        OGlobalConfiguration.QUERY_ORDER_BY_SPILL_THRESHOLD.getValueAsInteger());
+
+    for (String query : new String[] { "select from Event order by timestamp desc limit 20",
+        "select from Event order by timestamp desc skip 1000 limit 20", "select from Event order by timestamp desc" }) {
+      long total = 0;
+      long peakHeap = 0;
+      final AtomicLong found = new AtomicLong();
+
+      for (int i = 0; i < RUNS; i++) {
+        System.gc();
+        resetPeakUsage();
+        found.set(0);
+
+        final long start = System.nanoTime();
+        db.query(new OSQLAsynchQuery<ODocument>(query, new OCommandResultListener() {
+          public boolean result(Object iRecord) {
+            found.incrementAndGet();
+            return true;
+          }
+
+          public void end() {
+          }
+        }));
+        total += System.nanoTime() - start;
+        peakHeap = Math.max(peakHeap, getPeakUsage());
+      }
+
+      System.out.printf("query '%s' : %d ms on average, %d records returned, peak heap %d MB\n", query, total / RUNS / 1000000,
+          found.get(), peakHeap / (1024 * 1024));
+    }
+
+    db.drop();
+  }
+
+  private static void resetPeakUsage() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      if (pool.getType() == MemoryType.HEAP)
+        pool.resetPeakUsage();
+  }
+
+  private static long getPeakUsage() {
+    long used = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      if (pool.getType() == MemoryType.HEAP)
+        used += pool.getPeakUsage().getUsed();
+
+    return used;
+  }
+}
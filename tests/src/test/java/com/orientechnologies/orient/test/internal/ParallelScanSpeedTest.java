@@ -0,0 +1,85 @@
+package com.orientechnologies.orient.test.internal;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Compares full scan of class which spans several clusters by serial query and by parallel query, which splits positions of
+ * clusters in ranges scanned by several workers.
+ */
+@Test(enabled = false)
+public class ParallelScanSpeedTest {
+  private static final int DOCUMENTS = 4000000;
+  private static final int CLUSTERS  = 8;
+  private static final int RUNS      = 5;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testScan() throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/ParallelScanSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    final OClass order = db.getMetadata().getSchema().createClass("Order");
+    order.createProperty("amount", OType.INTEGER);
+    order.createProperty("customer", OType.STRING);
+
+    for (int i = 1; i < CLUSTERS; i++)
+      order.addClusterId(db.addCluster("order_" + i, OStorage.CLUSTER_TYPE.PHYSICAL));
+
+    final MersenneTwisterFast random = new MersenneTwisterFast(42);
+    final ODocument document = new ODocument();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      document.reset();
+      document.setClassName("Order");
+      document.field("amount", random.nextInt(10000));
+      document.field("customer", "customer" + random.nextInt(DOCUMENTS / 10));
+      document.save(i % CLUSTERS == 0 ? "order" : "order_" + (i % CLUSTERS));
+    }
+
+    final String query = "select from Order where amount > 9990 and customer like 'customer1%'";
+
+    System.out.printf("%d documents in %d clusters, %d cores\n", DOCUMENTS, CLUSTERS, Runtime.getRuntime().availableProcessors());
+
+    for (String suffix : new String[] { "", " parallel", " limit 10 parallel" }) {
+      // WARM UP
+      db.query(new OSQLSynchQuery<ODocument>(query + suffix));
+
+      long total = 0;
+      int found = 0;
+      for (int i = 0; i < RUNS; i++) {
+        final long start = System.nanoTime();
+        final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query + suffix));
+        total += System.nanoTime() - start;
+        found = result.size();
+      }
+
+      System.out.printf("query '%s' : %d ms on average, %d records found, %d scanned records per second\n", suffix.trim(), total
+          / RUNS / 1000000, found, DOCUMENTS * RUNS * 1000000000L / total);
+    }
+
+    db.drop();
+  }
+}
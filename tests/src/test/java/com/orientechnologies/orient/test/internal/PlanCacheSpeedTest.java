@@ -0,0 +1,87 @@
+package com.orientechnologies.orient.test.internal;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLPlanCache;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Executes a few hundred distinct parameterized statements by indexed key many times, first parsing every execution, then reusing
+ * statements parsed before from the plan cache.
+ */
+@Test(enabled = false)
+public class PlanCacheSpeedTest {
+  private static final int DOCUMENTS  = 100000;
+  private static final int STATEMENTS = 300;
+  private static final int EXECUTIONS = 1000000;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testPlanCache() throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/PlanCacheSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    final OClass account = db.getMetadata().getSchema().createClass("Account");
+    account.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    account.createProperty("status", OType.INTEGER);
+
+    final MersenneTwisterFast random = new MersenneTwisterFast(42);
+    final ODocument document = new ODocument();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      document.reset();
+      document.setClassName("Account");
+      document.field("id", i);
+      document.field("status", random.nextInt(10));
+      document.save();
+    }
+
+    // DISTINCT STATEMENTS DIFFER BY PROJECTIONS AND CONDITIONS ON NOT INDEXED FIELD
+    final String[] statements = new String[STATEMENTS];
+    for (int i = 0; i < STATEMENTS; i++)
+      statements[i] = "select id, status, " + i + " as statement from Account where id = ? and status <> " + (i % 10 + 10);
+
+    for (int cacheSize : new int[] { 0, STATEMENTS * 2 }) {
+      OGlobalConfiguration.QUERY_PLAN_CACHE_SIZE.setValue(cacheSize);
+
+      final OSQLPlanCache cache = OSQLPlanCache.instance(db);
+      final long hitsBefore = cache != null ? cache.getHits() : 0;
+      final long missesBefore = cache != null ? cache.getMisses() : 0;
+      final long savedBefore = cache != null ? cache.getParseTimeSaved() : 0;
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < EXECUTIONS; i++)
+        db.query(new OSQLSynchQuery<ODocument>(statements[random.nextInt(STATEMENTS)]), random.nextInt(DOCUMENTS));
+      final long total = System.nanoTime() - start;
+
+      if (cache != null) {
+        final long hits = cache.getHits() - hitsBefore;
+        final long misses = cache.getMisses() - missesBefore;
+        System.out.printf("plan cache of %d statements: %d executions per second, hit rate %.3f, %d ms of parsing saved\n",
+            cacheSize, EXECUTIONS * 1000000000L / total, (float) hits / (hits + misses),
+            (cache.getParseTimeSaved() - savedBefore) / 1000000);
+      } else
+        System.out.printf("no plan cache: %d executions per second\n", EXECUTIONS * 1000000000L / total);
+    }
+
+    db.drop();
+  }
+}
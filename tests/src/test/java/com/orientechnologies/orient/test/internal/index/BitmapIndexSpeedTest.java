@@ -0,0 +1,100 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Measures latency of queries which combine several conditions on low cardinality fields, once with NOTUNIQUE indexes on the fields
+ * (only one index is used, the rest of conditions is evaluated against loaded records) and once with BITMAP indexes (conditions
+ * are combined on bitmaps and only matching records are loaded).
+ */
+@Test(enabled = false)
+public class BitmapIndexSpeedTest {
+  private static final int      DOCUMENTS = 100000000;
+  private static final int      QUERIES   = 20;
+
+  private static final String[] COUNTRIES = { "IT", "UK", "US", "DE", "FR", "ES", "NL", "PL", "SE", "CH" };
+  private static final String[] STATUSES  = { "active", "closed", "blocked", "pending" };
+  private static final String[] TYPES     = { "personal", "business" };
+
+  private static final String[] FILTERS   = {
+      "select from Customer where country = 'IT' and status = 'blocked' and gender = 'F'",
+      "select from Customer where (country = 'IT' or country = 'DE') and type = 'business' and status = 'pending'",
+      "select from Customer where country in ['UK', 'US'] and not (status = 'active') and gender = 'M'" };
+
+  private String                buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testFilters() throws Exception {
+    for (String indexType : new String[] { "notunique", "bitmap" }) {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/BitmapIndexSpeedTest");
+      if (db.exists()) {
+        db.open("admin", "admin");
+        db.drop();
+      }
+      db.create();
+
+      final OClass customer = db.getMetadata().getSchema().createClass("Customer");
+      customer.createProperty("country", OType.STRING);
+      customer.createProperty("status", OType.STRING);
+      customer.createProperty("gender", OType.STRING);
+      customer.createProperty("type", OType.STRING);
+
+      for (String field : new String[] { "country", "status", "gender", "type" })
+        db.command(new OCommandSQL("create index Customer." + field + " on Customer (" + field + ") " + indexType)).execute();
+
+      final MersenneTwisterFast random = new MersenneTwisterFast(42);
+      final ODocument document = new ODocument();
+
+      final long insertStart = System.nanoTime();
+      for (int i = 0; i < DOCUMENTS; i++) {
+        document.reset();
+        document.setClassName("Customer");
+        document.field("country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+        document.field("status", STATUSES[random.nextInt(STATUSES.length)]);
+        document.field("gender", random.nextBoolean() ? "F" : "M");
+        document.field("type", TYPES[random.nextInt(TYPES.length)]);
+        document.save();
+      }
+      final long insertTime = System.nanoTime() - insertStart;
+
+      System.out.printf("%s indexes : %d inserts per second\n", indexType, DOCUMENTS * 1000000000L / insertTime);
+
+      db.close();
+      db.open("admin", "admin");
+
+      for (String filter : FILTERS) {
+        long results = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+          final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(filter));
+          results += result.size();
+        }
+        final long queryTime = System.nanoTime() - start;
+
+        System.out.printf("%s indexes : %d ms per query, %d results, %s\n", indexType, queryTime / QUERIES / 1000000, results
+            / QUERIES, filter);
+      }
+
+      db.drop();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Compares throughput of lookups of absent keys, which are typical for uniqueness checks of inserts, in SBTree and hash indexes
+ * with and without Bloom filter.
+ */
+@Test(enabled = false)
+public class BloomFilterSpeedTest {
+  private static final int KEYS    = 2000000;
+  private static final int LOOKUPS = 5000000;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testAbsentKeyLookups() throws Exception {
+    for (OClass.INDEX_TYPE indexType : new OClass.INDEX_TYPE[] { OClass.INDEX_TYPE.UNIQUE, OClass.INDEX_TYPE.UNIQUE_HASH_INDEX }) {
+      for (boolean bloomFilter : new boolean[] { false, true }) {
+        OGlobalConfiguration.INDEX_BLOOM_FILTER.setValue(bloomFilter);
+
+        final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/BloomFilterSpeedTest");
+        if (db.exists()) {
+          db.open("admin", "admin");
+          db.drop();
+        }
+        db.create();
+
+        final OClass account = db.getMetadata().getSchema().createClass("Account");
+        account.createProperty("email", OType.STRING);
+        account.createIndex("Account.email", indexType, "email");
+
+        final MersenneTwisterFast random = new MersenneTwisterFast(42);
+        final ODocument document = new ODocument();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < KEYS; i++) {
+          document.reset();
+          document.setClassName("Account");
+          document.field("email", "user" + random.nextInt() + "@example.com");
+          document.save();
+        }
+        final long insertTime = System.nanoTime() - start;
+
+        // REOPEN DATABASE TO LOOKUP KEYS WITH COLD DISK CACHE AND FILTER LOADED FROM FILE
+        db.close();
+        db.open("admin", "admin");
+
+        final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Account.email");
+
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+          if (index.get("absent" + random.nextInt() + "@example.com") != null)
+            found++;
+        final long lookupTime = System.nanoTime() - start;
+
+        System.out.printf("%s index, Bloom filter %b : %d inserts per second, %d absent key lookups per second (%d found)\n",
+            indexType, bloomFilter, KEYS * 1000000000L / insertTime, LOOKUPS * 1000000000L / lookupTime, found);
+
+        db.drop();
+      }
+    }
+
+    OGlobalConfiguration.INDEX_BLOOM_FILTER.setValue(Boolean.FALSE);
+  }
+}
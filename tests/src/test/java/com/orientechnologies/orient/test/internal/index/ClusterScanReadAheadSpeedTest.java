@@ -0,0 +1,89 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.io.IOException;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Measures throughput of sequential scan of cluster which does not fit in disk cache for different sizes of read ahead window
+ * ({@link OGlobalConfiguration#DISK_CACHE_READ_AHEAD_PAGES}). Cluster is about 2Gb in size, direct IO is used so OS page cache does
+ * not hide latency of disk reads and each scan starts with empty disk cache.
+ */
+@Test(enabled = false)
+public class ClusterScanReadAheadSpeedTest {
+  private static final int       RECORD_SIZE  = 1024;
+  private static final int       RECORDS      = 2 * 1024 * 1024;
+  private static final int       CACHE_SIZE   = 256;
+  private static final int[]     READ_AHEAD   = { 0, 4, 16, 64 };
+
+  private OLocalPaginatedStorage storageLocal;
+  private int                    clusterId;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+    OGlobalConfiguration.FILE_DIRECT_IO.setValue(Boolean.TRUE);
+    OGlobalConfiguration.DISK_CACHE_SIZE.setValue(CACHE_SIZE);
+
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/ClusterScanReadAheadSpeedTest");
+    storageLocal.create(null);
+
+    clusterId = storageLocal.addCluster("PHYSICAL", "scanCluster", null, null, false);
+    final OCluster cluster = storageLocal.getClusterById(clusterId);
+
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    final byte[] content = new byte[RECORD_SIZE];
+
+    for (int i = 0; i < RECORDS; i++) {
+      random.nextBytes(content);
+      cluster.createRecord(content, OVersionFactory.instance().createVersion(), (byte) 'b');
+    }
+
+    storageLocal.close(true, false);
+  }
+
+  @AfterClass(enabled = false)
+  public void afterClass() throws IOException {
+    storageLocal.open(null, null, null);
+    storageLocal.delete();
+  }
+
+  @Test(enabled = false)
+  public void testScan() throws IOException {
+    for (int readAhead : READ_AHEAD) {
+      OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.setValue(readAhead);
+      storageLocal.open(null, null, null);
+
+      final OCluster cluster = storageLocal.getClusterById(clusterId);
+      final OClusterPosition lastPosition = cluster.getLastPosition();
+
+      long bytes = 0;
+      final long start = System.nanoTime();
+
+      for (OClusterPosition position = cluster.getFirstPosition(); position.compareTo(lastPosition) <= 0; position = position.inc()) {
+        final ORawBuffer buffer = cluster.readRecord(position);
+        if (buffer != null)
+          bytes += buffer.buffer.length;
+      }
+
+      final long time = System.nanoTime() - start;
+      storageLocal.close(true, false);
+
+      System.out.printf("read ahead %d pages : scan of %d Mb took %d ms, %d Mb/s\n", readAhead, bytes >> 20, time / 1000000,
+          (bytes >> 20) * 1000000000L / time);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Measures latency of point lookup which projects two fields, once using index only on the lookup field (every result row is
+ * read from the cluster) and once using index which includes projected field, so the query is answered from index keys. Records
+ * are big enough to not fit in few pages, so cluster reads are random.
+ */
+@Test(enabled = false)
+public class CoveringIndexSpeedTest {
+  private static final int DOCUMENTS = 5000000;
+  private static final int KEYS      = 1000000;
+  private static final int QUERIES   = 100000;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testLookup() throws Exception {
+    for (boolean covering : new boolean[] { false, true }) {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/CoveringIndexSpeedTest");
+      if (db.exists()) {
+        db.open("admin", "admin");
+        db.drop();
+      }
+      db.create();
+
+      final OClass account = db.getMetadata().getSchema().createClass("Account");
+      account.createProperty("login", OType.STRING);
+      account.createProperty("balance", OType.LONG);
+      account.createProperty("description", OType.STRING);
+
+      if (covering)
+        db.command(new OCommandSQL("create index Account.login on Account (login) include (balance) notunique")).execute();
+      else
+        db.command(new OCommandSQL("create index Account.login on Account (login) notunique")).execute();
+
+      final MersenneTwisterFast random = new MersenneTwisterFast(42);
+      final StringBuilder description = new StringBuilder();
+      for (int i = 0; i < 100; i++)
+        description.append("padding ");
+
+      final ODocument document = new ODocument();
+      for (int i = 0; i < DOCUMENTS; i++) {
+        document.reset();
+        document.setClassName("Account");
+        document.field("login", "login" + random.nextInt(KEYS));
+        document.field("balance", random.nextLong());
+        document.field("description", description.toString());
+        document.save();
+      }
+
+      db.close();
+      db.open("admin", "admin");
+
+      long results = 0;
+      final long start = System.nanoTime();
+      for (int i = 0; i < QUERIES; i++) {
+        final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+            "select login, balance from Account where login = ?"), "login" + random.nextInt(KEYS));
+        results += result.size();
+      }
+      final long queryTime = System.nanoTime() - start;
+
+      System.out.printf("covering index %b : %d ns per query, %d results\n", covering, queryTime / QUERIES, results);
+
+      db.drop();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePointer;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OReadWriteDiskCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OSegmentedReadWriteDiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Compares throughput of page load/release operations of single lock {@link OReadWriteDiskCache} and
+ * {@link OSegmentedReadWriteDiskCache} for different amount of threads. Mix of operations is 90% reads and 10% writes, all pages
+ * fit in read cache so disk does not affect results.
+ */
+@Test(enabled = false)
+public class DiskCacheMultiThreadSpeedTest {
+  private static final int       PAGE_SIZE          = 4 * 1024;
+  private static final int       PAGE_COUNT         = 16 * 1024;
+  private static final int       OPERATIONS         = 2000000;
+  private static final int[]     THREADS            = { 1, 2, 4, 8, 16, 32 };
+
+  private OLocalPaginatedStorage storageLocal;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage("plocal:" + buildDirectory + "/DiskCacheMultiThreadSpeedTest");
+    storageLocal.create(null);
+  }
+
+  @AfterClass(enabled = false)
+  public void afterClass() throws IOException {
+    storageLocal.delete();
+  }
+
+  @Test(enabled = false)
+  public void testLoadRelease() throws Exception {
+    for (int threads : THREADS) {
+      final long singleLock = run(new OReadWriteDiskCache(2L * PAGE_COUNT * PAGE_SIZE, 1024L * PAGE_SIZE, PAGE_SIZE, 10000, 100,
+          storageLocal, null, false, false), "singleLockCache.tst", threads);
+
+      final long segmented = run(new OSegmentedReadWriteDiskCache(2L * PAGE_COUNT * PAGE_SIZE, 1024L * PAGE_SIZE, PAGE_SIZE, 10000,
+          100, storageLocal, null, false, false, 0), "segmentedCache.tst", threads);
+
+      System.out.printf("threads %d : single lock cache %d ops/s, segmented cache %d ops/s, speedup %.2f\n", threads, singleLock,
+          segmented, ((double) segmented) / singleLock);
+    }
+  }
+
+  private long run(final ODiskCache diskCache, String fileName, int threads) throws Exception {
+    final long fileId = diskCache.openFile(fileName);
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final OCacheEntry cacheEntry = diskCache.load(fileId, i, false);
+      diskCache.release(cacheEntry);
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int n = 0; n < threads; n++) {
+      final int operations = OPERATIONS / threads;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final MersenneTwisterFast random = new MersenneTwisterFast();
+          latch.await();
+
+          for (int i = 0; i < operations; i++) {
+            final OCacheEntry cacheEntry = diskCache.load(fileId, random.nextInt(PAGE_COUNT), false);
+            final OCachePointer pointer = cacheEntry.getCachePointer();
+
+            if (random.nextInt(10) == 0) {
+              pointer.acquireExclusiveLock();
+              pointer.getDataPointer().setLong(PAGE_SIZE / 2, i);
+              cacheEntry.markDirty();
+              pointer.releaseExclusiveLock();
+            } else {
+              pointer.acquireSharedLock();
+              pointer.getDataPointer().getLong(PAGE_SIZE / 2);
+              pointer.releaseSharedLock();
+            }
+
+            diskCache.release(cacheEntry);
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    final long start = System.nanoTime();
+    latch.countDown();
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    final long end = System.nanoTime();
+    executor.shutdown();
+
+    diskCache.deleteFile(fileId);
+    diskCache.close();
+
+    return OPERATIONS * 1000000000L / (end - start);
+  }
+}
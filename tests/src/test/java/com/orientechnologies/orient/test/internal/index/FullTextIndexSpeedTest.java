@@ -0,0 +1,123 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndexFullText;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Compares build time and query latency of full-text index which maps words to plain sets of records with index which stores
+ * compressed posting lists ({@link OIndexFullText#CONFIG_POSTING_LISTS}) on 10M synthetic product descriptions. Words follow Zipf
+ * like distribution so index contains both very frequent and rare words.
+ */
+@Test(enabled = false)
+public class FullTextIndexSpeedTest {
+  private static final int      DOCUMENTS  = 10000000;
+  private static final int      VOCABULARY = 50000;
+  private static final int      WORDS      = 12;
+  private static final int      QUERIES    = 10000;
+
+  private static final String[] QUERY_KINDS = { "rare", "frequent", "frequent rare", "frequent frequent", "pref*" };
+
+  private String                buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testSearch() throws Exception {
+    for (boolean postingLists : new boolean[] { false, true }) {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/FullTextIndexSpeedTest");
+      if (db.exists()) {
+        db.open("admin", "admin");
+        db.drop();
+      }
+      db.create();
+
+      final OClass product = db.getMetadata().getSchema().createClass("Product");
+      product.createProperty("description", OType.STRING);
+
+      final MersenneTwisterFast random = new MersenneTwisterFast(42);
+
+      long start = System.nanoTime();
+      final ODocument document = new ODocument();
+      for (int i = 0; i < DOCUMENTS; i++) {
+        document.reset();
+        document.setClassName("Product");
+        document.field("description", description(random));
+        document.save();
+      }
+      final long loadTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      product.createIndex("Product.description", OClass.INDEX_TYPE.FULLTEXT.toString(), null,
+          new ODocument().field(OIndexFullText.CONFIG_POSTING_LISTS, postingLists).field("indexRadix", false),
+          new String[] { "description" });
+      final long indexTime = System.nanoTime() - start;
+
+      System.out.printf("posting lists %b : %d documents loaded in %d ms, index built in %d ms\n", postingLists, DOCUMENTS,
+          loadTime / 1000000, indexTime / 1000000);
+
+      for (String kind : QUERY_KINDS) {
+        random.setSeed(42);
+
+        long results = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+          final List<OIdentifiable> result = db.query(new OSQLSynchQuery<OIdentifiable>(
+              "select @rid from Product where description containsText ? limit 20"), query(kind, random));
+          results += result.size();
+        }
+        final long queryTime = System.nanoTime() - start;
+
+        System.out.printf("posting lists %b : query '%s' %d us per query, %d results\n", postingLists, kind, queryTime / QUERIES
+            / 1000, results);
+      }
+
+      db.drop();
+    }
+  }
+
+  private static String description(MersenneTwisterFast random) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < WORDS; i++) {
+      if (i > 0)
+        builder.append(' ');
+      builder.append(word(random));
+    }
+    return builder.toString();
+  }
+
+  private static String query(String kind, MersenneTwisterFast random) {
+    if (kind.equals("rare"))
+      return "word" + (VOCABULARY / 2 + random.nextInt(VOCABULARY / 2));
+    if (kind.equals("frequent"))
+      return "word" + random.nextInt(10);
+    if (kind.equals("frequent rare"))
+      return "word" + random.nextInt(10) + " word" + (VOCABULARY / 2 + random.nextInt(VOCABULARY / 2));
+    if (kind.equals("frequent frequent"))
+      return "word" + random.nextInt(10) + " word" + (10 + random.nextInt(10));
+
+    return "word" + (100 + random.nextInt(900)) + "*";
+  }
+
+  private static String word(MersenneTwisterFast random) {
+    // INVERSE OF CUMULATIVE DISTRIBUTION OF ZIPF LAW WITH EXPONENT 1 IS APPROXIMATED BY EXPONENT OF UNIFORM VALUE
+    final int rank = (int) Math.exp(random.nextDouble() * Math.log(VOCABULARY));
+    return "word" + (rank - 1);
+  }
+}
@@ -0,0 +1,129 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.hashindex.local.OHashFunction;
+import com.orientechnologies.orient.core.index.hashindex.local.OLocalHashTable;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Compares throughput of {@link OLocalHashTable} for different amount of threads when modifications lock whole hash table and when
+ * they lock only modified bucket page ({@link OGlobalConfiguration#HASH_TABLE_CONCURRENT_MODIFICATIONS}). All keys have the same
+ * bucket in the first level of directory, each thread puts batch of keys which splits buckets shared with other threads and then
+ * removes it, so buckets are merged back.
+ */
+@Test(enabled = false)
+public class HashTableMultiThreadSpeedTest {
+  private static final int   KEYS_PER_BATCH = 5000;
+  private static final int   BATCHES        = 2000;
+  private static final int[] THREADS        = { 1, 2, 4, 8, 16, 32 };
+
+  private String             buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testSplitMerge() throws Exception {
+    for (boolean concurrentModifications : new boolean[] { false, true }) {
+      OGlobalConfiguration.HASH_TABLE_CONCURRENT_MODIFICATIONS.setValue(concurrentModifications);
+
+      for (int threads : THREADS) {
+        final OLocalPaginatedStorage storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+            "plocal:" + buildDirectory + "/HashTableMultiThreadSpeedTest");
+        storageLocal.create(null);
+
+        final OLocalHashTable<Long, OIdentifiable> hashTable = new OLocalHashTable<Long, OIdentifiable>(".imc", ".tsc", ".obf",
+            ".nbh", new SameBucketHashFunction(), true);
+        hashTable.create("multiThreadSpeedTest", OLongSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, storageLocal, false);
+
+        System.out.printf("concurrent modifications %b, threads %d : %d ops/s\n", concurrentModifications, threads,
+            run(hashTable, threads));
+
+        Assert.assertEquals(hashTable.size(), 0);
+
+        hashTable.delete();
+        storageLocal.delete();
+      }
+    }
+  }
+
+  private long run(final OLocalHashTable<Long, OIdentifiable> hashTable, final int threads) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    final int batches = BATCHES / threads;
+    for (int n = 0; n < threads; n++) {
+      final int thread = n;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          latch.await();
+
+          for (int batch = 0; batch < batches; batch++) {
+            // splits distribute consecutive keys between buckets, so keys of each thread are present in all buckets
+            for (long i = 0; i < KEYS_PER_BATCH; i++) {
+              final long key = (long) thread * KEYS_PER_BATCH + i;
+              hashTable.put(key, value(key));
+            }
+
+            for (long i = 0; i < KEYS_PER_BATCH; i++) {
+              final long key = (long) thread * KEYS_PER_BATCH + i;
+              Assert.assertEquals(hashTable.remove(key), value(key));
+            }
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    final long start = System.nanoTime();
+    latch.countDown();
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    final long end = System.nanoTime();
+    executor.shutdown();
+
+    return 2L * batches * threads * KEYS_PER_BATCH * 1000000000L / (end - start);
+  }
+
+  private static ORecordId value(long key) {
+    return new ORecordId((int) (key % 32000), OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+
+  /**
+   * Keeps the highest {@link OLocalHashTable#MAX_LEVEL_DEPTH} bits of hash code zero, so all keys have the same bucket in the first
+   * level of directory.
+   */
+  private static final class SameBucketHashFunction implements OHashFunction<Long> {
+    @Override
+    public long hashCode(Long value) {
+      return Long.reverse(value) >>> OLocalHashTable.MAX_LEVEL_DEPTH;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.io.File;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+
+/**
+ * Compares insert throughput and index size of index on all the records of the class with partial index which contains only
+ * "active" records (2% of them).
+ */
+@Test(enabled = false)
+public class PartialIndexSpeedTest {
+  private static final int DOCUMENTS      = 5000000;
+  private static final int ACTIVE_PERCENT = 2;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testInsert() throws Exception {
+    for (boolean partial : new boolean[] { false, true }) {
+      final String path = buildDirectory + "/PartialIndexSpeedTest";
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + path);
+      if (db.exists()) {
+        db.open("admin", "admin");
+        db.drop();
+      }
+      db.create();
+
+      final OClass order = db.getMetadata().getSchema().createClass("Order");
+      order.createProperty("customer", OType.STRING);
+      order.createProperty("status", OType.STRING);
+
+      db.command(
+          new OCommandSQL("create index Order.customer on Order (customer) notunique" + (partial ? " where status = 'active'" : "")))
+          .execute();
+
+      final MersenneTwisterFast random = new MersenneTwisterFast(42);
+      final ODocument document = new ODocument();
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < DOCUMENTS; i++) {
+        document.reset();
+        document.setClassName("Order");
+        document.field("customer", "customer" + random.nextInt(DOCUMENTS / 10));
+        document.field("status", random.nextInt(100) < ACTIVE_PERCENT ? "active" : "closed");
+        document.save();
+      }
+      final long insertTime = System.nanoTime() - start;
+
+      final long entries = db.getMetadata().getIndexManager().getIndex("Order.customer").getSize();
+      db.close();
+
+      long indexFilesSize = 0;
+      final File[] files = new File(path).listFiles();
+      if (files != null)
+        for (File file : files)
+          if (file.getName().startsWith("Order.customer"))
+            indexFilesSize += file.length();
+
+      System.out.printf("partial index %b : %d inserts per second, %d index entries, %d index bytes on disk\n", partial,
+          DOCUMENTS * 1000000000L / insertTime, entries, indexFilesSize);
+
+      db.open("admin", "admin");
+      db.drop();
+    }
+  }
+}
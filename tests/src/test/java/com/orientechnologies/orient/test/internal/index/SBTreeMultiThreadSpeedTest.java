@@ -0,0 +1,111 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Compares throughput of {@link OSBTree} for different amount of threads when modifications lock whole tree and when they lock only
+ * modified leaf page ({@link OGlobalConfiguration#SBTREE_CONCURRENT_MODIFICATIONS}). Each thread inserts new random keys into
+ * preloaded tree and looks up existing ones, mix of operations is 20% inserts and 80% lookups.
+ */
+@Test(enabled = false)
+public class SBTreeMultiThreadSpeedTest {
+  private static final long  PRELOADED_KEYS = 100000000L;
+  private static final int   OPERATIONS     = 10000000;
+  private static final int[] THREADS        = { 1, 2, 4, 8, 16 };
+
+  private String             buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testInsertLookup() throws Exception {
+    for (boolean concurrentModifications : new boolean[] { false, true }) {
+      OGlobalConfiguration.SBTREE_CONCURRENT_MODIFICATIONS.setValue(concurrentModifications);
+
+      final OLocalPaginatedStorage storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+          "plocal:" + buildDirectory + "/SBTreeMultiThreadSpeedTest");
+      storageLocal.create(null);
+
+      final OSBTree<Long, OIdentifiable> sbTree = new OSBTree<Long, OIdentifiable>(".sbt", 1, true, ".nbt");
+      sbTree.create("multiThreadSpeedTest", OLongSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, storageLocal, false);
+
+      for (long key = 0; key < PRELOADED_KEYS; key++)
+        sbTree.put(key * 2, value(key * 2));
+
+      for (int threads : THREADS)
+        System.out.printf("concurrent modifications %b, threads %d : %d ops/s\n", concurrentModifications, threads,
+            run(sbTree, threads));
+
+      sbTree.delete();
+      storageLocal.delete();
+    }
+  }
+
+  private long run(final OSBTree<Long, OIdentifiable> sbTree, int threads) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int n = 0; n < threads; n++) {
+      final int operations = OPERATIONS / threads;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final MersenneTwisterFast random = new MersenneTwisterFast();
+          latch.await();
+
+          for (int i = 0; i < operations; i++) {
+            final long key = (random.nextLong() & Long.MAX_VALUE) % PRELOADED_KEYS;
+
+            if (random.nextInt(5) == 0)
+              sbTree.put(key * 2 + 1, value(key));
+            else
+              sbTree.get(key * 2);
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    final long start = System.nanoTime();
+    latch.countDown();
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    final long end = System.nanoTime();
+    executor.shutdown();
+
+    return OPERATIONS * 1000000000L / (end - start);
+  }
+
+  private static ORecordId value(long key) {
+    return new ORecordId((int) (key % 32000), OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}
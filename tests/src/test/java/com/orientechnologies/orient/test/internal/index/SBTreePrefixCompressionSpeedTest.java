@@ -0,0 +1,76 @@
+package com.orientechnologies.orient.test.internal.index;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Compares size of index, insert rate and lookup latency of {@link OSBTree} with URL-like keys when pages store keys as is and
+ * when common prefix of keys is stored once per page ({@link OGlobalConfiguration#SBTREE_PREFIX_COMPRESSION}).
+ */
+@Test(enabled = false)
+public class SBTreePrefixCompressionSpeedTest {
+  private static final int KEYS    = 5000000;
+  private static final int LOOKUPS = 2000000;
+
+  private String           buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testUrlKeys() throws Exception {
+    for (boolean prefixCompression : new boolean[] { false, true }) {
+      OGlobalConfiguration.SBTREE_PREFIX_COMPRESSION.setValue(prefixCompression);
+
+      final OLocalPaginatedStorage storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+          "plocal:" + buildDirectory + "/SBTreePrefixCompressionSpeedTest");
+      storageLocal.create(null);
+
+      final OSBTree<String, OIdentifiable> sbTree = new OSBTree<String, OIdentifiable>(".sbt", 1, true, ".nbt");
+      sbTree.create("prefixCompressionSpeedTest", OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, storageLocal, false);
+
+      final MersenneTwisterFast random = new MersenneTwisterFast(42);
+
+      long start = System.nanoTime();
+      for (int i = 0; i < KEYS; i++) {
+        final int key = random.nextInt(Integer.MAX_VALUE);
+        sbTree.put(url(key), new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key)));
+      }
+      final long insertTime = System.nanoTime() - start;
+
+      final long fileId = storageLocal.getDiskCache().openFile("prefixCompressionSpeedTest.sbt");
+      final long pages = storageLocal.getDiskCache().getFilledUpTo(fileId);
+
+      random.setSeed(42);
+      start = System.nanoTime();
+      for (int i = 0; i < LOOKUPS; i++)
+        sbTree.get(url(random.nextInt(Integer.MAX_VALUE)));
+      final long lookupTime = System.nanoTime() - start;
+
+      System.out.printf("prefix compression %b : %d pages, %d inserts/s, %d ns per lookup\n", prefixCompression, pages, KEYS
+          * 1000000000L / insertTime, lookupTime / LOOKUPS);
+
+      sbTree.delete();
+      storageLocal.delete();
+    }
+  }
+
+  private static String url(int key) {
+    return "http://www.example.com/catalog/products/category-" + (key % 100) + "/item-" + key + ".html";
+  }
+}
@@ -0,0 +1,102 @@
+package com.orientechnologies.orient.test.internal.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+
+/**
+ * Compares throughput of page writes and random page reads of {@link OFileClassic} and amount of memory which is used by OS page
+ * cache to hold file content with and without direct IO. Memory of OS page cache is taken from "Cached" field of /proc/meminfo, so
+ * numbers are meaningful only on Linux and only if there is no other IO activity during the test.
+ */
+@Test(enabled = false)
+public class FileDirectIOSpeedTest {
+  private static final int PAGE_SIZE = 64 * 1024;
+  private static final int PAGES     = 16 * 1024;
+  private static final int READS     = 100000;
+
+  private String           fileName;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    fileName = buildDirectory + File.separator + "fileDirectIOSpeedTest.tst";
+  }
+
+  @Test(enabled = false)
+  public void testDirectIO() throws Exception {
+    run("page cache", false, "none", false);
+    run("page cache, random advice, drop cache", false, "random", true);
+    run("direct IO", true, "none", false);
+  }
+
+  private void run(String name, boolean directIO, String advice, boolean dropOSCache) throws IOException {
+    final File file = new File(fileName);
+    if (file.exists())
+      file.delete();
+
+    final long cachedBefore = osCachedMemory();
+
+    final OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(fileName, "rw");
+    fileClassic.setNativeIO(directIO, advice, dropOSCache);
+    fileClassic.create(-1);
+
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    final byte[] page = new byte[PAGE_SIZE];
+    random.nextBytes(page);
+
+    fileClassic.allocateSpace((long) PAGES * PAGE_SIZE);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < PAGES; i++)
+      fileClassic.write((long) i * PAGE_SIZE, page);
+    fileClassic.synch();
+    final long writeTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < READS; i++)
+      fileClassic.read((long) random.nextInt(PAGES) * PAGE_SIZE, page, PAGE_SIZE);
+    final long readTime = System.nanoTime() - start;
+
+    final long cachedAfter = osCachedMemory();
+
+    System.out.printf("%s (direct IO is used : %b) : write %d pages/s, read %d pages/s, OS page cache grew by %d Mb\n", name,
+        fileClassic.isDirectIO(), PAGES * 1000000000L / writeTime, READS * 1000000000L / readTime,
+        (cachedAfter - cachedBefore) / 1024);
+
+    fileClassic.delete();
+  }
+
+  /**
+   * @return size of OS page cache in kilobytes or 0 if it can not be read.
+   */
+  private long osCachedMemory() throws IOException {
+    final File memInfo = new File("/proc/meminfo");
+    if (!memInfo.exists())
+      return 0;
+
+    final BufferedReader reader = new BufferedReader(new FileReader(memInfo));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith("Cached:"))
+          return Long.parseLong(line.substring("Cached:".length()).replace("kB", "").trim());
+      }
+    } finally {
+      reader.close();
+    }
+
+    return 0;
+  }
+}
@@ -0,0 +1,108 @@
+package com.orientechnologies.orient.test.internal.io;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Compares write and read throughput of cluster and size of its files on disk for different page compression methods
+ * ({@link OGlobalConfiguration#STORAGE_PAGE_COMPRESSION_METHOD}). Records consist of words from small dictionary, so they are
+ * compressible like usual document content. Cluster does not fit in disk cache, direct IO is used so OS page cache does not hide
+ * cost of disk reads.
+ */
+@Test(enabled = false)
+public class PageCompressionSpeedTest {
+  private static final int      RECORD_SIZE  = 1024;
+  private static final int      RECORDS      = 1024 * 1024;
+  private static final int      CACHE_SIZE   = 128;
+  private static final String[] COMPRESSIONS = { "nothing", "snappy", "gzip" };
+  private static final String[] WORDS        = { "orient", "record", "cluster", "page", "index", "vertex", "edge", "document",
+      "name", "value", "12", "345", "6789", " ", " ", ",", ":" };
+
+  private String                buildDirectory;
+
+  @BeforeClass(enabled = false)
+  public void beforeClass() {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+    OGlobalConfiguration.FILE_DIRECT_IO.setValue(Boolean.TRUE);
+    OGlobalConfiguration.DISK_CACHE_SIZE.setValue(CACHE_SIZE);
+    OGlobalConfiguration.STORAGE_COMPRESSION_METHOD.setValue("nothing");
+
+    buildDirectory = System.getProperty("buildDirectory", ".");
+  }
+
+  @Test(enabled = false)
+  public void testPageCompression() throws IOException {
+    for (String compression : COMPRESSIONS) {
+      OGlobalConfiguration.STORAGE_PAGE_COMPRESSION_METHOD.setValue(compression);
+
+      final OLocalPaginatedStorage storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+          "plocal:" + buildDirectory + "/PageCompressionSpeedTest");
+      storageLocal.create(null);
+
+      final int clusterId = storageLocal.addCluster("PHYSICAL", "compressedCluster", null, null, false);
+      OCluster cluster = storageLocal.getClusterById(clusterId);
+
+      final MersenneTwisterFast random = new MersenneTwisterFast();
+      final byte[] content = new byte[RECORD_SIZE];
+
+      long start = System.nanoTime();
+      for (int i = 0; i < RECORDS; i++) {
+        generateRecord(random, content);
+        cluster.createRecord(content, OVersionFactory.instance().createVersion(), (byte) 'b');
+      }
+      storageLocal.close(true, false);
+      final long writeTime = System.nanoTime() - start;
+
+      final long diskSize = clusterFilesSize(storageLocal.getStoragePath());
+
+      storageLocal.open(null, null, null);
+      cluster = storageLocal.getClusterById(clusterId);
+      final OClusterPosition lastPosition = cluster.getLastPosition();
+
+      long bytes = 0;
+      start = System.nanoTime();
+      for (OClusterPosition position = cluster.getFirstPosition(); position.compareTo(lastPosition) <= 0; position = position.inc()) {
+        final ORawBuffer buffer = cluster.readRecord(position);
+        if (buffer != null)
+          bytes += buffer.buffer.length;
+      }
+      final long readTime = System.nanoTime() - start;
+
+      storageLocal.delete();
+
+      System.out.printf("page compression %s : %d Mb of records use %d Mb on disk, write %d Mb/s, read %d Mb/s\n", compression,
+          bytes >> 20, diskSize >> 20, (bytes >> 20) * 1000000000L / writeTime, (bytes >> 20) * 1000000000L / readTime);
+    }
+  }
+
+  private void generateRecord(MersenneTwisterFast random, byte[] content) {
+    int i = 0;
+    while (i < content.length) {
+      final String word = WORDS[random.nextInt(WORDS.length)];
+      for (int n = 0; n < word.length() && i < content.length; n++)
+        content[i++] = (byte) word.charAt(n);
+    }
+  }
+
+  private long clusterFilesSize(String storagePath) {
+    long size = 0;
+    for (File file : new File(storagePath).listFiles()) {
+      if (file.getName().toLowerCase().startsWith("compressedcluster"))
+        size += file.length();
+    }
+
+    return size;
+  }
+}